@@ -230,6 +230,7 @@ CTX.INPUT['executors'] = """
  deleteexecutor.cpp
  distinctexecutor.cpp
  executorutil.cpp
+ hashjoinexecutor.cpp
  indexscanexecutor.cpp
  indexcountexecutor.cpp
  tablecountexecutor.cpp
@@ -244,6 +245,7 @@ CTX.INPUT['executors'] = """
  receiveexecutor.cpp
  sendexecutor.cpp
  seqscanexecutor.cpp
+ spillpartitions.cpp
  unionexecutor.cpp
  updateexecutor.cpp
 """
@@ -264,6 +266,7 @@ CTX.INPUT['plannodes'] = """
  aggregatenode.cpp
  deletenode.cpp
  distinctnode.cpp
+ hashjoinnode.cpp
  indexscannode.cpp
  indexcountnode.cpp
  tablecountnode.cpp
@@ -387,9 +390,16 @@ if whichtests in ("${eetestsuite}", "execution"):
      FragmentManagerTest
     """
 
+if whichtests in ("${eetestsuite}", "executors"):
+    CTX.TESTS['executors'] = """
+     hashjoinexecutor_test
+     orderbyexecutor_test
+    """
+
 if whichtests in ("${eetestsuite}", "expressions"):
     CTX.TESTS['expressions'] = """
      expression_test
+     batch_expression_test
     """
 
 if whichtests in ("${eetestsuite}", "indexes"):
@@ -402,6 +412,7 @@ if whichtests in ("${eetestsuite}", "indexes"):
 
 if whichtests in ("${eetestsuite}", "storage"):
     CTX.TESTS['storage'] = """
+     bulk_load_test
      CompactionTest
      constraint_test
      CopyOnWriteTest
@@ -420,6 +431,7 @@ if whichtests in ("${eetestsuite}", "storage"):
 if whichtests in ("${eetestsuite}", "structures"):
     CTX.TESTS['structures'] = """
      CompactingMapTest
+     CompactingBTreeTest
      CompactingMapIndexCountTest
      CompactingHashTest
      CompactingPoolTest
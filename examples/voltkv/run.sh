@@ -108,6 +108,7 @@ function async-benchmark() {
         --maxvaluesize=1024 \
         --entropy=127 \
         --usecompression=false
+#        --batchsize=100 \
 #        --latencyreport=true \
 #        --ratelimit=100000
 }
@@ -40,6 +40,8 @@
 
 package voltkv;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 import java.util.Timer;
 import java.util.TimerTask;
@@ -145,6 +147,9 @@ public class AsyncBenchmark {
         @Option(desc = "Filename to write raw summary statistics to.")
         String statsfile = "";
 
+        @Option(desc = "Number of invocations to send per batch (1 sends them one at a time).")
+        int batchsize = 1;
+
         @Override
         public void validate() {
             if (duration <= 0) exitWithMessageAndUsage("duration must be > 0");
@@ -162,6 +167,7 @@ public class AsyncBenchmark {
             if (entropy > 127) exitWithMessageAndUsage("entropy must be <= 127");
 
             if (ratelimit <= 0) exitWithMessageAndUsage("ratelimit must be > 0");
+            if (batchsize <= 0) exitWithMessageAndUsage("batchsize must be > 0");
         }
     }
 
@@ -424,6 +430,39 @@ public class AsyncBenchmark {
         }
     }
 
+    /**
+     * Collects invocations of one procedure and sends them together with
+     * callProcedureBatch once --batchsize of them are waiting.
+     */
+    class InvocationBatch {
+        final String procName;
+        final List<ProcedureCallback> callbacks = new ArrayList<ProcedureCallback>();
+        final List<Object[]> parameterSets = new ArrayList<Object[]>();
+
+        InvocationBatch(String procName) {
+            this.procName = procName;
+        }
+
+        void add(ProcedureCallback callback, Object... parameters) throws Exception {
+            callbacks.add(callback);
+            parameterSets.add(parameters);
+            if (callbacks.size() >= config.batchsize) {
+                flush();
+            }
+        }
+
+        void flush() throws Exception {
+            if (callbacks.isEmpty()) {
+                return;
+            }
+            client.callProcedureBatch(callbacks.toArray(new ProcedureCallback[callbacks.size()]),
+                                      procName,
+                                      parameterSets.toArray(new Object[parameterSets.size()][]));
+            callbacks.clear();
+            parameterSets.clear();
+        }
+    }
+
     /**
      * Core benchmark code.
      * Connect. Initialize. Run the loop. Cleanup. Print Results.
@@ -442,12 +481,13 @@ public class AsyncBenchmark {
         System.out.println();
         if (config.preload) {
             System.out.println("Preloading data store...");
+            InvocationBatch preload = new InvocationBatch("Put");
             for(int i=0; i < config.poolsize; i++) {
-                client.callProcedure(new NullCallback(),
-                                     "Put",
-                                     String.format(processor.KeyFormat, i),
-                                     processor.generateForStore().getStoreValue());
+                preload.add(new NullCallback(),
+                            String.format(processor.KeyFormat, i),
+                            processor.generateForStore().getStoreValue());
             }
+            preload.flush();
             client.drain();
             System.out.println("Preloading complete.\n");
         }
@@ -459,19 +499,33 @@ public class AsyncBenchmark {
         // Run the benchmark loop for the requested warmup time
         // The throughput may be throttled depending on client configuration
         System.out.println("Warming up...");
+        final InvocationBatch gets = new InvocationBatch("Get");
+        final InvocationBatch puts = new InvocationBatch("Put");
         final long warmupEndTime = System.currentTimeMillis() + (1000l * config.warmup);
         while (warmupEndTime > System.currentTimeMillis()) {
             // Decide whether to perform a GET or PUT operation
             if (rand.nextDouble() < config.getputratio) {
                 // Get a key/value pair, asynchronously
-                client.callProcedure(new NullCallback(), "Get", processor.generateRandomKeyForRetrieval());
+                if (config.batchsize > 1) {
+                    gets.add(new NullCallback(), processor.generateRandomKeyForRetrieval());
+                }
+                else {
+                    client.callProcedure(new NullCallback(), "Get", processor.generateRandomKeyForRetrieval());
+                }
             }
             else {
                 // Put a key/value pair, asynchronously
                 final PayloadProcessor.Pair pair = processor.generateForStore();
-                client.callProcedure(new NullCallback(), "Put", pair.Key, pair.getStoreValue());
+                if (config.batchsize > 1) {
+                    puts.add(new NullCallback(), pair.Key, pair.getStoreValue());
+                }
+                else {
+                    client.callProcedure(new NullCallback(), "Put", pair.Key, pair.getStoreValue());
+                }
             }
         }
+        gets.flush();
+        puts.flush();
 
         // reset the stats after warmup
         fullStatsContext.fetchAndResetBaseline();
@@ -489,14 +543,26 @@ public class AsyncBenchmark {
             // Decide whether to perform a GET or PUT operation
             if (rand.nextDouble() < config.getputratio) {
                 // Get a key/value pair, asynchronously
-                client.callProcedure(new GetCallback(), "Get", processor.generateRandomKeyForRetrieval());
+                if (config.batchsize > 1) {
+                    gets.add(new GetCallback(), processor.generateRandomKeyForRetrieval());
+                }
+                else {
+                    client.callProcedure(new GetCallback(), "Get", processor.generateRandomKeyForRetrieval());
+                }
             }
             else {
                 // Put a key/value pair, asynchronously
                 final PayloadProcessor.Pair pair = processor.generateForStore();
-                client.callProcedure(new PutCallback(pair), "Put", pair.Key, pair.getStoreValue());
+                if (config.batchsize > 1) {
+                    puts.add(new PutCallback(pair), pair.Key, pair.getStoreValue());
+                }
+                else {
+                    client.callProcedure(new PutCallback(pair), "Put", pair.Key, pair.getStoreValue());
+                }
             }
         }
+        gets.flush();
+        puts.flush();
 
         // cancel periodic stats printing
         timer.cancel();
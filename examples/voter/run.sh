@@ -115,6 +115,7 @@ function async-benchmark() {
         --servers=localhost:21212 \
         --contestants=6 \
         --maxvotes=2
+#        --batchsize=100 \
 #        --latencyreport=true \
 #        --ratelimit=100000
 }
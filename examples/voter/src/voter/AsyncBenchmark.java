@@ -42,6 +42,8 @@
 
 package voter;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.concurrent.CountDownLatch;
@@ -127,6 +129,9 @@ public class AsyncBenchmark {
         @Option(desc = "Filename to write raw summary statistics to.")
         String statsfile = "";
 
+        @Option(desc = "Number of invocations to send per batch (1 sends them one at a time).")
+        int batchsize = 1;
+
         @Option(desc = "User name for connection.")
         String user = "";
 
@@ -141,6 +146,7 @@ public class AsyncBenchmark {
             if (contestants <= 0) exitWithMessageAndUsage("contestants must be > 0");
             if (maxvotes <= 0) exitWithMessageAndUsage("maxvotes must be > 0");
             if (ratelimit <= 0) exitWithMessageAndUsage("ratelimit must be > 0");
+            if (batchsize <= 0) exitWithMessageAndUsage("batchsize must be > 0");
         }
     }
 
@@ -362,6 +368,39 @@ public class AsyncBenchmark {
         }
     }
 
+    /**
+     * Collects invocations of one procedure and sends them together with
+     * callProcedureBatch once --batchsize of them are waiting.
+     */
+    class InvocationBatch {
+        final String procName;
+        final List<ProcedureCallback> callbacks = new ArrayList<ProcedureCallback>();
+        final List<Object[]> parameterSets = new ArrayList<Object[]>();
+
+        InvocationBatch(String procName) {
+            this.procName = procName;
+        }
+
+        void add(ProcedureCallback callback, Object... parameters) throws Exception {
+            callbacks.add(callback);
+            parameterSets.add(parameters);
+            if (callbacks.size() >= config.batchsize) {
+                flush();
+            }
+        }
+
+        void flush() throws Exception {
+            if (callbacks.isEmpty()) {
+                return;
+            }
+            client.callProcedureBatch(callbacks.toArray(new ProcedureCallback[callbacks.size()]),
+                                      procName,
+                                      parameterSets.toArray(new Object[parameterSets.size()][]));
+            callbacks.clear();
+            parameterSets.clear();
+        }
+    }
+
     /**
      * Core benchmark code.
      * Connect. Initialize. Run the loop. Cleanup. Print Results.
@@ -387,18 +426,25 @@ public class AsyncBenchmark {
         // Run the benchmark loop for the requested warmup time
         // The throughput may be throttled depending on client configuration
         System.out.println("Warming up...");
+        final InvocationBatch votes = new InvocationBatch("Vote");
         final long warmupEndTime = System.currentTimeMillis() + (1000l * config.warmup);
         while (warmupEndTime > System.currentTimeMillis()) {
             // Get the next phone call
             PhoneCallGenerator.PhoneCall call = switchboard.receive();
 
-            // asynchronously call the "Vote" procedure
-            client.callProcedure(new NullCallback(),
-                                 "Vote",
-                                 call.phoneNumber,
-                                 call.contestantNumber,
-                                 config.maxvotes);
+            // asynchronously call the "Vote" procedure, alone or in a batch
+            if (config.batchsize > 1) {
+                votes.add(new NullCallback(), call.phoneNumber, call.contestantNumber, config.maxvotes);
+            }
+            else {
+                client.callProcedure(new NullCallback(),
+                                     "Vote",
+                                     call.phoneNumber,
+                                     call.contestantNumber,
+                                     config.maxvotes);
+            }
         }
+        votes.flush();
 
         // reset the stats after warmup
         fullStatsContext.fetchAndResetBaseline();
@@ -417,13 +463,19 @@ public class AsyncBenchmark {
             // Get the next phone call
             PhoneCallGenerator.PhoneCall call = switchboard.receive();
 
-            // asynchronously call the "Vote" procedure
-            client.callProcedure(new VoterCallback(),
-                                 "Vote",
-                                 call.phoneNumber,
-                                 call.contestantNumber,
-                                 config.maxvotes);
+            // asynchronously call the "Vote" procedure, alone or in a batch
+            if (config.batchsize > 1) {
+                votes.add(new VoterCallback(), call.phoneNumber, call.contestantNumber, config.maxvotes);
+            }
+            else {
+                client.callProcedure(new VoterCallback(),
+                                     "Vote",
+                                     call.phoneNumber,
+                                     call.contestantNumber,
+                                     config.maxvotes);
+            }
         }
+        votes.flush();
 
         // cancel periodic stats printing
         timer.cancel();
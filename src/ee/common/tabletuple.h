@@ -690,24 +690,42 @@ inline void TableTuple::deserializeFrom(voltdb::SerializeInput &tupleIn, Pool *d
     assert(m_data);
 
     tupleIn.readInt();
-    for (int j = 0; j < m_schema->columnCount(); ++j) {
-        const ValueType type = m_schema->columnType(j);
-        /**
-         * Hack hack. deserializeFrom is only called when we serialize
-         * and deserialize tables. The serialization format for
-         * Strings/Objects in a serialized table happens to have the
-         * same in memory representation as the Strings/Objects in a
-         * tabletuple. The goal here is to wrap the serialized
-         * representation of the value in an NValue and then serialize
-         * that into the tuple from the NValue. This makes it possible
-         * to push more value specific functionality out of
-         * TableTuple. The memory allocation will be performed when
-         * serializing to tuple storage.
-         */
-        const bool isInlined = m_schema->columnIsInlined(j);
-        char *dataPtr = getDataPtr(j);
-        const int32_t columnLength = m_schema->columnLength(j);
-        NValue::deserializeFrom(tupleIn, type, dataPtr, isInlined, columnLength, dataPool);
+    int j = 0;
+    try {
+        for (; j < m_schema->columnCount(); ++j) {
+            const ValueType type = m_schema->columnType(j);
+            /**
+             * Hack hack. deserializeFrom is only called when we serialize
+             * and deserialize tables. The serialization format for
+             * Strings/Objects in a serialized table happens to have the
+             * same in memory representation as the Strings/Objects in a
+             * tabletuple. The goal here is to wrap the serialized
+             * representation of the value in an NValue and then serialize
+             * that into the tuple from the NValue. This makes it possible
+             * to push more value specific functionality out of
+             * TableTuple. The memory allocation will be performed when
+             * serializing to tuple storage.
+             */
+            const bool isInlined = m_schema->columnIsInlined(j);
+            char *dataPtr = getDataPtr(j);
+            const int32_t columnLength = m_schema->columnLength(j);
+            NValue::deserializeFrom(tupleIn, type, dataPtr, isInlined, columnLength, dataPool);
+        }
+    } catch (const SQLException &e) {
+        // Free the objects of the columns already read and null out every
+        // object pointer, so the caller can safely release the tuple.
+        const uint16_t uninlinedColumnCount = m_schema->getUninlinedObjectColumnCount();
+        std::vector<char*> oldObjects;
+        for (int ii = 0; ii < uninlinedColumnCount; ii++) {
+            const int idx = m_schema->getUninlinedObjectColumnInfoIndex(ii);
+            char** dataPtr = reinterpret_cast<char**>(getDataPtr(idx));
+            if (idx < j && dataPool == NULL) {
+                oldObjects.push_back(*dataPtr);
+            }
+            *dataPtr = NULL;
+        }
+        NValue::freeObjectsFromTupleStorage(oldObjects);
+        throw;
     }
 }
 
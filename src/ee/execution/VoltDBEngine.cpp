@@ -114,6 +114,8 @@ const int64_t AD_HOC_FRAG_ID = -1;
 VoltDBEngine::VoltDBEngine(Topend *topend, LogProxy *logProxy)
     : m_currentUndoQuantum(NULL),
       m_hashinator(NULL),
+      m_tempTableSpillLimit(-1),
+      m_tempTableSpilledBytesOfDroppedPlans(0),
       m_staticParams(MAX_PARAM_COUNT),
       m_currentInputDepId(-1),
       m_isELEnabled(false),
@@ -160,7 +162,9 @@ VoltDBEngine::initialize(int32_t clusterIndex,
                          int32_t partitionId,
                          int32_t hostId,
                          string hostname,
-                         int64_t tempTableMemoryLimit)
+                         int64_t tempTableMemoryLimit,
+                         string tempTableSpillDirectory,
+                         int64_t tempTableSpillLimit)
 {
     // Be explicit about running in the standard C locale for now.
     locale::global(locale("C"));
@@ -169,6 +173,8 @@ VoltDBEngine::initialize(int32_t clusterIndex,
     m_siteId = siteId;
     m_partitionId = partitionId;
     m_tempTableMemoryLimit = tempTableMemoryLimit;
+    m_tempTableSpillDirectory = tempTableSpillDirectory;
+    m_tempTableSpillLimit = tempTableSpillLimit;
 
     // Instantiate our catalog - it will be populated later on by load()
     m_catalog = boost::shared_ptr<catalog::Catalog>(new catalog::Catalog());
@@ -904,6 +910,9 @@ bool
 VoltDBEngine::updateCatalog(const int64_t timestamp, const string &catalogPayload)
 {
     // clean up execution plans when the tables underneath might change
+    BOOST_FOREACH(boost::shared_ptr<ExecutorVector> ev, m_plans) {
+        m_tempTableSpilledBytesOfDroppedPlans += ev->limits.getSpilledTotal();
+    }
     m_plans.clear();
 
     assert(m_catalog != NULL); // the engine must be initialized
@@ -967,6 +976,13 @@ VoltDBEngine::loadTable(int32_t tableId,
 
     try {
         table->loadTuplesFrom(serializeIn, NULL, returnUniqueViolations ? &m_resultOutput : NULL);
+    } catch (const SQLException &e) {
+        // Bad data, e.g. an oversized string, only fails the load when the
+        // rows already loaded can be rolled back with the transaction.
+        if (getCurrentUndoQuantum() != NULL) {
+            throw;
+        }
+        throwFatalException("%s", e.message().c_str());
     } catch (const SerializableEEException &e) {
         throwFatalException("%s", e.message().c_str());
     }
@@ -1072,7 +1088,8 @@ VoltDBEngine::ExecutorVector *VoltDBEngine::getExecutorVectorForFragmentId(const
             frag_temptable_limit = -1;
         }
 
-        boost::shared_ptr<ExecutorVector> ev(new ExecutorVector(fragId, frag_temptable_log_limit, frag_temptable_limit, pnf));
+        boost::shared_ptr<ExecutorVector> ev(new ExecutorVector(fragId, frag_temptable_log_limit, frag_temptable_limit,
+                                                                m_tempTableSpillDirectory, m_tempTableSpillLimit, pnf));
 
         // Initialize each node!
         for (int ctr = 0, cnt = (int)pnf->getExecuteList().size();
@@ -1098,6 +1115,7 @@ VoltDBEngine::ExecutorVector *VoltDBEngine::getExecutorVectorForFragmentId(const
         // remove a plan from the front if the cache is full
         if (m_plans.size() > PLAN_CACHE_SIZE) {
             PlanSet::iterator iter = m_plans.get<0>().begin();
+            m_tempTableSpilledBytesOfDroppedPlans += (*iter)->limits.getSpilledTotal();
             m_plans.erase(iter);
         }
 
@@ -1258,6 +1276,14 @@ void VoltDBEngine::quiesce(int64_t lastCommittedSpHandle) {
     }
 }
 
+int64_t VoltDBEngine::getTempTableSpilledBytes() const {
+    int64_t spilled = m_tempTableSpilledBytesOfDroppedPlans;
+    BOOST_FOREACH(boost::shared_ptr<ExecutorVector> ev, m_plans) {
+        spilled += ev->limits.getSpilledTotal();
+    }
+    return spilled;
+}
+
 string VoltDBEngine::debug(void) const {
     stringstream output(stringstream::in | stringstream::out);
     PlanSet::const_iterator iter;
@@ -130,6 +130,8 @@ class __attribute__((visibility("default"))) VoltDBEngine {
 
         /** Constructor for test code: this does not enable JNI callbacks. */
         VoltDBEngine() :
+          m_tuplesProcessedInBatch(0),
+          m_tuplesProcessedInFragment(0),
           m_currentUndoQuantum(NULL),
           m_hashinator(NULL),
           m_staticParams(MAX_PARAM_COUNT),
@@ -146,7 +148,9 @@ class __attribute__((visibility("default"))) VoltDBEngine {
                         int32_t partitionId,
                         int32_t hostId,
                         std::string hostname,
-                        int64_t tempTableMemoryLimit);
+                        int64_t tempTableMemoryLimit,
+                        std::string tempTableSpillDirectory = "",
+                        int64_t tempTableSpillLimit = -1);
         virtual ~VoltDBEngine();
 
         inline int32_t getClusterIndex() const { return m_clusterIndex; }
@@ -340,6 +344,11 @@ class __attribute__((visibility("default"))) VoltDBEngine {
                 bool interval,
                 int64_t now);
 
+        /**
+         * Total bytes of temp table data this engine has spilled to disk.
+         */
+        int64_t getTempTableSpilledBytes() const;
+
         inline Pool* getStringPool() { return &m_stringPool; }
 
         inline LogManager* getLogManager() {
@@ -471,10 +480,14 @@ class __attribute__((visibility("default"))) VoltDBEngine {
             ExecutorVector(int64_t fragmentId,
                            int64_t logThreshold,
                            int64_t memoryLimit,
+                           const std::string &spillDirectory,
+                           int64_t spillLimit,
                            PlanNodeFragment *fragment) : fragId(fragmentId), planFragment(fragment)
             {
                 limits.setLogThreshold(logThreshold);
                 limits.setMemoryLimit(memoryLimit);
+                limits.setSpillDirectory(spillDirectory);
+                limits.setSpillLimit(spillLimit);
             }
 
             int64_t getFragId() const { return fragId; }
@@ -520,6 +533,10 @@ class __attribute__((visibility("default"))) VoltDBEngine {
         boost::scoped_ptr<TheHashinator> m_hashinator;
         size_t m_startOfResultBuffer;
         int64_t m_tempTableMemoryLimit;
+        std::string m_tempTableSpillDirectory;
+        int64_t m_tempTableSpillLimit;
+        // Temp table bytes spilled by plans no longer in m_plans
+        int64_t m_tempTableSpilledBytesOfDroppedPlans;
 
         /*
          * Catalog delegates hashed by path.
@@ -649,8 +666,10 @@ inline void VoltDBEngine::resetReusedResultOutputBuffer(const size_t headerSize)
  */
 inline void VoltDBEngine::noteTuplesProcessedForProgressMonitoring(int tuplesProcessed) {
 #ifndef ENABLE_POST_4_0
+    int64_t before = m_tuplesProcessedInFragment;
     m_tuplesProcessedInFragment += tuplesProcessed;
-    if((m_tuplesProcessedInFragment % LONG_OP_THRESHOLD) == 0) {
+    // batches can step over the exact multiple
+    if((before / LONG_OP_THRESHOLD) != (m_tuplesProcessedInFragment / LONG_OP_THRESHOLD)) {
         reportProgessToTopend();
     }
 #endif
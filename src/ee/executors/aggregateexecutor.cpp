@@ -50,6 +50,7 @@
 #include "common/debuglog.h"
 #include "common/SerializableEEException.h"
 #include "expressions/abstractexpression.h"
+#include "executors/spillpartitions.h"
 #include "plannodes/aggregatenode.h"
 #include "storage/temptable.h"
 #include "storage/tableiterator.h"
@@ -562,16 +563,63 @@ typedef boost::unordered_map<TableTuple,
                              TableTupleHasher,
                              TableTupleEqualityChecker> HashAggregateMapType;
 
+// How often, in new groups, to check whether the groups still fit in memory.
+static const size_t GROUP_MEMORY_CHECK_INTERVAL = 256;
+// Rough heap cost of a hash map entry beyond what comes from m_memoryPool.
+static const int64_t HASH_ENTRY_OVERHEAD = sizeof(HashAggregateMapType::value_type) + 2 * sizeof(void*);
+
+AggregateHashExecutor::~AggregateHashExecutor() { }
+
+bool AggregateHashExecutor::p_init(AbstractPlanNode* abstract_node, TempTableLimits* limits)
+{
+    if (!AggregateExecutorBase::p_init(abstract_node, limits)) {
+        return false;
+    }
+    if (limits != NULL && limits->isSpillEnabled()) {
+        Table* input_table = m_abstractNode->getInputTables()[0];
+        m_spillPartitions.reset(new SpillPartitions(m_abstractNode->databaseId(), input_table->name(),
+                                                    input_table, limits));
+    }
+    return true;
+}
+
 bool AggregateHashExecutor::p_execute(const NValueArray& params)
 {
     executeAggBase(params);
 
-    HashAggregateMapType hash;
-
     VOLT_TRACE("looping..");
     Table* input_table = m_abstractNode->getInputTables()[0];
     assert(input_table);
     VOLT_TRACE("input table\n%s", input_table->debug().c_str());
+    if ( ! m_spillPartitions) {
+        aggregateTable(input_table, NULL);
+        return true;
+    }
+
+    SpillPartitionsCleaner cleaner(m_spillPartitions.get());
+    aggregateTable(input_table, m_spillPartitions.get());
+    if (m_spillPartitions->isEmpty()) {
+        return true;
+    }
+
+    // Every group still in memory has been output, so the input is only
+    // needed through the partitions now. Aggregate them one at a time.
+    TempTable* temp_input = dynamic_cast<TempTable*>(input_table);
+    if (temp_input != NULL && temp_input->m_limits == m_tmpOutputTable->m_limits) {
+        temp_input->deleteAllTuples(false);
+    }
+    for (int ii = 0; ii < SpillPartitions::PARTITION_COUNT; ii++) {
+        m_memoryPool.purge();
+        aggregateTable(m_spillPartitions->load(ii), NULL);
+    }
+    return true;
+}
+
+void AggregateHashExecutor::aggregateTable(Table* input_table, SpillPartitions* overflow)
+{
+    HashAggregateMapType hash;
+    bool overflowing = false;
+
     TableIterator it = input_table->iterator();
     TableTuple nxtTuple(input_table->schema());
     PoolBackedTupleStorage nextGroupByKeyStorage(m_groupByKeySchema, &m_memoryPool);
@@ -585,6 +633,12 @@ bool AggregateHashExecutor::p_execute(const NValueArray& params)
 
         // Group not found. Make a new entry in the hash for this new group.
         if (keyIter == hash.end()) {
+            if (overflowing) {
+                // No room for another group: set the tuple aside to be
+                // aggregated later with the rest of its partition.
+                overflow->insert(nxtTuple, TableTupleHasher()(nextGroupByKeyTuple));
+                continue;
+            }
             aggregateRow = new (m_memoryPool, m_aggTypes.size()) AggregateRow();
             hash.insert(HashAggregateMapType::value_type(nextGroupByKeyTuple, aggregateRow));
             initAggInstances(aggregateRow);
@@ -592,6 +646,14 @@ bool AggregateHashExecutor::p_execute(const NValueArray& params)
             // The map is referencing the current key tuple for use by the new group,
             // so force a new tuple allocation to hold the next candidate key.
             nextGroupByKeyTuple.move(NULL);
+            if (overflow != NULL && hash.size() % GROUP_MEMORY_CHECK_INTERVAL == 0) {
+                // Each group held in memory also gets its output tuple
+                // before the input can be released.
+                int64_t groupMemory = m_memoryPool.getAllocatedMemory() +
+                    static_cast<int64_t>(hash.size()) *
+                    (HASH_ENTRY_OVERHEAD + m_tmpOutputTable->schema()->tupleLength() + TUPLE_HEADER_SIZE);
+                overflowing = !m_tmpOutputTable->m_limits->hasRoomFor(groupMemory);
+            }
         } else {
             // otherwise, the agg row is the second item of the pair...
             aggregateRow = keyIter->second;
@@ -601,14 +663,18 @@ bool AggregateHashExecutor::p_execute(const NValueArray& params)
         advanceAggs(aggregateRow);
     }
 
+    // The output tuples of the groups in memory were counted when deciding
+    // to overflow, but the partitions have filled the room since.
+    if (overflowing) {
+        overflow->spill();
+    }
+
     VOLT_TRACE("finalizing..");
     for (HashAggregateMapType::const_iterator iter = hash.begin(); iter != hash.end(); iter++) {
         AggregateRow *aggregateRow = iter->second;
         insertOutputTuple(aggregateRow);
         delete aggregateRow;
     }
-
-    return true;
 }
 
 
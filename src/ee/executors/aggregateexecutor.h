@@ -47,6 +47,7 @@
 #define HSTOREAGGREGATEEXECUTOR_H
 
 #include "executors/abstractexecutor.h"
+#include "executors/spillpartitions.h"
 
 #include "common/Pool.hpp"
 #include "common/common.h"
@@ -54,6 +55,8 @@
 #include "common/tabletuple.h"
 #include "expressions/abstractexpression.h"
 
+#include "boost/scoped_ptr.hpp"
+
 namespace voltdb {
 struct AggregateRow;
 
@@ -123,10 +126,21 @@ class AggregateHashExecutor : public AggregateExecutorBase
 public:
     AggregateHashExecutor(VoltDBEngine* engine, AbstractPlanNode* abstract_node) :
         AggregateExecutorBase(engine, abstract_node) { }
-    ~AggregateHashExecutor() { }
+    ~AggregateHashExecutor();
 
 private:
+    virtual bool p_init(AbstractPlanNode*, TempTableLimits*);
     virtual bool p_execute(const NValueArray& params);
+
+    /*
+     * Aggregate one input table into the output table. When overflow is
+     * given, tuples of new groups go there instead once the groups in
+     * memory have used up the fragment's temp table memory.
+     */
+    void aggregateTable(Table* input_table, SpillPartitions* overflow);
+
+    // Only set when the fragment is allowed to spill to disk.
+    boost::scoped_ptr<SpillPartitions> m_spillPartitions;
 };
 
 /**
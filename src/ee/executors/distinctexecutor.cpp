@@ -48,6 +48,7 @@
 #include "common/common.h"
 #include "common/tabletuple.h"
 #include "common/FatalException.hpp"
+#include "executors/spillpartitions.h"
 #include "plannodes/distinctnode.h"
 #include "storage/table.h"
 #include "storage/temptable.h"
@@ -79,32 +80,79 @@ bool DistinctExecutor::p_init(AbstractPlanNode*,
                                               node->getInputTables()[0]->name(),
                                               node->getInputTables()[0],
                                               limits));
+        if (limits != NULL && limits->isSpillEnabled()) {
+            m_spillPartitions.reset(new SpillPartitions(node->databaseId(),
+                                                        node->getInputTables()[0]->name(),
+                                                        node->getInputTables()[0],
+                                                        limits));
+        }
     }
     return (true);
 }
 
+// How often, in new values, to check whether the values seen still fit in memory.
+static const size_t VALUE_MEMORY_CHECK_INTERVAL = 256;
+// Rough heap cost of a set entry: the value and a tree node around it.
+static const int64_t VALUE_ENTRY_SIZE = sizeof(NValue) + 4 * sizeof(void*);
+
 bool DistinctExecutor::p_execute(const NValueArray &params) {
     DistinctPlanNode* node = dynamic_cast<DistinctPlanNode*>(m_abstractNode);
     assert(node);
-    Table* output_table = node->getOutputTable();
-    assert(output_table);
     Table* input_table = node->getInputTables()[0];
     assert(input_table);
 
-    TableIterator iterator = input_table->iterator();
-    TableTuple tuple(input_table->schema());
-
     // substitute params for distinct expression
     AbstractExpression *distinctExpression = node->getDistinctExpression();
     distinctExpression->substitute(params);
 
+    if ( ! m_spillPartitions) {
+        return distinctTable(input_table, NULL);
+    }
+
+    SpillPartitionsCleaner cleaner(m_spillPartitions.get());
+    if (!distinctTable(input_table, m_spillPartitions.get())) {
+        return false;
+    }
+    if (m_spillPartitions->isEmpty()) {
+        return true;
+    }
+
+    // Values set aside never matched a value in memory, and equal values
+    // share a partition, so each partition can be processed on its own.
+    TempTable* temp_input = dynamic_cast<TempTable*>(input_table);
+    if (temp_input != NULL && temp_input->m_limits == m_tmpOutputTable->m_limits) {
+        temp_input->deleteAllTuples(false);
+    }
+    m_spillPartitions->spill();
+    for (int ii = 0; ii < SpillPartitions::PARTITION_COUNT; ii++) {
+        if (!distinctTable(m_spillPartitions->load(ii), NULL)) {
+            return false;
+        }
+    }
+    return true;
+}
+
+bool DistinctExecutor::distinctTable(Table* input_table, SpillPartitions* overflow) {
+    DistinctPlanNode* node = dynamic_cast<DistinctPlanNode*>(m_abstractNode);
+    Table* output_table = node->getOutputTable();
+    assert(output_table);
+    AbstractExpression *distinctExpression = node->getDistinctExpression();
+
+    TableIterator iterator = input_table->iterator();
+    TableTuple tuple(input_table->schema());
+
     std::set<NValue, NValue::ltNValue> found_values;
+    bool overflowing = false;
     while (iterator.next(tuple)) {
         //
         // Check whether this value already exists in our list
         //
         NValue tuple_value = distinctExpression->eval(&tuple, NULL);
         if (found_values.find(tuple_value) == found_values.end()) {
+            if (overflowing) {
+                overflow->insert(tuple, NValue::hash()(tuple_value));
+                continue;
+            }
             found_values.insert(tuple_value);
             if (!output_table->insertTuple(tuple)) {
                 VOLT_ERROR("Failed to insert tuple from input table '%s' into"
@@ -113,6 +161,10 @@ bool DistinctExecutor::p_execute(const NValueArray &params) {
                            output_table->name().c_str());
                 return false;
             }
+            if (overflow != NULL && found_values.size() % VALUE_MEMORY_CHECK_INTERVAL == 0) {
+                overflowing = !m_tmpOutputTable->m_limits->hasRoomFor(
+                    static_cast<int64_t>(found_values.size()) * VALUE_ENTRY_SIZE);
+            }
         }
     }
 
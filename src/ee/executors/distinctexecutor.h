@@ -49,8 +49,11 @@
 #include "common/common.h"
 #include "common/valuevector.h"
 #include "executors/abstractexecutor.h"
+#include "executors/spillpartitions.h"
 #include "plannodes/distinctnode.h"
 
+#include "boost/scoped_ptr.hpp"
+
 namespace voltdb {
 
 class UndoLog;
@@ -72,7 +75,17 @@ protected:
                 TempTableLimits* limits);
     bool p_execute(const NValueArray &params);
 
+    /*
+     * Copy the tuples of input_table with values not seen before to the
+     * output table. When overflow is given, tuples with new values go there
+     * instead once the values seen have used up the fragment's temp table
+     * memory.
+     */
+    bool distinctTable(Table* input_table, SpillPartitions* overflow);
+
     ValueType distinct_column_type;
+    // Only set when the fragment is allowed to spill to disk.
+    boost::scoped_ptr<SpillPartitions> m_spillPartitions;
 };
 
 }
@@ -0,0 +1,354 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#include "hashjoinexecutor.h"
+
+#include "common/debuglog.h"
+#include "common/tabletuple.h"
+#include "expressions/abstractexpression.h"
+#include "plannodes/hashjoinnode.h"
+#include "plannodes/limitnode.h"
+#include "storage/table.h"
+#include "storage/temptable.h"
+#include "storage/tableiterator.h"
+#include "storage/TempTableLimits.h"
+
+#include "boost/unordered_map.hpp"
+
+#include <algorithm>
+#include <vector>
+
+using namespace std;
+using namespace voltdb;
+
+namespace {
+
+typedef boost::unordered_multimap<TableTuple,
+                                  TableTuple,
+                                  TableTupleHasher,
+                                  TableTupleEqualityChecker> HashJoinMapType;
+
+/**
+ * Tracks the memory used by the hash table against the temp table limits
+ * and gives it back when the execution finishes, successfully or not.
+ */
+class HashTableAllocation {
+public:
+    HashTableAllocation(TempTableLimits* limits) : m_limits(limits), m_allocated(0) { }
+
+    ~HashTableAllocation()
+    {
+        if (m_limits == NULL) {
+            return;
+        }
+        // TempTableLimits takes int deltas, so a large build side goes back in pieces.
+        while (m_allocated > 0) {
+            int chunk = static_cast<int>(std::min(m_allocated, static_cast<int64_t>(INT32_MAX)));
+            m_limits->reduceAllocated(chunk);
+            m_allocated -= chunk;
+        }
+    }
+
+    void increase(int bytes)
+    {
+        if (m_limits != NULL) {
+            // count the bytes first: increaseAllocated throws when over the limit.
+            m_allocated += bytes;
+            m_limits->increaseAllocated(bytes);
+        }
+    }
+
+private:
+    TempTableLimits* m_limits;
+    int64_t m_allocated;
+};
+
+/**
+ * Purges the build side key pool when the execution finishes, successfully or not,
+ * so that the keys of one execution aren't held until the next one.
+ */
+class PoolPurger {
+public:
+    PoolPurger(Pool* pool) : m_pool(pool) { }
+
+    ~PoolPurger()
+    {
+        m_pool->purge();
+    }
+
+private:
+    Pool* m_pool;
+};
+
+/**
+ * Evaluate the hash expressions into the key tuple.
+ * Returns false if any key value is NULL, since NULL never equals anything.
+ */
+inline bool setHashKey(TableTuple& key, const vector<AbstractExpression*>& exprs,
+                       const TableTuple* outer, const TableTuple* inner, Pool* pool)
+{
+    for (int ii = 0; ii < exprs.size(); ii++) {
+        NValue value = exprs[ii]->eval(outer, inner);
+        if (value.isNull()) {
+            return false;
+        }
+        key.setNValueAllocateForObjectCopies(ii, value, pool);
+    }
+    return true;
+}
+
+}
+
+HashJoinExecutor::~HashJoinExecutor()
+{
+    if (m_keySchema != NULL) {
+        TupleSchema::freeTupleSchema(m_keySchema);
+    }
+}
+
+bool HashJoinExecutor::p_init(AbstractPlanNode* abstract_node,
+                              TempTableLimits* limits)
+{
+    VOLT_TRACE("init HashJoin Executor");
+
+    HashJoinPlanNode* node = dynamic_cast<HashJoinPlanNode*>(abstract_node);
+    assert(node);
+
+    // Create output table based on output schema from the plan
+    setTempOutputTable(limits);
+    m_tempLimits = limits;
+
+    // NULL tuple for outer join
+    if (node->getJoinType() == JOIN_TYPE_LEFT) {
+        Table* inner_table = node->getInputTables()[1];
+        assert(inner_table);
+        m_null_tuple.init(inner_table->schema());
+    }
+
+    // The planner guarantees that both sides of each key have the same type,
+    // but they may differ in declared size, so the key columns take the larger.
+    const vector<AbstractExpression*>& outerExprs = node->getOuterHashExpressions();
+    const vector<AbstractExpression*>& innerExprs = node->getInnerHashExpressions();
+    assert(outerExprs.size() == innerExprs.size());
+    std::vector<ValueType> keyColumnTypes;
+    std::vector<int32_t> keyColumnSizes;
+    std::vector<bool> keyColumnAllowNull;
+    for (int ii = 0; ii < outerExprs.size(); ii++) {
+        assert(outerExprs[ii]->getValueType() == innerExprs[ii]->getValueType());
+        keyColumnTypes.push_back(outerExprs[ii]->getValueType());
+        keyColumnSizes.push_back(std::max(outerExprs[ii]->getValueSize(),
+                                          innerExprs[ii]->getValueSize()));
+        keyColumnAllowNull.push_back(true);
+    }
+    if (m_keySchema != NULL) {
+        TupleSchema::freeTupleSchema(m_keySchema);
+    }
+    m_keySchema = TupleSchema::createTupleSchema(keyColumnTypes,
+                                                 keyColumnSizes,
+                                                 keyColumnAllowNull,
+                                                 true);
+    return true;
+}
+
+bool HashJoinExecutor::p_execute(const NValueArray &params) {
+    VOLT_DEBUG("executing HashJoin...");
+
+    HashJoinPlanNode* node = dynamic_cast<HashJoinPlanNode*>(m_abstractNode);
+    assert(node);
+    assert(node->getInputTables().size() == 2);
+
+    // output table must be a temp table
+    TempTable* output_table = dynamic_cast<TempTable*>(node->getOutputTable());
+    assert(output_table);
+
+    Table* outer_table = node->getInputTables()[0];
+    assert(outer_table);
+
+    Table* inner_table = node->getInputTables()[1];
+    assert(inner_table);
+
+    VOLT_TRACE ("input table left:\n %s", outer_table->debug().c_str());
+    VOLT_TRACE ("input table right:\n %s", inner_table->debug().c_str());
+
+    AbstractExpression *preJoinPredicate = node->getPreJoinPredicate();
+    if (preJoinPredicate) {
+        preJoinPredicate->substitute(params);
+    }
+    AbstractExpression *joinPredicate = node->getJoinPredicate();
+    if (joinPredicate) {
+        joinPredicate->substitute(params);
+    }
+    AbstractExpression *wherePredicate = node->getWherePredicate();
+    if (wherePredicate) {
+        wherePredicate->substitute(params);
+    }
+    const vector<AbstractExpression*>& outerHashExprs = node->getOuterHashExpressions();
+    const vector<AbstractExpression*>& innerHashExprs = node->getInnerHashExpressions();
+    for (int ii = 0; ii < outerHashExprs.size(); ii++) {
+        outerHashExprs[ii]->substitute(params);
+        innerHashExprs[ii]->substitute(params);
+    }
+
+    // Join type
+    JoinType join_type = node->getJoinType();
+    assert(join_type == JOIN_TYPE_INNER || join_type == JOIN_TYPE_LEFT);
+
+    LimitPlanNode* limit_node = dynamic_cast<LimitPlanNode*>(node->getInlinePlanNode(PLAN_NODE_TYPE_LIMIT));
+    int limit = -1;
+    int offset = -1;
+    if (limit_node) {
+        limit_node->getLimitAndOffsetByReference(params, limit, offset);
+    }
+
+    // A left outer join must see every outer tuple, so it always hashes the inner table.
+    // An inner join may hash the smaller outer table instead when no ordering of the
+    // outer table needs to be preserved.
+    const bool buildOuter = join_type == JOIN_TYPE_INNER &&
+        node->getSortDirection() == SORT_DIRECTION_TYPE_INVALID &&
+        outer_table->activeTupleCount() < inner_table->activeTupleCount();
+    Table* build_table = buildOuter ? outer_table : inner_table;
+    Table* probe_table = buildOuter ? inner_table : outer_table;
+    const vector<AbstractExpression*>& buildHashExprs = buildOuter ? outerHashExprs : innerHashExprs;
+    const vector<AbstractExpression*>& probeHashExprs = buildOuter ? innerHashExprs : outerHashExprs;
+
+    //
+    // Build phase
+    //
+    // Declared ahead of the map so that the keys are released after the map that references them.
+    PoolPurger memoryPoolPurger(&m_memoryPool);
+    HashJoinMapType hash;
+    HashTableAllocation allocation(m_tempLimits);
+    // Approximate cost of one entry: the key tuple plus the map node.
+    const int entrySize = m_keySchema->tupleLength() + TUPLE_HEADER_SIZE +
+        static_cast<int>(sizeof(HashJoinMapType::value_type) + 2 * sizeof(void*));
+
+    TableTuple build_tuple(build_table->schema());
+    PoolBackedTupleStorage buildKeyStorage(m_keySchema, &m_memoryPool);
+    TableTuple& buildKey = buildKeyStorage;
+    TableIterator build_iterator = build_table->iterator();
+    while (build_iterator.next(build_tuple)) {
+        m_engine->noteTuplesProcessedForProgressMonitoring(1);
+        if (buildKey.isNullTuple()) {
+            buildKeyStorage.allocateActiveTuple();
+        }
+        if (buildOuter) {
+            // An outer tuple that fails the pre-join predicate can't match any inner tuple.
+            if (preJoinPredicate != NULL && ! preJoinPredicate->eval(&build_tuple, NULL).isTrue()) {
+                continue;
+            }
+            if ( ! setHashKey(buildKey, buildHashExprs, &build_tuple, NULL, &m_memoryPool)) {
+                continue;
+            }
+        }
+        else if ( ! setHashKey(buildKey, buildHashExprs, NULL, &build_tuple, &m_memoryPool)) {
+            continue;
+        }
+        allocation.increase(entrySize);
+        hash.insert(HashJoinMapType::value_type(buildKey, build_tuple));
+        // The map is referencing the current key tuple,
+        // so force a new tuple allocation to hold the next key.
+        buildKey.move(NULL);
+    }
+
+    //
+    // Probe phase
+    //
+    int outer_cols = outer_table->columnCount();
+    int inner_cols = inner_table->columnCount();
+    TableTuple probe_tuple(probe_table->schema());
+    TableTuple &joined = output_table->tempTuple();
+    TableTuple null_tuple = m_null_tuple;
+    StandAloneTupleStorage probeKeyStorage(m_keySchema);
+    TableTuple probeKey = probeKeyStorage;
+
+    TableIterator probe_iterator = probe_table->iterator();
+    int tuple_ctr = 0;
+    int tuple_skipped = 0;
+    m_engine->setLastAccessedTable(build_table);
+    while ((limit == -1 || tuple_ctr < limit) && probe_iterator.next(probe_tuple)) {
+        m_engine->noteTuplesProcessedForProgressMonitoring(1);
+        m_probePool.purge();
+        // did this loop body find at least one match for this tuple?
+        bool match = false;
+
+        bool hasKey;
+        if (buildOuter) {
+            hasKey = setHashKey(probeKey, probeHashExprs, NULL, &probe_tuple, &m_probePool);
+        }
+        else {
+            // For outer joins if outer tuple fails pre-join predicate
+            // (join expression based on the outer table only)
+            // it can't match any of inner tuples
+            hasKey = (preJoinPredicate == NULL || preJoinPredicate->eval(&probe_tuple, NULL).isTrue()) &&
+                setHashKey(probeKey, probeHashExprs, &probe_tuple, NULL, &m_probePool);
+            if (hasKey) {
+                joined.setNValues(0, probe_tuple, 0, outer_cols);
+            }
+        }
+
+        if (hasKey) {
+            std::pair<HashJoinMapType::const_iterator, HashJoinMapType::const_iterator> range =
+                hash.equal_range(probeKey);
+            for (HashJoinMapType::const_iterator iter = range.first;
+                 iter != range.second && (limit == -1 || tuple_ctr < limit);
+                 ++iter) {
+                const TableTuple* outer_tuple = buildOuter ? &(iter->second) : &probe_tuple;
+                const TableTuple* inner_tuple = buildOuter ? &probe_tuple : &(iter->second);
+                // Apply the rest of the join filter to produce matches,
+                // then pad unmatched outers, then filter them all
+                if (joinPredicate == NULL || joinPredicate->eval(outer_tuple, inner_tuple).isTrue()) {
+                    match = true;
+                    // Filter the joined tuple
+                    if (wherePredicate == NULL || wherePredicate->eval(outer_tuple, inner_tuple).isTrue()) {
+                        // Check if we have to skip this tuple because of offset
+                        if (tuple_skipped < offset) {
+                            tuple_skipped++;
+                            continue;
+                        }
+                        ++tuple_ctr;
+                        if (buildOuter) {
+                            joined.setNValues(0, *outer_tuple, 0, outer_cols);
+                        }
+                        joined.setNValues(outer_cols, *inner_tuple, 0, inner_cols);
+                        output_table->insertTupleNonVirtual(joined);
+                    }
+                }
+            }
+        }
+
+        //
+        // Left Outer Join
+        //
+        if ((limit == -1 || tuple_ctr < limit) && join_type == JOIN_TYPE_LEFT && !match) {
+            // Still needs to pass the filter
+            if (wherePredicate == NULL || wherePredicate->eval(&probe_tuple, &null_tuple).isTrue()) {
+                // Check if we have to skip this tuple because of offset
+                if (tuple_skipped < offset) {
+                    tuple_skipped++;
+                    continue;
+                }
+                ++tuple_ctr;
+                joined.setNValues(0, probe_tuple, 0, outer_cols);
+                joined.setNValues(outer_cols, null_tuple, 0, inner_cols);
+                output_table->insertTupleNonVirtual(joined);
+            }
+        }
+    }
+    m_probePool.purge();
+
+    return (true);
+}
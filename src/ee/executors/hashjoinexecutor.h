@@ -0,0 +1,60 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef HASHJOINEXECUTOR_H
+#define HASHJOINEXECUTOR_H
+
+#include "common/common.h"
+#include "common/Pool.hpp"
+#include "common/tabletuple.h"
+#include "executors/abstractexecutor.h"
+
+namespace voltdb {
+
+class TempTableLimits;
+
+/**
+ * Executes an inner or left outer equi-join by building a hash table over
+ * one input, keyed on that input's hash expressions, and probing it once
+ * per tuple of the other input. The inner input is hashed unless the join
+ * is an inner join whose output order does not matter and whose outer input
+ * is the smaller of the two. Memory used by the hash table is accounted
+ * against the fragment's TempTableLimits.
+ */
+class HashJoinExecutor : public AbstractExecutor {
+    public:
+        HashJoinExecutor(VoltDBEngine *engine, AbstractPlanNode* abstract_node) :
+            AbstractExecutor(engine, abstract_node), m_keySchema(NULL), m_tempLimits(NULL) { }
+        ~HashJoinExecutor();
+    protected:
+        bool p_init(AbstractPlanNode*,
+                    TempTableLimits* limits);
+        bool p_execute(const NValueArray &params);
+
+        StandAloneTupleStorage m_null_tuple;
+        // Schema shared by build and probe keys, wide enough for either side.
+        TupleSchema* m_keySchema;
+        TempTableLimits* m_tempLimits;
+        // Holds the build side keys for the duration of one execution.
+        Pool m_memoryPool;
+        // Holds out-of-line values of the current probe key only.
+        Pool m_probePool;
+};
+
+}
+
+#endif
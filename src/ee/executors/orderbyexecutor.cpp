@@ -56,10 +56,21 @@
 #include "storage/temptable.h"
 #include "storage/tableiterator.h"
 #include "storage/tablefactory.h"
+#include "storage/TempTableLimits.h"
+
+#include "boost/shared_ptr.hpp"
 
 using namespace voltdb;
 using namespace std;
 
+// Blocks of memory to leave free while filling a run: the run buffer's next
+// block, the input iterator's current and next block, and two blocks for the
+// run being written out, which spills when it has no room for a second one.
+static const int RUN_RESERVED_BLOCKS = 5;
+// Blocks of memory to leave free while merging, besides one block per run:
+// the next block of the run that moves on, and two for the destination.
+static const int MERGE_RESERVED_BLOCKS = 3;
+
 bool
 OrderByExecutor::p_init(AbstractPlanNode* abstract_node,
                         TempTableLimits* limits)
@@ -87,9 +98,42 @@ OrderByExecutor::p_init(AbstractPlanNode* abstract_node,
         dynamic_cast<LimitPlanNode*>(node->
                                      getInlinePlanNode(PLAN_NODE_TYPE_LIMIT));
 
+    //
+    // An input that does not fit in memory is sorted in runs that are
+    // merged from disk.  The sort reads its input once, in order, and
+    // copies each tuple before moving on, so a temp input may spill while
+    // the child executor fills it.  The output may only spill when it
+    // is sent, since the send reads it once, in order, as well.
+    //
+    Table* input_table = node->getInputTables()[0];
+    TempTable* temp_input = dynamic_cast<TempTable*>(input_table);
+    if (limits != NULL && limits->isSpillEnabled() &&
+        (temp_input == NULL || temp_input->m_limits == limits))
+    {
+        if (temp_input != NULL) {
+            temp_input->enableSpilling();
+        }
+        m_runBuffer.reset(TableFactory::getCopiedTempTable(node->databaseId(),
+                                                           input_table->name(),
+                                                           input_table,
+                                                           limits));
+        m_sortedRuns.reset(TableFactory::getCopiedTempTable(node->databaseId(),
+                                                            input_table->name(),
+                                                            input_table,
+                                                            limits));
+        m_sortedRuns->enableSpilling();
+        if (node->getParents().size() == 1 &&
+            node->getParents()[0]->getPlanNodeType() == PLAN_NODE_TYPE_SEND)
+        {
+            static_cast<TempTable*>(node->getOutputTable())->enableSpilling();
+        }
+    }
+
     return true;
 }
 
+namespace voltdb {
+
 class TupleComparer
 {
 public:
@@ -133,6 +177,30 @@ private:
     size_t m_keyCount;
 };
 
+}
+
+//
+// Orders the runs being merged so that a heap keeps the run whose
+// current tuple comes first in sort order at its front.
+//
+class RunHeadComparer
+{
+public:
+    RunHeadComparer(TupleComparer& comparer, const vector<TableTuple>& heads)
+        : m_comparer(comparer), m_heads(heads)
+    {
+    }
+
+    bool operator()(size_t a, size_t b)
+    {
+        return m_comparer(m_heads[b], m_heads[a]);
+    }
+
+private:
+    TupleComparer& m_comparer;
+    const vector<TableTuple>& m_heads;
+};
+
 bool
 OrderByExecutor::p_execute(const NValueArray &params)
 {
@@ -161,6 +229,31 @@ OrderByExecutor::p_execute(const NValueArray &params)
 
     VOLT_TRACE("Running OrderBy '%s'", m_abstractNode->debug().c_str());
     VOLT_TRACE("Input Table:\n '%s'", input_table->debug().c_str());
+
+    //
+    // Sort in memory if the input is still there and the output fits
+    // beside it, and otherwise sort in runs and merge them from disk.
+    // The top-N sort keeps pointers into the input, so it cannot read
+    // an input that has spilled either.
+    //
+    TempTable* temp_input = dynamic_cast<TempTable*>(input_table);
+    if (m_sortedRuns && temp_input != NULL && temp_input->hasSpilled()) {
+        return executeExternalSort(node, input_table, output_table, limit, max(offset, 0));
+    }
+    if (limit >= 0) {
+        return executeTopN(node, input_table, output_table, limit, max(offset, 0));
+    }
+    // From here on there is no limit, only possibly an offset.
+
+    if (m_sortedRuns) {
+        int64_t output_count = input_table->activeTupleCount() - max(offset, 0);
+        int64_t output_blocks = (max(output_count, int64_t(0)) + input_table->getTuplesPerBlock() - 1) /
+            input_table->getTuplesPerBlock();
+        if (!m_sortedRuns->m_limits->hasRoomFor(output_blocks * input_table->getTableAllocationSize())) {
+            return executeExternalSort(node, input_table, output_table, -1, max(offset, 0));
+        }
+    }
+
     TableIterator iterator = input_table->iterator();
     TableTuple tuple(input_table->schema());
     vector<TableTuple> xs;
@@ -175,7 +268,6 @@ OrderByExecutor::p_execute(const NValueArray &params)
     sort(xs.begin(), xs.end(), TupleComparer(node->getSortExpressions(),
                                              node->getSortDirections()));
 
-    int tuple_ctr = 0;
     int tuple_skipped = 0;
     for (vector<TableTuple>::iterator it = xs.begin(); it != xs.end(); it++)
     {
@@ -197,15 +289,209 @@ OrderByExecutor::p_execute(const NValueArray &params)
                        output_table->name().c_str());
             return false;
         }
-        //
-        // Check whether we have gone past our limit
-        //
-        if (limit >= 0 && ++tuple_ctr >= limit) {
-            break;
+    }
+    VOLT_TRACE("Result of OrderBy:\n '%s'", output_table->debug().c_str());
+
+    return true;
+}
+
+//
+// EXTERNAL SORT
+// Copy as much of the input as fits in memory into the run buffer, sort
+// it, and spill it as one sorted run, until the input is used up.  Then
+// merge the runs, reading one block of each at a time.  If there are
+// more runs than blocks of memory to read them with, merge groups of
+// them into longer runs first.  Runs stay in the spill file until the
+// sort is done, so each extra merge pass adds the size of the input to
+// the spill space used.
+//
+bool
+OrderByExecutor::executeExternalSort(OrderByPlanNode* node, Table* input_table,
+                                     Table* output_table, int limit, int offset)
+{
+    TempTableCleaner run_buffer_cleaner(m_runBuffer.get());
+    TempTableCleaner sorted_runs_cleaner(m_sortedRuns.get());
+    TempTableLimits* limits = m_sortedRuns->m_limits;
+    const int64_t block_size = input_table->getTableAllocationSize();
+    const int64_t tuples_per_block = input_table->getTuplesPerBlock();
+    TupleComparer comparer(node->getSortExpressions(), node->getSortDirections());
+
+    // Read a temp input back from disk a block at a time.
+    TempTable* temp_input = dynamic_cast<TempTable*>(input_table);
+    if (temp_input != NULL) {
+        temp_input->spillBlocks();
+    }
+
+    vector<SortedRun> runs;
+    {
+        TableIterator iterator = input_table->iterator();
+        TableTuple tuple(input_table->schema());
+        while (iterator.next(tuple))
+        {
+            m_engine->noteTuplesProcessedForProgressMonitoring(1);
+            int64_t buffered = m_runBuffer->tempTableTupleCount();
+            if (buffered > 0 && buffered % tuples_per_block == 0 &&
+                !limits->hasRoomFor(RUN_RESERVED_BLOCKS * block_size))
+            {
+                runs.push_back(writeSortedRun(comparer));
+            }
+            m_runBuffer->insertTempTuple(tuple);
         }
     }
+    if (!m_runBuffer->isTempTableEmpty()) {
+        runs.push_back(writeSortedRun(comparer));
+    }
+    VOLT_DEBUG("Sorted %jd tuples in %d runs", (intmax_t)m_sortedRuns->tempTableTupleCount(),
+               static_cast<int>(runs.size()));
+    if (temp_input != NULL) {
+        temp_input->deleteAllTuplesNonVirtual(false);
+    }
+
+    size_t fan_in = runs.size();
+    if (limits->getMemoryLimit() > 0) {
+        int64_t free_blocks = (limits->getMemoryLimit() - limits->getAllocated()) / block_size;
+        fan_in = static_cast<size_t>(max(free_blocks - MERGE_RESERVED_BLOCKS, int64_t(2)));
+    }
+    while (runs.size() > fan_in) {
+        vector<SortedRun> merged_runs;
+        for (size_t first = 0; first < runs.size(); first += fan_in) {
+            vector<SortedRun> group(runs.begin() + first,
+                                    runs.begin() + min(first + fan_in, runs.size()));
+            if (group.size() == 1) {
+                merged_runs.push_back(group[0]);
+                continue;
+            }
+            size_t first_block = m_sortedRuns->spilledBlockCount();
+            mergeSortedRuns(group, comparer, m_sortedRuns.get(), -1, 0);
+            m_sortedRuns->spillBlocks();
+            merged_runs.push_back(SortedRun(first_block, m_sortedRuns->spilledBlockCount()));
+        }
+        runs.swap(merged_runs);
+    }
+
+    if (!mergeSortedRuns(runs, comparer, output_table, limit, offset)) {
+        VOLT_ERROR("Failed to insert order-by tuple from input table '%s'"
+                   " into output table '%s'",
+                   input_table->name().c_str(),
+                   output_table->name().c_str());
+        return false;
+    }
     VOLT_TRACE("Result of OrderBy:\n '%s'", output_table->debug().c_str());
+    return true;
+}
+
+// Sort the tuples in the run buffer and spill them as a run of their own.
+OrderByExecutor::SortedRun
+OrderByExecutor::writeSortedRun(TupleComparer& comparer)
+{
+    vector<TableTuple> xs;
+    xs.reserve(static_cast<size_t>(m_runBuffer->tempTableTupleCount()));
+    TableIterator iterator = m_runBuffer->iterator();
+    TableTuple tuple(m_runBuffer->schema());
+    while (iterator.next(tuple)) {
+        xs.push_back(tuple);
+    }
+    sort(xs.begin(), xs.end(), comparer);
+
+    size_t first_block = m_sortedRuns->spilledBlockCount();
+    for (vector<TableTuple>::iterator it = xs.begin(); it != xs.end(); it++) {
+        m_sortedRuns->insertTempTuple(*it);
+    }
+    m_sortedRuns->spillBlocks();
+    m_runBuffer->deleteAllTuplesNonVirtual(false);
+    return SortedRun(first_block, m_sortedRuns->spilledBlockCount());
+}
+
+// Merge the sorted runs into the destination, skipping the first offset
+// tuples and stopping after limit more, unless limit is negative.
+bool
+OrderByExecutor::mergeSortedRuns(const vector<SortedRun>& runs, TupleComparer& comparer,
+                                 Table* destination, int limit, int offset)
+{
+    vector<boost::shared_ptr<TableIterator> > iterators;
+    vector<TableTuple> heads(runs.size(), TableTuple(m_sortedRuns->schema()));
+    vector<size_t> heap;
+    for (size_t i = 0; i < runs.size(); i++) {
+        iterators.push_back(boost::shared_ptr<TableIterator>(
+            m_sortedRuns->makeSpilledIterator(runs[i].first, runs[i].second)));
+        if (iterators[i]->next(heads[i])) {
+            heap.push_back(i);
+        }
+    }
+    RunHeadComparer heap_order(comparer, heads);
+    make_heap(heap.begin(), heap.end(), heap_order);
+
+    int tuple_skipped = 0;
+    int tuple_ctr = 0;
+    while (!heap.empty() && (limit < 0 || tuple_ctr < limit)) {
+        pop_heap(heap.begin(), heap.end(), heap_order);
+        size_t run = heap.back();
+        if (tuple_skipped < offset) {
+            tuple_skipped++;
+        }
+        else if (destination->insertTuple(heads[run])) {
+            tuple_ctr++;
+        }
+        else {
+            return false;
+        }
+        if (iterators[run]->next(heads[run])) {
+            push_heap(heap.begin(), heap.end(), heap_order);
+        }
+        else {
+            heap.pop_back();
+        }
+    }
+    return true;
+}
+
+//
+// OPTIMIZATION: TOP-N
+// With a limit, only the first limit + offset tuples in sort order can
+// reach the output.  Keep just those in a bounded max-heap whose root is
+// the worst tuple kept so far, so each input tuple costs at most
+// O(log(limit + offset)) and the full input is never sorted.
+//
+bool
+OrderByExecutor::executeTopN(OrderByPlanNode* node, Table* input_table, Table* output_table,
+                             int limit, int offset)
+{
+    size_t heap_size = static_cast<size_t>(limit) + static_cast<size_t>(offset);
+    TupleComparer comparer(node->getSortExpressions(), node->getSortDirections());
+    vector<TableTuple> heap;
+    heap.reserve(min(heap_size, static_cast<size_t>(input_table->activeTupleCount())));
+
+    TableIterator iterator = input_table->iterator();
+    TableTuple tuple(input_table->schema());
+    while (heap_size > 0 && iterator.next(tuple))
+    {
+        m_engine->noteTuplesProcessedForProgressMonitoring(1);
+        assert(tuple.isActive());
+        if (heap.size() < heap_size) {
+            heap.push_back(tuple);
+            push_heap(heap.begin(), heap.end(), comparer);
+        }
+        else if (comparer(tuple, heap.front())) {
+            pop_heap(heap.begin(), heap.end(), comparer);
+            heap.back() = tuple;
+            push_heap(heap.begin(), heap.end(), comparer);
+        }
+    }
+    sort_heap(heap.begin(), heap.end(), comparer);
 
+    for (vector<TableTuple>::iterator it = heap.begin() + min(static_cast<size_t>(offset), heap.size());
+         it != heap.end(); it++)
+    {
+        if (!output_table->insertTuple(*it))
+        {
+            VOLT_ERROR("Failed to insert order-by tuple from input table '%s'"
+                       " into output table '%s'",
+                       input_table->name().c_str(),
+                       output_table->name().c_str());
+            return false;
+        }
+    }
+    VOLT_TRACE("Result of OrderBy:\n '%s'", output_table->debug().c_str());
     return true;
 }
 
@@ -50,11 +50,21 @@
 #include "common/valuevector.h"
 #include "executors/abstractexecutor.h"
 
+#include "boost/scoped_ptr.hpp"
+
+#include <utility>
+#include <vector>
+
 namespace voltdb {
 
+    class TempTable;
+    class TupleComparer;
+
     class UndoLog;
     class ReadWriteSet;
     class LimitPlanNode;
+    class OrderByPlanNode;
+    class Table;
 
     /**
      *
@@ -72,7 +82,22 @@ namespace voltdb {
         bool p_execute(const NValueArray &params);
 
     private:
+        // The spilled blocks [first, second) of m_sortedRuns holding one sorted run.
+        typedef std::pair<size_t, size_t> SortedRun;
+
+        bool executeTopN(OrderByPlanNode* node, Table* input_table, Table* output_table,
+                         int limit, int offset);
+        bool executeExternalSort(OrderByPlanNode* node, Table* input_table,
+                                 Table* output_table, int limit, int offset);
+        SortedRun writeSortedRun(TupleComparer& comparer);
+        bool mergeSortedRuns(const std::vector<SortedRun>& runs, TupleComparer& comparer,
+                             Table* destination, int limit, int offset);
+
         LimitPlanNode *limit_node;
+        // Collects as much of the input as fits in memory for each sorted run.
+        boost::scoped_ptr<TempTable> m_runBuffer;
+        // Spills the sorted runs, one after another, for the merge.
+        boost::scoped_ptr<TempTable> m_sortedRuns;
     };
 
 }
@@ -98,6 +98,19 @@ bool ProjectionExecutor::p_init(AbstractPlanNode *abstractNode,
     if (!node->isInline()) {
         input_table = node->getInputTables()[0];
         tuple = TableTuple(input_table->schema());
+
+        if (all_tuple_array == NULL && all_param_array == NULL) {
+            const int blockSize = AbstractExpression::BATCH_SIZE;
+            block_ptr = boost::shared_array<TableTuple>(new TableTuple[blockSize]);
+            block = block_ptr.get();
+            selection_ptr = boost::shared_array<int>(new int[blockSize]);
+            selection = selection_ptr.get();
+            for (int i = 0; i < blockSize; i++) {
+                selection[i] = i;
+            }
+            projected_ptr = boost::shared_array<NValue>(new NValue[m_columnCount * blockSize]);
+            projected = projected_ptr.get();
+        }
     }
     return true;
 }
@@ -138,6 +151,35 @@ bool ProjectionExecutor::p_execute(const NValueArray &params) {
     //
     TableIterator iterator = input_table->iterator();
     assert (tuple.sizeInValues() == input_table->columnCount());
+    if (all_tuple_array == NULL && all_param_array == NULL) {
+        //
+        // General expressions are evaluated over a block of input tuples
+        // at a time, one output column after another, and the output
+        // tuples assembled from the results
+        //
+        const int blockSize = AbstractExpression::BATCH_SIZE;
+        while (true) {
+            int count = 0;
+            while (count < blockSize && iterator.next(tuple)) {
+                block[count++] = tuple;
+            }
+            if (count == 0) {
+                break;
+            }
+            for (int ctr = m_columnCount - 1; ctr >= 0; --ctr) {
+                expression_array[ctr]->evalBatch(block, selection, count, &projected[ctr * blockSize]);
+            }
+            for (int i = 0; i < count; i++) {
+                TableTuple &temp_tuple = output_table->tempTuple();
+                for (int ctr = m_columnCount - 1; ctr >= 0; --ctr) {
+                    temp_tuple.setNValue(ctr, projected[ctr * blockSize + i]);
+                }
+                output_table->insertTupleNonVirtual(temp_tuple);
+            }
+        }
+        return (true);
+    }
+
     while (iterator.next(tuple)) {
         //
         // Project (or replace) values from input tuple
@@ -148,15 +190,11 @@ bool ProjectionExecutor::p_execute(const NValueArray &params) {
             for (int ctr = m_columnCount - 1; ctr >= 0; --ctr) {
                 temp_tuple.setNValue(ctr, tuple.getNValue(all_tuple_array[ctr]));
             }
-        } else if (all_param_array != NULL) {
+        } else {
             VOLT_TRACE("sweet, all params");
             for (int ctr = m_columnCount - 1; ctr >= 0; --ctr) {
                 temp_tuple.setNValue(ctr, params[all_param_array[ctr]]);
             }
-        } else {
-            for (int ctr = m_columnCount - 1; ctr >= 0; --ctr) {
-                temp_tuple.setNValue(ctr, expression_array[ctr]->eval(&tuple, NULL));
-            }
         }
         output_table->insertTupleNonVirtual(temp_tuple);
 
@@ -87,6 +87,15 @@ class ProjectionExecutor : public AbstractExecutor {
 
         boost::shared_array<AbstractExpression*> expression_array_ptr;
         AbstractExpression** expression_array;
+
+        // a block of input tuples, the identity selection over it and the
+        // projected values, column by column
+        boost::shared_array<TableTuple> block_ptr;
+        TableTuple* block;
+        boost::shared_array<int> selection_ptr;
+        int* selection;
+        boost::shared_array<NValue> projected_ptr;
+        NValue* projected;
 };
 
 }
@@ -179,6 +179,21 @@ bool SeqScanExecutor::p_execute(const NValueArray &params) {
         int tuple_ctr = 0;
         int tuple_skipped = 0;
         m_engine->setLastAccessedTable(target_table);
+
+        //
+        // OPTIMIZATION: BATCHED EVALUATION
+        //
+        // Without a limit every tuple is going to be looked at, so the
+        // predicate and the projection are evaluated over a block of
+        // tuples at a time rather than walking the expression trees once
+        // per tuple.
+        //
+        if (limit_node == NULL)
+        {
+            return executeInBatches(iterator, tuple, predicate, projection_node,
+                                    target_table, output_table);
+        }
+
         while ((limit == -1 || tuple_ctr < limit) && iterator.next(tuple))
         {
             VOLT_TRACE("INPUT TUPLE: %s, %d/%d\n",
@@ -241,3 +256,74 @@ bool SeqScanExecutor::p_execute(const NValueArray &params) {
 
     return true;
 }
+
+bool SeqScanExecutor::executeInBatches(TableIterator &iterator, TableTuple &tuple,
+                                       AbstractExpression *predicate,
+                                       ProjectionPlanNode *projection_node,
+                                       Table *target_table, Table *output_table)
+{
+    const int blockSize = AbstractExpression::BATCH_SIZE;
+    const int num_of_columns = (int)output_table->columnCount();
+    if (m_block.empty()) {
+        m_block.resize(blockSize);
+        m_selection.resize(blockSize);
+    }
+    if (projection_node != NULL && m_projected.size() < (size_t)(num_of_columns * blockSize)) {
+        m_projected.resize(num_of_columns * blockSize);
+    }
+
+    while (true)
+    {
+        int count = 0;
+        while (count < blockSize && iterator.next(tuple)) {
+            m_block[count++] = tuple;
+        }
+        if (count == 0) {
+            break;
+        }
+        m_engine->noteTuplesProcessedForProgressMonitoring(count);
+
+        for (int i = 0; i < count; i++) {
+            m_selection[i] = i;
+        }
+        if (predicate != NULL) {
+            count = predicate->filterBatch(&m_block[0], &m_selection[0], count);
+        }
+
+        if (projection_node != NULL)
+        {
+            // one column of the output at a time, then one tuple at a time
+            for (int ctr = 0; ctr < num_of_columns; ctr++) {
+                projection_node->getOutputColumnExpressions()[ctr]->
+                    evalBatch(&m_block[0], &m_selection[0], count, &m_projected[ctr * blockSize]);
+            }
+            TableTuple &temp_tuple = output_table->tempTuple();
+            for (int i = 0; i < count; i++) {
+                for (int ctr = 0; ctr < num_of_columns; ctr++) {
+                    temp_tuple.setNValue(ctr, m_projected[ctr * blockSize + i]);
+                }
+                if (!output_table->insertTuple(temp_tuple)) {
+                    VOLT_ERROR("Failed to insert tuple from table '%s' into"
+                               " output table '%s'",
+                               target_table->name().c_str(),
+                               output_table->name().c_str());
+                    return false;
+                }
+            }
+        }
+        else
+        {
+            for (int i = 0; i < count; i++) {
+                if (!output_table->insertTuple(m_block[m_selection[i]])) {
+                    VOLT_ERROR("Failed to insert tuple from table '%s' into"
+                               " output table '%s'",
+                               target_table->name().c_str(),
+                               output_table->name().c_str());
+                    return false;
+                }
+            }
+        }
+    }
+    VOLT_DEBUG("Finished Seq scanning");
+    return true;
+}
@@ -46,8 +46,10 @@
 #ifndef HSTORESEQSCANEXECUTOR_H
 #define HSTORESEQSCANEXECUTOR_H
 
+#include <vector>
 #include "common/common.h"
 #include "common/valuevector.h"
+#include "common/tabletuple.h"
 #include "executors/abstractexecutor.h"
 #include "execution/VoltDBEngine.h"
 
@@ -55,6 +57,10 @@ namespace voltdb
 {
     class UndoLog;
     class ReadWriteSet;
+    class AbstractExpression;
+    class ProjectionPlanNode;
+    class Table;
+    class TableIterator;
 
     class SeqScanExecutor : public AbstractExecutor {
     public:
@@ -66,6 +72,17 @@ namespace voltdb
                     TempTableLimits* limits);
         bool p_execute(const NValueArray& params);
         bool needsOutputTableClear();
+
+    private:
+        bool executeInBatches(TableIterator &iterator, TableTuple &tuple,
+                              AbstractExpression *predicate,
+                              ProjectionPlanNode *projection_node,
+                              Table *target_table, Table *output_table);
+
+        // scratch space for scanning a block of tuples at a time
+        std::vector<TableTuple> m_block;
+        std::vector<int> m_selection;
+        std::vector<NValue> m_projected;
     };
 }
 
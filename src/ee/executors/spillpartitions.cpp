@@ -0,0 +1,65 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#include "spillpartitions.h"
+#include "storage/tablefactory.h"
+#include "storage/tableiterator.h"
+
+using namespace voltdb;
+
+SpillPartitions::SpillPartitions(CatalogId databaseId, const std::string &name,
+                                 const Table* schemaTable, TempTableLimits* limits)
+    : m_empty(true)
+{
+    for (int i = 0; i < PARTITION_COUNT; i++) {
+        boost::shared_ptr<TempTable> partition(
+            TableFactory::getCopiedTempTable(databaseId, name, schemaTable, limits));
+        partition->enableSpilling();
+        m_partitions.push_back(partition);
+    }
+    m_workTable.reset(TableFactory::getCopiedTempTable(databaseId, name, schemaTable, limits));
+}
+
+TempTable* SpillPartitions::load(int partition)
+{
+    assert(partition >= 0 && partition < PARTITION_COUNT);
+    m_workTable->deleteAllTuplesNonVirtual(false);
+    TempTable* source = m_partitions[partition].get();
+    TableIterator iterator = source->iterator();
+    TableTuple tuple(source->schema());
+    while (iterator.next(tuple)) {
+        m_workTable->insertTempTuple(tuple);
+    }
+    source->deleteAllTuplesNonVirtual(false);
+    return m_workTable.get();
+}
+
+void SpillPartitions::spill()
+{
+    for (int i = 0; i < PARTITION_COUNT; i++) {
+        m_partitions[i]->spillBlocks();
+    }
+}
+
+void SpillPartitions::clear()
+{
+    for (int i = 0; i < PARTITION_COUNT; i++) {
+        m_partitions[i]->deleteAllTuplesNonVirtual(false);
+    }
+    m_workTable->deleteAllTuplesNonVirtual(false);
+    m_empty = true;
+}
@@ -0,0 +1,95 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef SPILLPARTITIONS_H
+#define SPILLPARTITIONS_H
+
+#include "common/common.h"
+#include "common/tabletuple.h"
+#include "storage/temptable.h"
+
+#include "boost/shared_ptr.hpp"
+
+#include <string>
+#include <vector>
+
+namespace voltdb {
+
+class Table;
+class TempTableLimits;
+
+/**
+ * Scratch space for hash-based executors whose in-memory state would
+ * outgrow the fragment's temp table memory.  Input tuples that cannot be
+ * handled in memory are scattered by hash over a fixed number of spilling
+ * temp tables.  Each partition is later loaded back into memory on its own
+ * and processed as if it were the whole input.  Tuples with equal hashes
+ * always land in the same partition.  Uninlined columns are spilled as
+ * pointers, as TempTable::enableSpilling() describes, so only the tuples
+ * themselves leave memory.
+ */
+class SpillPartitions {
+    public:
+        static const int PARTITION_COUNT = 16;
+
+        SpillPartitions(CatalogId databaseId, const std::string &name,
+                        const Table* schemaTable, TempTableLimits* limits);
+
+        void insert(TableTuple &tuple, size_t hash)
+        {
+            m_partitions[hash % PARTITION_COUNT]->insertTempTuple(tuple);
+            m_empty = false;
+        }
+
+        bool isEmpty() const { return m_empty; }
+
+        /**
+         * Move the tuples of one partition into the in-memory work table
+         * and return it.  The work table is emptied by the next call and
+         * by clear().
+         */
+        TempTable* load(int partition);
+
+        /**
+         * Write the blocks of every partition that are still in memory to
+         * disk, making room for whatever the executor produces next.
+         */
+        void spill();
+
+        void clear();
+
+    private:
+        std::vector<boost::shared_ptr<TempTable> > m_partitions;
+        boost::shared_ptr<TempTable> m_workTable;
+        bool m_empty;
+};
+
+/**
+ * Clears a SpillPartitions when it goes out of scope, giving back its
+ * memory and spill space however the executor finishes.
+ */
+class SpillPartitionsCleaner {
+    public:
+        explicit SpillPartitionsCleaner(SpillPartitions* partitions) : m_partitions(partitions) {}
+        ~SpillPartitionsCleaner() { m_partitions->clear(); }
+    private:
+        SpillPartitions* m_partitions;
+};
+
+}
+
+#endif
@@ -46,6 +46,8 @@
 #include "abstractexpression.h"
 
 #include "common/debuglog.h"
+#include "common/NValue.hpp"
+#include "common/tabletuple.h"
 #include "common/serializeio.h"
 #include "common/types.h"
 #include "expressions/expressionutil.h"
@@ -106,6 +108,27 @@ AbstractExpression::substitute(const NValueArray &params)
     }
 }
 
+void
+AbstractExpression::evalBatch(const TableTuple *tuples, const int *sel, int count,
+                              NValue *values) const
+{
+    for (int i = 0; i < count; i++) {
+        values[i] = eval(&tuples[sel[i]], NULL);
+    }
+}
+
+int
+AbstractExpression::filterBatch(const TableTuple *tuples, int *sel, int count) const
+{
+    int kept = 0;
+    for (int i = 0; i < count; i++) {
+        if (eval(&tuples[sel[i]], NULL).isTrue()) {
+            sel[kept++] = sel[i];
+        }
+    }
+    return kept;
+}
+
 bool
 AbstractExpression::hasParameter() const
 {
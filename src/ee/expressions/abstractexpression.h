@@ -76,6 +76,22 @@ class AbstractExpression {
 
     virtual NValue eval(const TableTuple *tuple1 = NULL, const TableTuple *tuple2 = NULL) const = 0;
 
+    /** Number of tuples the scan executors hand to evalBatch() and
+        filterBatch() at a time. */
+    static const int BATCH_SIZE = 1024;
+
+    /** evaluate against tuples[sel[0]] .. tuples[sel[count-1]] as tuple1,
+        writing one result per selected tuple into values. The default
+        calls eval() for each of them; leaf nodes override it to skip the
+        per-tuple virtual call. */
+    virtual void evalBatch(const TableTuple *tuples, const int *sel, int count,
+                           NValue *values) const;
+
+    /** evaluate as a predicate against the selected tuples, keeping in sel
+        only the positions for which it is true. Positions in sel are
+        ascending and stay that way. Returns how many were kept. */
+    virtual int filterBatch(const TableTuple *tuples, int *sel, int count) const;
+
     /** set parameter values for this node and its descendents */
     virtual void substitute(const NValueArray &params);
 
@@ -49,12 +49,15 @@
 #include "common/common.h"
 #include "common/serializeio.h"
 #include "common/valuevector.h"
+#include "common/ValuePeeker.hpp"
+#include "common/tabletuple.h"
 
 #include "expressions/abstractexpression.h"
 #include "expressions/parametervalueexpression.h"
 #include "expressions/constantvalueexpression.h"
 #include "expressions/tuplevalueexpression.h"
 
+#include <algorithm>
 #include <string>
 #include <cassert>
 
@@ -63,37 +66,162 @@ namespace voltdb {
 class CmpEq {
 public:
     inline NValue cmp(NValue l, NValue r) const { return l.op_equals(r);}
+    static const bool integral = true;
+    inline bool cmpInt(int64_t l, int64_t r) const { return l == r; }
 };
 class CmpNe {
 public:
     inline NValue cmp(NValue l, NValue r) const { return l.op_notEquals(r);}
+    static const bool integral = true;
+    inline bool cmpInt(int64_t l, int64_t r) const { return l != r; }
 };
 class CmpLt {
 public:
     inline NValue cmp(NValue l, NValue r) const { return l.op_lessThan(r);}
+    static const bool integral = true;
+    inline bool cmpInt(int64_t l, int64_t r) const { return l < r; }
 };
 class CmpGt {
 public:
     inline NValue cmp(NValue l, NValue r) const { return l.op_greaterThan(r);}
+    static const bool integral = true;
+    inline bool cmpInt(int64_t l, int64_t r) const { return l > r; }
 };
 class CmpLte {
 public:
     inline NValue cmp(NValue l, NValue r) const { return l.op_lessThanOrEqual(r);}
+    static const bool integral = true;
+    inline bool cmpInt(int64_t l, int64_t r) const { return l <= r; }
 };
 class CmpGte {
 public:
     inline NValue cmp(NValue l, NValue r) const { return l.op_greaterThanOrEqual(r);}
+    static const bool integral = true;
+    inline bool cmpInt(int64_t l, int64_t r) const { return l >= r; }
 };
 class CmpLike {
 public:
     inline NValue cmp(NValue l, NValue r) const { return l.like(r);}
+    // never compares plain integers
+    static const bool integral = false;
+    inline bool cmpInt(int64_t l, int64_t r) const { return false; }
 };
 class CmpIn {
 public:
     inline NValue cmp(NValue l, NValue r) const
     { return l.inList(r) ? NValue::getTrue() : NValue::getFalse(); }
+    // never compares plain integers
+    static const bool integral = false;
+    inline bool cmpInt(int64_t l, int64_t r) const { return false; }
 };
 
+// the types NValue::compare() compares as plain int64 values
+inline bool comparesAsInteger(ValueType type)
+{
+    switch (type) {
+    case VALUE_TYPE_TINYINT:
+    case VALUE_TYPE_SMALLINT:
+    case VALUE_TYPE_INTEGER:
+    case VALUE_TYPE_BIGINT:
+    case VALUE_TYPE_TIMESTAMP:
+        return true;
+    default:
+        return false;
+    }
+}
+
+template <typename C, typename T, bool columnOnLeft>
+inline int filterIntegerColumn(const C &compare, const TableTuple *tuples, int *sel, int count,
+                               uint32_t offset, T nullValue, int64_t other)
+{
+    int kept = 0;
+    for (int i = 0; i < count; i++) {
+        const int pos = sel[i];
+        const int64_t value = *reinterpret_cast<const T*>(tuples[pos].address() + TUPLE_HEADER_SIZE + offset);
+        const bool match = (columnOnLeft ? compare.cmpInt(value, other) : compare.cmpInt(other, value));
+        // written unconditionally so the loop doesn't branch on the data
+        sel[kept] = pos;
+        kept += (match && value != nullValue);
+    }
+    return kept;
+}
+
+/*
+ * Batch filter shared by the comparison expressions. An integer column
+ * compared with a constant or parameter is compared straight out of tuple
+ * storage, anything else goes through NValue a block at a time.
+ */
+template <typename C>
+inline int comparisonFilterBatch(const C &compare,
+                                 const AbstractExpression *left, const AbstractExpression *right,
+                                 const TableTuple *tuples, int *sel, int count)
+{
+    if (count == 0) {
+        return 0;
+    }
+    if (C::integral) {
+        const TupleValueExpression *column = dynamic_cast<const TupleValueExpression*>(left);
+        const AbstractExpression *other = right;
+        bool columnOnLeft = true;
+        if (column == NULL) {
+            column = dynamic_cast<const TupleValueExpression*>(right);
+            other = left;
+            columnOnLeft = false;
+        }
+        if (column != NULL && column->getTupleId() == 0 &&
+            (other->getExpressionType() == EXPRESSION_TYPE_VALUE_CONSTANT ||
+             other->getExpressionType() == EXPRESSION_TYPE_VALUE_PARAMETER)) {
+            const NValue otherValue = other->eval(NULL, NULL);
+            const TupleSchema *schema = tuples[sel[0]].getSchema();
+            const int columnId = column->getColumnId();
+            if (comparesAsInteger(ValuePeeker::peekValueType(otherValue)) &&
+                comparesAsInteger(schema->columnType(columnId))) {
+                if (otherValue.isNull()) {
+                    // comparisons with null are never true
+                    return 0;
+                }
+                const int64_t otherInt = ValuePeeker::peekAsBigInt(otherValue);
+                const uint32_t offset = schema->columnOffset(columnId);
+                switch (schema->columnType(columnId)) {
+                case VALUE_TYPE_TINYINT:
+                    return columnOnLeft ?
+                        filterIntegerColumn<C, int8_t, true>(compare, tuples, sel, count, offset, INT8_NULL, otherInt) :
+                        filterIntegerColumn<C, int8_t, false>(compare, tuples, sel, count, offset, INT8_NULL, otherInt);
+                case VALUE_TYPE_SMALLINT:
+                    return columnOnLeft ?
+                        filterIntegerColumn<C, int16_t, true>(compare, tuples, sel, count, offset, INT16_NULL, otherInt) :
+                        filterIntegerColumn<C, int16_t, false>(compare, tuples, sel, count, offset, INT16_NULL, otherInt);
+                case VALUE_TYPE_INTEGER:
+                    return columnOnLeft ?
+                        filterIntegerColumn<C, int32_t, true>(compare, tuples, sel, count, offset, INT32_NULL, otherInt) :
+                        filterIntegerColumn<C, int32_t, false>(compare, tuples, sel, count, offset, INT32_NULL, otherInt);
+                default:
+                    return columnOnLeft ?
+                        filterIntegerColumn<C, int64_t, true>(compare, tuples, sel, count, offset, INT64_NULL, otherInt) :
+                        filterIntegerColumn<C, int64_t, false>(compare, tuples, sel, count, offset, INT64_NULL, otherInt);
+                }
+            }
+        }
+    }
+
+    // small enough pieces to keep the operands on the stack
+    const int PIECE = 128;
+    NValue lnv[PIECE];
+    NValue rnv[PIECE];
+    int kept = 0;
+    for (int start = 0; start < count; start += PIECE) {
+        const int n = std::min(PIECE, count - start);
+        left->evalBatch(tuples, sel + start, n, lnv);
+        right->evalBatch(tuples, sel + start, n, rnv);
+        for (int i = 0; i < n; i++) {
+            if (!lnv[i].isNull() && !rnv[i].isNull() && compare.cmp(lnv[i], rnv[i]).isTrue()) {
+                sel[kept++] = sel[start + i];
+            }
+        }
+    }
+    return kept;
+}
+
 template <typename C>
 class ComparisonExpression : public AbstractExpression {
 public:
@@ -135,6 +263,10 @@ public:
         return compare.cmp(lnv, rnv);
     }
 
+    int filterBatch(const TableTuple *tuples, int *sel, int count) const {
+        return comparisonFilterBatch(compare, m_left, m_right, tuples, sel, count);
+    }
+
     std::string debugInfo(const std::string &spacer) const {
         return (spacer + "ComparisonExpression\n");
     }
@@ -181,6 +313,10 @@ public:
         return compare.cmp(lnv, rnv);
     }
 
+    int filterBatch(const TableTuple *tuples, int *sel, int count) const {
+        return comparisonFilterBatch(compare, m_left, m_right, tuples, sel, count);
+    }
+
     std::string debugInfo(const std::string &spacer) const {
         return (spacer + "OptimizedInlinedComparisonExpression\n");
     }
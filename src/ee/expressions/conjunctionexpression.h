@@ -52,7 +52,9 @@
 
 #include "expressions/abstractexpression.h"
 
+#include <algorithm>
 #include <string>
+#include <cassert>
 
 namespace voltdb {
 
@@ -74,6 +76,8 @@ class ConjunctionExpression : public AbstractExpression
 
     NValue eval(const TableTuple *tuple1, const TableTuple *tuple2) const;
 
+    int filterBatch(const TableTuple *tuples, int *sel, int count) const;
+
     std::string debugInfo(const std::string &spacer) const {
         return (spacer + "ConjunctionExpression\n");
     }
@@ -130,5 +134,49 @@ ConjunctionExpression<ConjunctionOr>::eval(const TableTuple *tuple1,
     return NValue::getNullValue(VALUE_TYPE_BOOLEAN);
 }
 
+/*
+ * Only TRUE passes a filter, so an AND keeps what passes both sides and
+ * the right side only sees what the left one kept.
+ */
+template<> inline int
+ConjunctionExpression<ConjunctionAnd>::filterBatch(const TableTuple *tuples,
+                                                   int *sel, int count) const
+{
+    count = m_left->filterBatch(tuples, sel, count);
+    if (count == 0) {
+        return 0;
+    }
+    return m_right->filterBatch(tuples, sel, count);
+}
+
+/*
+ * An OR keeps what passes the left side plus whatever of the rest passes
+ * the right side, merged back into scan order.
+ */
+template<> inline int
+ConjunctionExpression<ConjunctionOr>::filterBatch(const TableTuple *tuples,
+                                                  int *sel, int count) const
+{
+    assert(count <= BATCH_SIZE);
+    int left[BATCH_SIZE];
+    int rest[BATCH_SIZE];
+    std::copy(sel, sel + count, left);
+    int leftCount = m_left->filterBatch(tuples, left, count);
+    if (leftCount == count) {
+        return count;
+    }
+    int restCount = 0;
+    for (int i = 0, j = 0; i < count; i++) {
+        if (j < leftCount && left[j] == sel[i]) {
+            j++;
+        } else {
+            rest[restCount++] = sel[i];
+        }
+    }
+    restCount = m_right->filterBatch(tuples, rest, restCount);
+    std::merge(left, left + leftCount, rest, rest + restCount, sel);
+    return leftCount + restCount;
+}
+
 }
 #endif
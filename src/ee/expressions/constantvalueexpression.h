@@ -76,6 +76,12 @@ class ConstantValueExpression : public AbstractExpression {
         return this->value;
     }
 
+    void evalBatch(const TableTuple *tuples, const int *sel, int count, NValue *values) const {
+        for (int i = 0; i < count; i++) {
+            values[i] = this->value;
+        }
+    }
+
     std::string debugInfo(const std::string &spacer) const {
         return spacer + "OptimizedConstantValueExpression:" +
           value.debug() + "\n";
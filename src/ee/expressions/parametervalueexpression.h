@@ -72,6 +72,12 @@ public:
         return this->m_paramValue;
     }
 
+    void evalBatch(const TableTuple *tuples, const int *sel, int count, NValue *values) const {
+        for (int i = 0; i < count; i++) {
+            values[i] = this->m_paramValue;
+        }
+    }
+
     bool hasParameter() const {
         // this class represents a parameter.
         return true;
@@ -88,6 +88,17 @@ class TupleValueExpression : public AbstractExpression {
         }
     }
 
+    void evalBatch(const TableTuple *tuples, const int *sel, int count, NValue *values) const {
+        if (tuple_idx != 0) {
+            // batches only ever bind tuple1, let eval() report it
+            AbstractExpression::evalBatch(tuples, sel, count, values);
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            values[i] = tuples[sel[i]].getNValue(value_idx);
+        }
+    }
+
     std::string debugInfo(const std::string &spacer) const {
         std::ostringstream buffer;
         buffer << spacer << "Optimized Column Reference[" << tuple_idx << ", " << value_idx << "]\n";
@@ -96,6 +107,8 @@ class TupleValueExpression : public AbstractExpression {
 
     int getColumnId() const {return this->value_idx;}
 
+    int getTupleId() const {return this->tuple_idx;}
+
   protected:
 
     const int tuple_idx;           // which tuple. defaults to tuple1
@@ -155,6 +155,11 @@ class CompactingHashMultiMapIndex : public TableIndex
         return m_entries.bytesAllocated();
     }
 
+    int64_t getDistinctKeyCount()
+    {
+        return static_cast<int64_t>(m_entries.uniqueKeyCount());
+    }
+
     std::string getTypeName() const { return "CompactingHashMultiMapIndex"; };
 
     // Non-virtual (so "really-private") helper methods.
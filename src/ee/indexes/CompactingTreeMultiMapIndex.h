@@ -51,18 +51,21 @@
 #include "indexes/tableindex.h"
 #include "common/tabletuple.h"
 #include "structures/CompactingMap.h"
+#include "structures/CompactingBTree.h"
+#include "indexes/TreeIndexBulkInsert.h"
 
 namespace voltdb {
 
 /**
- * Index implemented as a Binary Tree Multimap.
+ * Index implemented as a Binary Tree Multimap,
+ * or as a B+tree (CompactingBTree) if useBTree is set.
  * @see TableIndex
  */
-template<typename KeyType, bool hasRank>
+template<typename KeyType, bool hasRank, bool useBTree=false>
 class CompactingTreeMultiMapIndex : public TableIndex
 {
     typedef typename KeyType::KeyComparator KeyComparator;
-    typedef CompactingMap<KeyType, const void*, KeyComparator, hasRank> MapType;
+    typedef typename CompactingTreeMap<KeyType, const void*, KeyComparator, hasRank, useBTree>::type MapType;
     typedef typename MapType::iterator MapIterator;
     typedef std::pair<MapIterator, MapIterator> MapRange;
 
@@ -71,7 +74,45 @@ class CompactingTreeMultiMapIndex : public TableIndex
     bool addEntry(const TableTuple *tuple)
     {
         ++m_inserts;
-        return m_entries.insert(setKeyFromTuple(tuple), tuple->address());
+        const KeyType key = setKeyFromTuple(tuple);
+        bool newKey = !hasKey(key);
+        if (!m_entries.insert(key, tuple->address())) {
+            return false;
+        }
+        if (newKey) {
+            ++m_distinctKeyCount;
+        }
+        return true;
+    }
+
+    // only a B+tree can be built from a sorted run faster than by inserts
+    bool supportsBulkInsert() const { return useBTree && m_scheme.indexedExpressions.empty(); }
+
+    void prepareBulkInsert(const std::vector<TableTuple> &tuples, std::vector<int32_t> &duplicateOf)
+    {
+        m_bulkRun.clear();
+        m_bulkRun.reserve(tuples.size());
+        for (int32_t i = 0; i < static_cast<int32_t>(tuples.size()); ++i) {
+            m_bulkRun.push_back(BulkInsertEntry<KeyType>(setKeyFromTuple(&tuples[i]), tuples[i].address(), i));
+        }
+        sortBulkInsertRun(m_bulkRun, m_cmp, m_entries, false, duplicateOf);
+    }
+
+    void finishBulkInsert(const std::vector<bool> &accepted)
+    {
+        // the run is sorted, so each new key starts where the key changes
+        const KeyType *lastKey = NULL;
+        for (size_t i = 0; i < m_bulkRun.size(); i++) {
+            if (!accepted[m_bulkRun[i].m_position]) {
+                continue;
+            }
+            if ((lastKey == NULL || m_cmp(*lastKey, m_bulkRun[i].first) != 0) &&
+                !hasKey(m_bulkRun[i].first)) {
+                ++m_distinctKeyCount;
+            }
+            lastKey = &m_bulkRun[i].first;
+        }
+        m_inserts += static_cast<int>(insertBulkInsertRun(m_bulkRun, accepted, m_entries));
     }
 
     bool deleteEntry(const TableTuple *tuple)
@@ -81,7 +122,14 @@ class CompactingTreeMultiMapIndex : public TableIndex
         if (iter.isEnd()) {
             return false;
         }
-        return m_entries.erase(iter);
+        bool lastOfKey = isOnlyEntryOfKey(iter);
+        if (!m_entries.erase(iter)) {
+            return false;
+        }
+        if (lastOfKey) {
+            --m_distinctKeyCount;
+        }
+        return true;
     }
 
     /**
@@ -299,6 +347,8 @@ class CompactingTreeMultiMapIndex : public TableIndex
         return m_entries.bytesAllocated();
     }
 
+    int64_t getDistinctKeyCount() { return m_distinctKeyCount; }
+
     std::string debug() const
     {
         std::ostringstream buffer;
@@ -314,7 +364,9 @@ class CompactingTreeMultiMapIndex : public TableIndex
         return (ret);
     }
 
-    std::string getTypeName() const { return "CompactingTreeMultiMapIndex"; };
+    std::string getTypeName() const {
+        return useBTree ? "CompactingBTreeMultiMapIndex" : "CompactingTreeMultiMapIndex";
+    };
 
     MapIterator findKey(const TableTuple *searchKey) {
         m_keyEndIter = MapIterator();
@@ -333,6 +385,24 @@ class CompactingTreeMultiMapIndex : public TableIndex
         return MapIterator();
     }
 
+    bool hasKey(const KeyType &key)
+    {
+        MapIterator iter = m_entries.lowerBound(key);
+        return !iter.isEnd() && m_cmp(key, iter.key()) == 0;
+    }
+
+    bool isOnlyEntryOfKey(const MapIterator &iter)
+    {
+        MapIterator neighbor = iter;
+        neighbor.movePrev();
+        if (!neighbor.isEnd() && m_cmp(neighbor.key(), iter.key()) == 0) {
+            return false;
+        }
+        neighbor = iter;
+        neighbor.moveNext();
+        return neighbor.isEnd() || m_cmp(neighbor.key(), iter.key()) != 0;
+    }
+
     const KeyType setKeyFromTuple(const TableTuple *tuple)
     {
         KeyType result(tuple, m_scheme.columnIndices, m_scheme.indexedExpressions, m_keySchema);
@@ -350,13 +420,21 @@ class CompactingTreeMultiMapIndex : public TableIndex
     // comparison stuff
     KeyComparator m_cmp;
 
+    // entries of a bulk insert between prepareBulkInsert() and finishBulkInsert()
+    std::vector<BulkInsertEntry<KeyType> > m_bulkRun;
+
+    // kept up to date by every insert and delete, so that @Statistics
+    // INDEX never has to walk the index to count the keys
+    int64_t m_distinctKeyCount;
+
 public:
     CompactingTreeMultiMapIndex(const TupleSchema *keySchema, const TableIndexScheme &scheme) :
         TableIndex(keySchema, scheme),
         m_entries(false, KeyComparator(keySchema)),
         m_forward(true),
         m_match(getTupleSchema()),
-        m_cmp(keySchema)
+        m_cmp(keySchema),
+        m_distinctKeyCount(0)
     {}
 };
 
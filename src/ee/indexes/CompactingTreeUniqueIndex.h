@@ -53,18 +53,21 @@
 #include "common/tabletuple.h"
 #include "indexes/tableindex.h"
 #include "structures/CompactingMap.h"
+#include "structures/CompactingBTree.h"
+#include "indexes/TreeIndexBulkInsert.h"
 
 namespace voltdb {
 
 /**
- * Index implemented as a Binary Tree Unique Map.
+ * Index implemented as a Binary Tree Unique Map,
+ * or as a B+tree (CompactingBTree) if useBTree is set.
  * @see TableIndex
  */
-template<typename KeyType, bool hasRank>
+template<typename KeyType, bool hasRank, bool useBTree=false>
 class CompactingTreeUniqueIndex : public TableIndex
 {
     typedef typename KeyType::KeyComparator KeyComparator;
-    typedef CompactingMap<KeyType, const void*, KeyComparator, hasRank> MapType;
+    typedef typename CompactingTreeMap<KeyType, const void*, KeyComparator, hasRank, useBTree>::type MapType;
     typedef typename MapType::iterator MapIterator;
 
     ~CompactingTreeUniqueIndex() {};
@@ -75,6 +78,24 @@ class CompactingTreeUniqueIndex : public TableIndex
         return m_entries.insert(setKeyFromTuple(tuple), tuple->address());
     }
 
+    // only a B+tree can be built from a sorted run faster than by inserts
+    bool supportsBulkInsert() const { return useBTree && m_scheme.indexedExpressions.empty(); }
+
+    void prepareBulkInsert(const std::vector<TableTuple> &tuples, std::vector<int32_t> &duplicateOf)
+    {
+        m_bulkRun.clear();
+        m_bulkRun.reserve(tuples.size());
+        for (int32_t i = 0; i < static_cast<int32_t>(tuples.size()); ++i) {
+            m_bulkRun.push_back(BulkInsertEntry<KeyType>(setKeyFromTuple(&tuples[i]), tuples[i].address(), i));
+        }
+        sortBulkInsertRun(m_bulkRun, m_cmp, m_entries, true, duplicateOf);
+    }
+
+    void finishBulkInsert(const std::vector<bool> &accepted)
+    {
+        m_inserts += static_cast<int>(insertBulkInsertRun(m_bulkRun, accepted, m_entries));
+    }
+
     bool deleteEntry(const TableTuple *tuple)
     {
         ++m_deletes;
@@ -302,11 +323,13 @@ class CompactingTreeUniqueIndex : public TableIndex
         return (ret);
     }
 
-    std::string getTypeName() const { return "CompactingTreeUniqueIndex"; };
+    std::string getTypeName() const {
+        return useBTree ? "CompactingBTreeUniqueIndex" : "CompactingTreeUniqueIndex";
+    };
 
     virtual TableIndex *cloneEmptyNonCountingTreeIndex() const
     {
-        return new CompactingTreeUniqueIndex<KeyType, false >(TupleSchema::createTupleSchema(getKeySchema()), m_scheme);
+        return new CompactingTreeUniqueIndex<KeyType, false, useBTree>(TupleSchema::createTupleSchema(getKeySchema()), m_scheme);
     }
 
 
@@ -334,6 +357,9 @@ class CompactingTreeUniqueIndex : public TableIndex
     // comparison stuff
     KeyComparator m_cmp;
 
+    // entries of a bulk insert between prepareBulkInsert() and finishBulkInsert()
+    std::vector<BulkInsertEntry<KeyType> > m_bulkRun;
+
 public:
     CompactingTreeUniqueIndex(const TupleSchema *keySchema, const TableIndexScheme &scheme) :
         TableIndex(keySchema, scheme),
@@ -0,0 +1,103 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef TREEINDEXBULKINSERT_H_
+#define TREEINDEXBULKINSERT_H_
+
+#include <algorithm>
+#include <utility>
+#include <vector>
+#include <stdint.h>
+
+namespace voltdb {
+
+/**
+ * A tuple's entry in a bulk insert into a tree index: the key and tuple
+ * address the map stores, plus where the tuple came in the load, so that
+ * equal keys keep load order.
+ */
+template<typename KeyType>
+struct BulkInsertEntry : public std::pair<KeyType, const void*> {
+    BulkInsertEntry(const KeyType &key, const void *address, int32_t position)
+        : std::pair<KeyType, const void*>(key, address), m_position(position) {}
+
+    int32_t m_position;
+};
+
+template<typename KeyType, typename KeyComparator>
+class BulkInsertEntryLess {
+public:
+    BulkInsertEntryLess(const KeyComparator &cmp) : m_cmp(cmp) {}
+
+    bool operator()(const BulkInsertEntry<KeyType> &lhs, const BulkInsertEntry<KeyType> &rhs) const {
+        int cmp = m_cmp(lhs.first, rhs.first);
+        return cmp < 0 || (cmp == 0 && lhs.m_position < rhs.m_position);
+    }
+
+private:
+    const KeyComparator &m_cmp;
+};
+
+/**
+ * The part of TableIndex::prepareBulkInsert() the tree indexes share:
+ * sort the run and, for a unique index, fill in duplicateOf.
+ */
+template<typename KeyType, typename KeyComparator, typename MapType>
+void sortBulkInsertRun(std::vector<BulkInsertEntry<KeyType> > &run, const KeyComparator &cmp,
+                       MapType &entries, bool unique, std::vector<int32_t> &duplicateOf)
+{
+    std::sort(run.begin(), run.end(), BulkInsertEntryLess<KeyType, KeyComparator>(cmp));
+    if (!unique) {
+        return;
+    }
+    duplicateOf.assign(run.size(), -1);
+    int32_t first = -1;
+    for (size_t i = 0; i < run.size(); i++) {
+        if (i == 0 || cmp(run[i - 1].first, run[i].first) != 0) {
+            first = run[i].m_position;
+            if (entries.size() > 0 && !entries.find(run[i].first).isEnd()) {
+                first = -1;
+            }
+        }
+        duplicateOf[run[i].m_position] = first;
+    }
+}
+
+/**
+ * The part of TableIndex::finishBulkInsert() the tree indexes share: drop
+ * the entries of tuples that weren't accepted and add the rest in key
+ * order. Returns how many were added.
+ */
+template<typename KeyType, typename MapType>
+size_t insertBulkInsertRun(std::vector<BulkInsertEntry<KeyType> > &run,
+                           const std::vector<bool> &accepted, MapType &entries)
+{
+    size_t kept = 0;
+    for (size_t i = 0; i < run.size(); i++) {
+        if (accepted[run[i].m_position]) {
+            run[kept++] = run[i];
+        }
+    }
+    run.erase(run.begin() + kept, run.end());
+    entries.insertSorted(run.begin(), run.end());
+    std::vector<BulkInsertEntry<KeyType> >().swap(run);
+    return kept;
+}
+
+}
+
+#endif // TREEINDEXBULKINSERT_H_
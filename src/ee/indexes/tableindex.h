@@ -400,6 +400,16 @@ public:
     // index.
     virtual int64_t getMemoryEstimate() const = 0;
 
+    /**
+     * Return the number of distinct keys in this index, which the planner
+     * uses to estimate how many rows a lookup on this index will match.
+     * Returns -1 for non-unique indexes that can not count their keys.
+     */
+    virtual int64_t getDistinctKeyCount()
+    {
+        return isUniqueIndex() ? static_cast<int64_t>(getSize()) : -1;
+    }
+
     const std::vector<int>& getColumnIndices() const
     {
         return m_scheme.columnIndices;
@@ -447,6 +457,29 @@ public:
 
     virtual void ensureCapacity(uint32_t capacity) {}
 
+    /**
+     * Bulk insertion, for tables loading many tuples at once. An index
+     * that supports it is handed the loaded tuples by prepareBulkInsert(),
+     * which computes and sorts their keys without changing the index.
+     * For a unique index it also sets duplicateOf[i] to -1 if the key of
+     * tuples[i] is already in the index, and otherwise to the position of
+     * the first of the tuples with the same key (i itself if that's the
+     * first or only one). finishBulkInsert() then adds the entries for the
+     * tuples that were accepted, in key order.
+     */
+    virtual bool supportsBulkInsert() const { return false; }
+
+    virtual void prepareBulkInsert(const std::vector<TableTuple> &tuples,
+                                   std::vector<int32_t> &duplicateOf)
+    {
+        throwFatalException("Invoked TableIndex virtual method prepareBulkInsert which has no implementation");
+    }
+
+    virtual void finishBulkInsert(const std::vector<bool> &accepted)
+    {
+        throwFatalException("Invoked TableIndex virtual method finishBulkInsert which has no implementation");
+    }
+
     // print out info about lookup usage
     virtual void printReport();
 
@@ -61,24 +61,24 @@ namespace voltdb {
 
 class TableIndexPicker
 {
-    template <class TKeyType>
+    template <class TKeyType, bool useBTree>
     TableIndex *getInstanceForKeyType() const
     {
            if (m_scheme.unique) {
-            if (m_type != BALANCED_TREE_INDEX) {
+            if (m_type == HASH_TABLE_INDEX) {
                 return new CompactingHashUniqueIndex<TKeyType >(m_keySchema, m_scheme);
             } else if (m_scheme.countable) {
-                return new CompactingTreeUniqueIndex<TKeyType, true>(m_keySchema, m_scheme);
+                return new CompactingTreeUniqueIndex<TKeyType, true, useBTree>(m_keySchema, m_scheme);
             } else {
-                return new CompactingTreeUniqueIndex<TKeyType, false>(m_keySchema, m_scheme);
+                return new CompactingTreeUniqueIndex<TKeyType, false, useBTree>(m_keySchema, m_scheme);
             }
         } else {
-            if (m_type != BALANCED_TREE_INDEX) {
+            if (m_type == HASH_TABLE_INDEX) {
                 return new CompactingHashMultiMapIndex<TKeyType >(m_keySchema, m_scheme);
             } else if (m_scheme.countable) {
-                return new CompactingTreeMultiMapIndex<TKeyType, true>(m_keySchema, m_scheme);
+                return new CompactingTreeMultiMapIndex<TKeyType, true, useBTree>(m_keySchema, m_scheme);
             } else {
-                return new CompactingTreeMultiMapIndex<TKeyType, false>(m_keySchema, m_scheme);
+                return new CompactingTreeMultiMapIndex<TKeyType, false, useBTree>(m_keySchema, m_scheme);
             }
         }
     }
@@ -92,7 +92,8 @@ class TableIndexPicker
         if (m_intsOnly) {
             // The IntsKey size parameter ((KeySize-1)/8 + 1) is calculated to be
             // the number of 8-byte uint64's required to store KeySize packed bytes.
-            return getInstanceForKeyType<IntsKey<(KeySize-1)/8 + 1> >();
+            // Tree indexes on integer keys are always B+trees, with the keys inline in the leaves.
+            return getInstanceForKeyType<IntsKey<(KeySize-1)/8 + 1>, true>();
         }
         // Generic Key
         if (m_type == HASH_TABLE_INDEX) {
@@ -107,9 +108,14 @@ class TableIndexPicker
         // That's exactly what the GenericPersistentKey subtype of GenericKey does. This incurs extra overhead
         // for object copying and freeing, so is only enabled as needed.
         if (m_inlinesOrColumnsOnly) {
-            return getInstanceForKeyType<GenericKey<KeySize> >();
+            if (m_type == BTREE_INDEX) {
+                return getInstanceForKeyType<GenericKey<KeySize>, true>();
+            }
+            return getInstanceForKeyType<GenericKey<KeySize>, false>();
         }
-        return getInstanceForKeyType<GenericPersistentKey<KeySize> >();
+        // GenericPersistentKeys own their objects and hand them over on assignment,
+        // so they can't be shuffled around inside B+tree nodes.
+        return getInstanceForKeyType<GenericPersistentKey<KeySize>, false>();
     }
 
     template <int ColCount>
@@ -0,0 +1,87 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#include "hashjoinnode.h"
+
+#include "expressions/abstractexpression.h"
+#include "storage/table.h"
+
+#include <sstream>
+
+using namespace std;
+using namespace voltdb;
+
+HashJoinPlanNode::HashJoinPlanNode(CatalogId id)
+  : AbstractJoinPlanNode(id), m_sortDirection(SORT_DIRECTION_TYPE_INVALID)
+{
+    // Do nothing
+}
+
+HashJoinPlanNode::HashJoinPlanNode()
+  : AbstractJoinPlanNode(), m_sortDirection(SORT_DIRECTION_TYPE_INVALID)
+{
+    // Do nothing
+}
+
+HashJoinPlanNode::~HashJoinPlanNode()
+{
+    for (int ii = 0; ii < m_outerHashExpressions.size(); ii++) {
+        delete m_outerHashExpressions[ii];
+    }
+    for (int ii = 0; ii < m_innerHashExpressions.size(); ii++) {
+        delete m_innerHashExpressions[ii];
+    }
+    delete getOutputTable();
+    setOutputTable(NULL);
+}
+
+PlanNodeType HashJoinPlanNode::getPlanNodeType() const
+{
+    return PLAN_NODE_TYPE_HASHJOIN;
+}
+
+string HashJoinPlanNode::debugInfo(const string& spacer) const
+{
+    ostringstream buffer;
+    buffer << AbstractJoinPlanNode::debugInfo(spacer);
+    for (int ii = 0; ii < m_outerHashExpressions.size(); ii++) {
+        buffer << spacer << "Hash Key[" << ii << "] Outer\n";
+        buffer << m_outerHashExpressions[ii]->debug(spacer);
+        buffer << spacer << "Hash Key[" << ii << "] Inner\n";
+        buffer << m_innerHashExpressions[ii]->debug(spacer);
+    }
+    return (buffer.str());
+}
+
+void HashJoinPlanNode::loadFromJSONObject(PlannerDomValue obj)
+{
+    AbstractJoinPlanNode::loadFromJSONObject(obj);
+
+    if (obj.hasNonNullKey("SORT_DIRECTION")) {
+        m_sortDirection = stringToSortDirection(obj.valueForKey("SORT_DIRECTION").asStr());
+    }
+
+    PlannerDomValue outerArray = obj.valueForKey("OUTER_HASH_EXPRESSIONS");
+    for (int i = 0; i < outerArray.arrayLen(); i++) {
+        m_outerHashExpressions.push_back(AbstractExpression::buildExpressionTree(outerArray.valueAtIndex(i)));
+    }
+    PlannerDomValue innerArray = obj.valueForKey("INNER_HASH_EXPRESSIONS");
+    for (int i = 0; i < innerArray.arrayLen(); i++) {
+        m_innerHashExpressions.push_back(AbstractExpression::buildExpressionTree(innerArray.valueAtIndex(i)));
+    }
+    assert(m_outerHashExpressions.size() == m_innerHashExpressions.size());
+}
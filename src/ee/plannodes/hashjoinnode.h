@@ -0,0 +1,67 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef HASHJOINNODE_H
+#define HASHJOINNODE_H
+
+#include "abstractjoinnode.h"
+
+#include <vector>
+
+namespace voltdb
+{
+
+/**
+ * An equi-join that hashes one input on its join key and probes the hash
+ * table with the other. The n-th outer hash expression is compared for
+ * equality with the n-th inner hash expression. Any remaining join clauses
+ * are in the join predicate and are applied to each hash-matched pair.
+ */
+class HashJoinPlanNode : public AbstractJoinPlanNode
+{
+public:
+    HashJoinPlanNode(CatalogId id);
+    HashJoinPlanNode();
+    ~HashJoinPlanNode();
+
+    virtual PlanNodeType getPlanNodeType() const;
+
+    const std::vector<AbstractExpression*>& getOuterHashExpressions() const
+    { return m_outerHashExpressions; }
+
+    const std::vector<AbstractExpression*>& getInnerHashExpressions() const
+    { return m_innerHashExpressions; }
+
+    /**
+     * The sort direction inherited from the outer input, if any.
+     * When it is valid, the outer input order must be preserved in the output.
+     */
+    SortDirectionType getSortDirection() const { return m_sortDirection; }
+
+    virtual std::string debugInfo(const std::string& spacer) const;
+
+protected:
+    virtual void loadFromJSONObject(PlannerDomValue obj);
+
+    std::vector<AbstractExpression*> m_outerHashExpressions;
+    std::vector<AbstractExpression*> m_innerHashExpressions;
+    SortDirectionType m_sortDirection;
+};
+
+}
+
+#endif
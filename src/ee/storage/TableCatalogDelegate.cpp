@@ -158,6 +158,9 @@ getIndexIdFromMap(TableIndexType type, bool countable, bool isUnique,
         case HASH_TABLE_INDEX:
             retval += "H";
             break;
+        case BTREE_INDEX:
+            retval += "T";
+            break;
         default:
             // this would need to change if we added index types
             assert(false);
@@ -28,7 +28,10 @@ TempTableLimits::TempTableLimits()
     : m_currMemoryInBytes(0),
       m_logThreshold(-1),
       m_memoryLimit(1024 * 1024 * 100),
-      m_logLatch(false)
+      m_logLatch(false),
+      m_currSpilledInBytes(0),
+      m_spilledTotalInBytes(0),
+      m_spillLimit(-1)
 {
 }
 
@@ -99,3 +102,77 @@ TempTableLimits::getMemoryLimit() const
 {
     return m_memoryLimit;
 }
+
+bool
+TempTableLimits::hasRoomFor(int64_t bytes) const
+{
+    return m_memoryLimit <= 0 || m_currMemoryInBytes + bytes <= m_memoryLimit;
+}
+
+void
+TempTableLimits::increaseSpilled(int64_t bytes)
+{
+    m_currSpilledInBytes += bytes;
+    m_spilledTotalInBytes += bytes;
+    if (m_currSpilledInBytes > m_spillLimit)
+    {
+        // Nothing was written, so leave the totals as they were.
+        m_currSpilledInBytes -= bytes;
+        m_spilledTotalInBytes -= bytes;
+        int limit_mb = static_cast<int>(m_spillLimit / (1024 * 1024));
+        char msg[1024];
+        snprintf(msg, 1024,
+                 "More than %d MB of temp table data spilled to disk while executing SQL.  Aborting.",
+                 limit_mb);
+        throw SQLException(SQLException::volt_temp_table_memory_overflow,
+                           msg);
+    }
+}
+
+void
+TempTableLimits::reduceSpilled(int64_t bytes)
+{
+    m_currSpilledInBytes -= bytes;
+}
+
+int64_t
+TempTableLimits::getSpilled() const
+{
+    return m_currSpilledInBytes;
+}
+
+int64_t
+TempTableLimits::getSpilledTotal() const
+{
+    return m_spilledTotalInBytes;
+}
+
+void
+TempTableLimits::setSpillDirectory(const std::string& directory)
+{
+    m_spillDirectory = directory;
+}
+
+const std::string&
+TempTableLimits::getSpillDirectory() const
+{
+    return m_spillDirectory;
+}
+
+void
+TempTableLimits::setSpillLimit(int64_t limit)
+{
+    m_spillLimit = limit;
+}
+
+int64_t
+TempTableLimits::getSpillLimit() const
+{
+    return m_spillLimit;
+}
+
+bool
+TempTableLimits::isSpillEnabled() const
+{
+    return m_spillLimit > 0 && !m_spillDirectory.empty();
+}
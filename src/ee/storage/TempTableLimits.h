@@ -19,6 +19,7 @@
 #define _EE_STORAGE_TEMPTABLELIMITS_H_
 
 #include <stdint.h>
+#include <string>
 
 namespace voltdb
 {
@@ -47,6 +48,31 @@ namespace voltdb
         void setMemoryLimit(int64_t limit);
         int64_t getMemoryLimit() const;
 
+        /**
+         * True if another allocation of the given size would stay
+         * within the memory limit.  Spilling temp tables use this to
+         * decide when to move blocks to disk instead of tripping the
+         * limit.
+         */
+        bool hasRoomFor(int64_t bytes) const;
+
+        /**
+         * Increase the amount of temp table data spilled to disk.
+         * Will throw a SQLException when the spill limit is exceeded.
+         */
+        void increaseSpilled(int64_t bytes);
+        void reduceSpilled(int64_t bytes);
+
+        int64_t getSpilled() const;
+        // Bytes ever spilled under these limits, never reduced.
+        int64_t getSpilledTotal() const;
+        void setSpillDirectory(const std::string& directory);
+        const std::string& getSpillDirectory() const;
+        void setSpillLimit(int64_t limit);
+        int64_t getSpillLimit() const;
+        // True if a spill directory and a positive spill limit are set.
+        bool isSpillEnabled() const;
+
     private:
         // The current amount of memory used by temp tables for this
         // plan fragment
@@ -61,6 +87,15 @@ namespace voltdb
         // True if we have already generated a log message for
         // exceeding the log threshold and not yet dropped below it.
         bool m_logLatch;
+        // The current amount of temp table data written to disk for
+        // this plan fragment
+        int64_t m_currSpilledInBytes;
+        int64_t m_spilledTotalInBytes;
+        // The directory for spill files.  Empty disables spilling.
+        std::string m_spillDirectory;
+        // The spill size at which an exception will be thrown and the
+        // execution aborted.  A non-positive value disables spilling.
+        int64_t m_spillLimit;
     };
 }
 
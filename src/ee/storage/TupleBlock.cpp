@@ -16,6 +16,7 @@
  */
 #include "storage/TupleBlock.h"
 #include "storage/table.h"
+#include "storage/TempTableLimits.h"
 #include <sys/mman.h>
 #include <errno.h>
 #include "common/ThreadLocalPool.h"
@@ -37,7 +38,9 @@ TupleBlock::TupleBlock(Table *table, TBBucketPtr bucket) :
         m_lastCompactionOffset(0),
         m_tuplesPerBlockDivNumBuckets(m_tuplesPerBlock / static_cast<double>(TUPLE_BLOCK_NUM_BUCKETS)),
         m_bucket(bucket),
-        m_bucketIndex(0)
+        m_bucketIndex(0),
+        m_chargedLimits(NULL),
+        m_chargedBytes(0)
 {
 #ifdef MEMCHECK
     m_storage = new char[table->m_tableAllocationSize];
@@ -56,7 +59,19 @@ TupleBlock::TupleBlock(Table *table, TBBucketPtr bucket) :
     tupleBlocksAllocated++;
 }
 
+void TupleBlock::chargeTo(TempTableLimits *limits, int bytes) {
+    assert(m_chargedLimits == NULL);
+    // Remember the charge first: increaseAllocated throws when over the limit,
+    // and the destructor gives the bytes back either way.
+    m_chargedLimits = limits;
+    m_chargedBytes = bytes;
+    limits->increaseAllocated(bytes);
+}
+
 TupleBlock::~TupleBlock() {
+    if (m_chargedLimits != NULL) {
+        m_chargedLimits->reduceAllocated(m_chargedBytes);
+    }
     /*
       tupleBlocksAllocated--;
       std::cout << "Destructing tuple block " << static_cast<void*>(this)
@@ -46,6 +46,7 @@ void intrusive_ptr_release(voltdb::TupleBlock * p);
 
 namespace voltdb {
 class Table;
+class TempTableLimits;
 class TupleMovementListener;
 
 class TruncatedInt {
@@ -201,10 +202,27 @@ public:
         m_freeList.clear();
     }
 
+    /*
+     * Mark the first tupleCount tuples in use after the storage has
+     * been filled in directly, e.g. when reading back a spilled block.
+     */
+    inline void resetToTupleCount(uint32_t tupleCount) {
+        assert(tupleCount <= m_tuplesPerBlock);
+        m_activeTuples = tupleCount;
+        m_nextFreeTuple = tupleCount;
+        m_freeList.clear();
+    }
+
     inline uint32_t unusedTupleBoundry() {
         return m_nextFreeTuple;
     }
 
+    /*
+     * Count this block against the limits until it is freed. For blocks
+     * read back from a spill file, which no table keeps track of.
+     */
+    void chargeTo(TempTableLimits *limits, int bytes);
+
     ~TupleBlock();
 
     inline uint32_t lastCompactionOffset() {
@@ -247,6 +265,8 @@ private:
     TBBucketPtr m_bucket;
     int m_bucketIndex;
 
+    TempTableLimits *m_chargedLimits;
+    int m_chargedBytes;
 };
 
 /**
@@ -889,18 +889,163 @@ void PersistentTable::processLoadedTuple(TableTuple &tuple,
         insertTupleCommon(tuple, tuple, true);
     } catch (ConstraintFailureException &e) {
         if (uniqueViolationOutput) {
-            if (serializedTupleCount == 0) {
-                serializeColumnHeaderTo(*uniqueViolationOutput);
-                tupleCountPosition = uniqueViolationOutput->reserveBytes(sizeof(int32_t));
-            }
-            serializedTupleCount++;
-            tuple.serializeTo(*uniqueViolationOutput);
-            deleteTupleStorage(tuple);
+            rejectLoadedTuple(tuple, uniqueViolationOutput, serializedTupleCount, tupleCountPosition);
             return;
         } else {
-            throw;
+            // the exception refers to the tuple, which is about to be freed
+            std::string message = e.message();
+            deleteTupleStorage(tuple);
+            throw SQLException(SQLException::integrity_constraint_violation, message);
+        }
+    }
+}
+
+/*
+ * Write a tuple that violated a constraint to the violation output and free it.
+ */
+void PersistentTable::rejectLoadedTuple(TableTuple &tuple,
+                                        ReferenceSerializeOutput *uniqueViolationOutput,
+                                        int32_t &serializedTupleCount,
+                                        size_t &tupleCountPosition) {
+    if (serializedTupleCount == 0) {
+        serializeColumnHeaderTo(*uniqueViolationOutput);
+        tupleCountPosition = uniqueViolationOutput->reserveBytes(sizeof(int32_t));
+    }
+    serializedTupleCount++;
+    tuple.serializeTo(*uniqueViolationOutput);
+    deleteTupleStorage(tuple);
+}
+
+/*
+ * Bulk version of processLoadedTuple. Rather than inserting each tuple into
+ * each index in turn, the indexes that support it are handed the whole load
+ * up front and get their entries in key order once it is known which
+ * tuples are accepted. Whether a tuple is accepted, and what is reported
+ * for the ones that are not, is decided in load order exactly as
+ * processLoadedTuple would: a later tuple only loses to an earlier one with
+ * the same key if the earlier one got in.
+ */
+void PersistentTable::processLoadedTuples(std::vector<TableTuple> &tuples,
+                                          ReferenceSerializeOutput *uniqueViolationOutput,
+                                          int32_t &serializedTupleCount,
+                                          size_t &tupleCountPosition) {
+    const size_t count = tuples.size();
+
+    std::vector<TableIndex*> bulkIndexes;
+    std::vector<TableIndex*> otherIndexes;
+    BOOST_FOREACH(TableIndex *index, m_indexes) {
+        if (index->supportsBulkInsert()) {
+            bulkIndexes.push_back(index);
+        } else {
+            otherIndexes.push_back(index);
+        }
+    }
+
+    // For each unique bulk index, which tuple each tuple's key first
+    // appeared in (or -1 if the index already has it), and whether that
+    // key has been taken by an accepted tuple.
+    std::vector<std::vector<int32_t> > duplicateOf(bulkIndexes.size());
+    std::vector<std::vector<bool> > taken(bulkIndexes.size());
+    for (size_t k = 0; k < bulkIndexes.size(); ++k) {
+        bulkIndexes[k]->prepareBulkInsert(tuples, duplicateOf[k]);
+        if (bulkIndexes[k]->isUniqueIndex()) {
+            taken[k].assign(count, false);
+        }
+    }
+
+    // Decide, in load order, which tuples get in. Without a violation
+    // output the first failure ends the load.
+    std::vector<bool> accepted(count, false);
+    std::vector<bool> nullFailed(count, false);
+    bool stopped = false;
+    size_t processed = 0;
+    for (; processed < count; ++processed) {
+        TableTuple &tuple = tuples[processed];
+        bool ok = true;
+        if (!checkNulls(tuple)) {
+            nullFailed[processed] = true;
+            ok = false;
+        }
+        for (size_t k = 0; ok && k < bulkIndexes.size(); ++k) {
+            if (bulkIndexes[k]->isUniqueIndex()) {
+                int32_t first = duplicateOf[k][processed];
+                ok = first >= 0 && !taken[k][first];
+            }
+        }
+        for (int i = static_cast<int>(otherIndexes.size()) - 1; ok && i >= 0; --i) {
+            if (!otherIndexes[i]->addEntry(&tuple)) {
+                for (int j = i + 1; j < otherIndexes.size(); ++j) {
+                    otherIndexes[j]->deleteEntry(&tuple);
+                }
+                ok = false;
+            }
+        }
+        if (ok) {
+            accepted[processed] = true;
+            for (size_t k = 0; k < bulkIndexes.size(); ++k) {
+                if (bulkIndexes[k]->isUniqueIndex()) {
+                    taken[k][duplicateOf[k][processed]] = true;
+                }
+            }
+        } else if (uniqueViolationOutput == NULL) {
+            stopped = true;
+            ++processed;
+            break;
+        }
+    }
+
+    for (size_t k = 0; k < bulkIndexes.size(); ++k) {
+        bulkIndexes[k]->finishBulkInsert(accepted);
+    }
+
+    // Now do the rest of what insertTupleCommon would have for each tuple.
+    std::string message;
+    for (size_t i = 0; i < processed; ++i) {
+        TableTuple &tuple = tuples[i];
+        if (!nullFailed[i]) {
+            if (m_schema->getUninlinedObjectColumnCount() != 0) {
+                increaseStringMemCount(tuple.getNonInlinedMemorySize());
+            }
+            tuple.setActiveTrue();
+            tuple.setPendingDeleteFalse();
+            tuple.setPendingDeleteOnUndoReleaseFalse();
+            if (m_tableStreamer == NULL || !m_tableStreamer->notifyTupleInsert(tuple)) {
+                tuple.setDirtyFalse();
+            }
+        }
+
+        if (accepted[i]) {
+            UndoQuantum *uq = ExecutorContext::currentUndoQuantum();
+            if (uq) {
+                char* tupleData = uq->allocatePooledCopy(tuple.address(), tuple.tupleLength());
+                uq->registerUndoAction(new (*uq) PersistentTableUndoInsertAction(tupleData, &m_surgeon));
+            }
+            for (int j = 0; j < m_views.size(); j++) {
+                m_views[j]->processTupleInsert(tuple, true);
+            }
+        } else if (uniqueViolationOutput) {
+            rejectLoadedTuple(tuple, uniqueViolationOutput, serializedTupleCount, tupleCountPosition);
+        } else {
+            // the exception refers to the tuple, which is about to be freed
+            message = ConstraintFailureException(this, tuple, TableTuple(),
+                                                 nullFailed[i] ? CONSTRAINT_TYPE_NOT_NULL :
+                                                                 CONSTRAINT_TYPE_UNIQUE).message();
+            deleteTupleStorage(tuple);
+        }
+    }
+
+    if (!stopped) {
+        return;
+    }
+
+    // The load stopped at a violation; the tuples after it were never inserted.
+    for (size_t i = processed; i < count; ++i) {
+        if (m_schema->getUninlinedObjectColumnCount() != 0) {
+            increaseStringMemCount(tuples[i].getNonInlinedMemorySize());
         }
+        deleteTupleStorage(tuples[i]);
     }
+    throw SQLException(SQLException::integrity_constraint_violation, message);
 }
 
 TableStats* PersistentTable::getTableStats() {
@@ -454,6 +454,20 @@ class PersistentTable : public Table, public UndoQuantumReleaseInterest,
                                     int32_t &serializedTupleCount,
                                     size_t &tupleCountPosition);
 
+    virtual void processLoadedTuples(std::vector<TableTuple> &tuples,
+                                     ReferenceSerializeOutput *uniqueViolationOutput,
+                                     int32_t &serializedTupleCount,
+                                     size_t &tupleCountPosition);
+
+    void rejectLoadedTuple(TableTuple &tuple,
+                           ReferenceSerializeOutput *uniqueViolationOutput,
+                           int32_t &serializedTupleCount,
+                           size_t &tupleCountPosition);
+
+    virtual void discardLoadedTuple(TableTuple &tuple) {
+        deleteTupleStorage(tuple);
+    }
+
     TBPtr allocateNextBlock();
 
     // CONSTRAINTS
@@ -64,6 +64,9 @@ using std::string;
 
 namespace voltdb {
 
+// loads of at least this many tuples go through processLoadedTuples()
+static const int BULK_LOAD_THRESHOLD = 64;
+
 Table::Table(int tableAllocationTargetSize) :
     m_tempTuple(),
     m_schema(NULL),
@@ -400,6 +403,14 @@ void Table::loadTuplesFromNoHeader(SerializeInput &serialize_io,
         lengthPosition = uniqueViolationOutput->reserveBytes(4);
     }
 
+    // Large loads are deserialized in full first so that the table can
+    // process them together (e.g. build its indexes from sorted runs).
+    const bool bulk = tupleCount >= BULK_LOAD_THRESHOLD;
+    std::vector<TableTuple> loaded;
+    if (bulk) {
+        loaded.reserve(tupleCount);
+    }
+
     for (int i = 0; i < tupleCount; ++i) {
         nextFreeTuple(&target);
         target.setActiveTrue();
@@ -407,9 +418,32 @@ void Table::loadTuplesFromNoHeader(SerializeInput &serialize_io,
         target.setPendingDeleteFalse();
         target.setPendingDeleteOnUndoReleaseFalse();
 
-        target.deserializeFrom(serialize_io, stringPool);
+        try {
+            target.deserializeFrom(serialize_io, stringPool);
+        } catch (const SQLException &e) {
+            // e.g. a string longer than its column; don't leave a half-built tuple behind
+            discardLoadedTuple(target);
+            // the tuples before it would have been processed by now
+            if (bulk) {
+                try {
+                    processLoadedTuples(loaded, uniqueViolationOutput, serializedTupleCount, tupleCountPosition);
+                } catch (const SerializableEEException &) {
+                    // e.g. a constraint violation; the load has cleaned up after it,
+                    // and the deserialization error is the one to report
+                }
+            }
+            throw;
+        }
+
+        if (bulk) {
+            loaded.push_back(target);
+        } else {
+            processLoadedTuple(target, uniqueViolationOutput, serializedTupleCount, tupleCountPosition);
+        }
+    }
 
-        processLoadedTuple(target, uniqueViolationOutput, serializedTupleCount, tupleCountPosition);
+    if (bulk) {
+        processLoadedTuples(loaded, uniqueViolationOutput, serializedTupleCount, tupleCountPosition);
     }
 
     //If unique constraints are being handled, write the length/size of constraints that occured
@@ -425,6 +459,24 @@ void Table::loadTuplesFromNoHeader(SerializeInput &serialize_io,
     }
 }
 
+void Table::processLoadedTuples(std::vector<TableTuple> &tuples,
+                                ReferenceSerializeOutput *uniqueViolationOutput,
+                                int32_t &serializedTupleCount,
+                                size_t &tupleCountPosition) {
+    size_t i = 0;
+    try {
+        for (; i < tuples.size(); ++i) {
+            processLoadedTuple(tuples[i], uniqueViolationOutput, serializedTupleCount, tupleCountPosition);
+        }
+    } catch (...) {
+        // processLoadedTuple has dealt with the one that failed
+        for (++i; i < tuples.size(); ++i) {
+            discardLoadedTuple(tuples[i]);
+        }
+        throw;
+    }
+}
+
 void Table::loadTuplesFrom(SerializeInput &serialize_io,
                            Pool *stringPool,
                            ReferenceSerializeOutput *uniqueViolationOutput) {
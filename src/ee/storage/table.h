@@ -366,6 +366,24 @@ protected:
                                     size_t &tupleCountPosition) {
     };
 
+    /*
+     * Called by Table::loadTuplesFrom instead of processLoadedTuple for
+     * large loads, once the tuples are all deserialized. The outcome must
+     * be the same as processing them one at a time in order; tuples never
+     * reached when an exception ends the load are discarded.
+     */
+    virtual void processLoadedTuples(std::vector<TableTuple> &tuples,
+                                     ReferenceSerializeOutput *uniqueViolationOutput,
+                                     int32_t &serializedTupleCount,
+                                     size_t &tupleCountPosition);
+
+    /*
+     * Called by Table::loadTuplesFrom when a tuple fails to deserialize. The
+     * tuple holds no objects by then; give its storage back if that matters.
+     */
+    virtual void discardLoadedTuple(TableTuple &tuple) {
+    };
+
     virtual void swapTuples(TableTuple &sourceTupleWithNewValues, TableTuple &destinationTuple) {
         throwFatalException("Unsupported operation");
     }
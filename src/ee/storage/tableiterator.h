@@ -87,14 +87,18 @@ public:
 private:
     // Get an iterator via table->iterator()
     TableIterator(Table *, TBMapI);
-    TableIterator(Table *, std::vector<TBPtr>::iterator);
+    TableIterator(Table *, std::vector<TBPtr>::iterator, size_t spilledBlockCount = 0);
+    // Get an iterator over some spilled blocks via TempTable::makeSpilledIterator()
+    TableIterator(Table *, size_t firstSpilledBlock, size_t endSpilledBlock, uint32_t tupleCount);
 
 
     bool persistentNext(TableTuple &out);
     bool tempNext(TableTuple &out);
+    // Defined in temptable.cpp, which knows how to read spilled blocks.
+    TBPtr nextSpilledBlock();
 
     void reset(TBMapI);
-    void reset(std::vector<TBPtr>::iterator);
+    void reset(std::vector<TBPtr>::iterator, size_t spilledBlockCount = 0);
     bool continuationPredicate();
 
     /*
@@ -120,9 +124,14 @@ private:
     TBPtr m_currentBlock;
     std::vector<TBPtr>::iterator m_tempBlockIterator;
     bool m_tempTableIterator;
+    // Blocks a spilling temp table has written to disk. They precede
+    // the blocks in memory and are read back one at a time.
+    size_t m_spilledBlockIndex;
+    size_t m_spilledBlockCount;
 };
 
-inline TableIterator::TableIterator(Table *parent, std::vector<TBPtr>::iterator start)
+inline TableIterator::TableIterator(Table *parent, std::vector<TBPtr>::iterator start,
+                                    size_t spilledBlockCount)
     : m_table(parent),
       m_dataPtr(NULL),
       m_location(0),
@@ -131,10 +140,26 @@ inline TableIterator::TableIterator(Table *parent, std::vector<TBPtr>::iterator
       m_foundTuples(0), m_tupleLength(parent->m_tupleLength),
       m_tuplesPerBlock(parent->m_tuplesPerBlock), m_currentBlock(NULL),
       m_tempBlockIterator(start),
-      m_tempTableIterator(true)
+      m_tempTableIterator(true),
+      m_spilledBlockIndex(0),
+      m_spilledBlockCount(spilledBlockCount)
     {
     }
 
+inline TableIterator::TableIterator(Table *parent, size_t firstSpilledBlock,
+                                    size_t endSpilledBlock, uint32_t tupleCount)
+    : m_table(parent),
+      m_dataPtr(NULL),
+      m_location(0),
+      m_blockOffset(0),
+      m_activeTuples(tupleCount),
+      m_foundTuples(0), m_tupleLength(parent->m_tupleLength),
+      m_tuplesPerBlock(parent->m_tuplesPerBlock), m_currentBlock(NULL),
+      m_tempTableIterator(true),
+      m_spilledBlockIndex(firstSpilledBlock),
+      m_spilledBlockCount(endSpilledBlock)
+    {
+    }
 
 inline TableIterator::TableIterator(Table *parent, TBMapI start)
     :
@@ -146,12 +171,16 @@ inline TableIterator::TableIterator(Table *parent, TBMapI start)
       m_activeTuples((int) m_table->m_tupleCount),
       m_foundTuples(0), m_tupleLength(parent->m_tupleLength),
       m_tuplesPerBlock(parent->m_tuplesPerBlock), m_currentBlock(NULL),
-      m_tempTableIterator(false)
+      m_tempTableIterator(false),
+      m_spilledBlockIndex(0),
+      m_spilledBlockCount(0)
     {
     }
 
-inline void TableIterator::reset(std::vector<TBPtr>::iterator start) {
+inline void TableIterator::reset(std::vector<TBPtr>::iterator start, size_t spilledBlockCount) {
     m_tempBlockIterator = start;
+    m_spilledBlockIndex = 0;
+    m_spilledBlockCount = spilledBlockCount;
     m_dataPtr= NULL;
     m_location = 0;
     m_blockOffset = 0;
@@ -232,10 +261,14 @@ inline bool TableIterator::tempNext(TableTuple &out) {
         if (m_currentBlock == NULL ||
             m_blockOffset >= m_currentBlock->unusedTupleBoundry())
         {
-            m_currentBlock = *m_tempBlockIterator;
+            if (m_spilledBlockIndex < m_spilledBlockCount) {
+                m_currentBlock = nextSpilledBlock();
+            } else {
+                m_currentBlock = *m_tempBlockIterator;
+                m_tempBlockIterator++;
+            }
             m_dataPtr = m_currentBlock->address();
             m_blockOffset = 0;
-            m_tempBlockIterator++;
         } else {
             m_dataPtr += m_tupleLength;
         }
@@ -45,6 +45,13 @@
 
 #include "temptable.h"
 #include "common/debuglog.h"
+#include "common/SerializableEEException.h"
+
+#include <cerrno>
+#include <cstdio>
+#include <cstdlib>
+#include <cstring>
+#include <unistd.h>
 
 #define TABLE_BLOCKSIZE 131072
 
@@ -53,11 +60,20 @@ namespace voltdb {
 TempTable::TempTable()
   : Table(TABLE_BLOCKSIZE),
     m_iter(this, m_data.begin()),
-    m_limits(NULL)
+    m_limits(NULL),
+    m_spillingEnabled(false),
+    m_spillFd(-1)
 {
 }
 
-TempTable::~TempTable() {}
+TempTable::~TempTable() {
+    if (!m_spilledBlocks.empty()) {
+        releaseSpilledBlocks();
+    }
+    if (m_spillFd != -1) {
+        ::close(m_spillFd);
+    }
+}
 
 // ------------------------------------------------------------------
 // OPERATIONS
@@ -81,6 +97,131 @@ bool TempTable::deleteTuple(TableTuple &, bool)
     throwFatalException("TempTable does not support deleting individual tuples");
 }
 
+// ------------------------------------------------------------------
+// SPILLING
+// ------------------------------------------------------------------
+void TempTable::enableSpilling()
+{
+    m_spillingEnabled = (m_limits != NULL && m_limits->isSpillEnabled());
+}
+
+static void throwSpillFileError(const char *operation, const std::string &directory)
+{
+    char msg[1024];
+    snprintf(msg, 1024, "Failed to %s temp table spill file in '%s': %s",
+             operation, directory.c_str(), strerror(errno));
+    throw SerializableEEException(VOLT_EE_EXCEPTION_TYPE_EEEXCEPTION, msg);
+}
+
+/*
+ * Write every block in memory to the end of the spill file and release
+ * them.  Only the last block can be partly full; the tuple count of each
+ * spilled block is kept so that iterators read back exactly what was
+ * there.  Tuples are written as-is: like the in-memory copies, they point
+ * at uninlined values owned by someone else (see enableSpilling()).
+ */
+void TempTable::spillBlocks()
+{
+    assert(m_spillingEnabled);
+    if (m_data.empty()) {
+        return;
+    }
+    const std::string &directory = m_limits->getSpillDirectory();
+    if (m_spillFd == -1) {
+        std::string path = directory + "/temptable-XXXXXX";
+        std::vector<char> pathBuffer(path.begin(), path.end());
+        pathBuffer.push_back('\0');
+        m_spillFd = ::mkstemp(&pathBuffer[0]);
+        if (m_spillFd == -1) {
+            throwSpillFileError("create", directory);
+        }
+        // Nobody else needs the name, and the space is reclaimed
+        // however this process goes away.
+        ::unlink(&pathBuffer[0]);
+    }
+
+    while (!m_data.empty()) {
+        TBPtr block = m_data.front();
+        m_limits->increaseSpilled(m_tableAllocationSize);
+        uint32_t tupleCount = block->unusedTupleBoundry();
+        off_t offset = static_cast<off_t>(m_spilledBlocks.size()) * m_tableAllocationSize;
+        size_t length = static_cast<size_t>(tupleCount) * m_tupleLength;
+        const char *data = block->address();
+        while (length > 0) {
+            ssize_t written = ::pwrite(m_spillFd, data, length, offset);
+            if (written < 0) {
+                if (errno == EINTR) {
+                    continue;
+                }
+                m_limits->reduceSpilled(m_tableAllocationSize);
+                throwSpillFileError("write", directory);
+            }
+            data += written;
+            offset += written;
+            length -= written;
+        }
+        m_spilledBlocks.push_back(tupleCount);
+        m_data.erase(m_data.begin());
+        m_limits->reduceAllocated(m_tableAllocationSize);
+    }
+    VOLT_DEBUG("Temp table '%s' has spilled %d blocks",
+               m_name.c_str(), static_cast<int>(m_spilledBlocks.size()));
+}
+
+/*
+ * Read a spilled block back into a new block that belongs only to the
+ * caller.  It counts against the memory limit for as long as the caller
+ * holds on to it.
+ */
+TBPtr TempTable::loadSpilledBlock(size_t index)
+{
+    assert(index < m_spilledBlocks.size());
+    TBPtr block(new (ThreadLocalPool::getExact(sizeof(TupleBlock))->malloc()) TupleBlock(this, TBBucketPtr()));
+    block->chargeTo(m_limits, m_tableAllocationSize);
+    uint32_t tupleCount = m_spilledBlocks[index];
+    off_t offset = static_cast<off_t>(index) * m_tableAllocationSize;
+    size_t length = static_cast<size_t>(tupleCount) * m_tupleLength;
+    char *data = block->address();
+    while (length > 0) {
+        ssize_t bytesRead = ::pread(m_spillFd, data, length, offset);
+        if (bytesRead <= 0) {
+            if (bytesRead < 0 && errno == EINTR) {
+                continue;
+            }
+            throwSpillFileError("read", m_limits->getSpillDirectory());
+        }
+        data += bytesRead;
+        offset += bytesRead;
+        length -= bytesRead;
+    }
+    block->resetToTupleCount(tupleCount);
+    return block;
+}
+
+TableIterator* TempTable::makeSpilledIterator(size_t firstBlock, size_t endBlock)
+{
+    assert(firstBlock <= endBlock && endBlock <= m_spilledBlocks.size());
+    uint32_t tupleCount = 0;
+    for (size_t i = firstBlock; i < endBlock; i++) {
+        tupleCount += m_spilledBlocks[i];
+    }
+    return new TableIterator(this, firstBlock, endBlock, tupleCount);
+}
+
+void TempTable::releaseSpilledBlocks()
+{
+    m_limits->reduceSpilled(static_cast<int64_t>(m_spilledBlocks.size()) * m_tableAllocationSize);
+    m_spilledBlocks.clear();
+    if (::ftruncate(m_spillFd, 0) != 0) {
+        VOLT_ERROR("Failed to truncate temp table spill file: %s", strerror(errno));
+    }
+}
+
+TBPtr TableIterator::nextSpilledBlock()
+{
+    return static_cast<TempTable*>(m_table)->loadSpilledBlock(m_spilledBlockIndex++);
+}
+
 std::string TempTable::tableType() const { return "TempTable"; }
 
 voltdb::TableStats* TempTable::getTableStats() { return NULL; }
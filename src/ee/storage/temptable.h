@@ -83,12 +83,12 @@ class TempTable : public Table {
   public:
     // Return the table iterator by reference
     TableIterator& iterator() {
-        m_iter.reset(m_data.begin());
+        m_iter.reset(m_data.begin(), m_spilledBlocks.size());
         return m_iter;
     }
 
     TableIterator* makeIterator() {
-        return new TableIterator(this, m_data.begin());
+        return new TableIterator(this, m_data.begin(), m_spilledBlocks.size());
     }
 
     virtual ~TempTable();
@@ -132,6 +132,45 @@ class TempTable : public Table {
 
     int64_t tempTableTupleCount() const { return m_tupleCount; }
 
+    /**
+     * Let this table write full blocks to a scratch file in the spill
+     * directory of its limits rather than exceed the memory limit.
+     * Iterators read spilled blocks back one at a time, so a tuple from
+     * a spilled block is only valid until its iterator moves on to the
+     * next block.  Only enable this for tables whose readers are done
+     * with each tuple by then.  Does nothing if the limits do not allow
+     * spilling.
+     *
+     * Tuples are spilled as they are stored, so uninlined columns go to
+     * disk as pointers.  That is as safe as the shallow copies kept in
+     * memory: the values belong to a persistent table or to the engine's
+     * temp string pool, and neither frees them before the fragment's temp
+     * tables are cleared.  It also means spilling bounds the memory of the
+     * tuples only, never of the uninlined values they point at.
+     */
+    void enableSpilling();
+
+    bool hasSpilled() const { return !m_spilledBlocks.empty(); }
+
+    /**
+     * The number of blocks in the spill file.  Since spillBlocks() ends
+     * the current block, the tuples inserted between two spillBlocks()
+     * calls fill the blocks between the counts taken after each of them.
+     */
+    size_t spilledBlockCount() const { return m_spilledBlocks.size(); }
+
+    /**
+     * Iterate over spilled blocks [firstBlock, endBlock) only, reading
+     * them back one at a time.  The caller owns the iterator.
+     */
+    TableIterator* makeSpilledIterator(size_t firstBlock, size_t endBlock);
+
+    /**
+     * Write every block still in memory to the spill file, giving back
+     * all of this table's memory.  Only for tables with spilling enabled.
+     */
+    void spillBlocks();
+
     // ------------------------------------------------------------------
     // INDEXES
     // ------------------------------------------------------------------
@@ -158,6 +197,9 @@ class TempTable : public Table {
     TBPtr allocateNextBlock();
     void nextFreeTuple(TableTuple *tuple);
 
+    TBPtr loadSpilledBlock(size_t index);
+    void releaseSpilledBlocks();
+
     virtual void onSetColumns() {
         m_data.clear();
     };
@@ -165,6 +207,26 @@ class TempTable : public Table {
   private:
     // pointers to chunks of data. Specific to table impl. Don't leak this type.
     std::vector<TBPtr> m_data;
+
+    bool m_spillingEnabled;
+    // Unlinked scratch file, -1 until the first spill.
+    int m_spillFd;
+    // Tuple counts of the blocks written to the spill file, in
+    // insertion order.  Block n is stored at offset n * m_tableAllocationSize.
+    std::vector<uint32_t> m_spilledBlocks;
+};
+
+/**
+ * Empties a temp table when it goes out of scope, so that a scratch
+ * table gives back its memory and spill space however an executor
+ * finishes.
+ */
+class TempTableCleaner {
+  public:
+    explicit TempTableCleaner(TempTable *table) : m_table(table) {}
+    ~TempTableCleaner() { m_table->deleteAllTuplesNonVirtual(false); }
+  private:
+    TempTable *m_table;
 };
 
 inline void TempTable::insertTupleNonVirtualWithDeepCopy(TableTuple &source, Pool *pool) {
@@ -214,7 +276,7 @@ inline void TempTable::deleteAllTuplesNonVirtual(bool freeAllocatedStrings) {
     const uint16_t uninlinedStringColumnCount = m_schema->getUninlinedObjectColumnCount();
     if (freeAllocatedStrings && uninlinedStringColumnCount > 0) {
         TableTuple target(m_schema);
-        TableIterator iter(this, m_data.begin());
+        TableIterator iter(this, m_data.begin(), m_spilledBlocks.size());
         while (iter.hasNext()) {
             iter.next(target);
             target.freeObjectColumns();
@@ -222,6 +284,9 @@ inline void TempTable::deleteAllTuplesNonVirtual(bool freeAllocatedStrings) {
     }
 
     m_tupleCount = 0;
+    if (!m_spilledBlocks.empty()) {
+        releaseSpilledBlocks();
+    }
     while (m_data.size() > 1) {
         m_data.pop_back();
         if (m_limits) {
@@ -236,6 +301,12 @@ inline void TempTable::deleteAllTuplesNonVirtual(bool freeAllocatedStrings) {
 }
 
 inline TBPtr TempTable::allocateNextBlock() {
+    // Leave room for an iterator to read a spilled block back in.
+    if (m_spillingEnabled && !m_data.empty() &&
+        !m_limits->hasRoomFor(2 * static_cast<int64_t>(m_tableAllocationSize))) {
+        spillBlocks();
+    }
+
     TBPtr block(new (ThreadLocalPool::getExact(sizeof(TupleBlock))->malloc()) TupleBlock(this, TBBucketPtr()));
     m_data.push_back(block);
 
@@ -0,0 +1,1146 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+#ifndef COMPACTINGBTREE_H_
+#define COMPACTINGBTREE_H_
+
+#include <cstdio>
+#include <cstdlib>
+#include <stdint.h>
+#include <utility>
+#include <vector>
+#include <cassert>
+#include "ContiguousAllocator.h"
+#include "CompactingMap.h"
+
+namespace voltdb {
+
+/**
+ * B+tree with the same interface and semantics as CompactingMap, meant
+ * as a drop-in replacement for it in the tree indexes.
+ *
+ * Entries live in wide leaves, keys and values in separate arrays, so a
+ * lookup touches a few cache lines per level instead of one node per
+ * comparison, and the leaves are linked so range scans walk arrays
+ * rather than chasing parent pointers. Inner nodes hold only separator
+ * keys and child pointers (plus the entry count of each child when
+ * hasRank is set, which is what makes rankAsc() and findRank() work).
+ *
+ * Like CompactingMap, leaves and inner nodes are packed into buffer
+ * chains (ContiguousAllocator). When a node is freed by a merge, the
+ * last allocated node of the same kind is moved into the hole, so
+ * deleting entries returns memory to the operating system.
+ *
+ * Things to be aware of, on top of what CompactingMap warns about:
+ * 1. Keys and values are copied around with assignment whenever entries
+ *    shift within or between nodes, and are not destroyed individually,
+ *    so they should be plain data (IntsKey, GenericKey).
+ * 2. Iterators are invalidated by any mutation, even one to an
+ *    unrelated part of the tree, since entries shift within leaves.
+ */
+template<typename Key, typename Data, typename Compare, bool hasRank=false>
+class CompactingBTree {
+protected:
+    // nodes are sized to a handful of cache lines
+    static const size_t NODE_BYTES = 512;
+    static const int LEAF_ENTRIES = (NODE_BYTES - 32) / (sizeof(Key) + sizeof(Data));
+    static const int LEAF_SLOTS = LEAF_ENTRIES < 8 ? 8 : LEAF_ENTRIES;
+    static const int LEAF_MIN = LEAF_SLOTS / 2;
+    static const int INNER_ENTRIES = (NODE_BYTES - 16) /
+        (sizeof(Key) + sizeof(void*) + (hasRank ? sizeof(int64_t) : 0));
+    static const int INNER_SLOTS = INNER_ENTRIES < 8 ? 8 : INNER_ENTRIES;
+    static const int INNER_MIN = INNER_SLOTS / 2;
+
+    struct InnerNode;
+
+    struct Node {
+        InnerNode *parent;
+        // entries in a leaf, children in an inner node
+        int32_t count;
+    };
+
+    struct LeafNode : public Node {
+        LeafNode *prev;
+        LeafNode *next;
+        Key keys[LEAF_SLOTS];
+        Data values[LEAF_SLOTS];
+    };
+
+    struct InnerNode : public Node {
+        // keys[i] separates children[i] and children[i + 1]: every entry
+        // under children[i] is <= keys[i] <= every entry under children[i + 1]
+        Key keys[INNER_SLOTS - 1];
+        Node *children[INNER_SLOTS];
+        // entries under each child, only kept if hasRank
+        int64_t subct[hasRank ? INNER_SLOTS : 1];
+    };
+
+    int64_t m_count;
+    Node *m_root;
+    // number of inner levels above the leaves
+    int m_height;
+    ContiguousAllocator m_leafAllocator;
+    ContiguousAllocator m_innerAllocator;
+    bool m_unique;
+
+    // templated comparison function object
+    // follows STL conventions
+    Compare m_comper;
+
+public:
+
+    class iterator {
+        friend class CompactingBTree<Key, Data, Compare, hasRank>;
+    protected:
+        LeafNode *m_leaf;
+        int m_slot;
+        iterator(LeafNode *leaf, int slot) : m_leaf(leaf), m_slot(slot) {}
+    public:
+        iterator() : m_leaf(NULL), m_slot(0) {}
+        iterator(const iterator &iter) : m_leaf(iter.m_leaf), m_slot(iter.m_slot) {}
+        Key &key() const { return m_leaf->keys[m_slot]; }
+        Data &value() const { return m_leaf->values[m_slot]; }
+        void setValue(const Data &value) { m_leaf->values[m_slot] = value; }
+        void moveNext() {
+            if (m_leaf && ++m_slot == m_leaf->count) {
+                m_leaf = m_leaf->next;
+                m_slot = 0;
+            }
+        }
+        void movePrev() {
+            if (m_leaf && m_slot-- == 0) {
+                m_leaf = m_leaf->prev;
+                m_slot = m_leaf ? m_leaf->count - 1 : 0;
+            }
+        }
+        bool isEnd() const { return m_leaf == NULL; }
+        bool equals(const iterator &iter) const {
+            if (isEnd()) return iter.isEnd();
+            return m_leaf == iter.m_leaf && m_slot == iter.m_slot;
+        }
+    };
+
+    CompactingBTree(bool unique, Compare comper);
+    ~CompactingBTree();
+
+    bool insert(std::pair<Key, Data> value) { return insert(value.first, value.second); }
+    bool insert(const Key &key, const Data &data);
+    template<typename Iter>
+    void insertSorted(Iter begin, Iter end);
+    bool erase(const Key &key);
+    bool erase(iterator &iter);
+    iterator find(const Key &key);
+    iterator findRank(int64_t ith);
+    int64_t size() const { return m_count; }
+    iterator begin() const;
+    iterator rbegin() const;
+
+    iterator lowerBound(const Key &key);
+    iterator upperBound(const Key &key);
+
+    std::pair<iterator, iterator> equalRange(const Key &key) {
+        return std::pair<iterator, iterator>(lowerBound(key), upperBound(key));
+    }
+
+    size_t bytesAllocated() const {
+        return m_leafAllocator.bytesAllocated() + m_innerAllocator.bytesAllocated();
+    }
+
+    // Must pass a key that already in map, or else return -1
+    int64_t rankAsc(const Key &key);
+    int64_t rankUpper(const Key &key);
+
+    /**
+     * For debugging: verify the B+tree constraints are met. SLOW.
+     */
+    bool verify() const;
+    bool verifyRank();
+
+protected:
+    // position of the first key in keys[0..n) that is >= key (or > key if upper)
+    inline int search(const Key *keys, int n, const Key &key, bool upper) const;
+    LeafNode *descend(const Key &key, bool upper, int64_t *before) const;
+    iterator position(LeafNode *leaf, int slot) const;
+
+    LeafNode *allocLeaf();
+    InnerNode *allocInner();
+    LeafNode *releaseLeaf(LeafNode *x);
+    InnerNode *releaseInner(InnerNode *x);
+
+    void buildLevel(std::vector<Node*> &nodes, std::vector<Key> &firstKeys,
+                    std::vector<int64_t> &counts);
+    void insertIntoLeaf(LeafNode *leaf, int slot, const Key &key, const Data &data);
+    void splitLeaf(LeafNode *leaf, int slot, const Key &key, const Data &data);
+    void insertIntoParent(Node *left, const Key &separator, Node *right);
+    void insertChild(InnerNode *node, int pos, const Key &separator, Node *child);
+    void removeChild(InnerNode *node, int pos);
+    void eraseAt(LeafNode *leaf, int slot);
+    void rebalanceLeaf(LeafNode *leaf);
+    void rebalanceInner(InnerNode *node);
+
+    inline int childIndex(const InnerNode *node, const Node *child) const;
+    inline int64_t total(const Node *node, int level) const;
+    inline void setSubct(InnerNode *node, int pos, int level);
+    inline void adjustCounts(Node *node, int64_t delta);
+
+    // debugging and testing methods
+    int64_t verify(const Node *n, int level, const Key *low, const Key *high) const;
+};
+
+template<typename Key, typename Data, typename Compare, bool hasRank>
+CompactingBTree<Key, Data, Compare, hasRank>::CompactingBTree(bool unique, Compare comper)
+    : m_count(0),
+      m_root(NULL),
+      m_height(0),
+      // chunks of about the same size as CompactingMap's for small keys
+      m_leafAllocator(sizeof(LeafNode), static_cast<int32_t>(512 * 1024 / sizeof(LeafNode))),
+      m_innerAllocator(sizeof(InnerNode), static_cast<int32_t>(64 * 1024 / sizeof(InnerNode))),
+      m_unique(unique),
+      m_comper(comper)
+  {}
+
+template<typename Key, typename Data, typename Compare, bool hasRank>
+CompactingBTree<Key, Data, Compare, hasRank>::~CompactingBTree() {
+    iterator iter = begin();
+    while (!iter.isEnd()) {
+        iter.key().~Key();
+        iter.value().~Data();
+        iter.moveNext();
+    }
+}
+
+template<typename Key, typename Data, typename Compare, bool hasRank>
+inline int CompactingBTree<Key, Data, Compare, hasRank>::search(const Key *keys, int n, const Key &key, bool upper) const {
+    int low = 0;
+    while (low < n) {
+        int mid = (low + n) >> 1;
+        int cmp = m_comper(keys[mid], key);
+        if (cmp < 0 || (upper && cmp == 0)) {
+            low = mid + 1;
+        }
+        else {
+            n = mid;
+        }
+    }
+    return low;
+}
+
+/**
+ * Walk down to the leaf key belongs in. Separators equal to key send the
+ * walk left, to the leftmost possible match, or right if upper is set.
+ * If before is given (and hasRank), it is incremented by the number of
+ * entries in the leaves to the left of the one returned.
+ */
+template<typename Key, typename Data, typename Compare, bool hasRank>
+typename CompactingBTree<Key, Data, Compare, hasRank>::LeafNode *
+CompactingBTree<Key, Data, Compare, hasRank>::descend(const Key &key, bool upper, int64_t *before) const {
+    Node *n = m_root;
+    for (int level = m_height; level > 0; level--) {
+        InnerNode *inner = static_cast<InnerNode*>(n);
+        int i = search(inner->keys, inner->count - 1, key, upper);
+        if (hasRank && before) {
+            for (int j = 0; j < i; j++) {
+                *before += inner->subct[j];
+            }
+        }
+        n = inner->children[i];
+    }
+    return static_cast<LeafNode*>(n);
+}
+
+/**
+ * An iterator for the slot, which may be one past the end of the leaf.
+ */
+template<typename Key, typename Data, typename Compare, bool hasRank>
+typename CompactingBTree<Key, Data, Compare, hasRank>::iterator
+CompactingBTree<Key, Data, Compare, hasRank>::position(LeafNode *leaf, int slot) const {
+    if (slot == leaf->count) {
+        return iterator(leaf->next, 0);
+    }
+    return iterator(leaf, slot);
+}
+
+template<typename Key, typename Data, typename Compare, bool hasRank>
+typename CompactingBTree<Key, Data, Compare, hasRank>::iterator CompactingBTree<Key, Data, Compare, hasRank>::begin() const {
+    if (!m_count) return iterator();
+    Node *n = m_root;
+    for (int level = m_height; level > 0; level--) {
+        n = static_cast<InnerNode*>(n)->children[0];
+    }
+    return iterator(static_cast<LeafNode*>(n), 0);
+}
+
+template<typename Key, typename Data, typename Compare, bool hasRank>
+typename CompactingBTree<Key, Data, Compare, hasRank>::iterator CompactingBTree<Key, Data, Compare, hasRank>::rbegin() const {
+    if (!m_count) return iterator();
+    Node *n = m_root;
+    for (int level = m_height; level > 0; level--) {
+        n = static_cast<InnerNode*>(n)->children[n->count - 1];
+    }
+    return iterator(static_cast<LeafNode*>(n), n->count - 1);
+}
+
+template<typename Key, typename Data, typename Compare, bool hasRank>
+typename CompactingBTree<Key, Data, Compare, hasRank>::iterator CompactingBTree<Key, Data, Compare, hasRank>::lowerBound(const Key &key) {
+    if (!m_count) return iterator();
+    LeafNode *leaf = descend(key, false, NULL);
+    return position(leaf, search(leaf->keys, leaf->count, key, false));
+}
+
+template<typename Key, typename Data, typename Compare, bool hasRank>
+typename CompactingBTree<Key, Data, Compare, hasRank>::iterator CompactingBTree<Key, Data, Compare, hasRank>::upperBound(const Key &key) {
+    if (!m_count) return iterator();
+    LeafNode *leaf = descend(key, true, NULL);
+    return position(leaf, search(leaf->keys, leaf->count, key, true));
+}
+
+template<typename Key, typename Data, typename Compare, bool hasRank>
+typename CompactingBTree<Key, Data, Compare, hasRank>::iterator CompactingBTree<Key, Data, Compare, hasRank>::find(const Key &key) {
+    iterator iter = lowerBound(key);
+    if (iter.isEnd() || m_comper(iter.key(), key) != 0) {
+        return iterator();
+    }
+    return iter;
+}
+
+template<typename Key, typename Data, typename Compare, bool hasRank>
+bool CompactingBTree<Key, Data, Compare, hasRank>::insert(const Key &key, const Data &data) {
+    if (!m_root) {
+        LeafNode *leaf = allocLeaf();
+        leaf->keys[0] = key;
+        leaf->values[0] = data;
+        leaf->count = 1;
+        m_root = leaf;
+        m_height = 0;
+        m_count = 1;
+        return true;
+    }
+
+    // duplicates go after the existing equal keys
+    LeafNode *leaf = descend(key, !m_unique, NULL);
+    int slot = search(leaf->keys, leaf->count, key, !m_unique);
+    if (m_unique) {
+        // the match may be the first entry of the next leaf
+        iterator iter = position(leaf, slot);
+        if (!iter.isEnd() && m_comper(iter.key(), key) == 0) {
+            return false;
+        }
+    }
+
+    m_count++;
+    if (leaf->count < LEAF_SLOTS) {
+        insertIntoLeaf(leaf, slot, key, data);
+        if (hasRank) {
+            adjustCounts(leaf, 1);
+        }
+    }
+    else {
+        splitLeaf(leaf, slot, key, data);
+    }
+    return true;
+}
+
+/**
+ * Add entries that arrive in key order, iterators over pairs of key and
+ * value. Equal keys come in the order they should end up in, and a unique
+ * tree gets none. An empty tree is built from them bottom up out of evenly
+ * filled nodes; otherwise they are inserted one at a time, which still
+ * beats random order since consecutive inserts hit the same leaves.
+ */
+template<typename Key, typename Data, typename Compare, bool hasRank>
+template<typename Iter>
+void CompactingBTree<Key, Data, Compare, hasRank>::insertSorted(Iter begin, Iter end) {
+    if (m_root) {
+        for (Iter iter = begin; iter != end; ++iter) {
+            bool inserted = insert(iter->first, iter->second);
+            assert(inserted);
+            (void)inserted;
+        }
+        return;
+    }
+    int64_t n = 0;
+    for (Iter iter = begin; iter != end; ++iter) {
+        n++;
+    }
+    if (n == 0) {
+        return;
+    }
+
+    // spread the entries evenly, so no leaf ends up below half full
+    const int64_t leafCount = (n + LEAF_SLOTS - 1) / LEAF_SLOTS;
+    std::vector<Node*> nodes;
+    std::vector<Key> firstKeys;
+    std::vector<int64_t> counts;
+    nodes.reserve(leafCount);
+    firstKeys.reserve(leafCount);
+    counts.reserve(leafCount);
+    Iter iter = begin;
+    LeafNode *prev = NULL;
+    for (int64_t i = 0; i < leafCount; i++) {
+        const int take = static_cast<int>(n * (i + 1) / leafCount - n * i / leafCount);
+        LeafNode *leaf = allocLeaf();
+        for (int slot = 0; slot < take; slot++, ++iter) {
+            assert(slot == 0 || m_comper(leaf->keys[slot - 1], iter->first) <= 0);
+            leaf->keys[slot] = iter->first;
+            leaf->values[slot] = iter->second;
+        }
+        leaf->count = take;
+        leaf->prev = prev;
+        if (prev) {
+            prev->next = leaf;
+        }
+        prev = leaf;
+        nodes.push_back(leaf);
+        firstKeys.push_back(leaf->keys[0]);
+        counts.push_back(take);
+    }
+
+    m_height = 0;
+    while (nodes.size() > 1) {
+        buildLevel(nodes, firstKeys, counts);
+        m_height++;
+    }
+    m_root = nodes[0];
+    m_count = n;
+}
+
+/**
+ * Replace a level of nodes, given with the first key and the entry count
+ * under each, by the level of inner nodes above it.
+ */
+template<typename Key, typename Data, typename Compare, bool hasRank>
+void CompactingBTree<Key, Data, Compare, hasRank>::buildLevel(std::vector<Node*> &nodes,
+                                                              std::vector<Key> &firstKeys,
+                                                              std::vector<int64_t> &counts) {
+    const size_t childCount = nodes.size();
+    const size_t parentCount = (childCount + INNER_SLOTS - 1) / INNER_SLOTS;
+    size_t out = 0;
+    size_t child = 0;
+    for (size_t i = 0; i < parentCount; i++) {
+        const size_t take = childCount * (i + 1) / parentCount - childCount * i / parentCount;
+        InnerNode *inner = allocInner();
+        const Key first = firstKeys[child];
+        int64_t total = 0;
+        for (size_t pos = 0; pos < take; pos++, child++) {
+            if (pos > 0) {
+                inner->keys[pos - 1] = firstKeys[child];
+            }
+            inner->children[pos] = nodes[child];
+            nodes[child]->parent = inner;
+            if (hasRank) {
+                inner->subct[pos] = counts[child];
+            }
+            total += counts[child];
+        }
+        inner->count = static_cast<int32_t>(take);
+        // the parents overwrite the front of the lists as they go
+        nodes[out] = inner;
+        firstKeys[out] = first;
+        counts[out] = total;
+        out++;
+    }
+    nodes.erase(nodes.begin() + out, nodes.end());
+    firstKeys.erase(firstKeys.begin() + out, firstKeys.end());
+    counts.erase(counts.begin() + out, counts.end());
+}
+
+template<typename Key, typename Data, typename Compare, bool hasRank>
+bool CompactingBTree<Key, Data, Compare, hasRank>::erase(const Key &key) {
+    iterator iter = find(key);
+    if (iter.isEnd()) return false;
+    eraseAt(iter.m_leaf, iter.m_slot);
+    return true;
+}
+
+template<typename Key, typename Data, typename Compare, bool hasRank>
+bool CompactingBTree<Key, Data, Compare, hasRank>::erase(iterator &iter) {
+    assert(!iter.isEnd());
+    eraseAt(iter.m_leaf, iter.m_slot);
+    return true;
+}
+
+template<typename Key, typename Data, typename Compare, bool hasRank>
+typename CompactingBTree<Key, Data, Compare, hasRank>::LeafNode *CompactingBTree<Key, Data, Compare, hasRank>::allocLeaf() {
+    void *memory = m_leafAllocator.alloc();
+    assert(memory);
+    // placement new
+    LeafNode *leaf = new(memory) LeafNode();
+    leaf->parent = NULL;
+    leaf->count = 0;
+    leaf->prev = leaf->next = NULL;
+    return leaf;
+}
+
+template<typename Key, typename Data, typename Compare, bool hasRank>
+typename CompactingBTree<Key, Data, Compare, hasRank>::InnerNode *CompactingBTree<Key, Data, Compare, hasRank>::allocInner() {
+    void *memory = m_innerAllocator.alloc();
+    assert(memory);
+    // placement new
+    InnerNode *inner = new(memory) InnerNode();
+    inner->parent = NULL;
+    inner->count = 0;
+    return inner;
+}
+
+/**
+ * Give back the memory of a leaf that is no longer in the tree by moving
+ * the last allocated leaf into it. Returns where the moved leaf used to
+ * be, so callers can fix up pointers they hold, or NULL if nothing moved.
+ */
+template<typename Key, typename Data, typename Compare, bool hasRank>
+typename CompactingBTree<Key, Data, Compare, hasRank>::LeafNode *CompactingBTree<Key, Data, Compare, hasRank>::releaseLeaf(LeafNode *x) {
+    LeafNode *last = static_cast<LeafNode*>(m_leafAllocator.last());
+    if (last == x) {
+        m_leafAllocator.trim();
+        return NULL;
+    }
+
+    x->parent = last->parent;
+    x->count = last->count;
+    x->prev = last->prev;
+    x->next = last->next;
+    for (int i = 0; i < last->count; i++) {
+        x->keys[i] = last->keys[i];
+        x->values[i] = last->values[i];
+    }
+    if (x->prev) x->prev->next = x;
+    if (x->next) x->next->prev = x;
+    if (x->parent) {
+        x->parent->children[childIndex(x->parent, last)] = x;
+    }
+    else {
+        m_root = x;
+    }
+
+    m_leafAllocator.trim();
+    return last;
+}
+
+/**
+ * Same as releaseLeaf() for inner nodes.
+ */
+template<typename Key, typename Data, typename Compare, bool hasRank>
+typename CompactingBTree<Key, Data, Compare, hasRank>::InnerNode *CompactingBTree<Key, Data, Compare, hasRank>::releaseInner(InnerNode *x) {
+    InnerNode *last = static_cast<InnerNode*>(m_innerAllocator.last());
+    if (last == x) {
+        m_innerAllocator.trim();
+        return NULL;
+    }
+
+    x->parent = last->parent;
+    x->count = last->count;
+    for (int i = 0; i < last->count; i++) {
+        if (i > 0) x->keys[i - 1] = last->keys[i - 1];
+        x->children[i] = last->children[i];
+        x->children[i]->parent = x;
+        if (hasRank) x->subct[i] = last->subct[i];
+    }
+    if (x->parent) {
+        x->parent->children[childIndex(x->parent, last)] = x;
+    }
+    else {
+        m_root = x;
+    }
+
+    m_innerAllocator.trim();
+    return last;
+}
+
+template<typename Key, typename Data, typename Compare, bool hasRank>
+void CompactingBTree<Key, Data, Compare, hasRank>::insertIntoLeaf(LeafNode *leaf, int slot, const Key &key, const Data &data) {
+    assert(leaf->count < LEAF_SLOTS);
+    for (int i = leaf->count; i > slot; i--) {
+        leaf->keys[i] = leaf->keys[i - 1];
+        leaf->values[i] = leaf->values[i - 1];
+    }
+    leaf->keys[slot] = key;
+    leaf->values[slot] = data;
+    leaf->count++;
+}
+
+template<typename Key, typename Data, typename Compare, bool hasRank>
+void CompactingBTree<Key, Data, Compare, hasRank>::splitLeaf(LeafNode *leaf, int slot, const Key &key, const Data &data) {
+    LeafNode *right = allocLeaf();
+    const int half = LEAF_SLOTS / 2;
+    for (int i = half; i < leaf->count; i++) {
+        right->keys[i - half] = leaf->keys[i];
+        right->values[i - half] = leaf->values[i];
+    }
+    right->count = leaf->count - half;
+    leaf->count = half;
+
+    if (slot <= half) {
+        insertIntoLeaf(leaf, slot, key, data);
+    }
+    else {
+        insertIntoLeaf(right, slot - half, key, data);
+    }
+
+    right->next = leaf->next;
+    if (right->next) right->next->prev = right;
+    right->prev = leaf;
+    leaf->next = right;
+
+    insertIntoParent(leaf, right->keys[0], right);
+}
+
+/**
+ * Hook right, just split off left, into the tree after left, splitting
+ * parents on the way up as needed. The tree holds one more entry than
+ * before the split.
+ */
+template<typename Key, typename Data, typename Compare, bool hasRank>
+void CompactingBTree<Key, Data, Compare, hasRank>::insertIntoParent(Node *left, const Key &separator, Node *right) {
+    // the level left and right are at
+    int level = 0;
+    for (Node *n = left; n->parent; n = n->parent) {
+        level++;
+    }
+    level = m_height - level;
+
+    if (!left->parent) {
+        InnerNode *root = allocInner();
+        root->count = 2;
+        root->keys[0] = separator;
+        root->children[0] = left;
+        root->children[1] = right;
+        left->parent = right->parent = root;
+        if (hasRank) {
+            setSubct(root, 0, level);
+            setSubct(root, 1, level);
+        }
+        m_root = root;
+        m_height++;
+        return;
+    }
+
+    InnerNode *node = left->parent;
+    int pos = childIndex(node, left) + 1;
+    if (node->count < INNER_SLOTS) {
+        insertChild(node, pos, separator, right);
+        if (hasRank) {
+            setSubct(node, pos - 1, level);
+            setSubct(node, pos, level);
+            adjustCounts(node, 1);
+        }
+        return;
+    }
+
+    // split the parent, keeping the first half of its children
+    InnerNode *sibling = allocInner();
+    const int half = (INNER_SLOTS + 1) / 2;
+    const Key up = node->keys[half - 1];
+    for (int i = half; i < node->count; i++) {
+        if (i > half) sibling->keys[i - half - 1] = node->keys[i - 1];
+        sibling->children[i - half] = node->children[i];
+        sibling->children[i - half]->parent = sibling;
+        if (hasRank) sibling->subct[i - half] = node->subct[i];
+    }
+    sibling->count = node->count - half;
+    node->count = half;
+
+    InnerNode *target = node;
+    if (pos > half) {
+        target = sibling;
+        pos -= half;
+    }
+    // left stays just before right, wherever it went
+    insertChild(target, pos, separator, right);
+    if (hasRank) {
+        setSubct(target, pos - 1, level);
+        setSubct(target, pos, level);
+    }
+    insertIntoParent(node, up, sibling);
+}
+
+template<typename Key, typename Data, typename Compare, bool hasRank>
+void CompactingBTree<Key, Data, Compare, hasRank>::insertChild(InnerNode *node, int pos, const Key &separator, Node *child) {
+    assert(node->count < INNER_SLOTS);
+    assert(pos > 0 || node->count == 0);
+    for (int i = node->count; i > pos; i--) {
+        node->keys[i - 1] = node->keys[i - 2];
+        node->children[i] = node->children[i - 1];
+        if (hasRank) node->subct[i] = node->subct[i - 1];
+    }
+    node->keys[pos - 1] = separator;
+    node->children[pos] = child;
+    child->parent = node;
+    node->count++;
+}
+
+/**
+ * Remove the child at pos > 0 along with the separator to its left.
+ */
+template<typename Key, typename Data, typename Compare, bool hasRank>
+void CompactingBTree<Key, Data, Compare, hasRank>::removeChild(InnerNode *node, int pos) {
+    assert(pos > 0);
+    for (int i = pos; i < node->count - 1; i++) {
+        node->keys[i - 1] = node->keys[i];
+        node->children[i] = node->children[i + 1];
+        if (hasRank) node->subct[i] = node->subct[i + 1];
+    }
+    node->count--;
+}
+
+template<typename Key, typename Data, typename Compare, bool hasRank>
+void CompactingBTree<Key, Data, Compare, hasRank>::eraseAt(LeafNode *leaf, int slot) {
+    for (int i = slot; i < leaf->count - 1; i++) {
+        leaf->keys[i] = leaf->keys[i + 1];
+        leaf->values[i] = leaf->values[i + 1];
+    }
+    leaf->count--;
+    m_count--;
+
+    if (leaf == m_root) {
+        if (leaf->count == 0) {
+            m_root = NULL;
+            releaseLeaf(leaf);
+        }
+    }
+    else if (leaf->count >= LEAF_MIN) {
+        if (hasRank) {
+            adjustCounts(leaf, -1);
+        }
+    }
+    else {
+        rebalanceLeaf(leaf);
+    }
+}
+
+/**
+ * Refill a leaf that fell below half full from a sibling, or merge it
+ * with one. The tree holds one less entry than before the erase.
+ */
+template<typename Key, typename Data, typename Compare, bool hasRank>
+void CompactingBTree<Key, Data, Compare, hasRank>::rebalanceLeaf(LeafNode *leaf) {
+    InnerNode *parent = leaf->parent;
+    const int pos = childIndex(parent, leaf);
+    LeafNode *left = pos > 0 ? static_cast<LeafNode*>(parent->children[pos - 1]) : NULL;
+    LeafNode *right = pos + 1 < parent->count ? static_cast<LeafNode*>(parent->children[pos + 1]) : NULL;
+
+    if (left && left->count > LEAF_MIN) {
+        // borrow the last entry of the left sibling
+        for (int i = leaf->count; i > 0; i--) {
+            leaf->keys[i] = leaf->keys[i - 1];
+            leaf->values[i] = leaf->values[i - 1];
+        }
+        leaf->keys[0] = left->keys[left->count - 1];
+        leaf->values[0] = left->values[left->count - 1];
+        leaf->count++;
+        left->count--;
+        parent->keys[pos - 1] = leaf->keys[0];
+        if (hasRank) {
+            setSubct(parent, pos - 1, 0);
+            setSubct(parent, pos, 0);
+            adjustCounts(parent, -1);
+        }
+        return;
+    }
+    if (right && right->count > LEAF_MIN) {
+        // borrow the first entry of the right sibling
+        leaf->keys[leaf->count] = right->keys[0];
+        leaf->values[leaf->count] = right->values[0];
+        leaf->count++;
+        for (int i = 0; i < right->count - 1; i++) {
+            right->keys[i] = right->keys[i + 1];
+            right->values[i] = right->values[i + 1];
+        }
+        right->count--;
+        parent->keys[pos] = right->keys[0];
+        if (hasRank) {
+            setSubct(parent, pos, 0);
+            setSubct(parent, pos + 1, 0);
+            adjustCounts(parent, -1);
+        }
+        return;
+    }
+
+    // merge with a sibling, always into the left one of the pair
+    int mergedPos = pos;
+    if (left) {
+        right = leaf;
+        mergedPos = pos - 1;
+    }
+    else {
+        left = leaf;
+    }
+    for (int i = 0; i < right->count; i++) {
+        left->keys[left->count + i] = right->keys[i];
+        left->values[left->count + i] = right->values[i];
+    }
+    left->count += right->count;
+    left->next = right->next;
+    if (left->next) left->next->prev = left;
+    removeChild(parent, mergedPos + 1);
+    if (hasRank) {
+        setSubct(parent, mergedPos, 0);
+    }
+    // moving leaves around never moves the parent
+    releaseLeaf(right);
+    rebalanceInner(parent);
+}
+
+/**
+ * Called on an inner node that just lost a child. Refill it from a
+ * sibling, merge it with one, or drop the root a level if it is down to
+ * one child. The tree holds one less entry than before the erase.
+ */
+template<typename Key, typename Data, typename Compare, bool hasRank>
+void CompactingBTree<Key, Data, Compare, hasRank>::rebalanceInner(InnerNode *node) {
+    if (node == m_root) {
+        if (node->count == 1) {
+            m_root = node->children[0];
+            m_root->parent = NULL;
+            m_height--;
+            releaseInner(node);
+        }
+        return;
+    }
+    if (node->count >= INNER_MIN) {
+        if (hasRank) {
+            adjustCounts(node, -1);
+        }
+        return;
+    }
+
+    // the level of node's children
+    int level = 0;
+    for (Node *n = node; n->parent; n = n->parent) {
+        level++;
+    }
+    level = m_height - level - 1;
+
+    InnerNode *parent = node->parent;
+    const int pos = childIndex(parent, node);
+    InnerNode *left = pos > 0 ? static_cast<InnerNode*>(parent->children[pos - 1]) : NULL;
+    InnerNode *right = pos + 1 < parent->count ? static_cast<InnerNode*>(parent->children[pos + 1]) : NULL;
+
+    if (left && left->count > INNER_MIN) {
+        // rotate the last child of the left sibling through the parent
+        for (int i = node->count; i > 0; i--) {
+            if (i > 1) node->keys[i - 1] = node->keys[i - 2];
+            node->children[i] = node->children[i - 1];
+            if (hasRank) node->subct[i] = node->subct[i - 1];
+        }
+        node->keys[0] = parent->keys[pos - 1];
+        node->children[0] = left->children[left->count - 1];
+        node->children[0]->parent = node;
+        if (hasRank) node->subct[0] = left->subct[left->count - 1];
+        node->count++;
+        parent->keys[pos - 1] = left->keys[left->count - 2];
+        left->count--;
+        if (hasRank) {
+            setSubct(parent, pos - 1, level + 1);
+            setSubct(parent, pos, level + 1);
+            adjustCounts(parent, -1);
+        }
+        return;
+    }
+    if (right && right->count > INNER_MIN) {
+        // rotate the first child of the right sibling through the parent
+        node->keys[node->count - 1] = parent->keys[pos];
+        node->children[node->count] = right->children[0];
+        node->children[node->count]->parent = node;
+        if (hasRank) node->subct[node->count] = right->subct[0];
+        node->count++;
+        parent->keys[pos] = right->keys[0];
+        for (int i = 0; i < right->count - 1; i++) {
+            if (i > 0) right->keys[i - 1] = right->keys[i];
+            right->children[i] = right->children[i + 1];
+            if (hasRank) right->subct[i] = right->subct[i + 1];
+        }
+        right->count--;
+        if (hasRank) {
+            setSubct(parent, pos, level + 1);
+            setSubct(parent, pos + 1, level + 1);
+            adjustCounts(parent, -1);
+        }
+        return;
+    }
+
+    // merge with a sibling, always into the left one of the pair,
+    // pulling down the separator between them
+    int mergedPos = pos;
+    if (left) {
+        right = node;
+        mergedPos = pos - 1;
+    }
+    else {
+        left = node;
+    }
+    left->keys[left->count - 1] = parent->keys[mergedPos];
+    for (int i = 0; i < right->count; i++) {
+        if (i > 0) left->keys[left->count + i - 1] = right->keys[i - 1];
+        left->children[left->count + i] = right->children[i];
+        left->children[left->count + i]->parent = left;
+        if (hasRank) left->subct[left->count + i] = right->subct[i];
+    }
+    left->count += right->count;
+    removeChild(parent, mergedPos + 1);
+    if (hasRank) {
+        setSubct(parent, mergedPos, level + 1);
+    }
+    // the parent may be the node that gets moved into the hole
+    InnerNode *moved = releaseInner(right);
+    if (moved == parent) {
+        parent = right;
+    }
+    rebalanceInner(parent);
+}
+
+template<typename Key, typename Data, typename Compare, bool hasRank>
+inline int CompactingBTree<Key, Data, Compare, hasRank>::childIndex(const InnerNode *node, const Node *child) const {
+    int i = 0;
+    while (node->children[i] != child) {
+        i++;
+        assert(i < node->count);
+    }
+    return i;
+}
+
+/**
+ * Entries under a node at the given level, 0 being the leaves.
+ */
+template<typename Key, typename Data, typename Compare, bool hasRank>
+inline int64_t CompactingBTree<Key, Data, Compare, hasRank>::total(const Node *node, int level) const {
+    if (level == 0) {
+        return node->count;
+    }
+    const InnerNode *inner = static_cast<const InnerNode*>(node);
+    int64_t ct = 0;
+    for (int i = 0; i < inner->count; i++) {
+        ct += inner->subct[i];
+    }
+    return ct;
+}
+
+/**
+ * Recount the entries under the child at pos, whose level is given.
+ */
+template<typename Key, typename Data, typename Compare, bool hasRank>
+inline void CompactingBTree<Key, Data, Compare, hasRank>::setSubct(InnerNode *node, int pos, int level) {
+    node->subct[pos] = total(node->children[pos], level);
+}
+
+/**
+ * Add delta to the count of entries under node in all of its ancestors.
+ */
+template<typename Key, typename Data, typename Compare, bool hasRank>
+inline void CompactingBTree<Key, Data, Compare, hasRank>::adjustCounts(Node *node, int64_t delta) {
+    while (node->parent) {
+        InnerNode *parent = node->parent;
+        parent->subct[childIndex(parent, node)] += delta;
+        node = parent;
+    }
+}
+
+template<typename Key, typename Data, typename Compare, bool hasRank>
+int64_t CompactingBTree<Key, Data, Compare, hasRank>::rankAsc(const Key &key) {
+    if (!hasRank || !m_count) return -1;
+    int64_t before = 0;
+    LeafNode *leaf = descend(key, false, &before);
+    int slot = search(leaf->keys, leaf->count, key, false);
+    // return -1 if the key passed in is not in the map
+    iterator iter = position(leaf, slot);
+    if (iter.isEnd() || m_comper(iter.key(), key) != 0) return -1;
+    return before + slot + 1;
+}
+
+template<typename Key, typename Data, typename Compare, bool hasRank>
+int64_t CompactingBTree<Key, Data, Compare, hasRank>::rankUpper(const Key &key) {
+    if (!hasRank || !m_count) return -1;
+    if (m_unique) return rankAsc(key);
+    int64_t before = 0;
+    LeafNode *leaf = descend(key, true, &before);
+    int slot = search(leaf->keys, leaf->count, key, true);
+    // the last entry <= key has to be key itself, or else return -1
+    iterator iter(leaf, slot);
+    if (slot == 0) {
+        iter = iterator(leaf->prev, leaf->prev ? leaf->prev->count : 0);
+    }
+    iter.movePrev();
+    if (iter.isEnd() || m_comper(iter.key(), key) != 0) return -1;
+    return before + slot;
+}
+
+template<typename Key, typename Data, typename Compare, bool hasRank>
+typename CompactingBTree<Key, Data, Compare, hasRank>::iterator CompactingBTree<Key, Data, Compare, hasRank>::findRank(int64_t ith) {
+    if (!hasRank || ith <= 0 || ith > m_count) return iterator();
+    Node *n = m_root;
+    for (int level = m_height; level > 0; level--) {
+        InnerNode *inner = static_cast<InnerNode*>(n);
+        int i = 0;
+        while (ith > inner->subct[i]) {
+            ith -= inner->subct[i];
+            i++;
+        }
+        n = inner->children[i];
+    }
+    return iterator(static_cast<LeafNode*>(n), static_cast<int>(ith - 1));
+}
+
+template<typename Key, typename Data, typename Compare, bool hasRank>
+bool CompactingBTree<Key, Data, Compare, hasRank>::verify() const {
+    if (!m_root) {
+        return m_count == 0 && m_leafAllocator.count() == 0 && m_innerAllocator.count() == 0;
+    }
+    if (m_root->parent) {
+        printf("root has a parent\n");
+        return false;
+    }
+    if (verify(m_root, m_height, NULL, NULL) != m_count) {
+        printf("tree does not hold %ld entries\n", (long)m_count);
+        return false;
+    }
+
+    // walk the leaves both ways
+    int64_t leaves = 0, entries = 0;
+    LeafNode *prev = NULL;
+    for (iterator iter = begin(); iter.m_leaf; iter = iterator(iter.m_leaf->next, 0)) {
+        LeafNode *leaf = iter.m_leaf;
+        if (leaf->prev != prev) {
+            printf("leaf links are broken\n");
+            return false;
+        }
+        if (prev && m_comper(prev->keys[prev->count - 1], leaf->keys[0]) >= (m_unique ? 0 : 1)) {
+            printf("leaves are out of order\n");
+            return false;
+        }
+        leaves++;
+        entries += leaf->count;
+        prev = leaf;
+    }
+    if (prev != rbegin().m_leaf || entries != m_count) {
+        printf("leaf chain does not hold %ld entries\n", (long)m_count);
+        return false;
+    }
+    if (leaves != m_leafAllocator.count()) {
+        printf("%ld leaves allocated, %ld in use\n", (long)m_leafAllocator.count(), (long)leaves);
+        return false;
+    }
+    return true;
+}
+
+/**
+ * Verify the subtree under n, whose keys must be within [low, high] where
+ * given. Returns the number of entries under n, or -1.
+ */
+template<typename Key, typename Data, typename Compare, bool hasRank>
+int64_t CompactingBTree<Key, Data, Compare, hasRank>::verify(const Node *n, int level, const Key *low, const Key *high) const {
+    const bool isRoot = (n == m_root);
+    if (level == 0) {
+        const LeafNode *leaf = static_cast<const LeafNode*>(n);
+        if (leaf->count > LEAF_SLOTS || leaf->count < (isRoot ? 1 : LEAF_MIN)) {
+            printf("leaf holds %d entries\n", leaf->count);
+            return -1;
+        }
+        for (int i = 0; i < leaf->count; i++) {
+            if (i > 0 && m_comper(leaf->keys[i - 1], leaf->keys[i]) >= (m_unique ? 0 : 1)) {
+                printf("leaf keys are out of order\n");
+                return -1;
+            }
+            if ((low && m_comper(*low, leaf->keys[i]) > 0) || (high && m_comper(leaf->keys[i], *high) > 0)) {
+                printf("leaf key is outside its separators\n");
+                return -1;
+            }
+        }
+        return leaf->count;
+    }
+
+    const InnerNode *inner = static_cast<const InnerNode*>(n);
+    if (inner->count > INNER_SLOTS || inner->count < (isRoot ? 2 : INNER_MIN)) {
+        printf("inner node has %d children\n", inner->count);
+        return -1;
+    }
+    int64_t ct = 0;
+    for (int i = 0; i < inner->count; i++) {
+        if (inner->children[i]->parent != inner) {
+            printf("child does not point at its parent\n");
+            return -1;
+        }
+        if (i > 0 && i < inner->count - 1 && m_comper(inner->keys[i - 1], inner->keys[i]) > 0) {
+            printf("separators are out of order\n");
+            return -1;
+        }
+        int64_t childct = verify(inner->children[i], level - 1,
+                                 i > 0 ? &inner->keys[i - 1] : low,
+                                 i < inner->count - 1 ? &inner->keys[i] : high);
+        if (childct < 0) {
+            return -1;
+        }
+        // verify the sub tree entry counters
+        if (hasRank && childct != inner->subct[i]) {
+            printf("child counter is not correct, expected %ld but get %ld\n",
+                   (long)childct, (long)inner->subct[i]);
+            return -1;
+        }
+        ct += childct;
+    }
+    return ct;
+}
+
+template<typename Key, typename Data, typename Compare, bool hasRank>
+bool CompactingBTree<Key, Data, Compare, hasRank>::verifyRank() {
+    if (!hasRank)
+        return true;
+
+    // iterate rank start from 1 to m_count
+    int64_t i = 1;
+    for (iterator it = begin(); !it.isEnd(); it.moveNext(), i++) {
+        if (!findRank(i).equals(it)) {
+            printf("rank %ld is not at the %ldth entry\n", (long)i, (long)i);
+            return false;
+        }
+        iterator prev = it;
+        prev.movePrev();
+        if (prev.isEnd() || m_comper(prev.key(), it.key()) != 0) {
+            int64_t rkasc = rankAsc(it.key());
+            if (rkasc != i) {
+                printf("false: rankAsc expected %ld, but got %ld\n", (long)i, (long)rkasc);
+                return false;
+            }
+        }
+        iterator next = it;
+        next.moveNext();
+        if (next.isEnd() || m_comper(next.key(), it.key()) != 0) {
+            int64_t rkUpper = rankUpper(it.key());
+            if (rkUpper != i) {
+                printf("false: rankUpper expected %ld, but got %ld\n", (long)i, (long)rkUpper);
+                return false;
+            }
+        }
+    }
+    return true;
+}
+
+/**
+ * Picks the ordered map a tree index is built on: CompactingBTree if
+ * useBTree is set, CompactingMap otherwise.
+ */
+template<typename Key, typename Data, typename Compare, bool hasRank, bool useBTree>
+struct CompactingTreeMap {
+    typedef CompactingMap<Key, Data, Compare, hasRank> type;
+};
+
+template<typename Key, typename Data, typename Compare, bool hasRank>
+struct CompactingTreeMap<Key, Data, Compare, hasRank, true> {
+    typedef CompactingBTree<Key, Data, Compare, hasRank> type;
+};
+
+} // namespace voltdb
+
+#endif // COMPACTINGBTREE_H_
@@ -126,6 +126,13 @@ public:
     bool insert(std::pair<Key, Data> value);
     // A syntactically convenient analog to CompactingHashTable's insert function
     bool insert(const Key &key, const Data &data) { return insert(std::pair<Key, Data>(key, data)); }
+    // entries arriving in key order, see CompactingBTree::insertSorted()
+    template<typename Iter>
+    void insertSorted(Iter begin, Iter end) {
+        for (Iter iter = begin; iter != end; ++iter) {
+            insert(iter->first, iter->second);
+        }
+    }
     bool erase(const Key &key);
     bool erase(iterator &iter);
     iterator find(const Key &key) { return iterator(this, lookup(key)); }
@@ -261,8 +268,9 @@ bool CompactingMap<Key, Data, Compare, hasRank>::insert(std::pair<Key, Data> val
         // create a new node
         void *memory = m_allocator.alloc();
         assert(memory);
-        // placement new
-        TreeNode *z = new(memory) TreeNode();
+        // placement new; not value-initialized, as without rank
+        // subct lies past the end of the allocation
+        TreeNode *z = new(memory) TreeNode;
         z->key = value.first;
         z->value = value.second;
         z->left = z->right = &NIL;
@@ -283,8 +291,9 @@ bool CompactingMap<Key, Data, Compare, hasRank>::insert(std::pair<Key, Data> val
         // create a new node as root
         void *memory = m_allocator.alloc();
         assert(memory);
-        // placement new
-        TreeNode *z = new(memory) TreeNode();
+        // placement new; not value-initialized, as without rank
+        // subct lies past the end of the allocation
+        TreeNode *z = new(memory) TreeNode;
         z->key = value.first;
         z->value = value.second;
         z->left = z->right = &NIL;
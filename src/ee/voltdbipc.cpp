@@ -343,6 +343,10 @@ bool VoltDBIPC::execute(struct ipc_command *cmd) {
           executeTask(cmd);
           result = kErrorCode_None;
           break;
+      case 29:
+          tempTableSpilledBytes();
+          result = kErrorCode_None;
+          break;
       default:
         result = stub(cmd);
     }
@@ -427,7 +431,9 @@ int8_t VoltDBIPC::initialize(struct ipc_command *cmd) {
         int hostId;
         int64_t logLevels;
         int64_t tempTableMemory;
+        int64_t tempTableSpillLimit;
         int32_t hostnameLength;
+        // the hostname, then the int32_t length and bytes of the spill directory
         char data[0];
     }__attribute__((packed));
     struct initialize * cs = (struct initialize*) cmd;
@@ -440,9 +446,13 @@ int8_t VoltDBIPC::initialize(struct ipc_command *cmd) {
     cs->hostId = ntohl(cs->hostId);
     cs->logLevels = ntohll(cs->logLevels);
     cs->tempTableMemory = ntohll(cs->tempTableMemory);
+    cs->tempTableSpillLimit = ntohll(cs->tempTableSpillLimit);
     cs->hostnameLength = ntohl(cs->hostnameLength);
 
     std::string hostname(cs->data, cs->hostnameLength);
+    int32_t spillDirectoryLength =
+        ntohl(*reinterpret_cast<int32_t*>(cs->data + cs->hostnameLength));
+    std::string spillDirectory(cs->data + cs->hostnameLength + sizeof(int32_t), spillDirectoryLength);
     try {
         m_engine = new VoltDBEngine(new voltdb::IPCTopend(this), new voltdb::StdoutLogProxy());
         m_engine->getLogManager()->setLogLevels(cs->logLevels);
@@ -458,7 +468,9 @@ int8_t VoltDBIPC::initialize(struct ipc_command *cmd) {
                                  cs->partitionId,
                                  cs->hostId,
                                  hostname,
-                                 cs->tempTableMemory) == true) {
+                                 cs->tempTableMemory,
+                                 spillDirectory,
+                                 cs->tempTableSpillLimit) == true) {
             return kErrorCode_Success;
         }
     } catch (const FatalException &e) {
@@ -1229,6 +1241,14 @@ void VoltDBIPC::threadLocalPoolAllocations() {
     writeOrDie(m_fd, (unsigned char*)response, 9);
 }
 
+void VoltDBIPC::tempTableSpilledBytes() {
+    int64_t spilledBytes = m_engine->getTempTableSpilledBytes();
+    char response[9];
+    response[0] = kErrorCode_Success;
+    *reinterpret_cast<int64_t*>(&response[1]) = htonll(spilledBytes);
+    writeOrDie(m_fd, (unsigned char*)response, 9);
+}
+
 int64_t VoltDBIPC::getQueuedExportBytes(int32_t partitionId, std::string signature) {
     m_reusedResultBuffer[0] = kErrorCode_getQueuedExportBytes;
     *reinterpret_cast<int32_t*>(&m_reusedResultBuffer[1]) = htonl(partitionId);
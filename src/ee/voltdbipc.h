@@ -138,6 +138,8 @@ private:
 
     void threadLocalPoolAllocations();
 
+    void tempTableSpilledBytes();
+
     void executeTask(struct ipc_command*);
 
     void sendException( int8_t errorCode);
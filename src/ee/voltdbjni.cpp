@@ -258,7 +258,9 @@ SHAREDLIB_JNIEXPORT jint JNICALL Java_org_voltdb_jni_ExecutionEngine_nativeIniti
     jint partitionId,
     jint hostId,
     jbyteArray hostname,
-    jlong tempTableMemory)
+    jlong tempTableMemory,
+    jbyteArray tempTableSpillDirectory,
+    jlong tempTableSpillLimit)
 {
     VOLT_DEBUG("nativeInitialize() start");
     VoltDBEngine *engine = castToEngine(enginePtr);
@@ -273,6 +275,10 @@ SHAREDLIB_JNIEXPORT jint JNICALL Java_org_voltdb_jni_ExecutionEngine_nativeIniti
         jbyte *hostChars = env->GetByteArrayElements( hostname, NULL);
         std::string hostString(reinterpret_cast<char*>(hostChars), env->GetArrayLength(hostname));
         env->ReleaseByteArrayElements( hostname, hostChars, JNI_ABORT);
+        jbyte *spillDirectoryChars = env->GetByteArrayElements( tempTableSpillDirectory, NULL);
+        std::string spillDirectoryString(reinterpret_cast<char*>(spillDirectoryChars),
+                                         env->GetArrayLength(tempTableSpillDirectory));
+        env->ReleaseByteArrayElements( tempTableSpillDirectory, spillDirectoryChars, JNI_ABORT);
         // initialization is separated from constructor so that constructor
         // never fails.
         VOLT_DEBUG("calling initialize...");
@@ -282,7 +288,9 @@ SHAREDLIB_JNIEXPORT jint JNICALL Java_org_voltdb_jni_ExecutionEngine_nativeIniti
                                    partitionId,
                                    hostId,
                                    hostString,
-                                   tempTableMemory);
+                                   tempTableMemory,
+                                   spillDirectoryString,
+                                   tempTableSpillLimit);
         if (success) {
             VOLT_DEBUG("initialize succeeded");
             return org_voltdb_jni_ExecutionEngine_ERRORCODE_SUCCESS;
@@ -420,16 +428,13 @@ Java_org_voltdb_jni_ExecutionEngine_nativeLoadTable (
     VOLT_DEBUG("deserializing %d bytes ...", (int) length);
     jbyte *bytes = env->GetByteArrayElements(serialized_table, NULL);
     ReferenceSerializeInput serialize_in(bytes, length);
+    bool success = false;
     try {
         try {
-            bool success = engine->loadTable(table_id, serialize_in,
-                                             spHandle, lastCommittedSpHandle,
-                                             returnUniqueViolations);
-            env->ReleaseByteArrayElements(serialized_table, bytes, JNI_ABORT);
+            success = engine->loadTable(table_id, serialize_in,
+                                        spHandle, lastCommittedSpHandle,
+                                        returnUniqueViolations);
             VOLT_DEBUG("deserialized table");
-
-            if (success)
-                return org_voltdb_jni_ExecutionEngine_ERRORCODE_SUCCESS;
         } catch (const SerializableEEException &e) {
             engine->resetReusedResultOutputBuffer();
             e.serialize(engine->getExceptionOutputSerializer());
@@ -437,7 +442,11 @@ Java_org_voltdb_jni_ExecutionEngine_nativeLoadTable (
     } catch (const FatalException &e) {
         topend->crashVoltDB(e);
     }
+    // a failed load can be rolled back, so release the array on every path
+    env->ReleaseByteArrayElements(serialized_table, bytes, JNI_ABORT);
 
+    if (success)
+        return org_voltdb_jni_ExecutionEngine_ERRORCODE_SUCCESS;
     return org_voltdb_jni_ExecutionEngine_ERRORCODE_ERROR;
 }
 
@@ -1255,6 +1264,20 @@ SHAREDLIB_JNIEXPORT jlong JNICALL Java_org_voltdb_jni_ExecutionEngine_nativeGetT
     return ThreadLocalPool::getPoolAllocationSize();
 }
 
+/*
+ * Class:     org_voltdb_jni_ExecutionEngine
+ * Method:    nativeGetTempTableSpilledBytes
+ * Signature: (J)J
+ */
+SHAREDLIB_JNIEXPORT jlong JNICALL Java_org_voltdb_jni_ExecutionEngine_nativeGetTempTableSpilledBytes
+  (JNIEnv *env, jobject obj, jlong engine_ptr) {
+    VoltDBEngine *engine = castToEngine(engine_ptr);
+    if (engine == NULL) {
+        return 0;
+    }
+    return engine->getTempTableSpilledBytes();
+}
+
 /*
  * Class:     org_voltdb_jni_ExecutionEngine
  * Method:    nativeGetRSS
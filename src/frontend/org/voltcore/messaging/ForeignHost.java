@@ -23,6 +23,8 @@ import java.net.InetSocketAddress;
 import java.net.Socket;
 import java.nio.ByteBuffer;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -33,7 +35,7 @@ import org.voltcore.network.ReverseDNSPolicy;
 import org.voltcore.network.QueueMonitor;
 import org.voltcore.network.VoltProtocolHandler;
 import org.voltcore.utils.CoreUtils;
-import org.voltcore.utils.DeferredSerialization;
+import org.voltcore.utils.DirectDeferredSerialization;
 import org.voltcore.utils.EstTime;
 import org.voltcore.utils.RateLimitedLogger;
 import org.voltdb.OperationMode;
@@ -56,6 +58,15 @@ public class ForeignHost {
     private final Socket m_socket;
     private final SocketChannel m_sc;
 
+    /*
+     * Extra connections to the same host when more than one connection per host
+     * is configured. Index 0 is the primary connection. Only published once every
+     * stripe is connected, so the messages for a site never move between connections.
+     */
+    private volatile Connection m_stripes[] = null;
+    private Connection m_pendingStripes[] = null;
+    private final List<Socket> m_stripeSockets = new ArrayList<Socket>();
+
     // Set the default here for TestMessaging, which currently has no VoltDB instance
     private long m_deadHostTimeout;
     private final AtomicLong m_lastMessageMillis = new AtomicLong(Long.MAX_VALUE);
@@ -133,6 +144,44 @@ public class ForeignHost {
         m_connection.enableReadSelection();
     }
 
+    /**
+     * Add another connection to this host. Messages are striped across the connections by
+     * destination site once all stripeCount - 1 extra connections have been added.
+     */
+    synchronized void addStripe(HostMessenger host, SocketChannel sc, int stripe, int stripeCount)
+    throws IOException
+    {
+        if (m_closing) {
+            sc.close();
+            return;
+        }
+        if (m_pendingStripes == null) {
+            m_pendingStripes = new Connection[stripeCount];
+            m_pendingStripes[0] = m_connection;
+        }
+        if (stripe <= 0 || stripe >= m_pendingStripes.length || m_pendingStripes[stripe] != null) {
+            throw new IOException("Unexpected connection " + stripe + " of " + stripeCount +
+                    " from host " + m_hostId);
+        }
+        m_stripeSockets.add(sc.socket());
+        m_pendingStripes[stripe] =
+            host.getNetwork().registerChannel(sc, new FHInputHandler(), 0, ReverseDNSPolicy.SYNCHRONOUS);
+        m_pendingStripes[stripe].enableReadSelection();
+        for (Connection c : m_pendingStripes) {
+            if (c == null) {
+                return;
+            }
+        }
+        hostLog.info("Striping messages to host " + m_hostId + " across " +
+                m_pendingStripes.length + " connections");
+        m_stripes = m_pendingStripes;
+    }
+
+    int getConnectionCount() {
+        final Connection stripes[] = m_stripes;
+        return stripes == null ? 1 : stripes.length;
+    }
+
     synchronized void close()
     {
         m_isUp = false;
@@ -140,6 +189,13 @@ public class ForeignHost {
         m_closing = true;
         if (m_connection != null)
             m_connection.unregister();
+        if (m_pendingStripes != null) {
+            for (int ii = 1; ii < m_pendingStripes.length; ii++) {
+                if (m_pendingStripes[ii] != null) {
+                    m_pendingStripes[ii].unregister();
+                }
+            }
+        }
     }
 
     /**
@@ -152,6 +208,11 @@ public class ForeignHost {
             m_socket.setSoLinger(false, 0);
             Thread.sleep(25);
             m_socket.close();
+            synchronized (this) {
+                for (Socket s : m_stripeSockets) {
+                    s.close();
+                }
+            }
             Thread.sleep(25);
             System.gc();
             Thread.sleep(25);
@@ -179,6 +240,15 @@ public class ForeignHost {
         return m_isUp;
     }
 
+    /*
+     * The connection a destination's messages go on. Mailboxes that aren't sites
+     * (agreement, stats and the like) stay on the primary connection.
+     */
+    private static int stripeFor(long hsId, int stripeCount) {
+        final int siteId = CoreUtils.getSiteIdFromHSId(hsId);
+        return siteId < 0 ? 0 : siteId % stripeCount;
+    }
+
     /** Send a message to the network. This public method is re-entrant. */
     void send(
             final long destinations[],
@@ -188,34 +258,36 @@ public class ForeignHost {
             return;
         }
 
-        m_connection.writeStream().enqueue(
-            new DeferredSerialization() {
-                @Override
-                public final ByteBuffer[] serialize() throws IOException{
-                    int len = 4            /* length prefix */
-                            + 8            /* source hsid */
-                            + 4            /* destinationCount */
-                            + 8 * destinations.length  /* destination list */
-                            + message.getSerializedSize();
-                    ByteBuffer buf = ByteBuffer.allocate(len);
-                    buf.putInt(len - 4);
-                    buf.putLong(message.m_sourceHSId);
-                    buf.putInt(destinations.length);
-                    for (int ii = 0; ii < destinations.length; ii++) {
-                        buf.putLong(destinations[ii]);
+        final Connection stripes[] = m_stripes;
+        if (stripes == null) {
+            m_connection.writeStream().enqueue(new MessageFrame(destinations, message));
+        } else if (destinations.length == 1) {
+            stripes[stripeFor(destinations[0], stripes.length)].writeStream().enqueue(
+                    new MessageFrame(destinations, message));
+        } else {
+            for (int stripe = 0; stripe < stripes.length; stripe++) {
+                int count = 0;
+                for (long hsId : destinations) {
+                    if (stripeFor(hsId, stripes.length) == stripe) {
+                        count++;
                     }
-                    message.flattenToBuffer(buf);
-                    buf.flip();
-                    return new ByteBuffer[] { buf };
                 }
-
-                @Override
-                public final void cancel() {
-                    /*
-                     * Can this be removed?
-                     */
+                if (count == 0) {
+                    continue;
                 }
-            });
+                long stripeDestinations[] = destinations;
+                if (count != destinations.length) {
+                    stripeDestinations = new long[count];
+                    int ii = 0;
+                    for (long hsId : destinations) {
+                        if (stripeFor(hsId, stripes.length) == stripe) {
+                            stripeDestinations[ii++] = hsId;
+                        }
+                    }
+                }
+                stripes[stripe].writeStream().enqueue(new MessageFrame(stripeDestinations, message));
+            }
+        }
 
         long current_time = EstTime.currentTimeMillis();
         long current_delta = current_time - m_lastMessageMillis.get();
@@ -248,6 +320,50 @@ public class ForeignHost {
     }
 
 
+    /**
+     * Serializes a message and its destinations straight into the pooled network
+     * buffers of the write stream, or into a heap buffer if it is too big for one.
+     */
+    private static final class MessageFrame extends DirectDeferredSerialization {
+        private final long m_destinations[];
+        private final VoltMessage m_message;
+        private int m_size = -1;
+
+        MessageFrame(long destinations[], VoltMessage message) {
+            m_destinations = destinations;
+            m_message = message;
+        }
+
+        @Override
+        public int getSerializedSize() {
+            if (m_size == -1) {
+                m_size = 4            /* length prefix */
+                       + 8            /* source hsid */
+                       + 4            /* destinationCount */
+                       + 8 * m_destinations.length  /* destination list */
+                       + m_message.getSerializedSize();
+            }
+            return m_size;
+        }
+
+        @Override
+        public void serialize(ByteBuffer out) throws IOException {
+            final int len = getSerializedSize();
+            // messages check that they exactly fill the buffer they are flattened into
+            ByteBuffer frame = out.duplicate();
+            frame.limit(frame.position() + len);
+            frame = frame.slice();
+            frame.putInt(len - 4);
+            frame.putLong(m_message.m_sourceHSId);
+            frame.putInt(m_destinations.length);
+            for (int ii = 0; ii < m_destinations.length; ii++) {
+                frame.putLong(m_destinations[ii]);
+            }
+            m_message.flattenToBuffer(frame);
+            out.position(out.position() + len);
+        }
+    }
+
     String hostnameAndIPAndPort() {
         return m_connection.getHostnameAndIPAndPort();
     }
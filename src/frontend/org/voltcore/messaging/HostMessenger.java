@@ -86,6 +86,11 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
         public long backwardsTimeForgivenessWindow = 1000 * 60 * 60 * 24 * 7;
         public VoltMessageFactory factory = new VoltMessageFactory();
         public int networkThreads =  Math.max(2, CoreUtils.availableProcessors() / 4);
+        /*
+         * Connections between each pair of hosts. Messages are striped across them
+         * by destination site, so the messages for any one site stay in order.
+         */
+        public int connectionsPerHost = 1;
         public Queue<String> coreBindIds;
 
         public Config(String coordIp, int coordPort) {
@@ -95,6 +100,7 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
                 coordinatorIp = new InetSocketAddress(coordIp, coordPort);
             }
             initNetworkThreads();
+            initConnectionsPerHost();
         }
 
         public Config() {
@@ -125,6 +131,14 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
             }
         }
 
+        private void initConnectionsPerHost() {
+            Integer connectionsPerHostConfig = Integer.getInteger("connectionsPerHost");
+            if (connectionsPerHostConfig != null) {
+                this.connectionsPerHost = Math.max(1, connectionsPerHostConfig);
+                logger.info("Overridden connections per host: " + this.connectionsPerHost);
+            }
+        }
+
         @Override
         public String toString() {
             JSONStringer js = new JSONStringer();
@@ -137,6 +151,7 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
                 js.key("deadhosttimeout").value(deadHostTimeout);
                 js.key("backwardstimeforgivenesswindow").value(backwardsTimeForgivenessWindow);
                 js.key("networkThreads").value(networkThreads);
+                js.key("connectionsPerHost").value(connectionsPerHost);
                 js.endObject();
 
                 return js.toString();
@@ -646,6 +661,43 @@ public class HostMessenger implements SocketJoiner.JoinHandler, InterfaceToMesse
             hostInfoBytes = addr.toString().getBytes("UTF-8");
         }
         m_zk.create(CoreZK.hosts_host + getHostId(), hostInfoBytes, Ids.OPEN_ACL_UNSAFE, CreateMode.EPHEMERAL);
+
+        /*
+         * The other hosts' joiners are free again now that the agreement site has joined,
+         * so open the extra connections to each host. No site mailboxes exist on this host
+         * yet, so no site's messages can be in flight when the stripes take over.
+         */
+        for (int ii = 1; ii < m_config.connectionsPerHost; ii++) {
+            for (int jj = 0; jj < hosts.length; jj++) {
+                ForeignHost fh = m_foreignHosts.get(hosts[jj]);
+                if (fh == null) {
+                    continue;
+                }
+                SocketChannel stripe = m_joiner.connectStripe(listeningAddresses[jj], ii, m_config.connectionsPerHost);
+                prepSocketChannel(stripe);
+                fh.addStripe(this, stripe, ii, m_config.connectionsPerHost);
+            }
+        }
+    }
+
+    /*
+     * Take an additional connection from a host that is already part of the mesh
+     */
+    @Override
+    public void notifyOfStripe(int hostId, int stripe, int stripeCount, SocketChannel socket) throws Exception {
+        ForeignHost fhost = m_foreignHosts.get(hostId);
+        if (fhost == null) {
+            hostLog.warn("Refusing connection " + stripe + " from unknown host " + hostId);
+            socket.close();
+            return;
+        }
+        prepSocketChannel(socket);
+        // acknowledge before the network owns the socket so the ack is the only thing written ahead of it
+        ByteBuffer accepted = ByteBuffer.allocate(1);
+        while (accepted.hasRemaining()) {
+            socket.write(accepted);
+        }
+        fhost.addStripe(this, socket, stripe, stripeCount);
     }
 
     /**
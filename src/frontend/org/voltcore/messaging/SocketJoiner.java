@@ -85,6 +85,13 @@ public class SocketJoiner {
                 int hosts[],
                 SocketChannel sockets[],
                 InetSocketAddress listeningAddresses[]) throws Exception;
+
+        /*
+         * A host that is already connected opened an additional connection, stripe
+         * of stripeCount, to spread its traffic over
+         */
+        public void notifyOfStripe(int hostId, int stripe, int stripeCount, SocketChannel socket)
+        throws Exception;
     }
 
     private static final VoltLogger LOG = new VoltLogger(SocketJoiner.class.getName());
@@ -338,6 +345,9 @@ public class SocketJoiner {
                 m_joinHandler.requestJoin( sc, listeningAddress);
             } else if (type.equals("PUBLISH_HOSTID")){
                 m_joinHandler.notifyOfJoin(jsObj.getInt("hostId"), sc, listeningAddress);
+            } else if (type.equals("ADD_STRIPE")) {
+                m_joinHandler.notifyOfStripe(
+                        jsObj.getInt("hostId"), jsObj.getInt("stripe"), jsObj.getInt("stripes"), sc);
             } else {
                 throw new RuntimeException("Unexpected message type " + type + " from " + remoteAddress);
             }
@@ -594,6 +604,52 @@ public class SocketJoiner {
         }
     }
 
+    /**
+     * Open an additional connection to a host this node is already connected to.
+     * Returns once the other host has accepted the connection as the given stripe,
+     * before anything else is written to it.
+     */
+    SocketChannel connectStripe(InetSocketAddress hostAddr, int stripe, int stripeCount) throws Exception {
+        SocketChannel socket = SocketChannel.open(hostAddr);
+        try {
+            socket.socket().setTcpNoDelay(true);
+            socket.socket().setPerformancePreferences(0, 2, 1);
+
+            // the clock skew check every new connection gets, already done for this host
+            ByteBuffer currentTime = ByteBuffer.allocate(8);
+            while (currentTime.hasRemaining()) {
+                if (socket.read(currentTime) == -1) {
+                    throw new EOFException();
+                }
+            }
+
+            JSONObject jsObj = new JSONObject();
+            jsObj.put("type", "ADD_STRIPE");
+            jsObj.put("hostId", m_localHostId);
+            jsObj.put("stripe", stripe);
+            jsObj.put("stripes", stripeCount);
+            jsObj.put("port", m_internalPort);
+            byte jsBytes[] = jsObj.toString(4).getBytes("UTF-8");
+            ByteBuffer addStripe = ByteBuffer.allocate(4 + jsBytes.length);
+            addStripe.putInt(jsBytes.length);
+            addStripe.put(jsBytes).flip();
+            while (addStripe.hasRemaining()) {
+                socket.write(addStripe);
+            }
+
+            ByteBuffer accepted = ByteBuffer.allocate(1);
+            while (accepted.hasRemaining()) {
+                if (socket.read(accepted) == -1) {
+                    throw new EOFException("Connection " + stripe + " to " + hostAddr + " was refused");
+                }
+            }
+            return socket;
+        } catch (Exception e) {
+            socket.close();
+            throw e;
+        }
+    }
+
     public void shutdown() throws InterruptedException {
         if (m_selector != null) {
             try {
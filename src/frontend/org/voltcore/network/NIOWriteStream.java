@@ -22,9 +22,12 @@ import java.nio.ByteBuffer;
 import java.nio.channels.GatheringByteChannel;
 import java.nio.channels.SelectionKey;
 import java.util.ArrayDeque;
+import java.util.Arrays;
 
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.utils.DeferredSerialization;
+import org.voltcore.utils.DirectDeferredSerialization;
+import org.voltcore.utils.GatheringDeferredSerialization;
 import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltcore.utils.EstTime;
 
@@ -43,6 +46,10 @@ import org.voltcore.utils.EstTime;
 *  best way to serialize data unless you can't pick a good value for m_port.m_expectedOutgoingMessageSize.
 *  In most cases you are optimizing for the bulk of your message and it is fine to guess a little high as the memory
 *  allocation works well.
+*
+*  Serialized buffers are written to the channel in batches of up to MAX_GATHER_BUFFERS buffers and
+*  MAX_GATHER_BYTES bytes with a single gathering write, so a queue of many small messages costs one
+*  system call per batch instead of one per buffer.
 */
 public class NIOWriteStream implements WriteStream {
 
@@ -53,9 +60,20 @@ public class NIOWriteStream implements WriteStream {
 
     private static final VoltLogger networkLog = new VoltLogger("NETWORK");
 
+    /**
+     * Most buffers and bytes handed to the channel in one gathering write
+     */
+    static final int MAX_GATHER_BUFFERS = Integer.getInteger("NETWORK_GATHER_BUFFERS", 64);
+    static final int MAX_GATHER_BYTES = Integer.getInteger("NETWORK_GATHER_BYTES", 512 * 1024);
+
     private boolean m_isShutdown = false;
 
-    private BBContainer m_currentWriteBuffer = null;
+    /**
+     * Flipped buffers that are being written to the channel, oldest first
+     */
+    private final ArrayDeque<BBContainer> m_writeBuffers = new ArrayDeque<BBContainer>();
+    private int m_writeBuffersRemaining = 0;
+    private final ByteBuffer m_gatherBuffers[] = new ByteBuffer[MAX_GATHER_BUFFERS];
 
     /**
      * Contains serialized buffers ready to write to the socket
@@ -82,6 +100,7 @@ public class NIOWriteStream implements WriteStream {
 
     private long m_bytesWritten = 0;
     private long m_messagesWritten = 0;
+    private long m_writeCalls = 0;
 
     /*
      * Used to provide incremental reads of the amount of
@@ -91,7 +110,12 @@ public class NIOWriteStream implements WriteStream {
      */
     private long m_lastBytesWritten = 0;
     private long m_lastMessagesWritten = 0;
+    private long m_lastWriteCalls = 0;
 
+    /**
+     * Returns the bytes written, messages written and calls made to write to the channel.
+     * Messages are counted as they are serialized into the network buffers.
+     */
     long[] getBytesAndMessagesWritten(boolean interval) {
         if (interval) {
             final long bytesWrittenThisTime = m_bytesWritten - m_lastBytesWritten;
@@ -99,9 +123,12 @@ public class NIOWriteStream implements WriteStream {
 
             final long messagesWrittenThisTime = m_messagesWritten - m_lastMessagesWritten;
             m_lastMessagesWritten = m_messagesWritten;
-            return new long[] { bytesWrittenThisTime, messagesWrittenThisTime };
+
+            final long writeCallsThisTime = m_writeCalls - m_lastWriteCalls;
+            m_lastWriteCalls = m_writeCalls;
+            return new long[] { bytesWrittenThisTime, messagesWrittenThisTime, writeCallsThisTime };
         } else {
-            return new long[] {m_bytesWritten, m_messagesWritten};
+            return new long[] {m_bytesWritten, m_messagesWritten, m_writeCalls};
         }
     }
 
@@ -134,13 +161,13 @@ public class NIOWriteStream implements WriteStream {
     @Override
     synchronized public int getOutstandingMessageCount()
     {
-        return m_queuedWrites.size() + m_queuedBuffers.size();
+        return m_queuedWrites.size() + m_queuedBuffers.size() + m_writeBuffers.size();
     }
 
     @Override
     synchronized public boolean isEmpty()
     {
-        return m_queuedBuffers.isEmpty() && m_queuedWrites.isEmpty() && m_currentWriteBuffer == null;
+        return m_queuedBuffers.isEmpty() && m_queuedWrites.isEmpty() && m_writeBuffers.isEmpty();
     }
 
     /**
@@ -191,11 +218,9 @@ public class NIOWriteStream implements WriteStream {
 
     /**
      * Does the work of queueing addititional buffers that have been serialized
-     * and choosing between gathering and regular writes to the channel. Also splits up very large
-     * writes of HeapByteBuffers into many smaller writes so Java doesn't allocate a monster DirectByteBuffer
-     * that will never be freed
+     * and choosing between gathering and regular writes to the channel. Queued buffers
+     * are batched into gathering writes bounded by MAX_GATHER_BUFFERS and MAX_GATHER_BYTES.
      * @param channel
-     * @param additional
      * @return
      * @throws IOException
      */
@@ -206,7 +231,7 @@ public class NIOWriteStream implements WriteStream {
             /*
              * Nothing to write
              */
-            if (m_currentWriteBuffer == null && m_queuedBuffers.isEmpty()) {
+            if (m_writeBuffers.isEmpty() && m_queuedBuffers.isEmpty()) {
                 if (m_hadBackPressure && m_queuedWrites.size() <= m_maxQueuedWritesBeforeBackpressure) {
                     backpressureEnded();
                 }
@@ -216,26 +241,29 @@ public class NIOWriteStream implements WriteStream {
                 return bytesWritten;
             }
 
-            ByteBuffer buffer = null;
-            if (m_currentWriteBuffer == null) {
-                m_currentWriteBuffer = m_queuedBuffers.poll();
-                buffer = (ByteBuffer) m_currentWriteBuffer.b.flip();
-            } else {
-                buffer = m_currentWriteBuffer.b;
-            }
+            fillWriteBuffers();
 
             rc = 0;
-            rc = channel.write(buffer);
-
-            //Discard the buffer back to a pool if no data remains
-            if (buffer.hasRemaining()) {
-                if (!m_hadBackPressure) {
-                    backpressureStarted();
-                }
+            if (m_writeBuffers.size() == 1) {
+                rc = channel.write(m_writeBuffers.peek().b);
             } else {
-                m_currentWriteBuffer.discard();
-                m_currentWriteBuffer = null;
-                m_messagesWritten++;
+                int count = 0;
+                for (BBContainer c : m_writeBuffers) {
+                    m_gatherBuffers[count++] = c.b;
+                }
+                rc = channel.write(m_gatherBuffers, 0, count);
+                Arrays.fill(m_gatherBuffers, 0, count, null);
+            }
+            m_writeCalls++;
+            m_writeBuffersRemaining -= rc;
+
+            //Discard the buffers back to the pool once no data remains
+            BBContainer written = null;
+            while ((written = m_writeBuffers.peek()) != null && !written.b.hasRemaining()) {
+                m_writeBuffers.poll().discard();
+            }
+            if (!m_writeBuffers.isEmpty() && !m_hadBackPressure) {
+                backpressureStarted();
             }
             bytesWritten += rc;
 
@@ -261,6 +289,22 @@ public class NIOWriteStream implements WriteStream {
         return bytesWritten;
     }
 
+    /**
+     * Move serialized buffers to the batch being written until it is full. A buffer is flipped
+     * when it joins the batch, after which nothing more is serialized into it.
+     */
+    private final void fillWriteBuffers() {
+        while (!m_queuedBuffers.isEmpty() &&
+                (m_writeBuffers.isEmpty() ||
+                 (m_writeBuffers.size() < MAX_GATHER_BUFFERS &&
+                  m_writeBuffersRemaining < MAX_GATHER_BYTES))) {
+            final BBContainer c = m_queuedBuffers.poll();
+            c.b.flip();
+            m_writeBuffersRemaining += c.b.remaining();
+            m_writeBuffers.offer(c);
+        }
+    }
+
 
     /**
      * Queue a message and defer the serialization of the message until later. This is the ideal mechanism
@@ -352,31 +396,169 @@ public class NIOWriteStream implements WriteStream {
 
         DeferredSerialization ds = null;
         int bytesQueued = 0;
-        while ((ds = oldlist.poll()) != null) {
-            ByteBuffer data[] = ds.serialize();
-            for (ByteBuffer buf : data) {
-                assert(buf.limit() == buf.capacity());//No sloppy serialization, we can allow it later if necessary
-                buf.clear();
-                bytesQueued += buf.remaining();
-                while (buf.hasRemaining()) {
-                    BBContainer outCont = m_queuedBuffers.peekLast();
-                    if (outCont == null || !outCont.b.hasRemaining()) {
-                        outCont = pool.acquire();
-                        outCont.b.clear();
-                        m_queuedBuffers.offer(outCont);
-                    }
-                    if (outCont.b.remaining() >= buf.remaining()) {
-                        outCont.b.put(buf);
-                    } else {
-                        final int oldLimit = buf.limit();
-                        buf.limit(buf.position() + outCont.b.remaining());
-                        outCont.b.put(buf);
-                        buf.limit(oldLimit);
-                    }
+        try {
+            while ((ds = oldlist.poll()) != null) {
+                m_messagesWritten++;
+                if (ds instanceof GatheringDeferredSerialization) {
+                    bytesQueued += serializeGathering((GatheringDeferredSerialization)ds, pool);
+                    continue;
+                }
+                if (ds instanceof DirectDeferredSerialization) {
+                    bytesQueued += serializeDirect((DirectDeferredSerialization)ds, pool);
+                    continue;
+                }
+                ByteBuffer data[] = ds.serialize();
+                for (ByteBuffer buf : data) {
+                    bytesQueued += copyToQueuedBuffers(buf, pool);
+                }
+            }
+        } finally {
+            // account for the messages queued before a failed one
+            updateQueued(bytesQueued, true);
+        }
+    }
+
+    /**
+     * Serialize straight into the last queued network buffer, or a fresh one if it doesn't
+     * have room. Consecutive small messages end up packed into one buffer and one write.
+     * Messages larger than a network buffer are serialized to the heap and copied.
+     */
+    private final int serializeDirect(final DirectDeferredSerialization ds, final NetworkDBBPool pool)
+            throws IOException {
+        final int size = ds.getSerializedSize();
+        if (size == 0) {
+            return 0;
+        }
+        if (size > NetworkDBBPool.BUFFER_SIZE) {
+            int bytesQueued = 0;
+            for (ByteBuffer buf : ds.serialize()) {
+                bytesQueued += copyToQueuedBuffers(buf, pool);
+            }
+            return bytesQueued;
+        }
+        BBContainer outCont = m_queuedBuffers.peekLast();
+        boolean acquired = false;
+        if (outCont == null || outCont.b.remaining() < size) {
+            outCont = pool.acquire();
+            outCont.b.clear();
+            m_queuedBuffers.offer(outCont);
+            acquired = true;
+        }
+        final int position = outCont.b.position();
+        boolean serialized = false;
+        try {
+            ds.serialize(outCont.b);
+            serialized = true;
+        } finally {
+            // Don't leave part of a message behind in front of the next one.
+            if (!serialized) {
+                if (acquired) {
+                    m_queuedBuffers.pollLast();
+                    outCont.discard();
+                } else {
+                    outCont.b.position(position);
                 }
             }
         }
-        updateQueued(bytesQueued, true);
+        assert(outCont.b.position() - position == size);
+        return size;
+    }
+
+    /**
+     * Serialize a message with some of its bytes in its own direct buffers. Those are
+     * queued as they are, between the network buffers holding the rest of the message,
+     * and go out in the same gathering writes.
+     */
+    private final int serializeGathering(final GatheringDeferredSerialization ds, final NetworkDBBPool pool)
+            throws IOException {
+        final int size = ds.getSerializedSize();
+        if (size == 0) {
+            return 0;
+        }
+        if (!ds.shouldGather()) {
+            return serializeDirect(ds, pool);
+        }
+        m_gatheringOutput.m_pool = pool;
+        m_gatheringOutput.m_bytes = 0;
+        try {
+            ds.serialize(m_gatheringOutput);
+        } finally {
+            m_gatheringOutput.m_pool = null;
+        }
+        assert(m_gatheringOutput.m_bytes == size);
+        return size;
+    }
+
+    private final class GatheringOutput implements GatheringDeferredSerialization.Output {
+        private NetworkDBBPool m_pool;
+        private int m_bytes;
+
+        @Override
+        public ByteBuffer reserve(int size) {
+            if (size > MAX_RESERVE) {
+                throw new IllegalArgumentException("Can't reserve " + size + " bytes");
+            }
+            BBContainer outCont = m_queuedBuffers.peekLast();
+            if (outCont == null || outCont.b.remaining() < size) {
+                outCont = m_pool.acquire();
+                outCont.b.clear();
+                m_queuedBuffers.offer(outCont);
+            }
+            m_bytes += size;
+            return outCont.b;
+        }
+
+        @Override
+        public void put(ByteBuffer src) {
+            m_bytes += copyRemaining(src, m_pool);
+        }
+
+        @Override
+        public void append(BBContainer c) {
+            if (c.b.position() != 0) {
+                throw new IllegalArgumentException("Appended buffers must be at position 0");
+            }
+            // Queued buffers are flipped when they are written, so leave this one
+            // looking like a network buffer that was filled up to its limit. Nothing
+            // else is serialized into it because it has no room left.
+            m_bytes += c.b.limit();
+            c.b.position(c.b.limit());
+            m_queuedBuffers.offer(c);
+        }
+    }
+    private final GatheringOutput m_gatheringOutput = new GatheringOutput();
+
+    /**
+     * Copy a serialized message into the queued network buffers, acquiring more as needed.
+     */
+    private final int copyToQueuedBuffers(final ByteBuffer buf, final NetworkDBBPool pool) {
+        assert(buf.limit() == buf.capacity());//No sloppy serialization, we can allow it later if necessary
+        buf.clear();
+        return copyRemaining(buf, pool);
+    }
+
+    /**
+     * Copy the remaining bytes of buf into the queued network buffers, acquiring more as needed.
+     */
+    private final int copyRemaining(final ByteBuffer buf, final NetworkDBBPool pool) {
+        final int bytesQueued = buf.remaining();
+        while (buf.hasRemaining()) {
+            BBContainer outCont = m_queuedBuffers.peekLast();
+            if (outCont == null || !outCont.b.hasRemaining()) {
+                outCont = pool.acquire();
+                outCont.b.clear();
+                m_queuedBuffers.offer(outCont);
+            }
+            if (outCont.b.remaining() >= buf.remaining()) {
+                outCont.b.put(buf);
+            } else {
+                final int oldLimit = buf.limit();
+                buf.limit(buf.position() + outCont.b.remaining());
+                outCont.b.put(buf);
+                buf.limit(oldLimit);
+            }
+        }
+        return bytesQueued;
     }
 
     /**
@@ -387,6 +569,11 @@ public class NIOWriteStream implements WriteStream {
         int bytesReleased = 0;
         m_isShutdown = true;
         BBContainer c = null;
+        while ((c = m_writeBuffers.poll()) != null) {
+            bytesReleased += c.b.remaining();
+            c.discard();
+        }
+        m_writeBuffersRemaining = 0;
         while ((c = m_queuedBuffers.poll()) != null) {
             bytesReleased += c.b.remaining();
             c.discard();
@@ -26,11 +26,12 @@ public class NetworkDBBPool {
 
     private final ArrayDeque<BBContainer> m_buffers = new ArrayDeque<BBContainer>();
     private static final int LIMIT = Integer.getInteger("NETWORK_DBB_LIMIT", 512);
+    static final int BUFFER_SIZE = 1024 * 32;
 
     BBContainer acquire() {
        final BBContainer cont = m_buffers.poll();
        if (cont == null) {
-           final BBContainer originContainer = DBBPool.allocateDirect(1024 * 32);
+           final BBContainer originContainer = DBBPool.allocateDirect(BUFFER_SIZE);
            return new BBContainer(originContainer.b, 0) {
                 @Override
                 public void discard() {
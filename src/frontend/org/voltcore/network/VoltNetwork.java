@@ -78,6 +78,7 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.utils.EstTimeUpdater;
@@ -97,6 +98,25 @@ class VoltNetwork implements Runnable
     private final String m_coreBindId;
 
     private final int m_networkId;
+    // only one network thread keeps EstTimeUpdater current
+    private final boolean m_updatesEstTime;
+
+    /*
+     * Load on this thread. The pool places new connections on the thread with the
+     * fewest, counting the registrations it has handed out but not yet finished.
+     */
+    private volatile int m_portCount = 0;
+    final AtomicInteger m_pendingRegistrations = new AtomicInteger();
+    // only touched on the network thread
+    private long m_selects = 0;
+    private long m_portsServiced = 0;
+    private long m_busyNanos = 0;
+    private long m_startNanos = System.nanoTime();
+    private long m_lastSelects = 0;
+    private long m_lastPortsServiced = 0;
+    private long m_lastBusyNanos = 0;
+    private long m_lastStatsNanos = m_startNanos;
+
     /**
      * Start this VoltNetwork's thread;
      */
@@ -110,8 +130,13 @@ class VoltNetwork implements Runnable
      * and runOnce should be called periodically
      **/
     VoltNetwork(int networkId, String coreBindId) {
-        m_thread = new Thread(this, "Volt Network - " + networkId);
+        this(networkId, coreBindId, "Volt Network", true);
+    }
+
+    VoltNetwork(int networkId, String coreBindId, String name, boolean updatesEstTime) {
+        m_thread = new Thread(this, name + " - " + networkId);
         m_networkId = networkId;
+        m_updatesEstTime = updatesEstTime && networkId == 0;
         m_thread.setDaemon(true);
         m_coreBindId = coreBindId;
         try {
@@ -125,6 +150,7 @@ class VoltNetwork implements Runnable
     VoltNetwork( Selector s) {
         m_thread = null;
         m_networkId = 0;
+        m_updatesEstTime = true;
         m_selector = s;
         m_coreBindId = null;
     }
@@ -189,6 +215,7 @@ class VoltNetwork implements Runnable
                     return port;
                 } finally {
                     m_ports.add(port);
+                    m_portCount = m_ports.size();
                 }
             }
         };
@@ -224,6 +251,7 @@ class VoltNetwork implements Runnable
                             selectionKey.cancel();
                         } finally {
                             m_ports.remove(port);
+                            m_portCount = m_ports.size();
                         }
                     }
                 } finally {
@@ -275,16 +303,21 @@ class VoltNetwork implements Runnable
             // Goal is to remove client dependency on this class in the medium term.
             //PosixJNAAffinity.INSTANCE.setAffinity(m_coreBindId);
         }
+        m_startNanos = System.nanoTime();
+        m_lastStatsNanos = m_startNanos;
         try {
             while (m_shouldStop == false) {
                 try {
                     while (m_shouldStop == false) {
                         int readyKeys = 0;
-                        if (m_networkId == 0) {
+                        if (m_updatesEstTime) {
                             readyKeys = m_selector.select(5);
                         } else {
                             readyKeys = m_selector.select();
                         }
+                        final long busyStart = System.nanoTime();
+                        m_selects++;
+                        m_portsServiced += readyKeys;
 
                         /*
                          * Run the task queue immediately after selection to catch
@@ -307,8 +340,9 @@ class VoltNetwork implements Runnable
                         while ((task = m_tasks.poll()) != null) {
                             task.run();
                         }
+                        m_busyNanos += System.nanoTime() - busyStart;
 
-                        if (m_networkId == 0) {
+                        if (m_updatesEstTime) {
                             Long delta = EstTimeUpdater.update(System.currentTimeMillis());
                             if ( delta != null ) {
                                 m_logger.warn("Network was " + delta + " milliseconds late in updating the estimated time");
@@ -383,6 +417,7 @@ class VoltNetwork implements Runnable
             key.interestOps (port.interestOps());
         } else {
             m_ports.remove(port);
+            m_portCount = m_ports.size();
         }
     }
 
@@ -433,6 +468,7 @@ class VoltNetwork implements Runnable
             long totalMessagesRead = 0;
             long totalWritten = 0;
             long totalMessagesWritten = 0;
+            long totalWriteCalls = 0;
             for (VoltPort p : m_ports) {
                 final long read = p.readStream().getBytesRead(interval);
                 final long writeInfo[] = p.writeStream().getBytesAndMessagesWritten(interval);
@@ -441,6 +477,7 @@ class VoltNetwork implements Runnable
                 totalMessagesRead += messagesRead;
                 totalWritten += writeInfo[0];
                 totalMessagesWritten += writeInfo[1];
+                totalWriteCalls += writeInfo[2];
                 retval.put(
                         p.connectionId(),
                         Pair.of(
@@ -449,7 +486,8 @@ class VoltNetwork implements Runnable
                                         read,
                                         messagesRead,
                                         writeInfo[0],
-                                        writeInfo[1] }));
+                                        writeInfo[1],
+                                        writeInfo[2] }));
             }
             retval.put(
                     -1L,
@@ -459,10 +497,56 @@ class VoltNetwork implements Runnable
                                     totalRead,
                                     totalMessagesRead,
                                     totalWritten,
-                                    totalMessagesWritten }));
+                                    totalMessagesWritten,
+                                    totalWriteCalls }));
             return retval;
     }
 
+    /**
+     * Load on this network thread: connections, selects, ports serviced, nanoseconds
+     * spent doing work and nanoseconds elapsed, since startup or the last interval.
+     */
+    private long[] getThreadStatsImpl(boolean interval) {
+        final long now = System.nanoTime();
+        long stats[];
+        if (interval) {
+            stats = new long[] {
+                    m_ports.size(),
+                    m_selects - m_lastSelects,
+                    m_portsServiced - m_lastPortsServiced,
+                    m_busyNanos - m_lastBusyNanos,
+                    now - m_lastStatsNanos };
+            m_lastSelects = m_selects;
+            m_lastPortsServiced = m_portsServiced;
+            m_lastBusyNanos = m_busyNanos;
+            m_lastStatsNanos = now;
+        } else {
+            stats = new long[] { m_ports.size(), m_selects, m_portsServiced, m_busyNanos, now - m_startNanos };
+        }
+        return stats;
+    }
+
+    Future<long[]> getThreadStats(final boolean interval) {
+        FutureTask<long[]> ft = new FutureTask<long[]>(new Callable<long[]>() {
+            @Override
+            public long[] call() throws Exception {
+                return getThreadStatsImpl(interval);
+            }
+        });
+        m_tasks.offer(ft);
+        m_selector.wakeup();
+        return ft;
+    }
+
+    /** Connections registered or being registered with this network, for placement */
+    int getLoad() {
+        return m_portCount + m_pendingRegistrations.get();
+    }
+
+    String getThreadName() {
+        return m_thread.getName();
+    }
+
     Future<Map<Long, Pair<String, long[]>>> getIOStats(final boolean interval) {
         Callable<Map<Long, Pair<String, long[]>>> task = new Callable<Map<Long, Pair<String, long[]>>>() {
             @Override
@@ -22,13 +22,13 @@ import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
-import java.util.concurrent.atomic.AtomicLong;
 
 import org.voltcore.logging.VoltLogger;
 import org.voltcore.utils.Pair;
@@ -38,26 +38,34 @@ public class VoltNetworkPool {
     private static final VoltLogger networkLog = new VoltLogger("NETWORK");
 
     private final VoltNetwork m_networks[];
-    private final AtomicLong m_nextWorkerSelection = new AtomicLong();
 
     public VoltNetworkPool() {
         this(1, null);
     }
 
     public VoltNetworkPool(int numThreads, Queue<String> coreBindIds) {
+        this(numThreads, coreBindIds, "Volt Network", true);
+    }
+
+    /**
+     * @param name Prefix of the network thread names
+     * @param updatesEstTime Whether this pool keeps EstTimeUpdater current. Only one
+     *                       pool in the process should.
+     */
+    public VoltNetworkPool(int numThreads, Queue<String> coreBindIds, String name, boolean updatesEstTime) {
         if (numThreads < 1) {
             throw new IllegalArgumentException("Must specify a positive number of threads");
         }
         if (coreBindIds == null || coreBindIds.isEmpty()) {
             m_networks = new VoltNetwork[numThreads];
             for (int ii = 0; ii < numThreads; ii++) {
-                m_networks[ii] = new VoltNetwork(ii, null);
+                m_networks[ii] = new VoltNetwork(ii, null, name, updatesEstTime);
             }
         } else {
             final int coreBindIdsSize = coreBindIds.size();
             m_networks = new VoltNetwork[coreBindIdsSize];
             for (int ii = 0; ii < coreBindIdsSize; ii++) {
-                m_networks[ii] = new VoltNetwork(ii, coreBindIds.poll());
+                m_networks[ii] = new VoltNetwork(ii, coreBindIds.poll(), name, updatesEstTime);
             }
         }
     }
@@ -85,8 +93,31 @@ public class VoltNetworkPool {
             final InputHandler handler,
             final int interestOps,
             final ReverseDNSPolicy dns) throws IOException {
-        VoltNetwork vn = m_networks[(int)(m_nextWorkerSelection.incrementAndGet() % m_networks.length)];
-        return vn.registerChannel(channel, handler, interestOps, dns);
+        VoltNetwork vn = pickNetwork();
+        try {
+            return vn.registerChannel(channel, handler, interestOps, dns);
+        } finally {
+            vn.m_pendingRegistrations.decrementAndGet();
+        }
+    }
+
+    /**
+     * A connection stays on the network thread it is registered with, so place it on
+     * the thread with the fewest connections rather than round robin, which drifts
+     * out of balance as connections come and go.
+     */
+    private synchronized VoltNetwork pickNetwork() {
+        VoltNetwork least = m_networks[0];
+        int leastLoad = least.getLoad();
+        for (int ii = 1; ii < m_networks.length; ii++) {
+            final int load = m_networks[ii].getLoad();
+            if (load < leastLoad) {
+                least = m_networks[ii];
+                leastLoad = load;
+            }
+        }
+        least.m_pendingRegistrations.incrementAndGet();
+        return least;
     }
 
     public List<Long> getThreadIds() {
@@ -97,6 +128,23 @@ public class VoltNetworkPool {
         return ids;
     }
 
+    /**
+     * Load on each network thread, keyed by thread name: connections, selects,
+     * ports serviced, nanoseconds busy and nanoseconds elapsed.
+     */
+    public Map<String, long[]> getThreadStats(final boolean interval)
+            throws ExecutionException, InterruptedException {
+        List<Future<long[]>> statTasks = new ArrayList<Future<long[]>>();
+        for (VoltNetwork vn : m_networks) {
+            statTasks.add(vn.getThreadStats(interval));
+        }
+        Map<String, long[]> retval = new LinkedHashMap<String, long[]>();
+        for (int ii = 0; ii < m_networks.length; ii++) {
+            retval.put(m_networks[ii].getThreadName(), statTasks.get(ii).get());
+        }
+        return retval;
+    }
+
     public Map<Long, Pair<String, long[]>>
         getIOStats(final boolean interval)
                 throws ExecutionException, InterruptedException {
@@ -0,0 +1,52 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltcore.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A DeferredSerialization whose size is known up front. A write stream that
+ * has room in one of its pooled network buffers serializes it straight into
+ * that buffer, without allocating and copying an intermediate heap buffer.
+ * Other write streams fall back on serialize().
+ */
+public abstract class DirectDeferredSerialization implements DeferredSerialization {
+    /**
+     * @return The exact number of bytes serialize(ByteBuffer) will write
+     */
+    public abstract int getSerializedSize();
+
+    /**
+     * Serialize the Object contained in this DeferredSerialization into buf
+     * at its current position. buf has at least getSerializedSize() bytes remaining.
+     */
+    public abstract void serialize(ByteBuffer buf) throws IOException;
+
+    @Override
+    public ByteBuffer[] serialize() throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate(getSerializedSize());
+        serialize(buf);
+        assert(!buf.hasRemaining());
+        buf.flip();
+        return new ByteBuffer[] { buf };
+    }
+
+    @Override
+    public void cancel() {}
+}
@@ -0,0 +1,73 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltcore.utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.voltcore.utils.DBBPool.BBContainer;
+
+/**
+ * A DirectDeferredSerialization for a message that already has some of its
+ * bytes in direct buffers. A write stream that supports it hands those buffers
+ * to the channel in the same gathering write as the rest of the message
+ * instead of copying them into its network buffers. Other write streams, and
+ * messages for which shouldGather() is false, are serialized as usual.
+ */
+public abstract class GatheringDeferredSerialization extends DirectDeferredSerialization {
+
+    /**
+     * The write stream's side of serialize(Output). Bytes are written to the
+     * stream in the order they are reserved, put or appended.
+     */
+    public interface Output {
+        /**
+         * Largest size that can be reserved at once
+         */
+        public static final int MAX_RESERVE = 4096;
+
+        /**
+         * @return a buffer with at least size bytes remaining to serialize the
+         * next bytes of the message into, at its current position
+         */
+        public ByteBuffer reserve(int size);
+
+        /**
+         * Copy the remaining bytes of src into the message.
+         */
+        public void put(ByteBuffer src);
+
+        /**
+         * Write the bytes of c.b, which must be at position 0, up to its limit
+         * without copying them. c is discarded once they have been written to
+         * the channel, or when the stream is closed.
+         */
+        public void append(BBContainer c);
+    }
+
+    /**
+     * @return true to have serialize(Output) called, false to have the message
+     * serialized with serialize(ByteBuffer). Only called after getSerializedSize().
+     */
+    public abstract boolean shouldGather();
+
+    /**
+     * Serialize the message, exactly getSerializedSize() bytes of it, to out.
+     */
+    public abstract void serialize(Output out) throws IOException;
+}
@@ -66,8 +66,9 @@ import org.voltcore.network.VoltPort;
 import org.voltcore.network.VoltProtocolHandler;
 import org.voltcore.network.WriteStream;
 import org.voltcore.utils.CoreUtils;
-import org.voltcore.utils.DeferredSerialization;
+import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltcore.utils.EstTime;
+import org.voltcore.utils.GatheringDeferredSerialization;
 import org.voltcore.utils.Pair;
 import org.voltcore.utils.RateLimitedLogger;
 import org.voltdb.ClientInterfaceHandleManager.Iv2InFlight;
@@ -80,7 +81,9 @@ import org.voltdb.catalog.SnapshotSchedule;
 import org.voltdb.catalog.Statement;
 import org.voltdb.catalog.Table;
 import org.voltdb.client.ClientResponse;
+import org.voltdb.client.ProcedureInvocation;
 import org.voltdb.client.ProcedureInvocationType;
+import org.voltdb.common.Constants;
 import org.voltdb.compiler.AdHocPlannedStmtBatch;
 import org.voltdb.compiler.AdHocPlannerWork;
 import org.voltdb.compiler.AsyncCompilerResult;
@@ -92,6 +95,7 @@ import org.voltdb.dtxn.LatencyStats.LatencyInfo;
 import org.voltdb.iv2.Cartographer;
 import org.voltdb.iv2.Iv2Trace;
 import org.voltdb.iv2.MpInitiator;
+import org.voltdb.jni.ResultHandOff;
 import org.voltdb.messaging.FastDeserializer;
 import org.voltdb.messaging.InitiateResponseMessage;
 import org.voltdb.messaging.Iv2EndOfLogMessage;
@@ -137,6 +141,14 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
     private final ClientAcceptor m_acceptor;
     private ClientAcceptor m_adminAcceptor;
 
+    /*
+     * With -DclientNetworkThreads=N client connections get a network pool of their
+     * own, so reading requests and serializing responses doesn't compete with
+     * intra-cluster traffic. Otherwise they share HostMessenger's pool.
+     */
+    static final int CLIENT_NETWORK_THREADS = Integer.getInteger("clientNetworkThreads", 0);
+    private final VoltNetworkPool m_clientNetwork;
+
     private final SnapshotDaemon m_snapshotDaemon = new SnapshotDaemon();
     private final SnapshotDaemonAdapter m_snapshotDaemonAdapter = new SnapshotDaemonAdapter();
 
@@ -646,8 +658,8 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
             }
 
             byte buildString[] = VoltDB.instance().getBuildString().getBytes("UTF-8");
-            responseBuffer = ByteBuffer.allocate(34 + buildString.length);
-            responseBuffer.putInt(30 + buildString.length);//message length
+            responseBuffer = ByteBuffer.allocate(35 + buildString.length);
+            responseBuffer.putInt(31 + buildString.length);//message length
             responseBuffer.put((byte)0);//version
 
             //Send positive response
@@ -657,7 +669,9 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
             responseBuffer.putLong(VoltDB.instance().getHostMessenger().getInstanceId().getTimestamp());
             responseBuffer.putInt(VoltDB.instance().getHostMessenger().getInstanceId().getCoord());
             responseBuffer.putInt(buildString.length);
-            responseBuffer.put(buildString).flip();
+            responseBuffer.put(buildString);
+            // older clients read only up to the build string and ignore this
+            responseBuffer.put(Constants.CAPABILITY_INVOCATION_BATCHES).flip();
             socket.write(responseBuffer);
             return handler;
         }
@@ -701,18 +715,70 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
         @Override
         public void handleMessage(ByteBuffer message, Connection c) {
             try {
-                final ClientResponseImpl error = handleRead(message, this, c);
-                if (error != null) {
-                    ByteBuffer buf = ByteBuffer.allocate(error.getSerializedSize() + 4);
-                    buf.putInt(buf.capacity() - 4);
-                    error.flattenToBuffer(buf).flip();
-                    c.writeStream().enqueue(buf);
+                if (message.get(message.position()) == ProcedureInvocation.BATCH_MARKER) {
+                    // a client batch: check the whole frame before initiating
+                    // any of it, then initiate each invocation on its own
+                    final List<ByteBuffer> invocations = unpackBatch(message);
+                    if (invocations == null) {
+                        networkLog.warn("Closing connection to " + c.getHostnameOrIP() +
+                                " after it sent a malformed invocation batch");
+                        c.unregister();
+                        return;
+                    }
+                    for (ByteBuffer invocation : invocations) {
+                        handleInvocation(invocation, c);
+                    }
+                }
+                else {
+                    handleInvocation(message, c);
                 }
             } catch (Exception e) {
                 throw new RuntimeException(e);
             }
         }
 
+        /**
+         * Split a batch message into its invocations, or return null if its
+         * count or any invocation length does not fit within the message.
+         */
+        private List<ByteBuffer> unpackBatch(ByteBuffer message) {
+            message.get();
+            if (message.remaining() < 4) {
+                return null;
+            }
+            final int count = message.getInt();
+            if (count < 0) {
+                return null;
+            }
+            // every invocation takes at least its length prefix
+            final List<ByteBuffer> invocations =
+                new ArrayList<ByteBuffer>(Math.min(count, message.remaining() / 4));
+            for (int ii = 0; ii < count; ii++) {
+                if (message.remaining() < 4) {
+                    return null;
+                }
+                final int length = message.getInt();
+                if (length < 0 || length > message.remaining()) {
+                    return null;
+                }
+                final ByteBuffer invocation = message.slice();
+                invocation.limit(length);
+                message.position(message.position() + length);
+                invocations.add(invocation);
+            }
+            return invocations;
+        }
+
+        private void handleInvocation(ByteBuffer message, Connection c) throws IOException {
+            final ClientResponseImpl error = handleRead(message, this, c);
+            if (error != null) {
+                ByteBuffer buf = ByteBuffer.allocate(error.getSerializedSize() + 4);
+                buf.putInt(buf.capacity() - 4);
+                error.flattenToBuffer(buf).flip();
+                c.writeStream().enqueue(buf);
+            }
+        }
+
         @Override
         public void started(final Connection c) {
             m_connection = c;
@@ -795,13 +861,20 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
 
     /**
      * Runs on the network thread to prepare client response. If a transaction needs to be
-     * restarted, it will get restarted here.
+     * restarted, it will get restarted here. The response is then serialized straight into
+     * the connection's pooled network buffers.
      */
-    private class ClientResponseWork implements DeferredSerialization {
+    private class ClientResponseWork extends GatheringDeferredSerialization {
         private final ClientInterfaceHandleManager cihm;
         private final InitiateResponseMessage response;
         private final Procedure catProc;
         private ClientResponseImpl clientResponse;
+        // -1 until prepared, 0 if nothing is sent to the client
+        private int m_serializedSize = -1;
+        // the length prefix and everything before the result tables
+        private int m_headerSize;
+        // result buffers the tables are backed by, released once they are serialized
+        private ResultHandOff m_resultHandOff;
 
         private ClientResponseWork(InitiateResponseMessage response,
                                    ClientInterfaceHandleManager cihm,
@@ -811,10 +884,100 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
             this.clientResponse = response.getClientResponseData();
             this.cihm = cihm;
             this.catProc = catProc;
+            m_resultHandOff = response.getResultHandOff();
+        }
+
+        @Override
+        public int getSerializedSize()
+        {
+            if (m_serializedSize < 0) {
+                m_serializedSize = prepare();
+            }
+            return m_serializedSize;
+        }
+
+        @Override
+        public void serialize(ByteBuffer buf) throws IOException
+        {
+            try {
+                if (getSerializedSize() == 0) {
+                    return;
+                }
+                buf.putInt(m_serializedSize - 4);
+                clientResponse.flattenToBuffer(buf);
+            } finally {
+                releaseResultHandOff();
+            }
+        }
+
+        /**
+         * Gather the tables still in the EE's result buffers instead of copying them
+         */
+        @Override
+        public boolean shouldGather()
+        {
+            if (m_resultHandOff == null || m_serializedSize <= 0) {
+                return false;
+            }
+            boolean handedOff = false;
+            m_headerSize = m_serializedSize;
+            for (VoltTable vt : clientResponse.getResults()) {
+                m_headerSize -= vt.getSerializedSize();
+                handedOff |= m_resultHandOff.getSerializedSize(vt) >= 0;
+            }
+            return handedOff && m_headerSize <= Output.MAX_RESERVE;
+        }
+
+        @Override
+        public void serialize(Output out) throws IOException
+        {
+            try {
+                ByteBuffer header = out.reserve(m_headerSize);
+                header.putInt(m_serializedSize - 4);
+                clientResponse.flattenHeaderToBuffer(header);
+                for (VoltTable vt : clientResponse.getResults()) {
+                    BBContainer serialized = m_resultHandOff.retainSerializedTable(vt);
+                    if (serialized != null) {
+                        out.append(serialized);
+                    } else {
+                        out.reserve(4).putInt(vt.getSerializedSize() - 4);
+                        out.put(vt.getTableDataReference());
+                    }
+                }
+            } finally {
+                releaseResultHandOff();
+            }
+        }
+
+        @Override
+        public void cancel()
+        {
+            releaseResultHandOff();
+        }
+
+        private void releaseResultHandOff()
+        {
+            if (m_resultHandOff != null) {
+                m_resultHandOff.release();
+                m_resultHandOff = null;
+            }
         }
 
         @Override
         public ByteBuffer[] serialize() throws IOException
+        {
+            if (getSerializedSize() == 0) {
+                releaseResultHandOff();
+                return new ByteBuffer[] {};
+            }
+            return super.serialize();
+        }
+
+        /**
+         * @return The size of the response including its length prefix, 0 if there is
+         * nothing to send because the handle is gone or the transaction was restarted.
+         */
+        private int prepare()
         {
             // HACK-O-RIFFIC
             // For now, figure out if this is a transaction that was ignored
@@ -830,7 +993,7 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
                 clientData = cihm.findHandle(response.getClientInterfaceHandle());
             }
             if (clientData == null) {
-                return new ByteBuffer[] {};
+                return 0;
             }
             final long now = System.currentTimeMillis();
             final int delta = (int)(now - clientData.m_creationTime);
@@ -839,7 +1002,7 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
             if (restartTransaction(clientData.m_messageSize, clientData.m_creationTime)) {
                 // If the transaction is successfully restarted, don't send a response to the
                 // client yet.
-                return new ByteBuffer[] {};
+                return 0;
             }
 
             /*
@@ -856,14 +1019,7 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
             clientResponse.setClusterRoundtrip(delta);
             clientResponse.setHash(null); // not part of wire protocol
 
-            ByteBuffer results = ByteBuffer.allocate(clientResponse.getSerializedSize() + 4);
-            results.putInt(results.capacity() - 4);
-            clientResponse.flattenToBuffer(results);
-            return new ByteBuffer[] { results };
-        }
-
-        @Override
-        public void cancel() {
+            return clientResponse.getSerializedSize() + 4;
         }
 
         /**
@@ -1061,9 +1217,15 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
 
         // pre-allocate single partition array
         m_allPartitions = allPartitions;
-        m_acceptor = new ClientAcceptor(intf, port, messenger.getNetwork(), false);
+        if (CLIENT_NETWORK_THREADS > 0) {
+            m_clientNetwork = new VoltNetworkPool(CLIENT_NETWORK_THREADS, null, "Client Network", false);
+        } else {
+            m_clientNetwork = null;
+        }
+        VoltNetworkPool network = m_clientNetwork != null ? m_clientNetwork : messenger.getNetwork();
+        m_acceptor = new ClientAcceptor(intf, port, network, false);
         m_adminAcceptor = null;
-        m_adminAcceptor = new ClientAcceptor(intf, adminPort, messenger.getNetwork(), true);
+        m_adminAcceptor = new ClientAcceptor(intf, adminPort, network, true);
         registerPolicies(replicationRole);
 
         m_mailbox = new LocalMailbox(messenger,  messenger.getHSIdForLocalSite(HostMessenger.CLIENT_INTERFACE_SITE_ID)) {
@@ -1092,6 +1254,8 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
                         //Pass it to the network thread like a ninja
                         //Only the network can use the CIHM
                         cihm.connection.writeStream().enqueue(new ClientResponseWork(response, cihm, procedure));
+                    } else if (response.getResultHandOff() != null) {
+                        response.getResultHandOff().release();
                     }
                 } else if (message instanceof BinaryPayloadMessage) {
                     handlePartitionFailOver((BinaryPayloadMessage)message);
@@ -2156,6 +2320,9 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
         {
             m_adminAcceptor.shutdown();
         }
+        if (m_clientNetwork != null) {
+            m_clientNetwork.shutdown();
+        }
         if (m_snapshotDaemon != null) {
             m_snapshotDaemon.shutdown();
         }
@@ -2168,6 +2335,14 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
         }
     }
 
+    /**
+     * @return The network pool dedicated to client connections, or null if they
+     * share HostMessenger's.
+     */
+    public VoltNetworkPool getClientNetwork() {
+        return m_clientNetwork;
+    }
+
     private volatile Thread m_localReplicasBuilder = null;
     public void startAcceptingConnections() throws IOException {
         /*
@@ -2212,6 +2387,9 @@ public class ClientInterface implements SnapshotDaemon.DaemonInitiator {
                 }
             }
         }, 0, 10, TimeUnit.MINUTES);
+        if (m_clientNetwork != null) {
+            m_clientNetwork.start();
+        }
         m_acceptor.start();
         if (m_adminAcceptor != null)
         {
@@ -83,7 +83,12 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
 
     private volatile long m_bytesWritten = 0;
 
-    private static final Semaphore m_bytesAllowedBeforeSync = new Semaphore((1024 * 1024) * 256);
+    /*
+     * Each target has its own budget of written but unsynced bytes, so a target
+     * on a slow disk blocks its own writes and not those of every other target.
+     * The node wide budget, m_totalBytesAllowedBeforeSync, still caps them all.
+     */
+    private final Semaphore m_bytesAllowedBeforeSync = new Semaphore(SNAPSHOT_UNSYNCED_BYTES);
     private final AtomicInteger m_bytesWrittenSinceLastSync = new AtomicInteger(0);
 
     private final ScheduledFuture<?> m_syncTask;
@@ -102,9 +107,34 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
     private final Condition m_noMoreOutstandingWriteTasksCondition =
             m_outstandingWriteTasksLock.newCondition();
 
-    private static final ListeningExecutorService m_es = CoreUtils.getSingleThreadExecutor("Snapshot write service ");
+    public static final int SNAPSHOT_WRITE_THREADS =
+            Integer.getInteger("SNAPSHOT_WRITE_THREADS", Math.min(4, CoreUtils.availableProcessors()));
+    // at least enough for a sync to be due while a full compressed chunk still fits
+    public static final int SNAPSHOT_UNSYNCED_BYTES =
+            Math.max((1024 * 1024) * 8, Integer.getInteger("SNAPSHOT_UNSYNCED_BYTES", (1024 * 1024) * 64));
+    // all the targets together, so many targets can't fill the page cache with unsynced data
+    public static final int SNAPSHOT_TOTAL_UNSYNCED_BYTES =
+            Math.max(SNAPSHOT_UNSYNCED_BYTES, Integer.getInteger("SNAPSHOT_TOTAL_UNSYNCED_BYTES", (1024 * 1024) * 256));
+    private static final Semaphore m_totalBytesAllowedBeforeSync = new Semaphore(SNAPSHOT_TOTAL_UNSYNCED_BYTES);
+
+    /*
+     * Writes for a target must be applied in order, so every target is assigned one
+     * single threaded write service for its lifetime. Targets are dealt out round robin
+     * so the tables (and disks) of a snapshot are written in parallel.
+     */
+    private static final ListeningExecutorService m_writeServices[] =
+            new ListeningExecutorService[Math.max(1, SNAPSHOT_WRITE_THREADS)];
+    static {
+        for (int ii = 0; ii < m_writeServices.length; ii++) {
+            m_writeServices[ii] = CoreUtils.getSingleThreadExecutor("Snapshot write service " + ii);
+        }
+    }
+    private static final AtomicInteger m_nextWriteService = new AtomicInteger(0);
+    private final ListeningExecutorService m_es;
+    // one sync thread per write thread so a slow fsync on one disk doesn't delay the others
     static final ListeningScheduledExecutorService m_syncService = MoreExecutors.listeningDecorator(
-            Executors.newSingleThreadScheduledExecutor(CoreUtils.getThreadFactory("Snapshot sync service")));
+            Executors.newScheduledThreadPool(m_writeServices.length,
+                                             CoreUtils.getThreadFactory("Snapshot sync service")));
 
     public static final int SNAPSHOT_SYNC_FREQUENCY = Integer.getInteger("SNAPSHOT_SYNC_FREQUENCY", 500);
 
@@ -152,6 +182,7 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
         String hostname = CoreUtils.getHostnameOrAddress();
         m_file = file;
         m_tableName = tableName;
+        m_es = m_writeServices[(m_nextWriteService.getAndIncrement() & Integer.MAX_VALUE) % m_writeServices.length];
         m_fos = new FileOutputStream(file);
         m_channel = m_fos.getChannel();
         m_needsFinalClose = !isReplicated;
@@ -264,13 +295,33 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
                             SNAP_LOG.debug("Asynchronous close syncing snasphot data, presumably graceful", e);
                         }
                     }
-                    m_bytesAllowedBeforeSync.release(bytesSinceLastSync);
+                    releaseUnsyncedBytes(bytesSinceLastSync);
                 }
             }
         }, SNAPSHOT_SYNC_FREQUENCY, SNAPSHOT_SYNC_FREQUENCY, TimeUnit.MILLISECONDS);
         m_syncTask = syncTask;
     }
 
+    /*
+     * Take from this target's budget first and then from the node wide one. Every
+     * target takes them in the same order, so none holds node wide bytes while
+     * it waits on its own budget.
+     */
+    private void acquireUnsyncedBytes(int bytes) throws InterruptedException {
+        m_bytesAllowedBeforeSync.acquire(bytes);
+        try {
+            m_totalBytesAllowedBeforeSync.acquire(bytes);
+        } catch (InterruptedException e) {
+            m_bytesAllowedBeforeSync.release(bytes);
+            throw e;
+        }
+    }
+
+    private void releaseUnsyncedBytes(int bytes) {
+        m_totalBytesAllowedBeforeSync.release(bytes);
+        m_bytesAllowedBeforeSync.release(bytes);
+    }
+
     @Override
     public boolean needsFinalClose()
     {
@@ -291,7 +342,7 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
             m_syncTask.cancel(false);
             m_channel.force(false);
         } finally {
-            m_bytesAllowedBeforeSync.release(m_bytesWrittenSinceLastSync.getAndSet(0));
+            releaseUnsyncedBytes(m_bytesWrittenSinceLastSync.getAndSet(0));
         }
         m_channel.position(8);
         ByteBuffer completed = ByteBuffer.allocate(1);
@@ -363,6 +414,8 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
         ListenableFuture<?> writeTask = m_es.submit(new Callable<Object>() {
             @Override
             public Object call() throws Exception {
+                // bytes taken from the unsynced budgets, given back by the next sync even if the write fails
+                int unsyncedBytes = 0;
                 try {
                     if (m_acceptOneWrite) {
                         m_acceptOneWrite = false;
@@ -383,7 +436,8 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
                             payloadBuffer.position(0);
 
                             ByteBuffer lengthPrefix = ByteBuffer.allocate(12);
-                            m_bytesAllowedBeforeSync.acquire(payloadBuffer.remaining());
+                            acquireUnsyncedBytes(payloadBuffer.remaining());
+                            unsyncedBytes = payloadBuffer.remaining();
                             //Length prefix does not include 4 header items, just compressd payload
                             //that follows
                             lengthPrefix.putInt(payloadBuffer.remaining() - 16);//length prefix
@@ -409,18 +463,20 @@ public class DefaultSnapshotDataTarget implements SnapshotDataTarget {
                             payloadContainer.discard();
                         }
                     } else {
+                        acquireUnsyncedBytes(tupleData.b.remaining());
+                        unsyncedBytes = tupleData.b.remaining();
                         while (tupleData.b.hasRemaining()) {
                             totalWritten += m_channel.write(tupleData.b);
                         }
                     }
                     m_bytesWritten += totalWritten;
-                    m_bytesWrittenSinceLastSync.addAndGet(totalWritten);
                 } catch (IOException e) {
                     m_writeException = e;
                     SNAP_LOG.error("Error while attempting to write snapshot data to file " + m_file, e);
                     m_writeFailed = true;
                     throw e;
                 } finally {
+                    m_bytesWrittenSinceLastSync.addAndGet(unsyncedBytes);
                     try {
                         tupleData.discard();
                     } finally {
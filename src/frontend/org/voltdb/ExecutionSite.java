@@ -71,6 +71,7 @@ import org.voltdb.fault.VoltFault.FaultType;
 import org.voltdb.iv2.JoinProducerBase;
 import org.voltdb.jni.ExecutionEngine;
 import org.voltdb.jni.MockExecutionEngine;
+import org.voltdb.jni.ResultHandOff;
 import org.voltdb.messaging.CompleteTransactionMessage;
 import org.voltdb.messaging.FragmentResponseMessage;
 import org.voltdb.messaging.FragmentTaskMessage;
@@ -1703,4 +1704,12 @@ implements Runnable, SiteProcedureConnection, SiteSnapshotConnection
 
     @Override
     public void setProcedureName(String procedureName) {}
+
+    @Override
+    public void beginResultHandOff() {}
+
+    @Override
+    public ResultHandOff endResultHandOff() {
+        return null;
+    }
 }
@@ -17,7 +17,9 @@
 
 package org.voltdb;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -29,6 +31,8 @@ import javax.servlet.http.HttpServletResponse;
 import org.eclipse.jetty.continuation.Continuation;
 import org.eclipse.jetty.continuation.ContinuationSupport;
 import org.eclipse.jetty.server.Request;
+import org.json_voltpatches.JSONException;
+import org.json_voltpatches.JSONWriter;
 import org.voltdb.client.AuthenticatedConnectionCache;
 import org.voltdb.client.Client;
 import org.voltdb.client.ClientResponse;
@@ -43,38 +47,28 @@ public class HTTPClientInterface {
     static final int CACHE_TARGET_SIZE = 10;
     private final AtomicBoolean m_shouldUpdateCatalog = new AtomicBoolean(false);
 
+    // request attribute holding the response for a resumed continuation
+    static final String RESPONSE_ATTRIBUTE = "org.voltdb.HTTPClientInterface.response";
+    static final int JSON_BUFFER_SIZE = 8 * 1024;
+
     class JSONProcCallback implements ProcedureCallback {
 
-        final Request m_request;
         final Continuation m_continuation;
-        final String m_jsonp;
         final CountDownLatch m_latch = new CountDownLatch(1);
 
-        public JSONProcCallback(Request request, Continuation continuation, String jsonp) {
-            assert(request != null);
+        public JSONProcCallback(Continuation continuation) {
             assert(continuation != null);
 
-            m_request = request;
             m_continuation = continuation;
-            m_jsonp = jsonp;
         }
 
         @Override
         public void clientCallback(ClientResponse clientResponse) throws Exception {
-            ClientResponseImpl rimpl = (ClientResponseImpl) clientResponse;
-            String msg = rimpl.toJSONString();
-
-            // handle jsonp pattern
-            // http://en.wikipedia.org/wiki/JSON#The_Basic_Idea:_Retrieving_JSON_via_Script_Tags
-            if (m_jsonp != null)
-                msg = String.format("%s( %s )", m_jsonp, msg);
-
-            // send the response back through jetty
-            HttpServletResponse response = (HttpServletResponse) m_continuation.getServletResponse();
-            response.setStatus(HttpServletResponse.SC_OK);
-            m_request.setHandled(true);
-            response.getWriter().print(msg);
-            m_continuation.complete();
+            // Don't encode the response on the client's network thread; hand it
+            // back to jetty, which redispatches the request on one of its own
+            // threads where sendResponse() streams it out.
+            m_continuation.setAttribute(RESPONSE_ATTRIBUTE, clientResponse);
+            m_continuation.resume();
             m_latch.countDown();
         }
 
@@ -126,7 +120,6 @@ public class HTTPClientInterface {
             String hashedPassword = request.getParameter("Hashedpassword");
             String procName = request.getParameter("Procedure");
             String params = request.getParameter("Parameters");
-            String jsonp = request.getParameter("jsonp");
             String admin = request.getParameter("admin");
 
             // check for admin mode
@@ -171,7 +164,7 @@ public class HTTPClientInterface {
             // get a connection to localhost from the pool
             client = m_connections.getClient(username, hashedPasswordBytes, adminMode);
 
-            JSONProcCallback cb = new JSONProcCallback(request, continuation, jsonp);
+            JSONProcCallback cb = new JSONProcCallback(continuation);
             boolean success;
 
             if (params != null) {
@@ -208,11 +201,8 @@ public class HTTPClientInterface {
             VoltLogger log = new VoltLogger("HOST");
             log.warn("JSON interface: " + msg);
             ClientResponseImpl rimpl = new ClientResponseImpl(ClientResponse.UNEXPECTED_FAILURE, new VoltTable[0], msg);
-            msg = rimpl.toJSONString();
-            response.setStatus(HttpServletResponse.SC_OK);
-            request.setHandled(true);
             try {
-                response.getWriter().print(msg);
+                writeResponse(rimpl, request, response);
                 continuation.complete();
             } catch (IOException e1) {}
         }
@@ -238,6 +228,52 @@ public class HTTPClientInterface {
         }
     }
 
+    /**
+     * Finish a request whose continuation was resumed by a procedure response.
+     * Called on the jetty thread the request was redispatched to.
+     * @return false if no response is waiting, e.g. on an internal jetty retry.
+     */
+    public boolean sendResponse(Request request, HttpServletResponse response) throws IOException {
+        ClientResponseImpl rimpl = (ClientResponseImpl) request.getAttribute(RESPONSE_ATTRIBUTE);
+        if (rimpl == null) {
+            return false;
+        }
+        request.removeAttribute(RESPONSE_ATTRIBUTE);
+        writeResponse(rimpl, request, response);
+        return true;
+    }
+
+    /**
+     * Stream the JSON for a response straight into the servlet writer, a row
+     * at a time, so large results never exist as one string.
+     */
+    static void writeResponse(ClientResponseImpl rimpl, Request request, HttpServletResponse response)
+            throws IOException {
+        response.setStatus(HttpServletResponse.SC_OK);
+        request.setHandled(true);
+        PrintWriter writer = response.getWriter();
+
+        // handle jsonp pattern
+        // http://en.wikipedia.org/wiki/JSON#The_Basic_Idea:_Retrieving_JSON_via_Script_Tags
+        String jsonp = request.getParameter("jsonp");
+        if (jsonp != null) {
+            writer.write(jsonp);
+            writer.write("( ");
+        }
+        // JSONWriter emits many tiny strings; batch them up before they hit
+        // the servlet writer, which locks and encodes on every call
+        BufferedWriter buffered = new BufferedWriter(writer, JSON_BUFFER_SIZE);
+        try {
+            rimpl.writeJSON(new JSONWriter(buffered));
+        } catch (JSONException e) {
+            throw new IOException("Failed to serialize a response to JSON.", e);
+        }
+        buffered.flush();
+        if (jsonp != null) {
+            writer.write(" )");
+        }
+    }
+
     public void notifyOfCatalogUpdate()
     {
         m_shouldUpdateCatalog.set(true);
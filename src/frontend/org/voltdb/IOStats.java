@@ -25,6 +25,10 @@ import java.util.Map;
 import org.voltdb.VoltTable.ColumnInfo;
 import org.voltcore.utils.Pair;
 
+/**
+ * Network traffic per connection. WRITE_CALLS is the number of writes to the socket,
+ * so WRITE_CALLS / MESSAGES_WRITTEN is the system calls paid per message sent.
+ */
 public class IOStats extends StatsSource {
     private Map<Long, Pair<String, long[]>> m_ioStats =
         new HashMap<Long, Pair<String,long[]>>();
@@ -69,6 +73,7 @@ public class IOStats extends StatsSource {
         columns.add(new ColumnInfo("MESSAGES_READ", VoltType.BIGINT));
         columns.add(new ColumnInfo("BYTES_WRITTEN", VoltType.BIGINT));
         columns.add(new ColumnInfo("MESSAGES_WRITTEN", VoltType.BIGINT));
+        columns.add(new ColumnInfo("WRITE_CALLS", VoltType.BIGINT));
 
     }
 
@@ -83,6 +88,7 @@ public class IOStats extends StatsSource {
         rowValues[columnNameToIndex.get("MESSAGES_READ")] = counters[1];
         rowValues[columnNameToIndex.get("BYTES_WRITTEN")] = counters[2];
         rowValues[columnNameToIndex.get("MESSAGES_WRITTEN")] = counters[3];
+        rowValues[columnNameToIndex.get("WRITE_CALLS")] = counters[4];
         super.updateStatsRow(rowKey, rowValues);
     }
 
@@ -90,6 +96,19 @@ public class IOStats extends StatsSource {
     protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
         try {
             m_ioStats = VoltDB.instance().getHostMessenger().getNetwork().getIOStats(interval);
+            // client connections may be on a network pool of their own
+            for (ClientInterface ci : VoltDB.instance().getClientInterfaces()) {
+                if (ci.getClientNetwork() == null) {
+                    continue;
+                }
+                Map<Long, Pair<String, long[]>> clientStats = ci.getClientNetwork().getIOStats(interval);
+                final long global[] = m_ioStats.get(-1L).getSecond();
+                final long clientGlobal[] = clientStats.remove(-1L).getSecond();
+                for (int ii = 0; ii < global.length; ii++) {
+                    global[ii] += clientGlobal[ii];
+                }
+                m_ioStats.putAll(clientStats);
+            }
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
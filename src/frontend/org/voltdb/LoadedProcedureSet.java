@@ -136,6 +136,10 @@ public class LoadedProcedureSet {
 
             assert(procedure != null);
             runner = m_runnerFactory.create(procedure, proc, csp);
+            if (proc.getHasjava() && runner.m_language == Language.JAVA) {
+                // read parameters straight into run() instead of calling it reflectively
+                runner.setInvoker(ProcedureInvoker.forMethod(runner.m_procMethod));
+            }
             builder.put(proc.getTypeName().intern(), runner);
         }
         return builder;
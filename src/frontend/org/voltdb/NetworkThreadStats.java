@@ -0,0 +1,104 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.voltdb;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.voltdb.VoltTable.ColumnInfo;
+
+/**
+ * Load on each network thread, the intra-cluster pool's and, when client connections
+ * have a pool of their own, the client pool's. SELECTS is the number of trips through
+ * the selection loop, PORTS_SERVICED the connections found ready on those trips, and
+ * PERCENT_BUSY the share of the time spent doing work rather than waiting in select.
+ */
+public class NetworkThreadStats extends StatsSource {
+    private Map<String, long[]> m_threadStats = new LinkedHashMap<String, long[]>();
+
+    /**
+     * A dummy iterator that wraps an Iterator<String> and provides the
+     * Iterator<Object>
+     */
+    private class DummyIterator implements Iterator<Object> {
+        private final Iterator<String> i;
+
+        private DummyIterator(Iterator<String> i) {
+            this.i = i;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return i.hasNext();
+        }
+
+        @Override
+        public Object next() {
+            return i.next();
+        }
+
+        @Override
+        public void remove() {
+            i.remove();
+        }
+    }
+
+    public NetworkThreadStats() {
+        super(false);
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo("THREAD_NAME", VoltType.STRING));
+        columns.add(new ColumnInfo("CONNECTIONS", VoltType.INTEGER));
+        columns.add(new ColumnInfo("SELECTS", VoltType.BIGINT));
+        columns.add(new ColumnInfo("PORTS_SERVICED", VoltType.BIGINT));
+        columns.add(new ColumnInfo("PERCENT_BUSY", VoltType.INTEGER));
+    }
+
+    @Override
+    protected void updateStatsRow(Object rowKey, Object[] rowValues) {
+        final long counters[] = m_threadStats.get(rowKey);
+        rowValues[columnNameToIndex.get("THREAD_NAME")] = rowKey;
+        rowValues[columnNameToIndex.get("CONNECTIONS")] = (int)counters[0];
+        rowValues[columnNameToIndex.get("SELECTS")] = counters[1];
+        rowValues[columnNameToIndex.get("PORTS_SERVICED")] = counters[2];
+        rowValues[columnNameToIndex.get("PERCENT_BUSY")] =
+            counters[4] > 0 ? (int)(counters[3] * 100 / counters[4]) : 0;
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        try {
+            Map<String, long[]> stats =
+                VoltDB.instance().getHostMessenger().getNetwork().getThreadStats(interval);
+            for (ClientInterface ci : VoltDB.instance().getClientInterfaces()) {
+                if (ci.getClientNetwork() != null) {
+                    stats.putAll(ci.getClientNetwork().getThreadStats(interval));
+                }
+            }
+            m_threadStats = stats;
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+        return new DummyIterator(m_threadStats.keySet().iterator());
+    }
+}
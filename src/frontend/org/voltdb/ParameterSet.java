@@ -305,6 +305,13 @@ public class ParameterSet implements JSONString {
         return opi.value;
     }
 
+    /*
+     * Read the next parameter, for the generated procedure invokers.
+     */
+    static Object readParameter(ByteBuffer in) throws IOException {
+        return readOneParameter(in).value;
+    }
+
     static Object getAKosherArray(Object[] array) {
         int tables = 0;
         int integers = 0;
@@ -41,4 +41,8 @@ public abstract class PrivateVoltTableFactory {
         vt.initFromBuffer(shared);
         return vt;
     }
+
+    public static void invalidateVoltTable(VoltTable table) {
+        table.invalidate();
+    }
 }
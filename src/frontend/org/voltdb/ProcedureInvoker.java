@@ -0,0 +1,221 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import org.voltcore.logging.VoltLogger;
+
+/**
+ * Calls a Java stored procedure's run() method with parameters read straight
+ * from the serialized invocation, without building a ParameterSet, converting
+ * an Object[] or going through reflection.
+ *
+ * Subclasses are generated per procedure class by ProcedureInvokerGenerator.
+ * The generated invoke() reads each parameter with the static read method for
+ * the exact type run() declares and then calls run() directly. The read
+ * methods are public only so the generated classes, which live in their own
+ * class loader, can call them. A value of any other type is converted by
+ * ParameterConverter exactly as ProcedureRunner.call() would.
+ */
+public abstract class ProcedureInvoker {
+
+    private static final VoltLogger log = new VoltLogger("HOST");
+
+    /**
+     * Generated invokers can be turned off to fall back to reflection.
+     */
+    static final boolean ENABLED = Boolean.valueOf(System.getProperty("compiledProcedureInvokers", "true"));
+
+    // generated classes by procedure class, weak both ways so old catalogs' classes can be unloaded
+    private static final Map<Class<?>, WeakReference<Class<?>>> s_invokerClasses =
+            new WeakHashMap<Class<?>, WeakReference<Class<?>>>();
+
+    /**
+     * Thrown when the serialized parameters can't be passed to run(). Always
+     * thrown before run() is called.
+     */
+    public static class ParameterException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        // index of the parameter, or -1 if the count is wrong
+        final int m_index;
+        final int m_expectedCount;
+        final int m_receivedCount;
+        // true if the value was read but couldn't be converted
+        final boolean m_conversion;
+
+        ParameterException(int index, boolean conversion, Throwable cause) {
+            super(cause);
+            m_index = index;
+            m_expectedCount = 0;
+            m_receivedCount = 0;
+            m_conversion = conversion;
+        }
+
+        ParameterException(int expectedCount, int receivedCount) {
+            m_index = -1;
+            m_expectedCount = expectedCount;
+            m_receivedCount = receivedCount;
+            m_conversion = false;
+        }
+    }
+
+    protected ProcedureInvoker() {
+    }
+
+    /**
+     * Read the parameters from the buffer and call run() on the procedure.
+     *
+     * @return what run() returned, boxed if it is primitive
+     * @throws ParameterException if the parameters don't fit run()
+     * @throws Throwable whatever run() throws
+     */
+    public abstract Object invoke(VoltProcedure procedure, ByteBuffer params) throws Throwable;
+
+    /**
+     * Get an invoker for the run() method of a procedure class.
+     *
+     * @return the invoker, or null if the method can't be called from generated
+     * code and must be called through reflection
+     */
+    static ProcedureInvoker forMethod(Method run) {
+        if (!ENABLED || run == null) {
+            return null;
+        }
+        Class<?> procClass = run.getDeclaringClass();
+        try {
+            Class<?> invokerClass = null;
+            synchronized (s_invokerClasses) {
+                WeakReference<Class<?>> ref = s_invokerClasses.get(procClass);
+                if (ref != null) {
+                    invokerClass = ref.get();
+                }
+                if (invokerClass == null) {
+                    invokerClass = ProcedureInvokerGenerator.generate(run);
+                    if (invokerClass == null) {
+                        return null;
+                    }
+                    s_invokerClasses.put(procClass, new WeakReference<Class<?>>(invokerClass));
+                }
+            }
+            return (ProcedureInvoker) invokerClass.newInstance();
+        } catch (Exception e) {
+            log.warn("Unable to generate an invoker for procedure " + procClass.getName() +
+                     ", it will be called through reflection", e);
+            return null;
+        } catch (LinkageError e) {
+            log.warn("Unable to generate an invoker for procedure " + procClass.getName() +
+                     ", it will be called through reflection", e);
+            return null;
+        }
+    }
+
+    public static void checkParameterCount(ByteBuffer in, int expected) {
+        int count;
+        try {
+            count = in.getShort();
+        } catch (RuntimeException e) {
+            throw new ParameterException(0, false, e);
+        }
+        if (count != expected) {
+            throw new ParameterException(expected, count);
+        }
+    }
+
+    public static long readLong(ByteBuffer in, int index) {
+        try {
+            if (in.get(in.position()) == VoltType.BIGINT.getValue()) {
+                in.get();
+                return in.getLong();
+            }
+        } catch (RuntimeException e) {
+            throw new ParameterException(index, false, e);
+        }
+        return (Long) readObject(in, index, long.class);
+    }
+
+    public static int readInt(ByteBuffer in, int index) {
+        try {
+            if (in.get(in.position()) == VoltType.INTEGER.getValue()) {
+                in.get();
+                return in.getInt();
+            }
+        } catch (RuntimeException e) {
+            throw new ParameterException(index, false, e);
+        }
+        return (Integer) readObject(in, index, int.class);
+    }
+
+    public static short readShort(ByteBuffer in, int index) {
+        try {
+            if (in.get(in.position()) == VoltType.SMALLINT.getValue()) {
+                in.get();
+                return in.getShort();
+            }
+        } catch (RuntimeException e) {
+            throw new ParameterException(index, false, e);
+        }
+        return (Short) readObject(in, index, short.class);
+    }
+
+    public static byte readByte(ByteBuffer in, int index) {
+        try {
+            if (in.get(in.position()) == VoltType.TINYINT.getValue()) {
+                in.get();
+                return in.get();
+            }
+        } catch (RuntimeException e) {
+            throw new ParameterException(index, false, e);
+        }
+        return (Byte) readObject(in, index, byte.class);
+    }
+
+    public static double readDouble(ByteBuffer in, int index) {
+        try {
+            if (in.get(in.position()) == VoltType.FLOAT.getValue()) {
+                in.get();
+                return in.getDouble();
+            }
+        } catch (RuntimeException e) {
+            throw new ParameterException(index, false, e);
+        }
+        return (Double) readObject(in, index, double.class);
+    }
+
+    /**
+     * Read a parameter and convert it to the given type with ParameterConverter.
+     */
+    public static Object readObject(ByteBuffer in, int index, Class<?> type) {
+        Object value;
+        try {
+            value = ParameterSet.readParameter(in);
+        } catch (Exception e) {
+            throw new ParameterException(index, false, e);
+        }
+        try {
+            return ParameterConverter.tryToMakeCompatible(type, value);
+        } catch (Exception e) {
+            throw new ParameterException(index, true, e);
+        }
+    }
+}
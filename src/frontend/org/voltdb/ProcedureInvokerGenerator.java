@@ -0,0 +1,371 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes the class file for a ProcedureInvoker subclass that calls one
+ * procedure's run() method. The generated invoke() is straight-line code:
+ *
+ * <pre>
+ *   ProcedureInvoker.checkParameterCount(params, N);
+ *   return ((Proc) procedure).run(ProcedureInvoker.readLong(params, 0),
+ *                                 (String) ProcedureInvoker.readObject(params, 1, String.class),
+ *                                 ...);
+ * </pre>
+ *
+ * with a primitive result boxed and a void result returned as null. Having no
+ * branches means the class needs no stack map frames, so it is written as a
+ * version 50 (Java 6) class file by hand rather than with a bytecode library.
+ */
+class ProcedureInvokerGenerator {
+
+    private static final int CLASS_VERSION = 50;
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    private static final int ACONST_NULL = 0x01;
+    private static final int ICONST_0 = 0x03;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC_W = 0x13;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int ALOAD_2 = 0x2c;
+    private static final int ARETURN = 0xb0;
+    private static final int RETURN = 0xb1;
+    private static final int INVOKEVIRTUAL = 0xb6;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+    private static final int CHECKCAST = 0xc0;
+
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    private static final String INVOKER = internalName(ProcedureInvoker.class);
+
+    // the read method for each primitive parameter type that has one
+    private static final Map<Class<?>, String> s_readMethods = new HashMap<Class<?>, String>();
+    static {
+        s_readMethods.put(long.class, "readLong");
+        s_readMethods.put(int.class, "readInt");
+        s_readMethods.put(short.class, "readShort");
+        s_readMethods.put(byte.class, "readByte");
+        s_readMethods.put(double.class, "readDouble");
+    }
+
+    // the wrapper used to box each primitive result
+    private static final Map<Class<?>, Class<?>> s_wrappers = new HashMap<Class<?>, Class<?>>();
+    static {
+        s_wrappers.put(long.class, Long.class);
+        s_wrappers.put(int.class, Integer.class);
+        s_wrappers.put(short.class, Short.class);
+        s_wrappers.put(byte.class, Byte.class);
+        s_wrappers.put(double.class, Double.class);
+        s_wrappers.put(float.class, Float.class);
+        s_wrappers.put(boolean.class, Boolean.class);
+        s_wrappers.put(char.class, Character.class);
+    }
+
+    /**
+     * Loads one generated class. The parent is the procedure's class loader so
+     * the generated code resolves the procedure class and org.voltdb the same
+     * way the procedure does.
+     */
+    private static class InvokerClassLoader extends ClassLoader {
+        InvokerClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        Class<?> define(String name, byte[] classFile) {
+            return defineClass(name, classFile, 0, classFile.length);
+        }
+    }
+
+    /**
+     * Generate and load an invoker class for the run() method.
+     *
+     * @return the class, or null if run() can't be called from another package
+     * or has a parameter type there is no read method for
+     */
+    static Class<?> generate(Method run) throws IOException {
+        Class<?> procClass = run.getDeclaringClass();
+        if (!isAccessible(procClass) || !Modifier.isPublic(run.getModifiers()) ||
+                Modifier.isStatic(run.getModifiers()) || !isAccessible(run.getReturnType())) {
+            return null;
+        }
+        for (Class<?> type : run.getParameterTypes()) {
+            if (type.isPrimitive() ? !s_readMethods.containsKey(type) : !isAccessible(type)) {
+                return null;
+            }
+        }
+
+        String name = "org.voltdb.generated." + procClass.getName().replace('.', '_') + "Invoker";
+        byte[] classFile = new Generator(name.replace('.', '/'), run).write();
+        ClassLoader parent = procClass.getClassLoader();
+        if (parent == null) {
+            parent = ProcedureInvoker.class.getClassLoader();
+        }
+        return new InvokerClassLoader(parent).define(name, classFile);
+    }
+
+    private static boolean isAccessible(Class<?> type) {
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        return type.isPrimitive() || Modifier.isPublic(type.getModifiers());
+    }
+
+    static String internalName(Class<?> type) {
+        // arrays are named by their descriptors in class constants
+        return type.getName().replace('.', '/');
+    }
+
+    static String descriptor(Class<?> type) {
+        if (type.isArray()) {
+            return internalName(type);
+        }
+        if (type == void.class) return "V";
+        if (type == long.class) return "J";
+        if (type == int.class) return "I";
+        if (type == short.class) return "S";
+        if (type == byte.class) return "B";
+        if (type == double.class) return "D";
+        if (type == float.class) return "F";
+        if (type == boolean.class) return "Z";
+        if (type == char.class) return "C";
+        return "L" + internalName(type) + ";";
+    }
+
+    private static String methodDescriptor(Class<?> returnType, Class<?>... parameterTypes) {
+        StringBuilder sb = new StringBuilder("(");
+        for (Class<?> type : parameterTypes) {
+            sb.append(descriptor(type));
+        }
+        return sb.append(')').append(descriptor(returnType)).toString();
+    }
+
+    private static int slots(Class<?> type) {
+        return (type == long.class || type == double.class) ? 2 : 1;
+    }
+
+    /**
+     * Writes one class file. Constants are added to the pool as the code
+     * refers to them.
+     */
+    private static class Generator {
+        private final String m_className;
+        private final Method m_run;
+
+        private final ByteArrayOutputStream m_poolBytes = new ByteArrayOutputStream();
+        private final DataOutputStream m_pool = new DataOutputStream(m_poolBytes);
+        private final Map<String, Integer> m_constants = new HashMap<String, Integer>();
+        private int m_poolCount = 1;
+
+        Generator(String className, Method run) {
+            m_className = className;
+            m_run = run;
+        }
+
+        byte[] write() throws IOException {
+            int thisClass = classConstant(m_className);
+            int superClass = classConstant(INVOKER);
+            byte[] constructor = method(ACC_PUBLIC, "<init>", "()V", constructorCode(), 1, 1);
+            Class<?> params[] = m_run.getParameterTypes();
+            int maxStack = 1;
+            for (Class<?> type : params) {
+                maxStack += slots(type);
+            }
+            // room for the read method's arguments on top of the parameters read so far
+            maxStack += 3;
+            byte[] invoke = method(ACC_PUBLIC, "invoke",
+                    methodDescriptor(Object.class, VoltProcedure.class, ByteBuffer.class),
+                    invokeCode(), maxStack, 3);
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(CLASS_VERSION);
+            out.writeShort(m_poolCount);
+            m_pool.flush();
+            m_poolBytes.writeTo(out);
+            out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0); // interfaces
+            out.writeShort(0); // fields
+            out.writeShort(2); // methods
+            out.write(constructor);
+            out.write(invoke);
+            out.writeShort(0); // attributes
+            out.flush();
+            return bytes.toByteArray();
+        }
+
+        private byte[] constructorCode() throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream code = new DataOutputStream(bytes);
+            code.writeByte(ALOAD_0);
+            code.writeByte(INVOKESPECIAL);
+            code.writeShort(methodConstant(INVOKER, "<init>", "()V"));
+            code.writeByte(RETURN);
+            return bytes.toByteArray();
+        }
+
+        private byte[] invokeCode() throws IOException {
+            Class<?> params[] = m_run.getParameterTypes();
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream code = new DataOutputStream(bytes);
+
+            code.writeByte(ALOAD_1);
+            code.writeByte(CHECKCAST);
+            code.writeShort(classConstant(internalName(m_run.getDeclaringClass())));
+
+            code.writeByte(ALOAD_2);
+            pushInt(code, params.length);
+            code.writeByte(INVOKESTATIC);
+            code.writeShort(methodConstant(INVOKER, "checkParameterCount",
+                    methodDescriptor(void.class, ByteBuffer.class, int.class)));
+
+            for (int i = 0; i < params.length; i++) {
+                code.writeByte(ALOAD_2);
+                pushInt(code, i);
+                String readMethod = s_readMethods.get(params[i]);
+                if (readMethod != null) {
+                    code.writeByte(INVOKESTATIC);
+                    code.writeShort(methodConstant(INVOKER, readMethod,
+                            methodDescriptor(params[i], ByteBuffer.class, int.class)));
+                } else {
+                    code.writeByte(LDC_W);
+                    code.writeShort(classConstant(internalName(params[i])));
+                    code.writeByte(INVOKESTATIC);
+                    code.writeShort(methodConstant(INVOKER, "readObject",
+                            methodDescriptor(Object.class, ByteBuffer.class, int.class, Class.class)));
+                    if (params[i] != Object.class) {
+                        code.writeByte(CHECKCAST);
+                        code.writeShort(classConstant(internalName(params[i])));
+                    }
+                }
+            }
+
+            code.writeByte(INVOKEVIRTUAL);
+            code.writeShort(methodConstant(internalName(m_run.getDeclaringClass()), "run",
+                    methodDescriptor(m_run.getReturnType(), params)));
+
+            Class<?> returnType = m_run.getReturnType();
+            if (returnType == void.class) {
+                code.writeByte(ACONST_NULL);
+            } else if (returnType.isPrimitive()) {
+                Class<?> wrapper = s_wrappers.get(returnType);
+                code.writeByte(INVOKESTATIC);
+                code.writeShort(methodConstant(internalName(wrapper), "valueOf",
+                        methodDescriptor(wrapper, returnType)));
+            }
+            code.writeByte(ARETURN);
+            return bytes.toByteArray();
+        }
+
+        private static void pushInt(DataOutputStream code, int value) throws IOException {
+            if (value <= 5) {
+                code.writeByte(ICONST_0 + value);
+            } else if (value <= Byte.MAX_VALUE) {
+                code.writeByte(BIPUSH);
+                code.writeByte(value);
+            } else {
+                code.writeByte(SIPUSH);
+                code.writeShort(value);
+            }
+        }
+
+        private byte[] method(int access, String name, String descriptor, byte[] code,
+                int maxStack, int maxLocals) throws IOException {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeShort(access);
+            out.writeShort(utf8(name));
+            out.writeShort(utf8(descriptor));
+            out.writeShort(1); // attributes
+            out.writeShort(utf8("Code"));
+            out.writeInt(2 + 2 + 4 + code.length + 2 + 2);
+            out.writeShort(maxStack);
+            out.writeShort(maxLocals);
+            out.writeInt(code.length);
+            out.write(code);
+            out.writeShort(0); // exception table
+            out.writeShort(0); // attributes
+            out.flush();
+            return bytes.toByteArray();
+        }
+
+        private int utf8(String value) throws IOException {
+            Integer index = m_constants.get("U" + value);
+            if (index == null) {
+                m_pool.writeByte(CONSTANT_UTF8);
+                m_pool.writeUTF(value);
+                index = m_poolCount++;
+                m_constants.put("U" + value, index);
+            }
+            return index;
+        }
+
+        private int classConstant(String internalName) throws IOException {
+            Integer index = m_constants.get("C" + internalName);
+            if (index == null) {
+                int name = utf8(internalName);
+                m_pool.writeByte(CONSTANT_CLASS);
+                m_pool.writeShort(name);
+                index = m_poolCount++;
+                m_constants.put("C" + internalName, index);
+            }
+            return index;
+        }
+
+        private int methodConstant(String owner, String name, String descriptor) throws IOException {
+            String key = "M" + owner + "." + name + descriptor;
+            Integer index = m_constants.get(key);
+            if (index == null) {
+                int ownerClass = classConstant(owner);
+                int nameIndex = utf8(name);
+                int descriptorIndex = utf8(descriptor);
+                m_pool.writeByte(CONSTANT_NAME_AND_TYPE);
+                m_pool.writeShort(nameIndex);
+                m_pool.writeShort(descriptorIndex);
+                int nameAndType = m_poolCount++;
+                m_pool.writeByte(CONSTANT_METHODREF);
+                m_pool.writeShort(ownerClass);
+                m_pool.writeShort(nameAndType);
+                index = m_poolCount++;
+                m_constants.put(key, index);
+            }
+            return index;
+        }
+    }
+}
@@ -53,6 +53,7 @@ import org.voltdb.exceptions.EEException;
 import org.voltdb.exceptions.SerializableException;
 import org.voltdb.groovy.GroovyScriptProcedureDelegate;
 import org.voltdb.iv2.UniqueIdGenerator;
+import org.voltdb.jni.ResultHandOff;
 import org.voltdb.messaging.FragmentTaskMessage;
 import org.voltdb.planner.ActivePlanRepository;
 import org.voltdb.sysprocs.AdHocBase;
@@ -85,6 +86,19 @@ public class ProcedureRunner {
     protected final VoltProcedure m_procedure;
     protected Method m_procMethod;
     protected Class<?>[] m_paramTypes;
+    // calls m_procMethod with serialized parameters, null if it must be called through reflection
+    protected ProcedureInvoker m_invoker = null;
+
+    /*
+     * Let single-partition read-only procedures leave large results in the EE's
+     * result buffers and have them written to the client from there. Tables a
+     * procedure gets from voltExecuteSQL() are invalidated once run() returns,
+     * or once the response is written if run() returns them, so a procedure
+     * that keeps one gets an exception instead of a reused buffer's contents.
+     */
+    static final boolean ZERO_COPY_RESULTS = Boolean.getBoolean("zeroCopyResults");
+    // results of the last call left in the EE's buffers, see takeResultHandOff()
+    private ResultHandOff m_resultHandOff = null;
 
     // per txn state (are reset after call)
     //
@@ -94,6 +108,8 @@ public class ProcedureRunner {
     // Status code that can be set by stored procedure upon invocation that will be returned with the response.
     protected byte m_appStatusCode = ClientResponse.UNINITIALIZED_APP_STATUS_CODE;
     protected String m_appStatusString = null;
+    // set by allowResultHandOff() for the next call
+    private boolean m_allowResultHandOff = false;
     // cached txnid-seeded RNG so all calls to getSeededRandomNumberGenerator() for
     // a given call don't re-seed and generate the same number over and over
     private Random m_cachedRNG = null;
@@ -215,7 +231,53 @@ public class ProcedureRunner {
         return m_cachedRNG;
     }
 
+    void setInvoker(ProcedureInvoker invoker) {
+        m_invoker = invoker;
+    }
+
+    /**
+     * @return true if {@link #callSerialized(ByteBuffer)} can be used for this procedure
+     */
+    public boolean hasInvoker() {
+        return m_invoker != null;
+    }
+
+    /**
+     * Let the next call leave results large enough to be worth it in the EE's
+     * buffers. The caller must take them with takeResultHandOff() and release
+     * them once the response has been written, so only a caller that hands the
+     * response to a client connection on this host should allow it.
+     */
+    public void allowResultHandOff() {
+        m_allowResultHandOff = ZERO_COPY_RESULTS && !m_isSysProc &&
+                m_catProc.getSinglepartition() && m_catProc.getReadonly();
+    }
+
+    /**
+     * @return the hand-off backing the tables in the response of the last call,
+     * or null if they are ordinary tables
+     */
+    public ResultHandOff takeResultHandOff() {
+        ResultHandOff handOff = m_resultHandOff;
+        m_resultHandOff = null;
+        return handOff;
+    }
+
     public ClientResponseImpl call(Object... paramListIn) {
+        return callInternal(paramListIn, null);
+    }
+
+    /**
+     * Call the procedure with its parameters still serialized. The generated
+     * invoker reads each one as the type run() takes, so there is no
+     * ParameterSet, conversion of an Object[] or reflective call.
+     */
+    public ClientResponseImpl callSerialized(ByteBuffer serializedParams) {
+        assert(m_invoker != null);
+        return callInternal(null, serializedParams);
+    }
+
+    private ClientResponseImpl callInternal(Object[] paramListIn, ByteBuffer serializedParams) {
         // verify per-txn state has been reset
         assert(m_statusCode == ClientResponse.SUCCESS);
         assert(m_statusString == null);
@@ -239,13 +301,22 @@ public class ProcedureRunner {
         // assert no sql is queued
         assert(m_batch.size() == 0);
 
+        // a hand-off nobody took is left to the garbage collector,
+        // its tables may still be in use
+        m_resultHandOff = null;
+        final boolean handOffResults = m_allowResultHandOff;
+        if (handOffResults) {
+            m_site.beginResultHandOff();
+        }
+
         try {
             m_statsCollector.beginProcedure();
 
             VoltTable[] results = null;
 
             // inject sysproc execution context as the first parameter.
-            if (isSystemProcedure()) {
+            // (serialized parameters are only used for user procedures)
+            if (serializedParams == null && isSystemProcedure()) {
                 final Object[] combinedParams = new Object[paramList.length + 1];
                 combinedParams[0] = m_systemProcedureContext;
                 for (int i=0; i < paramList.length; ++i) combinedParams[i+1] = paramList[i];
@@ -253,26 +324,29 @@ public class ProcedureRunner {
                 paramList = combinedParams;
             }
 
-            if (paramList.length != m_paramTypes.length) {
-                m_statsCollector.endProcedure(false, true, null, null);
-                String msg = "PROCEDURE " + m_procedureName + " EXPECTS " + String.valueOf(m_paramTypes.length) +
-                    " PARAMS, BUT RECEIVED " + String.valueOf(paramList.length);
-                m_statusCode = ClientResponse.GRACEFUL_FAILURE;
-                return getErrorResponse(m_statusCode, msg, null);
-            }
-
-            for (int i = 0; i < m_paramTypes.length; i++) {
-                try {
-                    paramList[i] = ParameterConverter.tryToMakeCompatible(m_paramTypes[i], paramList[i]);
-                    // check the result type in an assert
-                    assert(ParameterConverter.verifyParameterConversion(paramList[i], m_paramTypes[i]));
-                } catch (Exception e) {
+            // the invoker checks the count and converts each parameter as it reads it
+            if (serializedParams == null) {
+                if (paramList.length != m_paramTypes.length) {
                     m_statsCollector.endProcedure(false, true, null, null);
-                    String msg = "PROCEDURE " + m_procedureName + " TYPE ERROR FOR PARAMETER " + i +
-                            ": " + e.toString();
+                    String msg = "PROCEDURE " + m_procedureName + " EXPECTS " + String.valueOf(m_paramTypes.length) +
+                        " PARAMS, BUT RECEIVED " + String.valueOf(paramList.length);
                     m_statusCode = ClientResponse.GRACEFUL_FAILURE;
                     return getErrorResponse(m_statusCode, msg, null);
                 }
+
+                for (int i = 0; i < m_paramTypes.length; i++) {
+                    try {
+                        paramList[i] = ParameterConverter.tryToMakeCompatible(m_paramTypes[i], paramList[i]);
+                        // check the result type in an assert
+                        assert(ParameterConverter.verifyParameterConversion(paramList[i], m_paramTypes[i]));
+                    } catch (Exception e) {
+                        m_statsCollector.endProcedure(false, true, null, null);
+                        String msg = "PROCEDURE " + m_procedureName + " TYPE ERROR FOR PARAMETER " + i +
+                                ": " + e.toString();
+                        m_statusCode = ClientResponse.GRACEFUL_FAILURE;
+                        return getErrorResponse(m_statusCode, msg, null);
+                    }
+                }
             }
 
             boolean error = false;
@@ -280,7 +354,20 @@ public class ProcedureRunner {
             // run a regular java class
             if (m_catProc.getHasjava()) {
                 try {
-                    if (m_language == Language.JAVA) {
+                    if (serializedParams != null) {
+                        Object rawResult;
+                        try {
+                            rawResult = m_invoker.invoke(m_procedure, serializedParams);
+                        } catch (ProcedureInvoker.ParameterException e) {
+                            m_statsCollector.endProcedure(false, true, null, null);
+                            m_statusCode = ClientResponse.GRACEFUL_FAILURE;
+                            return getErrorResponse(m_statusCode, getParameterErrorMessage(e), null);
+                        } catch (Throwable t) {
+                            throw new InvocationTargetException(t);
+                        }
+                        results = getResultsFromRawResults(rawResult);
+                    }
+                    else if (m_language == Language.JAVA) {
                         if (log.isTraceEnabled()) {
                             log.trace("invoking... procMethod=" + m_procMethod.getName() + ", class=" + getClass().getName());
                         }
@@ -345,8 +432,9 @@ public class ProcedureRunner {
             }
 
             // Record statistics for procedure call.
+            // (the parameters may not have been deserialized, so only do it when they're measured)
             StoredProcedureInvocation invoc = (m_txnState != null ? m_txnState.getInvocation() : null);
-            ParameterSet paramSet = (invoc != null ? invoc.getParams() : null);
+            ParameterSet paramSet = (invoc != null && m_statsCollector.isSampled() ? invoc.getParams() : null);
             m_statsCollector.endProcedure(abort, error, results, paramSet);
 
             // don't leave empty handed
@@ -388,6 +476,19 @@ public class ProcedureRunner {
             m_cachedSingleStmt.params = null;
             m_cachedSingleStmt.expectation = null;
             m_seenFinalBatch = false;
+            m_allowResultHandOff = false;
+
+            if (handOffResults) {
+                // keep the buffers only if the response is backed by them
+                ResultHandOff handOff = m_site.endResultHandOff();
+                if (handOff != null) {
+                    if (retval != null && handOff.containsAny(retval.getResults())) {
+                        m_resultHandOff = handOff;
+                    } else {
+                        handOff.release();
+                    }
+                }
+            }
 
             m_site.setProcedureName(null);
         }
@@ -395,6 +496,26 @@ public class ProcedureRunner {
         return retval;
     }
 
+    /**
+     * Describe why serialized parameters couldn't be passed to run() the same
+     * way call(Object...) and ProcedureTask do when the ParameterSet is at fault.
+     */
+    private String getParameterErrorMessage(ProcedureInvoker.ParameterException e) {
+        if (e.m_index < 0) {
+            return "PROCEDURE " + m_procedureName + " EXPECTS " + String.valueOf(e.m_expectedCount) +
+                " PARAMS, BUT RECEIVED " + String.valueOf(e.m_receivedCount);
+        }
+        if (e.m_conversion) {
+            return "PROCEDURE " + m_procedureName + " TYPE ERROR FOR PARAMETER " + e.m_index +
+                    ": " + e.getCause().toString();
+        }
+        Writer result = new StringWriter();
+        PrintWriter pw = new PrintWriter(result);
+        e.getCause().printStackTrace(pw);
+        return "Exception while deserializing procedure params, procedure=" + m_procedureName +
+                "\n" + result.toString();
+    }
+
     /**
      * Check if the txn hashes to this partition. If not, it should be restarted.
      * @param txnState
@@ -726,6 +847,19 @@ public class ProcedureRunner {
     public byte[] voltLoadTable(String clusterName, String databaseName,
                               String tableName, VoltTable data, boolean returnUniqueViolations)
     throws VoltAbortException
+    {
+        return voltLoadTable(clusterName, databaseName, tableName, data, returnUniqueViolations, false);
+    }
+
+    /**
+     * Load the table in the EE. With undo the rows loaded are rolled back with
+     * the transaction, and bad data or a constraint violation aborts it instead
+     * of crashing the site.
+     */
+    public byte[] voltLoadTable(String clusterName, String databaseName,
+                              String tableName, VoltTable data, boolean returnUniqueViolations,
+                              boolean undo)
+    throws VoltAbortException
     {
         if (data == null || data.getRowCount() == 0) {
             return null;
@@ -733,10 +867,11 @@ public class ProcedureRunner {
         try {
             return m_site.loadTable(m_txnState.txnId,
                              clusterName, databaseName,
-                             tableName, data, returnUniqueViolations, false);
+                             tableName, data, returnUniqueViolations, undo);
         }
         catch (EEException e) {
-            throw new VoltAbortException("Failed to load table: " + tableName);
+            throw new VoltAbortException("Failed to load table: " + tableName +
+                                         (e.getMessage() != null ? ": " + e.getMessage() : ""));
         }
     }
 
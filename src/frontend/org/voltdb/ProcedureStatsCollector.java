@@ -145,6 +145,13 @@ class ProcedureStatsCollector extends SiteStatsSource {
         }
     }
 
+    /**
+     * @return true if the current invocation is being timed and measured
+     */
+    public final boolean isSampled() {
+        return m_currentStartTime > 0;
+    }
+
     /**
      * Called after a procedure is finished executing. Compares the start and end time and calculates
      * the statistics.
@@ -559,6 +559,10 @@ public class RealVoltDB implements VoltDBInterface, RestoreAgent.Callback
             m_ioStats = new IOStats();
             getStatsAgent().registerStatsSource(StatsSelector.IOSTATS,
                     0, m_ioStats);
+            getStatsAgent().registerStatsSource(StatsSelector.NETWORKTHREADS,
+                    0, new NetworkThreadStats());
+            getStatsAgent().registerStatsSource(StatsSelector.SNAPSHOTRESTORE,
+                    0, new SnapshotRestoreStats());
             m_memoryStats = new MemoryStats();
             getStatsAgent().registerStatsSource(StatsSelector.MEMORY,
                     0, m_memoryStats);
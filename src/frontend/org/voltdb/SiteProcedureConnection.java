@@ -28,6 +28,7 @@ import org.voltdb.dtxn.TransactionState;
 import org.voltdb.dtxn.UndoAction;
 import org.voltdb.exceptions.EEException;
 import org.voltdb.iv2.JoinProducerBase;
+import org.voltdb.jni.ResultHandOff;
 
 /**
  * VoltProcedures invoke SiteProcedureConnection methods to
@@ -112,6 +113,17 @@ public interface SiteProcedureConnection {
      */
     public void setProcedureName(String procedureName);
 
+    /**
+     * Leave the results of the following calls to executePlanFragments where
+     * the EE serialized them, if the EE supports that, until endResultHandOff().
+     */
+    public void beginResultHandOff();
+
+    /**
+     * @return the results left in place since beginResultHandOff(), or null
+     */
+    public ResultHandOff endResultHandOff();
+
     /**
      * Legacy recursable execution interface for MP transaction states.
      */
@@ -0,0 +1,167 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.voltdb;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.voltdb.VoltTable.ColumnInfo;
+
+/**
+ * Progress of the snapshot files read on this host, one row per table. Every
+ * TableSaveFile reports here as it reads, so the rows cover @SnapshotRestore
+ * and anything else that reads save files. FILES_ACTIVE is the number of the
+ * table's files being read right now, BYTES_READ the compressed bytes read from
+ * disk and BYTES_DECODED what they decompressed to. MB_PER_SEC is BYTES_DECODED
+ * over the time from the first read of the table to the latest chunk.
+ */
+public class SnapshotRestoreStats extends StatsSource {
+
+    private static class TableProgress {
+        private int m_filesActive;
+        private int m_filesDone;
+        private long m_chunks;
+        private long m_bytesRead;
+        private long m_bytesDecoded;
+        private long m_decodeNanos;
+        private long m_firstReadNanos;
+        private long m_lastChunkNanos;
+
+        private TableProgress copy() {
+            TableProgress copy = new TableProgress();
+            copy.m_filesActive = m_filesActive;
+            copy.m_filesDone = m_filesDone;
+            copy.m_chunks = m_chunks;
+            copy.m_bytesRead = m_bytesRead;
+            copy.m_bytesDecoded = m_bytesDecoded;
+            copy.m_decodeNanos = m_decodeNanos;
+            copy.m_firstReadNanos = m_firstReadNanos;
+            copy.m_lastChunkNanos = m_lastChunkNanos;
+            return copy;
+        }
+    }
+
+    private static final Map<String, TableProgress> m_progress = new LinkedHashMap<String, TableProgress>();
+
+    private static TableProgress progress(String tableName) {
+        TableProgress progress = m_progress.get(tableName);
+        if (progress == null) {
+            progress = new TableProgress();
+            progress.m_firstReadNanos = System.nanoTime();
+            progress.m_lastChunkNanos = progress.m_firstReadNanos;
+            m_progress.put(tableName, progress);
+        }
+        return progress;
+    }
+
+    public static synchronized void fileStarted(String tableName) {
+        progress(tableName).m_filesActive++;
+    }
+
+    public static synchronized void fileFinished(String tableName) {
+        TableProgress progress = progress(tableName);
+        progress.m_filesActive--;
+        progress.m_filesDone++;
+    }
+
+    public static synchronized void chunkDecoded(String tableName, int bytesRead, int bytesDecoded, long decodeNanos) {
+        TableProgress progress = progress(tableName);
+        progress.m_chunks++;
+        progress.m_bytesRead += bytesRead;
+        progress.m_bytesDecoded += bytesDecoded;
+        progress.m_decodeNanos += decodeNanos;
+        progress.m_lastChunkNanos = System.nanoTime();
+    }
+
+    /**
+     * A dummy iterator that wraps an Iterator<String> and provides the
+     * Iterator<Object>
+     */
+    private class DummyIterator implements Iterator<Object> {
+        private final Iterator<String> i;
+
+        private DummyIterator(Iterator<String> i) {
+            this.i = i;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return i.hasNext();
+        }
+
+        @Override
+        public Object next() {
+            return i.next();
+        }
+
+        @Override
+        public void remove() {
+            i.remove();
+        }
+    }
+
+    private Map<String, TableProgress> m_snapshot = new LinkedHashMap<String, TableProgress>();
+
+    public SnapshotRestoreStats() {
+        super(false);
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo("TABLE_NAME", VoltType.STRING));
+        columns.add(new ColumnInfo("FILES_ACTIVE", VoltType.INTEGER));
+        columns.add(new ColumnInfo("FILES_DONE", VoltType.INTEGER));
+        columns.add(new ColumnInfo("CHUNKS", VoltType.BIGINT));
+        columns.add(new ColumnInfo("BYTES_READ", VoltType.BIGINT));
+        columns.add(new ColumnInfo("BYTES_DECODED", VoltType.BIGINT));
+        columns.add(new ColumnInfo("DECODE_MILLIS", VoltType.BIGINT));
+        columns.add(new ColumnInfo("ELAPSED_MILLIS", VoltType.BIGINT));
+        columns.add(new ColumnInfo("MB_PER_SEC", VoltType.FLOAT));
+    }
+
+    @Override
+    protected void updateStatsRow(Object rowKey, Object[] rowValues) {
+        final TableProgress progress = m_snapshot.get(rowKey);
+        final long elapsedNanos = progress.m_lastChunkNanos - progress.m_firstReadNanos;
+        rowValues[columnNameToIndex.get("TABLE_NAME")] = rowKey;
+        rowValues[columnNameToIndex.get("FILES_ACTIVE")] = progress.m_filesActive;
+        rowValues[columnNameToIndex.get("FILES_DONE")] = progress.m_filesDone;
+        rowValues[columnNameToIndex.get("CHUNKS")] = progress.m_chunks;
+        rowValues[columnNameToIndex.get("BYTES_READ")] = progress.m_bytesRead;
+        rowValues[columnNameToIndex.get("BYTES_DECODED")] = progress.m_bytesDecoded;
+        rowValues[columnNameToIndex.get("DECODE_MILLIS")] = progress.m_decodeNanos / 1000000;
+        rowValues[columnNameToIndex.get("ELAPSED_MILLIS")] = elapsedNanos / 1000000;
+        rowValues[columnNameToIndex.get("MB_PER_SEC")] =
+            elapsedNanos > 0 ? progress.m_bytesDecoded * 1000.0 / elapsedNanos : 0.0;
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(boolean interval) {
+        Map<String, TableProgress> snapshot = new LinkedHashMap<String, TableProgress>();
+        synchronized (SnapshotRestoreStats.class) {
+            for (Map.Entry<String, TableProgress> e : m_progress.entrySet()) {
+                snapshot.put(e.getKey(), e.getValue().copy());
+            }
+        }
+        m_snapshot = snapshot;
+        return new DummyIterator(m_snapshot.keySet().iterator());
+    }
+}
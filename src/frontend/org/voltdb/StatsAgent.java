@@ -359,6 +359,12 @@ public class StatsAgent extends OpsAgent
         case IOSTATS:
             stats = collectIOStats(interval);
             break;
+        case NETWORKTHREADS:
+            stats = collectNetworkThreadStats(interval);
+            break;
+        case SNAPSHOTRESTORE:
+            stats = collectSnapshotRestoreStats(interval);
+            break;
         case INITIATOR:
             stats = collectInitiatorStats(interval);
             break;
@@ -377,6 +383,12 @@ public class StatsAgent extends OpsAgent
         case STARVATION:
             stats = collectStarvationStats(interval);
             break;
+        case MPREADPOOL:
+            stats = collectMpReadPoolStats(interval);
+            break;
+        case INITIATORQUEUE:
+            stats = collectInitiatorQueueStats(interval);
+            break;
         case PLANNER:
             stats = collectPlannerStats(interval);
             break;
@@ -485,6 +497,32 @@ public class StatsAgent extends OpsAgent
         return stats;
     }
 
+    private VoltTable[] collectNetworkThreadStats(boolean interval)
+    {
+        Long now = System.currentTimeMillis();
+        VoltTable[] stats = null;
+
+        VoltTable nStats = getStatsAggregate(StatsSelector.NETWORKTHREADS, interval, now);
+        if (nStats != null) {
+            stats = new VoltTable[1];
+            stats[0] = nStats;
+        }
+        return stats;
+    }
+
+    private VoltTable[] collectSnapshotRestoreStats(boolean interval)
+    {
+        Long now = System.currentTimeMillis();
+        VoltTable[] stats = null;
+
+        VoltTable rStats = getStatsAggregate(StatsSelector.SNAPSHOTRESTORE, interval, now);
+        if (rStats != null) {
+            stats = new VoltTable[1];
+            stats[0] = rStats;
+        }
+        return stats;
+    }
+
     private VoltTable[] collectInitiatorStats(boolean interval)
     {
         Long now = System.currentTimeMillis();
@@ -550,6 +588,32 @@ public class StatsAgent extends OpsAgent
         return stats;
     }
 
+    private VoltTable[] collectMpReadPoolStats(boolean interval)
+    {
+        Long now = System.currentTimeMillis();
+        VoltTable[] stats = null;
+
+        VoltTable pStats = getStatsAggregate(StatsSelector.MPREADPOOL, interval, now);
+        if (pStats != null) {
+            stats = new VoltTable[1];
+            stats[0] = pStats;
+        }
+        return stats;
+    }
+
+    private VoltTable[] collectInitiatorQueueStats(boolean interval)
+    {
+        Long now = System.currentTimeMillis();
+        VoltTable[] stats = null;
+
+        VoltTable qStats = getStatsAggregate(StatsSelector.INITIATORQUEUE, interval, now);
+        if (qStats != null) {
+            stats = new VoltTable[1];
+            stats[0] = qStats;
+        }
+        return stats;
+    }
+
     private VoltTable[] collectPlannerStats(boolean interval)
     {
         Long now = System.currentTimeMillis();
@@ -21,16 +21,20 @@ public enum StatsSelector {
     INDEX,            // invoked as @stat index
     PROCEDURE,        // invoked as @stat procedure
     STARVATION,
+    MPREADPOOL,       // sizes, queue depth and wait times of the MPI read-only site pool
+    INITIATORQUEUE,   // depth and wait times of the messages delivered to each SP initiator
     INITIATOR,        // invoked as @stat initiator
     LATENCY,          // invoked as @stat latency
     PARTITIONCOUNT,
     IOSTATS,
+    NETWORKTHREADS,   // connections and load on each network thread
     MEMORY,           // info about node's memory usage
     LIVECLIENTS,      // info about the currently connected clients
     PLANNER,          // info about planner and EE performance and cache usage
     MANAGEMENT,       // Returns pretty much everything
     PROCEDUREPROFILE, // performs an aggregation of the procedure statistics
     SNAPSHOTSTATUS,
+    SNAPSHOTRESTORE,  // progress and throughput of the snapshot files read on each host
     PROCEDUREINPUT,
     PROCEDUREOUTPUT,
 
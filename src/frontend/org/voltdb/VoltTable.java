@@ -30,6 +30,7 @@ import org.json_voltpatches.JSONException;
 import org.json_voltpatches.JSONObject;
 import org.json_voltpatches.JSONString;
 import org.json_voltpatches.JSONStringer;
+import org.json_voltpatches.JSONWriter;
 import org.voltdb.client.ClientUtils;
 import org.voltdb.common.Constants;
 import org.voltdb.types.TimestampType;
@@ -1160,42 +1161,51 @@ public final class VoltTable extends VoltTableRow implements JSONString {
     public String toJSONString() {
         JSONStringer js = new JSONStringer();
         try {
+            writeJSON(js);
+        }
+        catch (JSONException e) {
+            e.printStackTrace();
+            throw new RuntimeException("Failed to serialized a table to JSON.", e);
+        }
+        return js.toString();
+    }
 
-            js.object();
+    /**
+     * Write the JSON representation of this table to the given writer one row
+     * at a time, without building the whole document as a string first.
+     * @param js The writer to append this table to.
+     * @throws JSONException if the writer fails.
+     */
+    public void writeJSON(JSONWriter js) throws JSONException {
+        js.object();
 
-            // status code (1 byte)
-            js.key(JSON_STATUS_KEY).value(getStatusCode());
+        // status code (1 byte)
+        js.key(JSON_STATUS_KEY).value(getStatusCode());
 
-            // column schema
-            js.key(JSON_SCHEMA_KEY).array();
+        // column schema
+        js.key(JSON_SCHEMA_KEY).array();
+        for (int i = 0; i < getColumnCount(); i++) {
+            js.object();
+            js.key(JSON_NAME_KEY).value(getColumnName(i));
+            js.key(JSON_TYPE_KEY).value(getColumnType(i).getValue());
+            js.endObject();
+        }
+        js.endArray();
+
+        // row data
+        js.key(JSON_DATA_KEY).array();
+        VoltTableRow row = cloneRow();
+        row.resetRowPosition();
+        while (row.advanceRow()) {
+            js.array();
             for (int i = 0; i < getColumnCount(); i++) {
-                js.object();
-                js.key(JSON_NAME_KEY).value(getColumnName(i));
-                js.key(JSON_TYPE_KEY).value(getColumnType(i).getValue());
-                js.endObject();
+                row.putJSONRep(i, js);
             }
             js.endArray();
-
-            // row data
-            js.key(JSON_DATA_KEY).array();
-            VoltTableRow row = cloneRow();
-            row.resetRowPosition();
-            while (row.advanceRow()) {
-                js.array();
-                for (int i = 0; i < getColumnCount(); i++) {
-                    row.putJSONRep(i, js);
-                }
-                js.endArray();
-            }
-            js.endArray();
-
-            js.endObject();
-        }
-        catch (JSONException e) {
-            e.printStackTrace();
-            throw new RuntimeException("Failed to serialized a table to JSON.", e);
         }
-        return js.toString();
+        js.endArray();
+
+        js.endObject();
     }
 
     /**
@@ -1510,6 +1520,17 @@ public final class VoltTable extends VoltTableRow implements JSONString {
         assert(verifyTableInvariants());
     }
 
+    /**
+     * Cut this table off from its backing buffer before the buffer is reused.
+     * The table keeps its row and column counts, but reading anything else
+     * from it throws an IndexOutOfBoundsException (or fails an assertion when
+     * they are enabled) instead of returning whatever the buffer holds next.
+     */
+    void invalidate() {
+        m_buffer = ByteBuffer.allocate(0).asReadOnlyBuffer();
+        m_readOnly = true;
+    }
+
     public ByteBuffer getBuffer() {
         ByteBuffer buf = m_buffer.asReadOnlyBuffer();
         buf.position(0);
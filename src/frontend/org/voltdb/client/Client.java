@@ -121,6 +121,21 @@ public interface Client {
     public boolean callProcedure(ProcedureCallback callback, String procName, Object... parameters)
     throws IOException, NoConnectionsException;
 
+    /**
+     * Asynchronously invoke a procedure once for each of the given parameter sets.
+     * Invocations routed to the same server are sent to it in a single message,
+     * which the server unpacks into separate transactions. Each response is passed
+     * to the callback at the same index as its parameter set. If there is backpressure
+     * this call will block until the batch is queued. If configureBlocking(false) is invoked
+     * then it will return immediately. Check the return value to determine if queuing actually took place.
+     * @param callbacks ProcedureCallbacks, one per parameter set, invoked with procedure results.
+     * @param procName class name (not qualified by package) of the procedure to execute.
+     * @param parameterSets list of procedure parameter values for each invocation.
+     * @return <code>true</code> if the whole batch was queued and <code>false</code> if none of it was
+     */
+    public boolean callProcedureBatch(ProcedureCallback callbacks[], String procName, Object[][] parameterSets)
+    throws IOException, NoConnectionsException;
+
     /**
      * Deprecated because hinting at the serialized size no longer has any effect
      *
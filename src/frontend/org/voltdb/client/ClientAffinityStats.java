@@ -65,6 +65,18 @@ public class ClientAffinityStats {
                m_rrReads);
     }
 
+    /**
+     * Add another set of counts for the same partition to this one.
+     */
+    void add(ClientAffinityStats other)
+    {
+        assert(other.m_partitionId == m_partitionId);
+        m_affinityWrites += other.m_affinityWrites;
+        m_rrWrites += other.m_rrWrites;
+        m_affinityReads += other.m_affinityReads;
+        m_rrReads += other.m_rrReads;
+    }
+
     void addAffinityWrite()
     {
         m_affinityWrites++;
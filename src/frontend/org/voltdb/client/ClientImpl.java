@@ -322,6 +322,55 @@ public final class ClientImpl implements Client, ReplicaProcCaller {
         return private_callProcedure(callback, 0, invocation, Distributer.USE_DEFAULT_TIMEOUT);
     }
 
+    @Override
+    public boolean callProcedureBatch(ProcedureCallback callbacks[], String procName, Object[][] parameterSets)
+    throws IOException, NoConnectionsException {
+        if (m_isShutdown) {
+            return false;
+        }
+        if (callbacks.length != parameterSets.length) {
+            throw new IllegalArgumentException("A batch needs one callback per parameter set");
+        }
+        if (parameterSets.length == 0) {
+            return true;
+        }
+
+        ProcedureInvocation invocations[] = new ProcedureInvocation[parameterSets.length];
+        ProcedureCallback batchCallbacks[] = new ProcedureCallback[callbacks.length];
+        for (int ii = 0; ii < parameterSets.length; ii++) {
+            ProcedureCallback callback = callbacks[ii];
+            if (callback == null) {
+                callback = new NullCallback();
+            }
+            if (callback instanceof ProcedureArgumentCacher) {
+                ((ProcedureArgumentCacher)callback).setArgs(parameterSets[ii]);
+            }
+            batchCallbacks[ii] = callback;
+            invocations[ii] = new ProcedureInvocation(m_handle.getAndIncrement(), procName, parameterSets[ii]);
+        }
+
+        //Blessed threads (the ones that invoke callbacks) are not subject to backpressure
+        boolean isBlessed = m_blessedThreadIds.contains(Thread.currentThread().getId());
+        if (m_blockingQueue) {
+            while (!m_distributer.queueBatch(
+                    invocations,
+                    batchCallbacks,
+                    isBlessed, Distributer.USE_DEFAULT_TIMEOUT)) {
+                try {
+                    backpressureBarrier();
+                } catch (InterruptedException e) {
+                    throw new java.io.InterruptedIOException("Interrupted while invoking procedure asynchronously");
+                }
+            }
+            return true;
+        } else {
+            return m_distributer.queueBatch(
+                    invocations,
+                    batchCallbacks,
+                    isBlessed, Distributer.USE_DEFAULT_TIMEOUT);
+        }
+    }
+
     @Override
     public int calculateInvocationSerializedSize(String procName,
             Object... parameters) {
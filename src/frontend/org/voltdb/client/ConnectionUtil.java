@@ -112,7 +112,8 @@ public class ConnectionUtil {
      * @returns An array of objects. The first is an
      * authenticated socket channel, the second. is an array of 4 longs -
      * Integer hostId, Long connectionId, Long timestamp (part of instanceId), Int leaderAddress (part of instanceId).
-     * The last object is the build string
+     * The third object is the build string and the last is a Byte of the
+     * server's capability bits, zero for servers that do not send them.
      */
     public static Object[] getAuthenticatedConnection(String host, String username,
                                                       byte[] hashedPassword, int port) throws IOException {
@@ -129,7 +130,7 @@ public class ConnectionUtil {
     private static Object[] getAuthenticatedConnection(
             String service, InetSocketAddress addr, String username, byte[] hashedPassword)
     throws IOException {
-        Object returnArray[] = new Object[3];
+        Object returnArray[] = new Object[4];
         boolean success = false;
         if (addr.isUnresolved()) {
             throw new java.net.UnknownHostException(addr.getHostName());
@@ -245,6 +246,7 @@ public class ConnectionUtil {
             byte buildStringBytes[] = new byte[buildStringLength];
             loginResponse.get(buildStringBytes);
             returnArray[2] = new String(buildStringBytes, "UTF-8");
+            returnArray[3] = loginResponse.hasRemaining() ? loginResponse.get() : (byte)0;
 
             aChannel.configureBlocking(false);
             aChannel.socket().setKeepAlive(true);
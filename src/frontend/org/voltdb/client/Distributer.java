@@ -47,6 +47,8 @@ import org.voltcore.network.QueueMonitor;
 import org.voltcore.network.VoltNetworkPool;
 import org.voltcore.network.VoltProtocolHandler;
 import org.voltcore.utils.CoreUtils;
+import org.voltcore.utils.DeferredSerialization;
+import org.voltcore.utils.DirectDeferredSerialization;
 import org.voltcore.utils.Pair;
 import org.voltdb.ClientResponseImpl;
 import org.voltdb.VoltTable;
@@ -59,6 +61,10 @@ import org.voltdb.common.Constants;
  *
  *   It is safe to synchronized on an individual connection and then the distributer, but it is always unsafe
  *   to synchronized on the distributer and then an individual connection.
+ *
+ *   Routing an invocation does not take the distributer lock. It reads an immutable Topology snapshot
+ *   that is replaced, under the lock, whenever connections, partition masters/replicas or procedure
+ *   partitioning change. The lock is only taken on the backpressure path.
  */
 class Distributer {
 
@@ -78,7 +84,7 @@ class Distributer {
     private final VoltNetworkPool m_network;
 
     // Temporary until a distribution/affinity algorithm is written
-    private int m_nextConnection = 0;
+    private final AtomicInteger m_nextConnection = new AtomicInteger();
 
     private final boolean m_useMultipleThreads;
     private final boolean m_useClientAffinity;
@@ -100,18 +106,60 @@ class Distributer {
         }
     }
 
-    private final Map<Integer, NodeConnection> m_partitionMasters = new HashMap<Integer, NodeConnection>();
-    private final Map<Integer, NodeConnection[]> m_partitionReplicas = new HashMap<Integer, NodeConnection[]>();
+    /**
+     * Everything queue() needs to route an invocation. Instances are never modified once
+     * published, a changed topology is a new instance.
+     */
+    private static final class Topology {
+        private final NodeConnection[] connections;
+        private final Map<Integer, NodeConnection> partitionMasters;
+        private final Map<Integer, NodeConnection[]> partitionReplicas;
+        private final Map<String, Procedure> procedureInfo;
+        //This is the instance of the Hashinator we picked from TOPO used only for client affinity.
+        private final HashinatorLite hashinator;
+        private Topology(NodeConnection[] connections,
+                Map<Integer, NodeConnection> partitionMasters,
+                Map<Integer, NodeConnection[]> partitionReplicas,
+                Map<String, Procedure> procedureInfo,
+                HashinatorLite hashinator) {
+            this.connections = connections;
+            this.partitionMasters = partitionMasters;
+            this.partitionReplicas = partitionReplicas;
+            this.procedureInfo = procedureInfo;
+            this.hashinator = hashinator;
+        }
+    }
+
+    // replaced only while holding the distributer lock
+    private volatile Topology m_topology = new Topology(
+            new NodeConnection[0],
+            new HashMap<Integer, NodeConnection>(),
+            new HashMap<Integer, NodeConnection[]>(),
+            new HashMap<String, Procedure>(),
+            null);
     private final Map<Integer, NodeConnection> m_hostIdToConnection = new HashMap<Integer, NodeConnection>();
-    private final Map<String, Procedure> m_procedureInfo = new HashMap<String, Procedure>();
-    //This is the instance of the Hashinator we picked from TOPO used only for client affinity.
-    private HashinatorLite m_hashinator = null;
     //This is a global timeout that will be used if a per-procedure timeout is not provided with the procedure call.
     private final long m_procedureCallTimeoutMS;
     private static final long MINIMUM_LONG_RUNNING_SYSTEM_CALL_TIMEOUT_MS = 30 * 60 * 1000; // 30 minutes
     private final long m_connectionResponseTimeoutMS;
-    private final Map<Integer, ClientAffinityStats> m_clientAffinityStats =
-        new HashMap<Integer, ClientAffinityStats>();
+
+    /*
+     * Client affinity stats are striped by calling thread so that counting them rarely
+     * contends. There is a fixed number of stripes, however many threads come and go.
+     * Each stripe's map is only modified under its own lock.
+     */
+    private static final int AFFINITY_STATS_STRIPES =
+        Integer.highestOneBit(Math.min(64, Runtime.getRuntime().availableProcessors() * 2) * 2 - 1);
+    private final Map<Integer, ClientAffinityStats>[] m_clientAffinityStats = newAffinityStatsStripes();
+
+    @SuppressWarnings("unchecked")
+    private static Map<Integer, ClientAffinityStats>[] newAffinityStatsStripes() {
+        Map<Integer, ClientAffinityStats>[] stripes = new Map[AFFINITY_STATS_STRIPES];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new HashMap<Integer, ClientAffinityStats>();
+        }
+        return stripes;
+    }
 
     public final RateLimiter m_rateLimiter = new RateLimiter();
 
@@ -128,6 +176,115 @@ class Distributer {
 
     private String m_buildString;
 
+    /**
+     * Serializes an invocation and its length prefix when the network thread
+     * gets to it, avoiding a heap buffer per invocation. Invocations with table,
+     * array, date or decimal parameters are serialized right away instead, since
+     * the caller is free to reuse some of those once the call returns, and a
+     * value that can't be serialized must fail the call on the calling thread.
+     */
+    private static final class InvocationSerialization extends DirectDeferredSerialization {
+        private final ProcedureInvocation m_invocation;
+        private final int m_size;
+        private final ByteBuffer m_serialized;
+
+        private InvocationSerialization(ProcedureInvocation invocation) {
+            m_invocation = invocation;
+            m_size = 4 + invocation.getSerializedSize();
+            if (invocation.needsEagerSerialization()) {
+                m_serialized = ByteBuffer.allocate(m_size);
+                try {
+                    write(m_serialized);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+                m_serialized.flip();
+            } else {
+                m_serialized = null;
+            }
+        }
+
+        private void write(ByteBuffer buf) throws IOException {
+            buf.putInt(m_size - 4);
+            m_invocation.flattenToBuffer(buf);
+        }
+
+        @Override
+        public int getSerializedSize() {
+            return m_size;
+        }
+
+        @Override
+        public void serialize(ByteBuffer buf) throws IOException {
+            if (m_serialized != null) {
+                buf.put(m_serialized.duplicate());
+            } else {
+                write(buf);
+            }
+        }
+    }
+
+    /**
+     * Serializes several invocations bound for the same connection as one
+     * message: the batch marker, a count, then each invocation with its length.
+     * Like a single invocation, a batch with table, array, date or decimal
+     * parameters is serialized right away.
+     */
+    private static final class BatchSerialization extends DirectDeferredSerialization {
+        private final ProcedureInvocation m_invocations[];
+        private final int m_sizes[];
+        private final int m_size;
+        private final ByteBuffer m_serialized;
+
+        private BatchSerialization(ProcedureInvocation invocations[]) {
+            m_invocations = invocations;
+            m_sizes = new int[invocations.length];
+            int size = 4 + 1 + 4;
+            boolean eager = false;
+            for (int ii = 0; ii < invocations.length; ii++) {
+                m_sizes[ii] = invocations[ii].getSerializedSize();
+                size += 4 + m_sizes[ii];
+                eager |= invocations[ii].needsEagerSerialization();
+            }
+            m_size = size;
+            if (eager) {
+                m_serialized = ByteBuffer.allocate(m_size);
+                try {
+                    write(m_serialized);
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+                m_serialized.flip();
+            } else {
+                m_serialized = null;
+            }
+        }
+
+        private void write(ByteBuffer buf) throws IOException {
+            buf.putInt(m_size - 4);
+            buf.put(ProcedureInvocation.BATCH_MARKER);
+            buf.putInt(m_invocations.length);
+            for (int ii = 0; ii < m_invocations.length; ii++) {
+                buf.putInt(m_sizes[ii]);
+                m_invocations[ii].flattenToBuffer(buf);
+            }
+        }
+
+        @Override
+        public int getSerializedSize() {
+            return m_size;
+        }
+
+        @Override
+        public void serialize(ByteBuffer buf) throws IOException {
+            if (m_serialized != null) {
+                buf.put(m_serialized.duplicate());
+            } else {
+                write(buf);
+            }
+        }
+    }
+
     /**
      * Handles topology updates for client affinity
      */
@@ -275,16 +432,19 @@ class Distributer {
         private final HashMap<String, ClientStats> m_stats = new HashMap<String, ClientStats>();
         private Connection m_connection;
         private boolean m_isConnected = true;
+        // set if the server accepts several invocations in one message
+        private final boolean m_supportsBatches;
 
         long m_lastResponseTime = System.currentTimeMillis();
         boolean m_outstandingPing = false;
         ClientStatusListenerExt.DisconnectCause m_closeCause = DisconnectCause.CONNECTION_CLOSED;
 
-        public NodeConnection(long ids[]) {
+        public NodeConnection(long ids[], byte capabilities) {
             m_callbacks = new HashMap<Long, CallbackBookeeping>();
+            m_supportsBatches = (capabilities & Constants.CAPABILITY_INVOCATION_BATCHES) != 0;
         }
 
-        public void createWork(long handle, String name, ByteBuffer c,
+        public void createWork(long handle, String name, DeferredSerialization ds,
                 ProcedureCallback callback, boolean ignoreBackpressure, long timeout) {
             assert(callback != null);
             long now = System.currentTimeMillis();
@@ -292,17 +452,7 @@ class Distributer {
                     now, ignoreBackpressure);
             synchronized (this) {
                 if (!m_isConnected) {
-                    final ClientResponse r = new ClientResponseImpl(
-                            ClientResponse.CONNECTION_LOST, new VoltTable[0],
-                            "Connection to database host (" + m_connection.getHostnameAndIPAndPort() +
-                    ") was lost before a response was received");
-                    try {
-                        callback.clientCallback(r);
-                    } catch (Exception e) {
-                        uncaughtException(callback, r, e);
-                    }
-                    // for bookkeeping, but it feels dishonest to call this here
-                    m_rateLimiter.transactionResponseReceived(now, -1);
+                    failConnectionLost(callback, now);
                     return;
                 }
 
@@ -310,20 +460,58 @@ class Distributer {
                 m_callbacks.put(handle, new CallbackBookeeping(now, callback, name, timeout));
                 m_callbacksToInvoke.incrementAndGet();
             }
-            m_connection.writeStream().enqueue(c);
+            m_connection.writeStream().enqueue(ds);
         }
 
-        void sendPing() {
-            ProcedureInvocation invocation = new ProcedureInvocation(PING_HANDLE, "@Ping");
-            ByteBuffer buf = ByteBuffer.allocate(4 + invocation.getSerializedSize());
-            buf.putInt(buf.capacity() - 4);
+        /**
+         * Like createWork, but registers every invocation of the batch and
+         * queues them as a single message.
+         */
+        public void createBatchWork(ProcedureInvocation invocations[], ProcedureCallback callbacks[],
+                boolean ignoreBackpressure, long timeout) {
+            // may serialize right away, which fails before anything is registered
+            BatchSerialization ds = new BatchSerialization(invocations);
+            long now = System.currentTimeMillis();
+            for (int ii = 0; ii < invocations.length; ii++) {
+                now = m_rateLimiter.sendTxnWithOptionalBlockAndReturnCurrentTime(
+                        now, ignoreBackpressure);
+            }
+            synchronized (this) {
+                if (!m_isConnected) {
+                    for (ProcedureCallback callback : callbacks) {
+                        failConnectionLost(callback, now);
+                    }
+                    return;
+                }
+
+                for (int ii = 0; ii < invocations.length; ii++) {
+                    long handle = invocations[ii].getHandle();
+                    assert(m_callbacks.containsKey(handle) == false);
+                    m_callbacks.put(handle, new CallbackBookeeping(
+                            now, callbacks[ii], invocations[ii].getProcName(), timeout));
+                    m_callbacksToInvoke.incrementAndGet();
+                }
+            }
+            m_connection.writeStream().enqueue(ds);
+        }
+
+        private void failConnectionLost(ProcedureCallback callback, long now) {
+            final ClientResponse r = new ClientResponseImpl(
+                    ClientResponse.CONNECTION_LOST, new VoltTable[0],
+                    "Connection to database host (" + m_connection.getHostnameAndIPAndPort() +
+            ") was lost before a response was received");
             try {
-                invocation.flattenToBuffer(buf);
-                buf.flip();
-            } catch (IOException e) {
-                throw new RuntimeException(e);
+                callback.clientCallback(r);
+            } catch (Exception e) {
+                uncaughtException(callback, r, e);
             }
-            m_connection.writeStream().enqueue(buf);
+            // for bookkeeping, but it feels dishonest to call this here
+            m_rateLimiter.transactionResponseReceived(now, -1);
+        }
+
+        void sendPing() {
+            ProcedureInvocation invocation = new ProcedureInvocation(PING_HANDLE, "@Ping");
+            m_connection.writeStream().enqueue(new InvocationSerialization(invocation));
             m_outstandingPing = true;
         }
 
@@ -446,7 +634,7 @@ class Distributer {
                     /*
                      * Repair all cluster topology data with the node connection removed
                      */
-                    Iterator<Map.Entry<Integer, NodeConnection>> i = m_partitionMasters.entrySet().iterator();
+                    Iterator<Map.Entry<Integer, NodeConnection>> i = m_hostIdToConnection.entrySet().iterator();
                     while (i.hasNext()) {
                         Map.Entry<Integer, NodeConnection> entry = i.next();
                         if (entry.getValue() == this) {
@@ -454,38 +642,24 @@ class Distributer {
                         }
                     }
 
-                    i = m_hostIdToConnection.entrySet().iterator();
-                    while (i.hasNext()) {
-                        Map.Entry<Integer, NodeConnection> entry = i.next();
-                        if (entry.getValue() == this) {
-                            i.remove();
+                    final Topology topology = m_topology;
+                    Map<Integer, NodeConnection> partitionMasters = new HashMap<Integer, NodeConnection>();
+                    for (Map.Entry<Integer, NodeConnection> entry : topology.partitionMasters.entrySet()) {
+                        if (entry.getValue() != this) {
+                            partitionMasters.put(entry.getKey(), entry.getValue());
                         }
                     }
 
-                    Iterator<Map.Entry<Integer, NodeConnection[]>> i2 = m_partitionReplicas.entrySet().iterator();
-                    List<Pair<Integer, NodeConnection[]>> entriesToRewrite = new ArrayList<Pair<Integer, NodeConnection[]>>();
-                    while (i2.hasNext()) {
-                        Map.Entry<Integer, NodeConnection[]> entry = i2.next();
-                        for (NodeConnection nc : entry.getValue()) {
-                            if (nc == this) {
-                                entriesToRewrite.add(Pair.of(entry.getKey(), entry.getValue()));
-                            }
+                    Map<Integer, NodeConnection[]> partitionReplicas = new HashMap<Integer, NodeConnection[]>();
+                    for (Map.Entry<Integer, NodeConnection[]> entry : topology.partitionReplicas.entrySet()) {
+                        NodeConnection survivors[] = without(entry.getValue(), this);
+                        if (survivors.length > 0) {
+                            partitionReplicas.put(entry.getKey(), survivors);
                         }
                     }
 
-                    for (Pair<Integer, NodeConnection[]> entry : entriesToRewrite) {
-                        m_partitionReplicas.remove(entry.getFirst());
-                        NodeConnection survivors[] = new NodeConnection[entry.getSecond().length - 1];
-                        if (survivors.length == 0) break;
-                        int zz = 0;
-                        for (int ii = 0; ii < entry.getSecond().length; ii++) {
-                            if (entry.getSecond()[ii] != this) {
-                                survivors[zz++] = entry.getSecond()[ii];
-                            }
-                        }
-                        m_partitionReplicas.put(entry.getFirst(), survivors);
-                    }
-
+                    m_topology = new Topology(without(topology.connections, this),
+                            partitionMasters, partitionReplicas, topology.procedureInfo, topology.hashinator);
                     m_connections.remove(this);
                     //Notify listeners that a connection has been lost
                     for (ClientStatusListenerExt s : m_listeners) {
@@ -620,7 +794,9 @@ class Distributer {
         final long instanceIdWhichIsTimestampAndLeaderIp[] = (long[])socketChannelAndInstanceIdAndBuildString[1];
         final int hostId = (int)instanceIdWhichIsTimestampAndLeaderIp[0];
 
-        NodeConnection cxn = new NodeConnection(instanceIdWhichIsTimestampAndLeaderIp);
+        final byte capabilities = (Byte)socketChannelAndInstanceIdAndBuildString[3];
+
+        NodeConnection cxn = new NodeConnection(instanceIdWhichIsTimestampAndLeaderIp, capabilities);
         Connection c = m_network.registerChannel( aChannel, cxn);
         cxn.m_connection = c;
 
@@ -650,6 +826,10 @@ class Distributer {
             m_buildString = (String)socketChannelAndInstanceIdAndBuildString[2];
 
             m_connections.add(cxn);
+            final Topology topology = m_topology;
+            m_topology = new Topology(m_connections.toArray(new NodeConnection[0]),
+                    topology.partitionMasters, topology.partitionReplicas,
+                    topology.procedureInfo, topology.hashinator);
         }
 
         if (m_useClientAffinity) {
@@ -684,132 +864,231 @@ class Distributer {
         assert(invocation != null);
         assert(cb != null);
 
-        NodeConnection cxn = null;
-        boolean backpressure = true;
+        NodeConnection cxn = pickConnection(invocation, ignoreBackpressure, true);
+        if (cxn == null) {
+            /*
+             * Every candidate connection had backpressure. Check again holding the lock that
+             * offBackPressure() takes to ensure that backpressure is not reported AFTER
+             * the write stream reports that backpressure has ended.
+             */
+            synchronized (this) {
+                cxn = pickConnection(invocation, ignoreBackpressure, false);
+                if (cxn == null) {
+                    for (ClientStatusListenerExt s : m_listeners) {
+                        s.backpressure(true);
+                    }
+                }
+            }
+        }
 
         /*
-         * Synchronization is necessary to ensure that m_connections is not modified
-         * as well as to ensure that backpressure is reported correctly
+         * The invocation is serialized later by the network thread, straight into the
+         * connection's pooled network buffers.
+         * createWork synchronizes on an individual connection which allows for more concurrency
          */
-        synchronized (this) {
-            final int totalConnections = m_connections.size();
+        if (cxn != null) {
+            cxn.createWork(invocation.getHandle(), invocation.getProcName(),
+                    new InvocationSerialization(invocation), cb, ignoreBackpressure, timeout);
+        }
 
-            if (totalConnections == 0) {
-                throw new NoConnectionsException("No connections.");
-            }
+        return cxn != null;
+    }
 
-            /*
-             * Check if the master for the partition is known. No back pressure check to ensure correct
-             * routing, but backpressure will be managed anyways. This is where we guess partition based on client
-             * affinity and known topology (hashinator initialized).
-             */
-            if (m_useClientAffinity && (m_hashinator != null)) {
-                final Procedure procedureInfo = m_procedureInfo.get(invocation.getProcName());
-                Integer hashedPartition = -1;
-
-                if (procedureInfo != null) {
-                    hashedPartition = Constants.MP_INIT_PID;
-                    if (!procedureInfo.multiPart) {
-                        hashedPartition = m_hashinator.getHashedPartitionForParameter(
-                                procedureInfo.partitionParameterType,
-                                invocation.getPartitionParamValue(procedureInfo.partitionParameter));
+    /**
+     * Queue a batch of invocations. Each is routed the way queue() would route it,
+     * and the ones that end up on the same connection go out in one message
+     * if that server advertised support for batches when it logged us in.
+     * Either the whole batch is queued or, if a connection it needs has
+     * backpressure, none of it is.
+     * @return True if the batch was queued and false if it was not queued due to backpressure
+     * @throws NoConnectionsException
+     */
+    boolean queueBatch(
+            ProcedureInvocation invocations[],
+            ProcedureCallback callbacks[],
+            final boolean ignoreBackpressure, final long timeout)
+            throws NoConnectionsException {
+        assert(invocations.length == callbacks.length);
+
+        Map<NodeConnection, List<Integer>> byConnection = new HashMap<NodeConnection, List<Integer>>();
+        for (int ii = 0; ii < invocations.length; ii++) {
+            NodeConnection cxn = pickConnection(invocations[ii], ignoreBackpressure, true);
+            if (cxn == null) {
+                // same re-check as queue()
+                synchronized (this) {
+                    cxn = pickConnection(invocations[ii], ignoreBackpressure, false);
+                    if (cxn == null) {
+                        for (ClientStatusListenerExt s : m_listeners) {
+                            s.backpressure(true);
+                        }
+                        return false;
                     }
-                    /*
-                     * If the procedure is read only and single part, load balance across replicas
-                     */
-                    if (!procedureInfo.multiPart && procedureInfo.readOnly) {
-                        NodeConnection partitionReplicas[] = m_partitionReplicas.get(hashedPartition);
-                        if (partitionReplicas != null && partitionReplicas.length > 0) {
-                            cxn = partitionReplicas[ThreadLocalRandom.current().nextInt(partitionReplicas.length)];
-                            if (cxn.hadBackPressure()) {
-                                //See if there is one without backpressure, make sure it's still connected
-                                for (NodeConnection nc : partitionReplicas) {
-                                    if (!nc.hadBackPressure() && nc.m_isConnected) {
-                                        cxn = nc;
-                                        break;
-                                    }
+                }
+            }
+            List<Integer> indexes = byConnection.get(cxn);
+            if (indexes == null) {
+                indexes = new ArrayList<Integer>();
+                byConnection.put(cxn, indexes);
+            }
+            indexes.add(ii);
+        }
+
+        for (Map.Entry<NodeConnection, List<Integer>> e : byConnection.entrySet()) {
+            NodeConnection cxn = e.getKey();
+            List<Integer> indexes = e.getValue();
+            if (indexes.size() == 1 || !cxn.m_supportsBatches) {
+                // servers that predate batches get the invocations one message at a time
+                for (int index : indexes) {
+                    ProcedureInvocation invocation = invocations[index];
+                    cxn.createWork(invocation.getHandle(), invocation.getProcName(),
+                            new InvocationSerialization(invocation), callbacks[index],
+                            ignoreBackpressure, timeout);
+                }
+                continue;
+            }
+            ProcedureInvocation batch[] = new ProcedureInvocation[indexes.size()];
+            ProcedureCallback batchCallbacks[] = new ProcedureCallback[indexes.size()];
+            for (int ii = 0; ii < batch.length; ii++) {
+                batch[ii] = invocations[indexes.get(ii)];
+                batchCallbacks[ii] = callbacks[indexes.get(ii)];
+            }
+            cxn.createBatchWork(batch, batchCallbacks, ignoreBackpressure, timeout);
+        }
+        return true;
+    }
+
+    /**
+     * Choose the connection to send an invocation to from the current topology snapshot.
+     * @param updateStats If true count the choice in the client affinity stats
+     * @return The chosen connection or null if all candidates have backpressure
+     * @throws NoConnectionsException
+     */
+    private NodeConnection pickConnection(
+            ProcedureInvocation invocation,
+            boolean ignoreBackpressure,
+            boolean updateStats)
+            throws NoConnectionsException {
+        final Topology topology = m_topology;
+        final NodeConnection[] connections = topology.connections;
+        final int totalConnections = connections.length;
+
+        if (totalConnections == 0) {
+            throw new NoConnectionsException("No connections.");
+        }
+
+        NodeConnection cxn = null;
+        boolean backpressure = true;
+
+        /*
+         * Check if the master for the partition is known. No back pressure check to ensure correct
+         * routing, but backpressure will be managed anyways. This is where we guess partition based on client
+         * affinity and known topology (hashinator initialized).
+         */
+        if (m_useClientAffinity && (topology.hashinator != null)) {
+            final Procedure procedureInfo = topology.procedureInfo.get(invocation.getProcName());
+            Integer hashedPartition = -1;
+
+            if (procedureInfo != null) {
+                hashedPartition = Constants.MP_INIT_PID;
+                if (!procedureInfo.multiPart) {
+                    hashedPartition = topology.hashinator.getHashedPartitionForParameter(
+                            procedureInfo.partitionParameterType,
+                            invocation.getPartitionParamValue(procedureInfo.partitionParameter));
+                }
+                /*
+                 * If the procedure is read only and single part, load balance across replicas
+                 */
+                if (!procedureInfo.multiPart && procedureInfo.readOnly) {
+                    NodeConnection partitionReplicas[] = topology.partitionReplicas.get(hashedPartition);
+                    if (partitionReplicas != null && partitionReplicas.length > 0) {
+                        cxn = partitionReplicas[ThreadLocalRandom.current().nextInt(partitionReplicas.length)];
+                        if (cxn.hadBackPressure()) {
+                            //See if there is one without backpressure, make sure it's still connected
+                            for (NodeConnection nc : partitionReplicas) {
+                                if (!nc.hadBackPressure() && nc.m_isConnected) {
+                                    cxn = nc;
+                                    break;
                                 }
                             }
-                            if (!cxn.hadBackPressure() || ignoreBackpressure) {
-                                backpressure = false;
-                            }
                         }
-                    } else {
-                        /*
-                         * Writes have to go to the master
-                         */
-                        cxn = m_partitionMasters.get(hashedPartition);
-                        if (cxn != null && !cxn.hadBackPressure() || ignoreBackpressure) {
+                        if (!cxn.hadBackPressure() || ignoreBackpressure) {
                             backpressure = false;
                         }
                     }
-                }
-                if (cxn != null && !cxn.m_isConnected) {
-                    // Would be nice to log something here
-                    // Client affinity picked a connection that was actually disconnected.  Reset to null
-                    // and let the round-robin choice pick a connection
-                    cxn = null;
-                }
-                ClientAffinityStats stats = m_clientAffinityStats.get(hashedPartition);
-                if (stats == null) {
-                    stats = new ClientAffinityStats(hashedPartition, 0, 0, 0, 0);
-                    m_clientAffinityStats.put(hashedPartition, stats);
-                }
-                if (cxn != null) {
-                    if (procedureInfo != null && procedureInfo.readOnly) {
-                        stats.addAffinityRead();
-                    }
-                    else {
-                        stats.addAffinityWrite();
+                } else {
+                    /*
+                     * Writes have to go to the master
+                     */
+                    cxn = topology.partitionMasters.get(hashedPartition);
+                    if (cxn != null && !cxn.hadBackPressure() || ignoreBackpressure) {
+                        backpressure = false;
                     }
                 }
+            }
+            if (cxn != null && !cxn.m_isConnected) {
+                // Would be nice to log something here
+                // Client affinity picked a connection that was actually disconnected.  Reset to null
+                // and let the round-robin choice pick a connection
+                cxn = null;
+            }
+            if (updateStats) {
                 // account these here because we lose the partition ID and procedure info once we
                 // bust out of this scope.
-                else {
-                    if (procedureInfo != null && procedureInfo.readOnly) {
-                        stats.addRrRead();
-                    }
-                    else {
-                        stats.addRrWrite();
-                    }
-                }
+                updateAffinityStats(hashedPartition, procedureInfo != null && procedureInfo.readOnly, cxn != null);
             }
-            if (cxn == null) {
-                for (int i=0; i < totalConnections; ++i) {
-                    cxn = m_connections.get(Math.abs(++m_nextConnection % totalConnections));
-                    if (!cxn.hadBackPressure() || ignoreBackpressure) {
-                        // serialize and queue the invocation
-                        backpressure = false;
-                        break;
-                    }
+        }
+        if (cxn == null) {
+            for (int i=0; i < totalConnections; ++i) {
+                cxn = connections[Math.abs(m_nextConnection.incrementAndGet() % totalConnections)];
+                if (!cxn.hadBackPressure() || ignoreBackpressure) {
+                    // serialize and queue the invocation
+                    backpressure = false;
+                    break;
                 }
             }
+        }
 
-            if (backpressure) {
-                cxn = null;
-                for (ClientStatusListenerExt s : m_listeners) {
-                    s.backpressure(true);
+        return backpressure ? null : cxn;
+    }
+
+    private void updateAffinityStats(int partition, boolean readOnly, boolean affinity) {
+        // spread the thread ids, which are often consecutive, over the stripes
+        final long threadId = Thread.currentThread().getId();
+        final int stripe = (int)((threadId * 0x9E3779B97F4A7C15L) >>> 58) & (AFFINITY_STATS_STRIPES - 1);
+        final Map<Integer, ClientAffinityStats> stripeStats = m_clientAffinityStats[stripe];
+        synchronized (stripeStats) {
+            ClientAffinityStats stats = stripeStats.get(partition);
+            if (stats == null) {
+                stats = new ClientAffinityStats(partition, 0, 0, 0, 0);
+                stripeStats.put(partition, stats);
+            }
+            if (affinity) {
+                if (readOnly) {
+                    stats.addAffinityRead();
+                }
+                else {
+                    stats.addAffinityWrite();
+                }
+            }
+            else {
+                if (readOnly) {
+                    stats.addRrRead();
+                }
+                else {
+                    stats.addRrWrite();
                 }
             }
         }
+    }
 
-        /*
-         * Do the heavy weight serialization outside the synchronized block.
-         * createWork synchronizes on an individual connection which allows for more concurrency
-         */
-        if (cxn != null) {
-            ByteBuffer buf = ByteBuffer.allocate(4 + invocation.getSerializedSize());
-            buf.putInt(buf.capacity() - 4);
-            try {
-                invocation.flattenToBuffer(buf);
-                buf.flip();
-            } catch (Exception e) {
-                throw new RuntimeException(e);
+    private static NodeConnection[] without(NodeConnection[] connections, NodeConnection removed) {
+        ArrayList<NodeConnection> survivors = new ArrayList<NodeConnection>(connections.length);
+        for (NodeConnection nc : connections) {
+            if (nc != removed) {
+                survivors.add(nc);
             }
-            cxn.createWork(invocation.getHandle(), invocation.getProcName(), buf, cb, ignoreBackpressure, timeout);
         }
-
-        return !backpressure;
+        return survivors.toArray(new NodeConnection[survivors.size()]);
     }
 
     /**
@@ -904,10 +1183,18 @@ class Distributer {
     Map<Integer, ClientAffinityStats> getAffinityStatsSnapshot()
     {
         Map<Integer, ClientAffinityStats> retval = new HashMap<Integer, ClientAffinityStats>();
-        // these get modified under this lock in queue()
-        synchronized(this) {
-            for (Entry<Integer, ClientAffinityStats> e : m_clientAffinityStats.entrySet()) {
-                retval.put(e.getKey(), (ClientAffinityStats)e.getValue().clone());
+        // sum the stripes, each stripe's map is modified under its own lock
+        for (Map<Integer, ClientAffinityStats> stripeStats : m_clientAffinityStats) {
+            synchronized (stripeStats) {
+                for (Entry<Integer, ClientAffinityStats> e : stripeStats.entrySet()) {
+                    ClientAffinityStats total = retval.get(e.getKey());
+                    if (total == null) {
+                        retval.put(e.getKey(), (ClientAffinityStats)e.getValue().clone());
+                    }
+                    else {
+                        total.add(e.getValue());
+                    }
+                }
             }
         }
         return retval;
@@ -946,11 +1233,12 @@ class Distributer {
 
         //In future let TOPO return cooked bytes when cooked and we use correct recipe
         boolean cooked = false;
+        final HashinatorLite hashinator;
         if (tables.length == 1) {
             //Just in case the new client connects to the old version of Volt that only returns 1 topology table
             // We're going to get the MPI back in this table, so subtract it out from the number of partitions.
             int numPartitions = vt.getRowCount() - 1;
-            m_hashinator = new HashinatorLite(numPartitions); // legacy only
+            hashinator = new HashinatorLite(numPartitions); // legacy only
         } else {
             //Second table contains the hash function
             boolean advanced = tables[1].advanceRow();
@@ -959,13 +1247,13 @@ class Distributer {
                                    "performance will be lower because transactions can't be routed at this client");
                 return;
             }
-            m_hashinator = new HashinatorLite(
+            hashinator = new HashinatorLite(
                     HashinatorLiteType.valueOf(tables[1].getString("HASHTYPE")),
                     tables[1].getVarbinary("HASHCONFIG"),
                     cooked);
         }
-        m_partitionMasters.clear();
-        m_partitionReplicas.clear();
+        Map<Integer, NodeConnection> partitionMasters = new HashMap<Integer, NodeConnection>();
+        Map<Integer, NodeConnection[]> partitionReplicas = new HashMap<Integer, NodeConnection[]>();
         // The MPI's partition ID is 16383 (MpInitiator.MP_INIT_PID), so we shouldn't inadvertently
         // hash to it.  Go ahead and include it in the maps, we can use it at some point to
         // route MP transactions directly to the MPI node.
@@ -980,17 +1268,21 @@ class Distributer {
                     connections.add(m_hostIdToConnection.get(hostId));
                 }
             }
-            m_partitionReplicas.put(partition, connections.toArray(new NodeConnection[0]));
+            partitionReplicas.put(partition, connections.toArray(new NodeConnection[0]));
 
             Integer leaderHostId = Integer.valueOf(vt.getString("Leader").split(":")[0]);
             if (m_hostIdToConnection.containsKey(leaderHostId)) {
-                m_partitionMasters.put(partition, m_hostIdToConnection.get(leaderHostId));
+                partitionMasters.put(partition, m_hostIdToConnection.get(leaderHostId));
             }
         }
+
+        final Topology topology = m_topology;
+        m_topology = new Topology(topology.connections, partitionMasters, partitionReplicas,
+                topology.procedureInfo, hashinator);
     }
 
     private void updateProcedurePartitioning(VoltTable vt) {
-        m_procedureInfo.clear();
+        Map<String, Procedure> procedureInfo = new HashMap<String, Procedure>();
         while (vt.advanceRow()) {
             try {
                 //Data embedded in JSON object in remarks column
@@ -1002,11 +1294,11 @@ class Distributer {
                     int partitionParameter = jsObj.getInt(Constants.JSON_PARTITION_PARAMETER);
                     int partitionParameterType =
                         jsObj.getInt(Constants.JSON_PARTITION_PARAMETER_TYPE);
-                    m_procedureInfo.put(procedureName,
+                    procedureInfo.put(procedureName,
                             new Procedure(false,readOnly, partitionParameter, partitionParameterType));
                 } else {
                     // Multi Part procedure JSON descriptors omit the partitionParameter
-                    m_procedureInfo.put(procedureName, new Procedure(true, readOnly, Procedure.PARAMETER_NONE,
+                    procedureInfo.put(procedureName, new Procedure(true, readOnly, Procedure.PARAMETER_NONE,
                                 Procedure.PARAMETER_NONE));
                 }
 
@@ -1014,6 +1306,10 @@ class Distributer {
                 e.printStackTrace();
             }
         }
+
+        final Topology topology = m_topology;
+        m_topology = new Topology(topology.connections, topology.partitionMasters,
+                topology.partitionReplicas, procedureInfo, topology.hashinator);
     }
 
     /**
@@ -1023,7 +1319,7 @@ class Distributer {
      * @return
      */
     public boolean isHashinatorInitialized() {
-        return (m_hashinator != null);
+        return (m_topology.hashinator != null);
     }
 
     /**
@@ -1034,16 +1330,18 @@ class Distributer {
      * @return
      */
     public long getPartitionForParameter(byte typeValue, Object value) {
-        if (m_hashinator == null) {
+        final HashinatorLite hashinator = m_topology.hashinator;
+        if (hashinator == null) {
             return -1;
         }
-        return m_hashinator.getHashedPartitionForParameter(typeValue, value);
+        return hashinator.getHashedPartitionForParameter(typeValue, value);
     }
 
     public HashinatorLiteType getHashinatorType() {
-        if (m_hashinator == null) {
+        final HashinatorLite hashinator = m_topology.hashinator;
+        if (hashinator == null) {
             return HashinatorLiteType.LEGACY;
         }
-        return m_hashinator.getConfigurationType();
+        return hashinator.getConfigurationType();
     }
 }
@@ -18,9 +18,11 @@
 package org.voltdb.client;
 
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.nio.ByteBuffer;
 
 import org.voltdb.ParameterSet;
+import org.voltdb.VoltTable;
 import org.voltdb.utils.SerializationHelper;
 
 /**
@@ -29,6 +31,13 @@ import org.voltdb.utils.SerializationHelper;
  */
 public class ProcedureInvocation {
 
+    /**
+     * Version byte that marks a message carrying a batch of invocations instead
+     * of one: a count followed by that many length prefixed invocations.
+     * Distinct from every {@link ProcedureInvocationType} value.
+     */
+    public static final byte BATCH_MARKER = (byte) (1 << 6);
+
     private final long m_clientHandle;
     private final String m_procName;
     private byte m_procNameBytes[];
@@ -81,6 +90,23 @@ public class ProcedureInvocation {
         return size;
     }
 
+    /**
+     * True if a parameter has to be serialized by the calling thread rather than
+     * later by the network thread. Tables, arrays and dates may go on being changed
+     * by the caller after the invocation is queued. Dates, decimals and arrays can
+     * also fail to serialize, and that has to be reported to the caller.
+     */
+    boolean needsEagerSerialization() {
+        for (Object param : m_parameters.toArray()) {
+            if (param instanceof VoltTable || param instanceof java.util.Date ||
+                    param instanceof BigDecimal ||
+                    (param != null && param.getClass().isArray())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public Object getPartitionParamValue(int index) {
         return m_parameters.toArray()[index];
     }
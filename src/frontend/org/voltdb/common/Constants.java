@@ -39,6 +39,9 @@ public class Constants
     public static final byte AUTHENTICATION_FAILURE_DUE_TO_REJOIN = 4;
     public static final byte EXPORT_DISABLED_REJECTION = 5;
 
+    // bits of the capabilities byte that ends a successful login response
+    public static final byte CAPABILITY_INVOCATION_BATCHES = 1 << 0;
+
     // from jdbc metadata generation
     public static final String JSON_PARTITION_PARAMETER = "partitionParameter";
     public static final String JSON_PARTITION_PARAMETER_TYPE = "partitionParameterType";
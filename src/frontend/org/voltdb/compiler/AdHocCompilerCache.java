@@ -18,17 +18,21 @@
 package org.voltdb.compiler;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.WeakHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.voltdb.common.Constants;
 import org.voltdb.planner.BoundPlan;
 
+import com.google_voltpatches.common.cache.Cache;
+import com.google_voltpatches.common.cache.CacheBuilder;
+import com.google_voltpatches.common.cache.RemovalListener;
+import com.google_voltpatches.common.cache.RemovalNotification;
+
 /**
  * Keep a cache two level cache of plans generated by the Ad Hoc
  * planner.
@@ -40,6 +44,9 @@ import org.voltdb.planner.BoundPlan;
  * statement mapped to core parameterized plans. These parameterized
  * plans need parameter values and sql literals in order to be
  * actually used.
+ *
+ * Lookups may come from several ad hoc planner threads at once and do not
+ * block each other. Insertions are serialized.
  */
 public class AdHocCompilerCache implements Serializable {
     private static final long serialVersionUID = 1L;
@@ -54,6 +61,17 @@ public class AdHocCompilerCache implements Serializable {
         m_catalogVersionMatch.clear();
     }
 
+    /**
+     * Drop every cached plan, for when something besides the catalog, such as
+     * the statistics the planner costs plans with, changes which plan is best.
+     */
+    public synchronized static void clearPlansForAllVersions() {
+        for (AdHocCompilerCache cache : m_catalogVersionMatch.values()) {
+            cache.m_literalCache.invalidateAll();
+            cache.m_coreCache.invalidateAll();
+        }
+    }
+
     /**
      * Get the global cache for a given version of the catalog. Note that there can be only
      * one cache per catalogVersion at a time.
@@ -76,21 +94,21 @@ public class AdHocCompilerCache implements Serializable {
     final int MAX_CORE_ENTRIES;
 
     /** cache of literals to full plans */
-    final Map<String, AdHocPlannedStatement> m_literalCache;
+    final Cache<String, AdHocPlannedStatement> m_literalCache;
     /** cache of parameterized plan descriptions to one or more core parameterized plans,
      *  each plan optionally has its own requirements for which parameters need to be bound
      *  to what values to enable its specialized (expression-indexed) plan. */
-    final Map<String, List<BoundPlan> > m_coreCache;
+    final Cache<String, List<BoundPlan> > m_coreCache;
 
     // placeholder stats used during development that may/may not survive
-    long m_literalHits = 0;
-    long m_literalQueries = 0;
-    long m_literalInsertions = 0;
-    long m_literalEvictions = 0;
-    long m_planHits = 0;
-    long m_planQueries = 0;
-    long m_planInsertions = 0;
-    long m_planEvictions = 0;
+    final AtomicLong m_literalHits = new AtomicLong();
+    final AtomicLong m_literalQueries = new AtomicLong();
+    final AtomicLong m_literalInsertions = new AtomicLong();
+    final AtomicLong m_literalEvictions = new AtomicLong();
+    final AtomicLong m_planHits = new AtomicLong();
+    final AtomicLong m_planQueries = new AtomicLong();
+    final AtomicLong m_planInsertions = new AtomicLong();
+    final AtomicLong m_planEvictions = new AtomicLong();
 
     /** {@see this#startPeriodicStatsPrinting() } */
     Timer m_statsTimer = null;
@@ -113,35 +131,31 @@ public class AdHocCompilerCache implements Serializable {
         MAX_LITERAL_ENTRIES = maxLiteralEntries;
         MAX_CORE_ENTRIES = maxCoreEntries;
 
-        // an LRU cache map
-        m_literalCache = new LinkedHashMap<String, AdHocPlannedStatement>(MAX_LITERAL_ENTRIES * 2, .75f, true) {
-            private static final long serialVersionUID = 1L;
-
-            // This method is called just after a new entry has been added
-            @Override
-            public boolean removeEldestEntry(Map.Entry<String, AdHocPlannedStatement> eldest) {
-                if (size() > MAX_LITERAL_ENTRIES) {
-                    ++m_literalEvictions;
-                    return true;
-                }
-                return false;
-            }
-        };
-
-        // an LRU cache map
-        m_coreCache = new LinkedHashMap<String, List<BoundPlan> >(MAX_CORE_ENTRIES * 2, .75f, true) {
-            private static final long serialVersionUID = 1L;
-
-            // This method is called just after a new entry has been added
-            @Override
-            public boolean removeEldestEntry(Map.Entry<String, List<BoundPlan> > eldest) {
-                if (size() > MAX_CORE_ENTRIES) {
-                    ++m_planEvictions;
-                    return true;
-                }
-                return false;
-            }
-        };
+        // an (approximately) LRU cache map
+        m_literalCache = CacheBuilder.newBuilder()
+                .maximumSize(MAX_LITERAL_ENTRIES)
+                .removalListener(new RemovalListener<String, AdHocPlannedStatement>() {
+                    @Override
+                    public void onRemoval(RemovalNotification<String, AdHocPlannedStatement> notification) {
+                        if (notification.wasEvicted()) {
+                            m_literalEvictions.incrementAndGet();
+                        }
+                    }
+                })
+                .build();
+
+        // an (approximately) LRU cache map
+        m_coreCache = CacheBuilder.newBuilder()
+                .maximumSize(MAX_CORE_ENTRIES)
+                .removalListener(new RemovalListener<String, List<BoundPlan> >() {
+                    @Override
+                    public void onRemoval(RemovalNotification<String, List<BoundPlan> > notification) {
+                        if (notification.wasEvicted()) {
+                            m_planEvictions.incrementAndGet();
+                        }
+                    }
+                })
+                .build();
     }
 
     /**
@@ -149,36 +163,31 @@ public class AdHocCompilerCache implements Serializable {
      * Probably shouldn't live past real stats integration.
      */
     synchronized void printStats() {
+        // read and reset these
+        long literalHits = m_literalHits.getAndSet(0);
+        long literalQueries = m_literalQueries.getAndSet(0);
+        long planHits = m_planHits.getAndSet(0);
+        long planQueries = m_planQueries.getAndSet(0);
         String line1 = String.format("CACHE STATS - Literals: Hits %d/%d (%.1f%%), Inserts %d Evictions %d\n",
-                m_literalHits, m_literalQueries, (m_literalHits * 100.0) / m_literalQueries,
-                m_literalInsertions, m_literalEvictions);
+                literalHits, literalQueries, (literalHits * 100.0) / literalQueries,
+                m_literalInsertions.getAndSet(0), m_literalEvictions.getAndSet(0));
         String line2 = String.format("CACHE STATS - Plans:    Hits %d/%d (%.1f%%), Inserts %d Evictions %d\n",
-                m_planHits, m_planQueries, (m_planHits * 100.0) /m_planQueries,
-                m_planInsertions, m_planEvictions);
+                planHits, planQueries, (planHits * 100.0) / planQueries,
+                m_planInsertions.getAndSet(0), m_planEvictions.getAndSet(0));
 
         System.out.print(line1 + line2);
         System.out.flush();
-
-        // reset these
-        m_literalHits = 0;
-        m_literalQueries = 0;
-        m_literalInsertions = 0;
-        m_literalEvictions = 0;
-        m_planHits = 0;
-        m_planQueries = 0;
-        m_planInsertions = 0;
-        m_planEvictions = 0;
     }
 
     /**
      * @param sql SQL literal
      * @return full, ready-to-go plan
      */
-    public synchronized AdHocPlannedStatement getWithSQL(String sql) {
-        ++m_literalQueries;
-        AdHocPlannedStatement retval = m_literalCache.get(sql);
+    public AdHocPlannedStatement getWithSQL(String sql) {
+        m_literalQueries.incrementAndGet();
+        AdHocPlannedStatement retval = m_literalCache.getIfPresent(sql);
         if (retval != null) {
-            ++m_literalHits;
+            m_literalHits.incrementAndGet();
         }
         return retval;
     }
@@ -186,13 +195,14 @@ public class AdHocCompilerCache implements Serializable {
     /**
      * @param parsedToken String representing a parameterized and parsed
      * SQL statement
-     * @return A CorePlan that needs parameter values to run.
+     * @return A CorePlan that needs parameter values to run. The returned
+     * list is safe to iterate while other threads add to it.
      */
-    public synchronized List<BoundPlan> getWithParsedToken(String parsedToken) {
-        ++m_planQueries;
-        List<BoundPlan> retval = m_coreCache.get(parsedToken);
+    public List<BoundPlan> getWithParsedToken(String parsedToken) {
+        m_planQueries.incrementAndGet();
+        List<BoundPlan> retval = m_coreCache.getIfPresent(parsedToken);
         if (retval != null) {
-            ++m_planHits;
+            m_planHits.incrementAndGet();
         }
         return retval;
     }
@@ -226,17 +236,18 @@ public class AdHocCompilerCache implements Serializable {
         BoundPlan matched = null;
         BoundPlan unmatched = new BoundPlan(planIn.core, planIn.parameterBindings(extractedLiterals));
         // deal with the parameterized plan cache first
-        List<BoundPlan> boundVariants = m_coreCache.get(parsedToken);
+        List<BoundPlan> boundVariants = m_coreCache.getIfPresent(parsedToken);
         if (boundVariants == null) {
-            boundVariants = new ArrayList<BoundPlan>();
-            m_coreCache.put(parsedToken, boundVariants);
+            // Readers expect a cached list to be non-empty, so it is
+            // published below only once the first plan has been added.
+            boundVariants = new CopyOnWriteArrayList<BoundPlan>();
             // Note that there is an edge case in which more than one plan is getting counted as one
             // "plan insertion". This only happens when two different plans arose from the same parameterized
             // query (token) because one invocation used the correct constants to trigger an expression index and
             // another invocation did not.  These are not counted separately (which would have to happen below
             // after each call to boundVariants.add) because they are not evicted separately.
             // It seems saner to use consistent units when counting insertions vs. evictions.
-            ++m_planInsertions;
+            m_planInsertions.incrementAndGet();
         } else {
             for (BoundPlan boundPlan : boundVariants) {
                 if (boundPlan.equals(unmatched)) {
@@ -257,13 +268,14 @@ public class AdHocCompilerCache implements Serializable {
             // Don't count insertions (of possibly repeated tokens) here
             //  -- see the comment above where only UNIQUE token insertions are being counted, instead.
             boundVariants.add(unmatched);
+            m_coreCache.put(parsedToken, boundVariants);
         }
 
         // then deal with the
-        AdHocPlannedStatement cachedPlan = m_literalCache.get(sql);
+        AdHocPlannedStatement cachedPlan = m_literalCache.getIfPresent(sql);
         if (cachedPlan == null) {
             m_literalCache.put(sql, plan);
-            ++m_literalInsertions;
+            m_literalInsertions.incrementAndGet();
         }
         else {
             assert(cachedPlan.equals(plan));
@@ -291,7 +303,7 @@ public class AdHocCompilerCache implements Serializable {
      * @return  literal cache size as a count
      */
     public int getLiteralCacheSize() {
-        return m_literalCache.size();
+        return (int) m_literalCache.size();
     }
 
     /**
@@ -299,6 +311,6 @@ public class AdHocCompilerCache implements Serializable {
      * @return  core cache size as a count
      */
     public int getCoreCacheSize() {
-        return m_coreCache.size();
+        return (int) m_coreCache.size();
     }
 }
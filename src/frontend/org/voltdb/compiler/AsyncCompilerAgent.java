@@ -20,6 +20,7 @@ package org.voltdb.compiler;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 
@@ -46,12 +47,27 @@ public class AsyncCompilerAgent {
     // if more than this amount of work is queued, reject new work
     static public final int MAX_QUEUE_DEPTH = 250;
 
+    // number of threads planning ad hoc SQL concurrently
+    static final int PLANNER_THREADS;
+    static {
+        Integer threads = Integer.getInteger("adHocPlannerThreads");
+        if (threads == null || threads < 1) {
+            threads = Math.min(4, CoreUtils.availableProcessors());
+        }
+        PLANNER_THREADS = threads;
+    }
+
     // accept work via this mailbox
     Mailbox m_mailbox;
 
-    // do work in this executor service
+    // plan ad hoc SQL in this executor service
     final ListeningExecutorService m_es =
-        CoreUtils.getBoundedSingleThreadExecutor("Ad Hoc Planner", MAX_QUEUE_DEPTH);
+        CoreUtils.getListeningExecutorService("Ad Hoc Planner", PLANNER_THREADS,
+                new LinkedBlockingQueue<Runnable>(MAX_QUEUE_DEPTH), null);
+
+    // prepare catalog changes one at a time in this executor service
+    final ListeningExecutorService m_catalogEs =
+        CoreUtils.getBoundedSingleThreadExecutor("Catalog Change Planner", MAX_QUEUE_DEPTH);
 
     // intended for integration test use. finish planning what's in
     // the queue and terminate the TPE.
@@ -60,9 +76,14 @@ public class AsyncCompilerAgent {
             m_es.shutdown();
             m_es.awaitTermination(120, TimeUnit.SECONDS);
         }
+        if (m_catalogEs != null) {
+            m_catalogEs.shutdown();
+            m_catalogEs.awaitTermination(120, TimeUnit.SECONDS);
+        }
     }
 
     public void createMailbox(final HostMessenger hostMessenger, final long hsId) {
+        hostLog.info("Planning ad hoc SQL with " + PLANNER_THREADS + " threads");
         m_mailbox = new LocalMailbox(hostMessenger) {
 
             @Override
@@ -73,15 +94,19 @@ public class AsyncCompilerAgent {
 
             @Override
             public void deliver(final VoltMessage message) {
+                final LocalObjectMessage wrapper = (LocalObjectMessage)message;
+                // Catalog changes must be prepared in order, so they
+                // don't share the planner pool
+                final ListeningExecutorService es =
+                    wrapper.payload instanceof CatalogChangeWork ? m_catalogEs : m_es;
                 try {
-                    m_es.submit(new Runnable() {
+                    es.submit(new Runnable() {
                         @Override
                         public void run() {
                             handleMailboxMessage(message);
                         }
                     });
                 } catch (RejectedExecutionException rejected) {
-                    final LocalObjectMessage wrapper = (LocalObjectMessage)message;
                     AsyncCompilerWork work = (AsyncCompilerWork)(wrapper.payload);
                     generateErrorResult("Ad Hoc Planner task queue is full. Try again.", work);
                 }
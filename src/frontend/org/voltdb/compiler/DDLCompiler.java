@@ -1543,7 +1543,12 @@ public class DDLCompiler {
         // set the type of the index based on the index name and column types
         // Currently, only int types can use hash or array indexes
         String indexNameNoCase = name.toLowerCase();
-        if (indexNameNoCase.contains("tree"))
+        if (indexNameNoCase.contains("btree"))
+        {
+            index.setType(IndexType.BTREE.getValue());
+            index.setCountable(true);
+        }
+        else if (indexNameNoCase.contains("tree"))
         {
             index.setType(IndexType.BALANCED_TREE.getValue());
             index.setCountable(true);
@@ -1704,7 +1709,9 @@ public class DDLCompiler {
         if (catalog_index != null) {
             // if the constraint name contains index type hints, exercise them (giant hack)
             String constraintNameNoCase = name.toLowerCase();
-            if (constraintNameNoCase.contains("tree"))
+            if (constraintNameNoCase.contains("btree"))
+                catalog_index.setType(IndexType.BTREE.getValue());
+            else if (constraintNameNoCase.contains("tree"))
                 catalog_index.setType(IndexType.BALANCED_TREE.getValue());
             if (constraintNameNoCase.contains("hash"))
                 catalog_index.setType(IndexType.HASH_TABLE.getValue());
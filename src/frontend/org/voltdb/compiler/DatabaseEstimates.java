@@ -20,20 +20,53 @@ package org.voltdb.compiler;
 import java.util.ArrayList;
 import java.util.HashMap;
 
+import org.voltdb.planner.DatabaseStatistics;
+
 public class DatabaseEstimates {
 
     public static class TableEstimates {
         public long maxTuples = 1000000;
         public long minTuples = 100000;
         public ArrayList<ScalarValueHints> valueHints = new ArrayList<ScalarValueHints>();
+        // index name to number of distinct keys, known only for analyzed tables
+        public HashMap<String, Long> indexDistinctKeys = new HashMap<String, Long>();
     }
 
     HashMap<String, TableEstimates> tables = new HashMap<String, TableEstimates>();
 
+    // statistics gathered by @AnalyzeStatistics, or null if there are none
+    final DatabaseStatistics m_statistics;
+
+    public DatabaseEstimates() {
+        this(null);
+    }
+
+    public DatabaseEstimates(DatabaseStatistics statistics) {
+        m_statistics = statistics;
+    }
+
+    /**
+     * @return true if the estimates come from gathered statistics, in which case
+     * plan nodes may cost themselves from real table and index sizes.
+     */
+    public boolean hasStatistics() {
+        return m_statistics != null;
+    }
+
     public TableEstimates getEstimatesForTable(String tableName) {
-        if (tables.containsKey(tableName) == false)
-            tables.put(tableName, new TableEstimates());
+        TableEstimates estimates = tables.get(tableName);
+        if (estimates == null) {
+            estimates = new TableEstimates();
+            DatabaseStatistics.TableStatistics tableStats =
+                (m_statistics == null) ? null : m_statistics.getTable(tableName);
+            if (tableStats != null) {
+                estimates.maxTuples = tableStats.rowCount;
+                estimates.minTuples = tableStats.rowCount;
+                estimates.indexDistinctKeys.putAll(tableStats.distinctKeyCounts);
+            }
+            tables.put(tableName, estimates);
+        }
 
-        return tables.get(tableName);
+        return estimates;
     }
 }
@@ -111,6 +111,7 @@ public class DeploymentBuilder {
     private Integer m_snapshotPriority;
 
     private Integer m_maxTempTableMemory = 100;
+    private Integer m_tempTableSpillSize = 0;
 
     private boolean m_elenabled;      // true if enabled; false if disabled
 
@@ -229,6 +230,11 @@ public class DeploymentBuilder {
         m_maxTempTableMemory = max;
     }
 
+    public void setTempTableSpillSize(int max)
+    {
+        m_tempTableSpillSize = max;
+    }
+
     public void writeXML(String path) {
         File file;
         try {
@@ -360,6 +366,7 @@ public class DeploymentBuilder {
         SystemSettingsType systemSettingType = factory.createSystemSettingsType();
         Temptables temptables = factory.createSystemSettingsTypeTemptables();
         temptables.setMaxsize(m_maxTempTableMemory);
+        temptables.setSpillsize(m_tempTableSpillSize);
         systemSettingType.setTemptables(temptables);
         if (m_snapshotPriority != null) {
             SystemSettingsType.Snapshot snapshot = factory.createSystemSettingsTypeSnapshot();
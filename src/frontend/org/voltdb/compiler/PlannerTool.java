@@ -18,7 +18,12 @@
 package org.voltdb.compiler;
 
 import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
+import org.apache.zookeeper_voltpatches.CreateMode;
+import org.apache.zookeeper_voltpatches.KeeperException;
+import org.apache.zookeeper_voltpatches.ZooDefs.Ids;
+import org.apache.zookeeper_voltpatches.ZooKeeper;
 import org.hsqldb_voltpatches.HSQLInterface;
 import org.hsqldb_voltpatches.HSQLInterface.HSQLParseException;
 import org.voltcore.logging.VoltLogger;
@@ -28,12 +33,14 @@ import org.voltdb.PlannerStatsCollector.CacheUse;
 import org.voltdb.StatsAgent;
 import org.voltdb.StatsSelector;
 import org.voltdb.VoltDB;
+import org.voltdb.VoltZK;
 import org.voltdb.catalog.Cluster;
 import org.voltdb.catalog.Database;
 import org.voltdb.common.Constants;
 import org.voltdb.planner.BoundPlan;
 import org.voltdb.planner.CompiledPlan;
 import org.voltdb.planner.CorePlan;
+import org.voltdb.planner.DatabaseStatistics;
 import org.voltdb.planner.PartitioningForStatement;
 import org.voltdb.planner.QueryPlanner;
 import org.voltdb.planner.TrivialCostModel;
@@ -43,16 +50,23 @@ import org.voltdb.utils.Encoder;
 /**
  * Planner tool accepts an already compiled VoltDB catalog and then
  * interactively accept SQL and outputs plans on standard out.
+ *
+ * Statements may be planned from several threads at once. Each statement
+ * is parsed in an HSQL session of its own, taken from a pool of sessions
+ * loaded with the catalog's schema.
  */
 public class PlannerTool {
     private static final VoltLogger hostLog = new VoltLogger("HOST");
 
     final Database m_database;
     final Cluster m_cluster;
-    final HSQLInterface m_hsql;
+    // HSQL sessions loaded with the schema that no planning thread is using
+    final ConcurrentLinkedQueue<HSQLInterface> m_idleHsqls = new ConcurrentLinkedQueue<HSQLInterface>();
     final int m_catalogVersion;
     final AdHocCompilerCache m_cache;
     static PlannerStatsCollector m_plannerStats;
+    // Statistics gathered by @AnalyzeStatistics, kept across catalog versions
+    static volatile DatabaseStatistics m_statistics = null;
 
     public static final int AD_HOC_JOINED_TABLE_LIMIT = 5;
 
@@ -65,8 +79,68 @@ public class PlannerTool {
         m_catalogVersion = catalogVersion;
         m_cache = AdHocCompilerCache.getCacheForCatalogVersion(catalogVersion);
 
-        // LOAD HSQL
-        m_hsql = HSQLInterface.loadHsqldb();
+        // Load the first session now so that a bad schema fails here
+        m_idleHsqls.offer(loadHsql());
+
+        hostLog.debug("hsql loaded");
+
+        // Create and register a singleton planner stats collector, if this is the first time.
+        // In mock test environments there may be no stats agent.
+        synchronized (PlannerTool.class) {
+            if (m_plannerStats == null) {
+                final StatsAgent statsAgent = VoltDB.instance().getStatsAgent();
+                if (statsAgent != null) {
+                    m_plannerStats = new PlannerStatsCollector(-1);
+                    statsAgent.registerStatsSource(StatsSelector.PLANNER, -1, m_plannerStats);
+                }
+            }
+        }
+    }
+
+    /**
+     * Plan ad hoc SQL with new statistics from now on, dropping the cached
+     * plans that were chosen with the old ones.
+     */
+    public static void setStatistics(DatabaseStatistics statistics) {
+        m_statistics = statistics;
+        AdHocCompilerCache.clearPlansForAllVersions();
+    }
+
+    public static DatabaseStatistics getStatistics() {
+        return m_statistics;
+    }
+
+    /**
+     * Record statistics in ZooKeeper so that hosts which join the cluster later plan with them too.
+     */
+    public static void saveStatistics(ZooKeeper zk, DatabaseStatistics statistics) throws Exception {
+        byte[] data = statistics.toJSONString().getBytes(Constants.UTF8ENCODING);
+        try {
+            zk.create(VoltZK.plannerStatistics, data, Ids.OPEN_ACL_UNSAFE, CreateMode.PERSISTENT);
+        } catch (KeeperException.NodeExistsException e) {
+            zk.setData(VoltZK.plannerStatistics, data, -1);
+        }
+    }
+
+    /**
+     * Pick up any statistics that were gathered before this host joined the cluster.
+     */
+    public static void loadStatistics(ZooKeeper zk) {
+        try {
+            byte[] data = zk.getData(VoltZK.plannerStatistics, false, null);
+            setStatistics(DatabaseStatistics.fromJSONString(new String(data, Constants.UTF8ENCODING)));
+        } catch (KeeperException.NoNodeException e) {
+            // no statistics have been gathered
+        } catch (Exception e) {
+            hostLog.warn("Unable to load planner statistics, planning without them", e);
+        }
+    }
+
+    /**
+     * Create an HSQL session with the catalog's schema for one planning thread.
+     */
+    private HSQLInterface loadHsql() {
+        HSQLInterface hsql = HSQLInterface.loadHsqldb();
         String binDDL = m_database.getSchema();
         String ddl = Encoder.decodeBase64AndDecompress(binDDL);
         String[] commands = ddl.split("\n");
@@ -76,27 +150,14 @@ public class PlannerTool {
             if (decoded_cmd.length() == 0)
                 continue;
             try {
-                m_hsql.runDDLCommand(decoded_cmd);
+                hsql.runDDLCommand(decoded_cmd);
             }
             catch (HSQLParseException e) {
                 // need a good error message here
                 throw new RuntimeException("Error creating hsql: " + e.getMessage() + " in DDL statement: " + decoded_cmd);
             }
         }
-
-        hostLog.debug("hsql loaded");
-
-        // Create and register a singleton planner stats collector, if this is the first time.
-        // In mock test environments there may be no stats agent.
-        synchronized (this) {
-            if (m_plannerStats == null) {
-                final StatsAgent statsAgent = VoltDB.instance().getStatsAgent();
-                if (statsAgent != null) {
-                    m_plannerStats = new PlannerStatsCollector(-1);
-                    statsAgent.registerStatsSource(StatsSelector.PLANNER, -1, m_plannerStats);
-                }
-            }
-        }
+        return hsql;
     }
 
     public AdHocPlannedStatement planSqlForTest(String sqlIn) {
@@ -106,6 +167,7 @@ public class PlannerTool {
 
     AdHocPlannedStatement planSql(String sqlIn, PartitioningForStatement partitioning) {
         CacheUse cacheUse = CacheUse.FAIL;
+        HSQLInterface hsql = null;
         if (m_plannerStats != null) {
             m_plannerStats.startStatsCollection();
         }
@@ -144,11 +206,17 @@ public class PlannerTool {
             // PLAN THE STMT
             //////////////////////
 
+            // HSQL sessions are not thread safe, so borrow one for this statement
+            hsql = m_idleHsqls.poll();
+            if (hsql == null) {
+                hsql = loadHsql();
+            }
+
             TrivialCostModel costModel = new TrivialCostModel();
-            DatabaseEstimates estimates = new DatabaseEstimates();
+            DatabaseEstimates estimates = new DatabaseEstimates(m_statistics);
             QueryPlanner planner = new QueryPlanner(
                     sql, "PlannerTool", "PlannerToolProc", m_cluster, m_database,
-                    partitioning, m_hsql, estimates, true,
+                    partitioning, hsql, estimates, true,
                     AD_HOC_JOINED_TABLE_LIMIT, costModel, null, null, DeterminismMode.FASTER);
 
             CompiledPlan plan = null;
@@ -227,6 +295,9 @@ public class PlannerTool {
             return ahps;
         }
         finally {
+            if (hsql != null) {
+                m_idleHsqls.offer(hsql);
+            }
             if (m_plannerStats != null) {
                 m_plannerStats.endStatsCollection(m_cache.getLiteralCacheSize(), m_cache.getCoreCacheSize(), cacheUse, -1);
             }
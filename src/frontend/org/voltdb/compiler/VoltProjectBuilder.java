@@ -266,6 +266,7 @@ public class VoltProjectBuilder {
     private Integer m_snapshotPriority;
 
     private Integer m_maxTempTableMemory = 100;
+    private Integer m_tempTableSpillSize = 0;
 
     private List<String> m_diagnostics;
 
@@ -512,6 +513,11 @@ public class VoltProjectBuilder {
         m_maxTempTableMemory = max;
     }
 
+    public void setTempTableSpillSize(int max)
+    {
+        m_tempTableSpillSize = max;
+    }
+
     /**
      * Override the procedure annotation with the specified values for a
      * specified procedure.
@@ -1014,6 +1020,7 @@ public class VoltProjectBuilder {
         SystemSettingsType systemSettingType = factory.createSystemSettingsType();
         Temptables temptables = factory.createSystemSettingsTypeTemptables();
         temptables.setMaxsize(m_maxTempTableMemory);
+        temptables.setSpillsize(m_tempTableSpillSize);
         systemSettingType.setTemptables(temptables);
         if (m_snapshotPriority != null) {
             SystemSettingsType.Snapshot snapshot = factory.createSystemSettingsTypeSnapshot();
@@ -84,6 +84,13 @@ public abstract class BaseInitiator implements Initiator
                     m_messenger,
                     m_repairLog,
                     joinProducer);
+        } else if (SpInitiatorMailbox.ENABLED) {
+            m_initiatorMailbox = new SpInitiatorMailbox(
+                    m_partitionId,
+                    m_scheduler,
+                    m_messenger,
+                    m_repairLog,
+                    joinProducer);
         } else {
             m_initiatorMailbox = new InitiatorMailbox(
                     m_partitionId,
@@ -106,6 +113,14 @@ public abstract class BaseInitiator implements Initiator
         agent.registerStatsSource(StatsSelector.STARVATION,
                                   getInitiatorHSId(),
                                   st);
+        if (m_partitionId != MpInitiator.MP_INIT_PID) {
+            InitiatorMailboxStats ms = new InitiatorMailboxStats(getInitiatorHSId(), m_partitionId,
+                    m_initiatorMailbox instanceof SpInitiatorMailbox ? "THREAD" : "LOCK");
+            m_initiatorMailbox.setDeliveryStats(ms);
+            agent.registerStatsSource(StatsSelector.INITIATORQUEUE,
+                                      getInitiatorHSId(),
+                                      ms);
+        }
 
         String partitionString = " ";
         if (m_partitionId != -1) {
@@ -38,6 +38,7 @@ import org.voltdb.messaging.CompleteTransactionMessage;
 import org.voltdb.messaging.Iv2InitiateTaskMessage;
 import org.voltdb.messaging.Iv2RepairLogRequestMessage;
 import org.voltdb.messaging.Iv2RepairLogResponseMessage;
+import org.voltdb.messaging.Iv2ReplicationBatchMessage;
 import org.voltdb.messaging.RejoinMessage;
 
 /**
@@ -46,7 +47,9 @@ import org.voltdb.messaging.RejoinMessage;
  *
  * If you add public synchronized methods that will be used on the MpInitiator then
  * you need to override them in MpInitiator mailbox so that they
- * occur in the correct thread instead of using synchronization
+ * occur in the correct thread instead of using synchronization.
+ * The same goes for SpInitiatorMailbox, which hands work to its
+ * scheduler on a dedicated thread.
  */
 public class InitiatorMailbox implements Mailbox
 {
@@ -63,6 +66,7 @@ public class InitiatorMailbox implements Mailbox
     private final LeaderCacheReader m_masterLeaderCache;
     private long m_hsId;
     private RepairAlgo m_algo;
+    protected volatile InitiatorMailboxStats m_deliveryStats = null;
 
     /*
      * Hacky global map of initiator mailboxes to support assertions
@@ -242,14 +246,47 @@ public class InitiatorMailbox implements Mailbox
         m_messenger.send(destHSIds, message);
     }
 
+    public void setDeliveryStats(InitiatorMailboxStats stats)
+    {
+        m_deliveryStats = stats;
+    }
+
     @Override
-    public synchronized void deliver(VoltMessage message)
+    public void deliver(VoltMessage message)
     {
-        deliverInternal(message);
+        final InitiatorMailboxStats stats = m_deliveryStats;
+        if (stats == null) {
+            synchronized (this) {
+                deliverInternal(message);
+            }
+            return;
+        }
+        if (!stats.sampleOffer()) {
+            synchronized (this) {
+                stats.delivered();
+                deliverInternal(message);
+            }
+            return;
+        }
+        // time spent waiting for the lock is the cost of the synchronized delivery
+        final long offered = System.nanoTime();
+        final long deliveredAtOffer = stats.deliveredCount();
+        synchronized (this) {
+            stats.delivered(offered, deliveredAtOffer);
+            deliverInternal(message);
+        }
     }
 
     protected void deliverInternal(VoltMessage message) {
         assert(lockingVows());
+        if (message instanceof Iv2ReplicationBatchMessage) {
+            // Unpack so the repair log and the scheduler see each transaction
+            for (VoltMessage batched : ((Iv2ReplicationBatchMessage)message).getMessages()) {
+                batched.m_sourceHSId = message.m_sourceHSId;
+                deliverInternal(batched);
+            }
+            return;
+        }
         logRxMessage(message);
         boolean canDeliver = m_scheduler.sequenceForReplay(message);
         if (message instanceof DumpMessage) {
@@ -0,0 +1,198 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import org.voltdb.SiteStatsSource;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+
+/**
+ * Statistics for the messages delivered to an SP initiator mailbox, so the
+ * synchronized delivery path and the scheduler thread can be compared.
+ * DELIVERED counts every message handed to the scheduler. The rest come from
+ * one message in every SAMPLE_INTERVAL, so that offering a message costs no
+ * more than a volatile read: QUEUE_DEPTH is the number of messages handed to
+ * the scheduler while the latest sampled message waited, that is the threads
+ * blocked on the mailbox lock ahead of it in LOCK mode or the messages queued
+ * ahead of it in THREAD mode. AVG_WAIT and MAX_WAIT are the time from the
+ * offer until the scheduler picks the message up, in microseconds.
+ *
+ * The counters are only written by the thread holding the mailbox lock, so
+ * the values read here may be slightly stale but never torn. The exceptions
+ * are the sampling flag, which any thread may clear, and the interval maxima,
+ * which the stats reader resets and may lose a maximum recorded meanwhile.
+ */
+public class InitiatorMailboxStats extends SiteStatsSource {
+
+    // time and measure the queue for one delivery in this many
+    static final int SAMPLE_INTERVAL = 20;
+
+    private final int m_partitionId;
+    private final String m_mode;
+
+    private volatile boolean m_sampleNext = true;
+
+    private volatile int m_depth = 0;
+    private volatile int m_maxDepth = 0;
+    private volatile int m_lastMaxDepth = 0;
+
+    private volatile long m_delivered = 0;
+    private long m_lastDelivered = 0;
+    private volatile long m_samples = 0;
+    private long m_lastSamples = 0;
+    private volatile long m_totalWait = 0;
+    private long m_lastTotalWait = 0;
+    private volatile long m_maxWait = 0;
+    private volatile long m_lastMaxWait = 0;
+
+    private boolean m_interval;
+
+    public InitiatorMailboxStats(long siteId, int partitionId, String mode) {
+        super(siteId, false);
+        m_partitionId = partitionId;
+        m_mode = mode;
+    }
+
+    /**
+     * A message is being offered to the mailbox.
+     * @return whether to time it, by passing the time of the offer and
+     * {@link #deliveredCount()} at the offer to {@link #delivered(long, long)}
+     */
+    boolean sampleOffer() {
+        if (!m_sampleNext) {
+            return false;
+        }
+        m_sampleNext = false;
+        return true;
+    }
+
+    long deliveredCount() {
+        return m_delivered;
+    }
+
+    /**
+     * A message that was not sampled is being handed to the scheduler.
+     * Must be called while holding the mailbox lock.
+     */
+    void delivered() {
+        if (++m_delivered % SAMPLE_INTERVAL == 0) {
+            m_sampleNext = true;
+        }
+    }
+
+    /**
+     * The sampled message offered at the given time, after the given number
+     * of deliveries, is being handed to the scheduler.
+     * Must be called while holding the mailbox lock.
+     */
+    void delivered(long offeredNanos, long deliveredAtOffer) {
+        long wait = System.nanoTime() - offeredNanos;
+        int depth = (int)(m_delivered - deliveredAtOffer);
+        m_depth = depth;
+        if (depth > m_maxDepth) {
+            m_maxDepth = depth;
+        }
+        if (depth > m_lastMaxDepth) {
+            m_lastMaxDepth = depth;
+        }
+        m_samples++;
+        m_totalWait += wait;
+        if (wait > m_maxWait) {
+            m_maxWait = wait;
+        }
+        if (wait > m_lastMaxWait) {
+            m_lastMaxWait = wait;
+        }
+        delivered();
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo("PARTITION_ID", VoltType.INTEGER));
+        columns.add(new ColumnInfo("MODE", VoltType.STRING));
+        columns.add(new ColumnInfo("DELIVERED", VoltType.BIGINT));
+        columns.add(new ColumnInfo("QUEUE_DEPTH", VoltType.INTEGER));
+        columns.add(new ColumnInfo("MAX_QUEUE_DEPTH", VoltType.INTEGER));
+        columns.add(new ColumnInfo("AVG_WAIT", VoltType.BIGINT));
+        columns.add(new ColumnInfo("MAX_WAIT", VoltType.BIGINT));
+    }
+
+    @Override
+    protected synchronized void updateStatsRow(Object rowKey, Object rowValues[]) {
+        long delivered = m_delivered;
+        long samples = m_samples;
+        long totalWait = m_totalWait;
+        long maxWait = m_maxWait;
+        int maxDepth = m_maxDepth;
+        if (m_interval) {
+            maxWait = m_lastMaxWait;
+            maxDepth = m_lastMaxDepth;
+            m_lastMaxWait = 0;
+            m_lastMaxDepth = 0;
+            long lastDelivered = m_lastDelivered;
+            long lastSamples = m_lastSamples;
+            long lastTotalWait = m_lastTotalWait;
+            m_lastDelivered = delivered;
+            m_lastSamples = samples;
+            m_lastTotalWait = totalWait;
+            delivered -= lastDelivered;
+            samples -= lastSamples;
+            totalWait -= lastTotalWait;
+        }
+        rowValues[columnNameToIndex.get("PARTITION_ID")] = m_partitionId;
+        rowValues[columnNameToIndex.get("MODE")] = m_mode;
+        rowValues[columnNameToIndex.get("DELIVERED")] = delivered;
+        rowValues[columnNameToIndex.get("QUEUE_DEPTH")] = m_depth;
+        rowValues[columnNameToIndex.get("MAX_QUEUE_DEPTH")] = maxDepth;
+        rowValues[columnNameToIndex.get("AVG_WAIT")] = samples > 0 ? (totalWait / samples) / 1000 : 0L;
+        rowValues[columnNameToIndex.get("MAX_WAIT")] = maxWait / 1000;
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(final boolean interval) {
+        m_interval = interval;
+        return new Iterator<Object>() {
+            boolean returnRow = true;
+            @Override
+            public boolean hasNext() {
+                return returnRow;
+            }
+
+            @Override
+            public Object next() {
+                if (returnRow) {
+                    returnRow = false;
+                    return new Object();
+                } else {
+                    return null;
+                }
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+        };
+    }
+}
@@ -49,6 +49,7 @@ import org.voltdb.dtxn.SiteTracker;
 import org.voltdb.dtxn.TransactionState;
 import org.voltdb.dtxn.UndoAction;
 import org.voltdb.exceptions.EEException;
+import org.voltdb.jni.ResultHandOff;
 
 /**
  * An implementation of Site which provides only the functionality
@@ -494,4 +495,12 @@ public class MpRoSite implements Runnable, SiteProcedureConnection
     public void setProcedureName(String procedureName) {
         // don't need to do anything here I think?
     }
+
+    @Override
+    public void beginResultHandOff() {}
+
+    @Override
+    public ResultHandOff endResultHandOff() {
+        return null;
+    }
 }
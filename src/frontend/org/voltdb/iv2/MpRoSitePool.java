@@ -43,6 +43,8 @@ class MpRoSitePool {
 
     static int DEFAULT_MAX_POOL_SIZE = 20;
     static int INITIAL_POOL_SIZE = 1;
+    // Idle sites beyond the initial pool are retired after this long without work
+    static long DEFAULT_IDLE_TIMEOUT_MS = 60 * 1000;
 
     class MpRoSiteContext {
         final private BackendTarget m_backend;
@@ -52,6 +54,7 @@ class MpRoSitePool {
         final private ProcedureRunnerFactory m_prf;
         final private LoadedProcedureSet m_loadedProcedures;
         final private Thread m_siteThread;
+        private long m_idleSince = System.currentTimeMillis();
 
         MpRoSiteContext(long siteId, BackendTarget backend,
                 CatalogContext context, int partitionId,
@@ -114,6 +117,8 @@ class MpRoSitePool {
     private CatalogSpecificPlanner m_csp;
     private ThreadFactory m_poolThreadFactory;
     private final int m_poolSize;
+    private final long m_idleTimeoutMs;
+    private final MpRoSitePoolStats m_stats;
 
     MpRoSitePool(
             long siteId,
@@ -129,15 +134,19 @@ class MpRoSitePool {
         m_partitionId = partitionId;
         m_initiatorMailbox = initiatorMailbox;
         m_csp = csp;
+        m_stats = new MpRoSitePoolStats(siteId);
         m_poolThreadFactory =
             CoreUtils.getThreadFactory("RO MP Iv2ExecutionSite - " + CoreUtils.hsIdToString(m_siteId),
                     CoreUtils.MEDIUM_STACK_SIZE);
 
+        // The pool grows on demand up to the maximum and shrinks back when sites sit idle,
+        // so the default maximum can scale with the host instead of being a fixed guess
         Integer poolSize = Integer.getInteger("mpiReadPoolSize");
         if (poolSize == null) {
-            poolSize = DEFAULT_MAX_POOL_SIZE;
+            poolSize = Math.max(DEFAULT_MAX_POOL_SIZE, CoreUtils.availableProcessors() * 2);
         }
-        m_poolSize = poolSize;
+        m_poolSize = Math.max(INITIAL_POOL_SIZE, poolSize);
+        m_idleTimeoutMs = Long.getLong("mpiReadPoolIdleTimeout", DEFAULT_IDLE_TIMEOUT_MS);
         tmLog.info("Setting maximum size of MPI read pool to: " + m_poolSize);
 
         // Construct the initial pool
@@ -246,11 +255,50 @@ class MpRoSitePool {
         // pool with the updated catalog.
         if (site.getCatalogCRC() == m_catalogContext.getCatalogCRC()
                 && site.getCatalogVersion() == m_catalogContext.catalogVersion) {
+            site.m_idleSince = System.currentTimeMillis();
             m_idleSites.push(site);
         }
         else {
             site.shutdown();
         }
+        retireIdleSites();
+    }
+
+    /**
+     * Shut down sites that have gone unused for longer than the idle timeout, down to
+     * the initial pool size. Idle sites are reused from the top of the stack, so the
+     * ones at the bottom are the ones that have waited longest.
+     */
+    private void retireIdleSites()
+    {
+        long now = System.currentTimeMillis();
+        while (m_idleSites.size() + m_busySites.size() > INITIAL_POOL_SIZE && !m_idleSites.isEmpty()
+                && now - m_idleSites.peekLast().m_idleSince > m_idleTimeoutMs) {
+            m_idleSites.pollLast().shutdown();
+        }
+    }
+
+    /**
+     * @return The number of sites in the pool, busy or idle
+     */
+    int getPoolSize()
+    {
+        return m_idleSites.size() + m_busySites.size();
+    }
+
+    int getBusySiteCount()
+    {
+        return m_busySites.size();
+    }
+
+    int getMaxPoolSize()
+    {
+        return m_poolSize;
+    }
+
+    MpRoSitePoolStats getStats()
+    {
+        return m_stats;
     }
 
     void shutdown()
@@ -0,0 +1,144 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import org.voltdb.SiteStatsSource;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+
+/**
+ * Statistics for the pool of sites the MPI runs read-only multi-partition
+ * transactions on: how big the pool is, how many reads are queued for it and
+ * how long reads wait before a pool site picks them up. WAITED counts the reads
+ * that could not start as soon as they arrived; AVG_WAIT is over all started reads.
+ * Wait times are in microseconds. Updated by the MpTransactionTaskQueue while holding its lock.
+ */
+public class MpRoSitePoolStats extends SiteStatsSource {
+
+    private int m_poolSize = 0;
+    private int m_busySites = 0;
+    private int m_maxPoolSize = 0;
+    private int m_queueDepth = 0;
+
+    private long m_started = 0;
+    private long m_lastStarted = 0;
+    private long m_waited = 0;
+    private long m_lastWaited = 0;
+    private long m_totalWait = 0;
+    private long m_lastTotalWait = 0;
+    private long m_maxWait = 0;
+    private long m_lastMaxWait = 0;
+
+    private boolean m_interval;
+
+    public MpRoSitePoolStats(long siteId) {
+        super(siteId, false);
+    }
+
+    synchronized void update(int poolSize, int busySites, int maxPoolSize, int queueDepth) {
+        m_poolSize = poolSize;
+        m_busySites = busySites;
+        m_maxPoolSize = maxPoolSize;
+        m_queueDepth = queueDepth;
+    }
+
+    /**
+     * A read was handed to a pool site after waiting the given number of nanoseconds,
+     * zero if it started as soon as it was offered
+     */
+    synchronized void recordStart(long waitNanos) {
+        m_started++;
+        if (waitNanos > 0) {
+            m_waited++;
+            m_totalWait += waitNanos;
+            m_maxWait = Math.max(m_maxWait, waitNanos);
+            m_lastMaxWait = Math.max(m_lastMaxWait, waitNanos);
+        }
+    }
+
+    @Override
+    protected void populateColumnSchema(ArrayList<ColumnInfo> columns) {
+        super.populateColumnSchema(columns);
+        columns.add(new ColumnInfo("POOL_SIZE", VoltType.INTEGER));
+        columns.add(new ColumnInfo("BUSY", VoltType.INTEGER));
+        columns.add(new ColumnInfo("MAX_POOL_SIZE", VoltType.INTEGER));
+        columns.add(new ColumnInfo("QUEUE_DEPTH", VoltType.INTEGER));
+        columns.add(new ColumnInfo("STARTED", VoltType.BIGINT));
+        columns.add(new ColumnInfo("WAITED", VoltType.BIGINT));
+        columns.add(new ColumnInfo("AVG_WAIT", VoltType.BIGINT));
+        columns.add(new ColumnInfo("MAX_WAIT", VoltType.BIGINT));
+    }
+
+    @Override
+    protected synchronized void updateStatsRow(Object rowKey, Object rowValues[]) {
+        long started = m_started;
+        long waited = m_waited;
+        long totalWait = m_totalWait;
+        long maxWait = m_maxWait;
+        if (m_interval) {
+            started -= m_lastStarted;
+            waited -= m_lastWaited;
+            totalWait -= m_lastTotalWait;
+            maxWait = m_lastMaxWait;
+            m_lastStarted = m_started;
+            m_lastWaited = m_waited;
+            m_lastTotalWait = m_totalWait;
+            m_lastMaxWait = 0;
+        }
+        rowValues[columnNameToIndex.get("POOL_SIZE")] = m_poolSize;
+        rowValues[columnNameToIndex.get("BUSY")] = m_busySites;
+        rowValues[columnNameToIndex.get("MAX_POOL_SIZE")] = m_maxPoolSize;
+        rowValues[columnNameToIndex.get("QUEUE_DEPTH")] = m_queueDepth;
+        rowValues[columnNameToIndex.get("STARTED")] = started;
+        rowValues[columnNameToIndex.get("WAITED")] = waited;
+        rowValues[columnNameToIndex.get("AVG_WAIT")] = started > 0 ? (totalWait / started) / 1000 : 0L;
+        rowValues[columnNameToIndex.get("MAX_WAIT")] = maxWait / 1000;
+        super.updateStatsRow(rowKey, rowValues);
+    }
+
+    @Override
+    protected Iterator<Object> getStatsRowKeyIterator(final boolean interval) {
+        m_interval = interval;
+        return new Iterator<Object>() {
+            boolean returnRow = true;
+            @Override
+            public boolean hasNext() {
+                return returnRow;
+            }
+
+            @Override
+            public Object next() {
+                if (returnRow) {
+                    returnRow = false;
+                    return new Object();
+                } else {
+                    return null;
+                }
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+
+        };
+    }
+}
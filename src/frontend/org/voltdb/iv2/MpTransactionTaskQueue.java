@@ -47,6 +47,8 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
     private final Map<Long, TransactionTask> m_currentWrites = new HashMap<Long, TransactionTask>();
     private final Map<Long, TransactionTask> m_currentReads = new HashMap<Long, TransactionTask>();
     private Deque<TransactionTask> m_backlog = new ArrayDeque<TransactionTask>();
+    // When each read that couldn't start right away was queued, for the pool wait time stats
+    private final Map<Long, Long> m_queuedReadTimes = new HashMap<Long, Long>();
 
     private MpRoSitePool m_sitePool = null;
 
@@ -82,9 +84,19 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
         Iv2Trace.logTransactionTaskQueueOffer(task);
         m_backlog.addLast(task);
         taskQueueOffer();
+        if (task.getTransactionState().isReadOnly() && m_backlog.peekLast() == task) {
+            m_queuedReadTimes.put(task.getTxnId(), System.nanoTime());
+        }
+        updatePoolStats();
         return true;
     }
 
+    private void updatePoolStats()
+    {
+        m_sitePool.getStats().update(m_sitePool.getPoolSize(), m_sitePool.getBusySiteCount(),
+                m_sitePool.getMaxPoolSize(), m_queuedReadTimes.size());
+    }
+
     // repair is used by MPI repair to inject a repair task into the
     // SiteTaskerQueue.  Before it does this, it unblocks the MP transaction
     // that may be running in the Site thread and causes it to rollback by
@@ -193,6 +205,8 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
                 {
                     task = m_backlog.pollFirst();
                     assert(task.getTransactionState().isReadOnly());
+                    Long queuedTime = m_queuedReadTimes.remove(task.getTxnId());
+                    m_sitePool.getStats().recordStart(queuedTime == null ? 0 : System.nanoTime() - queuedTime);
                     m_currentReads.put(task.getTxnId(), task);
                     taskQueueOffer(task);
                     retval = true;
@@ -226,6 +240,7 @@ public class MpTransactionTaskQueue extends TransactionTaskQueue
         if (taskQueueOffer()) {
             ++offered;
         }
+        updatePoolStats();
         return offered;
     }
 
@@ -20,9 +20,11 @@ package org.voltdb.iv2;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.nio.ByteBuffer;
 
 import org.voltcore.logging.Level;
 import org.voltcore.messaging.Mailbox;
+import org.voltcore.utils.CoreUtils;
 import org.voltcore.utils.RateLimitedLogger;
 import org.voltdb.ClientResponseImpl;
 import org.voltdb.ExpectedProcedureException;
@@ -64,27 +66,37 @@ abstract public class ProcedureTask extends TransactionTask
         final InitiateResponseMessage response = new InitiateResponseMessage(task);
 
         try {
+            ProcedureRunner runner = siteConnection.getProcedureRunner(m_procName);
+            /*
+             * A procedure with a generated invoker reads its parameters straight
+             * from the serialized invocation and reports a corrupt one itself
+             */
+            ByteBuffer serializedParams = null;
+            if (runner != null && runner.hasInvoker()) {
+                serializedParams = task.getSerializedParams();
+            }
             Object[] callerParams = null;
             /*
              * Parameters are lazily deserialized. We may not find out until now
              * that the parameter set is corrupt
              */
-            try {
-                callerParams = task.getParameters();
-            } catch (RuntimeException e) {
-                Writer result = new StringWriter();
-                PrintWriter pw = new PrintWriter(result);
-                e.printStackTrace(pw);
-                response.setResults(
-                        new ClientResponseImpl(ClientResponse.GRACEFUL_FAILURE,
-                            new VoltTable[] {},
-                                "Exception while deserializing procedure params, procedure="
-                                + m_procName + "\n"
-                                + result.toString()));
+            if (serializedParams == null) {
+                try {
+                    callerParams = task.getParameters();
+                } catch (RuntimeException e) {
+                    Writer result = new StringWriter();
+                    PrintWriter pw = new PrintWriter(result);
+                    e.printStackTrace(pw);
+                    response.setResults(
+                            new ClientResponseImpl(ClientResponse.GRACEFUL_FAILURE,
+                                new VoltTable[] {},
+                                    "Exception while deserializing procedure params, procedure="
+                                    + m_procName + "\n"
+                                    + result.toString()));
+                }
             }
-            if (callerParams != null) {
+            if (callerParams != null || serializedParams != null) {
                 ClientResponseImpl cr = null;
-                ProcedureRunner runner = siteConnection.getProcedureRunner(m_procName);
                 if (runner == null) {
                     String error =
                         "Procedure " + m_procName + " is not present in the catalog. "  +
@@ -108,11 +120,22 @@ abstract public class ProcedureTask extends TransactionTask
                 // Check partitioning of single-partition and n-partition transactions.
                 if (runner.checkPartition(m_txnState)) {
                     runner.setupTransaction(m_txnState);
-                    cr = runner.call(task.getParameters());
+                    // results can only be written to the client straight from the
+                    // EE's buffers by a client interface on this host
+                    if (CoreUtils.getHostIdFromHSId(task.getInitiatorHSId()) ==
+                            CoreUtils.getHostIdFromHSId(m_initiator.getHSId())) {
+                        runner.allowResultHandOff();
+                    }
+                    if (serializedParams != null) {
+                        cr = runner.callSerialized(serializedParams);
+                    } else {
+                        cr = runner.call(task.getParameters());
+                    }
 
                     m_txnState.setHash(cr.getHash());
 
                     response.setResults(cr);
+                    response.setResultHandOff(runner.takeResultHandOff());
                     // record the results of write transactions to the transaction state
                     // this may be used to verify the DR replica cluster gets the same value
                     // skip for multi-partition txns because only 1 of k+1 partitions will
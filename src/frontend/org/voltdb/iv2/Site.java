@@ -75,6 +75,7 @@ import org.voltdb.jni.ExecutionEngine.TaskType;
 import org.voltdb.jni.ExecutionEngineIPC;
 import org.voltdb.jni.ExecutionEngineJNI;
 import org.voltdb.jni.MockExecutionEngine;
+import org.voltdb.jni.ResultHandOff;
 import org.voltdb.messaging.CompleteTransactionMessage;
 import org.voltdb.messaging.FragmentTaskMessage;
 import org.voltdb.messaging.Iv2InitiateTaskMessage;
@@ -441,6 +442,9 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
                         hostname,
                         m_context.cluster.getDeployment().get("deployment").
                         getSystemsettings().get("systemsettings").getMaxtemptablesize(),
+                        m_context.cluster.getTempspill(),
+                        m_context.cluster.getDeployment().get("deployment").
+                        getSystemsettings().get("systemsettings").getTemptablespillsize(),
                         hashinatorConfig);
                 eeTemp.loadCatalog( timestamp, serializedCatalog);
             }
@@ -455,6 +459,9 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
                             hostname,
                             m_context.cluster.getDeployment().get("deployment").
                             getSystemsettings().get("systemsettings").getMaxtemptablesize(),
+                            m_context.cluster.getTempspill(),
+                            m_context.cluster.getDeployment().get("deployment").
+                            getSystemsettings().get("systemsettings").getTemptablespillsize(),
                             m_backend,
                             VoltDB.instance().getConfig().m_ipcPort,
                             hashinatorConfig);
@@ -921,7 +928,8 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
                                             tupleAllocatedMem,
                                             indexMem,
                                             stringMem,
-                                            m_ee.getThreadLocalPoolAllocations());
+                                            m_ee.getThreadLocalPoolAllocations(),
+                                            m_ee.getTempTableSpilledBytes());
             }
         }
     }
@@ -1147,4 +1155,14 @@ public class Site implements Runnable, SiteProcedureConnection, SiteSnapshotConn
     public void setProcedureName(String procedureName) {
         m_ee.setProcedureName(procedureName);
     }
+
+    @Override
+    public void beginResultHandOff() {
+        m_ee.beginResultHandOff();
+    }
+
+    @Override
+    public ResultHandOff endResultHandOff() {
+        return m_ee.endResultHandOff();
+    }
 }
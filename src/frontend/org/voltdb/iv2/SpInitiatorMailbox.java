@@ -0,0 +1,255 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.iv2;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedTransferQueue;
+
+import org.voltcore.logging.VoltLogger;
+import org.voltcore.messaging.HostMessenger;
+import org.voltcore.messaging.VoltMessage;
+
+import com.google_voltpatches.common.base.Throwables;
+
+/**
+ * An SP initiator mailbox that hands messages to the scheduler on a single
+ * dedicated thread instead of having every network and site thread contend
+ * for the mailbox lock in deliver(). Producers only append to a lock-free
+ * queue; the scheduler thread drains it in batches and takes the mailbox
+ * lock once per batch, so the locking the scheduler relies on (durability
+ * callbacks, snapshot completion, repair) is unchanged.
+ *
+ * Enabled with -DspSchedulerThread=true.
+ */
+public class SpInitiatorMailbox extends InitiatorMailbox
+{
+    public static final boolean ENABLED = Boolean.getBoolean("spSchedulerThread");
+
+    // most messages handed to the scheduler under one acquisition of the mailbox lock
+    static final int MAX_BATCH = Integer.getInteger("spSchedulerBatchSize", 64);
+
+    VoltLogger tmLog = new VoltLogger("TM");
+
+    private final LinkedTransferQueue<Runnable> m_taskQueue = new LinkedTransferQueue<Runnable>();
+    @SuppressWarnings("serial")
+    private static class TerminateThreadException extends RuntimeException {};
+    private volatile long m_taskThreadId = 0;
+    private final Thread m_taskThread;
+
+    /*
+     * A message and, when it is sampled, the time it was offered, so the
+     * time spent in the queue can be tracked
+     */
+    private class DeliverTask implements Runnable {
+        private final VoltMessage m_message;
+        private final InitiatorMailboxStats m_stats;
+        private final boolean m_sampled;
+        private final long m_offered;
+        private final long m_deliveredAtOffer;
+
+        DeliverTask(VoltMessage message, InitiatorMailboxStats stats) {
+            m_message = message;
+            m_stats = stats;
+            m_sampled = stats != null && stats.sampleOffer();
+            m_offered = m_sampled ? System.nanoTime() : 0;
+            m_deliveredAtOffer = m_sampled ? stats.deliveredCount() : 0;
+        }
+
+        @Override
+        public void run() {
+            if (m_sampled) {
+                m_stats.delivered(m_offered, m_deliveredAtOffer);
+            }
+            else if (m_stats != null) {
+                m_stats.delivered();
+            }
+            deliverInternal(m_message);
+        }
+    }
+
+    public SpInitiatorMailbox(int partitionId,
+            Scheduler scheduler,
+            HostMessenger messenger, RepairLog repairLog,
+            JoinProducerBase joinProducer)
+    {
+        super(partitionId, scheduler, messenger, repairLog, joinProducer);
+        m_taskThread = new Thread(null,
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        m_taskThreadId = Thread.currentThread().getId();
+                        runTasks();
+                    }
+                },
+                "SpInitiator deliver " + partitionId, 1024 * 128);
+        m_taskThread.start();
+    }
+
+    private void runTasks() {
+        final List<Runnable> batch = new ArrayList<Runnable>(MAX_BATCH);
+        while (true) {
+            try {
+                batch.add(m_taskQueue.take());
+            } catch (InterruptedException e) {
+                tmLog.error("Interrupted waiting for work in SpInitiator deliver thread", e);
+                continue;
+            }
+            m_taskQueue.drainTo(batch, MAX_BATCH - 1);
+            boolean terminate = false;
+            synchronized (this) {
+                for (Runnable r : batch) {
+                    try {
+                        r.run();
+                    } catch (TerminateThreadException e) {
+                        terminate = true;
+                        break;
+                    } catch (Exception e) {
+                        tmLog.error("Unexpected exception in SpInitiator deliver thread", e);
+                    }
+                }
+            }
+            batch.clear();
+            if (terminate) {
+                return;
+            }
+        }
+    }
+
+    private boolean onTaskThread() {
+        return Thread.currentThread().getId() == m_taskThreadId;
+    }
+
+    /*
+     * Run the task on the scheduler thread and wait for it, or run it
+     * directly when already there, so control operations stay ordered
+     * with the messages delivered before them
+     */
+    private void runOnTaskThread(final Runnable task) {
+        if (onTaskThread()) {
+            task.run();
+            return;
+        }
+        final CountDownLatch cdl = new CountDownLatch(1);
+        m_taskQueue.offer(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    task.run();
+                } finally {
+                    cdl.countDown();
+                }
+            }
+        });
+        try {
+            cdl.await();
+        } catch (InterruptedException e) {
+            Throwables.propagate(e);
+        }
+    }
+
+    @Override
+    public void setRepairAlgo(final RepairAlgo algo)
+    {
+        runOnTaskThread(new Runnable() {
+            @Override
+            public void run() {
+                setRepairAlgoInternal(algo);
+            }
+        });
+    }
+
+    @Override
+    public void setLeaderState(final long maxSeenTxnId)
+    {
+        runOnTaskThread(new Runnable() {
+            @Override
+            public void run() {
+                setLeaderStateInternal(maxSeenTxnId);
+            }
+        });
+    }
+
+    @Override
+    public void setMaxLastSeenMultipartTxnId(final long txnId) {
+        runOnTaskThread(new Runnable() {
+            @Override
+            public void run() {
+                setMaxLastSeenMultipartTxnIdInternal(txnId);
+            }
+        });
+    }
+
+    @Override
+    public void setMaxLastSeenTxnId(final long txnId) {
+        runOnTaskThread(new Runnable() {
+            @Override
+            public void run() {
+                setMaxLastSeenTxnIdInternal(txnId);
+            }
+        });
+    }
+
+    @Override
+    public void enableWritingIv2FaultLog() {
+        runOnTaskThread(new Runnable() {
+            @Override
+            public void run() {
+                enableWritingIv2FaultLogInternal();
+            }
+        });
+    }
+
+    @Override
+    public void updateReplicas(final List<Long> replicas, final Map<Integer, Long> partitionMasters) {
+        runOnTaskThread(new Runnable() {
+            @Override
+            public void run() {
+                updateReplicasInternal(replicas, partitionMasters);
+            }
+        });
+    }
+
+    @Override
+    public void shutdown() throws InterruptedException {
+        m_taskQueue.offer(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    shutdownInternal();
+                } catch (InterruptedException e) {
+                    tmLog.info("Interrupted during shutdown", e);
+                }
+            }
+        });
+        m_taskQueue.offer(new Runnable() {
+            @Override
+            public void run() {
+                throw new TerminateThreadException();
+            }
+        });
+        m_taskThread.join();
+    }
+
+    @Override
+    public void deliver(final VoltMessage message) {
+        m_taskQueue.offer(new DeliverTask(message, m_deliveryStats));
+    }
+}
@@ -118,6 +118,11 @@ public class SpProcedureTask extends ProcedureTask
         if (!response.shouldCommit()) {
             m_txnState.setNeedsRollback();
         }
+        // nobody writes the response, let the result buffers go
+        if (response.getResultHandOff() != null) {
+            response.getResultHandOff().release();
+            response.setResultHandOff(null);
+        }
         if (!m_txnState.isReadOnly()) {
             assert(siteConnection.getLatestUndoToken() != Site.kInvalidUndoToken) :
                 "[SP][RW] transaction found invalid latest undo token state in Iv2ExecutionSite.";
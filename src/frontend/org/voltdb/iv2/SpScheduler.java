@@ -54,6 +54,7 @@ import org.voltdb.messaging.FragmentTaskMessage;
 import org.voltdb.messaging.InitiateResponseMessage;
 import org.voltdb.messaging.Iv2InitiateTaskMessage;
 import org.voltdb.messaging.Iv2LogFaultMessage;
+import org.voltdb.messaging.Iv2ReplicationBatchMessage;
 import org.voltdb.messaging.MultiPartitionParticipantMessage;
 
 import com.google_voltpatches.common.primitives.Longs;
@@ -150,6 +151,35 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
     // the current not-needed-any-more point of the repair log.
     long m_repairLogTruncationHandle = Long.MIN_VALUE;
 
+    /*
+     * Replication batching. When the batch size is more than 1, the leader packs
+     * the initiate tasks it replicates into Iv2ReplicationBatchMessages, and the
+     * replicas pack their responses the same way. A batch goes out when it is
+     * full or when the timer fires, and the leader's batch always goes out before
+     * any other message to the replicas so they see everything in order.
+     */
+    static final int REPLICATION_BATCH_SIZE = Integer.getInteger("spReplicationBatchSize", 1);
+    static final long REPLICATION_BATCH_MICROS = Long.getLong("spReplicationBatchMicros", 200);
+    int m_replicationBatchSize = REPLICATION_BATCH_SIZE;
+    long m_replicationBatchMicros = REPLICATION_BATCH_MICROS;
+    // initiate tasks waiting to go to m_sendToHSIds
+    private Iv2ReplicationBatchMessage m_replicaBatch = null;
+    // responses waiting to go back to the leader at m_responseBatchHSId
+    private Iv2ReplicationBatchMessage m_responseBatch = null;
+    private long m_responseBatchHSId;
+    // replicated initiate tasks received by this replica and not yet answered
+    private int m_unansweredReplicatedTasks = 0;
+    private boolean m_batchFlushScheduled = false;
+    private final Runnable m_batchFlusher = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (m_lock) {
+                m_batchFlushScheduled = false;
+                flushReplicationBatches();
+            }
+        }
+    };
+
     SpScheduler(int partitionId, SiteTaskerQueue taskQueue, SnapshotCompletionMonitor snapMonitor)
     {
         super(partitionId, taskQueue);
@@ -176,6 +206,8 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
     @Override
     public void setLeaderState(boolean isLeader)
     {
+        flushReplicationBatches();
+        m_unansweredReplicatedTasks = 0;
         super.setLeaderState(isLeader);
         m_snapMonitor.addInterest(this);
     }
@@ -215,6 +247,8 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
     @Override
     public void updateReplicas(List<Long> replicas, Map<Integer, Long> partitionMasters)
     {
+        // Anything batched was replicated under the old replica set
+        flushReplicaBatch();
         // First - correct the official replica set.
         m_replicaHSIds = replicas;
         // Update the list of remote replicas that we'll need to send to
@@ -508,7 +542,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                             msg.isForReplay());
                 // Update the handle in the copy since the constructor doesn't set it
                 replmsg.setSpHandle(newSpHandle);
-                m_mailbox.send(m_sendToHSIds, replmsg);
+                sendToReplicas(replmsg);
                 DuplicateCounter counter = new DuplicateCounter(
                         msg.getInitiatorHSId(),
                         msg.getTxnId(), m_replicaHSIds, msg.getStoredProcedureName());
@@ -519,6 +553,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
             setMaxSeenTxnId(msg.getSpHandle());
             newSpHandle = msg.getSpHandle();
             uniqueId = msg.getUniqueId();
+            m_unansweredReplicatedTasks++;
         }
         Iv2Trace.logIv2InitiateTaskMessage(message, m_mailbox.getHSId(), msg.getTxnId(), newSpHandle);
         doLocalInitiateOffer(msg);
@@ -600,6 +635,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         if (!needsRepair.isEmpty()) {
             Iv2InitiateTaskMessage replmsg =
                 new Iv2InitiateTaskMessage(m_mailbox.getHSId(), m_mailbox.getHSId(), message);
+            flushReplicaBatch();
             m_mailbox.send(com.google_voltpatches.common.primitives.Longs.toArray(needsRepair), replmsg);
         }
     }
@@ -636,6 +672,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         if (!needsRepair.isEmpty()) {
             FragmentTaskMessage replmsg =
                 new FragmentTaskMessage(m_mailbox.getHSId(), m_mailbox.getHSId(), message);
+            flushReplicaBatch();
             m_mailbox.send(com.google_voltpatches.common.primitives.Longs.toArray(needsRepair), replmsg);
         }
     }
@@ -667,6 +704,11 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                 VoltDB.crashLocalVoltDB("HASH MISMATCH: replicas produced different results.", true, null);
             }
         }
+        else if (!m_isLeader) {
+            // a replica answering its leader
+            m_repairLogTruncationHandle = spHandle;
+            sendToLeader(message);
+        }
         else {
             // the initiatorHSId is the ClientInterface mailbox. Yeah. I know.
             m_repairLogTruncationHandle = spHandle;
@@ -674,6 +716,89 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         }
     }
 
+    /**
+     * Replicate an initiate task, batching it with others if configured to.
+     */
+    private void sendToReplicas(Iv2InitiateTaskMessage replmsg)
+    {
+        if (m_replicationBatchSize <= 1) {
+            m_mailbox.send(m_sendToHSIds, replmsg);
+            return;
+        }
+        if (m_replicaBatch == null) {
+            m_replicaBatch = new Iv2ReplicationBatchMessage(m_replicationBatchSize);
+            scheduleBatchFlush();
+        }
+        m_replicaBatch.add(replmsg);
+        if (m_replicaBatch.size() >= m_replicationBatchSize) {
+            flushReplicaBatch();
+        }
+    }
+
+    /**
+     * Send a replica's initiate response to the leader, batching it with others
+     * if configured to. The batch goes out as soon as this replica has answered
+     * everything it was sent, so an idle replica doesn't hold responses back.
+     */
+    private void sendToLeader(InitiateResponseMessage message)
+    {
+        if (m_unansweredReplicatedTasks > 0) {
+            m_unansweredReplicatedTasks--;
+        }
+        if (m_replicationBatchSize <= 1) {
+            m_mailbox.send(message.getInitiatorHSId(), message);
+            return;
+        }
+        if (m_responseBatch != null && m_responseBatchHSId != message.getInitiatorHSId()) {
+            flushResponseBatch();
+        }
+        if (m_responseBatch == null) {
+            m_responseBatch = new Iv2ReplicationBatchMessage(m_replicationBatchSize);
+            m_responseBatchHSId = message.getInitiatorHSId();
+            scheduleBatchFlush();
+        }
+        m_responseBatch.add(message);
+        if (m_responseBatch.size() >= m_replicationBatchSize || m_unansweredReplicatedTasks == 0) {
+            flushResponseBatch();
+        }
+    }
+
+    private void scheduleBatchFlush()
+    {
+        if (!m_batchFlushScheduled) {
+            m_batchFlushScheduled = true;
+            VoltDB.instance().schedulePriorityWork(m_batchFlusher,
+                    m_replicationBatchMicros, 0, TimeUnit.MICROSECONDS);
+        }
+    }
+
+    void flushReplicationBatches()
+    {
+        flushReplicaBatch();
+        flushResponseBatch();
+    }
+
+    // Must be called before anything else is sent to the replicas
+    private void flushReplicaBatch()
+    {
+        if (m_replicaBatch != null) {
+            final Iv2ReplicationBatchMessage batch = m_replicaBatch;
+            m_replicaBatch = null;
+            if (m_sendToHSIds.length > 0) {
+                m_mailbox.send(m_sendToHSIds, batch.size() == 1 ? batch.getMessages().get(0) : batch);
+            }
+        }
+    }
+
+    private void flushResponseBatch()
+    {
+        if (m_responseBatch != null) {
+            final Iv2ReplicationBatchMessage batch = m_responseBatch;
+            m_responseBatch = null;
+            m_mailbox.send(m_responseBatchHSId, batch.size() == 1 ? batch.getMessages().get(0) : batch);
+        }
+    }
+
     // BorrowTaskMessages encapsulate a FragmentTaskMessage along with
     // input dependency tables. The MPI issues borrows to a local site
     // to perform replicated reads or aggregation fragment work.
@@ -751,6 +876,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                 FragmentTaskMessage replmsg =
                     new FragmentTaskMessage(m_mailbox.getHSId(),
                             m_mailbox.getHSId(), msg);
+                flushReplicaBatch();
                 m_mailbox.send(m_sendToHSIds,
                         replmsg);
                 DuplicateCounter counter;
@@ -903,6 +1029,8 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
             return;
         }
 
+        // keep a replica's answers to its leader in order
+        flushResponseBatch();
         m_mailbox.send(message.getDestinationSiteId(), message);
     }
 
@@ -915,6 +1043,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
             advanceTxnEgo();
             replmsg.setSpHandle(getCurrentTxnId());
             if (m_sendToHSIds.length > 0) {
+                flushReplicaBatch();
                 m_mailbox.send(m_sendToHSIds, replmsg);
             }
         } else {
@@ -953,6 +1082,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
         if (m_isLeader) {
             hostLog.warn("" + who + ": replicas: " + CoreUtils.hsIdCollectionToString(m_replicaHSIds));
             if (m_sendToHSIds.length > 0) {
+                flushReplicaBatch();
                 m_mailbox.send(m_sendToHSIds, new DumpMessage());
             }
         }
@@ -994,6 +1124,7 @@ public class SpScheduler extends Scheduler implements SnapshotCompletionInterest
                 writeIv2ViableReplayEntryInternal(faultSpHandle);
                 // Generate Iv2LogFault message and send it to replicas
                 Iv2LogFaultMessage faultMsg = new Iv2LogFaultMessage(faultSpHandle);
+                flushReplicaBatch();
                 m_mailbox.send(m_sendToHSIds,
                         faultMsg);
             }
@@ -19,7 +19,9 @@ package org.voltdb.iv2;
 
 import java.util.ArrayDeque;
 import java.util.Deque;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 
 import org.voltcore.logging.VoltLogger;
 
@@ -30,10 +32,15 @@ public class TransactionTaskQueue
     final protected SiteTaskerQueue m_taskQueue;
 
     /*
-     * Multi-part transactions create a backlog of tasks behind them. A queue is
-     * created for each multi-part task to maintain the backlog until the next
-     * multi-part task.
+     * Multi-part transactions create a backlog of tasks behind them. The multi-parts
+     * that are running are kept in m_running and everything queued behind them waits
+     * in the backlog until they are done.
+     *
+     * Read-only multi-parts don't conflict with each other, so while only read-only
+     * multi-parts are running and nothing is waiting, another one can start right away
+     * and have its fragments interleaved with theirs.
      */
+    private Map<Long, TransactionTask> m_running = new HashMap<Long, TransactionTask>();
     private Deque<TransactionTask> m_backlog = new ArrayDeque<TransactionTask>();
 
     TransactionTaskQueue(SiteTaskerQueue queue)
@@ -41,6 +48,17 @@ public class TransactionTaskQueue
         m_taskQueue = queue;
     }
 
+    /**
+     * Can this task run at the same time as other read-only multi-part transactions?
+     * Sysprocs are left out, they may expect to have the partition to themselves.
+     */
+    private static boolean isConcurrentRead(TransactionTask task)
+    {
+        return task instanceof FragmentTask &&
+               task.getTransactionState().isReadOnly() &&
+               !task.getTransactionState().isSinglePartition();
+    }
+
     /**
      * If necessary, stick this task in the backlog.
      * Many network threads may be racing to reach here, synchronize to
@@ -52,31 +70,35 @@ public class TransactionTaskQueue
     {
         Iv2Trace.logTransactionTaskQueueOffer(task);
         boolean retval = false;
-        if (!m_backlog.isEmpty()) {
+        if (!m_running.isEmpty()) {
             /*
              * This branch happens during regular execution when a multi-part is in progress.
-             * The first task for the multi-part is the head of the queue, and all the single parts
-             * are being queued behind it. The txnid check catches tasks that are part of the multi-part
-             * and immediately queues them for execution.
+             * The first task for the multi-part is running, and all the single parts
+             * are being queued behind it. The txnid check catches tasks that are part of a running
+             * multi-part and immediately queues them for execution.
              */
-            if (task.getTxnId() != m_backlog.getFirst().getTxnId())
-            {
-                m_backlog.addLast(task);
+            if (m_running.containsKey(task.getTxnId())) {
+                taskQueueOffer(task);
+            }
+            else if (m_backlog.isEmpty() && isConcurrentRead(task) && runningAreConcurrentReads()) {
+                m_running.put(task.getTxnId(), task);
                 retval = true;
+                taskQueueOffer(task);
             }
             else {
-                taskQueueOffer(task);
+                m_backlog.addLast(task);
+                retval = true;
             }
         }
         else {
             /*
              * Base case nothing queued nothing in progress
-             * If the task is a multipart then put an entry in the backlog which
+             * If the task is a multipart then mark it running, which
              * will act as a barrier for single parts, queuing them for execution after the
              * multipart
              */
             if (!task.getTransactionState().isSinglePartition()) {
-                m_backlog.addLast(task);
+                m_running.put(task.getTxnId(), task);
                 retval = true;
             }
             taskQueueOffer(task);
@@ -84,6 +106,12 @@ public class TransactionTaskQueue
         return retval;
     }
 
+    private boolean runningAreConcurrentReads()
+    {
+        // Only read-only multi-parts are ever started alongside another, so one look is enough
+        return isConcurrentRead(m_running.values().iterator().next());
+    }
+
     // Add a local method to offer to the SiteTaskerQueue so we have
     // a single point we can log through.
     private void taskQueueOffer(TransactionTask task)
@@ -100,8 +128,8 @@ public class TransactionTaskQueue
     synchronized int flush(long txnId)
     {
         int offered = 0;
-        // If the first entry of the backlog is a completed transaction, clear it so it no longer
-        // blocks the backlog then iterate the backlog for more work.
+        // If a running multi-part is a completed transaction, clear it so it no longer
+        // blocks the backlog, then once no multi-part is running iterate the backlog for more work.
         //
         // Note the kooky corner case where a multi-part transaction can actually have multiple outstanding
         // tasks. At first glance you would think that because the relationship is request response there
@@ -114,32 +142,43 @@ public class TransactionTaskQueue
         // If we don't flush all the associated tasks now then flush won't be called again because it is waiting
         // for the complete transaction task that is languishing in the queue to do the flush post multi-part.
         // It can't be called eagerly because that would destructively flush single parts as well.
-        if (m_backlog.isEmpty() || !m_backlog.getFirst().getTransactionState().isDone()) {
+        boolean removed = false;
+        Iterator<TransactionTask> iter = m_running.values().iterator();
+        while (iter.hasNext()) {
+            if (iter.next().getTransactionState().isDone()) {
+                iter.remove();
+                removed = true;
+            }
+        }
+        if (!removed || !m_running.isEmpty()) {
             return offered;
         }
-        m_backlog.removeFirst();
-        Iterator<TransactionTask> iter = m_backlog.iterator();
+        iter = m_backlog.iterator();
         while (iter.hasNext()) {
             TransactionTask task = iter.next();
-            long lastQueuedTxnId = task.getTxnId();
-            taskQueueOffer(task);
-            ++offered;
             if (task.getTransactionState().isSinglePartition()) {
                 // single part can be immediately removed and offered
+                if (!m_running.isEmpty()) {
+                    break;
+                }
                 iter.remove();
+                taskQueueOffer(task);
+                ++offered;
                 continue;
             }
+            else if (m_running.isEmpty() ||
+                     (isConcurrentRead(task) && runningAreConcurrentReads())) {
+                // the mp fragment is now running, then iterate and take care of the
+                // kooky case explained above. Read-only multi-parts queued right behind
+                // a read-only multi-part start along with it.
+                iter.remove();
+                m_running.put(task.getTxnId(), task);
+                taskQueueOffer(task);
+                ++offered;
+                offered += offerQueuedTasksForTxn(task.getTxnId());
+                iter = m_backlog.iterator();
+            }
             else {
-                // leave the mp fragment at the head of the backlog but
-                // iterate and take care of the kooky case explained above.
-                while (iter.hasNext()) {
-                    task = iter.next();
-                    if (task.getTxnId() == lastQueuedTxnId) {
-                        iter.remove();
-                        taskQueueOffer(task);
-                        ++offered;
-                    }
-                }
                 break;
             }
         }
@@ -147,13 +186,33 @@ public class TransactionTaskQueue
     }
 
     /**
-     * Restart the current task at the head of the queue.  This will be called
+     * Offer the other tasks in the backlog for a multi-part that just started running
+     */
+    private int offerQueuedTasksForTxn(long txnId)
+    {
+        int offered = 0;
+        Iterator<TransactionTask> iter = m_backlog.iterator();
+        while (iter.hasNext()) {
+            TransactionTask task = iter.next();
+            if (task.getTxnId() == txnId) {
+                iter.remove();
+                taskQueueOffer(task);
+                ++offered;
+            }
+        }
+        return offered;
+    }
+
+    /**
+     * Restart the running tasks.  This will be called
      * instead of flush by the currently blocking MP transaction in the event a
      * restart is necessary.
      */
     synchronized void restart()
     {
-        taskQueueOffer(m_backlog.getFirst());
+        for (TransactionTask task : m_running.values()) {
+            taskQueueOffer(task);
+        }
     }
 
     /**
@@ -162,7 +221,7 @@ public class TransactionTaskQueue
      */
     synchronized int size()
     {
-        return m_backlog.size();
+        return m_running.size() + m_backlog.size();
     }
 
     @Override
@@ -171,6 +230,9 @@ public class TransactionTaskQueue
         StringBuilder sb = new StringBuilder();
         sb.append("TransactionTaskQueue:").append("\n");
         sb.append("\tSIZE: ").append(size());
+        if (!m_running.isEmpty()) {
+            sb.append("\tRUNNING: ").append(m_running.values());
+        }
         if (!m_backlog.isEmpty()) {
             sb.append("\tHEAD: ").append(m_backlog.getFirst());
         }
@@ -403,6 +403,21 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
         m_currentProcedureName = procedureName;
     }
 
+    /**
+     * Leave the results of the following batches where the EE serialized them
+     * instead of copying them out, until endResultHandOff() is called.
+     * Engines that can't do that ignore it.
+     */
+    public void beginResultHandOff() {}
+
+    /**
+     * @return the results left in place since beginResultHandOff(), or null
+     * if there are none
+     */
+    public ResultHandOff endResultHandOff() {
+        return null;
+    }
+
     /** Run multiple plan fragments */
     public VoltTable[] executePlanFragments(int numFragmentIds,
                                             long[] planFragmentIds,
@@ -449,6 +464,12 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
 
     abstract public long getThreadLocalPoolAllocations();
 
+    /**
+     * @return the total number of bytes of temp table data this engine
+     * has spilled to disk
+     */
+    abstract public long getTempTableSpilledBytes();
+
     abstract public byte[] loadTable(
         int tableId, VoltTable table, long spHandle,
         long lastCommittedSpHandle, boolean returnUniqueViolations,
@@ -586,6 +607,10 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
      * @param partitionId id of partitioned assigned to this EE
      * @param hostId id of the host this EE is running on
      * @param hostname name of the host this EE is running on
+     * @param tempTableMemory memory limit for the temp tables of a plan fragment
+     * @param tempTableSpillDirectory where temp tables may spill to disk
+     * @param tempTableSpillLimit disk limit for the temp tables of a plan fragment,
+     *        zero or less to never spill
      * @return error code
      */
     protected native int nativeInitialize(
@@ -595,7 +620,9 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
             int partitionId,
             int hostId,
             byte hostname[],
-            long tempTableMemory);
+            long tempTableMemory,
+            byte tempTableSpillDirectory[],
+            long tempTableSpillLimit);
 
     /**
      * Sets (or re-sets) all the shared direct byte buffers in the EE.
@@ -727,6 +754,11 @@ public abstract class ExecutionEngine implements FastDeserializer.Deserializatio
      */
     protected static native long nativeGetThreadLocalPoolAllocations();
 
+    /**
+     * Retrieve the number of bytes of temp table data the engine has spilled to disk
+     */
+    protected native long nativeGetTempTableSpilledBytes(long pointer);
+
     /**
      * @param nextUndoToken The undo token to associate with future work
      * @return true for success false for failure
@@ -122,7 +122,8 @@ public class ExecutionEngineIPC extends ExecutionEngine {
         GetPoolAllocations(24),
         GetUSOs(25),
         updateHashinator(27),
-        executeTask(28);
+        executeTask(28),
+        GetTempTableSpilledBytes(29);
         Commands(final int id) {
             m_id = id;
         }
@@ -581,6 +582,22 @@ public class ExecutionEngineIPC extends ExecutionEngine {
             final BackendTarget target,
             final int port,
             final HashinatorConfig hashinatorConfig) {
+        this(clusterIndex, siteId, partitionId, hostId, hostname,
+             tempTableMemory, "", 0, target, port, hashinatorConfig);
+    }
+
+    public ExecutionEngineIPC(
+            final int clusterIndex,
+            final long siteId,
+            final int partitionId,
+            final int hostId,
+            final String hostname,
+            final int tempTableMemory,
+            final String tempTableSpillDirectory,
+            final int tempTableSpillSize,
+            final BackendTarget target,
+            final int port,
+            final HashinatorConfig hashinatorConfig) {
         super(siteId, partitionId);
 
         // m_counter = 0;
@@ -606,6 +623,8 @@ public class ExecutionEngineIPC extends ExecutionEngine {
                 m_hostId,
                 m_hostname,
                 1024 * 1024 * tempTableMemory,
+                tempTableSpillDirectory,
+                1024L * 1024L * tempTableSpillSize,
                 hashinatorConfig);
     }
 
@@ -639,6 +658,8 @@ public class ExecutionEngineIPC extends ExecutionEngine {
             final int hostId,
             final String hostname,
             final long tempTableMemory,
+            final String tempTableSpillDirectory,
+            final long tempTableSpillLimit,
             final HashinatorConfig hashinatorConfig)
     {
         synchronized(printLockObject) {
@@ -653,8 +674,12 @@ public class ExecutionEngineIPC extends ExecutionEngine {
         m_data.putInt(hostId);
         m_data.putLong(EELoggers.getLogLevels());
         m_data.putLong(tempTableMemory);
+        m_data.putLong(tempTableSpillLimit);
         m_data.putInt((short)hostname.length());
         m_data.put(hostname.getBytes(Charsets.UTF_8));
+        final byte spillDirectoryBytes[] = tempTableSpillDirectory.getBytes(Charsets.UTF_8);
+        m_data.putInt(spillDirectoryBytes.length);
+        m_data.put(spillDirectoryBytes);
         try {
             m_data.flip();
             m_connection.write();
@@ -1419,8 +1444,18 @@ public class ExecutionEngineIPC extends ExecutionEngine {
 
     @Override
     public long getThreadLocalPoolAllocations() {
+        return getLongFromEE(Commands.GetPoolAllocations);
+    }
+
+    @Override
+    public long getTempTableSpilledBytes() {
+        return getLongFromEE(Commands.GetTempTableSpilledBytes);
+    }
+
+    /** Send a command that takes no arguments and answers with a single long */
+    private long getLongFromEE(Commands command) {
         m_data.clear();
-        m_data.putInt(Commands.GetPoolAllocations.m_id);
+        m_data.putInt(command.m_id);
         try {
             m_data.flip();
             m_connection.write();
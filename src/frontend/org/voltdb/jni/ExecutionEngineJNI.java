@@ -83,9 +83,35 @@ public class ExecutionEngineJNI extends ExecutionEngine {
      */
     private ByteBuffer fallbackBuffer = null;
 
+    /*
+     * Buffers the EE writes batch results into while a ResultHandOff is open,
+     * created the first time one is opened.
+     */
+    private ResultBufferPool m_resultBuffers = null;
+    private ResultHandOff m_resultHandOff = null;
+
+    /** The result buffer last passed to the EE */
+    private ByteBuffer m_eeResultBuffer = deserializer.buffer();
+
     private final BBContainer exceptionBufferOrigin = org.voltcore.utils.DBBPool.allocateDirect(1024 * 1024 * 5);
     private ByteBuffer exceptionBuffer = exceptionBufferOrigin.b;
 
+    /**
+     * initialize the native Engine object, with temp tables that never spill.
+     */
+    public ExecutionEngineJNI(
+            final int clusterIndex,
+            final long siteId,
+            final int partitionId,
+            final int hostId,
+            final String hostname,
+            final int tempTableMemory,
+            final HashinatorConfig hashinatorConfig)
+    {
+        this(clusterIndex, siteId, partitionId, hostId, hostname,
+             tempTableMemory, "", 0, hashinatorConfig);
+    }
+
     /**
      * initialize the native Engine object.
      */
@@ -96,6 +122,8 @@ public class ExecutionEngineJNI extends ExecutionEngine {
             final int hostId,
             final String hostname,
             final int tempTableMemory,
+            final String tempTableSpillDirectory,
+            final int tempTableSpillSize,
             final HashinatorConfig hashinatorConfig)
     {
         // base class loads the volt shared library.
@@ -120,7 +148,9 @@ public class ExecutionEngineJNI extends ExecutionEngine {
                     partitionId,
                     hostId,
                     getStringBytes(hostname),
-                    tempTableMemory * 1024 * 1024);
+                    tempTableMemory * 1024 * 1024,
+                    getStringBytes(tempTableSpillDirectory),
+                    tempTableSpillSize * 1024L * 1024L);
         checkErrorCode(errorCode);
 
         setupPsetBuffer(256 * 1024); // 256k seems like a reasonable per-ee number (but is totally pulled from my a**)
@@ -135,12 +165,16 @@ public class ExecutionEngineJNI extends ExecutionEngine {
         }
 
         psetBuffer = DBBPool.allocateDirect(size);
+        setResultBuffer(m_eeResultBuffer);
+    }
 
+    private void setResultBuffer(ByteBuffer resultBuffer) {
         int errorCode = nativeSetBuffers(pointer, psetBuffer.b,
                 psetBuffer.b.capacity(),
-                deserializer.buffer(), deserializer.buffer().capacity(),
+                resultBuffer, resultBuffer.capacity(),
                 exceptionBuffer, exceptionBuffer.capacity());
         checkErrorCode(errorCode);
+        m_eeResultBuffer = resultBuffer;
     }
 
     final void clearPsetAndEnsureCapacity(int size) {
@@ -277,6 +311,16 @@ public class ExecutionEngineJNI extends ExecutionEngine {
         }
         // checkMaxFsSize();
 
+        // While results are being handed off, have the EE write them into
+        // the free end of the current result buffer
+        ResultBufferPool.ResultBuffer resultBuffer = null;
+        if (m_resultHandOff != null) {
+            resultBuffer = m_resultBuffers.current();
+            if (m_eeResultBuffer != resultBuffer.freeSpace()) {
+                setResultBuffer(resultBuffer.freeSpace());
+            }
+        }
+
         // Execute the plan, passing a raw pointer to the byte buffers for input and output
         //Clear is destructive, do it before the native call
         deserializer.clear();
@@ -293,9 +337,23 @@ public class ExecutionEngineJNI extends ExecutionEngine {
 
         try {
             checkErrorCode(errorCode);
-            FastDeserializer fds = fallbackBuffer == null ? deserializer : new FastDeserializer(fallbackBuffer);
+            FastDeserializer fds;
+            if (fallbackBuffer != null) {
+                fds = new FastDeserializer(fallbackBuffer);
+                if (resultBuffer != null) {
+                    // didn't fit in what was left, start the next batch on a fresh buffer
+                    m_resultBuffers.retire();
+                    resultBuffer = null;
+                }
+            }
+            else if (resultBuffer != null) {
+                fds = new FastDeserializer(resultBuffer.freeSpace().duplicate());
+            }
+            else {
+                fds = deserializer;
+            }
             // get a copy of the result buffers and make the tables
-            // use the copy
+            // use the copy, unless they are large enough to hand off
             try {
                 // read the complete size of the buffer used
                 final int totalSize = fds.readInt();
@@ -303,8 +361,16 @@ public class ExecutionEngineJNI extends ExecutionEngine {
                 final boolean dirty = fds.readBoolean();
                 if (dirty)
                     m_dirty = true;
-                // get a copy of the buffer
-                final ByteBuffer fullBacking = fds.readBuffer(totalSize);
+                final boolean handOff = resultBuffer != null && totalSize >= ResultBufferPool.MIN_HAND_OFF_SIZE;
+                final ByteBuffer fullBacking;
+                if (handOff) {
+                    fullBacking = fds.buffer().slice();
+                    fullBacking.limit(totalSize);
+                }
+                else {
+                    // get a copy of the buffer
+                    fullBacking = fds.readBuffer(totalSize);
+                }
                 final VoltTable[] results = new VoltTable[batchSize];
                 for (int i = 0; i < batchSize; ++i) {
                     final int numdeps = fullBacking.getInt(); // number of dependencies for this frag
@@ -320,6 +386,17 @@ public class ExecutionEngineJNI extends ExecutionEngine {
                     tableBacking.limit(tableSize);
 
                     results[i] = PrivateVoltTableFactory.createVoltTableFromBuffer(tableBacking, true);
+                    if (handOff) {
+                        // the table size preceding the table is also its length prefix on the wire
+                        final ByteBuffer serialized = fullBacking.duplicate();
+                        serialized.limit(fullBacking.position());
+                        serialized.position(fullBacking.position() - tableSize - 4);
+                        m_resultHandOff.addTable(results[i], serialized.slice(), resultBuffer);
+                    }
+                }
+                if (handOff) {
+                    resultBuffer.consume(fds.buffer().position() + totalSize);
+                    m_resultBuffers.retireIfFull();
                 }
                 return results;
             } catch (final IOException ex) {
@@ -331,6 +408,30 @@ public class ExecutionEngineJNI extends ExecutionEngine {
         }
     }
 
+    @Override
+    public void beginResultHandOff() {
+        assert(m_resultHandOff == null);
+        if (m_resultBuffers == null) {
+            m_resultBuffers = new ResultBufferPool();
+        }
+        m_resultHandOff = new ResultHandOff();
+    }
+
+    @Override
+    public ResultHandOff endResultHandOff() {
+        ResultHandOff handOff = m_resultHandOff;
+        m_resultHandOff = null;
+        // everything else expects results in the deserializer's buffer
+        if (m_eeResultBuffer != deserializer.buffer()) {
+            setResultBuffer(deserializer.buffer());
+        }
+        if (handOff != null && handOff.isEmpty()) {
+            handOff.release();
+            handOff = null;
+        }
+        return handOff;
+    }
+
     @Override
     public VoltTable serializeTable(final int tableId) throws EEException {
         if (LOG.isTraceEnabled()) {
@@ -582,6 +683,11 @@ public class ExecutionEngineJNI extends ExecutionEngine {
         return nativeGetThreadLocalPoolAllocations();
     }
 
+    @Override
+    public long getTempTableSpilledBytes() {
+        return nativeGetTempTableSpilledBytes(pointer);
+    }
+
     /*
      * Instead of using the reusable output buffer to get results for the next batch,
      * use this buffer allocated by the EE. This is for one time use.
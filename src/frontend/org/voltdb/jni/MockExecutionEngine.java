@@ -218,6 +218,11 @@ public class MockExecutionEngine extends ExecutionEngine {
         return 0L;
     }
 
+    @Override
+    public long getTempTableSpilledBytes() {
+        return 0L;
+    }
+
     @Override
     public byte[] executeTask(TaskType taskType, byte[] task) {
         throw new UnsupportedOperationException();
@@ -0,0 +1,149 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.jni;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Direct buffers an EE writes the results of plan fragment batches into
+ * while a ResultHandOff is open, so the result tables can be written to
+ * client connections straight from where the EE serialized them.
+ *
+ * Each buffer is filled front to back by successive batches and stays in use
+ * until every hand-off with a table in it has been released, at which point it
+ * goes back on the free list. Buffers are released from network threads, the
+ * rest of the pool is only used from the site thread.
+ *
+ * The buffers are plain direct ByteBuffers rather than DBBPool containers so
+ * that a hand-off that is never released only costs a buffer that the garbage
+ * collector gets back, not one that is reused while a response still points
+ * into it.
+ */
+class ResultBufferPool {
+
+    /** Same size as the EE's regular result buffer */
+    static final int BUFFER_SIZE = 1024 * 1024 * 10;
+
+    /** A buffer with less than this left is swapped for a fresh one */
+    static final int MIN_FREE_SPACE = 1024 * 1024;
+
+    /** Results smaller than this are copied out as usual */
+    static final int MIN_HAND_OFF_SIZE = 16 * 1024;
+
+    private static final int MAX_FREE_BUFFERS = 2;
+
+    class ResultBuffer {
+        private final ByteBuffer m_buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        // one reference while it is the pool's current buffer, and one per hand-off using it
+        private final AtomicInteger m_refCount = new AtomicInteger();
+        // the unused end of the buffer, replaced every time it is consumed
+        private int m_offset;
+        private ByteBuffer m_freeSpace;
+
+        private void reset() {
+            m_offset = 0;
+            m_freeSpace = m_buffer.duplicate();
+            m_refCount.set(1);
+        }
+
+        /**
+         * @return the unused end of the buffer. The same object is returned
+         * until consume() is called.
+         */
+        ByteBuffer freeSpace() {
+            return m_freeSpace;
+        }
+
+        /**
+         * Mark the first length bytes of the free space as used.
+         */
+        void consume(int length) {
+            m_offset += length;
+            ByteBuffer free = m_buffer.duplicate();
+            free.position(m_offset);
+            m_freeSpace = free.slice();
+        }
+
+        void retain() {
+            m_refCount.incrementAndGet();
+        }
+
+        void release() {
+            int refs = m_refCount.decrementAndGet();
+            assert(refs >= 0);
+            if (refs == 0) {
+                recycle(this);
+            }
+        }
+    }
+
+    private final ConcurrentLinkedQueue<ResultBuffer> m_freeBuffers = new ConcurrentLinkedQueue<ResultBuffer>();
+    private final AtomicInteger m_freeBufferCount = new AtomicInteger();
+    private ResultBuffer m_current = null;
+
+    /**
+     * @return the buffer the next batch's results should be written into
+     */
+    ResultBuffer current() {
+        if (m_current == null) {
+            m_current = m_freeBuffers.poll();
+            if (m_current == null) {
+                m_current = new ResultBuffer();
+            } else {
+                m_freeBufferCount.decrementAndGet();
+            }
+            m_current.reset();
+        }
+        return m_current;
+    }
+
+    /**
+     * Stop writing into the current buffer if it is nearly full. It is
+     * recycled once the last hand-off using it has been released.
+     */
+    void retireIfFull() {
+        if (m_current != null && m_current.freeSpace().remaining() < MIN_FREE_SPACE) {
+            retire();
+        }
+    }
+
+    /**
+     * Stop writing into the current buffer.
+     */
+    void retire() {
+        if (m_current != null) {
+            ResultBuffer retired = m_current;
+            m_current = null;
+            retired.release();
+        }
+    }
+
+    private void recycle(ResultBuffer buffer) {
+        if (m_freeBufferCount.incrementAndGet() <= MAX_FREE_BUFFERS) {
+            m_freeBuffers.offer(buffer);
+        } else {
+            m_freeBufferCount.decrementAndGet();
+        }
+    }
+
+    int freeBufferCount() {
+        return m_freeBufferCount.get();
+    }
+}
@@ -0,0 +1,125 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.jni;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltdb.PrivateVoltTableFactory;
+import org.voltdb.VoltTable;
+
+/**
+ * Result tables an EE left in its result buffers instead of copying them out,
+ * along with their serialized form, so they can be written to a client
+ * without another copy. The buffers are kept from being reused until the
+ * hand-off is released. Releasing it invalidates the tables, so a table
+ * that is used after that throws rather than reading a reused buffer.
+ *
+ * A hand-off starts out with one reference, held by whoever ended it.
+ * Each container returned by retainSerializedTable() holds one more.
+ */
+public class ResultHandOff {
+
+    private final IdentityHashMap<VoltTable, ByteBuffer> m_serializedTables =
+            new IdentityHashMap<VoltTable, ByteBuffer>();
+    private final ArrayList<ResultBufferPool.ResultBuffer> m_buffers =
+            new ArrayList<ResultBufferPool.ResultBuffer>();
+    private final AtomicInteger m_refCount = new AtomicInteger(1);
+
+    ResultHandOff() {}
+
+    /**
+     * Record that table is backed by buffer, and that serialized holds the
+     * table's length prefix followed by its bytes.
+     */
+    void addTable(VoltTable table, ByteBuffer serialized, ResultBufferPool.ResultBuffer buffer) {
+        if (!m_buffers.contains(buffer)) {
+            buffer.retain();
+            m_buffers.add(buffer);
+        }
+        m_serializedTables.put(table, serialized);
+    }
+
+    boolean isEmpty() {
+        return m_serializedTables.isEmpty();
+    }
+
+    /**
+     * @return true if any of tables is backed by this hand-off
+     */
+    public boolean containsAny(VoltTable[] tables) {
+        if (tables != null) {
+            for (VoltTable table : tables) {
+                if (table != null && m_serializedTables.containsKey(table)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the size of table's length prefix and bytes if it is backed by
+     * this hand-off, or -1
+     */
+    public int getSerializedSize(VoltTable table) {
+        ByteBuffer serialized = m_serializedTables.get(table);
+        return serialized == null ? -1 : serialized.limit();
+    }
+
+    /**
+     * @return a container for table's length prefix and bytes, positioned at 0,
+     * that keeps the hand-off alive until it is discarded, or null if table is
+     * not backed by this hand-off
+     */
+    public BBContainer retainSerializedTable(VoltTable table) {
+        ByteBuffer serialized = m_serializedTables.get(table);
+        if (serialized == null) {
+            return null;
+        }
+        retain();
+        return new BBContainer(serialized.duplicate(), 0) {
+            @Override
+            public void discard() {
+                release();
+            }
+        };
+    }
+
+    public void retain() {
+        m_refCount.incrementAndGet();
+    }
+
+    public void release() {
+        int refs = m_refCount.decrementAndGet();
+        assert(refs >= 0);
+        if (refs == 0) {
+            // before the buffers can be reused, which also makes the
+            // invalidation visible to the site thread that reuses them
+            for (VoltTable table : m_serializedTables.keySet()) {
+                PrivateVoltTableFactory.invalidateVoltTable(table);
+            }
+            for (ResultBufferPool.ResultBuffer buffer : m_buffers) {
+                buffer.release();
+            }
+        }
+    }
+}
@@ -27,6 +27,7 @@ import org.voltdb.ClientResponseImpl;
 import org.voltdb.StoredProcedureInvocation;
 import org.voltdb.VoltTable;
 import org.voltdb.client.ClientResponse;
+import org.voltdb.jni.ResultHandOff;
 
 /**
  * Message from an execution site to initiator with the final response for
@@ -50,6 +51,10 @@ public class InitiateResponseMessage extends VoltMessage {
     private StoredProcedureInvocation m_invocation;
     private Pair<Long, byte[]> m_currentHashinatorConfig;
 
+    // Result buffers m_response's tables are backed by, only set on a response
+    // to a client interface on the same host and never serialized
+    private ResultHandOff m_resultHandOff = null;
+
     /** Empty constructor for de-serialization */
     public InitiateResponseMessage()
     {
@@ -173,6 +178,18 @@ public class InitiateResponseMessage extends VoltMessage {
         m_response = r;
     }
 
+    /**
+     * @return the hand-off keeping the result buffers the response's tables are
+     * backed by from being reused, to be released once they have been written, or null
+     */
+    public ResultHandOff getResultHandOff() {
+        return m_resultHandOff;
+    }
+
+    public void setResultHandOff(ResultHandOff handOff) {
+        m_resultHandOff = handOff;
+    }
+
     public boolean isReadOnly() {
         return m_readOnly;
     }
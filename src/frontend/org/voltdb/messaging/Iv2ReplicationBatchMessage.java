@@ -0,0 +1,122 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.messaging;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.voltcore.messaging.VoltMessage;
+
+/**
+ * Carries several replication messages between an SP leader and one of its
+ * replicas in a single wire message: Iv2InitiateTaskMessages from the leader
+ * to its replicas, and the matching InitiateResponseMessages on the way back.
+ * The receiving InitiatorMailbox unpacks the batch and delivers the messages
+ * one at a time, in order, so the repair log and the duplicate counters still
+ * see individual transactions.
+ */
+public class Iv2ReplicationBatchMessage extends VoltMessage
+{
+    private static final VoltDbMessageFactory m_factory = new VoltDbMessageFactory();
+
+    private final List<VoltMessage> m_messages;
+    private int m_serializedSize = super.getSerializedSize() + 4;
+
+    /** Empty constructor for de-serialization */
+    Iv2ReplicationBatchMessage()
+    {
+        m_messages = new ArrayList<VoltMessage>();
+    }
+
+    public Iv2ReplicationBatchMessage(int expectedSize)
+    {
+        m_messages = new ArrayList<VoltMessage>(expectedSize);
+    }
+
+    /**
+     * Append a message to the batch. The message must not change after it
+     * has been added, its serialized size is only computed once.
+     */
+    public void add(VoltMessage message)
+    {
+        m_messages.add(message);
+        m_serializedSize += 4 + message.getSerializedSize();
+    }
+
+    public List<VoltMessage> getMessages()
+    {
+        return m_messages;
+    }
+
+    public int size()
+    {
+        return m_messages.size();
+    }
+
+    @Override
+    public int getSerializedSize()
+    {
+        return m_serializedSize;
+    }
+
+    @Override
+    public void flattenToBuffer(ByteBuffer buf) throws IOException
+    {
+        buf.put(VoltDbMessageFactory.IV2_REPLICATION_BATCH_ID);
+        buf.putInt(m_messages.size());
+        for (VoltMessage message : m_messages) {
+            final int size = message.getSerializedSize();
+            buf.putInt(size);
+            // the messages insist on filling their buffer exactly
+            ByteBuffer slice = buf.slice();
+            slice.limit(size);
+            message.flattenToBuffer(slice.slice());
+            buf.position(buf.position() + size);
+        }
+        assert(buf.capacity() == buf.position());
+        buf.limit(buf.position());
+    }
+
+    @Override
+    public void initFromBuffer(ByteBuffer buf) throws IOException
+    {
+        final int count = buf.getInt();
+        for (int ii = 0; ii < count; ii++) {
+            final int size = buf.getInt();
+            ByteBuffer slice = buf.slice();
+            slice.limit(size);
+            VoltMessage message = m_factory.createMessageFromBuffer(slice.slice(), m_sourceHSId);
+            buf.position(buf.position() + size);
+            add(message);
+        }
+        assert(buf.capacity() == buf.position());
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append("IV2 REPLICATION BATCH OF ").append(m_messages.size()).append(" MESSAGES");
+        for (VoltMessage message : m_messages) {
+            sb.append("\n").append(message);
+        }
+        return sb.toString();
+    }
+}
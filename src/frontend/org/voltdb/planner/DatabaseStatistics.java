@@ -0,0 +1,110 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.planner;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.json_voltpatches.JSONArray;
+import org.json_voltpatches.JSONException;
+import org.json_voltpatches.JSONObject;
+import org.json_voltpatches.JSONStringer;
+
+/**
+ * Row counts and index key counts for the tables of a database, gathered
+ * from the execution engines by @AnalyzeStatistics. When available, the
+ * planner costs scans and joins with these in place of its default table
+ * size guesses. Instances are immutable.
+ */
+public class DatabaseStatistics {
+
+    public static class TableStatistics {
+        public final long rowCount;
+        // index name to number of distinct keys, for the indexes that could count them
+        public final Map<String, Long> distinctKeyCounts;
+
+        public TableStatistics(long rowCount, Map<String, Long> distinctKeyCounts) {
+            this.rowCount = rowCount;
+            this.distinctKeyCounts = Collections.unmodifiableMap(new HashMap<String, Long>(distinctKeyCounts));
+        }
+    }
+
+    private static final String JSON_TABLES = "tables";
+    private static final String JSON_NAME = "name";
+    private static final String JSON_ROW_COUNT = "rowCount";
+    private static final String JSON_DISTINCT_KEY_COUNTS = "distinctKeyCounts";
+
+    private final Map<String, TableStatistics> m_tables;
+
+    public DatabaseStatistics(Map<String, TableStatistics> tables) {
+        m_tables = Collections.unmodifiableMap(new HashMap<String, TableStatistics>(tables));
+    }
+
+    /**
+     * @return The statistics for the named table, or null if it was not analyzed
+     */
+    public TableStatistics getTable(String tableName) {
+        return m_tables.get(tableName);
+    }
+
+    public Map<String, TableStatistics> getTables() {
+        return m_tables;
+    }
+
+    public String toJSONString() throws JSONException {
+        JSONStringer stringer = new JSONStringer();
+        stringer.object();
+        stringer.key(JSON_TABLES).array();
+        for (Entry<String, TableStatistics> table : m_tables.entrySet()) {
+            stringer.object();
+            stringer.key(JSON_NAME).value(table.getKey());
+            stringer.key(JSON_ROW_COUNT).value(table.getValue().rowCount);
+            stringer.key(JSON_DISTINCT_KEY_COUNTS).object();
+            for (Entry<String, Long> index : table.getValue().distinctKeyCounts.entrySet()) {
+                stringer.key(index.getKey()).value(index.getValue().longValue());
+            }
+            stringer.endObject();
+            stringer.endObject();
+        }
+        stringer.endArray();
+        stringer.endObject();
+        return stringer.toString();
+    }
+
+    public static DatabaseStatistics fromJSONString(String json) throws JSONException {
+        JSONObject jsObj = new JSONObject(json);
+        JSONArray jsTables = jsObj.getJSONArray(JSON_TABLES);
+        Map<String, TableStatistics> tables = new HashMap<String, TableStatistics>();
+        for (int i = 0; i < jsTables.length(); i++) {
+            JSONObject jsTable = jsTables.getJSONObject(i);
+            JSONObject jsIndexes = jsTable.getJSONObject(JSON_DISTINCT_KEY_COUNTS);
+            Map<String, Long> distinctKeyCounts = new HashMap<String, Long>();
+            Iterator<?> indexNames = jsIndexes.keys();
+            while (indexNames.hasNext()) {
+                String indexName = (String) indexNames.next();
+                distinctKeyCounts.put(indexName, jsIndexes.getLong(indexName));
+            }
+            tables.put(jsTable.getString(JSON_NAME),
+                       new TableStatistics(jsTable.getLong(JSON_ROW_COUNT), distinctKeyCounts));
+        }
+        return new DatabaseStatistics(tables);
+    }
+}
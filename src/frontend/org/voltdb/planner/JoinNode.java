@@ -64,6 +64,8 @@ public class JoinNode implements Cloneable {
     List<AccessPath> m_accessPaths = new ArrayList<AccessPath>();
     // Access path under the evaluation
     AccessPath m_currentAccessPath = null;
+    // For a join node, whether the join under the evaluation is a hash join
+    boolean m_hashJoin = false;
 
     /**
      * Construct a leaf node
@@ -33,9 +33,11 @@ import org.voltdb.expressions.ExpressionUtil;
 import org.voltdb.expressions.TupleValueExpression;
 import org.voltdb.plannodes.AbstractJoinPlanNode;
 import org.voltdb.plannodes.AbstractPlanNode;
+import org.voltdb.plannodes.HashJoinPlanNode;
 import org.voltdb.plannodes.IndexScanPlanNode;
 import org.voltdb.plannodes.NestLoopIndexPlanNode;
 import org.voltdb.plannodes.NestLoopPlanNode;
+import org.voltdb.types.ExpressionType;
 import org.voltdb.types.JoinType;
 import org.voltdb.types.PlanNodeType;
 import org.voltdb.utils.PermutationGenerator;
@@ -54,6 +56,9 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
     /** The list of generated plans. This allows their generation in batches.*/
     ArrayDeque<AbstractPlanNode> m_plans = new ArrayDeque<AbstractPlanNode>();
 
+    private static final boolean NESTED_LOOP_ONLY[] = { false };
+    private static final boolean NESTED_LOOP_OR_HASH_JOIN[] = { false, true };
+
     /** The list of all possible join orders, assembled by queueAllJoinOrders */
     ArrayDeque<JoinNode> m_joinOrders = new ArrayDeque<JoinNode>();
 
@@ -653,21 +658,32 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
     {
         assert(nodes.size() > nextNode);
         JoinNode joinNode = nodes.get(nextNode);
+        // A join node is tried as a nested loop join and then as a hash join,
+        // and the cost model picks between the plans. The nested loop plan comes
+        // first so that it wins a tie.
+        boolean hashJoinChoices[] = (joinNode.m_tableAliasIndex == StmtTableScan.NULL_ALIAS_INDEX) ?
+                NESTED_LOOP_OR_HASH_JOIN : NESTED_LOOP_ONLY;
         if (nodes.size() == nextNode + 1) {
             for (AccessPath path : joinNode.m_accessPaths) {
                 joinNode.m_currentAccessPath = path;
-                AbstractPlanNode plan = getSelectSubPlanForJoinNode(rootNode);
-                if (plan == null) {
-                    continue;
+                for (boolean hashJoin : hashJoinChoices) {
+                    joinNode.m_hashJoin = hashJoin;
+                    AbstractPlanNode plan = getSelectSubPlanForJoinNode(rootNode);
+                    if (plan == null) {
+                        continue;
+                    }
+                    m_plans.add(plan);
                 }
-                m_plans.add(plan);
             }
             return;
         }
 
         for (AccessPath path : joinNode.m_accessPaths) {
             joinNode.m_currentAccessPath = path;
-            generateSubPlanForJoinNodeRecursively(rootNode, nextNode+1, nodes);
+            for (boolean hashJoin : hashJoinChoices) {
+                joinNode.m_hashJoin = hashJoin;
+                generateSubPlanForJoinNodeRecursively(rootNode, nextNode+1, nodes);
+            }
         }
     }
 
@@ -800,9 +816,15 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
             canHaveNLIJ = false;
         }
 
+        // The hash join alternative replaces a nested loop join over an inner
+        // plan that is not an index scan.
+        if (joinNode.m_hashJoin && (innerPlan instanceof IndexScanPlanNode || needInnerSendReceive)) {
+            return null;
+        }
+
         AbstractJoinPlanNode ajNode = null;
         if (canHaveNLJ) {
-            NestLoopPlanNode nljNode = new NestLoopPlanNode();
+            AbstractJoinPlanNode nljNode = null;
             // get all the clauses that join the applicable two tables
             ArrayList<AbstractExpression> joinClauses = innerAccessPath.joinExprs;
             if (innerPlan instanceof IndexScanPlanNode) {
@@ -814,6 +836,19 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
                 AbstractExpression indexScanPredicate = ExpressionUtil.combine(innerExpr);
                 ((IndexScanPlanNode)innerPlan).setPredicate(indexScanPredicate);
             }
+            else if (joinNode.m_hashJoin) {
+                // An equi-join can avoid rescanning the inner table for every outer
+                // tuple by hashing it once. The access path is shared by other
+                // candidate plans, so work on a copy of its join clauses.
+                joinClauses = new ArrayList<AbstractExpression>(joinClauses);
+                nljNode = getHashJoinPlanNode(joinNode, joinClauses);
+                if (nljNode == null) {
+                    return null;
+                }
+            }
+            if (nljNode == null) {
+                nljNode = new NestLoopPlanNode();
+            }
             nljNode.setJoinPredicate(ExpressionUtil.combine(joinClauses));
 
             // combine the tails plan graph with the new head node
@@ -860,6 +895,76 @@ public class SelectSubPlanAssembler extends SubPlanAssembler {
         return ajNode;
     }
 
+    /**
+     * Try to build a hash join for the given join node by moving its equality
+     * join clauses into the hash key. A clause qualifies if one side depends only
+     * on the inner table, the other side depends only on outer tables and both
+     * sides have the same value type, so that equal values hash identically.
+     *
+     * @param joinNode A parent join node with a single inner table.
+     * @param joinClauses The inner-outer join clauses. Clauses that are used
+     *        as hash keys are removed from this list.
+     * @return A HashJoinPlanNode without children or null if the join does not qualify.
+     */
+    private HashJoinPlanNode getHashJoinPlanNode(JoinNode joinNode, List<AbstractExpression> joinClauses)
+    {
+        if (joinNode.m_joinType != JoinType.INNER && joinNode.m_joinType != JoinType.LEFT) {
+            return null;
+        }
+        if (joinNode.m_rightNode.m_tableAliasIndex == StmtTableScan.NULL_ALIAS_INDEX) {
+            return null;
+        }
+        String innerTableAlias = m_parsedStmt.stmtCache.get(joinNode.m_rightNode.m_tableAliasIndex).m_tableAlias;
+
+        HashJoinPlanNode hjNode = null;
+        List<AbstractExpression> hashClauses = new ArrayList<AbstractExpression>();
+        for (AbstractExpression clause : joinClauses) {
+            if (clause.getExpressionType() != ExpressionType.COMPARE_EQUAL) {
+                continue;
+            }
+            AbstractExpression outerExpr = clause.getLeft();
+            AbstractExpression innerExpr = clause.getRight();
+            if ( ! isOnlyDependentOnTable(innerExpr, innerTableAlias)) {
+                outerExpr = clause.getRight();
+                innerExpr = clause.getLeft();
+            }
+            if ( ! isOnlyDependentOnTable(innerExpr, innerTableAlias) ||
+                 TupleValueExpression.isOperandDependentOnTable(outerExpr, innerTableAlias) ||
+                 ExpressionUtil.getTupleValueExpressions(outerExpr).isEmpty()) {
+                continue;
+            }
+            if (outerExpr.getValueType() == null ||
+                outerExpr.getValueType() != innerExpr.getValueType()) {
+                continue;
+            }
+            if (hjNode == null) {
+                hjNode = new HashJoinPlanNode();
+            }
+            hjNode.addHashExpressions(outerExpr, innerExpr);
+            hashClauses.add(clause);
+        }
+        joinClauses.removeAll(hashClauses);
+        return hjNode;
+    }
+
+    /**
+     * @return true if the expression references at least one column
+     *         and all of its columns belong to the given table.
+     */
+    private static boolean isOnlyDependentOnTable(AbstractExpression expr, String tableAlias)
+    {
+        List<TupleValueExpression> tves = ExpressionUtil.getTupleValueExpressions(expr);
+        if (tves.isEmpty()) {
+            return false;
+        }
+        for (TupleValueExpression tve : tves) {
+            if ( ! tableAlias.equals(tve.getTableAlias())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private boolean hasReplicatedResult(AbstractPlanNode plan)
     {
         HashSet<String> tablesRead = new HashSet<String>();
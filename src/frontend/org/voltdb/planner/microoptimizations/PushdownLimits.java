@@ -26,6 +26,7 @@ import org.voltdb.plannodes.AbstractJoinPlanNode;
 import org.voltdb.plannodes.AbstractPlanNode;
 import org.voltdb.plannodes.AbstractScanPlanNode;
 import org.voltdb.plannodes.LimitPlanNode;
+import org.voltdb.plannodes.OrderByPlanNode;
 import org.voltdb.plannodes.ProjectionPlanNode;
 
 public class PushdownLimits extends MicroOptimization {
@@ -47,9 +48,9 @@ public class PushdownLimits extends MicroOptimization {
 
         // depth first:
         //     find LimitPlanNodes with exactly one child
-        //     where that child is an AbstractScanPlanNode
+        //     where that child is an AbstractScanPlanNode, a join or an OrderByPlanNode
         //     disconnect the LimitPlanNode
-        //     and inline the LimitPlanNode in to the AbstractScanPlanNode
+        //     and inline the LimitPlanNode in to that child
 
         ArrayList<AbstractPlanNode> children = new ArrayList<AbstractPlanNode>();
         for (int i = 0; i < plan.getChildCount(); i++)
@@ -82,6 +83,16 @@ public class PushdownLimits extends MicroOptimization {
             return child;
         }
 
+        // push into ORDER BY, which then only keeps the top limit + offset rows
+        // while sorting. This also applies to the coordinator's ORDER BY over
+        // the partitions' pre-limited results in a MP plan.
+        if (child instanceof OrderByPlanNode) {
+            plan.clearChildren();
+            child.clearParents();
+            child.addInlinePlanNode(plan);
+            return child;
+        }
+
         // push down through Projection
         // Replace the chain plan/limit . child/projection . leaf/whatever
         // with recursivelyApply(child/projection . plan/limit . leaf/whatever)
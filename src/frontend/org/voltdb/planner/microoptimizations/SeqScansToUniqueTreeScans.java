@@ -119,7 +119,7 @@ public class SeqScansToUniqueTreeScans extends MicroOptimization {
                 continue;
             }
             // skip hash indexes
-            else if (index.getType() != IndexType.BALANCED_TREE.getValue()) {
+            else if (!IndexType.isScannable(index.getType())) {
                 continue;
             }
             else {
@@ -0,0 +1,196 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.plannodes;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.json_voltpatches.JSONException;
+import org.json_voltpatches.JSONObject;
+import org.json_voltpatches.JSONStringer;
+import org.voltdb.catalog.Cluster;
+import org.voltdb.catalog.Database;
+import org.voltdb.compiler.DatabaseEstimates;
+import org.voltdb.compiler.ScalarValueHints;
+import org.voltdb.expressions.AbstractExpression;
+import org.voltdb.types.PlanNodeType;
+import org.voltdb.types.SortDirectionType;
+
+/**
+ * An equi-join of its two children that builds a hash table keyed on the
+ * inner hash expressions and probes it with the outer hash expressions.
+ * The planner uses it in place of a NestLoopPlanNode when the inner table
+ * has no usable index access path. Any join clauses that are not part of
+ * the hash key remain in the join predicate and are applied to each
+ * hash-matched pair of tuples.
+ */
+public class HashJoinPlanNode extends AbstractJoinPlanNode {
+
+    public enum Members {
+        OUTER_HASH_EXPRESSIONS,
+        INNER_HASH_EXPRESSIONS;
+    }
+
+    // Parallel lists: the n-th outer expression is compared for equality
+    // with the n-th inner expression. Each pair has matching value types.
+    protected List<AbstractExpression> m_outerHashExpressions = new ArrayList<AbstractExpression>();
+    protected List<AbstractExpression> m_innerHashExpressions = new ArrayList<AbstractExpression>();
+
+    public HashJoinPlanNode() {
+        super();
+    }
+
+    @Override
+    public PlanNodeType getPlanNodeType() {
+        return PlanNodeType.HASHJOIN;
+    }
+
+    /**
+     * Add an equality condition to the hash key.
+     * @param outerExpr expression evaluated against the outer table only
+     * @param innerExpr expression evaluated against the inner table only
+     */
+    public void addHashExpressions(AbstractExpression outerExpr, AbstractExpression innerExpr)
+    {
+        assert(outerExpr != null && innerExpr != null);
+        m_outerHashExpressions.add((AbstractExpression) outerExpr.clone());
+        m_innerHashExpressions.add((AbstractExpression) innerExpr.clone());
+    }
+
+    public List<AbstractExpression> getOuterHashExpressions() {
+        return m_outerHashExpressions;
+    }
+
+    public List<AbstractExpression> getInnerHashExpressions() {
+        return m_innerHashExpressions;
+    }
+
+    @Override
+    public void validate() throws Exception {
+        super.validate();
+
+        if (m_outerHashExpressions.isEmpty()) {
+            throw new Exception("ERROR: No hash expressions are set for " + this);
+        }
+        if (m_outerHashExpressions.size() != m_innerHashExpressions.size()) {
+            throw new Exception("ERROR: Mismatched outer and inner hash expressions for " + this);
+        }
+        for (int i = 0; i < m_outerHashExpressions.size(); i++) {
+            m_outerHashExpressions.get(i).validate();
+            m_innerHashExpressions.get(i).validate();
+        }
+    }
+
+    @Override
+    public void resolveColumnIndexes()
+    {
+        super.resolveColumnIndexes();
+        NodeSchema outer_schema = m_children.get(0).getOutputSchema();
+        NodeSchema inner_schema = m_children.get(1).getOutputSchema();
+        for (AbstractExpression expr : m_outerHashExpressions) {
+            resolvePredicate(expr, outer_schema, inner_schema);
+        }
+        for (AbstractExpression expr : m_innerHashExpressions) {
+            resolvePredicate(expr, outer_schema, inner_schema);
+        }
+    }
+
+    @Override
+    public void computeCostEstimates(long childOutputTupleCountEstimate,
+                                     Cluster cluster,
+                                     Database db,
+                                     DatabaseEstimates estimates,
+                                     ScalarValueHints[] paramHints)
+    {
+        if (estimates.hasStatistics()) {
+            // With real table sizes, each outer tuple is probed once and each inner
+            // tuple is read and then inserted into the hash table, against the
+            // nestloop join's pairing of every outer tuple with every inner one.
+            // The output is estimated as the nestloop join estimates it, so that
+            // the plan above the join costs the same either way.
+            long outer = getChild(0).getEstimatedOutputTupleCount();
+            long inner = getChild(1).getEstimatedOutputTupleCount();
+            m_estimatedOutputTupleCount = outer * inner;
+            m_estimatedProcessedTupleCount = outer + 2 * inner;
+            return;
+        }
+
+        // Each input is read once, and the inner input is also inserted into
+        // the hash table before the first output tuple, even under a LIMIT.
+        // That is still far cheaper than the nestloop join's rescans of the
+        // same unindexed inner input.
+        m_estimatedOutputTupleCount = childOutputTupleCountEstimate;
+        m_estimatedProcessedTupleCount = childOutputTupleCountEstimate +
+            getChild(1).getEstimatedOutputTupleCount();
+    }
+
+    @Override
+    protected String explainPlanForNode(String indent) {
+        String keys = "";
+        String sep = "";
+        for (int i = 0; i < m_outerHashExpressions.size(); i++) {
+            keys += sep + m_outerHashExpressions.get(i).explain("!?") + " = " +
+                    m_innerHashExpressions.get(i).explain("!?");
+            sep = ", ";
+        }
+        return "HASH " + this.m_joinType.toString() + " JOIN" +
+                (m_sortDirection == SortDirectionType.INVALID ? "" : " (" + m_sortDirection + ")") +
+                " on key (" + keys + ")" +
+                explainFilters(indent);
+    }
+
+    @Override
+    public void toJSONString(JSONStringer stringer) throws JSONException
+    {
+        super.toJSONString(stringer);
+        // The EE may only choose to build its hash table over the outer input
+        // when nothing depends on the ordering of the outer input.
+        if (m_sortDirection != SortDirectionType.INVALID) {
+            stringer.key(AbstractJoinPlanNode.Members.SORT_DIRECTION.name()).value(m_sortDirection.toString());
+        }
+        stringer.key(Members.OUTER_HASH_EXPRESSIONS.name()).array();
+        for (AbstractExpression expr : m_outerHashExpressions) {
+            stringer.object();
+            expr.toJSONString(stringer);
+            stringer.endObject();
+        }
+        stringer.endArray();
+        stringer.key(Members.INNER_HASH_EXPRESSIONS.name()).array();
+        for (AbstractExpression expr : m_innerHashExpressions) {
+            stringer.object();
+            expr.toJSONString(stringer);
+            stringer.endObject();
+        }
+        stringer.endArray();
+    }
+
+    @Override
+    public void loadFromJSONObject( JSONObject jobj, Database db ) throws JSONException
+    {
+        super.loadFromJSONObject(jobj, db);
+        if (!jobj.isNull(AbstractJoinPlanNode.Members.SORT_DIRECTION.name())) {
+            m_sortDirection = SortDirectionType.get(
+                    jobj.getString(AbstractJoinPlanNode.Members.SORT_DIRECTION.name()));
+        }
+        AbstractExpression.loadFromJSONArrayChild(m_outerHashExpressions, jobj,
+                                                  Members.OUTER_HASH_EXPRESSIONS.name(), null);
+        AbstractExpression.loadFromJSONArrayChild(m_innerHashExpressions, jobj,
+                                                  Members.INNER_HASH_EXPRESSIONS.name(), null);
+    }
+
+}
@@ -470,7 +470,7 @@ public class IndexScanPlanNode extends AbstractScanPlanNode {
         // Estimate the cost of the scan (AND each projection and sort thereafter).
         // This "tuplesToRead" is not strictly speaking an expected count of tuples.
         // Its multiple uses are explained below.
-        int tuplesToRead = 0;
+        long tuplesToRead = 0;
 
         // Assign minor priorities for different index types (tiebreakers).
         if (m_catalogIndex.getType() == IndexType.HASH_TABLE.getValue()) {
@@ -496,7 +496,17 @@ public class IndexScanPlanNode extends AbstractScanPlanNode {
             // Using a factor of 0.1 per FULLY covered (equality-filtered) column,
             // the effective scale factor for a single PARTIALLY covered (range-filtered) column
             // comes to SQRT(0.1) which is just under 32% FTW!
-            tuplesToRead += (int) (tableEstimates.maxTuples * 0.90 * Math.pow(0.10, keyWidth));
+            Long distinctKeys = tableEstimates.indexDistinctKeys.get(m_catalogIndex.getTypeName());
+            if (distinctKeys != null && distinctKeys > 0 && keyWidth > 0.0) {
+                // With gathered statistics, spread the table's rows evenly over the index's keys.
+                // A prefix of the key columns is assumed to be as selective as its share of the
+                // key's width, so each covered column divides by the same factor.
+                tuplesToRead += (long) (tableEstimates.maxTuples * 0.90 /
+                                       Math.pow(distinctKeys, keyWidth / colCount));
+            }
+            else {
+                tuplesToRead += (long) (tableEstimates.maxTuples * 0.90 * Math.pow(0.10, keyWidth));
+            }
 
             // With all this discounting, make sure that any non-"covering unique" index scan costs more
             // than any "covering unique" one, no matter how many indexed column filters get piled on.
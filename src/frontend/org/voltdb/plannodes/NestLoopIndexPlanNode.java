@@ -269,6 +269,15 @@ public class NestLoopIndexPlanNode extends AbstractJoinPlanNode {
                 (IndexScanPlanNode) getInlinePlanNode(PlanNodeType.INDEXSCAN);
         assert(indexScan != null);
 
+        if (estimates.hasStatistics()) {
+            // With real table sizes, the cost of repeating the index lookup for each
+            // outer tuple is what makes one join order cheaper than another.
+            m_estimatedOutputTupleCount = indexScan.getEstimatedOutputTupleCount() * childOutputTupleCountEstimate;
+            m_estimatedProcessedTupleCount = childOutputTupleCountEstimate +
+                indexScan.getEstimatedProcessedTupleCount() * childOutputTupleCountEstimate;
+            return;
+        }
+
         m_estimatedOutputTupleCount = indexScan.getEstimatedOutputTupleCount() + childOutputTupleCountEstimate;
         m_estimatedProcessedTupleCount = indexScan.getEstimatedProcessedTupleCount() + childOutputTupleCountEstimate;
     }
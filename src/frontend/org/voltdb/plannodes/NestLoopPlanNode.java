@@ -42,13 +42,26 @@ public class NestLoopPlanNode extends AbstractJoinPlanNode {
                                      DatabaseEstimates estimates,
                                      ScalarValueHints[] paramHints)
     {
-        // This method doesn't do anything besides what the parent method does,
-        // but it is a nice place to put a comment.
-        // Since both children's' cost get included in the costing, this
-        // already mirrors the kind of estimating we do in a nestloopjoin.
+        if (estimates.hasStatistics()) {
+            // With real table sizes, count every pairing of an outer and an inner tuple
+            // so that the join is not costed as cheaply as an indexed one.
+            long pairs = getChild(0).getEstimatedOutputTupleCount() *
+                         getChild(1).getEstimatedOutputTupleCount();
+            m_estimatedOutputTupleCount = pairs;
+            m_estimatedProcessedTupleCount = pairs;
+            return;
+        }
 
         m_estimatedOutputTupleCount = childOutputTupleCountEstimate;
         m_estimatedProcessedTupleCount = childOutputTupleCountEstimate;
+        if ( ! (getChild(1) instanceof IndexScanPlanNode)) {
+            // With no index to narrow the inner input, the whole of it is
+            // rescanned for every outer tuple. Count that even with guessed
+            // table sizes, or an equi-join would never be costed above the
+            // hash join that reads the inner input only once.
+            m_estimatedProcessedTupleCount += getChild(0).getEstimatedOutputTupleCount() *
+                                              getChild(1).getEstimatedOutputTupleCount();
+        }
     }
 
     @Override
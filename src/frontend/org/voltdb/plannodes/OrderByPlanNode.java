@@ -101,6 +101,18 @@ public class OrderByPlanNode extends AbstractPlanNode {
         return false;
     }
 
+    /**
+     * With an inlined limit, the sort only keeps its top rows, so which rows
+     * survive is deterministic only if the ordering is.
+     */
+    @Override
+    public boolean isContentDeterministic() {
+        if (super.isContentDeterministic() && getInlinePlanNode(PlanNodeType.LIMIT) != null) {
+            return isOrderDeterministic();
+        }
+        return super.isContentDeterministic();
+    }
+
     private boolean orderingByUniqueColumns() {
         return m_orderingByUniqueColumns;
     }
@@ -185,10 +197,23 @@ public class OrderByPlanNode extends AbstractPlanNode {
         // we want, given the lack of table stats.
         m_estimatedOutputTupleCount = childOutputTupleCountEstimate;
         m_estimatedProcessedTupleCount = childOutputTupleCountEstimate;
+
+        // A top-N sort with an inlined limit still reads every input tuple. It is
+        // costed just like the separate sort and limit nodes it replaces, so that
+        // it gains no edge over an index scan that produces the order without sorting.
+        if (getInlinePlanNode(PlanNodeType.LIMIT) != null) {
+            m_estimatedProcessedTupleCount = 2 * childOutputTupleCountEstimate;
+        }
     }
 
     @Override
     public void toJSONString(JSONStringer stringer) throws JSONException {
+        // As for scans, the inlined limit's output schema is that of the sort.
+        LimitPlanNode limit = (LimitPlanNode)getInlinePlanNode(PlanNodeType.LIMIT);
+        if (limit != null) {
+            limit.m_outputSchema = m_outputSchema.clone();
+            limit.m_hasSignificantOutputSchema = false;
+        }
         super.toJSONString(stringer);
         assert (m_sortExpressions.size() == m_sortDirections.size());
         stringer.key(Members.SORT_COLUMNS.name()).array();
@@ -221,6 +246,9 @@ public class OrderByPlanNode extends AbstractPlanNode {
 
     @Override
     protected String explainPlanForNode(String indent) {
+        if (getInlinePlanNode(PlanNodeType.LIMIT) != null) {
+            return "ORDER BY (TOP-N SORT)";
+        }
         return "ORDER BY (SORT)";
     }
 }
@@ -0,0 +1,314 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.sysprocs;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.voltcore.logging.VoltLogger;
+import org.voltdb.DependencyPair;
+import org.voltdb.ParameterSet;
+import org.voltdb.ProcInfo;
+import org.voltdb.StatsSelector;
+import org.voltdb.SystemProcedureExecutionContext;
+import org.voltdb.VoltDB;
+import org.voltdb.VoltSystemProcedure;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltTable.ColumnInfo;
+import org.voltdb.VoltType;
+import org.voltdb.catalog.Database;
+import org.voltdb.catalog.Table;
+import org.voltdb.compiler.PlannerTool;
+import org.voltdb.dtxn.DtxnConstants;
+import org.voltdb.planner.DatabaseStatistics;
+import org.voltdb.planner.DatabaseStatistics.TableStatistics;
+import org.voltdb.utils.CatalogUtil;
+import org.voltdb.utils.VoltTableUtil;
+
+/**
+ * Gathers the row count of every table and the number of distinct keys in
+ * every index from the execution engines, and hands them to the ad hoc
+ * planner on every host so that it costs access paths and join orders with
+ * real table sizes. The statistics are also kept in ZooKeeper for hosts
+ * that join later. Stored procedures keep the plans they were compiled with.
+ */
+@ProcInfo(singlePartition = false)
+public class AnalyzeStatistics extends VoltSystemProcedure {
+    private static final VoltLogger HOST_LOG = new VoltLogger("HOST");
+
+    private static final int DEP_analyzeStatistics = (int)
+            SysProcFragmentId.PF_analyzeStatistics | DtxnConstants.MULTIPARTITION_DEPENDENCY;
+
+    private static final int DEP_analyzeStatisticsResults = (int)
+            SysProcFragmentId.PF_analyzeStatisticsResults;
+
+    private static final int DEP_installStatistics = (int)
+            SysProcFragmentId.PF_installStatistics | DtxnConstants.MULTIPARTITION_DEPENDENCY;
+
+    private static final int DEP_installStatisticsResults = (int)
+            SysProcFragmentId.PF_installStatisticsResults;
+
+    @Override
+    public void init() {
+        registerPlanFragment(SysProcFragmentId.PF_analyzeStatistics);
+        registerPlanFragment(SysProcFragmentId.PF_analyzeStatisticsResults);
+        registerPlanFragment(SysProcFragmentId.PF_installStatistics);
+        registerPlanFragment(SysProcFragmentId.PF_installStatisticsResults);
+    }
+
+    @Override
+    public DependencyPair
+    executePlanFragment(Map<Integer, List<VoltTable>> dependencies, long fragmentId, ParameterSet params,
+                        final SystemProcedureExecutionContext context)
+    {
+        if (fragmentId == SysProcFragmentId.PF_analyzeStatistics) {
+
+            final VoltTable results = constructSampleTable();
+            Database db = context.getDatabase();
+            List<Integer> tableIds = new ArrayList<Integer>();
+            for (Table t : db.getTables()) {
+                if (!CatalogUtil.isTableExportOnly(db, t)) {
+                    tableIds.add(t.getRelativeIndex());
+                }
+            }
+            if (tableIds.isEmpty()) {
+                return new DependencyPair(DEP_analyzeStatistics, results);
+            }
+            int[] locators = new int[tableIds.size()];
+            for (int ii = 0; ii < locators.length; ii++) {
+                locators[ii] = tableIds.get(ii);
+            }
+            long now = System.currentTimeMillis();
+
+            VoltTable[] tableStats = context.getSiteProcedureConnection().getStats(
+                    StatsSelector.TABLE, locators, false, now);
+            if (tableStats != null && tableStats.length > 0) {
+                while (tableStats[0].advanceRow()) {
+                    results.addRow(context.getPartitionId(),
+                                   tableStats[0].getString("TABLE_NAME"),
+                                   null,
+                                   tableStats[0].getLong("TUPLE_COUNT"));
+                }
+            }
+            VoltTable[] indexStats = context.getSiteProcedureConnection().getStats(
+                    StatsSelector.INDEX, locators, false, now);
+            if (indexStats != null && indexStats.length > 0) {
+                while (indexStats[0].advanceRow()) {
+                    results.addRow(context.getPartitionId(),
+                                   indexStats[0].getString("TABLE_NAME"),
+                                   indexStats[0].getString("INDEX_NAME"),
+                                   indexStats[0].getLong("DISTINCT_KEY_COUNT"));
+                }
+            }
+            return new DependencyPair(DEP_analyzeStatistics, results);
+
+        } else if (fragmentId == SysProcFragmentId.PF_analyzeStatisticsResults) {
+
+            assert (dependencies.size() > 0);
+            final VoltTable results = VoltTableUtil.unionTables(dependencies.get(DEP_analyzeStatistics));
+            return new DependencyPair(DEP_analyzeStatisticsResults, results);
+
+        } else if (fragmentId == SysProcFragmentId.PF_installStatistics) {
+
+            // one site per host is enough to install them in the host's planner
+            if (context.isLowestSiteId()) {
+                try {
+                    PlannerTool.setStatistics(DatabaseStatistics.fromJSONString((String) params.toArray()[0]));
+                } catch (Exception e) {
+                    throw new VoltAbortException(e);
+                }
+            }
+            VoltTable result = new VoltTable(STATUS_SCHEMA);
+            result.addRow(STATUS_OK);
+            return new DependencyPair(DEP_installStatistics, result);
+
+        } else if (fragmentId == SysProcFragmentId.PF_installStatisticsResults) {
+
+            VoltTable result = new VoltTable(STATUS_SCHEMA);
+            result.addRow(STATUS_OK);
+            return new DependencyPair(DEP_installStatisticsResults, result);
+
+        }
+        assert (false);
+        return null;
+    }
+
+    /**
+     * One row per table and per index at each partition. Table rows have a null
+     * INDEX_NAME and count rows; index rows count distinct keys, -1 if unknown.
+     */
+    private static VoltTable constructSampleTable() {
+        ColumnInfo[] columns = new ColumnInfo[] {
+                new ColumnInfo(CNAME_PARTITION_ID, CTYPE_ID),
+                new ColumnInfo("TABLE_NAME", VoltType.STRING),
+                new ColumnInfo("INDEX_NAME", VoltType.STRING),
+                new ColumnInfo("COUNT", VoltType.BIGINT)
+        };
+        return new VoltTable(columns);
+    }
+
+    /**
+     * Combine the partitions' samples into whole-table statistics. Replicas of a
+     * partition report the same counts, so only one sample per partition is kept.
+     */
+    static DatabaseStatistics aggregate(VoltTable samples, Database db) {
+        Map<String, Map<Integer, Long>> rowCounts = new HashMap<String, Map<Integer, Long>>();
+        Map<String, Map<String, Map<Integer, Long>>> keyCounts =
+            new HashMap<String, Map<String, Map<Integer, Long>>>();
+        samples.resetRowPosition();
+        while (samples.advanceRow()) {
+            String tableName = samples.getString("TABLE_NAME");
+            String indexName = samples.getString("INDEX_NAME");
+            int partitionId = (int) samples.getLong(CNAME_PARTITION_ID);
+            long count = samples.getLong("COUNT");
+            if (indexName == null) {
+                getOrCreate(rowCounts, tableName).put(partitionId, count);
+            }
+            else {
+                Map<String, Map<Integer, Long>> tableKeyCounts = keyCounts.get(tableName);
+                if (tableKeyCounts == null) {
+                    tableKeyCounts = new HashMap<String, Map<Integer, Long>>();
+                    keyCounts.put(tableName, tableKeyCounts);
+                }
+                getOrCreate(tableKeyCounts, indexName).put(partitionId, count);
+            }
+        }
+
+        Map<String, TableStatistics> tables = new HashMap<String, TableStatistics>();
+        for (Entry<String, Map<Integer, Long>> tableRows : rowCounts.entrySet()) {
+            Table table = db.getTables().getIgnoreCase(tableRows.getKey());
+            if (table == null) {
+                continue;
+            }
+            long rowCount = combine(tableRows.getValue().values(), table.getIsreplicated());
+            Map<String, Long> distinctKeyCounts = new HashMap<String, Long>();
+            Map<String, Map<Integer, Long>> tableKeyCounts = keyCounts.get(tableRows.getKey());
+            if (tableKeyCounts != null) {
+                for (Entry<String, Map<Integer, Long>> indexKeys : tableKeyCounts.entrySet()) {
+                    long keyCount = combine(indexKeys.getValue().values(), table.getIsreplicated());
+                    if (keyCount >= 0) {
+                        distinctKeyCounts.put(indexKeys.getKey(), Math.min(keyCount, rowCount));
+                    }
+                }
+            }
+            tables.put(table.getTypeName(), new TableStatistics(rowCount, distinctKeyCounts));
+        }
+        return new DatabaseStatistics(tables);
+    }
+
+    private static <K> Map<Integer, Long> getOrCreate(Map<K, Map<Integer, Long>> map, K key) {
+        Map<Integer, Long> value = map.get(key);
+        if (value == null) {
+            value = new HashMap<Integer, Long>();
+            map.put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * A replicated table is whole at every partition; a partitioned one is the sum of
+     * its partitions. The same key can appear at several partitions, so the sum of a
+     * partitioned table's distinct keys is an upper bound. Any unknown count (-1)
+     * makes the combined count unknown.
+     */
+    private static long combine(Collection<Long> counts, boolean replicated) {
+        long combined = 0;
+        for (long count : counts) {
+            if (count < 0) {
+                return -1;
+            }
+            combined = replicated ? Math.max(combined, count) : combined + count;
+        }
+        return combined;
+    }
+
+    private static VoltTable constructResultsTable(DatabaseStatistics statistics) {
+        VoltTable results = new VoltTable(
+                new ColumnInfo("TABLE_NAME", VoltType.STRING),
+                new ColumnInfo("INDEX_NAME", VoltType.STRING),
+                new ColumnInfo("ROW_COUNT", VoltType.BIGINT),
+                new ColumnInfo("DISTINCT_KEY_COUNT", VoltType.BIGINT));
+        for (Entry<String, TableStatistics> table : statistics.getTables().entrySet()) {
+            results.addRow(table.getKey(), null, table.getValue().rowCount, null);
+            for (Entry<String, Long> index : table.getValue().distinctKeyCounts.entrySet()) {
+                results.addRow(table.getKey(), index.getKey(), table.getValue().rowCount, index.getValue());
+            }
+        }
+        return results;
+    }
+
+    public VoltTable[] run(SystemProcedureExecutionContext ctx) throws VoltAbortException
+    {
+        final long startTime = System.currentTimeMillis();
+
+        SynthesizedPlanFragment[] pfs = new SynthesizedPlanFragment[2];
+
+        pfs[0] = new SynthesizedPlanFragment();
+        pfs[0].fragmentId = SysProcFragmentId.PF_analyzeStatistics;
+        pfs[0].outputDepId = DEP_analyzeStatistics;
+        pfs[0].multipartition = true;
+        pfs[0].parameters = ParameterSet.emptyParameterSet();
+
+        pfs[1] = new SynthesizedPlanFragment();
+        pfs[1].fragmentId = SysProcFragmentId.PF_analyzeStatisticsResults;
+        pfs[1].outputDepId = DEP_analyzeStatisticsResults;
+        pfs[1].inputDepIds  = new int[] { DEP_analyzeStatistics };
+        pfs[1].multipartition = false;
+        pfs[1].parameters = ParameterSet.emptyParameterSet();
+
+        VoltTable samples = executeSysProcPlanFragments(pfs, DEP_analyzeStatisticsResults)[0];
+        // the read-only MP site has no catalog of its own
+        DatabaseStatistics statistics = aggregate(samples, VoltDB.instance().getCatalogContext().database);
+        String json;
+        try {
+            json = statistics.toJSONString();
+        } catch (Exception e) {
+            throw new VoltAbortException(e);
+        }
+
+        pfs[0] = new SynthesizedPlanFragment();
+        pfs[0].fragmentId = SysProcFragmentId.PF_installStatistics;
+        pfs[0].outputDepId = DEP_installStatistics;
+        pfs[0].multipartition = true;
+        pfs[0].parameters = ParameterSet.fromArrayNoCopy(json);
+
+        pfs[1] = new SynthesizedPlanFragment();
+        pfs[1].fragmentId = SysProcFragmentId.PF_installStatisticsResults;
+        pfs[1].outputDepId = DEP_installStatisticsResults;
+        pfs[1].inputDepIds  = new int[] { DEP_installStatistics };
+        pfs[1].multipartition = false;
+        pfs[1].parameters = ParameterSet.emptyParameterSet();
+
+        executeSysProcPlanFragments(pfs, DEP_installStatisticsResults);
+
+        try {
+            PlannerTool.saveStatistics(VoltDB.instance().getHostMessenger().getZK(), statistics);
+        } catch (Exception e) {
+            HOST_LOG.warn("Unable to save planner statistics for hosts that join later", e);
+        }
+
+        final long duration = System.currentTimeMillis() - startTime;
+        HOST_LOG.info("Analyzing statistics for " + statistics.getTables().size() +
+                      " tables took " + duration + " milliseconds");
+        return new VoltTable[] { constructResultsTable(statistics) };
+    }
+}
@@ -34,11 +34,12 @@ import org.voltdb.catalog.Table;
 import org.voltdb.dtxn.DtxnConstants;
 
 /**
- * Given as input a VoltTable with a schema corresponding to a persistent table,
- * partition the rows and insert into the appropriate persistent table
- * partitions(s). This system procedure does not generate undo data. Any
- * intermediate failure, for example a constraint violation, will leave partial
- * and inconsistent data in the persistent store.
+ * Given as input a VoltTable with a schema corresponding to a persistent
+ * replicated table, insert the rows into every copy of the table. When the
+ * input's column types match the table, each site loads the serialized table
+ * directly in the EE; otherwise the rows are inserted one at a time. The load
+ * generates undo data, so any failure, for example a constraint violation,
+ * rolls back the whole load.
  */
 @ProcInfo(singlePartition = false)
 public class LoadMultipartitionTable extends VoltSystemProcedure
@@ -78,11 +79,12 @@ public class LoadMultipartitionTable extends VoltSystemProcedure
             result.addRow(currentPartition);
 
             try {
-                // voltLoadTable is void. Assume success or exception.
-                voltLoadTable(context.getCluster().getTypeName(),
-                                    context.getDatabase().getTypeName(),
-                                    tableName,
-                                    toInsert, false);
+                // Assume success or exception. Undo lets a failure at any site
+                // roll back the copies already loaded elsewhere.
+                m_runner.voltLoadTable(context.getCluster().getTypeName(),
+                                       context.getDatabase().getTypeName(),
+                                       tableName,
+                                       toInsert, false, true);
                 // return the number of rows inserted
                 result.addRow(toInsert.getRowCount());
             }
@@ -95,32 +97,31 @@ public class LoadMultipartitionTable extends VoltSystemProcedure
             return new DependencyPair(DEP_distribute, result);
 
         } else if (fragmentId == SysProcFragmentId.PF_aggregate) {
-            long[] modifiedTuples = new long[context.getNumberOfPartitions()];
             List<VoltTable> deps = dependencies.get(DEP_distribute);
             assert(deps.size() > 0);
 
-            // go through all the deps and find one mod tuple count per partition
+            // every partition loaded its own copy of the replicated table,
+            // so they must all report the same count
+            long rowsModified = -1;
             for (VoltTable t : deps) {
                 t.advanceRow();
                 int partitionId = (int) t.getLong(0);
                 t.advanceRow();
-                long rowsModified = t.getLong(0);
+                long partitionRows = t.getLong(0);
 
-                if (modifiedTuples[partitionId] == 0) {
-                    modifiedTuples[partitionId] = rowsModified;
+                if (partitionRows == -1) {
+                    throw new VoltAbortException(
+                            "@LoadMultipartitionTable failed to load the table at partition " + partitionId);
                 }
-                else {
-                    if (modifiedTuples[partitionId] != rowsModified)
-                        throw new RuntimeException(
-                                "@LoadMultipartitionTable received different tuple mod counts from two replicas.");
+                if (rowsModified == -1) {
+                    rowsModified = partitionRows;
+                }
+                else if (rowsModified != partitionRows) {
+                    throw new VoltAbortException(
+                            "@LoadMultipartitionTable received different tuple mod counts from two partitions.");
                 }
             }
 
-            // sum up all the modified rows from all partitions
-            long rowsModified = 0;
-            for (long l : modifiedTuples)
-                rowsModified += l;
-
             result.addRow(rowsModified);
             return new DependencyPair(DEP_aggregate, result);
         }
@@ -159,6 +160,11 @@ public class LoadMultipartitionTable extends VoltSystemProcedure
         // fix any case problems
         tableName = catTable.getTypeName();
 
+        if (catTable.getIsreplicated() && m_runner.getHsqlBackendIfExists() == null &&
+                LoadSinglepartitionTable.canLoadDirectly(ctx.getDatabase(), catTable, table)) {
+            return loadReplicatedTable(tableName, table);
+        }
+
         // check that the schema of the input matches
         int columnCount = table.getColumnCount();
 
@@ -220,6 +226,31 @@ public class LoadMultipartitionTable extends VoltSystemProcedure
         }
     }
 
+    /**
+     * Send the table to every site to load into its copy of the replicated
+     * table, and check that they all loaded the same number of rows.
+     */
+    long loadReplicatedTable(String tableName, VoltTable table) {
+        SynthesizedPlanFragment pfs[] = new SynthesizedPlanFragment[2];
+
+        pfs[0] = new SynthesizedPlanFragment();
+        pfs[0].fragmentId = SysProcFragmentId.PF_distribute;
+        pfs[0].outputDepId = DEP_distribute;
+        pfs[0].inputDepIds = new int[] {};
+        pfs[0].multipartition = true;
+        pfs[0].parameters = ParameterSet.fromArrayNoCopy(tableName, table);
+
+        pfs[1] = new SynthesizedPlanFragment();
+        pfs[1].fragmentId = SysProcFragmentId.PF_aggregate;
+        pfs[1].outputDepId = DEP_aggregate;
+        pfs[1].inputDepIds = new int[] { DEP_distribute };
+        pfs[1].multipartition = false;
+        pfs[1].parameters = ParameterSet.emptyParameterSet();
+
+        VoltTable results[] = executeSysProcPlanFragments(pfs, DEP_aggregate);
+        return results[0].asScalarLong();
+    }
+
     /**
      * Execute a set of queued inserts. Ensure each insert successfully
      * inserts one row. Throw exception if not.
@@ -25,17 +25,27 @@ import org.voltdb.ParameterSet;
 import org.voltdb.ProcInfo;
 import org.voltdb.SQLStmt;
 import org.voltdb.SystemProcedureExecutionContext;
+import org.voltdb.TheHashinator;
 import org.voltdb.VoltSystemProcedure;
 import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.catalog.CatalogMap;
 import org.voltdb.catalog.Column;
+import org.voltdb.catalog.Database;
 import org.voltdb.catalog.Procedure;
 import org.voltdb.catalog.Statement;
 import org.voltdb.catalog.Table;
+import org.voltdb.utils.CatalogUtil;
 
 /**
  * Given as input a VoltTable with a schema corresponding to a persistent table,
  * insert into the appropriate persistent table. Should be faster than using
  * the auto-generated CRUD procs for batch inserts. Also a bit more generic.
+ *
+ * When the input's column types match the table exactly and every row belongs
+ * to this partition, the serialized table is handed to the EE in one call.
+ * Otherwise each row is inserted with the table's insert statement. Either way
+ * the load is undone if any row fails.
  */
 @ProcInfo(
     partitionInfo = "DUMMY: 0", // partitioning is done special for this class
@@ -92,6 +102,16 @@ public class LoadSinglepartitionTable extends VoltSystemProcedure
         // fix any case problems
         tableName = catTable.getTypeName();
 
+        // the HSQL backend has no EE to load the table into
+        if (m_runner.getHsqlBackendIfExists() == null &&
+                canLoadDirectly(ctx.getDatabase(), catTable, table) &&
+                rowsBelongToPartition(catTable, table, ctx.getPartitionId())) {
+            m_runner.voltLoadTable(ctx.getCluster().getTypeName(),
+                                   ctx.getDatabase().getTypeName(),
+                                   tableName, table, false, true);
+            return table.getRowCount();
+        }
+
         // check that the schema of the input matches
         int columnCount = table.getColumnCount();
 
@@ -170,6 +190,44 @@ public class LoadSinglepartitionTable extends VoltSystemProcedure
         return count;
     }
 
+    /**
+     * True if the rows of the input can be loaded into the table as they are
+     * serialized, i.e. the columns have the catalog's types in catalog order.
+     * Export tables don't keep loaded rows, so they always take the insert path.
+     */
+    static boolean canLoadDirectly(Database db, Table catTable, VoltTable table) {
+        if (CatalogUtil.isTableExportOnly(db, catTable)) {
+            return false;
+        }
+        CatalogMap<Column> columns = catTable.getColumns();
+        if (table.getColumnCount() != columns.size()) {
+            return false;
+        }
+        for (Column col : columns) {
+            if (table.getColumnType(col.getIndex()) != VoltType.get((byte) col.getType())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The insert statement checks each row's partitioning and loading the
+     * table directly doesn't, so check the partition key of every row here.
+     */
+    static boolean rowsBelongToPartition(Table catTable, VoltTable table, int partitionId) {
+        int pIndex = catTable.getPartitioncolumn().getIndex();
+        VoltType pType = table.getColumnType(pIndex);
+        table.resetRowPosition();
+        while (table.advanceRow()) {
+            Object pvalue = table.get(pIndex, pType);
+            if (TheHashinator.getPartitionForParameter(pType.getValue(), pvalue) != partitionId) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Called by the client interface to partition this invocation based on parameters.
      *
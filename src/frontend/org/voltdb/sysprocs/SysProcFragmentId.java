@@ -183,4 +183,10 @@ public class SysProcFragmentId
 
     public static final long PF_matchesHashinator = 250;
     public static final long PF_matchesHashinatorResults = 251;
+
+    // @AnalyzeStatistics
+    public static final long PF_analyzeStatistics = 260;
+    public static final long PF_analyzeStatisticsResults = 261;
+    public static final long PF_installStatistics = 262;
+    public static final long PF_installStatisticsResults = 263;
 }
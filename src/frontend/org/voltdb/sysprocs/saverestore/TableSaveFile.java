@@ -24,9 +24,13 @@ import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.ArrayDeque;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.concurrent.Semaphore;
 import java.util.zip.Checksum;
 
@@ -39,9 +43,12 @@ import org.voltcore.TransactionIdManager;
 import org.voltcore.utils.DBBPool;
 import org.voltcore.utils.DBBPool.BBContainer;
 import org.voltdb.EELibraryLoader;
+import org.voltdb.SnapshotRestoreStats;
 import org.voltdb.messaging.FastDeserializer;
 import org.voltdb.utils.CompressionService;
 
+import com.google_voltpatches.common.util.concurrent.Futures;
+
 /**
  * An abstraction around a table's save file for restore.  Deserializes the
  * meta-data that was stored when the table was saved and makes it available
@@ -384,8 +391,21 @@ public class TableSaveFile
             }
         }
         synchronized (this) {
-            while (!m_availableChunks.isEmpty()) {
-                m_availableChunks.poll().discard();
+            /*
+             * Chunks still being decoded are writing into buffers, wait
+             * for them before the buffers are freed
+             */
+            Future<Container> f;
+            while ((f = m_availableChunks.poll()) != null) {
+                try {
+                    Container c = f.get();
+                    if (c != null) {
+                        c.discard();
+                    }
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                } catch (ExecutionException e) {
+                }
             }
             notifyAll();
         }
@@ -408,39 +428,63 @@ public class TableSaveFile
     }
 
     // Will get the next chunk of the table that is just over the chunk size
-    public synchronized BBContainer getNextChunk() throws IOException
+    public BBContainer getNextChunk() throws IOException
     {
-        if (m_chunkReaderException != null) {
-            throw m_chunkReaderException;
-        }
-        if (!m_hasMoreChunks) {
-            return m_availableChunks.poll();
-        }
+        while (true) {
+            Future<Container> next;
+            synchronized (this) {
+                if (m_chunkReaderException != null) {
+                    throw m_chunkReaderException;
+                }
 
-        if (m_chunkReader == null) {
-            m_chunkReader = new ChunkReader();
-            m_chunkReaderThread = new Thread(m_chunkReader, "ChunkReader");
-            m_chunkReaderThread.start();
-        }
+                if (m_chunkReader == null && m_hasMoreChunks) {
+                    m_chunkReader = new ChunkReader();
+                    m_chunkReaderThread = new Thread(m_chunkReader, "ChunkReader");
+                    m_chunkReaderThread.start();
+                }
 
-        Container c = null;
-        while (c == null && (m_hasMoreChunks || !m_availableChunks.isEmpty())) {
-            c = m_availableChunks.poll();
-            if (c == null) {
-                try {
-                    wait();
-                } catch (InterruptedException e) {
-                    throw new IOException(e);
+                while ((next = m_availableChunks.poll()) == null && m_hasMoreChunks) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        throw new IOException(e);
+                    }
+                    if (m_chunkReaderException != null) {
+                        throw m_chunkReaderException;
+                    }
+                }
+                if (next == null) {
+                    return null;
                 }
             }
-            if (m_chunkReaderException != null) {
-                throw m_chunkReaderException;
+
+            /*
+             * Wait for the chunk outside the lock so the reader can keep queueing
+             * chunks behind it. Chunks that turned out to be corrupt or for
+             * irrelevant partitions come back null and are skipped.
+             */
+            Container c;
+            try {
+                c = next.get();
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            } catch (ExecutionException e) {
+                IOException failure = e.getCause() instanceof IOException ?
+                        (IOException)e.getCause() : new IOException(e.getCause());
+                synchronized (this) {
+                    m_hasMoreChunks = false;
+                    m_chunkReaderException = failure;
+                    notifyAll();
+                }
+                // Let the reader see that it is done if it is waiting for a permit
+                m_chunkReads.release();
+                throw failure;
             }
-        }
-        if (c != null) {
             m_chunkReads.release();
+            if (c != null) {
+                return c;
+            }
         }
-        return c;
     }
 
     public synchronized boolean hasMoreChunks() throws IOException
@@ -466,9 +510,21 @@ public class TableSaveFile
     private final int m_totalPartitions;
     private final long m_txnId;
     private final long m_timestamp;
-    private boolean m_hasMoreChunks = true;
+    private volatile boolean m_hasMoreChunks = true;
     private ConcurrentLinkedQueue<Container> m_buffers = new ConcurrentLinkedQueue<Container>();
-    private final ArrayDeque<Container> m_availableChunks = new ArrayDeque<Container>();
+
+    /*
+     * Chunks in file order. Version 2 chunks are checked and decompressed on the
+     * CompressionService pool so several can be decoded at once, the older format
+     * is decoded by the reader and queued already done.
+     */
+    private final ArrayDeque<Future<Container>> m_availableChunks = new ArrayDeque<Future<Container>>();
+
+    /*
+     * Buffers holding the compressed bytes of version 2 chunks from the
+     * read until the decode is finished with them
+     */
+    private final ConcurrentLinkedQueue<ByteBuffer> m_compressedBuffers = new ConcurrentLinkedQueue<ByteBuffer>();
     private final HashSet<Integer> m_relevantPartitionIds;
     private final ChecksumType m_checksumType;
 
@@ -483,7 +539,7 @@ public class TableSaveFile
      * Maintain a list of corrupted partitions. It is possible for uncorrupted partitions
      * to be recovered from a save file in the future
      */
-    private final HashSet<Integer> m_corruptedPartitions = new HashSet<Integer>();
+    private final Set<Integer> m_corruptedPartitions = Collections.synchronizedSet(new HashSet<Integer>());
 
     /**
      * Ignore corrupted chunks and continue validation of the rest of the chunks.
@@ -509,9 +565,7 @@ public class TableSaveFile
          * that should be easier to understand and validate.
          */
         private void readChunksV2() {
-            //For reading the compressed input.
-            ByteBuffer fileInputBuffer =
-                    ByteBuffer.allocateDirect(CompressionService.maxCompressedLength(DEFAULT_CHUNKSIZE));
+            final int maxCompressedLength = CompressionService.maxCompressedLength(DEFAULT_CHUNKSIZE);
 
             while (m_hasMoreChunks) {
 
@@ -523,6 +577,9 @@ public class TableSaveFile
                 } catch (InterruptedException e) {
                     return;
                 }
+                if (!m_hasMoreChunks) {
+                    return;
+                }
                 boolean expectedAnotherChunk = false;
                 try {
 
@@ -575,17 +632,19 @@ public class TableSaveFile
                         throw new IOException("Corrupted TableSaveFile chunk has negative chunk length");
                     }
 
-                    if (nextChunkLength > fileInputBuffer.capacity()) {
+                    if (nextChunkLength > maxCompressedLength) {
                         throw new IOException("Corrupted TableSaveFile chunk has unreasonable length " +
                                 "> DEFAULT_CHUNKSIZE bytes");
                     }
 
                     /*
-                     * Go fetch the compressed data so that the uncompressed size is known
-                     * and use that to set nextChunkLength to be the uncompressed length,
-                     * the code ahead that constructs the volt table is expecting
-                     * the uncompressed size/data since it is producing an uncompressed table
+                     * Go fetch the compressed data. Checking and decompressing it is left to
+                     * the CompressionService pool so the next chunk can be read meanwhile.
                      */
+                    ByteBuffer fileInputBuffer = m_compressedBuffers.poll();
+                    if (fileInputBuffer == null) {
+                        fileInputBuffer = ByteBuffer.allocateDirect(maxCompressedLength);
+                    }
                     fileInputBuffer.clear();
                     fileInputBuffer.limit(nextChunkLength);
                     while (fileInputBuffer.hasRemaining()) {
@@ -595,80 +654,21 @@ public class TableSaveFile
                         }
                     }
                     fileInputBuffer.flip();
-                    nextChunkLength = CompressionService.uncompressedLength(fileInputBuffer);
-
-                    /*
-                     * Validate the rest of the chunk. This can fail if the data is corrupted
-                     * or the length value was corrupted.
-                     */
-                    final int calculatedCRC =
-                            DBBPool.getBufferCRC32C(fileInputBuffer, 0, fileInputBuffer.remaining());
-                    if (calculatedCRC != nextChunkCRC) {
-                        m_corruptedPartitions.add(nextChunkPartitionId);
-                        if (m_continueOnCorruptedChunk) {
-                            m_chunkReads.release();
-                            continue;
-                        } else {
-                            throw new IOException("CRC mismatch in saved table chunk");
-                        }
-                    }
 
-                    /*
-                     * Now allocate space to store the chunk using the VoltTable serialization representation.
-                     * The chunk will contain an integer row count preceding it so it can
-                     * be sucked straight in. There is a little funny business to overwrite the
-                     * partition id that is not part of the serialization format
-                     */
-                    Container c = getOutputBuffer(nextChunkPartitionId);
-
-                    /*
-                     * If the length value is wrong or not all data made it to disk this read will
-                     * not complete correctly. There could be overflow, underflow etc.
-                     * so use a try finally block to indicate that all partitions are now corrupt.
-                     * The enclosing exception handlers will do the right thing WRT to
-                     * propagating the error and closing the file.
-                     */
-                    boolean completedRead = false;
-                    try {
-                        /*
-                         * Assemble a VoltTable out of the chunk of tuples.
-                         * Put in the header that was cached in the constructor,
-                         * then copy the tuple data.
-                         */
-                        c.b.clear();
-                        c.b.limit(nextChunkLength  + m_tableHeader.capacity());
-                        m_tableHeader.position(0);
-                        c.b.put(m_tableHeader);
-                        //Doesn't move buffer position, does change the limit
-                        CompressionService.decompressBuffer(fileInputBuffer, c.b);
-                        completedRead = true;
-                    } finally {
-                        if (!completedRead) {
-                            for (int partitionId : m_partitionIds) {
-                                m_corruptedPartitions.add(partitionId);
+                    final ByteBuffer compressed = fileInputBuffer;
+                    Future<Container> chunk = CompressionService.submitCompressionTask(new Callable<Container>() {
+                        @Override
+                        public Container call() throws Exception {
+                            try {
+                                return decodeChunkV2(compressed, nextChunkPartitionId, nextChunkCRC);
+                            } finally {
+                                m_compressedBuffers.offer(compressed);
                             }
                         }
-                    }
-
-                    /*
-                     * Skip irrelevant chunks after CRC is calculated. Always calulate the CRC
-                     * in case it is the length value that is corrupted
-                     */
-                    if (m_relevantPartitionIds != null) {
-                        if (!m_relevantPartitionIds.contains(nextChunkPartitionId)) {
-                            c.discard();
-                            m_chunkReads.release();
-                            continue;
-                        }
-                    }
-
-                    /*
-                     * VoltTable wants the buffer at the home position 0
-                     */
-                    c.b.position(0);
+                    });
 
                     synchronized (TableSaveFile.this) {
-                        m_availableChunks.offer(c);
+                        m_availableChunks.offer(chunk);
                         TableSaveFile.this.notifyAll();
                     }
                 } catch (EOFException eof) {
@@ -708,6 +708,97 @@ public class TableSaveFile
             }
         }
 
+        /*
+         * Validate and decompress a version 2 chunk. Returns null if the chunk is
+         * to be skipped because it is corrupt and that is allowed, or because it
+         * belongs to an irrelevant partition.
+         */
+        private Container decodeChunkV2(ByteBuffer fileInputBuffer, int nextChunkPartitionId, int nextChunkCRC)
+                throws IOException {
+            final long start = System.nanoTime();
+            final int compressedLength = fileInputBuffer.remaining();
+
+            /*
+             * Validate the rest of the chunk. This can fail if the data is corrupted
+             * or the length value was corrupted.
+             */
+            final int calculatedCRC =
+                    DBBPool.getBufferCRC32C(fileInputBuffer, 0, fileInputBuffer.remaining());
+            if (calculatedCRC != nextChunkCRC) {
+                m_corruptedPartitions.add(nextChunkPartitionId);
+                if (m_continueOnCorruptedChunk) {
+                    return null;
+                } else {
+                    throw new IOException("CRC mismatch in saved table chunk");
+                }
+            }
+
+            /*
+             * The code ahead that constructs the volt table is expecting
+             * the uncompressed size/data since it is producing an uncompressed table
+             */
+            final int nextChunkLength = CompressionService.uncompressedLength(fileInputBuffer);
+
+            /*
+             * Now allocate space to store the chunk using the VoltTable serialization representation.
+             * The chunk will contain an integer row count preceding it so it can
+             * be sucked straight in. There is a little funny business to overwrite the
+             * partition id that is not part of the serialization format
+             */
+            Container c = getOutputBuffer(nextChunkPartitionId);
+
+            /*
+             * If the length value is wrong or not all data made it to disk this read will
+             * not complete correctly. There could be overflow, underflow etc.
+             * so use a try finally block to indicate that all partitions are now corrupt.
+             * The exception is handed to the caller of getNextChunk.
+             */
+            boolean completedRead = false;
+            try {
+                /*
+                 * Assemble a VoltTable out of the chunk of tuples.
+                 * Put in the header that was cached in the constructor,
+                 * then copy the tuple data. Other chunks are being decoded
+                 * at the same time so use a private view of the header.
+                 */
+                ByteBuffer tableHeader = m_tableHeader.duplicate();
+                tableHeader.position(0);
+                c.b.clear();
+                c.b.limit(nextChunkLength  + tableHeader.capacity());
+                c.b.put(tableHeader);
+                //Doesn't move buffer position, does change the limit
+                CompressionService.decompressBuffer(fileInputBuffer, c.b);
+                completedRead = true;
+            } finally {
+                if (!completedRead) {
+                    for (int partitionId : m_partitionIds) {
+                        m_corruptedPartitions.add(partitionId);
+                    }
+                    c.discard();
+                }
+            }
+
+            /*
+             * Skip irrelevant chunks after CRC is calculated. Always calulate the CRC
+             * in case it is the length value that is corrupted
+             */
+            if (m_relevantPartitionIds != null) {
+                if (!m_relevantPartitionIds.contains(nextChunkPartitionId)) {
+                    c.discard();
+                    return null;
+                }
+            }
+
+            /*
+             * VoltTable wants the buffer at the home position 0
+             */
+            c.b.position(0);
+
+            SnapshotRestoreStats.chunkDecoded(m_tableName, compressedLength, c.b.remaining(),
+                                              System.nanoTime() - start);
+            return c;
+        }
+
         private void readChunks() {
             //For reading the compressed input.
             ByteBuffer fileInputBuffer =
@@ -929,7 +1020,7 @@ public class TableSaveFile
                     }
 
                     synchronized (TableSaveFile.this) {
-                        m_availableChunks.offer(c);
+                        m_availableChunks.offer(Futures.immediateFuture(c));
                         TableSaveFile.this.notifyAll();
                     }
                 } catch (EOFException eof) {
@@ -987,6 +1078,7 @@ public class TableSaveFile
 
         @Override
         public void run() {
+            SnapshotRestoreStats.fileStarted(m_tableName);
             try {
                 if (m_hasVersion2FormatChunks) {
                     readChunksV2();
@@ -994,6 +1086,7 @@ public class TableSaveFile
                     readChunks();
                 }
             } finally {
+                SnapshotRestoreStats.fileFinished(m_tableName);
                 synchronized (TableSaveFile.this) {
                     m_hasMoreChunks = false;
                     TableSaveFile.this.notifyAll();
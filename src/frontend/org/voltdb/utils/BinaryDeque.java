@@ -37,6 +37,17 @@ public interface BinaryDeque {
      */
     public void offer(BBContainer object[]) throws IOException;
 
+    /**
+     * Store many buffer chains, each as a single object in the deque, in the order given.
+     * Cheaper than offering them one at a time because the objects can be written together.
+     * IOException may be thrown if any object is larger then the implementation defined max.
+     * If there is an exception attempting to write the buffers then all the buffers
+     * not yet stored will be discarded
+     * @param objects Array of buffer chains representing the objects to append to the tail of the queue
+     * @throws IOException
+     */
+    public void offer(BBContainer objects[][]) throws IOException;
+
     /**
      * A push creates a new file each time to be "the head" so it is more efficient to pass
      * in all the objects you want to push at once so that they can be packed into
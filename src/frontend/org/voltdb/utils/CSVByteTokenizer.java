@@ -0,0 +1,264 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.utils;
+
+import java.util.Arrays;
+
+import org.voltdb.ParameterConverter;
+import org.voltdb.VoltType;
+import org.voltdb.common.Constants;
+
+/**
+ * Splits a CSV line held in a byte array into fields and converts each field
+ * straight to its column's type. Integer columns are parsed from the bytes and
+ * string columns are copied out as UTF-8, so neither goes through a String;
+ * other types are converted from a String by ParameterConverter, as before.
+ *
+ * Quoting and escaping follow the SuperCSV tokenizer, and blank items, NULLs
+ * and whitespace are handled like CSVFileReader does, except that a quoted
+ * value can't span lines. One instance per thread; the fields of a line are
+ * only valid until the next call to tokenize().
+ */
+class CSVByteTokenizer {
+
+    private static final byte NULL_BYTES[] = "NULL".getBytes(Constants.UTF8ENCODING);
+    private static final byte CSV_NULL_BYTES[] = "\\N".getBytes(Constants.UTF8ENCODING);
+    private static final byte QUOTED_CSV_NULL_BYTES[] = "\"\\N\"".getBytes(Constants.UTF8ENCODING);
+
+    private final byte m_separator;
+    private final byte m_quote;
+    private final byte m_escape;
+    private final long m_columnSizeLimit;
+    private final boolean m_noWhitespace;
+    private final String m_blank;
+
+    // unescaped contents of the fields of the current line
+    private byte m_contents[] = new byte[4096];
+    private int m_fieldStart[] = new int[16];
+    private int m_fieldEnd[] = new int[16];
+    private boolean m_fieldBlank[] = new boolean[16];
+    private int m_fieldCount = 0;
+
+    CSVByteTokenizer(CSVLoader.CSVConfig config) {
+        m_separator = (byte) config.separator;
+        m_quote = (byte) config.quotechar;
+        m_escape = (byte) config.escape;
+        m_columnSizeLimit = config.columnsizelimit;
+        m_noWhitespace = config.nowhitespace;
+        m_blank = config.blank;
+    }
+
+    /**
+     * Split buf[start, end), a line without its terminator, into fields.
+     *
+     * @return null, or a message describing why the line can't be loaded
+     */
+    String tokenize(byte buf[], int start, int end, int columnCount) {
+        if (m_contents.length < end - start) {
+            m_contents = new byte[Math.max(end - start, m_contents.length * 2)];
+        }
+        m_fieldCount = 0;
+        int out = 0;
+        int fieldStart = 0;
+        boolean inQuotes = false;
+        boolean escaped = false;
+        for (int i = start; i < end; i++) {
+            final byte c = buf[i];
+            if (inQuotes) {
+                if (c == m_quote) {
+                    if (i + 1 < end && buf[i + 1] == m_quote) {
+                        // a doubled quote is a literal quote
+                        m_contents[out++] = c;
+                        i++;
+                    } else {
+                        inQuotes = false;
+                    }
+                } else {
+                    m_contents[out++] = c;
+                }
+            } else if (escaped) {
+                escaped = false;
+                m_contents[out++] = c;
+            } else if (c == m_escape && !(i + 1 < end && buf[i + 1] == 'N')) {
+                // \N is left alone so it can be recognized as null below
+                escaped = true;
+            } else if (c == m_separator) {
+                addField(fieldStart, out);
+                fieldStart = out;
+            } else if (c == m_quote) {
+                inQuotes = true;
+            } else {
+                m_contents[out++] = c;
+            }
+        }
+        if (inQuotes) {
+            return "Error: Unterminated quoted value. Values with line breaks can't be loaded with --readers.";
+        }
+        addField(fieldStart, out);
+
+        if (m_fieldCount != columnCount) {
+            return "Error: Incorrect number of columns. " + m_fieldCount
+                    + " found, " + columnCount + " expected.";
+        }
+        for (int i = 0; i < m_fieldCount; i++) {
+            String error = checkField(i);
+            if (error != null) {
+                return error;
+            }
+        }
+        return null;
+    }
+
+    private void addField(int start, int end) {
+        if (m_fieldCount == m_fieldStart.length) {
+            m_fieldStart = Arrays.copyOf(m_fieldStart, m_fieldCount * 2);
+            m_fieldEnd = Arrays.copyOf(m_fieldEnd, m_fieldCount * 2);
+            m_fieldBlank = Arrays.copyOf(m_fieldBlank, m_fieldCount * 2);
+        }
+        m_fieldStart[m_fieldCount] = start;
+        m_fieldEnd[m_fieldCount] = end;
+        m_fieldCount++;
+    }
+
+    /**
+     * Apply CSVFileReader's checks to a field: blank items, whitespace and the
+     * NULL markers. A field that is null afterwards has its end set to -1.
+     */
+    private String checkField(int field) {
+        int start = m_fieldStart[field];
+        int end = m_fieldEnd[field];
+        m_fieldBlank[field] = start == end;
+        if (end - start > m_columnSizeLimit) {
+            return "Error: Oversized column of " + (end - start) + " bytes.";
+        }
+        if (start == end) {
+            // an empty item, quoted or not, is blank
+            if (m_blank.equalsIgnoreCase("error")) {
+                return "Error: blank item";
+            }
+            // blank values for "empty" are filled in by convert()
+            return null;
+        }
+        if (m_noWhitespace && (m_contents[start] == ' ' || m_contents[end - 1] == ' ')) {
+            return "Error: White Space Detected in nowhitespace mode.";
+        }
+        // trim like String.trim()
+        while (start < end && (m_contents[start] & 0xff) <= ' ') {
+            start++;
+        }
+        while (end > start && (m_contents[end - 1] & 0xff) <= ' ') {
+            end--;
+        }
+        m_fieldStart[field] = start;
+        if (matches(start, end, NULL_BYTES) || matches(start, end, CSV_NULL_BYTES) ||
+                matches(start, end, QUOTED_CSV_NULL_BYTES)) {
+            end = -1;
+        }
+        m_fieldEnd[field] = end;
+        return null;
+    }
+
+    private boolean matches(int start, int end, byte value[]) {
+        if (end - start != value.length) {
+            return false;
+        }
+        for (int i = 0; i < value.length; i++) {
+            if (m_contents[start + i] != value[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Convert a field of the last line tokenized to a value VoltTable.addRow()
+     * accepts for the column type.
+     */
+    Object convert(int field, VoltType type) {
+        final int start = m_fieldStart[field];
+        final int end = m_fieldEnd[field];
+        if (end == -1) {
+            return null;
+        }
+        if (m_fieldBlank[field]) {
+            if (m_blank.equalsIgnoreCase("empty")) {
+                return ParameterConverter.tryToMakeCompatible(type.classFromType(),
+                                                              CSVFileReader.m_blankValues.get(type));
+            }
+            return null;
+        }
+        switch (type) {
+        case TINYINT:
+        case SMALLINT:
+        case INTEGER:
+        case BIGINT:
+            Object value = parseInteger(start, end, type);
+            if (value != null) {
+                return value;
+            }
+            // signs, separators or an overflow; let the usual conversion decide
+            break;
+        case STRING:
+            return Arrays.copyOfRange(m_contents, start, end);
+        default:
+            break;
+        }
+        return ParameterConverter.tryToMakeCompatible(type.classFromType(),
+                new String(m_contents, start, end - start, Constants.UTF8ENCODING));
+    }
+
+    /**
+     * Parse a plain decimal integer that fits the type, or return null.
+     */
+    private Object parseInteger(int start, int end, VoltType type) {
+        if (start == end) {
+            return null;
+        }
+        int i = start;
+        boolean negative = false;
+        if (m_contents[i] == '-' || m_contents[i] == '+') {
+            negative = m_contents[i] == '-';
+            i++;
+        }
+        // 18 digits can't overflow a long
+        if (i == end || end - i > 18) {
+            return null;
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = m_contents[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return null;
+            }
+            value = value * 10 + digit;
+        }
+        if (negative) {
+            value = -value;
+        }
+        switch (type) {
+        case TINYINT:
+            return (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) ? Byte.valueOf((byte) value) : null;
+        case SMALLINT:
+            return (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) ? Short.valueOf((short) value) : null;
+        case INTEGER:
+            return (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) ? Integer.valueOf((int) value) : null;
+        default:
+            return Long.valueOf(value);
+        }
+    }
+}
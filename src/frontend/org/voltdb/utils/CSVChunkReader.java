@@ -0,0 +1,541 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with VoltDB.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.voltdb.utils;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.voltcore.logging.VoltLogger;
+import org.voltdb.TheHashinator;
+import org.voltdb.VoltTable;
+import org.voltdb.client.Client;
+import org.voltdb.client.ClientImpl;
+import org.voltdb.client.ClientResponse;
+import org.voltdb.client.ProcedureCallback;
+import org.voltdb.common.Constants;
+
+/**
+ * Loads one chunk of a CSV file into a table. The file is split at line
+ * boundaries into as many chunks as there are readers and every reader parses
+ * its chunk with a CSVByteTokenizer, pre-partitions the rows on the client and
+ * sends a batch to @LoadSinglepartitionTable (or @LoadMultipartitionTable for a
+ * replicated table) whenever a partition has collected --batch rows. The
+ * client is used in blocking mode, so its backpressure throttles the readers.
+ *
+ * A batch that fails is retried one row at a time by a single retry thread,
+ * which reads the rows back from the file rather than keeping them around.
+ * Errors are kept per chunk and numbered once all chunks are done, because a
+ * chunk only knows its line numbers relative to its own start.
+ */
+class CSVChunkReader implements Runnable {
+
+    static CSVLoader.CSVConfig m_config;
+    static Client m_csvClient;
+    static FileChannel m_channel;
+    //Stop reading once any reader sees more than maxerrors errors.
+    static volatile boolean m_errored = false;
+    static final AtomicLong m_errorCount = new AtomicLong(0);
+    //Rows sent to the server, the same as the partition processors' m_partitionProcessedCount.
+    static final AtomicLong m_rowsSent = new AtomicLong(0);
+    static final int READ_BUFFER_SIZE = 4 * 1024 * 1024;
+    private static final VoltLogger m_log = new VoltLogger("CSVLOADER");
+
+    private static LinkedBlockingQueue<Batch> m_failedQueue;
+    private static final Batch m_endOfData = new Batch(null, 0, null);
+    //This is to keep track of when to report how many rows inserted, shared by all readers.
+    private static final AtomicLong m_lastMultiple = new AtomicLong(0);
+
+    private final long m_start;
+    private final long m_end;
+    private final CSVByteTokenizer m_tokenizer;
+    private final Object m_row[];
+    private Batch m_batches[];
+    //Lines seen in this chunk, blank ones included, and rows parsed from them.
+    private long m_lineCount = 0;
+    private long m_rowCount = 0;
+    //Errors found in this chunk, numbered relative to the chunk's first line.
+    private final List<LineError> m_errors = new ArrayList<LineError>();
+
+    /**
+     * The rows of one partition waiting to be sent, and where in the file they
+     * came from in case they have to be retried one by one.
+     */
+    private static class Batch {
+        final CSVChunkReader m_reader;
+        final VoltTable m_table;
+        final long m_offsets[];
+        final int m_lengths[];
+        final long m_lines[];
+        int m_size = 0;
+        Object m_partitionValue = null;
+
+        Batch(CSVChunkReader reader, int capacity, VoltTable table) {
+            m_reader = reader;
+            m_table = table;
+            m_offsets = new long[capacity];
+            m_lengths = new int[capacity];
+            m_lines = new long[capacity];
+        }
+
+        void add(long offset, int length, long line) {
+            m_offsets[m_size] = offset;
+            m_lengths[m_size] = length;
+            m_lines[m_size] = line;
+            m_size++;
+        }
+    }
+
+    private static class LineError {
+        final long m_line;
+        final String m_rawLine;
+        final String m_message;
+
+        LineError(long line, String rawLine, String message) {
+            m_line = line;
+            m_rawLine = rawLine;
+            m_message = message;
+        }
+    }
+
+    CSVChunkReader(long start, long end) {
+        m_start = start;
+        m_end = end;
+        m_tokenizer = new CSVByteTokenizer(m_config);
+        m_row = new Object[CSVPartitionProcessor.m_columnCnt];
+        m_batches = new Batch[Math.max(CSVPartitionProcessor.m_numProcessors, 1)];
+    }
+
+    /**
+     * Load the file with the given number of readers. CSVPartitionProcessor must
+     * have been initialized for the table. The counters CSVLoader reports from
+     * are filled in as if CSVFileReader had read the file.
+     *
+     * @return the number of rows sent to the server
+     */
+    static long load(CSVLoader.CSVConfig config, Client csvClient, int readers) throws Exception {
+        m_config = config;
+        m_csvClient = csvClient;
+        CSVFileReader.m_config = config;
+        ClientImpl clientImpl = (ClientImpl) csvClient;
+        int sleptTimes = 0;
+        while (!CSVPartitionProcessor.m_isMP && !clientImpl.isHashinatorInitialized() && sleptTimes < 120) {
+            Thread.sleep(500);
+            sleptTimes++;
+        }
+
+        RandomAccessFile file = new RandomAccessFile(config.file, "r");
+        try {
+            m_channel = file.getChannel();
+            long size = m_channel.size();
+            long dataStart = skipLines(config.skip);
+
+            //Split the file into roughly equal chunks, each ending after a newline.
+            long boundaries[] = new long[readers + 1];
+            boundaries[0] = dataStart;
+            for (int i = 1; i < readers; i++) {
+                long nominal = dataStart + (size - dataStart) * i / readers;
+                boundaries[i] = nominal <= dataStart ? dataStart : Math.max(boundaries[i - 1], nextLineStart(nominal));
+            }
+            boundaries[readers] = size;
+
+            m_failedQueue = new LinkedBlockingQueue<Batch>();
+            Thread retryThread = new Thread("CSVChunkReader retry") {
+                @Override
+                public void run() {
+                    retryFailedBatches();
+                }
+            };
+            retryThread.start();
+
+            List<CSVChunkReader> chunks = new ArrayList<CSVChunkReader>(readers);
+            List<Thread> threads = new ArrayList<Thread>(readers);
+            for (int i = 0; i < readers; i++) {
+                CSVChunkReader chunk = new CSVChunkReader(boundaries[i], boundaries[i + 1]);
+                chunks.add(chunk);
+                Thread th = new Thread(chunk);
+                th.setName("CSVChunkReader-" + i);
+                threads.add(th);
+                th.start();
+            }
+            for (Thread th : threads) {
+                th.join();
+            }
+
+            //All batches have been sent; wait for their callbacks to queue any failures, then retry them.
+            csvClient.drain();
+            m_failedQueue.put(m_endOfData);
+            retryThread.join();
+            csvClient.drain();
+
+            //Now that every chunk's line count is known, number the errors and report them.
+            long firstLine = config.skip;
+            long rows = 0;
+            for (CSVChunkReader chunk : chunks) {
+                synchronized (chunk.m_errors) {
+                    for (LineError error : chunk.m_errors) {
+                        String[] info = {error.m_rawLine, error.m_message};
+                        CSVFileReader.synchronizeErrorInfo(firstLine + error.m_line, info);
+                    }
+                }
+                firstLine += chunk.m_lineCount;
+                rows += chunk.m_rowCount;
+            }
+            if (m_errored) {
+                m_log.warn("The number of failed rows exceeds the configured maximum failed rows: "
+                        + config.maxerrors);
+            }
+            CSVFileReader.m_totalLineCount.set(firstLine);
+            CSVFileReader.m_totalRowCount.set(rows);
+            return m_rowsSent.get();
+        } finally {
+            file.close();
+            m_channel = null;
+        }
+    }
+
+    /**
+     * Reset the state shared by the readers, for tests that run CSVLoader.main() repeatedly.
+     */
+    static void reset() {
+        m_errored = false;
+        m_errorCount.set(0);
+        m_rowsSent.set(0);
+        m_lastMultiple.set(0);
+    }
+
+    /**
+     * @return the offset of the first line after skipping the given number of lines
+     */
+    private static long skipLines(long lines) throws IOException {
+        long offset = 0;
+        ByteBuffer buf = ByteBuffer.allocate(64 * 1024);
+        while (lines > 0) {
+            buf.clear();
+            int read = m_channel.read(buf, offset);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read && lines > 0; i++) {
+                offset++;
+                if (buf.get(i) == '\n') {
+                    lines--;
+                }
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * @return the offset just after the first newline at or after offset - 1
+     */
+    private static long nextLineStart(long offset) throws IOException {
+        long position = offset - 1;
+        ByteBuffer buf = ByteBuffer.allocate(64 * 1024);
+        while (true) {
+            buf.clear();
+            int read = m_channel.read(buf, position);
+            if (read <= 0) {
+                return m_channel.size();
+            }
+            for (int i = 0; i < read; i++) {
+                if (buf.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            readChunk();
+            //Send whatever is left over.
+            for (int i = 0; i < m_batches.length; i++) {
+                if (m_batches[i] != null && m_batches[i].m_size > 0) {
+                    submit(i);
+                }
+            }
+        } catch (Exception ex) {
+            m_errored = true;
+            m_log.error("Failed to load CSV data: " + ex);
+        } finally {
+            CSVLoader.countThreadAllocation();
+        }
+    }
+
+    private void readChunk() throws IOException {
+        byte buf[] = new byte[(int) Math.min(READ_BUFFER_SIZE, Math.max(m_end - m_start, 1))];
+        long bufOffset = m_start; //file offset of buf[0]
+        int length = 0;
+        int scanned = 0;
+        long position = m_start;
+        while (!m_errored) {
+            ByteBuffer bb = ByteBuffer.wrap(buf, length, (int) Math.min(buf.length - length, m_end - position));
+            boolean eof = false;
+            while (bb.hasRemaining()) {
+                int read = m_channel.read(bb, position);
+                if (read < 0) {
+                    eof = true;
+                    break;
+                }
+                position += read;
+            }
+            length = bb.position();
+            eof |= position >= m_end;
+
+            int lineStart = 0;
+            for (int i = scanned; i < length && !m_errored; i++) {
+                if (buf[i] == '\n') {
+                    processLine(buf, lineStart, i, bufOffset + lineStart);
+                    lineStart = i + 1;
+                }
+            }
+            if (eof) {
+                if (lineStart < length && !m_errored) {
+                    processLine(buf, lineStart, length, bufOffset + lineStart);
+                }
+                return;
+            }
+            if (lineStart == 0 && length == buf.length) {
+                //A line longer than the buffer.
+                buf = Arrays.copyOf(buf, buf.length * 2);
+            } else {
+                System.arraycopy(buf, lineStart, buf, 0, length - lineStart);
+                length -= lineStart;
+                bufOffset += lineStart;
+            }
+            scanned = length;
+        }
+    }
+
+    private void processLine(byte buf[], int start, int end, long offset) {
+        long line = ++m_lineCount;
+        if (end > start && buf[end - 1] == '\r') {
+            end--;
+        }
+        //Like SuperCSV, skip empty lines.
+        if (end == start) {
+            return;
+        }
+        m_rowCount++;
+
+        String error = m_tokenizer.tokenize(buf, start, end, CSVPartitionProcessor.m_columnCnt);
+        if (error != null) {
+            recordError(line, new String(buf, start, end - start, Constants.UTF8ENCODING), error);
+            return;
+        }
+        int partition = 0;
+        try {
+            for (int i = 0; i < m_row.length; i++) {
+                m_row[i] = m_tokenizer.convert(i, CSVPartitionProcessor.m_columnTypes.get(i));
+            }
+            if (!CSVPartitionProcessor.m_isMP) {
+                partition = (int) ((ClientImpl) m_csvClient).getPartitionForParameter(
+                        CSVPartitionProcessor.m_partitionColumnType.getValue(),
+                        m_row[CSVPartitionProcessor.m_partitionedColumnIndex]);
+                if (partition < 0) {
+                    recordError(line, new String(buf, start, end - start, Constants.UTF8ENCODING),
+                            "Topology changed.");
+                    return;
+                }
+            }
+            if (partition >= m_batches.length) {
+                m_batches = Arrays.copyOf(m_batches, partition + 1);
+            }
+            if (m_batches[partition] == null) {
+                m_batches[partition] = new Batch(this, m_config.batch,
+                        new VoltTable(CSVPartitionProcessor.m_colInfo));
+            }
+            Batch batch = m_batches[partition];
+            batch.m_table.addRow(m_row);
+            if (batch.m_size == 0 && !CSVPartitionProcessor.m_isMP) {
+                batch.m_partitionValue = m_row[CSVPartitionProcessor.m_partitionedColumnIndex];
+            }
+            batch.add(offset, end - start, line);
+        } catch (Exception ex) {
+            //Failed to convert or add the row, e.g. a value of the wrong type or a row that is too large.
+            recordError(line, new String(buf, start, end - start, Constants.UTF8ENCODING), ex.toString());
+            return;
+        }
+        if (m_batches[partition].m_size >= m_config.batch) {
+            submit(partition);
+        }
+    }
+
+    /**
+     * Send a partition's batch. The table is serialized by callProcedure, so
+     * it can be cleared and reused for the next batch.
+     */
+    private void submit(int partition) {
+        Batch sent = m_batches[partition];
+        VoltTable table = sent.m_table;
+        m_batches[partition] = new Batch(this, m_config.batch, table);
+        try {
+            BatchCallback cb = new BatchCallback(sent);
+            boolean success;
+            if (!CSVPartitionProcessor.m_isMP) {
+                success = m_csvClient.callProcedure(cb, "@LoadSinglepartitionTable",
+                        TheHashinator.valueToBytes(sent.m_partitionValue),
+                        CSVPartitionProcessor.m_tableName, table);
+            } else {
+                success = m_csvClient.callProcedure(cb, "@LoadMultipartitionTable",
+                        CSVPartitionProcessor.m_tableName, table);
+            }
+            if (!success) {
+                //We failed to send work to cluster lets exit.
+                m_log.fatal("Failed to send CSV insert to VoltDB cluster.");
+                System.exit(1);
+            }
+            m_rowsSent.addAndGet(sent.m_size);
+        } catch (IOException ex) {
+            //We lost network.
+            for (int i = 0; i < sent.m_size; i++) {
+                recordError(sent.m_lines[i], "", ex.toString());
+            }
+            m_errored = true;
+        } finally {
+            table.clearRowData();
+        }
+    }
+
+    private void recordError(long line, String rawLine, String message) {
+        synchronized (m_errors) {
+            m_errors.add(new LineError(line, rawLine, message));
+        }
+        if (m_errorCount.incrementAndGet() > m_config.maxerrors) {
+            m_errored = true;
+        }
+    }
+
+    private static void reportInserted(long executed) {
+        long currentCount = CSVPartitionProcessor.m_partitionAcknowledgedCount.addAndGet(executed);
+        long newMultiple = currentCount / CSVPartitionProcessor.m_reportEveryNRows;
+        if (newMultiple != m_lastMultiple.get()) {
+            m_lastMultiple.set(newMultiple);
+            m_log.info("Inserted " + currentCount + " rows");
+        }
+    }
+
+    // Callback for a batch. On failure the batch is queued to be retried one row at a time.
+    private static class BatchCallback implements ProcedureCallback {
+        private final Batch m_batch;
+
+        BatchCallback(Batch batch) {
+            m_batch = batch;
+        }
+
+        @Override
+        public void clientCallback(ClientResponse response) throws Exception {
+            if (response.getStatus() != ClientResponse.SUCCESS) {
+                m_log.info("Unable to insert rows in a batch.  Attempting to insert them one-by-one.");
+                m_log.info("Note: this will result in reduced insertion performance.");
+                m_log.debug("Batch Failed Will be processed by Failure Processor: " + response.getStatusString());
+                m_rowsSent.addAndGet(-m_batch.m_size);
+                if (!m_errored) {
+                    m_failedQueue.add(m_batch);
+                }
+                return;
+            }
+            reportInserted(response.getResults()[0].asScalarLong());
+        }
+    }
+
+    // Callback for a row of a failed batch.
+    private static class RowCallback implements ProcedureCallback {
+        private final CSVChunkReader m_reader;
+        private final long m_line;
+        private final String m_rawLine;
+
+        RowCallback(CSVChunkReader reader, long line, String rawLine) {
+            m_reader = reader;
+            m_line = line;
+            m_rawLine = rawLine;
+        }
+
+        @Override
+        public void clientCallback(ClientResponse response) throws Exception {
+            if (response.getStatus() != ClientResponse.SUCCESS) {
+                m_log.error(response.getStatusString());
+                m_reader.recordError(m_line, m_rawLine, response.getStatusString());
+                return;
+            }
+            reportInserted(response.getResults()[0].asScalarLong());
+        }
+    }
+
+    /**
+     * Retry the rows of failed batches one at a time until m_endOfData is
+     * queued, reading each row back from the file.
+     */
+    private static void retryFailedBatches() {
+        CSVByteTokenizer tokenizer = new CSVByteTokenizer(m_config);
+        Object row[] = new Object[CSVPartitionProcessor.m_columnCnt];
+        VoltTable table = new VoltTable(CSVPartitionProcessor.m_colInfo);
+        String procName = CSVPartitionProcessor.m_isMP ? "@LoadMultipartitionTable" : "@LoadSinglepartitionTable";
+        try {
+            while (true) {
+                Batch batch = m_failedQueue.take();
+                if (batch == m_endOfData) {
+                    break;
+                }
+                for (int i = 0; i < batch.m_size && !m_errored; i++) {
+                    ByteBuffer bytes = ByteBuffer.allocate(batch.m_lengths[i]);
+                    while (bytes.hasRemaining()) {
+                        if (m_channel.read(bytes, batch.m_offsets[i] + bytes.position()) < 0) {
+                            break;
+                        }
+                    }
+                    String rawLine = new String(bytes.array(), Constants.UTF8ENCODING);
+                    //The row was parsed once already, so this can't fail.
+                    tokenizer.tokenize(bytes.array(), 0, batch.m_lengths[i], row.length);
+                    table.clearRowData();
+                    for (int j = 0; j < row.length; j++) {
+                        row[j] = tokenizer.convert(j, CSVPartitionProcessor.m_columnTypes.get(j));
+                    }
+                    table.addRow(row);
+                    RowCallback cb = new RowCallback(batch.m_reader, batch.m_lines[i], rawLine);
+                    boolean success;
+                    if (!CSVPartitionProcessor.m_isMP) {
+                        Object partitionParam =
+                                TheHashinator.valueToBytes(row[CSVPartitionProcessor.m_partitionedColumnIndex]);
+                        success = m_csvClient.callProcedure(cb, procName, partitionParam,
+                                CSVPartitionProcessor.m_tableName, table);
+                    } else {
+                        success = m_csvClient.callProcedure(cb, procName, CSVPartitionProcessor.m_tableName, table);
+                    }
+                    if (success) {
+                        m_rowsSent.incrementAndGet();
+                    }
+                }
+            }
+        } catch (Exception ex) {
+            m_log.warn("Fallback to single row inserts failed, failures will not be processed: " + ex);
+            m_errored = true;
+        } finally {
+            CSVLoader.countThreadAllocation();
+        }
+    }
+}
@@ -52,7 +52,7 @@ class CSVFileReader implements Runnable {
     static CSVLineWithMetaData m_endOfData;
     static boolean m_errored = false;
     long m_parsingTime = 0;
-    private static final Map<VoltType, String> m_blankValues = new EnumMap<VoltType, String>(VoltType.class);
+    static final Map<VoltType, String> m_blankValues = new EnumMap<VoltType, String>(VoltType.class);
     private static final VoltLogger m_log = new VoltLogger("CSVLOADER");
 
     static {
@@ -192,6 +192,7 @@ class CSVFileReader implements Runnable {
             }
             m_log.debug("Rows Queued by Reader: " + m_totalRowCount.get());
         }
+        CSVLoader.countThreadAllocation();
 
         //Now wait for processors to see endOfData and count down. After that drain to finish all callbacks
         try {
@@ -24,6 +24,7 @@ import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -53,6 +54,9 @@ import org.voltdb.client.ClientFactory;
  * For multi-partitioned data it uses a single processor which call
  * @LoadMultipartitionTable
  *
+ * With --readers the file is instead split into chunks that are parsed in parallel, see
+ * CSVChunkReader.
+ *
  * The maxerror indicates maximum number of errors it can tolerate.
  * Its a threshold but since processors are processing in parallel we may process rows beyond
  * maxerror and additional errors may occur. Only first maxerror indicated errors will be reported.
@@ -82,6 +86,8 @@ public class CSVLoader {
     private static BufferedWriter out_reportfile;
     private static String insertProcedure = "";
     private static CsvPreference csvPreference = null;
+    //Bytes allocated by the threads that read, parse and send rows.
+    private static final AtomicLong allocatedBytes = new AtomicLong(0);
     /**
      * default CSV separator
      */
@@ -177,6 +183,10 @@ public class CSVLoader {
         @Option(desc = "Batch Size for processing.")
         public int batch = 200;
 
+        @Option(desc = "number of threads to read and parse the file in parallel; "
+                + "quoted values can't span lines (default: 0, a single reader)")
+        int readers = 0;
+
         /**
          * Table name to insert CSV data into.
          */
@@ -208,6 +218,9 @@ public class CSVLoader {
             if (batch < 0) {
                 exitWithMessageAndUsage("batch size number must be >= 0");
             }
+            if (readers < 0) {
+                exitWithMessageAndUsage("readers must be >= 0");
+            }
             if ((blank.equalsIgnoreCase("error")
                     || blank.equalsIgnoreCase("null")
                     || blank.equalsIgnoreCase("empty")) == false) {
@@ -289,6 +302,23 @@ public class CSVLoader {
                 System.exit(-1);
             }
 
+            if (usePipelinedReaders()) {
+                listReader.close();
+                long insertCount = CSVChunkReader.load(config, csvClient, config.readers);
+                csvClient.drain();
+                csvClient.close();
+                long ackCount = CSVPartitionProcessor.m_partitionAcknowledgedCount.get();
+                m_log.info("Read " + insertCount + " rows from file and successfully inserted "
+                        + ackCount + " rows (final)");
+                produceFiles(ackCount, insertCount);
+                boolean noerrors = CSVFileReader.m_errorInfo.isEmpty();
+                close_cleanup();
+                if (!CSVLoader.testMode) {
+                    System.exit(noerrors ? 0 : -1);
+                }
+                return;
+            }
+
             //Create launch processor threads. If Multipartitioned only 1 processor is launched.
             List<Thread> spawned = new ArrayList<Thread>(CSVPartitionProcessor.m_numProcessors);
             CSVLineWithMetaData endOfData = new CSVLineWithMetaData(null, null, -1);
@@ -364,6 +394,41 @@ public class CSVLoader {
         }
     }
 
+    /**
+     * The parallel readers need a file they can split and load whole tables;
+     * anything else is read by CSVFileReader.
+     */
+    private static boolean usePipelinedReaders() {
+        if (config.readers == 0) {
+            return false;
+        }
+        if (standin || config.useSuppliedProcedure || config.strictquotes
+                || config.limitrows != Integer.MAX_VALUE) {
+            m_log.warn("--readers can't be used with stdin, -p, --strictquotes or --limitrows. "
+                    + "Reading with a single reader.");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Add the bytes the calling thread has allocated to the total reported
+     * per row. Call this as a thread that handles rows finishes.
+     */
+    static void countThreadAllocation() {
+        try {
+            java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean) {
+                allocatedBytes.addAndGet(((com.sun.management.ThreadMXBean) bean)
+                        .getThreadAllocatedBytes(Thread.currentThread().getId()));
+            }
+        } catch (LinkageError e) {
+            // not a HotSpot JVM, there's nothing to report
+        } catch (UnsupportedOperationException e) {
+            // allocation accounting is not supported
+        }
+    }
+
     private static void configuration() {
         csvPreference = new CsvPreference.Builder(config.quotechar, config.separator, "\n").build();
         if (config.file.equals("")) {
@@ -479,6 +544,11 @@ public class CSVLoader {
                     + errorInfo.size() + "\n");
             out_reportfile.write("CSVLoader rate: " + insertCount
                     / elapsedTimeSec + " row/s\n");
+            if (allocatedBytes.get() > 0 && CSVFileReader.m_totalRowCount.get() > 0) {
+                long perRow = allocatedBytes.get() / CSVFileReader.m_totalRowCount.get();
+                m_log.info("Allocated " + perRow + " bytes per row");
+                out_reportfile.write("CSVLoader allocation: " + perRow + " bytes/row\n");
+            }
 
             m_log.info("Invalid row file: " + pathInvalidrowfile);
             m_log.info("Log file: " + pathLogfile);
@@ -507,6 +577,8 @@ public class CSVLoader {
         CSVFileReader.m_totalRowCount = new AtomicLong(0);
 
         CSVPartitionProcessor.m_partitionAcknowledgedCount = new AtomicLong(0);
+        CSVChunkReader.reset();
+        allocatedBytes.set(0);
         out_invaliderowfile.close();
         out_logfile.close();
         out_reportfile.close();
@@ -301,6 +301,7 @@ class CSVPartitionProcessor implements Runnable {
                     break;
                 }
             }
+            CSVLoader.countThreadAllocation();
         }
     }
     //This is to keep track of when to report how many rows inserted, shared by all processors.
@@ -540,6 +541,7 @@ class CSVPartitionProcessor implements Runnable {
             CSVFileReader.m_errored = true;
             m_log.error("Failed to process partitioned data: " + ex);
         } finally {
+            CSVLoader.countThreadAllocation();
             CSVPartitionProcessor.m_processor_cdl.countDown();
             m_log.debug("Done Processing partition: " + m_partitionId + " Processed: " + m_partitionProcessedCount);
         }
@@ -725,6 +725,7 @@ public abstract class CatalogUtil {
             if (ttt != null)
             {
                 sb.append(ttt.getMaxsize()).append("\n");
+                sb.append(ttt.getSpillsize()).append("\n");
             }
         }
 
@@ -982,6 +983,7 @@ public abstract class CatalogUtil {
         Systemsettings syssettings =
             catDeployment.getSystemsettings().add("systemsettings");
         int maxtemptablesize = 100;
+        int temptablespillsize = 0;
         int snapshotpriority = 6;
         if (deployment.getSystemsettings() != null)
         {
@@ -989,6 +991,7 @@ public abstract class CatalogUtil {
             if (temptables != null)
             {
                 maxtemptablesize = temptables.getMaxsize();
+                temptablespillsize = temptables.getSpillsize();
             }
             SystemSettingsType.Snapshot snapshot = deployment.getSystemsettings().getSnapshot();
             if (snapshot != null) {
@@ -996,6 +999,7 @@ public abstract class CatalogUtil {
             }
         }
         syssettings.setMaxtemptablesize(maxtemptablesize);
+        syssettings.setTemptablespillsize(temptablespillsize);
         syssettings.setSnapshotpriority(snapshotpriority);
     }
 
@@ -1258,6 +1262,16 @@ public abstract class CatalogUtil {
                            "export_overflow");
         validateDirectory("export overflow", exportOverflowPath, crashOnFailedValidation);
 
+        path_entry = null;
+        if (paths != null)
+        {
+            path_entry = paths.getTempspill();
+        }
+        File tempSpillPath =
+            getFeaturePath(paths, path_entry, voltDbRoot, "temp table spill",
+                           "temp_spill");
+        validateDirectory("temp table spill", tempSpillPath, crashOnFailedValidation);
+
         // only use these directories in the enterprise version
         File commandLogPath = null;
         File commandLogSnapshotPath = null;
@@ -1311,6 +1325,9 @@ public abstract class CatalogUtil {
         //Also set the export overflow directory
         cluster.setExportoverflow(exportOverflowPath.getPath());
 
+        //And the directory large temp tables spill to
+        cluster.setTempspill(tempSpillPath.getAbsolutePath());
+
         //Set the command log paths, also creates the command log entry in the catalog
         final org.voltdb.catalog.CommandLog commandLogConfig = cluster.getLogconfig().add("log");
         commandLogConfig.setInternalsnapshotpath(commandLogSnapshotPath.getPath());
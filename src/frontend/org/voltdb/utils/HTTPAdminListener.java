@@ -156,6 +156,11 @@ public class HTTPAdminListener {
             AsyncContinuation cont = baseRequest.getAsyncContinuation();
             // this is set to false on internal jetty retrys
             if (!cont.isInitial()) {
+                // A procedure response resumed the request; encode and
+                // send it from this jetty thread.
+                if (httpClientInterface.sendResponse(baseRequest, response)) {
+                    return;
+                }
                 // The continuation object has been woken up by the
                 // retry. Tell it to go back to sleep.
                 cont.suspend();
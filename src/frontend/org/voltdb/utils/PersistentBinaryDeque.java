@@ -93,6 +93,9 @@ public class PersistentBinaryDeque implements BinaryDeque {
 
         private final ByteBuffer m_bufferForNumEntries = ByteBuffer.allocateDirect(4);
 
+        //Number of entries in the header, as last written by this segment
+        private int m_numEntriesWritten = 0;
+
         private int getNumEntries() throws IOException {
             if (m_fc == null) {
                 open();
@@ -119,24 +122,16 @@ public class PersistentBinaryDeque implements BinaryDeque {
             while (m_bufferForNumEntries.hasRemaining()) {
                 m_fc.write(m_bufferForNumEntries, 0);
             }
+            m_numEntriesWritten = 0;
             m_syncedSinceLastEdit = false;
         }
 
-        private void incrementNumEntries() throws IOException {
-            //First read the existing amount
+        private void incrementNumEntries(int count) throws IOException {
+            //The count is only ever changed through this segment while it is written,
+            //so the header can be written from memory without reading it back first
+            m_numEntriesWritten += count;
             m_bufferForNumEntries.clear();
-            while (m_bufferForNumEntries.hasRemaining()) {
-                int read = m_fc.read(m_bufferForNumEntries, 0);
-                if (read == -1) {
-                    throw new EOFException();
-                }
-            }
-            m_bufferForNumEntries.flip();
-
-            //Then write the incremented value
-            int numEntries = m_bufferForNumEntries.getInt();
-            m_bufferForNumEntries.flip();
-            m_bufferForNumEntries.putInt(++numEntries).flip();
+            m_bufferForNumEntries.putInt(m_numEntriesWritten).flip();
             while (m_bufferForNumEntries.hasRemaining()) {
                 m_fc.write(m_bufferForNumEntries, 0);
             }
@@ -144,7 +139,7 @@ public class PersistentBinaryDeque implements BinaryDeque {
 
             //For when this buffer is eventually finished and starts being polled
             //Stored on disk and in memory
-            m_discardsUntilDeletion++;
+            m_discardsUntilDeletion += count;
         }
 
         /**
@@ -168,6 +163,7 @@ public class PersistentBinaryDeque implements BinaryDeque {
             m_fc.position(4);
             if (m_fc.size() >= 4) {
                 m_discardsUntilDeletion = getNumEntries();
+                m_numEntriesWritten = m_discardsUntilDeletion;
             }
         }
 
@@ -299,41 +295,68 @@ public class PersistentBinaryDeque implements BinaryDeque {
         }
 
         private void offer(BBContainer objects[]) throws IOException {
-            int length = 0;
-            for (BBContainer obj : objects ) {
-                length += obj.b.remaining();
-            }
+            offer(new BBContainer[][] { objects }, 0, 1);
+        }
 
-            if (remaining() < length) {
-                throw new IOException(m_file + " has insufficient space");
-            }
+        /**
+         * Append count objects starting at offset with a single gathering write of their
+         * length prefixes and contents, followed by a single update of the entry count.
+         * All of the objects' buffers are discarded, whether or not the write succeeds.
+         */
+        private void offer(BBContainer objects[][], int offset, int count) throws IOException {
+            ByteBuffer buffers[] = null;
+            try {
+                int bufferCount = count;
+                int length = 0;
+                for (int ii = offset; ii < offset + count; ii++) {
+                    bufferCount += objects[ii].length;
+                    length += 4;
+                    for (BBContainer obj : objects[ii]) {
+                        length += obj.b.remaining();
+                    }
+                }
 
-            m_bufferForNumEntries.clear();
-            m_bufferForNumEntries.putInt(length).flip();
-            while (m_bufferForNumEntries.hasRemaining()) {
-                m_fc.write(m_bufferForNumEntries);
-            }
+                //remaining() already leaves room for one length prefix
+                if (remaining() + 4 < length) {
+                    throw new IOException(m_file + " has insufficient space");
+                }
 
-            int objectIndex = 0;
-            for (BBContainer obj : objects ) {
-                boolean success = false;
-                try {
-                    while (obj.b.hasRemaining()) {
-                        m_fc.write(obj.b);
+                ByteBuffer lengthPrefixes = ByteBuffer.allocate(4 * count);
+                buffers = new ByteBuffer[bufferCount];
+                int bufferIndex = 0;
+                for (int ii = 0; ii < count; ii++) {
+                    int objectLength = 0;
+                    for (BBContainer obj : objects[offset + ii]) {
+                        objectLength += obj.b.remaining();
                     }
-                    obj.discard();
-                    success = true;
-                    objectIndex++;
-                } finally {
-                    if (!success) {
-                        for (int ii = objectIndex; ii < objects.length; ii++) {
-                            objects[ii].discard();
-                        }
+                    lengthPrefixes.putInt(ii * 4, objectLength);
+                    ByteBuffer lengthPrefix = lengthPrefixes.duplicate();
+                    lengthPrefix.position(ii * 4);
+                    lengthPrefix.limit(ii * 4 + 4);
+                    buffers[bufferIndex++] = lengthPrefix;
+                    for (BBContainer obj : objects[offset + ii]) {
+                        buffers[bufferIndex++] = obj.b;
+                    }
+                }
+
+                //A gathering write may stop short, so pick up at the first unwritten buffer
+                long unwritten = length;
+                int firstUnwritten = 0;
+                while (unwritten > 0) {
+                    unwritten -= m_fc.write(buffers, firstUnwritten, buffers.length - firstUnwritten);
+                    while (firstUnwritten < buffers.length && !buffers[firstUnwritten].hasRemaining()) {
+                        firstUnwritten++;
+                    }
+                }
+                m_sizeInBytes.addAndGet(length);
+                incrementNumEntries(count);
+            } finally {
+                for (int ii = offset; ii < offset + count; ii++) {
+                    for (BBContainer obj : objects[ii]) {
+                        obj.discard();
                     }
                 }
             }
-            m_sizeInBytes.addAndGet(4 + length);
-            incrementNumEntries();
         }
 
         //A white lie, don't include the object count prefix
@@ -355,6 +378,12 @@ public class PersistentBinaryDeque implements BinaryDeque {
 
     private volatile boolean m_closed = false;
 
+    //Group commit thresholds, see setGroupCommit
+    private long m_groupCommitBytes = 0;
+    private long m_groupCommitIntervalMillis = 0;
+    private long m_bytesSinceSync = 0;
+    private long m_lastSyncTime = System.currentTimeMillis();
+
     /**
      * Create a persistent binary deque with the specified nonce and storage back at the specified path.
      * Existing files will
@@ -461,9 +490,91 @@ public class PersistentBinaryDeque implements BinaryDeque {
         }
 
         m_writeSegment.offer(objects);
+        groupCommit(4 + needed);
         assertions();
     }
 
+    @Override
+    public synchronized void offer(BBContainer[][] objects) throws IOException {
+        assertions();
+        if (m_writeSegment == null) {
+            throw new IOException("Closed");
+        }
+        long offered = 0;
+        for (BBContainer object[] : objects) {
+            int needed = 0;
+            for (BBContainer b : object) {
+                needed += b.b.remaining();
+            }
+            if (needed > DequeSegment.m_chunkSize - 4) {
+                throw new IOException("Maximum object size is " + (DequeSegment.m_chunkSize - 4));
+            }
+            offered += 4 + needed;
+        }
+
+        //Write each run of objects that fits in the current write segment together
+        int start = 0;
+        try {
+            while (start < objects.length) {
+                int available = m_writeSegment.remaining() + 4;
+                int end = start;
+                while (end < objects.length) {
+                    int needed = 4;
+                    for (BBContainer b : objects[end]) {
+                        needed += b.b.remaining();
+                    }
+                    if (needed > available) {
+                        break;
+                    }
+                    available -= needed;
+                    end++;
+                }
+
+                if (end == start) {
+                    openNewWriteSegment();
+                    continue;
+                }
+
+                int offset = start;
+                start = end;
+                m_writeSegment.offer(objects, offset, end - offset);
+            }
+        } finally {
+            //Discard whatever was not handed to a segment
+            for (int ii = start; ii < objects.length; ii++) {
+                for (BBContainer b : objects[ii]) {
+                    b.discard();
+                }
+            }
+        }
+        groupCommit(offered);
+        assertions();
+    }
+
+    /**
+     * Make offers sync the deque once maxUnsyncedBytes have been offered, or maxSyncIntervalMillis
+     * have passed, since the last sync, so that a stream of offers shares each fsync. The interval
+     * is only checked when an object is offered. Zero disables a threshold, and group commit is off
+     * until one is set. Explicit calls to sync() are unaffected.
+     */
+    public synchronized void setGroupCommit(long maxUnsyncedBytes, long maxSyncIntervalMillis) {
+        m_groupCommitBytes = maxUnsyncedBytes;
+        m_groupCommitIntervalMillis = maxSyncIntervalMillis;
+        m_lastSyncTime = System.currentTimeMillis();
+    }
+
+    private void groupCommit(long offeredBytes) throws IOException {
+        if (m_groupCommitBytes <= 0 && m_groupCommitIntervalMillis <= 0) {
+            return;
+        }
+        m_bytesSinceSync += offeredBytes;
+        if ((m_groupCommitBytes > 0 && m_bytesSinceSync >= m_groupCommitBytes) ||
+            (m_groupCommitIntervalMillis > 0 &&
+             System.currentTimeMillis() - m_lastSyncTime >= m_groupCommitIntervalMillis)) {
+            sync();
+        }
+    }
+
     @Override
     public synchronized void push(BBContainer[][] objects) throws IOException {
         assertions();
@@ -576,6 +687,8 @@ public class PersistentBinaryDeque implements BinaryDeque {
         for (DequeSegment segment : m_finishedSegments.values()) {
             segment.sync();
         }
+        m_bytesSinceSync = 0;
+        m_lastSyncTime = System.currentTimeMillis();
     }
 
     @Override
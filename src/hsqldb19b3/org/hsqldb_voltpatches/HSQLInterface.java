@@ -93,7 +93,7 @@ public class HSQLInterface {
      * @return A newly initialized in-memory HSQLDB instance accessible
      * through the returned instance of HSQLInterface
      */
-    public static HSQLInterface loadHsqldb() {
+    public static synchronized HSQLInterface loadHsqldb() {
         Session sessionProxy = null;
         String name = "hsqldbinstance-" + String.valueOf(instanceId) + "-" + String.valueOf(System.currentTimeMillis());
         instanceId++;
@@ -0,0 +1,91 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import org.voltcore.utils.DBBPool;
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltdb.utils.PersistentBinaryDeque;
+import org.voltdb.utils.VoltFile;
+
+/**
+ * Measures how many blocks per second can be offered to a PersistentBinaryDeque,
+ * the way export overflows to disk, one block at a time or in batches, with and
+ * without group commit.
+ *
+ * Usage: PBDBench [directory] [block bytes] [blocks] [batch size] [group commit bytes] [group commit ms]
+ */
+public class PBDBench {
+
+    public static void main(String[] args) throws Exception {
+        File dir = new File(args.length > 0 ? args[0] : "/tmp/pbdbench");
+        int blockSize = args.length > 1 ? Integer.parseInt(args[1]) : 64 * 1024;
+        int blocks = args.length > 2 ? Integer.parseInt(args[2]) : 20000;
+        int batchSize = args.length > 3 ? Integer.parseInt(args[3]) : 1;
+        long groupCommitBytes = args.length > 4 ? Long.parseLong(args[4]) : 0;
+        long groupCommitMillis = args.length > 5 ? Long.parseLong(args[5]) : 0;
+
+        ByteBuffer block = ByteBuffer.allocateDirect(blockSize);
+        while (block.hasRemaining()) {
+            block.put((byte)block.position());
+        }
+
+        // warm up, then measure
+        run(dir, block, Math.min(blocks, 2000), batchSize, groupCommitBytes, groupCommitMillis);
+        long start = System.nanoTime();
+        run(dir, block, blocks, batchSize, groupCommitBytes, groupCommitMillis);
+        long duration = System.nanoTime() - start;
+
+        System.out.printf("%d blocks of %d bytes, batches of %d, group commit %d bytes/%d ms: " +
+                          "%.0f blocks/sec, %.1f MB/sec%n",
+                          blocks, blockSize, batchSize, groupCommitBytes, groupCommitMillis,
+                          blocks * 1000000000.0 / duration,
+                          blocks * (double)blockSize * 1000.0 / duration);
+    }
+
+    static void run(File dir, ByteBuffer block, int blocks, int batchSize,
+                    long groupCommitBytes, long groupCommitMillis) throws Exception {
+        if (dir.exists()) {
+            VoltFile.recursivelyDelete(dir);
+        }
+        dir.mkdirs();
+
+        PersistentBinaryDeque pbd = new PersistentBinaryDeque("pbdbench", dir);
+        pbd.setGroupCommit(groupCommitBytes, groupCommitMillis);
+        for (int offered = 0; offered < blocks; offered += batchSize) {
+            int count = Math.min(batchSize, blocks - offered);
+            if (count == 1) {
+                pbd.offer(new BBContainer[] { DBBPool.wrapBB(block.duplicate()) });
+            } else {
+                BBContainer batch[][] = new BBContainer[count][];
+                for (int ii = 0; ii < count; ii++) {
+                    batch[ii] = new BBContainer[] { DBBPool.wrapBB(block.duplicate()) };
+                }
+                pbd.offer(batch);
+            }
+        }
+        pbd.sync();
+        pbd.closeAndDelete();
+    }
+}
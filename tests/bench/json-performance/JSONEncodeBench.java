@@ -0,0 +1,133 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+import java.io.BufferedWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+
+import org.json_voltpatches.JSONWriter;
+import org.voltdb.ClientResponseImpl;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.client.ClientResponse;
+
+/**
+ * Compares the two ways the HTTP/JSON interface can encode a procedure
+ * response: building the whole document with toJSONString() and printing it,
+ * or streaming it row by row through writeJSON() into the response writer.
+ * Reports responses/sec and bytes allocated per response for each, without a
+ * running server.
+ *
+ * Usage: JSONEncodeBench [rows per response] [responses]
+ */
+public class JSONEncodeBench {
+
+    /** Stands in for jetty's response writer: a fixed buffer that is drained when full. */
+    static class DrainingWriter extends Writer {
+        final char m_buffer[] = new char[32 * 1024];
+        int m_position = 0;
+        long m_written = 0;
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            while (len > 0) {
+                int count = Math.min(len, m_buffer.length - m_position);
+                System.arraycopy(cbuf, off, m_buffer, m_position, count);
+                m_position += count;
+                off += count;
+                len -= count;
+                if (m_position == m_buffer.length) {
+                    flush();
+                }
+            }
+        }
+
+        @Override
+        public void flush() {
+            m_written += m_position;
+            m_position = 0;
+        }
+
+        @Override
+        public void close() {
+            flush();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int responses = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+
+        VoltTable table = new VoltTable(
+                new VoltTable.ColumnInfo("ID", VoltType.BIGINT),
+                new VoltTable.ColumnInfo("NAME", VoltType.STRING),
+                new VoltTable.ColumnInfo("PRICE", VoltType.FLOAT),
+                new VoltTable.ColumnInfo("QTY", VoltType.INTEGER));
+        for (int ii = 0; ii < rows; ii++) {
+            table.addRow(ii, "item number " + ii, ii * 1.25, ii % 100);
+        }
+        ClientResponseImpl response =
+                new ClientResponseImpl(ClientResponse.SUCCESS, new VoltTable[] { table }, null);
+
+        // warm up both paths, then measure
+        run(response, false, responses);
+        run(response, true, responses);
+        report("toJSONString", response, false, rows, responses);
+        report("writeJSON", response, true, rows, responses);
+    }
+
+    static void report(String name, ClientResponseImpl response, boolean stream,
+                       int rows, int responses) throws Exception {
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        long chars = run(response, stream, responses);
+        long duration = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        System.out.printf("%-12s %d rows: %.0f responses/sec, %.1f MB/sec, %.0f KB allocated per response%n",
+                          name, rows, responses * 1000000000.0 / duration,
+                          chars * 1000.0 / duration, allocated / 1024.0 / responses);
+    }
+
+    static long run(ClientResponseImpl response, boolean stream, int responses) throws Exception {
+        DrainingWriter sink = new DrainingWriter();
+        PrintWriter writer = new PrintWriter(sink);
+        for (int ii = 0; ii < responses; ii++) {
+            if (stream) {
+                // as HTTPClientInterface.writeResponse does
+                BufferedWriter buffered = new BufferedWriter(writer, 8 * 1024);
+                response.writeJSON(new JSONWriter(buffered));
+                buffered.flush();
+            }
+            else {
+                writer.print(response.toJSONString());
+            }
+            writer.flush();
+        }
+        return sink.m_written;
+    }
+}
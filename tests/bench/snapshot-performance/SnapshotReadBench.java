@@ -0,0 +1,156 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.voltcore.utils.DBBPool;
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltdb.DefaultSnapshotDataTarget;
+import org.voltdb.EELibraryLoader;
+import org.voltdb.SnapshotSiteProcessor;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.sysprocs.saverestore.TableSaveFile;
+
+import com.google_voltpatches.common.util.concurrent.Callables;
+
+/**
+ * Measures the aggregate rate at which snapshot files can be read back and
+ * decoded through TableSaveFile, without a running server. The files are
+ * written first with DefaultSnapshotDataTarget, then each reader thread, standing
+ * in for a site restoring a table, takes the next file and pulls every chunk
+ * out of it, checking the contents. The files were just written so they are
+ * mostly in the page cache and the rate is that of checking and decompressing.
+ *
+ * Usage: SnapshotReadBench [dir] [readers] [tables] [MB per table] [read ahead chunks]
+ *
+ * Requires the VoltDB native library on java.library.path.
+ */
+public class SnapshotReadBench {
+
+    public static void main(String[] args) throws Exception {
+        EELibraryLoader.loadExecutionEngineLibrary(true);
+        File dir = new File(args.length > 0 ? args[0] : "/tmp/snapshotbench");
+        final int readers = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        final int tables = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        final long bytesPerTable = (args.length > 3 ? Long.parseLong(args[3]) : 128) * 1024 * 1024;
+        final int readAhead = args.length > 4 ? Integer.parseInt(args[4]) : 8;
+        dir.mkdirs();
+
+        // small BIGINT values, compresses about as well as typical tuple data
+        final byte chunk[] = new byte[SnapshotSiteProcessor.m_snapshotBufferLength - 4];
+        Random r = new Random(0);
+        for (int ii = 0; ii < chunk.length; ii += 8) {
+            chunk[ii] = (byte)r.nextInt();
+            chunk[ii + 1] = (byte)r.nextInt(16);
+        }
+
+        VoltTable schema = new VoltTable(new VoltTable.ColumnInfo("C", VoltType.BIGINT));
+        List<Integer> partitionIds = new ArrayList<Integer>();
+        partitionIds.add(0);
+        final ConcurrentLinkedQueue<File> files = new ConcurrentLinkedQueue<File>();
+        long onDisk = 0;
+        for (int ii = 0; ii < tables; ii++) {
+            File file = new File(dir, "SNAPSHOTBENCH-T" + ii + ".vpt");
+            files.add(file);
+            DefaultSnapshotDataTarget target = new DefaultSnapshotDataTarget(file, 0, "cluster", "database",
+                    "T" + ii, 1, false, partitionIds, schema, 0, System.currentTimeMillis());
+            ArrayDeque<Future<?>> outstanding = new ArrayDeque<Future<?>>();
+            for (long written = 0; written < bytesPerTable; written += chunk.length) {
+                BBContainer cont = DBBPool.allocateDirectAndPool(SnapshotSiteProcessor.m_snapshotBufferLength);
+                cont.b.clear();
+                cont.b.putInt(0);
+                cont.b.put(chunk);
+                cont.b.flip();
+                outstanding.add(target.write(Callables.returning(cont), 0));
+                if (outstanding.size() >= 8) {
+                    outstanding.poll().get();
+                }
+            }
+            for (Future<?> f : outstanding) {
+                f.get();
+            }
+            target.close();
+            onDisk += target.getBytesWritten();
+        }
+
+        final AtomicLong decoded = new AtomicLong();
+        final List<File> toDelete = new ArrayList<File>(files);
+        final long start = System.nanoTime();
+        Thread readerThreads[] = new Thread[readers];
+        for (int ii = 0; ii < readers; ii++) {
+            readerThreads[ii] = new Thread("Bench reader " + ii) {
+                @Override
+                public void run() {
+                    try {
+                        ByteBuffer expected = ByteBuffer.wrap(chunk);
+                        File file;
+                        while ((file = files.poll()) != null) {
+                            FileInputStream fis = new FileInputStream(file);
+                            TableSaveFile saveFile = new TableSaveFile(fis.getChannel(), readAhead, null);
+                            final int headerLength = saveFile.getTableHeader().capacity();
+                            BBContainer c;
+                            while ((c = saveFile.getNextChunk()) != null) {
+                                c.b.position(headerLength);
+                                if (!c.b.equals(expected)) {
+                                    throw new RuntimeException("Chunk of " + file + " doesn't match what was written");
+                                }
+                                decoded.addAndGet(c.b.remaining());
+                                c.discard();
+                            }
+                            saveFile.close();
+                            fis.close();
+                        }
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                        System.exit(1);
+                    }
+                }
+            };
+            readerThreads[ii].start();
+        }
+        for (Thread t : readerThreads) {
+            t.join();
+        }
+        long duration = System.nanoTime() - start;
+
+        System.out.printf("%d readers, %d tables, read ahead %d: %.1f MB/sec decoded, %.1f MB/sec from disk%n",
+                          readers, tables, readAhead,
+                          decoded.get() * 1000.0 / duration, onDisk * 1000.0 / duration);
+
+        for (File file : toDelete) {
+            file.delete();
+        }
+        // the compression and write services aren't daemon threads
+        System.exit(0);
+    }
+}
@@ -0,0 +1,146 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+import java.io.File;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Future;
+
+import org.voltcore.utils.DBBPool;
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltdb.DefaultSnapshotDataTarget;
+import org.voltdb.EELibraryLoader;
+import org.voltdb.SnapshotSiteProcessor;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+
+import com.google_voltpatches.common.util.concurrent.Callables;
+
+/**
+ * Measures the aggregate rate at which snapshot data can be written through
+ * DefaultSnapshotDataTarget, without a running server. Each site thread streams
+ * chunks of every table into that table's target, the way SnapshotSiteProcessor
+ * does, and the tables are spread over the given directories, one per disk.
+ *
+ * Usage: SnapshotWriteBench [dir[,dir...]] [sites] [tables] [MB per site]
+ *
+ * The number of writer threads comes from -DSNAPSHOT_WRITE_THREADS.
+ * Requires the VoltDB native library on java.library.path.
+ */
+public class SnapshotWriteBench {
+
+    // bound the chunks a site has in flight, like the snapshot buffer pool does
+    static final int MAX_OUTSTANDING_PER_SITE = 8;
+
+    public static void main(String[] args) throws Exception {
+        EELibraryLoader.loadExecutionEngineLibrary(true);
+        String dirNames[] = (args.length > 0 ? args[0] : "/tmp/snapshotbench").split(",");
+        final int sites = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int tables = args.length > 2 ? Integer.parseInt(args[2]) : 8;
+        final long bytesPerSite = (args.length > 3 ? Long.parseLong(args[3]) : 256) * 1024 * 1024;
+
+        List<File> dirs = new ArrayList<File>();
+        for (String name : dirNames) {
+            File dir = new File(name);
+            dir.mkdirs();
+            dirs.add(dir);
+        }
+
+        VoltTable schema = new VoltTable(new VoltTable.ColumnInfo("C", VoltType.BIGINT));
+        final DefaultSnapshotDataTarget targets[] = new DefaultSnapshotDataTarget[tables];
+        List<File> files = new ArrayList<File>();
+        for (int ii = 0; ii < tables; ii++) {
+            File file = new File(dirs.get(ii % dirs.size()), "SNAPSHOTBENCH-T" + ii + ".vpt");
+            files.add(file);
+            List<Integer> partitionIds = new ArrayList<Integer>();
+            for (int p = 0; p < sites; p++) {
+                partitionIds.add(p);
+            }
+            targets[ii] = new DefaultSnapshotDataTarget(file, 0, "cluster", "database", "T" + ii,
+                    sites, false, partitionIds, schema, 0, System.currentTimeMillis());
+        }
+
+        // mostly incompressible, roughly like real tuple data after snappy
+        final byte chunk[] = new byte[SnapshotSiteProcessor.m_snapshotBufferLength - 4];
+        new Random(0).nextBytes(chunk);
+        for (int ii = 0; ii < chunk.length; ii += 4) {
+            chunk[ii] = 0;
+        }
+
+        final long start = System.nanoTime();
+        Thread siteThreads[] = new Thread[sites];
+        for (int s = 0; s < sites; s++) {
+            final int partitionId = s;
+            siteThreads[s] = new Thread("Bench site " + s) {
+                @Override
+                public void run() {
+                    try {
+                        ArrayDeque<Future<?>> outstanding = new ArrayDeque<Future<?>>();
+                        long written = 0;
+                        int table = partitionId;
+                        while (written < bytesPerSite) {
+                            BBContainer cont = DBBPool.allocateDirectAndPool(SnapshotSiteProcessor.m_snapshotBufferLength);
+                            cont.b.clear();
+                            cont.b.putInt(partitionId);
+                            cont.b.put(chunk);
+                            cont.b.flip();
+                            outstanding.add(targets[table++ % targets.length].write(Callables.returning(cont), 0));
+                            if (outstanding.size() >= MAX_OUTSTANDING_PER_SITE) {
+                                outstanding.poll().get();
+                            }
+                            written += chunk.length;
+                        }
+                        for (Future<?> f : outstanding) {
+                            f.get();
+                        }
+                    } catch (Exception e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+            };
+            siteThreads[s].start();
+        }
+        for (Thread t : siteThreads) {
+            t.join();
+        }
+        long onDisk = 0;
+        for (DefaultSnapshotDataTarget target : targets) {
+            target.close();
+            onDisk += target.getBytesWritten();
+        }
+        long duration = System.nanoTime() - start;
+
+        System.out.printf("%d sites, %d tables, %d disks, %d write threads: %.1f MB/sec in, %.1f MB/sec to disk%n",
+                          sites, tables, dirs.size(), DefaultSnapshotDataTarget.SNAPSHOT_WRITE_THREADS,
+                          sites * (double)bytesPerSite * 1000.0 / duration,
+                          onDisk * 1000.0 / duration);
+
+        for (File file : files) {
+            file.delete();
+        }
+        // the write and sync services aren't daemon threads
+        System.exit(0);
+    }
+}
@@ -0,0 +1,39 @@
+#!/usr/bin/env bash
+
+# Sweeps SnapshotReadBench over the number of readers and the chunks each
+# file reads ahead and prints the aggregate MB/sec decoded for each. A read
+# ahead of 1 decodes one chunk per file at a time, as restore used to.
+#
+# Usage: read-bench.sh DIR [MB_PER_TABLE]
+#   Override READERS and READ_AHEAD in the environment to change the axes,
+#   e.g. READERS="1 8" READ_AHEAD="1 4 16".
+
+if [ -z "$1" ]; then
+    echo "Usage: $(basename $0) DIR [MB_PER_TABLE]"
+    exit 1
+fi
+
+DIR=$1
+MB_PER_TABLE=${2:-128}
+READERS=${READERS:-"1 2 4 8"}
+READ_AHEAD=${READ_AHEAD:-"1 2 4 8"}
+TABLES=${TABLES:-8}
+
+DEVELOPMENT_ROOT=$PWD
+while [ "$DEVELOPMENT_ROOT" != "/" -a ! -e "$DEVELOPMENT_ROOT/build.xml" ]; do
+    DEVELOPMENT_ROOT=$(dirname $DEVELOPMENT_ROOT)
+done
+CLASSPATH="$DEVELOPMENT_ROOT/voltdb/*:$DEVELOPMENT_ROOT/lib/*"
+BENCH_ROOT=$(mktemp -d)
+trap "rm -rf $BENCH_ROOT" EXIT
+
+javac -classpath "$CLASSPATH" -d $BENCH_ROOT $(dirname $0)/SnapshotReadBench.java || exit 1
+
+for READER_COUNT in $READERS; do
+    for CHUNKS in $READ_AHEAD; do
+        java -Xmx1g -Djava.library.path=$DEVELOPMENT_ROOT/voltdb \
+            -classpath "$BENCH_ROOT:$CLASSPATH" \
+            SnapshotReadBench $DIR $READER_COUNT $TABLES $MB_PER_TABLE $CHUNKS \
+                | grep "MB/sec" || exit 1
+    done
+done
@@ -0,0 +1,43 @@
+#!/usr/bin/env bash
+
+# Sweeps SnapshotWriteBench over the number of sites, disks and writer threads
+# and prints the aggregate MB/sec of each combination.
+#
+# Usage: write-bench.sh "DIR [DIR...]" [MB_PER_SITE]
+#   Each DIR should be on a separate disk. The sweep uses the first 1, 2, ...
+#   of them. Override SITES and WRITE_THREADS in the environment to change
+#   the other axes, e.g. SITES="2 8 16" WRITE_THREADS="1 8".
+
+if [ -z "$1" ]; then
+    echo "Usage: $(basename $0) \"DIR [DIR...]\" [MB_PER_SITE]"
+    exit 1
+fi
+
+DIRS=($1)
+MB_PER_SITE=${2:-256}
+SITES=${SITES:-"1 2 4 8"}
+WRITE_THREADS=${WRITE_THREADS:-"1 2 4 8"}
+TABLES=${TABLES:-16}
+
+DEVELOPMENT_ROOT=$PWD
+while [ "$DEVELOPMENT_ROOT" != "/" -a ! -e "$DEVELOPMENT_ROOT/build.xml" ]; do
+    DEVELOPMENT_ROOT=$(dirname $DEVELOPMENT_ROOT)
+done
+CLASSPATH="$DEVELOPMENT_ROOT/voltdb/*:$DEVELOPMENT_ROOT/lib/*"
+BENCH_ROOT=$(mktemp -d)
+trap "rm -rf $BENCH_ROOT" EXIT
+
+javac -classpath "$CLASSPATH" -d $BENCH_ROOT $(dirname $0)/SnapshotWriteBench.java || exit 1
+
+for DISK_COUNT in $(seq 1 ${#DIRS[@]}); do
+    BENCH_DIRS=$(echo ${DIRS[@]:0:$DISK_COUNT} | tr ' ' ',')
+    for SITE_COUNT in $SITES; do
+        for THREAD_COUNT in $WRITE_THREADS; do
+            java -Xmx1g -DSNAPSHOT_WRITE_THREADS=$THREAD_COUNT \
+                -Djava.library.path=$DEVELOPMENT_ROOT/voltdb \
+                -classpath "$BENCH_ROOT:$CLASSPATH" \
+                SnapshotWriteBench $BENCH_DIRS $SITE_COUNT $TABLES $MB_PER_SITE \
+                    | grep "MB/sec" || exit 1
+        done
+    done
+done
@@ -0,0 +1,282 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include <algorithm>
+#include <string>
+#include <utility>
+#include <vector>
+
+#include "harness.h"
+
+#include "common/NValue.hpp"
+#include "common/PlannerDomValue.h"
+#include "common/TupleSchema.h"
+#include "common/ValueFactory.hpp"
+#include "common/ValuePeeker.hpp"
+#include "common/tabletuple.h"
+#include "execution/VoltDBEngine.h"
+#include "executors/hashjoinexecutor.h"
+#include "plannodes/hashjoinnode.h"
+#include "plannodes/materializenode.h"
+#include "storage/TempTableLimits.h"
+#include "storage/tablefactory.h"
+#include "storage/tableiterator.h"
+#include "storage/temptable.h"
+
+using namespace std;
+using namespace voltdb;
+
+namespace {
+
+// Stands for a NULL join key in the key lists below.
+const int NULL_KEY = -1;
+
+// A joined row as (outer ID, inner ID), with -1 for the inner ID of a padded row.
+typedef pair<int, int> JoinedRow;
+
+string tupleValueJSON(int tableIdx, int columnIdx)
+{
+    char buffer[128];
+    snprintf(buffer, sizeof(buffer),
+             "{\"TYPE\":\"VALUE_TUPLE\",\"VALUE_TYPE\":\"INTEGER\",\"VALUE_SIZE\":4,"
+             "\"TABLE_IDX\":%d,\"COLUMN_IDX\":%d}",
+             tableIdx, columnIdx);
+    return buffer;
+}
+
+string outputColumnJSON(const char* name, int tableIdx, int columnIdx)
+{
+    return string("{\"COLUMN_NAME\":\"") + name + "\",\"TYPE\":\"INTEGER\",\"SIZE\":4,\"EXPRESSION\":" +
+        tupleValueJSON(tableIdx, columnIdx) + "}";
+}
+
+}
+
+/*
+ * Runs the hash join executor on two small temp tables of (ID, K) rows,
+ * joined on K, and checks its output against a nested loop over the same rows.
+ */
+class HashJoinExecutorTest : public Test {
+public:
+    HashJoinExecutorTest() : m_outer(NULL), m_inner(NULL) {
+        m_engine = new VoltDBEngine();
+        int partitionCount = 1;
+        m_engine->initialize(1, 1, 0, 0, "", DEFAULT_TEMP_TABLE_MEMORY);
+        m_engine->updateHashinator(HASHINATOR_LEGACY, (char*)&partitionCount, NULL, 0);
+        m_engine->setUndoToken(INT64_MIN + 1);
+
+        m_columnNames.push_back("ID");
+        m_columnNames.push_back("K");
+        vector<ValueType> columnTypes(2, VALUE_TYPE_INTEGER);
+        vector<int32_t> columnLengths(2, NValue::getTupleStorageSize(VALUE_TYPE_INTEGER));
+        vector<bool> columnAllowNull(2, true);
+        m_schema = TupleSchema::createTupleSchema(columnTypes, columnLengths, columnAllowNull, true);
+    }
+
+    ~HashJoinExecutorTest() {
+        // the plan nodes own their output tables and the join node owns its executor
+        for (int i = 0; i < m_nodes.size(); i++) {
+            delete m_nodes[i];
+        }
+        delete m_engine;
+        TupleSchema::freeTupleSchema(m_schema);
+    }
+
+    // Both tables get rows with IDs counting up from 1 and the given join keys.
+    void setTables(const vector<int>& outerKeys, const vector<int>& innerKeys) {
+        m_outerKeys = outerKeys;
+        m_innerKeys = innerKeys;
+        m_outer = createChild(2, "OUTER", outerKeys);
+        m_inner = createChild(3, "INNER", innerKeys);
+    }
+
+    /**
+     * Joins the tables on OUTER.K = INNER.K, and on OUTER.ID < INNER.ID as well
+     * when withJoinPredicate is set, and returns the joined rows in order.
+     */
+    vector<JoinedRow> hashJoin(const char* joinType, bool withJoinPredicate) {
+        string json = string("{\"ID\":1,\"PLAN_NODE_TYPE\":\"HASHJOIN\",") +
+            "\"INLINE_NODES\":[],\"PARENT_IDS\":[],\"CHILDREN_IDS\":[2,3]," +
+            "\"OUTPUT_SCHEMA\":[" +
+            outputColumnJSON("OUTER_ID", 0, 0) + "," + outputColumnJSON("OUTER_K", 0, 1) + "," +
+            outputColumnJSON("INNER_ID", 1, 0) + "," + outputColumnJSON("INNER_K", 1, 1) + "]," +
+            "\"JOIN_TYPE\":\"" + joinType + "\"," +
+            "\"OUTER_HASH_EXPRESSIONS\":[" + tupleValueJSON(0, 1) + "]," +
+            "\"INNER_HASH_EXPRESSIONS\":[" + tupleValueJSON(1, 1) + "]";
+        if (withJoinPredicate) {
+            json += string(",\"JOIN_PREDICATE\":{\"TYPE\":\"COMPARE_LESSTHAN\",\"VALUE_TYPE\":\"BIGINT\",") +
+                "\"VALUE_SIZE\":8,\"LEFT\":" + tupleValueJSON(0, 0) + ",\"RIGHT\":" + tupleValueJSON(1, 0) + "}";
+        }
+        json += "}";
+
+        PlannerDomRoot root(json.c_str());
+        AbstractPlanNode* node = AbstractPlanNode::fromJSONObject(root.rootObject());
+        m_nodes.push_back(node);
+        node->addChild(m_outer);
+        node->addChild(m_inner);
+        HashJoinExecutor* executor = new HashJoinExecutor(m_engine, node);
+        node->setExecutor(executor);
+        EXPECT_TRUE(executor->init(m_engine, &m_limits));
+        NValueArray params(0);
+        EXPECT_TRUE(executor->execute(params));
+
+        vector<JoinedRow> rows;
+        Table* output = node->getOutputTable();
+        TableTuple tuple(output->schema());
+        TableIterator iterator = output->iterator();
+        while (iterator.next(tuple)) {
+            NValue innerId = tuple.getNValue(2);
+            rows.push_back(JoinedRow(ValuePeeker::peekInteger(tuple.getNValue(0)),
+                                     innerId.isNull() ? -1 : ValuePeeker::peekInteger(innerId)));
+        }
+        sort(rows.begin(), rows.end());
+        return rows;
+    }
+
+    // What a nested loop join over the same rows produces.
+    vector<JoinedRow> nestedLoopJoin(bool leftJoin, bool withJoinPredicate) {
+        vector<JoinedRow> rows;
+        for (int outerId = 1; outerId <= m_outerKeys.size(); outerId++) {
+            bool match = false;
+            for (int innerId = 1; innerId <= m_innerKeys.size(); innerId++) {
+                int outerKey = m_outerKeys[outerId - 1];
+                int innerKey = m_innerKeys[innerId - 1];
+                if (outerKey != NULL_KEY && outerKey == innerKey &&
+                    ( ! withJoinPredicate || outerId < innerId)) {
+                    match = true;
+                    rows.push_back(JoinedRow(outerId, innerId));
+                }
+            }
+            if (leftJoin && ! match) {
+                rows.push_back(JoinedRow(outerId, -1));
+            }
+        }
+        sort(rows.begin(), rows.end());
+        return rows;
+    }
+
+protected:
+    AbstractPlanNode* createChild(int id, const string& name, const vector<int>& keys) {
+        Table* table = TableFactory::getTempTable(0, name, TupleSchema::createTupleSchema(m_schema),
+                                                  m_columnNames, &m_limits);
+        TableTuple& tuple = table->tempTuple();
+        for (int i = 0; i < keys.size(); i++) {
+            tuple.setNValue(0, ValueFactory::getIntegerValue(i + 1));
+            tuple.setNValue(1, keys[i] == NULL_KEY ? NValue::getNullValue(VALUE_TYPE_INTEGER) :
+                                                     ValueFactory::getIntegerValue(keys[i]));
+            table->insertTuple(tuple);
+        }
+        AbstractPlanNode* child = new MaterializePlanNode(id);
+        child->setOutputTable(table);
+        m_nodes.push_back(child);
+        return child;
+    }
+
+    VoltDBEngine* m_engine;
+    TupleSchema* m_schema;
+    vector<string> m_columnNames;
+    TempTableLimits m_limits;
+    vector<AbstractPlanNode*> m_nodes;
+    AbstractPlanNode* m_outer;
+    AbstractPlanNode* m_inner;
+    vector<int> m_outerKeys;
+    vector<int> m_innerKeys;
+};
+
+// Keys 1..3 with repeats on both sides, a NULL on both sides and keys without a match.
+static vector<int> manyKeys() {
+    int keys[] = { 1, 2, NULL_KEY, 2, 3, 7, 1, 2, NULL_KEY, 5 };
+    return vector<int>(keys, keys + sizeof(keys) / sizeof(keys[0]));
+}
+
+static vector<int> fewKeys() {
+    int keys[] = { 2, NULL_KEY, 1, 2, 9 };
+    return vector<int>(keys, keys + sizeof(keys) / sizeof(keys[0]));
+}
+
+TEST_F(HashJoinExecutorTest, InnerJoinBuildsInner) {
+    // the inner table is the smaller one, so it is hashed
+    setTables(manyKeys(), fewKeys());
+    vector<JoinedRow> expected = nestedLoopJoin(false, false);
+    EXPECT_EQ(8, expected.size());
+    EXPECT_TRUE(expected == hashJoin("INNER", false));
+}
+
+TEST_F(HashJoinExecutorTest, InnerJoinBuildsOuter) {
+    // the outer table is the smaller one, so it is hashed and probed by the inner table
+    setTables(fewKeys(), manyKeys());
+    vector<JoinedRow> expected = nestedLoopJoin(false, false);
+    EXPECT_EQ(8, expected.size());
+    EXPECT_TRUE(expected == hashJoin("INNER", false));
+}
+
+TEST_F(HashJoinExecutorTest, JoinPredicateKeepsSidesWhenBuildingOuter) {
+    // OUTER.ID < INNER.ID only holds if the swapped build and probe tuples
+    // are still passed to the predicate as outer and inner
+    setTables(fewKeys(), manyKeys());
+    vector<JoinedRow> expected = nestedLoopJoin(false, true);
+    EXPECT_TRUE(expected != nestedLoopJoin(false, false));
+    EXPECT_TRUE(expected == hashJoin("INNER", true));
+
+    setTables(manyKeys(), fewKeys());
+    expected = nestedLoopJoin(false, true);
+    EXPECT_TRUE(expected == hashJoin("INNER", true));
+}
+
+TEST_F(HashJoinExecutorTest, LeftJoinPadsUnmatchedOuters) {
+    // a left join always hashes the inner table, even when the outer one is smaller,
+    // and pads the outer rows with a NULL key or without a match
+    setTables(fewKeys(), manyKeys());
+    vector<JoinedRow> expected = nestedLoopJoin(true, false);
+    EXPECT_TRUE(find(expected.begin(), expected.end(), JoinedRow(2, -1)) != expected.end());
+    EXPECT_TRUE(find(expected.begin(), expected.end(), JoinedRow(5, -1)) != expected.end());
+    EXPECT_TRUE(expected == hashJoin("LEFT", false));
+
+    setTables(manyKeys(), fewKeys());
+    EXPECT_TRUE(nestedLoopJoin(true, false) == hashJoin("LEFT", false));
+    EXPECT_TRUE(nestedLoopJoin(true, true) == hashJoin("LEFT", true));
+}
+
+TEST_F(HashJoinExecutorTest, NullKeysNeverMatch) {
+    vector<int> nullKeys(4, NULL_KEY);
+    setTables(nullKeys, nullKeys);
+    EXPECT_EQ(0, hashJoin("INNER", false).size());
+    EXPECT_EQ(4, hashJoin("LEFT", false).size());
+}
+
+TEST_F(HashJoinExecutorTest, ReleasesHashTableMemory) {
+    setTables(manyKeys(), fewKeys());
+    vector<JoinedRow> rows = hashJoin("INNER", false);
+    int64_t allocated = m_limits.getAllocated();
+    // running the same join again refills the same output blocks,
+    // so the limits only grow if the first hash table wasn't given back
+    AbstractExecutor* executor = m_nodes.back()->getExecutor();
+    NValueArray params(0);
+    EXPECT_TRUE(executor->execute(params));
+    EXPECT_EQ(rows.size(), m_nodes.back()->getOutputTable()->activeTupleCount());
+    EXPECT_EQ(allocated, m_limits.getAllocated());
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
@@ -0,0 +1,284 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include <algorithm>
+#include <cstdio>
+#include <string>
+#include <vector>
+
+#include "harness.h"
+
+#include "common/NValue.hpp"
+#include "common/PlannerDomValue.h"
+#include "common/TupleSchema.h"
+#include "common/ValueFactory.hpp"
+#include "common/ValuePeeker.hpp"
+#include "common/tabletuple.h"
+#include "execution/VoltDBEngine.h"
+#include "executors/orderbyexecutor.h"
+#include "plannodes/materializenode.h"
+#include "plannodes/orderbynode.h"
+#include "plannodes/sendnode.h"
+#include "storage/TempTableLimits.h"
+#include "storage/tablefactory.h"
+#include "storage/tableiterator.h"
+#include "storage/temptable.h"
+
+using namespace std;
+using namespace voltdb;
+
+namespace {
+
+// Rows per test: enough to fill several times the memory limit below, but
+// fewer than the engine reports progress after, which needs a topend.
+const int ROW_COUNT = 8000;
+// Sort keys repeat, so runs hold equal keys from different parts of the input.
+const int KEY_COUNT = 3001;
+// Long enough that the S column is stored out of line.
+const int LONG_STRING_LENGTH = 200;
+// Short enough that the T column is stored in the tuple.
+const int SHORT_STRING_LENGTH = 20;
+// NULL columns of the longest inlined strings, so that a few thousand rows
+// fill many blocks.
+const int PADDING_COLUMN_COUNT = 6;
+const int PADDING_LENGTH = 63;
+
+int keyOf(int id)
+{
+    return static_cast<int>((static_cast<int64_t>(id) * 1009) % KEY_COUNT);
+}
+
+string longStringOf(int id)
+{
+    char prefix[32];
+    snprintf(prefix, sizeof(prefix), "long-%d-", id);
+    return string(prefix) + string(LONG_STRING_LENGTH - 20, 'x');
+}
+
+string shortStringOf(int id)
+{
+    char buffer[32];
+    snprintf(buffer, sizeof(buffer), "short-%d", id);
+    return buffer;
+}
+
+}
+
+/*
+ * Runs the order by executor on a temp table of (ID, K, S, T) rows, sorted
+ * on K, with a memory limit far below the size of the table, so that it
+ * sorts in runs that are spilled and merged back from disk.
+ */
+class OrderByExecutorTest : public Test {
+public:
+    OrderByExecutorTest() : m_child(NULL), m_orderBy(NULL) {
+        m_engine = new VoltDBEngine();
+        int partitionCount = 1;
+        m_engine->initialize(1, 1, 0, 0, "", DEFAULT_TEMP_TABLE_MEMORY);
+        m_engine->updateHashinator(HASHINATOR_LEGACY, (char*)&partitionCount, NULL, 0);
+        m_engine->setUndoToken(INT64_MIN + 1);
+
+        m_columnNames.push_back("ID");
+        m_columnNames.push_back("K");
+        m_columnNames.push_back("S");
+        m_columnNames.push_back("T");
+        vector<ValueType> columnTypes;
+        columnTypes.push_back(VALUE_TYPE_INTEGER);
+        columnTypes.push_back(VALUE_TYPE_INTEGER);
+        columnTypes.push_back(VALUE_TYPE_VARCHAR);
+        columnTypes.push_back(VALUE_TYPE_VARCHAR);
+        vector<int32_t> columnLengths;
+        columnLengths.push_back(NValue::getTupleStorageSize(VALUE_TYPE_INTEGER));
+        columnLengths.push_back(NValue::getTupleStorageSize(VALUE_TYPE_INTEGER));
+        columnLengths.push_back(LONG_STRING_LENGTH);
+        columnLengths.push_back(SHORT_STRING_LENGTH);
+        for (int i = 0; i < PADDING_COLUMN_COUNT; i++) {
+            char name[16];
+            snprintf(name, sizeof(name), "P%d", i);
+            m_columnNames.push_back(name);
+            columnTypes.push_back(VALUE_TYPE_VARCHAR);
+            columnLengths.push_back(PADDING_LENGTH);
+        }
+        vector<bool> columnAllowNull(m_columnNames.size(), true);
+        m_schema = TupleSchema::createTupleSchema(columnTypes, columnLengths, columnAllowNull, true);
+
+        m_limits.setMemoryLimit(1024 * 1024);
+        m_limits.setSpillDirectory("/tmp");
+        m_limits.setSpillLimit(1024 * 1024 * 256);
+    }
+
+    ~OrderByExecutorTest() {
+        // the plan nodes own their output tables and the order by node owns its executor
+        for (int i = 0; i < m_nodes.size(); i++) {
+            delete m_nodes[i];
+        }
+        for (int i = 0; i < m_strings.size(); i++) {
+            m_strings[i].free();
+        }
+        delete m_engine;
+        TupleSchema::freeTupleSchema(m_schema);
+    }
+
+    /**
+     * Plans an order by on K, as the input of a send when sent is set,
+     * with an inline limit and offset when limit is not negative.
+     */
+    void planOrderBy(bool sent, int limit, int offset) {
+        Table* table = TableFactory::getTempTable(0, "INPUT", TupleSchema::createTupleSchema(m_schema),
+                                                  m_columnNames, &m_limits);
+        m_child = new MaterializePlanNode(2);
+        m_child->setOutputTable(table);
+        m_nodes.push_back(m_child);
+
+        char limitJSON[256] = "";
+        if (limit >= 0) {
+            snprintf(limitJSON, sizeof(limitJSON),
+                     "{\"ID\":3,\"PLAN_NODE_TYPE\":\"LIMIT\",\"INLINE_NODES\":[],"
+                     "\"PARENT_IDS\":[],\"CHILDREN_IDS\":[],\"LIMIT\":%d,\"OFFSET\":%d}",
+                     limit, offset);
+        }
+        string json = string("{\"ID\":1,\"PLAN_NODE_TYPE\":\"ORDERBY\",") +
+            "\"INLINE_NODES\":[" + limitJSON + "],\"PARENT_IDS\":[],\"CHILDREN_IDS\":[2]," +
+            "\"SORT_COLUMNS\":[{\"SORT_DIRECTION\":\"ASC\",\"SORT_EXPRESSION\":" +
+            "{\"TYPE\":\"VALUE_TUPLE\",\"VALUE_TYPE\":\"INTEGER\",\"VALUE_SIZE\":4," +
+            "\"TABLE_IDX\":0,\"COLUMN_IDX\":1}}]}";
+        PlannerDomRoot root(json.c_str());
+        m_orderBy = AbstractPlanNode::fromJSONObject(root.rootObject());
+        m_nodes.push_back(m_orderBy);
+        m_orderBy->addChild(m_child);
+        if (sent) {
+            AbstractPlanNode* send = new SendPlanNode(0);
+            m_nodes.push_back(send);
+            m_orderBy->addParent(send);
+        }
+        OrderByExecutor* executor = new OrderByExecutor(m_engine, m_orderBy);
+        m_orderBy->setExecutor(executor);
+        EXPECT_TRUE(executor->init(m_engine, &m_limits));
+    }
+
+    // Fills the input as the child executor would, after the order by is initialized.
+    void fillInput(int rowCount) {
+        TempTable* table = static_cast<TempTable*>(m_child->getOutputTable());
+        TableTuple& tuple = table->tempTuple();
+        for (int id = 0; id < rowCount; id++) {
+            tuple.setNValue(0, ValueFactory::getIntegerValue(id));
+            tuple.setNValue(1, ValueFactory::getIntegerValue(keyOf(id)));
+            m_strings.push_back(ValueFactory::getStringValue(longStringOf(id)));
+            tuple.setNValue(2, m_strings.back());
+            m_strings.push_back(ValueFactory::getStringValue(shortStringOf(id)));
+            tuple.setNValue(3, m_strings.back());
+            for (int i = 0; i < PADDING_COLUMN_COUNT; i++) {
+                tuple.setNValue(4 + i, NValue::getNullValue(VALUE_TYPE_VARCHAR));
+            }
+            table->insertTuple(tuple);
+        }
+    }
+
+    void execute() {
+        NValueArray params(0);
+        EXPECT_TRUE(m_orderBy->getExecutor()->execute(params));
+    }
+
+    /**
+     * Reads the output back, checking that it is in order on K
+     * and that each row kept its own strings, and returns the row count.
+     */
+    int checkOutput() {
+        Table* output = m_orderBy->getOutputTable();
+        TableTuple tuple(output->schema());
+        TableIterator iterator = output->iterator();
+        int rows = 0;
+        int lastKey = -1;
+        bool ordered = true;
+        bool matched = true;
+        while (iterator.next(tuple)) {
+            int id = ValuePeeker::peekInteger(tuple.getNValue(0));
+            int key = ValuePeeker::peekInteger(tuple.getNValue(1));
+            ordered = ordered && lastKey <= key;
+            matched = matched && key == keyOf(id) &&
+                ValuePeeker::peekStringCopy(tuple.getNValue(2)) == longStringOf(id) &&
+                ValuePeeker::peekStringCopy(tuple.getNValue(3)) == shortStringOf(id);
+            lastKey = key;
+            rows++;
+        }
+        EXPECT_TRUE(ordered);
+        EXPECT_TRUE(matched);
+        return rows;
+    }
+
+protected:
+    VoltDBEngine* m_engine;
+    TupleSchema* m_schema;
+    vector<string> m_columnNames;
+    TempTableLimits m_limits;
+    vector<AbstractPlanNode*> m_nodes;
+    vector<NValue> m_strings;
+    AbstractPlanNode* m_child;
+    AbstractPlanNode* m_orderBy;
+};
+
+TEST_F(OrderByExecutorTest, SortsSpilledInputInRuns) {
+    planOrderBy(true, -1, 0);
+    fillInput(ROW_COUNT);
+    EXPECT_TRUE(static_cast<TempTable*>(m_child->getOutputTable())->hasSpilled());
+    int64_t spilledByInput = m_limits.getSpilledTotal();
+    EXPECT_TRUE(spilledByInput > 0);
+
+    execute();
+    // the sorted runs and the sent output were spilled on top of the input
+    EXPECT_TRUE(m_limits.getSpilledTotal() > 2 * spilledByInput);
+    EXPECT_TRUE(m_limits.getAllocated() <= m_limits.getMemoryLimit());
+    EXPECT_EQ(ROW_COUNT, checkOutput());
+    EXPECT_EQ(0, m_child->getOutputTable()->activeTupleCount());
+}
+
+TEST_F(OrderByExecutorTest, LimitAndOffsetOverSpilledInput) {
+    planOrderBy(true, 1000, 5000);
+    fillInput(ROW_COUNT);
+    execute();
+    EXPECT_EQ(1000, checkOutput());
+
+    // the rows are the 5001st to the 6000th in key order
+    vector<int> keys;
+    for (int id = 0; id < ROW_COUNT; id++) {
+        keys.push_back(keyOf(id));
+    }
+    sort(keys.begin(), keys.end());
+    Table* output = m_orderBy->getOutputTable();
+    TableTuple tuple(output->schema());
+    TableIterator iterator = output->iterator();
+    ASSERT_TRUE(iterator.next(tuple));
+    EXPECT_EQ(keys[5000], ValuePeeker::peekInteger(tuple.getNValue(1)));
+}
+
+TEST_F(OrderByExecutorTest, SortsSmallInputInMemory) {
+    planOrderBy(false, -1, 0);
+    fillInput(1000);
+    execute();
+    EXPECT_EQ(0, m_limits.getSpilledTotal());
+    EXPECT_EQ(1000, checkOutput());
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
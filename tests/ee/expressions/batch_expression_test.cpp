@@ -0,0 +1,423 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include <cstdio>
+#include <cstdlib>
+#include <string>
+#include <vector>
+#include <sys/time.h>
+
+#include "harness.h"
+
+#include "common/NValue.hpp"
+#include "common/TupleSchema.h"
+#include "common/ValueFactory.hpp"
+#include "common/ValuePeeker.hpp"
+#include "common/tabletuple.h"
+#include "common/valuevector.h"
+#include "expressions/abstractexpression.h"
+#include "expressions/expressions.h"
+#include "expressions/expressionutil.h"
+#include "storage/table.h"
+#include "storage/tablefactory.h"
+#include "storage/tableiterator.h"
+#include "storage/temptable.h"
+
+using namespace std;
+using namespace voltdb;
+
+#define NUM_OF_COLUMNS 6
+
+static ValueType COLUMN_TYPES[NUM_OF_COLUMNS] = { VALUE_TYPE_BIGINT,
+                                                  VALUE_TYPE_TINYINT,
+                                                  VALUE_TYPE_SMALLINT,
+                                                  VALUE_TYPE_INTEGER,
+                                                  VALUE_TYPE_TIMESTAMP,
+                                                  VALUE_TYPE_DOUBLE };
+
+/*
+ * Checks the batch evaluation of expressions against eval() of the same
+ * expressions, and measures both over a scan of a table.
+ */
+class BatchExpressionTest : public Test {
+public:
+    BatchExpressionTest() : m_table(NULL), m_params(4) {
+        srand(0);
+    }
+
+    ~BatchExpressionTest() {
+        delete m_table;
+    }
+
+    // every column gets values in [0, 100), a few of them NULL
+    void fillTable(int rowCount) {
+        vector<string> columnNames;
+        vector<ValueType> columnTypes;
+        vector<int32_t> columnLengths;
+        vector<bool> columnAllowNull;
+        for (int ctr = 0; ctr < NUM_OF_COLUMNS; ctr++) {
+            char buffer[32];
+            snprintf(buffer, 32, "column%02d", ctr);
+            columnNames.push_back(buffer);
+            columnTypes.push_back(COLUMN_TYPES[ctr]);
+            columnLengths.push_back(NValue::getTupleStorageSize(COLUMN_TYPES[ctr]));
+            columnAllowNull.push_back(true);
+        }
+        TupleSchema *schema = TupleSchema::createTupleSchema(columnTypes, columnLengths,
+                                                             columnAllowNull, true);
+        m_table = TableFactory::getTempTable(1000, "test_table", schema, columnNames, NULL);
+
+        TableTuple &tuple = m_table->tempTuple();
+        for (int row = 0; row < rowCount; row++) {
+            for (int ctr = 0; ctr < NUM_OF_COLUMNS; ctr++) {
+                NValue value;
+                int v = rand() % 100;
+                if (rand() % 20 == 0) {
+                    value = NValue::getNullValue(COLUMN_TYPES[ctr]);
+                } else if (COLUMN_TYPES[ctr] == VALUE_TYPE_DOUBLE) {
+                    value = ValueFactory::getDoubleValue(v + 0.5);
+                } else if (COLUMN_TYPES[ctr] == VALUE_TYPE_TIMESTAMP) {
+                    value = ValueFactory::getTimestampValue(v);
+                } else {
+                    value = ValueFactory::getBigIntValue(v).castAs(COLUMN_TYPES[ctr]);
+                }
+                tuple.setNValue(ctr, value);
+            }
+            m_table->insertTuple(tuple);
+        }
+    }
+
+    AbstractExpression *randomOperand() {
+        switch (rand() % 4) {
+        case 0:
+            return new ConstantValueExpression(ValueFactory::getIntegerValue(rand() % 100));
+        case 1:
+            return new ConstantValueExpression(NValue::getNullValue(VALUE_TYPE_INTEGER));
+        case 2:
+            return new ConstantValueExpression(ValueFactory::getDoubleValue(rand() % 100));
+        default:
+            return new ParameterValueExpression(rand() % 4);
+        }
+    }
+
+    AbstractExpression *randomComparison() {
+        static const ExpressionType types[] = { EXPRESSION_TYPE_COMPARE_EQUAL,
+                                                EXPRESSION_TYPE_COMPARE_NOTEQUAL,
+                                                EXPRESSION_TYPE_COMPARE_LESSTHAN,
+                                                EXPRESSION_TYPE_COMPARE_GREATERTHAN,
+                                                EXPRESSION_TYPE_COMPARE_LESSTHANOREQUALTO,
+                                                EXPRESSION_TYPE_COMPARE_GREATERTHANOREQUALTO };
+        AbstractExpression *column = new TupleValueExpression(0, rand() % NUM_OF_COLUMNS);
+        AbstractExpression *other;
+        if (rand() % 5 == 0) {
+            other = new TupleValueExpression(0, rand() % NUM_OF_COLUMNS);
+        } else {
+            other = randomOperand();
+        }
+        if (rand() % 2 == 0) {
+            return ExpressionUtil::comparisonFactory(types[rand() % 6], column, other);
+        }
+        return ExpressionUtil::comparisonFactory(types[rand() % 6], other, column);
+    }
+
+    AbstractExpression *randomPredicate(int depth) {
+        if (depth == 0 || rand() % 3 == 0) {
+            return randomComparison();
+        }
+        return ExpressionUtil::conjunctionFactory(rand() % 2 == 0 ?
+                                                  EXPRESSION_TYPE_CONJUNCTION_AND :
+                                                  EXPRESSION_TYPE_CONJUNCTION_OR,
+                                                  randomPredicate(depth - 1),
+                                                  randomPredicate(depth - 1));
+    }
+
+    void randomParams() {
+        for (int i = 0; i < m_params.size(); i++) {
+            if (rand() % 5 == 0) {
+                m_params[i] = NValue::getNullValue(VALUE_TYPE_BIGINT);
+            } else {
+                m_params[i] = ValueFactory::getBigIntValue(rand() % 100);
+            }
+        }
+    }
+
+    // reads the table in blocks like the scan executors do and calls the
+    // function for each of them
+    template <typename F>
+    void forEachBlock(F &f) {
+        const int blockSize = AbstractExpression::BATCH_SIZE;
+        vector<TableTuple> block(blockSize);
+        TableTuple tuple(m_table->schema());
+        TableIterator iterator = m_table->iterator();
+        while (true) {
+            int count = 0;
+            while (count < blockSize && iterator.next(tuple)) {
+                block[count++] = tuple;
+            }
+            if (count == 0) {
+                break;
+            }
+            f(&block[0], count);
+        }
+    }
+
+    Table *m_table;
+    NValueArray m_params;
+};
+
+// compares filterBatch() with eval() for each block it is given
+class FilterChecker {
+public:
+    FilterChecker(const AbstractExpression *predicate)
+        : m_predicate(predicate), m_kept(0), m_mismatches(0) {
+    }
+
+    void operator()(const TableTuple *tuples, int count) {
+        int sel[AbstractExpression::BATCH_SIZE];
+        // drop every third tuple first so the selection isn't dense
+        int selected = 0;
+        for (int i = 0; i < count; i++) {
+            if (i % 3 != 2) {
+                sel[selected++] = i;
+            }
+        }
+        vector<int> expected;
+        for (int i = 0; i < selected; i++) {
+            if (m_predicate->eval(&tuples[sel[i]], NULL).isTrue()) {
+                expected.push_back(sel[i]);
+            }
+        }
+        int kept = m_predicate->filterBatch(tuples, sel, selected);
+        if (kept != (int)expected.size() || !equal(expected.begin(), expected.end(), sel)) {
+            m_mismatches++;
+        }
+        m_kept += kept;
+    }
+
+    const AbstractExpression *m_predicate;
+    int m_kept;
+    int m_mismatches;
+};
+
+TEST_F(BatchExpressionTest, FilterMatchesEval) {
+    fillTable(5000);
+    for (int i = 0; i < 500; i++) {
+        AbstractExpression *predicate = randomPredicate(3);
+        randomParams();
+        predicate->substitute(m_params);
+        FilterChecker checker(predicate);
+        forEachBlock(checker);
+        if (checker.m_mismatches != 0) {
+            cout << "Mismatch for " << predicate->debug(true) << endl;
+        }
+        ASSERT_EQ(0, checker.m_mismatches);
+        delete predicate;
+    }
+}
+
+// compares evalBatch() with eval() for each block it is given
+class ValueChecker {
+public:
+    ValueChecker(const AbstractExpression *expression)
+        : m_expression(expression), m_mismatches(0) {
+    }
+
+    void operator()(const TableTuple *tuples, int count) {
+        int sel[AbstractExpression::BATCH_SIZE];
+        NValue values[AbstractExpression::BATCH_SIZE];
+        int selected = 0;
+        for (int i = 0; i < count; i += 2) {
+            sel[selected++] = i;
+        }
+        m_expression->evalBatch(tuples, sel, selected, values);
+        for (int i = 0; i < selected; i++) {
+            NValue expected = m_expression->eval(&tuples[sel[i]], NULL);
+            if (expected.isNull() != values[i].isNull()) {
+                m_mismatches++;
+            } else if (expected.isNull()) {
+                continue;
+            } else if (ValuePeeker::peekValueType(expected) == VALUE_TYPE_BOOLEAN) {
+                m_mismatches += (expected.isTrue() != values[i].isTrue());
+            } else {
+                m_mismatches += (expected.compare(values[i]) != 0);
+            }
+        }
+    }
+
+    const AbstractExpression *m_expression;
+    int m_mismatches;
+};
+
+TEST_F(BatchExpressionTest, EvalBatchMatchesEval) {
+    fillTable(5000);
+    randomParams();
+    vector<AbstractExpression*> expressions;
+    for (int ctr = 0; ctr < NUM_OF_COLUMNS; ctr++) {
+        expressions.push_back(new TupleValueExpression(0, ctr));
+    }
+    expressions.push_back(new ConstantValueExpression(ValueFactory::getBigIntValue(42)));
+    expressions.push_back(new ParameterValueExpression(1));
+    // no batch override of its own, takes the default
+    expressions.push_back(randomComparison());
+    for (int i = 0; i < expressions.size(); i++) {
+        expressions[i]->substitute(m_params);
+        ValueChecker checker(expressions[i]);
+        forEachBlock(checker);
+        ASSERT_EQ(0, checker.m_mismatches);
+        delete expressions[i];
+    }
+}
+
+static double secondsSince(const timeval &start) {
+    timeval end;
+    gettimeofday(&end, NULL);
+    return (end.tv_sec - start.tv_sec) + (end.tv_usec - start.tv_usec) / 1000000.0;
+}
+
+// the scan loops as they were before batching, a tuple at a time
+class TupleAtATimeScan {
+public:
+    TupleAtATimeScan(const AbstractExpression *predicate,
+                     const vector<AbstractExpression*> &projection)
+        : m_predicate(predicate), m_projection(projection), m_kept(0), m_checksum(0) {
+    }
+
+    void operator()(const TableTuple *tuples, int count) {
+        for (int i = 0; i < count; i++) {
+            if (m_predicate->eval(&tuples[i], NULL).isTrue()) {
+                m_kept++;
+                for (int ctr = 0; ctr < m_projection.size(); ctr++) {
+                    NValue value = m_projection[ctr]->eval(&tuples[i], NULL);
+                    if (!value.isNull()) {
+                        m_checksum += ValuePeeker::peekAsBigInt(value);
+                    }
+                }
+            }
+        }
+    }
+
+    const AbstractExpression *m_predicate;
+    const vector<AbstractExpression*> &m_projection;
+    int64_t m_kept;
+    int64_t m_checksum;
+};
+
+// the batched scan loops of the seqscan executor
+class BatchScan {
+public:
+    BatchScan(const AbstractExpression *predicate,
+              const vector<AbstractExpression*> &projection)
+        : m_predicate(predicate), m_projection(projection), m_kept(0), m_checksum(0) {
+        m_values.resize(projection.size() * AbstractExpression::BATCH_SIZE);
+    }
+
+    void operator()(const TableTuple *tuples, int count) {
+        int sel[AbstractExpression::BATCH_SIZE];
+        for (int i = 0; i < count; i++) {
+            sel[i] = i;
+        }
+        count = m_predicate->filterBatch(tuples, sel, count);
+        m_kept += count;
+        for (int ctr = 0; ctr < m_projection.size(); ctr++) {
+            NValue *values = &m_values[ctr * AbstractExpression::BATCH_SIZE];
+            m_projection[ctr]->evalBatch(tuples, sel, count, values);
+            for (int i = 0; i < count; i++) {
+                if (!values[i].isNull()) {
+                    m_checksum += ValuePeeker::peekAsBigInt(values[i]);
+                }
+            }
+        }
+    }
+
+    const AbstractExpression *m_predicate;
+    const vector<AbstractExpression*> &m_projection;
+    vector<NValue> m_values;
+    int64_t m_kept;
+    int64_t m_checksum;
+};
+
+/*
+ * A five clause WHERE over integer columns with a three column projection,
+ * scanned a tuple at a time and a block at a time.
+ */
+TEST_F(BatchExpressionTest, ScanBenchmark) {
+    const int ROWS = 2000000;
+    fillTable(ROWS);
+    m_params[0] = ValueFactory::getBigIntValue(90);
+    m_params[1] = ValueFactory::getBigIntValue(5);
+
+    // column00 < ? AND column01 > ? AND column02 <> 13 AND column03 >= 2 AND 98 > column04
+    AbstractExpression *predicate =
+        ExpressionUtil::conjunctionFactory(EXPRESSION_TYPE_CONJUNCTION_AND,
+            ExpressionUtil::conjunctionFactory(EXPRESSION_TYPE_CONJUNCTION_AND,
+                ExpressionUtil::comparisonFactory(EXPRESSION_TYPE_COMPARE_LESSTHAN,
+                    new TupleValueExpression(0, 0), new ParameterValueExpression(0)),
+                ExpressionUtil::comparisonFactory(EXPRESSION_TYPE_COMPARE_GREATERTHAN,
+                    new TupleValueExpression(0, 1), new ParameterValueExpression(1))),
+            ExpressionUtil::conjunctionFactory(EXPRESSION_TYPE_CONJUNCTION_AND,
+                ExpressionUtil::comparisonFactory(EXPRESSION_TYPE_COMPARE_NOTEQUAL,
+                    new TupleValueExpression(0, 2),
+                    new ConstantValueExpression(ValueFactory::getIntegerValue(13))),
+                ExpressionUtil::conjunctionFactory(EXPRESSION_TYPE_CONJUNCTION_AND,
+                    ExpressionUtil::comparisonFactory(EXPRESSION_TYPE_COMPARE_GREATERTHANOREQUALTO,
+                        new TupleValueExpression(0, 3),
+                        new ConstantValueExpression(ValueFactory::getIntegerValue(2))),
+                    ExpressionUtil::comparisonFactory(EXPRESSION_TYPE_COMPARE_GREATERTHAN,
+                        new ConstantValueExpression(ValueFactory::getIntegerValue(98)),
+                        new TupleValueExpression(0, 4)))));
+    predicate->substitute(m_params);
+
+    vector<AbstractExpression*> projection;
+    projection.push_back(new TupleValueExpression(0, 3));
+    projection.push_back(new TupleValueExpression(0, 0));
+    projection.push_back(new ParameterValueExpression(1));
+    for (int ctr = 0; ctr < projection.size(); ctr++) {
+        projection[ctr]->substitute(m_params);
+    }
+
+    timeval start;
+    gettimeofday(&start, NULL);
+    TupleAtATimeScan tupleAtATime(predicate, projection);
+    forEachBlock(tupleAtATime);
+    double tupleSeconds = secondsSince(start);
+
+    gettimeofday(&start, NULL);
+    BatchScan batch(predicate, projection);
+    forEachBlock(batch);
+    double batchSeconds = secondsSince(start);
+
+    printf("\n  scan of %d rows keeping %lld: tuple at a time %.0f rows/s, batched %.0f rows/s\n",
+           ROWS, (long long)batch.m_kept, ROWS / tupleSeconds, ROWS / batchSeconds);
+    ASSERT_TRUE(tupleAtATime.m_kept > 0);
+    ASSERT_EQ(tupleAtATime.m_kept, batch.m_kept);
+    ASSERT_EQ(tupleAtATime.m_checksum, batch.m_checksum);
+
+    delete predicate;
+    for (int ctr = 0; ctr < projection.size(); ctr++) {
+        delete projection[ctr];
+    }
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
@@ -49,12 +49,15 @@
  * OTHER DEALINGS IN THE SOFTWARE.
  */
 
+#include <algorithm>
+#include <sys/time.h>
 #include <boost/foreach.hpp>
 
 #include "harness.h"
 #include "common/common.h"
 #include "common/NValue.hpp"
 #include "common/ValueFactory.hpp"
+#include "common/ValuePeeker.hpp"
 #include "common/debuglog.h"
 #include "common/SerializableEEException.h"
 #include "common/tabletuple.h"
@@ -66,6 +69,9 @@
 #include "storage/tableutil.h"
 #include "indexes/tableindex.h"
 #include "indexes/tableindexfactory.h"
+#include "indexes/indexkey.h"
+#include "indexes/CompactingTreeUniqueIndex.h"
+#include "indexes/CompactingTreeMultiMapIndex.h"
 #include "execution/VoltDBEngine.h"
 #include "common/ThreadLocalPool.h"
 #include "common/FixUnusedAssertHack.h"
@@ -385,6 +391,84 @@ public:
                         .op_equals(tuple.getNValue(i)).isTrue());
     }
 
+    static double secondsSince(const timeval &start) {
+        timeval now;
+        gettimeofday(&now, NULL);
+        return static_cast<double>(now.tv_sec - start.tv_sec) +
+            static_cast<double>(now.tv_usec - start.tv_usec) / 1000000.0;
+    }
+
+    /*
+     * Time inserting rows (with the given schema) into index, point lookups, short range scans and
+     * deleting the rows again, printing the throughput of each. Returns a
+     * checksum of what the lookups and scans found, which should not depend
+     * on how the index is implemented.
+     */
+    int64_t benchmarkTreeIndex(TableIndex *index, const TupleSchema *schema, char *rows, int rowCount, int keyCount)
+    {
+        const int LOOKUPS = rowCount;
+        const int SCANS = rowCount / 10;
+        const int SCAN_LENGTH = 100;
+
+        TableTuple tuple(schema);
+        TableTuple searchKey(index->getKeySchema());
+        char searchKeyStorage[searchKey.tupleLength()];
+        searchKey.move(searchKeyStorage);
+        int64_t checksum = 0;
+        timeval start;
+
+        gettimeofday(&start, NULL);
+        for (int i = 0; i < rowCount; i++) {
+            tuple.move(rows + i * tuple.tupleLength());
+            index->addEntry(&tuple);
+        }
+        double insertSeconds = secondsSince(start);
+        int64_t memory = index->getMemoryEstimate();
+
+        srand(1);
+        gettimeofday(&start, NULL);
+        for (int i = 0; i < LOOKUPS; i++) {
+            searchKey.setNValue(0, ValueFactory::getBigIntValue(rand() % keyCount));
+            if (index->moveToKey(&searchKey)) {
+                for (tuple = index->nextValueAtKey(); !tuple.isNullTuple(); tuple = index->nextValueAtKey()) {
+                    checksum++;
+                }
+            }
+        }
+        double lookupSeconds = secondsSince(start);
+
+        srand(2);
+        gettimeofday(&start, NULL);
+        for (int i = 0; i < SCANS; i++) {
+            searchKey.setNValue(0, ValueFactory::getBigIntValue(rand() % keyCount));
+            index->moveToKeyOrGreater(&searchKey);
+            for (int j = 0; j < SCAN_LENGTH; j++) {
+                tuple = index->nextValue();
+                if (tuple.isNullTuple()) {
+                    break;
+                }
+                checksum += ValuePeeker::peekAsBigInt(tuple.getNValue(0));
+            }
+        }
+        double scanSeconds = secondsSince(start);
+
+        gettimeofday(&start, NULL);
+        for (int i = 0; i < rowCount; i++) {
+            tuple.move(rows + i * tuple.tupleLength());
+            index->deleteEntry(&tuple);
+        }
+        double deleteSeconds = secondsSince(start);
+        EXPECT_EQ(0, index->getSize());
+
+        printf("%-30s %d rows, %d keys: %.0f inserts/s, %.0f lookups/s, %.0f scans/s, "
+               "%.0f deletes/s, %.1f MB\n",
+               index->getTypeName().c_str(), rowCount, keyCount,
+               rowCount / insertSeconds, LOOKUPS / lookupSeconds, SCANS / scanSeconds,
+               rowCount / deleteSeconds, static_cast<double>(memory) / (1024 * 1024));
+        fflush(stdout);
+        return checksum;
+    }
+
 protected:
     PersistentTable* table;
     char* m_exceptionBuffer;
@@ -818,6 +902,137 @@ TEST_F(IndexTest, TupleKeyUnique) {
     delete[] searchkey.address();
 }
 
+TEST_F(IndexTest, TreeMultiDistinctKeyCount) {
+    vector<int> ixm_column_indices;
+    vector<ValueType> ixm_column_types;
+    ixm_column_indices.push_back(1);
+    ixm_column_indices.push_back(2);
+    ixm_column_types.push_back(VALUE_TYPE_BIGINT);
+    ixm_column_types.push_back(VALUE_TYPE_BIGINT);
+    init("ixm_count",
+         BALANCED_TREE_INDEX,
+         ixm_column_indices,
+         ixm_column_types,
+         false);
+
+    TableIndex* index = table->index("ixm_count");
+    EXPECT_EQ(true, index != NULL);
+    // (i % 2, i % 3) takes every one of its 6 combinations
+    EXPECT_EQ(6, index->getDistinctKeyCount());
+
+    TableIndex* pkeyIndex = table->index("idx_pkey");
+    EXPECT_EQ(NUM_OF_TUPLES, pkeyIndex->getDistinctKeyCount());
+
+    // the count follows deletes: it only drops when the last (0, 0) goes
+    std::vector<void*> zeroes;
+    TableTuple tuple(table->schema());
+    TableIterator iter = table->iterator();
+    while (iter.next(tuple)) {
+        if (ValuePeeker::peekAsBigInt(tuple.getNValue(0)) % 6 == 0) {
+            zeroes.push_back(tuple.address());
+        }
+    }
+    ASSERT_TRUE(zeroes.size() > 1);
+    for (size_t i = 0; i < zeroes.size(); i++) {
+        tuple.move(zeroes[i]);
+        EXPECT_TRUE(table->deleteTuple(tuple, false));
+        EXPECT_EQ(i + 1 == zeroes.size() ? 5 : 6, index->getDistinctKeyCount());
+    }
+
+    // and inserts: only the first of a key adds to it
+    for (int64_t i = 0; i < 2; i++) {
+        TableTuple &newTuple = table->tempTuple();
+        newTuple.setNValue(0, ValueFactory::getBigIntValue(NUM_OF_TUPLES + 1 + i));
+        newTuple.setNValue(1, ValueFactory::getBigIntValue(0));
+        newTuple.setNValue(2, ValueFactory::getBigIntValue(0));
+        newTuple.setNValue(3, ValueFactory::getBigIntValue(0));
+        newTuple.setNValue(4, ValueFactory::getBigIntValue(0));
+        EXPECT_TRUE(table->insertTuple(newTuple));
+        EXPECT_EQ(6, index->getDistinctKeyCount());
+    }
+}
+
+TEST_F(IndexTest, HashMultiDistinctKeyCount) {
+    vector<int> ixm_column_indices;
+    vector<ValueType> ixm_column_types;
+    ixm_column_indices.push_back(2);
+    ixm_column_types.push_back(VALUE_TYPE_BIGINT);
+    init("ixh_count",
+         HASH_TABLE_INDEX,
+         ixm_column_indices,
+         ixm_column_types,
+         false);
+
+    TableIndex* index = table->index("ixh_count");
+    EXPECT_EQ(true, index != NULL);
+    EXPECT_EQ(3, index->getDistinctKeyCount());
+}
+
+/*
+ * Compares the B+tree that integer keyed tree indexes are built on with
+ * the red-black tree (CompactingMap) they used to be built on.
+ */
+TEST_F(IndexTest, TreeIndexBenchmark) {
+    const int ROWS = 500000;
+    // the multimap has 8 entries per key
+    const int MULTI_KEYS = ROWS / 8;
+
+    // a unique key and a non-unique one
+    vector<ValueType> columnTypes(2, VALUE_TYPE_BIGINT);
+    vector<int32_t> columnLengths(2, NValue::getTupleStorageSize(VALUE_TYPE_BIGINT));
+    vector<bool> columnAllowNull(2, false);
+    TupleSchema *schema = TupleSchema::createTupleSchema(columnTypes, columnLengths, columnAllowNull, true);
+
+    // rows in random key order
+    vector<int64_t> keys(ROWS);
+    for (int i = 0; i < ROWS; i++) {
+        keys[i] = i;
+    }
+    srand(0);
+    random_shuffle(keys.begin(), keys.end());
+    TableTuple tuple(schema);
+    char *rows = new char[ROWS * tuple.tupleLength()];
+    for (int i = 0; i < ROWS; i++) {
+        tuple.move(rows + i * tuple.tupleLength());
+        tuple.setNValue(0, ValueFactory::getBigIntValue(keys[i]));
+        tuple.setNValue(1, ValueFactory::getBigIntValue(keys[i] % MULTI_KEYS));
+    }
+
+    for (int column = 0; column < 2; column++) {
+        bool unique = (column == 0);
+        vector<int> columnIndices(1, column);
+        TableIndexScheme scheme("bench", BALANCED_TREE_INDEX, columnIndices,
+                                TableIndex::simplyIndexColumns(), unique, true, schema);
+
+        // the factory builds tree indexes on integer keys as B+trees
+        TableIndex *btree = TableIndexFactory::getInstance(scheme);
+        EXPECT_EQ(unique ? "CompactingBTreeUniqueIndex" : "CompactingBTreeMultiMapIndex",
+                  btree->getTypeName());
+
+        vector<ValueType> keyColumnTypes(1, VALUE_TYPE_BIGINT);
+        vector<int32_t> keyColumnLengths(1, NValue::getTupleStorageSize(VALUE_TYPE_BIGINT));
+        vector<bool> keyColumnAllowNull(1, true);
+        TupleSchema *keySchema = TupleSchema::createTupleSchema(keyColumnTypes, keyColumnLengths,
+                                                                keyColumnAllowNull, true);
+        TableIndex *rbtree;
+        if (unique) {
+            rbtree = new CompactingTreeUniqueIndex<IntsKey<1>, true>(keySchema, scheme);
+        } else {
+            rbtree = new CompactingTreeMultiMapIndex<IntsKey<1>, true>(keySchema, scheme);
+        }
+
+        int keyCount = unique ? ROWS : MULTI_KEYS;
+        int64_t rbtreeChecksum = benchmarkTreeIndex(rbtree, schema, rows, ROWS, keyCount);
+        int64_t btreeChecksum = benchmarkTreeIndex(btree, schema, rows, ROWS, keyCount);
+        EXPECT_EQ(rbtreeChecksum, btreeChecksum);
+        delete rbtree;
+        delete btree;
+    }
+
+    delete[] rows;
+    TupleSchema::freeTupleSchema(schema);
+}
+
 int main()
 {
     return TestSuite::globalInstance()->runAll();
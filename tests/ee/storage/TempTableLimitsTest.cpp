@@ -136,6 +136,43 @@ TEST_F(TempTableLimitsTest, CheckLimitException)
     EXPECT_TRUE(threw);
 }
 
+TEST_F(TempTableLimitsTest, CheckSpillLimit)
+{
+    TempTableLimits dut;
+    dut.setLogThreshold(-1);
+    dut.setMemoryLimit(1024 * 10);
+    EXPECT_FALSE(dut.isSpillEnabled());
+    dut.setSpillDirectory("/tmp");
+    EXPECT_FALSE(dut.isSpillEnabled());
+    dut.setSpillLimit(1024 * 10);
+    EXPECT_TRUE(dut.isSpillEnabled());
+
+    dut.increaseAllocated(1024 * 6);
+    EXPECT_TRUE(dut.hasRoomFor(1024 * 4));
+    EXPECT_FALSE(dut.hasRoomFor(1024 * 5));
+
+    dut.increaseSpilled(1024 * 6);
+    bool threw = false;
+    try
+    {
+        dut.increaseSpilled(1024 * 6);
+    }
+    catch (SQLException& sqle)
+    {
+        threw = true;
+    }
+    EXPECT_TRUE(threw);
+    // the failed increase is not counted
+    EXPECT_EQ(1024 * 6, dut.getSpilled());
+    EXPECT_EQ(1024 * 6, dut.getSpilledTotal());
+
+    // the running total survives giving back the spill space
+    dut.reduceSpilled(1024 * 6);
+    dut.increaseSpilled(1024 * 2);
+    EXPECT_EQ(1024 * 2, dut.getSpilled());
+    EXPECT_EQ(1024 * 8, dut.getSpilledTotal());
+}
+
 int main() {
     return TestSuite::globalInstance()->runAll();
 }
@@ -0,0 +1,427 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include <algorithm>
+#include <cctype>
+#include <cstdio>
+#include <cstdlib>
+#include <sstream>
+#include <string>
+#include <vector>
+#include <sys/time.h>
+
+#include "harness.h"
+
+#include "common/NValue.hpp"
+#include "common/SQLException.h"
+#include "common/TupleSchema.h"
+#include "common/ValueFactory.hpp"
+#include "common/ValuePeeker.hpp"
+#include "common/serializeio.h"
+#include "common/tabletuple.h"
+#include "execution/VoltDBEngine.h"
+#include "indexes/tableindex.h"
+#include "indexes/tableindexfactory.h"
+#include "storage/persistenttable.h"
+#include "storage/tablefactory.h"
+#include "storage/tableiterator.h"
+#include "storage/temptable.h"
+
+using namespace std;
+using namespace voltdb;
+
+/*
+ * Loads the same rows into a table in one call, which goes through the
+ * bulk path, and a few at a time, which doesn't, and checks that the
+ * tables and the reported violations come out the same.
+ */
+class BulkLoadTest : public Test {
+public:
+    BulkLoadTest() {
+        m_engine = new VoltDBEngine();
+        int partitionCount = 1;
+        m_engine->initialize(1, 1, 0, 0, "", DEFAULT_TEMP_TABLE_MEMORY);
+        m_engine->updateHashinator(HASHINATOR_LEGACY, (char*)&partitionCount, NULL, 0);
+        m_engine->setUndoToken(INT64_MIN + 1);
+        m_engine->getExecutorContext();
+
+        m_columnNames.push_back("ID");
+        m_columnNames.push_back("GRP");
+        m_columnNames.push_back("NAME");
+
+        vector<ValueType> columnTypes;
+        vector<int32_t> columnLengths;
+        vector<bool> columnAllowNull;
+        columnTypes.push_back(VALUE_TYPE_BIGINT);
+        columnLengths.push_back(NValue::getTupleStorageSize(VALUE_TYPE_BIGINT));
+        columnAllowNull.push_back(false);
+        columnTypes.push_back(VALUE_TYPE_INTEGER);
+        columnLengths.push_back(NValue::getTupleStorageSize(VALUE_TYPE_INTEGER));
+        columnAllowNull.push_back(true);
+        columnTypes.push_back(VALUE_TYPE_VARCHAR);
+        columnLengths.push_back(64);
+        columnAllowNull.push_back(false);
+        m_schema = TupleSchema::createTupleSchema(columnTypes, columnLengths, columnAllowNull, false);
+
+        m_rows = TableFactory::getTempTable(0, "ROWS", TupleSchema::createTupleSchema(m_schema),
+                                            m_columnNames, NULL);
+    }
+
+    ~BulkLoadTest() {
+        for (int i = 0; i < m_tables.size(); i++) {
+            delete m_tables[i];
+        }
+        delete m_rows;
+        delete m_engine;
+        TupleSchema::freeTupleSchema(m_schema);
+    }
+
+    // a unique B+tree index on ID, a tree index on GRP and a unique hash index on NAME
+    PersistentTable *createTable() {
+        PersistentTable *table = dynamic_cast<PersistentTable*>(
+            TableFactory::getPersistentTable(0, "T", TupleSchema::createTupleSchema(m_schema),
+                                             m_columnNames, 0));
+
+        vector<int> idColumns(1, 0);
+        vector<int> grpColumns(1, 1);
+        vector<int> nameColumns(1, 2);
+        TableIndex *pkey = TableIndexFactory::getInstance(
+            TableIndexScheme("T_PK", BALANCED_TREE_INDEX, idColumns,
+                             TableIndex::simplyIndexColumns(), true, true, table->schema()));
+        table->addIndex(pkey);
+        table->setPrimaryKeyIndex(pkey);
+        table->addIndex(TableIndexFactory::getInstance(
+            TableIndexScheme("T_GRP", BALANCED_TREE_INDEX, grpColumns,
+                             TableIndex::simplyIndexColumns(), false, true, table->schema())));
+        table->addIndex(TableIndexFactory::getInstance(
+            TableIndexScheme("T_NAME", HASH_TABLE_INDEX, nameColumns,
+                             TableIndex::simplyIndexColumns(), true, false, table->schema())));
+        m_tables.push_back(table);
+        return table;
+    }
+
+    void addRow(Table *table, int64_t id, int grpValue, int nameValue) {
+        TableTuple &tuple = table->tempTuple();
+        tuple.setNValue(0, ValueFactory::getBigIntValue(id));
+        tuple.setNValue(1, grpValue < 0 ? NValue::getNullValue(VALUE_TYPE_INTEGER) :
+                                          ValueFactory::getIntegerValue(grpValue));
+        if (nameValue < 0) {
+            tuple.setNValue(2, NValue::getNullValue(VALUE_TYPE_VARCHAR));
+        } else {
+            // the column isn't inlined, so the temp table's row keeps this string
+            char buffer[32];
+            snprintf(buffer, 32, "name%d", nameValue);
+            tuple.setNValue(2, ValueFactory::getStringValue(buffer));
+        }
+        table->insertTuple(tuple);
+    }
+
+    // rows that clash with each other, with the first 100 ids, or have a NULL name
+    void generateRows(int rowCount) {
+        srand(0);
+        for (int i = 0; i < rowCount; i++) {
+            addRow(m_rows, rand() % (rowCount * 3 / 2), rand() % 11 - 1,
+                   rand() % 50 == 0 ? -1 : rand() % (rowCount * 2));
+        }
+    }
+
+    void prepopulate(PersistentTable *table) {
+        for (int i = 0; i < 100; i++) {
+            addRow(table, i, i % 10, 100000 + i);
+        }
+    }
+
+    // drop the addresses that debug output has in it
+    static string withoutAddresses(const string &text) {
+        string result;
+        for (size_t i = 0; i < text.size(); i++) {
+            result += text[i];
+            if (text[i] == '@') {
+                while (i + 1 < text.size() && isdigit(text[i + 1])) {
+                    i++;
+                }
+            }
+        }
+        return result;
+    }
+
+    // the row's values, without the string addresses debugNoHeader() has
+    static string describe(const TableTuple &tuple) {
+        ostringstream buffer;
+        for (int i = 0; i < 2; i++) {
+            if (tuple.isNull(i)) {
+                buffer << "<NULL>,";
+            } else {
+                buffer << ValuePeeker::peekAsBigInt(tuple.getNValue(i)) << ",";
+            }
+        }
+        if (tuple.isNull(2)) {
+            buffer << "<NULL>";
+        } else {
+            buffer << ValuePeeker::peekStringCopy(tuple.getNValue(2));
+        }
+        return buffer.str();
+    }
+
+    // serialize m_rows chunkSize rows at a time, the way tables are sent to the EE
+    void serializeChunks(int chunkSize, vector<string> &chunks) {
+        TableIterator iterator = m_rows->iterator();
+        TableTuple tuple(m_rows->schema());
+        bool more = iterator.next(tuple);
+        while (more) {
+            TempTable *chunk = TableFactory::getTempTable(0, "CHUNK", TupleSchema::createTupleSchema(m_schema),
+                                                          m_columnNames, NULL);
+            for (int i = 0; i < chunkSize && more; i++) {
+                chunk->insertTuple(tuple);
+                more = iterator.next(tuple);
+            }
+            CopySerializeOutput out;
+            chunk->serializeTo(out);
+            chunks.push_back(string(static_cast<const char*>(out.data()), out.size()));
+            delete chunk;
+        }
+    }
+
+    // load the chunks into table, collecting violations
+    void load(PersistentTable *table, vector<string> &chunks,
+              vector<string> &violations) {
+        vector<char> buffer(1024 * 1024);
+        for (int c = 0; c < chunks.size(); c++) {
+            ReferenceSerializeInput serializeIn(chunks[c].data() + sizeof(int32_t),
+                                                chunks[c].size() - sizeof(int32_t));
+            ReferenceSerializeOutput out(&buffer[0], buffer.size());
+            table->loadTuplesFrom(serializeIn, NULL, &out);
+
+            ReferenceSerializeInput result(&buffer[0], out.position());
+            if (result.readInt() > 0) {
+                TempTable *rejected = TableFactory::getTempTable(0, "REJECTED",
+                                                                 TupleSchema::createTupleSchema(m_schema),
+                                                                 m_columnNames, NULL);
+                rejected->loadTuplesFrom(result, NULL);
+                TableIterator iterator = rejected->iterator();
+                TableTuple tuple(rejected->schema());
+                while (iterator.next(tuple)) {
+                    violations.push_back(describe(tuple));
+                }
+                delete rejected;
+            }
+        }
+    }
+
+    void load(PersistentTable *table, int chunkSize, vector<string> &violations) {
+        vector<string> chunks;
+        serializeChunks(chunkSize, chunks);
+        load(table, chunks, violations);
+    }
+
+    // load m_rows into table chunkSize rows at a time until one fails
+    string loadUntilViolation(PersistentTable *table, int chunkSize) {
+        vector<string> chunks;
+        serializeChunks(chunkSize, chunks);
+        for (int c = 0; c < chunks.size(); c++) {
+            ReferenceSerializeInput serializeIn(chunks[c].data() + sizeof(int32_t),
+                                                chunks[c].size() - sizeof(int32_t));
+            try {
+                table->loadTuplesFrom(serializeIn, NULL, NULL);
+            } catch (SQLException &e) {
+                return e.message();
+            }
+        }
+        return "";
+    }
+
+    vector<string> contents(PersistentTable *table) {
+        vector<string> rows;
+        TableIterator iterator = table->iterator();
+        TableTuple tuple(table->schema());
+        while (iterator.next(tuple)) {
+            rows.push_back(describe(tuple));
+        }
+        sort(rows.begin(), rows.end());
+        return rows;
+    }
+
+    void expectSameTables(PersistentTable *expected, PersistentTable *actual) {
+        EXPECT_EQ(expected->activeTupleCount(), actual->activeTupleCount());
+        EXPECT_EQ(expected->nonInlinedMemorySize(), actual->nonInlinedMemorySize());
+        EXPECT_TRUE(contents(expected) == contents(actual));
+        for (int i = 0; i < expected->indexCount(); i++) {
+            EXPECT_EQ(expected->allIndexes()[i]->getSize(), actual->allIndexes()[i]->getSize());
+            EXPECT_EQ(expected->allIndexes()[i]->getDistinctKeyCount(),
+                      actual->allIndexes()[i]->getDistinctKeyCount());
+        }
+
+        // every row can be found through every index
+        TableIterator iterator = actual->iterator();
+        TableTuple tuple(actual->schema());
+        while (iterator.next(tuple)) {
+            for (int i = 0; i < actual->indexCount(); i++) {
+                EXPECT_TRUE(actual->allIndexes()[i]->exists(&tuple));
+            }
+        }
+    }
+
+    VoltDBEngine *m_engine;
+    TupleSchema *m_schema;
+    vector<string> m_columnNames;
+    TempTable *m_rows;
+    vector<PersistentTable*> m_tables;
+};
+
+TEST_F(BulkLoadTest, ViolationsMatchTupleAtATime) {
+    generateRows(2000);
+
+    PersistentTable *expected = createTable();
+    PersistentTable *actual = createTable();
+    prepopulate(expected);
+    prepopulate(actual);
+
+    vector<string> expectedViolations;
+    vector<string> actualViolations;
+    load(expected, 1, expectedViolations);
+    load(actual, 2000, actualViolations);
+
+    EXPECT_TRUE(expectedViolations.size() > 0);
+    EXPECT_TRUE(expectedViolations == actualViolations);
+    expectSameTables(expected, actual);
+
+    // and again into tables that start out empty
+    PersistentTable *expectedEmpty = createTable();
+    PersistentTable *actualEmpty = createTable();
+    expectedViolations.clear();
+    actualViolations.clear();
+    load(expectedEmpty, 1, expectedViolations);
+    load(actualEmpty, 2000, actualViolations);
+    EXPECT_TRUE(expectedViolations == actualViolations);
+    expectSameTables(expectedEmpty, actualEmpty);
+}
+
+TEST_F(BulkLoadTest, FirstViolationMatchesTupleAtATime) {
+    generateRows(2000);
+
+    PersistentTable *expected = createTable();
+    PersistentTable *actual = createTable();
+    prepopulate(expected);
+    prepopulate(actual);
+
+    string expectedMessage = loadUntilViolation(expected, 1);
+    string actualMessage = loadUntilViolation(actual, 2000);
+    EXPECT_TRUE(expectedMessage.size() > 0);
+    EXPECT_EQ(withoutAddresses(expectedMessage), withoutAddresses(actualMessage));
+    expectSameTables(expected, actual);
+
+    // the accepted rows go away with the transaction
+    m_engine->undoUndoToken(INT64_MIN + 1);
+    EXPECT_EQ(0, actual->activeTupleCount());
+    for (int i = 0; i < actual->indexCount(); i++) {
+        EXPECT_EQ(0, actual->allIndexes()[i]->getSize());
+    }
+}
+
+TEST_F(BulkLoadTest, DeserializationErrorHidesLaterViolation) {
+    PersistentTable *table = createTable();
+    prepopulate(table);
+
+    // the same columns, but with room for a name too long for the table
+    vector<ValueType> columnTypes;
+    vector<int32_t> columnLengths;
+    vector<bool> columnAllowNull(3, true);
+    for (int i = 0; i < 3; i++) {
+        columnTypes.push_back(m_schema->columnType(i));
+        columnLengths.push_back(m_schema->columnLength(i));
+    }
+    columnLengths[2] = 256;
+    TempTable *wide = TableFactory::getTempTable(0, "WIDE",
+                                                 TupleSchema::createTupleSchema(columnTypes, columnLengths,
+                                                                                columnAllowNull, false),
+                                                 m_columnNames, NULL);
+
+    // the first row clashes with a prepopulated one, which only the bulk
+    // load finds, after the too long name has failed to deserialize
+    addRow(wide, 0, 0, 0);
+    for (int i = 1; i < 100; i++) {
+        addRow(wide, 1000 + i, 0, 1000 + i);
+    }
+    TableTuple &tuple = wide->tempTuple();
+    tuple.setNValue(0, ValueFactory::getBigIntValue(2000));
+    tuple.setNValue(1, ValueFactory::getIntegerValue(0));
+    tuple.setNValue(2, ValueFactory::getStringValue(string(100, 'x')));
+    wide->insertTuple(tuple);
+
+    CopySerializeOutput out;
+    wide->serializeTo(out);
+    delete wide;
+    ReferenceSerializeInput serializeIn(static_cast<const char*>(out.data()) + sizeof(int32_t),
+                                        out.size() - sizeof(int32_t));
+    string message;
+    try {
+        table->loadTuplesFrom(serializeIn, NULL, NULL);
+    } catch (SQLException &e) {
+        message = e.message();
+    }
+    EXPECT_NE(string::npos, message.find("exceeds specified size"));
+    EXPECT_EQ(100, table->activeTupleCount());
+}
+
+TEST_F(BulkLoadTest, LoadBenchmark) {
+    const int rowCount = 200000;
+    vector<int> ids;
+    for (int i = 0; i < rowCount; i++) {
+        ids.push_back(i);
+    }
+    srand(0);
+    random_shuffle(ids.begin(), ids.end());
+    for (int i = 0; i < rowCount; i++) {
+        addRow(m_rows, ids[i], ids[i] % 100, ids[i]);
+    }
+
+    PersistentTable *tupleAtATime = createTable();
+    PersistentTable *bulk = createTable();
+    vector<string> smallChunks;
+    vector<string> oneChunk;
+    serializeChunks(32, smallChunks);
+    serializeChunks(rowCount, oneChunk);
+    vector<string> violations;
+
+    timeval start;
+    timeval end;
+    gettimeofday(&start, NULL);
+    load(tupleAtATime, smallChunks, violations);
+    gettimeofday(&end, NULL);
+    double tupleAtATimeSeconds = (end.tv_sec - start.tv_sec) + (end.tv_usec - start.tv_usec) / 1e6;
+
+    gettimeofday(&start, NULL);
+    load(bulk, oneChunk, violations);
+    gettimeofday(&end, NULL);
+    double bulkSeconds = (end.tv_sec - start.tv_sec) + (end.tv_usec - start.tv_usec) / 1e6;
+
+    EXPECT_EQ(0, violations.size());
+    EXPECT_EQ(rowCount, bulk->activeTupleCount());
+    EXPECT_EQ(rowCount, tupleAtATime->activeTupleCount());
+    printf("loading %d rows: %.0f rows/s a chunk of 32 at a time, %.0f rows/s in one load\n",
+           rowCount, rowCount / tupleAtATimeSeconds, rowCount / bulkSeconds);
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
@@ -252,6 +252,33 @@ TEST_F(PersistentTableLogTest, LoadTableThenReleaseTest) {
     ASSERT_TRUE(m_table->activeTupleCount() == (int64_t)1000);
 }
 
+TEST_F(PersistentTableLogTest, LoadTableWithDuplicatesThenUndoTest) {
+    initTable(true);
+    tableutil::addRandomTuples(m_table, 1000);
+
+    CopySerializeOutput serialize_out;
+    m_table->serializeTo(serialize_out);
+
+    m_engine->setUndoToken(INT64_MIN + 2);
+    // this next line is a testing hack until engine data is
+    // de-duplicated with executorcontext data
+    m_engine->getExecutorContext();
+
+    // every row is already there, so the load fails on the first one
+    ReferenceSerializeInput serialize_in(serialize_out.data() + sizeof(int32_t), serialize_out.size() - sizeof(int32_t));
+    bool failed = false;
+    try {
+        m_table->loadTuplesFrom(serialize_in, NULL, NULL);
+    } catch (SQLException &e) {
+        failed = true;
+    }
+    ASSERT_TRUE(failed);
+
+    // the rejected row must not be left behind
+    m_engine->undoUndoToken(INT64_MIN + 2);
+    ASSERT_TRUE(m_table->activeTupleCount() == (int64_t)1000);
+}
+
 TEST_F(PersistentTableLogTest, InsertUpdateThenUndoOneTest) {
     initTable(true);
     tableutil::addRandomTuples(m_table, 1);
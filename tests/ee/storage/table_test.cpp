@@ -187,6 +187,59 @@ TEST_F(TableTest, TupleInsert) {
     }
 }
 
+TEST_F(TableTest, TempTableSpill) {
+    //
+    // Cap a spilling temp table at a few blocks and make sure the rest
+    // of its tuples go to disk and come back in insertion order
+    //
+    TempTableLimits spillLimits;
+    spillLimits.setMemoryLimit(temp_table->getTableAllocationSize() * 3);
+    spillLimits.setSpillDirectory("/tmp");
+    spillLimits.setSpillLimit(1024 * 1024 * 64);
+
+    TempTable* spill_table =
+        TableFactory::getCopiedTempTable(1000, "spill_table", temp_table, &spillLimits);
+    spill_table->enableSpilling();
+
+    const int64_t tupleCount = NUM_OF_TUPLES * 10;
+    TableTuple &temp_tuple = spill_table->tempTuple();
+    for (int64_t ii = 0; ii < tupleCount; ii++) {
+        ASSERT_EQ(true, tableutil::setRandomTupleValues(spill_table, &temp_tuple));
+        temp_tuple.setNValue(0, ValueFactory::getBigIntValue(ii));
+        ASSERT_EQ(true, spill_table->insertTuple(temp_tuple));
+    }
+    EXPECT_TRUE(spill_table->hasSpilled());
+    EXPECT_TRUE(spillLimits.getSpilled() > 0);
+    EXPECT_TRUE(spillLimits.getAllocated() <= spillLimits.getMemoryLimit());
+    EXPECT_EQ(tupleCount, spill_table->activeTupleCount());
+
+    // The block read back from disk counts against the limit
+    // while the iterator holds it, and still fits.
+    const int64_t allocated = spillLimits.getAllocated();
+    int64_t expected = 0;
+    {
+        TableIterator iterator = spill_table->iterator();
+        TableTuple tuple(spill_table->schema());
+        while (iterator.next(tuple)) {
+            EXPECT_EQ(expected, ValuePeeker::peekAsBigInt(tuple.getNValue(0)));
+            if (expected == 0) {
+                EXPECT_EQ(allocated + spill_table->getTableAllocationSize(), spillLimits.getAllocated());
+            }
+            EXPECT_TRUE(spillLimits.getAllocated() <= spillLimits.getMemoryLimit());
+            ++expected;
+        }
+    }
+    EXPECT_EQ(tupleCount, expected);
+    EXPECT_EQ(allocated, spillLimits.getAllocated());
+
+    spill_table->deleteAllTuples(false);
+    EXPECT_FALSE(spill_table->hasSpilled());
+    EXPECT_EQ(0, spillLimits.getSpilled());
+    EXPECT_TRUE(spillLimits.getSpilledTotal() > 0);
+    EXPECT_EQ(0, spill_table->activeTupleCount());
+    delete spill_table;
+}
+
 /* updateTuple in TempTable is not supported because it is not required in the product.
 TEST_F(TableTest, TupleUpdate) {
     //
@@ -0,0 +1,367 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+#include <map>
+#include <vector>
+#include <cstdlib>
+#include <cstdio>
+#include "harness.h"
+#include "structures/CompactingBTree.h"
+#include "common/FixUnusedAssertHack.h"
+
+using namespace voltdb;
+using namespace std;
+
+class IntComparator {
+public:
+    inline int operator()(const int &lhs, const int &rhs) const {
+        if (lhs > rhs) return 1;
+        else if (lhs < rhs) return -1;
+        else return 0;
+    }
+};
+
+typedef CompactingBTree<int, int, IntComparator, false> IntTree;
+typedef CompactingBTree<int, int, IntComparator, true> RankedIntTree;
+
+class CompactingBTreeTest : public Test {
+public:
+    CompactingBTreeTest() {
+    }
+
+    ~CompactingBTreeTest() {
+    }
+
+    // walks both in order and compares every entry
+    template<typename Tree, typename STLMap>
+    bool sameContents(Tree &volt, STLMap &stl) {
+        if (static_cast<int64_t>(stl.size()) != volt.size()) {
+            return false;
+        }
+        typename Tree::iterator volti = volt.begin();
+        for (typename STLMap::iterator stli = stl.begin(); stli != stl.end(); stli++) {
+            if (volti.isEnd() || volti.key() != stli->first || volti.value() != stli->second) {
+                return false;
+            }
+            volti.moveNext();
+        }
+        return volti.isEnd();
+    }
+};
+
+TEST_F(CompactingBTreeTest, Trivial) {
+    IntTree m(true, IntComparator());
+    ASSERT_TRUE(m.verify());
+    ASSERT_TRUE(m.begin().isEnd());
+    ASSERT_TRUE(m.find(1).isEnd());
+    ASSERT_TRUE(m.lowerBound(1).isEnd());
+
+    ASSERT_TRUE(m.insert(std::pair<int,int>(2,2)));
+    ASSERT_TRUE(m.insert(std::pair<int,int>(1,1)));
+    ASSERT_TRUE(m.insert(std::pair<int,int>(3,3)));
+    ASSERT_FALSE(m.insert(std::pair<int,int>(3,4)));
+    ASSERT_TRUE(m.verify());
+    ASSERT_EQ(3, m.size());
+    ASSERT_EQ(1, m.begin().key());
+    ASSERT_EQ(3, m.rbegin().key());
+    ASSERT_EQ(3, m.find(3).value());
+
+    // no counters without rank support
+    ASSERT_EQ(-1, m.rankAsc(2));
+    ASSERT_TRUE(m.findRank(1).isEnd());
+
+    IntTree m2(false, IntComparator());
+    for (int i = 0; i < 7; i++) {
+        ASSERT_TRUE(m2.insert(std::pair<int,int>(1,i)));
+    }
+    ASSERT_TRUE(m2.verify());
+    // duplicates come out in insertion order
+    IntTree::iterator iter = m2.find(1);
+    for (int i = 0; i < 7; i++) {
+        ASSERT_EQ(i, iter.value());
+        iter.moveNext();
+    }
+    ASSERT_TRUE(iter.isEnd());
+
+    ASSERT_TRUE(m.erase(2));
+    ASSERT_FALSE(m.erase(2));
+    ASSERT_TRUE(m.erase(1));
+    ASSERT_TRUE(m.erase(3));
+    ASSERT_EQ(0, m.size());
+    ASSERT_EQ(0, m.bytesAllocated());
+    ASSERT_TRUE(m.verify());
+}
+
+TEST_F(CompactingBTreeTest, Iteration) {
+    const int COUNT = 10000;
+    IntTree volt(true, IntComparator());
+    for (int i = 0; i < COUNT; i++) {
+        ASSERT_TRUE(volt.insert(i * 2, i));
+    }
+    ASSERT_TRUE(volt.verify());
+
+    IntTree::iterator iter = volt.begin();
+    for (int i = 0; i < COUNT; i++) {
+        ASSERT_EQ(i * 2, iter.key());
+        iter.moveNext();
+    }
+    ASSERT_TRUE(iter.isEnd());
+    // moving an end iterator leaves it at the end
+    iter.movePrev();
+    ASSERT_TRUE(iter.isEnd());
+
+    iter = volt.rbegin();
+    for (int i = COUNT - 1; i >= 0; i--) {
+        ASSERT_EQ(i * 2, iter.key());
+        iter.movePrev();
+    }
+    ASSERT_TRUE(iter.isEnd());
+
+    for (int i = -1; i < COUNT * 2 + 1; i++) {
+        IntTree::iterator lower = volt.lowerBound(i);
+        IntTree::iterator upper = volt.upperBound(i);
+        int expectedLower = i < 0 ? 0 : (i + 1) / 2 * 2;
+        int expectedUpper = i < 0 ? 0 : (i / 2 + 1) * 2;
+        if (expectedLower >= COUNT * 2) {
+            ASSERT_TRUE(lower.isEnd());
+        } else {
+            ASSERT_EQ(expectedLower, lower.key());
+        }
+        if (expectedUpper >= COUNT * 2) {
+            ASSERT_TRUE(upper.isEnd());
+        } else {
+            ASSERT_EQ(expectedUpper, upper.key());
+        }
+        ASSERT_EQ(i % 2 == 0 && i >= 0 && i < COUNT * 2, !volt.find(i).isEnd());
+    }
+}
+
+TEST_F(CompactingBTreeTest, RandomUnique) {
+    const int ITERATIONS = 200000;
+    const int BIGGEST_VAL = 20000;
+
+    std::map<int,int> stl;
+    RankedIntTree volt(true, IntComparator());
+    ASSERT_TRUE(volt.verify());
+
+    srand(0);
+
+    for (int i = 0; i < ITERATIONS; i++) {
+        if ((i % 20000) == 0) {
+            ASSERT_TRUE(volt.verify());
+            ASSERT_TRUE(sameContents(volt, stl));
+        }
+
+        // lean towards inserting in the first half, deleting in the second
+        bool insert = (rand() % 100) < (i < ITERATIONS / 2 ? 70 : 30);
+        int val = rand() % BIGGEST_VAL;
+        std::map<int,int>::iterator stli = stl.find(val);
+        RankedIntTree::iterator volti = volt.find(val);
+        ASSERT_EQ(stli == stl.end(), volti.isEnd());
+        if (insert) {
+            bool success = volt.insert(val, i);
+            ASSERT_EQ(stli == stl.end(), success);
+            stl.insert(std::pair<int,int>(val, i));
+        }
+        else {
+            bool success = volt.erase(val);
+            ASSERT_EQ(stli != stl.end(), success);
+            stl.erase(val);
+        }
+    }
+
+    ASSERT_TRUE(volt.verify());
+    ASSERT_TRUE(volt.verifyRank());
+    ASSERT_TRUE(sameContents(volt, stl));
+}
+
+TEST_F(CompactingBTreeTest, RandomMulti) {
+    const int ITERATIONS = 200000;
+    const int BIGGEST_VAL = 500;
+
+    std::multimap<int,int> stl;
+    RankedIntTree volt(false, IntComparator());
+
+    srand(0);
+
+    for (int i = 0; i < ITERATIONS; i++) {
+        if ((i % 20000) == 0) {
+            ASSERT_TRUE(volt.verify());
+            ASSERT_TRUE(sameContents(volt, stl));
+        }
+
+        int op = rand() % 100;
+        int val = rand() % BIGGEST_VAL;
+        if (op < (i < ITERATIONS / 2 ? 60 : 35)) {
+            stl.insert(std::pair<int,int>(val, i));
+            ASSERT_TRUE(volt.insert(val, i));
+        }
+        else if (op < 80) {
+            // erase the first entry for the key
+            std::multimap<int,int>::iterator stli = stl.find(val);
+            bool success = volt.erase(val);
+            ASSERT_EQ(stli != stl.end(), success);
+            if (stli != stl.end()) {
+                stl.erase(stli);
+            }
+        }
+        else if (op < 90) {
+            // erase the last entry for the key, by iterator
+            std::pair<std::multimap<int,int>::iterator, std::multimap<int,int>::iterator> range = stl.equal_range(val);
+            RankedIntTree::iterator volti = volt.upperBound(val);
+            if (volti.isEnd()) {
+                volti = volt.rbegin();
+            } else {
+                volti.movePrev();
+            }
+            if (range.first == range.second) {
+                ASSERT_TRUE(volti.isEnd() || volti.key() != val);
+            }
+            else {
+                range.second--;
+                ASSERT_EQ(val, volti.key());
+                ASSERT_EQ(range.second->second, volti.value());
+                stl.erase(range.second);
+                ASSERT_TRUE(volt.erase(volti));
+            }
+        }
+        else {
+            // ranks are 1 + entries before the key, and the entries up to the key
+            std::multimap<int,int>::iterator lower = stl.lower_bound(val);
+            std::multimap<int,int>::iterator upper = stl.upper_bound(val);
+            if (lower == upper) {
+                ASSERT_EQ(-1, volt.rankAsc(val));
+                ASSERT_EQ(-1, volt.rankUpper(val));
+            }
+            else {
+                int64_t before = std::distance(stl.begin(), lower);
+                int64_t upTo = std::distance(stl.begin(), upper);
+                ASSERT_EQ(before + 1, volt.rankAsc(val));
+                ASSERT_EQ(upTo, volt.rankUpper(val));
+                ASSERT_EQ(val, volt.findRank(before + 1).key());
+                ASSERT_EQ(val, volt.findRank(upTo).key());
+            }
+        }
+    }
+
+    ASSERT_TRUE(volt.verify());
+    ASSERT_TRUE(volt.verifyRank());
+    ASSERT_TRUE(sameContents(volt, stl));
+}
+
+TEST_F(CompactingBTreeTest, SortedBuild) {
+    const int sizes[] = { 0, 1, 7, 60, 61, 1000, 4321, 100000 };
+    for (int s = 0; s < sizeof(sizes) / sizeof(sizes[0]); s++) {
+        // keys with runs of duplicates, values in order within each run
+        std::vector<std::pair<int,int> > entries;
+        std::multimap<int,int> stl;
+        for (int i = 0; i < sizes[s]; i++) {
+            entries.push_back(std::pair<int,int>(i / 3, i));
+            stl.insert(entries.back());
+        }
+        RankedIntTree volt(false, IntComparator());
+        volt.insertSorted(entries.begin(), entries.end());
+        ASSERT_TRUE(volt.verify());
+        ASSERT_TRUE(volt.verifyRank());
+        ASSERT_TRUE(sameContents(volt, stl));
+        if (sizes[s] > 0) {
+            ASSERT_EQ(1, volt.rankAsc(0));
+            ASSERT_EQ(sizes[s], volt.rankUpper((sizes[s] - 1) / 3));
+        }
+
+        // stays a well formed tree through later changes
+        for (int i = 0; i < sizes[s] / 2; i++) {
+            int key = rand() % (sizes[s] / 3 + 1);
+            if (rand() % 2 == 0) {
+                volt.insert(key, -i);
+                stl.insert(std::pair<int,int>(key, -i));
+            }
+            else if (volt.erase(key)) {
+                stl.erase(stl.find(key));
+            }
+        }
+        ASSERT_TRUE(volt.verify());
+        ASSERT_TRUE(volt.verifyRank());
+        ASSERT_TRUE(sameContents(volt, stl));
+
+        // and a non-empty tree takes the entries one at a time
+        std::vector<std::pair<int,int> > more;
+        for (int i = 0; i < 100; i++) {
+            more.push_back(std::pair<int,int>(i * 7, sizes[s] + i));
+            stl.insert(more.back());
+        }
+        volt.insertSorted(more.begin(), more.end());
+        ASSERT_TRUE(volt.verify());
+        ASSERT_TRUE(sameContents(volt, stl));
+    }
+
+    IntTree unique(true, IntComparator());
+    std::vector<std::pair<int,int> > entries;
+    for (int i = 0; i < 50000; i++) {
+        entries.push_back(std::pair<int,int>(i * 2, i));
+    }
+    unique.insertSorted(entries.begin(), entries.end());
+    ASSERT_TRUE(unique.verify());
+    ASSERT_FALSE(unique.insert(std::pair<int,int>(100, 0)));
+    ASSERT_TRUE(unique.insert(std::pair<int,int>(101, 0)));
+    ASSERT_EQ(101, unique.find(101).key());
+    ASSERT_TRUE(unique.verify());
+}
+
+TEST_F(CompactingBTreeTest, Compaction) {
+    const int COUNT = 200000;
+    IntTree volt(false, IntComparator());
+    ASSERT_EQ(0, volt.bytesAllocated());
+
+    for (int i = 0; i < COUNT; i++) {
+        volt.insert(rand() % COUNT, i);
+    }
+    ASSERT_TRUE(volt.verify());
+    size_t full = volt.bytesAllocated();
+
+    // deleting most entries gives back most of the memory
+    for (int i = 0; i < COUNT * 9 / 10; i++) {
+        IntTree::iterator iter = volt.begin();
+        for (int j = rand() % 10; j > 0; j--) {
+            iter.moveNext();
+        }
+        volt.erase(iter);
+        if ((i % 10000) == 0) {
+            ASSERT_TRUE(volt.verify());
+        }
+    }
+    ASSERT_TRUE(volt.verify());
+    ASSERT_EQ(COUNT / 10, volt.size());
+    ASSERT_TRUE(volt.bytesAllocated() < full / 4);
+
+    while (volt.size() > 0) {
+        IntTree::iterator iter = volt.rbegin();
+        volt.erase(iter);
+    }
+    ASSERT_TRUE(volt.verify());
+    ASSERT_EQ(0, volt.bytesAllocated());
+}
+
+int main() {
+    return TestSuite::globalInstance()->runAll();
+}
@@ -56,7 +56,12 @@ public class TestHostMessenger {
     }
 
     private HostMessenger createHostMessenger(int index, boolean start) throws Exception {
+        return createHostMessenger(index, start, 1);
+    }
+
+    private HostMessenger createHostMessenger(int index, boolean start, int connectionsPerHost) throws Exception {
         HostMessenger.Config config = new HostMessenger.Config();
+        config.connectionsPerHost = connectionsPerHost;
         config.internalPort = config.internalPort + index;
         config.zkInterface = "127.0.0.1:" + (2181 + index);
         HostMessenger hm = new HostMessenger(config);
@@ -166,4 +171,44 @@ public class TestHostMessenger {
         hm3.waitForGroupJoin(2);
     }
 
+    @Test
+    public void testStripedConnections() throws Exception {
+        final int connections = 3;
+        final int sites = 5;
+        final int messages = 200;
+        HostMessenger hm1 = createHostMessenger(0, true, connections);
+        HostMessenger hm2 = createHostMessenger(1, true, connections);
+
+        assertEquals(connections, hm1.m_foreignHosts.get(hm2.getHostId()).getConnectionCount());
+        assertEquals(connections, hm2.m_foreignHosts.get(hm1.getHostId()).getConnectionCount());
+
+        Mailbox source = hm1.createMailbox();
+        Mailbox destinations[] = new Mailbox[sites];
+        long destinationHSIds[] = new long[sites];
+        for (int ii = 0; ii < sites; ii++) {
+            destinations[ii] = hm2.createMailbox();
+            destinationHSIds[ii] = destinations[ii].getHSId();
+        }
+
+        // messages to one site and to all of them, each site must see them in order
+        for (int ii = 0; ii < messages; ii++) {
+            byte payload[] = new byte[] { (byte)ii };
+            if (ii % 2 == 0) {
+                source.send(destinationHSIds, new BinaryPayloadMessage(new byte[0], payload));
+            } else {
+                for (long hsId : destinationHSIds) {
+                    source.send(hsId, new BinaryPayloadMessage(new byte[0], payload));
+                }
+            }
+        }
+        for (Mailbox destination : destinations) {
+            for (int ii = 0; ii < messages; ii++) {
+                BinaryPayloadMessage bpm = (BinaryPayloadMessage)destination.recvBlocking(10000);
+                assertNotNull(bpm);
+                assertEquals(source.getHSId(), bpm.m_sourceHSId);
+                assertEquals((byte)ii, bpm.m_payload[0]);
+            }
+        }
+    }
+
 }
@@ -50,6 +50,7 @@
 
 package org.voltcore.network;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
@@ -60,8 +61,11 @@ import java.nio.channels.SelectionKey;
 
 import junit.framework.TestCase;
 
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltcore.utils.DirectDeferredSerialization;
 import org.voltcore.utils.EstTime;
 import org.voltcore.utils.EstTimeUpdater;
+import org.voltcore.utils.GatheringDeferredSerialization;
 
 public class TestNIOWriteStream extends TestCase {
 
@@ -132,7 +136,10 @@ public class TestNIOWriteStream extends TestCase {
             }
             if (m_behavior == SINK) {
                 int remaining = src.remaining();
-                src.position(src.limit());
+                byte bytes[] = new byte[remaining];
+                src.get(bytes);
+                m_written.write(bytes);
+                m_writes++;
                 return remaining;
             }
             else if (m_behavior == FULL) {
@@ -154,28 +161,7 @@ public class TestNIOWriteStream extends TestCase {
 
         @Override
         public long write(ByteBuffer src[]) throws IOException {
-            if (!m_open) throw new IOException();
-
-            if (m_behavior == SINK) {
-                int remaining = src[0].remaining();
-                src[0].position(src[0].limit());
-                return remaining;
-            }
-            else if (m_behavior == FULL) {
-                return 0;
-            }
-            else if (m_behavior == PARTIAL) {
-                if (wrotePartial) {
-                    return 0;
-                } else {
-                    wrotePartial = true;
-                }
-                ByteBuffer copy = ByteBuffer.allocate(src[0].remaining());
-                src[0].get(copy.array(), 0, src[0].remaining()/2);
-                return src[0].remaining();
-            }
-            assert(false);
-            return -1;
+            return write(src, 0, src.length);
         }
 
         @Override
@@ -189,6 +175,8 @@ public class TestNIOWriteStream extends TestCase {
         }
 
         public boolean m_open = true;
+        public int m_writes = 0;
+        public ByteArrayOutputStream m_written = new ByteArrayOutputStream();
 
         public int m_behavior;
         public static int SINK = 0;     // accept all data
@@ -197,8 +185,29 @@ public class TestNIOWriteStream extends TestCase {
         @Override
         public long write(ByteBuffer[] srcs, int offset, int length)
                 throws IOException {
-            // TODO Auto-generated method stub
-            return 0;
+            if (!m_open) throw new IOException();
+
+            if (m_behavior == SINK) {
+                long written = 0;
+                for (int ii = offset; ii < offset + length; ii++) {
+                    int remaining = srcs[ii].remaining();
+                    byte bytes[] = new byte[remaining];
+                    srcs[ii].get(bytes);
+                    m_written.write(bytes);
+                    written += remaining;
+                }
+                m_writes++;
+                return written;
+            }
+            else if (m_behavior == FULL) {
+                return 0;
+            }
+            else if (m_behavior == PARTIAL) {
+                // half of the first buffer, like the single buffer write
+                return write(srcs[offset]);
+            }
+            assert(false);
+            return -1;
         }
     }
 
@@ -224,6 +233,220 @@ public class TestNIOWriteStream extends TestCase {
         port.toString();
     }
 
+    private static class PatternSerialization extends DirectDeferredSerialization {
+        final int m_size;
+        final byte m_value;
+        PatternSerialization(int size, byte value) {
+            m_size = size;
+            m_value = value;
+        }
+
+        @Override
+        public int getSerializedSize() {
+            return m_size;
+        }
+
+        @Override
+        public void serialize(ByteBuffer buf) {
+            for (int ii = 0; ii < m_size; ii++) {
+                buf.put(m_value);
+            }
+        }
+    }
+
+    public void testDirectSerialization() throws IOException {
+        MockChannel channel = new MockChannel(MockChannel.SINK);
+        MockPort port = new MockPort();
+        NIOWriteStream wstream = new NIOWriteStream(port);
+
+        // small messages are packed into one network buffer, a message
+        // larger than a network buffer is copied across several
+        wstream.enqueue(new PatternSerialization(10, (byte)1));
+        wstream.enqueue(ByteBuffer.wrap(new byte[] { 2, 2 }));
+        wstream.enqueue(new PatternSerialization(20, (byte)3));
+        wstream.enqueue(new PatternSerialization(NetworkDBBPool.BUFFER_SIZE + 10, (byte)4));
+        wstream.enqueue(new PatternSerialization(30, (byte)5));
+        assertEquals(5, wstream.getOutstandingMessageCount());
+        wstream.swapAndSerializeQueuedWrites(pool);
+        final int total = 10 + 2 + 20 + NetworkDBBPool.BUFFER_SIZE + 10 + 30;
+        assertEquals(total, wstream.drainTo(channel));
+        // both network buffers go out in one gathering write
+        assertEquals(1, channel.m_writes);
+        assertTrue(wstream.isEmpty());
+
+        byte written[] = channel.m_written.toByteArray();
+        assertEquals(total, written.length);
+        int offset = 0;
+        int sizes[] = new int[] { 10, 2, 20, NetworkDBBPool.BUFFER_SIZE + 10, 30 };
+        byte values[] = new byte[] { 1, 2, 3, 4, 5 };
+        for (int ii = 0; ii < sizes.length; ii++) {
+            for (int jj = 0; jj < sizes[ii]; jj++) {
+                assertEquals(values[ii], written[offset++]);
+            }
+        }
+        wstream.shutdown();
+    }
+
+    /**
+     * Writes part of its message and then fails, like a parameter that can't be serialized
+     */
+    private static class FailingSerialization extends DirectDeferredSerialization {
+        @Override
+        public int getSerializedSize() {
+            return 10;
+        }
+
+        @Override
+        public void serialize(ByteBuffer buf) throws IOException {
+            buf.put(new byte[] { 9, 9, 9, 9, 9 });
+            throw new IOException("Can't serialize");
+        }
+    }
+
+    public void testFailedDirectSerialization() throws IOException {
+        MockChannel channel = new MockChannel(MockChannel.SINK);
+        MockPort port = new MockPort();
+        NIOWriteStream wstream = new NIOWriteStream(port);
+
+        // failing into a fresh network buffer leaves nothing behind
+        wstream.enqueue(new FailingSerialization());
+        try {
+            wstream.swapAndSerializeQueuedWrites(pool);
+            fail();
+        } catch (IOException expected) {}
+        assertTrue(wstream.isEmpty());
+
+        // failing after another message keeps just that message
+        wstream.enqueue(new PatternSerialization(10, (byte)1));
+        wstream.enqueue(new FailingSerialization());
+        try {
+            wstream.swapAndSerializeQueuedWrites(pool);
+            fail();
+        } catch (IOException expected) {}
+        assertEquals(10, wstream.drainTo(channel));
+        byte written[] = channel.m_written.toByteArray();
+        assertEquals(10, written.length);
+        for (byte b : written) {
+            assertEquals(1, b);
+        }
+        assertTrue(wstream.isEmpty());
+        wstream.shutdown();
+    }
+
+    /**
+     * A 10 byte header, a body appended from its own buffer and a copied 20 byte trailer
+     */
+    private static class AppendingSerialization extends GatheringDeferredSerialization {
+        final ByteBuffer m_body;
+        boolean m_gather = true;
+        int m_discards = 0;
+        AppendingSerialization(int bodySize) {
+            m_body = ByteBuffer.allocateDirect(bodySize);
+            while (m_body.hasRemaining()) {
+                m_body.put((byte)2);
+            }
+            m_body.flip();
+        }
+
+        @Override
+        public int getSerializedSize() {
+            return 10 + m_body.limit() + 20;
+        }
+
+        @Override
+        public void serialize(ByteBuffer buf) {
+            buf.put(new byte[] { 1, 1, 1, 1, 1, 1, 1, 1, 1, 1 });
+            buf.put(m_body.duplicate());
+            buf.put(ByteBuffer.wrap(new byte[20]));
+        }
+
+        @Override
+        public boolean shouldGather() {
+            return m_gather;
+        }
+
+        @Override
+        public void serialize(Output out) {
+            out.reserve(10).put(new byte[] { 1, 1, 1, 1, 1, 1, 1, 1, 1, 1 });
+            out.append(new BBContainer(m_body.duplicate(), 0) {
+                @Override
+                public void discard() {
+                    m_discards++;
+                }
+            });
+            out.put(ByteBuffer.wrap(new byte[20]));
+        }
+    }
+
+    public void testGatheringSerialization() throws IOException {
+        MockChannel channel = new MockChannel(MockChannel.SINK);
+        MockPort port = new MockPort();
+        NIOWriteStream wstream = new NIOWriteStream(port);
+
+        // the appended body goes out between the network buffers holding the rest,
+        // and is discarded once written
+        AppendingSerialization gathered = new AppendingSerialization(NetworkDBBPool.BUFFER_SIZE * 3);
+        AppendingSerialization copied = new AppendingSerialization(100);
+        copied.m_gather = false;
+        wstream.enqueue(new PatternSerialization(5, (byte)4));
+        wstream.enqueue(gathered);
+        wstream.enqueue(copied);
+        wstream.swapAndSerializeQueuedWrites(pool);
+        final int total = 5 + gathered.getSerializedSize() + copied.getSerializedSize();
+        assertEquals(total, wstream.drainTo(channel));
+        assertTrue(wstream.isEmpty());
+        assertEquals(1, gathered.m_discards);
+        assertEquals(0, copied.m_discards);
+
+        byte written[] = channel.m_written.toByteArray();
+        assertEquals(total, written.length);
+        int offset = 0;
+        int sizes[] = new int[] { 5, 10, NetworkDBBPool.BUFFER_SIZE * 3, 20, 10, 100, 20 };
+        byte values[] = new byte[] { 4, 1, 2, 0, 1, 2, 0 };
+        for (int ii = 0; ii < sizes.length; ii++) {
+            for (int jj = 0; jj < sizes[ii]; jj++) {
+                assertEquals(values[ii], written[offset++]);
+            }
+        }
+
+        long counters[] = wstream.getBytesAndMessagesWritten(false);
+        assertEquals(total, counters[0]);
+        assertEquals(3, counters[1]);
+        wstream.shutdown();
+    }
+
+    public void testGatheringWriteBounds() throws IOException {
+        MockChannel channel = new MockChannel(MockChannel.SINK);
+        MockPort port = new MockPort();
+        NIOWriteStream wstream = new NIOWriteStream(port);
+
+        // each message fills a network buffer, the batches are bounded by bytes
+        final int messages = 100;
+        for (int ii = 0; ii < messages; ii++) {
+            wstream.enqueue(new PatternSerialization(NetworkDBBPool.BUFFER_SIZE, (byte)ii));
+        }
+        wstream.swapAndSerializeQueuedWrites(pool);
+        assertEquals(messages * NetworkDBBPool.BUFFER_SIZE, wstream.drainTo(channel));
+        assertTrue(wstream.isEmpty());
+
+        final int buffersPerWrite = Math.min(NIOWriteStream.MAX_GATHER_BUFFERS,
+                NIOWriteStream.MAX_GATHER_BYTES / NetworkDBBPool.BUFFER_SIZE);
+        final int expectedWrites = (messages + buffersPerWrite - 1) / buffersPerWrite;
+        assertEquals(expectedWrites, channel.m_writes);
+
+        byte written[] = channel.m_written.toByteArray();
+        for (int ii = 0; ii < messages; ii++) {
+            assertEquals((byte)ii, written[ii * NetworkDBBPool.BUFFER_SIZE]);
+            assertEquals((byte)ii, written[(ii + 1) * NetworkDBBPool.BUFFER_SIZE - 1]);
+        }
+
+        long counters[] = wstream.getBytesAndMessagesWritten(false);
+        assertEquals(messages * NetworkDBBPool.BUFFER_SIZE, counters[0]);
+        assertEquals(messages, counters[1]);
+        assertEquals(expectedWrites, counters[2]);
+        wstream.shutdown();
+    }
+
     public void testFull() throws IOException {
         MockChannel channel = new MockChannel(MockChannel.FULL);
         MockPort port = new MockPort();
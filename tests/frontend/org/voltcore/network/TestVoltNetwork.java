@@ -31,8 +31,13 @@ import java.nio.ByteBuffer;
 import java.nio.channels.SelectableChannel;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
 import java.nio.channels.spi.SelectorProvider;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import junit.framework.TestCase;
@@ -287,4 +292,48 @@ public class TestVoltNetwork extends TestCase {
         vn.shutdown();
         assertEquals(SelectionKey.OP_ACCEPT, vp.readyOps());
     }
+
+    public void testPoolPlacesConnectionsOnLeastLoadedThread() throws Exception {
+        VoltNetworkPool pool = new VoltNetworkPool(2, null, "Test Network", false);
+        pool.start();
+        ServerSocketChannel server = ServerSocketChannel.open();
+        server.socket().bind(new InetSocketAddress(InetAddress.getByName("127.0.0.1"), 0));
+        List<SocketChannel> channels = new ArrayList<SocketChannel>();
+        List<Connection> connections = new ArrayList<Connection>();
+        try {
+            for (int ii = 0; ii < 4; ii++) {
+                SocketChannel channel = SocketChannel.open(server.socket().getLocalSocketAddress());
+                channels.add(channel);
+                channels.add(server.accept());
+                connections.add(pool.registerChannel(channel, new MockInputHandler(), 0, ReverseDNSPolicy.NONE));
+            }
+            Map<String, long[]> stats = pool.getThreadStats(false);
+            assertEquals(2, stats.size());
+            assertEquals(2, stats.get("Test Network - 0")[0]);
+            assertEquals(2, stats.get("Test Network - 1")[0]);
+
+            // after two connections leave the first thread, it gets the next two
+            connections.get(0).unregister().get();
+            connections.get(2).unregister().get();
+            for (int ii = 0; ii < 2; ii++) {
+                SocketChannel channel = SocketChannel.open(server.socket().getLocalSocketAddress());
+                channels.add(channel);
+                channels.add(server.accept());
+                pool.registerChannel(channel, new MockInputHandler(), 0, ReverseDNSPolicy.NONE);
+            }
+            stats = pool.getThreadStats(true);
+            assertEquals(2, stats.get("Test Network - 0")[0]);
+            assertEquals(2, stats.get("Test Network - 1")[0]);
+            // busy time can't exceed the time elapsed
+            for (long[] threadStats : stats.values()) {
+                assertTrue(threadStats[3] <= threadStats[4]);
+            }
+        } finally {
+            pool.shutdown();
+            for (SocketChannel channel : channels) {
+                channel.close();
+            }
+            server.close();
+        }
+    }
 }
@@ -23,6 +23,8 @@
 
 package org.voltdb;
 
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.concurrent.Callable;
@@ -42,7 +44,79 @@ public class ProcedureCallMicrobench {
         public abstract void run(Client client) throws Exception;
     };
 
-    public static void main(String[] args) throws Exception {
+    // the same signatures as EmptyProcedure and MultivariateEmptyProcedure, as
+    // VoltProcedures so they can be called the way ProcedureRunner calls them
+    public static class EmptyRun extends VoltProcedure {
+        public VoltTable[] run(long arg) {
+            return null;
+        }
+    }
+
+    public static class MultivariateEmptyRun extends VoltProcedure {
+        public VoltTable[] run(long c_id, long c_d_id, long c_w_id,
+                String c_first, String c_middle, String c_last,
+                String c_street_1, String c_street_2, String d_city, String d_state, String d_zip,
+                String c_phone, Date c_since, String c_credit, double c_credit_lim, double c_discount,
+                double c_balance, double c_ytd_payment, long c_payment_cnt, long c_delivery_cnt,
+                String c_data) {
+            return null;
+        }
+    }
+
+    /**
+     * Measure the per-call cost of getting from serialized parameters into
+     * run(): deserializing a ParameterSet, converting each parameter and
+     * calling run() reflectively, against the generated ProcedureInvoker.
+     */
+    static void measureInvocation(VoltProcedure proc, Object... params) throws Throwable {
+        Method run = null;
+        for (Method m : proc.getClass().getDeclaredMethods()) {
+            if (m.getName().equals("run")) {
+                run = m;
+            }
+        }
+        Class<?>[] types = run.getParameterTypes();
+        ProcedureInvoker invoker = ProcedureInvoker.forMethod(run);
+
+        ParameterSet pset = ParameterSet.fromArrayNoCopy(params);
+        ByteBuffer serialized = ByteBuffer.allocate(pset.getSerializedSize());
+        pset.flattenToBuffer(serialized);
+        serialized.flip();
+
+        final int calls = 2000000;
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < calls; i++) {
+                Object[] paramList = ParameterSet.fromByteBuffer(serialized.duplicate()).toArray();
+                for (int j = 0; j < types.length; j++) {
+                    paramList[j] = ParameterConverter.tryToMakeCompatible(types[j], paramList[j]);
+                }
+                run.invoke(proc, paramList);
+            }
+            long reflection = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < calls; i++) {
+                invoker.invoke(proc, serialized.duplicate());
+            }
+            long generated = System.nanoTime() - start;
+
+            System.out.printf("%s round %d: reflection %.1f ns/call, generated invoker %.1f ns/call%n",
+                    proc.getClass().getSimpleName(), round,
+                    reflection / (double) calls, generated / (double) calls);
+        }
+    }
+
+    public static void main(String[] args) throws Throwable {
+        measureInvocation(new EmptyRun(), 0L);
+        measureInvocation(new MultivariateEmptyRun(), 0L, 0L, 0L,
+                "String c_first", "String c_middle",
+                "String c_last", "String c_street_1",
+                "String c_street_2", "String d_city",
+                "String d_state", "String d_zip",
+                "String c_phone", new Date(), "String c_credit", 0.0,
+                0.0, 0.0, 0.0, 0L, 0L, "String c_data");
+
         int siteCount = 1;
 
         TPCCProjectBuilder pb = new TPCCProjectBuilder();
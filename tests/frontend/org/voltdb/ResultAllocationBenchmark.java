@@ -0,0 +1,125 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import org.voltdb.VoltDB.Configuration;
+import org.voltdb.client.Client;
+import org.voltdb.client.ClientFactory;
+import org.voltdb.client.NullCallback;
+import org.voltdb.compiler.VoltProjectBuilder;
+import org.voltdb.utils.MiscUtils;
+
+/**
+ * Measures the heap allocated per call of a single-partition read returning
+ * a large result, across every thread in the process (server and client),
+ * so copying results out of the EE can be compared with handing them off.
+ * Run it once as is and once with -DzeroCopyResults=true.
+ *
+ * Usage: ResultAllocationBenchmark [result bytes]
+ */
+public class ResultAllocationBenchmark {
+
+    static final int KEYS = 64;
+    static final int WARMUP_CALLS = 20000;
+    static final int CALLS = 100000;
+
+    public static void main(String[] args) throws Exception {
+        int resultBytes = 64 * 1024;
+        if (args.length >= 1 && !args[0].equals("${bytes}")) {
+            resultBytes = Integer.parseInt(args[0].trim());
+        }
+
+        VoltProjectBuilder builder = new VoltProjectBuilder();
+        builder.addLiteralSchema("CREATE TABLE KV (K BIGINT NOT NULL, V VARBINARY(1048576), PRIMARY KEY (K));");
+        builder.addPartitionInfo("KV", "K");
+        builder.addStmtProcedure("Get", "SELECT V FROM KV WHERE K = ?;", "KV.K: 0");
+        String catalogJar = Configuration.getPathToCatalogForTest("resultAllocationBenchmark.jar");
+        if (!builder.compile(catalogJar, 2, 1, 0)) {
+            throw new RuntimeException("Failed to compile the benchmark catalog");
+        }
+        MiscUtils.copyFile(builder.getPathToDeployment(),
+                Configuration.getPathToCatalogForTest("resultAllocationBenchmark.xml"));
+
+        Configuration config = new Configuration();
+        config.m_pathToCatalog = catalogJar;
+        config.m_pathToDeployment = Configuration.getPathToCatalogForTest("resultAllocationBenchmark.xml");
+        config.m_backend = BackendTarget.NATIVE_EE_JNI;
+        ServerThread server = new ServerThread(config);
+        server.start();
+        server.waitForInitialization();
+
+        Client client = ClientFactory.createClient();
+        client.createConnection("localhost");
+        for (long key = 0; key < KEYS; key++) {
+            byte value[] = new byte[resultBytes];
+            Arrays.fill(value, (byte)key);
+            client.callProcedure("KV.insert", key, value);
+        }
+
+        // check the results while warming up
+        for (int i = 0; i < WARMUP_CALLS; i++) {
+            long key = i % KEYS;
+            VoltTable result = client.callProcedure("Get", key).getResults()[0];
+            result.advanceRow();
+            byte value[] = result.getVarbinary(0);
+            if (value.length != resultBytes || value[0] != (byte)key || value[resultBytes - 1] != (byte)key) {
+                throw new RuntimeException("Wrong result for key " + key);
+            }
+        }
+
+        com.sun.management.ThreadMXBean threadBean =
+            (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+        long allocatedBefore = allocated(threadBean);
+        long start = System.nanoTime();
+        NullCallback callback = new NullCallback();
+        for (int i = 0; i < CALLS; i++) {
+            client.callProcedure(callback, "Get", (long)(i % KEYS));
+        }
+        client.drain();
+        long duration = System.nanoTime() - start;
+        long allocated = allocated(threadBean) - allocatedBefore;
+
+        System.out.printf("zeroCopyResults=%b: %d calls returning %d bytes in %.0f ms => %.0f calls/s, %.1f bytes allocated/call%n",
+                Boolean.getBoolean("zeroCopyResults"), CALLS, resultBytes, duration / 1000000.0,
+                CALLS * 1000000000.0 / duration, allocated / (double)CALLS);
+
+        client.close();
+        server.shutdown();
+        server.join();
+    }
+
+    // threads that exited in between are not counted, there aren't any in steady state
+    static long allocated(com.sun.management.ThreadMXBean threadBean) {
+        long total = 0;
+        for (long bytes : threadBean.getThreadAllocatedBytes(threadBean.getAllThreadIds())) {
+            if (bytes > 0) {
+                total += bytes;
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,193 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Date;
+
+import junit.framework.TestCase;
+
+import org.voltdb.types.TimestampType;
+
+public class TestProcedureInvoker extends TestCase {
+
+    public static class MixedProcedure extends VoltProcedure {
+        Object[] m_args;
+
+        public long run(long l, int i, short s, byte b, double d, String str, BigDecimal dec,
+                TimestampType ts, Date date, byte[] bytes, long[] longs, String[] strs) {
+            m_args = new Object[] { l, i, s, b, d, str, dec, ts, date, bytes, longs, strs };
+            return l + i;
+        }
+    }
+
+    public static class VoidProcedure extends VoltProcedure {
+        boolean m_called = false;
+
+        public void run() {
+            m_called = true;
+        }
+    }
+
+    public static class ThrowingProcedure extends VoltProcedure {
+        public VoltTable[] run(long l) {
+            throw new VoltAbortException("aborted " + l);
+        }
+    }
+
+    public static class BooleanProcedure extends VoltProcedure {
+        public VoltTable[] run(boolean b) {
+            return null;
+        }
+    }
+
+    static class HiddenProcedure extends VoltProcedure {
+        public VoltTable[] run(long l) {
+            return null;
+        }
+    }
+
+    private static Method getRun(Class<?> procClass) {
+        for (Method m : procClass.getDeclaredMethods()) {
+            if (m.getName().equals("run")) {
+                return m;
+            }
+        }
+        throw new AssertionError("no run method in " + procClass);
+    }
+
+    private static ByteBuffer serialize(Object... params) throws IOException {
+        ParameterSet pset = ParameterSet.fromArrayNoCopy(params);
+        ByteBuffer buf = ByteBuffer.allocate(pset.getSerializedSize());
+        pset.flattenToBuffer(buf);
+        buf.flip();
+        return buf;
+    }
+
+    public void testExactTypes() throws Throwable {
+        ProcedureInvoker invoker = ProcedureInvoker.forMethod(getRun(MixedProcedure.class));
+        assertNotNull(invoker);
+
+        MixedProcedure proc = new MixedProcedure();
+        TimestampType ts = new TimestampType(123456789L);
+        Object result = invoker.invoke(proc, serialize(5L, 6, (short) 7, (byte) 8, 9.5, "ten",
+                new BigDecimal("11.000000000000"), ts, new TimestampType(1000000L),
+                new byte[] { 1, 2 }, new long[] { 3, 4 }, new String[] { "a", "b" }));
+
+        assertEquals(11L, result);
+        assertEquals(5L, proc.m_args[0]);
+        assertEquals(6, proc.m_args[1]);
+        assertEquals((short) 7, proc.m_args[2]);
+        assertEquals((byte) 8, proc.m_args[3]);
+        assertEquals(9.5, proc.m_args[4]);
+        assertEquals("ten", proc.m_args[5]);
+        assertEquals(new BigDecimal("11.000000000000"), proc.m_args[6]);
+        assertEquals(ts, proc.m_args[7]);
+        assertEquals(new Date(1000), proc.m_args[8]);
+        assertTrue(Arrays.equals(new byte[] { 1, 2 }, (byte[]) proc.m_args[9]));
+        assertTrue(Arrays.equals(new long[] { 3, 4 }, (long[]) proc.m_args[10]));
+        assertTrue(Arrays.equals(new String[] { "a", "b" }, (String[]) proc.m_args[11]));
+    }
+
+    public void testConvertedTypesMatchReflection() throws Throwable {
+        Method run = getRun(MixedProcedure.class);
+        ProcedureInvoker invoker = ProcedureInvoker.forMethod(run);
+        Object[] params = { 5, (byte) 6, 7L, (short) 8, 9L, "ten", 11L, 12L,
+                "2013-01-02 03:04:05.678", "0102", new long[] { 3, 4 }, null };
+
+        // what call(Object...) would pass to run()
+        Class<?>[] types = run.getParameterTypes();
+        Object[] expected = new Object[params.length];
+        for (int i = 0; i < params.length; i++) {
+            expected[i] = ParameterConverter.tryToMakeCompatible(types[i], params[i]);
+        }
+
+        MixedProcedure proc = new MixedProcedure();
+        invoker.invoke(proc, serialize(params));
+        for (int i = 0; i < params.length; i++) {
+            if (expected[i] instanceof byte[]) {
+                assertTrue(Arrays.equals((byte[]) expected[i], (byte[]) proc.m_args[i]));
+            } else if (expected[i] instanceof long[]) {
+                assertTrue(Arrays.equals((long[]) expected[i], (long[]) proc.m_args[i]));
+            } else {
+                assertEquals("parameter " + i, expected[i], proc.m_args[i]);
+            }
+        }
+    }
+
+    public void testVoidAndThrowingProcedures() throws Throwable {
+        VoidProcedure voidProc = new VoidProcedure();
+        assertNull(ProcedureInvoker.forMethod(getRun(VoidProcedure.class)).invoke(voidProc, serialize()));
+        assertTrue(voidProc.m_called);
+
+        ProcedureInvoker invoker = ProcedureInvoker.forMethod(getRun(ThrowingProcedure.class));
+        try {
+            invoker.invoke(new ThrowingProcedure(), serialize(3L));
+            fail();
+        } catch (VoltProcedure.VoltAbortException e) {
+            assertTrue(e.getMessage().contains("aborted 3"));
+        }
+    }
+
+    public void testParameterErrors() throws Throwable {
+        ProcedureInvoker invoker = ProcedureInvoker.forMethod(getRun(ThrowingProcedure.class));
+
+        try {
+            invoker.invoke(new ThrowingProcedure(), serialize(1L, 2L));
+            fail();
+        } catch (ProcedureInvoker.ParameterException e) {
+            assertEquals(-1, e.m_index);
+            assertEquals(1, e.m_expectedCount);
+            assertEquals(2, e.m_receivedCount);
+        }
+
+        try {
+            invoker.invoke(new ThrowingProcedure(), serialize("not a number"));
+            fail();
+        } catch (ProcedureInvoker.ParameterException e) {
+            assertEquals(0, e.m_index);
+            assertTrue(e.m_conversion);
+        }
+
+        // truncated buffer
+        ByteBuffer buf = serialize(1L);
+        buf.limit(buf.limit() - 4);
+        try {
+            invoker.invoke(new ThrowingProcedure(), buf);
+            fail();
+        } catch (ProcedureInvoker.ParameterException e) {
+            assertEquals(0, e.m_index);
+            assertFalse(e.m_conversion);
+        }
+    }
+
+    public void testUnsupportedSignatures() {
+        assertNull(ProcedureInvoker.forMethod(getRun(BooleanProcedure.class)));
+        assertNull(ProcedureInvoker.forMethod(getRun(HiddenProcedure.class)));
+    }
+}
@@ -0,0 +1,123 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.client;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.voltdb.BackendTarget;
+import org.voltdb.ServerThread;
+import org.voltdb.VoltDB.Configuration;
+import org.voltdb.compiler.VoltProjectBuilder;
+import org.voltdb.utils.MiscUtils;
+
+/**
+ * Measures the heap allocated by the client per queued invocation, counting
+ * both the calling thread and the client's network threads, so that request
+ * serialization changes can be compared for young-gen churn. The server runs
+ * in the same process, so only client threads are measured.
+ *
+ * Usage: ClientSerializationMicrobench [parameter bytes]
+ */
+public class ClientSerializationMicrobench {
+
+    static final int WARMUP_CALLS = 200000;
+    static final int CALLS = 1000000;
+
+    public static void main(String[] args) throws Exception {
+        int parameterBytes = 100;
+        if (args.length >= 1 && !args[0].equals("${bytes}")) {
+            parameterBytes = Integer.parseInt(args[0].trim());
+        }
+
+        VoltProjectBuilder builder = new VoltProjectBuilder();
+        builder.addLiteralSchema("CREATE TABLE KV (K BIGINT NOT NULL, V VARBINARY(1048576), PRIMARY KEY (K));");
+        builder.addPartitionInfo("KV", "K");
+        builder.addStmtProcedure("Put", "UPDATE KV SET V = ? WHERE K = ?;", "KV.K: 1");
+        String catalogJar = Configuration.getPathToCatalogForTest("clientSerializationMicrobench.jar");
+        if (!builder.compile(catalogJar, 2, 1, 0)) {
+            throw new RuntimeException("Failed to compile the benchmark catalog");
+        }
+        MiscUtils.copyFile(builder.getPathToDeployment(),
+                Configuration.getPathToCatalogForTest("clientSerializationMicrobench.xml"));
+
+        Configuration config = new Configuration();
+        config.m_pathToCatalog = catalogJar;
+        config.m_pathToDeployment = Configuration.getPathToCatalogForTest("clientSerializationMicrobench.xml");
+        config.m_backend = BackendTarget.NATIVE_EE_JNI;
+        ServerThread server = new ServerThread(config);
+        server.start();
+        server.waitForInitialization();
+
+        Distributer dist = new Distributer(false,
+                ClientConfig.DEFAULT_PROCEDURE_TIMOUT_MS,
+                ClientConfig.DEFAULT_CONNECTION_TIMOUT_MS,
+                false);
+        dist.createConnection("localhost", "", "", Client.VOLTDB_SERVER_PORT);
+
+        List<Long> threadIds = new ArrayList<Long>(dist.getThreadIds());
+        threadIds.add(Thread.currentThread().getId());
+        long ids[] = new long[threadIds.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = threadIds.get(i);
+        }
+        com.sun.management.ThreadMXBean threadBean =
+            (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+
+        byte value[] = new byte[parameterBytes];
+        run(dist, value, WARMUP_CALLS);
+
+        long allocatedBefore = sum(threadBean.getThreadAllocatedBytes(ids));
+        long start = System.nanoTime();
+        run(dist, value, CALLS);
+        long duration = System.nanoTime() - start;
+        long allocated = sum(threadBean.getThreadAllocatedBytes(ids)) - allocatedBefore;
+
+        System.out.printf("%d calls with %d byte parameters in %.0f ms => %.0f calls/s, %.1f bytes allocated/call%n",
+                CALLS, parameterBytes, duration / 1000000.0, CALLS * 1000000000.0 / duration,
+                allocated / (double)CALLS);
+
+        dist.shutdown();
+        server.shutdown();
+        server.join();
+    }
+
+    static void run(Distributer dist, byte value[], int calls) throws Exception {
+        NullCallback callback = new NullCallback();
+        for (int i = 0; i < calls; i++) {
+            ProcedureInvocation invocation = new ProcedureInvocation(i, "Put", value, (long)i);
+            dist.queue(invocation, callback, true, Distributer.USE_DEFAULT_TIMEOUT);
+        }
+        dist.drain();
+    }
+
+    static long sum(long values[]) {
+        long total = 0;
+        for (long value : values) {
+            total += value;
+        }
+        return total;
+    }
+}
@@ -0,0 +1,143 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.client;
+
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.voltdb.BackendTarget;
+import org.voltdb.ServerThread;
+import org.voltdb.VoltDB.Configuration;
+import org.voltdb.compiler.VoltProjectBuilder;
+import org.voltdb.utils.MiscUtils;
+
+/**
+ * Measures how many asynchronous procedure calls per second a single Client
+ * shared by many application threads can queue. Every call goes through
+ * Distributer.queue(), so this is mostly a measure of contention on the
+ * routing path. Run it against builds with and without a Distributer
+ * change to compare them.
+ *
+ * Usage: DistributerQueueMicrobench "1 2 4 8 16 32"
+ */
+public class DistributerQueueMicrobench {
+
+    static final int WARMUP_MS = 2000;
+    static final int DURATION_MS = 5000;
+
+    public static void main(String[] args) throws Exception {
+        int[] threadCounts = new int[] { 1, 2, 4, 8, 16, 32 };
+        if (args.length >= 1 && !args[0].equals("${threads}")) {
+            String[] threadCountString = args[0].trim().split("\\s+");
+            threadCounts = new int[threadCountString.length];
+            for (int i = 0; i < threadCountString.length; i++) {
+                threadCounts[i] = Integer.parseInt(threadCountString[i]);
+            }
+        }
+
+        VoltProjectBuilder builder = new VoltProjectBuilder();
+        builder.addLiteralSchema("CREATE TABLE KV (K BIGINT NOT NULL, V BIGINT, PRIMARY KEY (K));");
+        builder.addPartitionInfo("KV", "K");
+        builder.addStmtProcedure("Get", "SELECT V FROM KV WHERE K = ?;", "KV.K: 0");
+        builder.addStmtProcedure("Put", "UPDATE KV SET V = ? WHERE K = ?;", "KV.K: 1");
+        String catalogJar = Configuration.getPathToCatalogForTest("distributerQueueMicrobench.jar");
+        if (!builder.compile(catalogJar, 4, 1, 0)) {
+            throw new RuntimeException("Failed to compile the benchmark catalog");
+        }
+        MiscUtils.copyFile(builder.getPathToDeployment(),
+                Configuration.getPathToCatalogForTest("distributerQueueMicrobench.xml"));
+
+        Configuration config = new Configuration();
+        config.m_pathToCatalog = catalogJar;
+        config.m_pathToDeployment = Configuration.getPathToCatalogForTest("distributerQueueMicrobench.xml");
+        config.m_backend = BackendTarget.NATIVE_EE_JNI;
+        ServerThread server = new ServerThread(config);
+        server.start();
+        server.waitForInitialization();
+
+        ClientConfig clientConfig = new ClientConfig();
+        clientConfig.setClientAffinity(true);
+        clientConfig.setMaxOutstandingTxns(Integer.MAX_VALUE);
+        final Client client = ClientFactory.createClient(clientConfig);
+        client.createConnection("localhost");
+        // let the topology and procedure partitioning arrive
+        client.drain();
+        Thread.sleep(1000);
+
+        for (int threadCount : threadCounts) {
+            run(client, threadCount, WARMUP_MS);
+            long calls = run(client, threadCount, DURATION_MS);
+            System.out.printf("%d threads: %d calls in %d ms => %.0f calls/s%n",
+                    threadCount, calls, DURATION_MS, calls * 1000.0 / DURATION_MS);
+        }
+        System.out.println(client.createStatsContext().fetch().getAggregateAffinityStats());
+
+        client.close();
+        server.shutdown();
+        server.join();
+    }
+
+    static long run(final Client client, int threadCount, int durationMS) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        ArrayList<Future<Long>> futures = new ArrayList<Future<Long>>(threadCount);
+        final CyclicBarrier barrier = new CyclicBarrier(threadCount + 1);
+        final long stopTime = System.currentTimeMillis() + durationMS;
+
+        for (int i = 0; i < threadCount; i++) {
+            final long seed = i;
+            futures.add(executor.submit(new Callable<Long>() {
+                @Override
+                public Long call() throws Exception {
+                    NullCallback callback = new NullCallback();
+                    long count = 0;
+                    barrier.await();
+                    for (long key = seed; count % 100 != 0 || System.currentTimeMillis() < stopTime; key += 31) {
+                        // alternate reads and writes so both routing paths are measured
+                        if ((count & 1) == 0) {
+                            client.callProcedure(callback, "Get", key);
+                        }
+                        else {
+                            client.callProcedure(callback, "Put", count, key);
+                        }
+                        count++;
+                    }
+                    return count;
+                }
+            }));
+        }
+
+        barrier.await();
+        long count = 0;
+        for (Future<Long> future : futures) {
+            count += future.get();
+        }
+        client.drain();
+        executor.shutdown();
+        return count;
+    }
+}
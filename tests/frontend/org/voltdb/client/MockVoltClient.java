@@ -149,6 +149,13 @@ public class MockVoltClient implements Client, ReplicaProcCaller{
         return false;
     }
 
+    @Override
+    public boolean callProcedureBatch(ProcedureCallback callbacks[], String procName,
+            Object[][] parameterSets) throws NoConnectionsException {
+        // TODO Auto-generated method stub
+        return false;
+    }
+
     @Override
     public void drain() {
         // TODO Auto-generated method stub
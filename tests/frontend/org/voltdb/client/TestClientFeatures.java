@@ -311,6 +311,42 @@ public class TestClientFeatures extends TestCase {
         assertFalse(client.getConnectedHostList().isEmpty());
     }
 
+    public void testBatchInvocation() throws Exception {
+        Client client = ClientFactory.createClient();
+        client.createConnection("localhost");
+
+        final int count = 100;
+        final byte statuses[] = new byte[count];
+        ProcedureCallback callbacks[] = new ProcedureCallback[count];
+        Object parameterSets[][] = new Object[count][];
+        for (int i = 0; i < count; i++) {
+            final int index = i;
+            callbacks[i] = new ProcedureCallback() {
+                @Override
+                public void clientCallback(ClientResponse clientResponse) throws Exception {
+                    statuses[index] = clientResponse.getStatus();
+                }
+            };
+            // the last invocation repeats the first key and has to fail on its own
+            parameterSets[i] = new Object[] { i == count - 1 ? 0 : i };
+        }
+        assertTrue(client.callProcedureBatch(callbacks, "KV.insert", parameterSets));
+        client.drain();
+
+        for (int i = 0; i < count - 1; i++) {
+            assertEquals(ClientResponse.SUCCESS, statuses[i]);
+        }
+        assertEquals(ClientResponse.GRACEFUL_FAILURE, statuses[count - 1]);
+        VoltTable result = client.callProcedure("@AdHoc", "select count(*) from kv;").getResults()[0];
+        assertEquals(count - 1, result.asScalarLong());
+
+        try {
+            client.callProcedureBatch(new ProcedureCallback[1], "KV.insert", new Object[2][]);
+            fail();
+        } catch (IllegalArgumentException e) {}
+        client.close();
+    }
+
     public void testGetAddressList() throws UnknownHostException, IOException, InterruptedException {
         CSL csl = new CSL();
 
@@ -376,6 +376,42 @@ public class TestDistributer extends TestCase {
         }
     }
 
+    @Test
+    public void testQueueBatchToServerWithoutBatches() throws Exception {
+
+        // The mock server does not advertise batches, so a batch for it
+        // has to go out as one message per invocation.
+        MockVolt volt0 = null;
+        try {
+            volt0 = new MockVolt(20000);
+            volt0.start();
+
+            Distributer dist = new Distributer(false,
+                    ClientConfig.DEFAULT_PROCEDURE_TIMOUT_MS,
+                    ClientConfig.DEFAULT_CONNECTION_TIMOUT_MS,
+                    false);
+            dist.createConnection("localhost", "", "", 20000);
+            assertTrue(volt0.handler != null);
+
+            ProcedureInvocation invocations[] = new ProcedureInvocation[3];
+            ProcedureCallback callbacks[] = new ProcedureCallback[3];
+            for (int i = 0; i < invocations.length; i++) {
+                invocations[i] = new ProcedureInvocation(i + 1, "i1", new Integer(1));
+                callbacks[i] = new ProcCallback();
+            }
+            assertTrue(dist.queueBatch(invocations, callbacks, true, 0));
+            dist.drain();
+
+            assertEquals(3, volt0.handler.roundTrips.get());
+        }
+        finally {
+            if (volt0 != null) {
+                volt0.shutdown();
+                volt0.join();
+            }
+        }
+    }
+
 
     /**
      * Test connection timeouts.
@@ -255,4 +255,13 @@ public class TestProcedureInvocation extends TestCase{
 
         verifySpi(spi);
     }
+
+    public void testNeedsEagerSerialization() {
+        assertFalse(new ProcedureInvocation(1, "proc", 1, "one", 1L).needsEagerSerialization());
+        assertTrue(new ProcedureInvocation(1, "proc", 1, new int[] { 1 }).needsEagerSerialization());
+        assertTrue(new ProcedureInvocation(1, "proc", new java.util.Date()).needsEagerSerialization());
+        // a decimal can't be changed, but it can fail to serialize
+        assertTrue(new ProcedureInvocation(1, "proc", new BigDecimal("1.0000000000001")).needsEagerSerialization());
+        assertTrue(pi.needsEagerSerialization());
+    }
 }
@@ -0,0 +1,277 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.iv2;
+
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyObject;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.voltcore.messaging.Mailbox;
+import org.voltcore.messaging.VoltMessage;
+import org.voltdb.ClientResponseImpl;
+import org.voltdb.CommandLog;
+import org.voltdb.ParameterSet;
+import org.voltdb.SnapshotCompletionMonitor;
+import org.voltdb.StarvationTracker;
+import org.voltdb.StoredProcedureInvocation;
+import org.voltdb.VoltDB;
+import org.voltdb.VoltDBInterface;
+import org.voltdb.messaging.InitiateResponseMessage;
+import org.voltdb.messaging.Iv2InitiateTaskMessage;
+import org.voltdb.messaging.Iv2ReplicationBatchMessage;
+import org.voltdb.messaging.VoltDbMessageFactory;
+
+public class TestReplicationBatching extends TestCase
+{
+    static final long dut_hsid = 11223344l;
+    static final long primary_hsid = 1111l;
+
+    Mailbox mbox;
+    VoltDBInterface vdbi;
+    SpScheduler dut;
+
+    private void createObjs(int batchSize)
+    {
+        mbox = mock(Mailbox.class);
+        when(mbox.getHSId()).thenReturn(dut_hsid);
+        vdbi = mock(VoltDBInterface.class);
+        VoltDB.replaceVoltDBInstanceForTest(vdbi);
+
+        SiteTaskerQueue queue = new SiteTaskerQueue();
+        queue.setStarvationTracker(new StarvationTracker(0));
+        dut = new SpScheduler(0, queue, mock(SnapshotCompletionMonitor.class));
+        dut.setMailbox(mbox);
+        dut.setCommandLog(mock(CommandLog.class));
+        dut.setLock(mbox);
+        dut.m_replicationBatchSize = batchSize;
+    }
+
+    private Iv2InitiateTaskMessage createMsg(long txnId, long initiatorHSId)
+    {
+        StoredProcedureInvocation spi = new StoredProcedureInvocation();
+        spi.setProcName("MOCKSP");
+        spi.setParams(txnId, "hello");
+        Iv2InitiateTaskMessage task =
+            new Iv2InitiateTaskMessage(initiatorHSId, // initHSID
+                                       Long.MIN_VALUE, // coordHSID
+                                       txnId - 1, // truncationHandle
+                                       txnId,     // txnId
+                                       System.currentTimeMillis(), // timestamp
+                                       false, // readonly
+                                       true, // single-part
+                                       spi, // invocation
+                                       Long.MAX_VALUE, // client interface handle
+                                       Long.MAX_VALUE, // connectionId
+                                       false); // isForReplay
+        task.setSpHandle(txnId);
+        return task;
+    }
+
+    private void makeLeader()
+    {
+        dut.setLeaderState(true);
+        List<Long> replicas = new ArrayList<Long>();
+        replicas.add(dut_hsid);
+        replicas.add(2l);
+        replicas.add(3l);
+        dut.updateReplicas(replicas, null);
+    }
+
+    @Test
+    public void testBatchRoundTrip() throws Exception
+    {
+        long txnid = TxnEgo.makeZero(0).getTxnId();
+        Iv2ReplicationBatchMessage batch = new Iv2ReplicationBatchMessage(2);
+        batch.add(createMsg(txnid, primary_hsid));
+        batch.add(createMsg(txnid + 1, primary_hsid));
+
+        ByteBuffer buf = VoltMessage.toBuffer(batch);
+        VoltMessage result = new VoltDbMessageFactory().createMessageFromBuffer(buf, primary_hsid);
+        assertTrue(result instanceof Iv2ReplicationBatchMessage);
+        List<VoltMessage> messages = ((Iv2ReplicationBatchMessage)result).getMessages();
+        assertEquals(2, messages.size());
+        for (int ii = 0; ii < 2; ii++) {
+            Iv2InitiateTaskMessage task = (Iv2InitiateTaskMessage)messages.get(ii);
+            assertEquals(txnid + ii, task.getTxnId());
+            assertEquals(txnid + ii, task.getSpHandle());
+            assertEquals("MOCKSP", task.getStoredProcedureName());
+            assertEquals(txnid + ii, task.getParameters()[0]);
+            assertEquals(primary_hsid, task.m_sourceHSId);
+        }
+    }
+
+    @Test
+    public void testUnbatchedByDefault() throws Exception
+    {
+        createObjs(SpScheduler.REPLICATION_BATCH_SIZE);
+        makeLeader();
+        long txnid = TxnEgo.makeZero(0).getTxnId();
+        dut.deliver(createMsg(txnid, primary_hsid));
+        dut.deliver(createMsg(txnid + 1, primary_hsid));
+        verify(mbox, times(2)).send(eq(new long[] {2, 3}), (VoltMessage)anyObject());
+    }
+
+    @Test
+    public void testLeaderFlushesFullBatch() throws Exception
+    {
+        createObjs(3);
+        makeLeader();
+        long txnid = TxnEgo.makeZero(0).getTxnId();
+        dut.deliver(createMsg(txnid, primary_hsid));
+        dut.deliver(createMsg(txnid + 1, primary_hsid));
+        verify(mbox, times(0)).send(eq(new long[] {2, 3}), (VoltMessage)anyObject());
+        verify(vdbi, times(1)).schedulePriorityWork((Runnable)anyObject(), anyLong(), eq(0l),
+                eq(TimeUnit.MICROSECONDS));
+        dut.deliver(createMsg(txnid + 2, primary_hsid));
+
+        ArgumentCaptor<VoltMessage> sent = ArgumentCaptor.forClass(VoltMessage.class);
+        verify(mbox, times(1)).send(eq(new long[] {2, 3}), sent.capture());
+        List<VoltMessage> messages = ((Iv2ReplicationBatchMessage)sent.getValue()).getMessages();
+        assertEquals(3, messages.size());
+        long lastSpHandle = Long.MIN_VALUE;
+        for (VoltMessage message : messages) {
+            Iv2InitiateTaskMessage replmsg = (Iv2InitiateTaskMessage)message;
+            assertEquals(dut_hsid, replmsg.getInitiatorHSId());
+            assertTrue(replmsg.getSpHandle() > lastSpHandle);
+            lastSpHandle = replmsg.getSpHandle();
+        }
+    }
+
+    @Test
+    public void testLeaderFlushesOnTimer() throws Exception
+    {
+        createObjs(8);
+        makeLeader();
+        long txnid = TxnEgo.makeZero(0).getTxnId();
+        dut.deliver(createMsg(txnid, primary_hsid));
+        ArgumentCaptor<Runnable> flusher = ArgumentCaptor.forClass(Runnable.class);
+        verify(vdbi).schedulePriorityWork(flusher.capture(), anyLong(), eq(0l), eq(TimeUnit.MICROSECONDS));
+        verify(mbox, times(0)).send(eq(new long[] {2, 3}), (VoltMessage)anyObject());
+
+        // a batch of one goes out as the bare message
+        flusher.getValue().run();
+        verify(mbox, times(1)).send(eq(new long[] {2, 3}), (Iv2InitiateTaskMessage)anyObject());
+        flusher.getValue().run();
+        verify(mbox, times(1)).send(eq(new long[] {2, 3}), (VoltMessage)anyObject());
+    }
+
+    @Test
+    public void testLeaderFlushesBeforeOtherReplicaTraffic() throws Exception
+    {
+        createObjs(8);
+        makeLeader();
+        long txnid = TxnEgo.makeZero(0).getTxnId();
+        dut.deliver(createMsg(txnid, primary_hsid));
+        dut.deliver(createMsg(txnid + 1, primary_hsid));
+        verify(mbox, times(0)).send(eq(new long[] {2, 3}), (VoltMessage)anyObject());
+
+        // losing a replica sends the pending batch to the old replica set first
+        List<Long> replicas = new ArrayList<Long>();
+        replicas.add(dut_hsid);
+        replicas.add(2l);
+        dut.updateReplicas(replicas, null);
+        verify(mbox, times(1)).send(eq(new long[] {2, 3}), (Iv2ReplicationBatchMessage)anyObject());
+    }
+
+    @Test
+    public void testLeaderCountsBatchedResponses() throws Exception
+    {
+        createObjs(2);
+        makeLeader();
+        long txnid = TxnEgo.makeZero(0).getTxnId();
+        Iv2InitiateTaskMessage first = createMsg(txnid, primary_hsid);
+        Iv2InitiateTaskMessage second = createMsg(txnid + 1, primary_hsid);
+        dut.deliver(first);
+        dut.deliver(second);
+        ArgumentCaptor<Iv2ReplicationBatchMessage> sent =
+            ArgumentCaptor.forClass(Iv2ReplicationBatchMessage.class);
+        verify(mbox, times(1)).send(eq(new long[] {2, 3}), sent.capture());
+
+        // local responses, then one batched response from each replica, unpacked
+        // the way InitiatorMailbox does
+        ClientResponseImpl cr = mock(ClientResponseImpl.class);
+        List<InitiateResponseMessage> local = new ArrayList<InitiateResponseMessage>();
+        for (VoltMessage message : sent.getValue().getMessages()) {
+            InitiateResponseMessage resp = new InitiateResponseMessage((Iv2InitiateTaskMessage)message);
+            resp.setResults(cr);
+            resp.m_sourceHSId = dut_hsid;
+            local.add(resp);
+            dut.deliver(resp);
+        }
+        for (long replica : new long[] {2, 3}) {
+            for (VoltMessage message : sent.getValue().getMessages()) {
+                InitiateResponseMessage resp = new InitiateResponseMessage((Iv2InitiateTaskMessage)message);
+                resp.setResults(cr);
+                resp.m_sourceHSId = replica;
+                dut.deliver(resp);
+            }
+        }
+        // one client response per transaction, from the last replica to answer
+        verify(mbox, times(2)).send(eq(primary_hsid), (VoltMessage)anyObject());
+    }
+
+    @Test
+    public void testReplicaBatchesResponses() throws Exception
+    {
+        createObjs(8);
+        TxnEgo ego = TxnEgo.makeZero(0);
+        List<Iv2InitiateTaskMessage> tasks = new ArrayList<Iv2InitiateTaskMessage>();
+        for (int ii = 0; ii < 3; ii++) {
+            ego = ego.makeNext();
+            Iv2InitiateTaskMessage task = createMsg(ego.getTxnId(), primary_hsid);
+            tasks.add(task);
+            dut.deliver(task);
+        }
+        ClientResponseImpl cr = mock(ClientResponseImpl.class);
+        for (int ii = 0; ii < 2; ii++) {
+            InitiateResponseMessage resp = new InitiateResponseMessage(tasks.get(ii));
+            resp.setResults(cr);
+            dut.deliver(resp);
+        }
+        verify(mbox, times(0)).send(anyLong(), (VoltMessage)anyObject());
+
+        // answering the last outstanding task sends the whole batch
+        InitiateResponseMessage resp = new InitiateResponseMessage(tasks.get(2));
+        resp.setResults(cr);
+        dut.deliver(resp);
+        ArgumentCaptor<Iv2ReplicationBatchMessage> sent =
+            ArgumentCaptor.forClass(Iv2ReplicationBatchMessage.class);
+        verify(mbox, times(1)).send(eq(primary_hsid), sent.capture());
+        assertEquals(3, sent.getValue().size());
+        assertEquals(ego.getTxnId(), ((InitiateResponseMessage)sent.getValue().getMessages().get(2)).getTxnId());
+    }
+}
@@ -0,0 +1,120 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package org.voltdb.iv2;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.zookeeper_voltpatches.ZooKeeper;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.voltcore.messaging.HostMessenger;
+import org.voltcore.messaging.VoltMessage;
+import org.voltdb.messaging.Iv2InitiateTaskMessage;
+
+public class TestSpInitiatorMailbox
+{
+    static final int PRODUCERS = 4;
+    static final int MESSAGES = 2000;
+
+    @Test
+    public void testSingleThreadedOrderedDelivery() throws Exception
+    {
+        HostMessenger messenger = mock(HostMessenger.class);
+        when(messenger.getZK()).thenReturn(mock(ZooKeeper.class));
+        Scheduler scheduler = mock(Scheduler.class);
+        when(scheduler.sequenceForReplay(any(VoltMessage.class))).thenReturn(true);
+
+        final Map<VoltMessage, Integer> producerOf = Collections.synchronizedMap(new HashMap<VoltMessage, Integer>());
+        final List<VoltMessage> delivered = new ArrayList<VoltMessage>();
+        final Set<Thread> deliveryThreads = new HashSet<Thread>();
+        final SpInitiatorMailbox mailbox =
+            new SpInitiatorMailbox(0, scheduler, messenger, mock(RepairLog.class), null);
+        doAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                // the scheduler must still see the mailbox lock held
+                assertTrue(Thread.holdsLock(mailbox));
+                deliveryThreads.add(Thread.currentThread());
+                delivered.add((VoltMessage)invocation.getArguments()[0]);
+                return null;
+            }
+        }).when(scheduler).deliver(any(VoltMessage.class));
+
+        InitiatorMailboxStats stats = new InitiatorMailboxStats(0, 0, "THREAD");
+        mailbox.setDeliveryStats(stats);
+
+        Thread producers[] = new Thread[PRODUCERS];
+        for (int p = 0; p < PRODUCERS; p++) {
+            final int producer = p;
+            producers[p] = new Thread() {
+                @Override
+                public void run() {
+                    for (int ii = 0; ii < MESSAGES; ii++) {
+                        VoltMessage m = mock(Iv2InitiateTaskMessage.class);
+                        producerOf.put(m, producer * MESSAGES + ii);
+                        mailbox.deliver(m);
+                    }
+                }
+            };
+            producers[p].start();
+        }
+        for (Thread t : producers) {
+            t.join();
+        }
+        // a control operation is ordered after everything delivered before it
+        mailbox.setMaxLastSeenTxnId(0);
+        mailbox.shutdown();
+
+        assertEquals(PRODUCERS * MESSAGES, delivered.size());
+        // every delivery is counted, even though only some are timed
+        assertEquals(PRODUCERS * MESSAGES, stats.deliveredCount());
+        assertEquals(1, deliveryThreads.size());
+        assertTrue(deliveryThreads.iterator().next().getName().startsWith("SpInitiator deliver"));
+        int last[] = new int[PRODUCERS];
+        for (int p = 0; p < PRODUCERS; p++) {
+            last[p] = -1;
+        }
+        for (VoltMessage m : delivered) {
+            int seq = producerOf.get(m);
+            int producer = seq / MESSAGES;
+            assertTrue(seq > last[producer]);
+            last[producer] = seq;
+        }
+    }
+}
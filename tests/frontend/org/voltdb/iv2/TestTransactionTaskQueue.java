@@ -71,6 +71,22 @@ public class TestTransactionTaskQueue extends TestCase
             TransactionTaskQueue queue) {
         return createFrag(localTxnId, mpTxnId, queue, false);
     }
+
+    // Create the first fragment of a read-only MP txn
+    private FragmentTask createReadOnlyFrag(long localTxnId, long mpTxnId,
+                                            TransactionTaskQueue queue)
+    {
+        FragmentTaskMessage msg = mock(FragmentTaskMessage.class);
+        when(msg.getTxnId()).thenReturn(mpTxnId);
+        when(msg.isReadOnly()).thenReturn(true);
+        InitiatorMailbox mbox = mock(InitiatorMailbox.class);
+        when(mbox.getHSId()).thenReturn(1337l);
+        ParticipantTransactionState pft =
+            new ParticipantTransactionState(localTxnId, msg);
+        FragmentTask task =
+            new FragmentTask(mbox, pft, queue, msg, null);
+        return task;
+    }
     // Create the first fragment of a MP txn
     private FragmentTask createFrag(long localTxnId, long mpTxnId,
                                     TransactionTaskQueue queue,
@@ -196,4 +212,61 @@ public class TestTransactionTaskQueue extends TestCase
             assertEquals(expected.getTxnId(), next_poll.getTxnId());
         }
     }
+
+    @Test
+    public void testConcurrentReadOnlyMultiParts() throws InterruptedException
+    {
+        long localTxnId = 0;
+        long mpTxnId = 0;
+        SiteTaskerQueue task_queue = getSiteTaskerQueue();
+        TransactionTaskQueue dut = new TransactionTaskQueue(task_queue);
+        Deque<TransactionTask> expected_order =
+            new ArrayDeque<TransactionTask>();
+
+        // Two read-only MPs run side by side
+        TransactionTask read1 = createReadOnlyFrag(localTxnId++, mpTxnId++, dut);
+        addTask(read1, dut, expected_order);
+        TransactionTask read2 = createReadOnlyFrag(localTxnId++, mpTxnId++, dut);
+        addTask(read2, dut, expected_order);
+        assertEquals(2, dut.size());
+
+        // A single part, a read and a write all wait behind them
+        ArrayDeque<TransactionTask> blocked = new ArrayDeque<TransactionTask>();
+        TransactionTask sp = createSpProc(localTxnId++, dut);
+        addTask(sp, dut, blocked);
+        TransactionTask read3 = createReadOnlyFrag(localTxnId++, mpTxnId++, dut);
+        addTask(read3, dut, blocked);
+        TransactionTask write = createFrag(localTxnId++, mpTxnId++, dut);
+        addTask(write, dut, null);
+        assertEquals(5, dut.size());
+
+        // More work for a running read passes straight through
+        TransactionTask next = createFrag(read1.getTransactionState(), read1.getTxnId(), dut);
+        addTask(next, dut, expected_order);
+        assertEquals(5, dut.size());
+
+        // Finishing one of the reads releases nothing while the other runs
+        read2.getTransactionState().setDone();
+        assertEquals(0, dut.flush(read2.getTxnId()));
+        assertEquals(4, dut.size());
+
+        // Finishing the other releases the single part and the next read, the write still waits
+        read1.getTransactionState().setDone();
+        assertEquals(2, dut.flush(read1.getTxnId()));
+        assertEquals(2, dut.size());
+        expected_order.addAll(blocked);
+
+        read3.getTransactionState().setDone();
+        assertEquals(1, dut.flush(read3.getTxnId()));
+        assertEquals(1, dut.size());
+        expected_order.add(write);
+
+        while (!expected_order.isEmpty())
+        {
+            TransactionTask next_poll = (TransactionTask)task_queue.take();
+            TransactionTask expected = expected_order.removeFirst();
+            assertEquals(expected.getSpHandle(), next_poll.getSpHandle());
+            assertEquals(expected.getTxnId(), next_poll.getTxnId());
+        }
+    }
 }
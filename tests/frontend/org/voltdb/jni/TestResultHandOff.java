@@ -0,0 +1,245 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.jni;
+
+import java.nio.ByteBuffer;
+
+import junit.framework.TestCase;
+
+import org.voltcore.utils.DBBPool.BBContainer;
+import org.voltdb.LegacyHashinator;
+import org.voltdb.ParameterSet;
+import org.voltdb.TheHashinator.HashinatorConfig;
+import org.voltdb.TheHashinator.HashinatorType;
+import org.voltdb.VoltDB;
+import org.voltdb.VoltTable;
+import org.voltdb.VoltType;
+import org.voltdb.benchmark.tpcc.TPCCProjectBuilder;
+import org.voltdb.catalog.Catalog;
+import org.voltdb.catalog.PlanFragment;
+import org.voltdb.catalog.Statement;
+import org.voltdb.planner.ActivePlanRepository;
+import org.voltdb.utils.Encoder;
+
+public class TestResultHandOff extends TestCase {
+
+    private ExecutionEngine m_ee;
+    private long m_selectFragment;
+    private VoltTable m_warehouse;
+    private static final int CLUSTER_ID = 2;
+    private static final long NODE_ID = 1;
+
+    private VoltTable select() {
+        return m_ee.executePlanFragments(
+                1,
+                new long[] { m_selectFragment },
+                null,
+                new ParameterSet[] { ParameterSet.emptyParameterSet() },
+                3, 2, 42, Long.MAX_VALUE)[0];
+    }
+
+    private static ByteBuffer serialize(VoltTable table) {
+        ByteBuffer buf = ByteBuffer.allocate(table.getSerializedSize());
+        table.flattenToBuffer(buf);
+        buf.flip();
+        return buf;
+    }
+
+    private void loadWarehouses(int rows) throws Exception {
+        TPCCProjectBuilder builder = new TPCCProjectBuilder();
+        Catalog catalog = builder.createTPCCSchemaCatalog();
+        int WAREHOUSE_TABLEID = catalog.getClusters().get("cluster").getDatabases().
+                get("database").getTables().get("WAREHOUSE").getRelativeIndex();
+        m_ee.loadCatalog(0, catalog.serialize());
+
+        m_warehouse = new VoltTable(
+                new VoltTable.ColumnInfo("W_ID", VoltType.SMALLINT),
+                new VoltTable.ColumnInfo("W_NAME", VoltType.STRING),
+                new VoltTable.ColumnInfo("W_STREET_1", VoltType.STRING),
+                new VoltTable.ColumnInfo("W_STREET_2", VoltType.STRING),
+                new VoltTable.ColumnInfo("W_CITY", VoltType.STRING),
+                new VoltTable.ColumnInfo("W_STATE", VoltType.STRING),
+                new VoltTable.ColumnInfo("W_ZIP", VoltType.STRING),
+                new VoltTable.ColumnInfo("W_TAX", VoltType.FLOAT),
+                new VoltTable.ColumnInfo("W_YTD", VoltType.FLOAT)
+                );
+        for (int i = 0; i < rows; ++i) {
+            m_warehouse.addRow(i, "name" + i, "st1", "st2", "city", "ST", "zip", 0, 0);
+        }
+        m_ee.loadTable(WAREHOUSE_TABLEID, m_warehouse, 0, 0, false, Long.MAX_VALUE);
+
+        Statement selectStmt = catalog.getClusters().get("cluster").getDatabases().get("database").
+                getProcedures().getIgnoreCase("SelectAll").getStatements().getIgnoreCase("warehouse");
+        PlanFragment selectBottomFrag = null;
+        int i = 0;
+        // this kinda assumes the right order
+        for (PlanFragment f : selectStmt.getFragments()) {
+            if (i != 0) selectBottomFrag = f;
+            i++;
+        }
+        ActivePlanRepository.clear();
+        m_selectFragment = ActivePlanRepository.loadOrAddRefPlanFragment(
+                Encoder.hexDecode(selectBottomFrag.getPlanhash()),
+                Encoder.decodeBase64AndDecompressToBytes(selectBottomFrag.getPlannodetree()));
+    }
+
+    public void testLargeResultsAreHandedOff() throws Exception {
+        loadWarehouses(2000);
+        ByteBuffer expected = serialize(select());
+
+        m_ee.beginResultHandOff();
+        VoltTable first = select();
+        VoltTable second = select();
+        ResultHandOff handOff = m_ee.endResultHandOff();
+        assertNotNull(handOff);
+        assertTrue(handOff.containsAny(new VoltTable[] { second }));
+        assertFalse(handOff.containsAny(new VoltTable[] { m_warehouse }));
+        assertEquals(-1, handOff.getSerializedSize(m_warehouse));
+
+        for (VoltTable table : new VoltTable[] { first, second }) {
+            assertEquals(2000, table.getRowCount());
+            assertEquals(expected, serialize(table));
+            // the bytes handed to the network are the table with its length prefix
+            assertEquals(expected.limit(), handOff.getSerializedSize(table));
+            BBContainer serialized = handOff.retainSerializedTable(table);
+            assertEquals(0, serialized.b.position());
+            assertEquals(expected, serialized.b);
+            serialized.discard();
+        }
+        handOff.release();
+
+        // the EE is back on its own result buffer
+        assertEquals(expected, serialize(select()));
+    }
+
+    public void testReleasedResultsAreInvalidated() throws Exception {
+        loadWarehouses(2000);
+
+        m_ee.beginResultHandOff();
+        VoltTable table = select();
+        ResultHandOff handOff = m_ee.endResultHandOff();
+        BBContainer serialized = handOff.retainSerializedTable(table);
+        handOff.release();
+
+        // still held for the network
+        assertTrue(table.advanceRow());
+        assertTrue(table.getLong(0) >= 0);
+        table.resetRowPosition();
+        serialized.discard();
+
+        // the buffer may now be reused, so the table must not read it
+        assertTrue(table.advanceRow());
+        boolean threw = false;
+        try {
+            table.getLong(0);
+        } catch (IndexOutOfBoundsException e) {
+            threw = true;
+        } catch (AssertionError e) {
+            // the table's invariants are checked first when assertions are enabled
+            threw = true;
+        }
+        assertTrue(threw);
+    }
+
+    public void testSmallResultsAreCopied() throws Exception {
+        loadWarehouses(10);
+        m_ee.beginResultHandOff();
+        VoltTable table = select();
+        assertNull(m_ee.endResultHandOff());
+        assertEquals(10, table.getRowCount());
+    }
+
+    public void testHeldResultsSurviveLaterBatches() throws Exception {
+        loadWarehouses(5000);
+        ByteBuffer expected = serialize(select());
+
+        // hold on to one result while enough batches run to fill several buffers
+        m_ee.beginResultHandOff();
+        VoltTable held = select();
+        ResultHandOff heldHandOff = m_ee.endResultHandOff();
+        BBContainer serialized = heldHandOff.retainSerializedTable(held);
+        heldHandOff.release();
+
+        int batches = 3 * ResultBufferPool.BUFFER_SIZE / expected.limit();
+        for (int i = 0; i < batches; i++) {
+            m_ee.beginResultHandOff();
+            VoltTable table = select();
+            ResultHandOff handOff = m_ee.endResultHandOff();
+            assertEquals(expected, serialize(table));
+            handOff.release();
+        }
+        assertEquals(expected, serialize(held));
+        assertEquals(expected, serialized.b);
+        serialized.discard();
+    }
+
+    public void testBuffersAreRecycled() {
+        ResultBufferPool pool = new ResultBufferPool();
+        ResultBufferPool.ResultBuffer buffer = pool.current();
+        assertSame(buffer, pool.current());
+        assertEquals(ResultBufferPool.BUFFER_SIZE, buffer.freeSpace().remaining());
+
+        ResultHandOff handOff = new ResultHandOff();
+        handOff.addTable(new VoltTable(new VoltTable.ColumnInfo("C", VoltType.BIGINT)),
+                buffer.freeSpace(), buffer);
+        buffer.consume(ResultBufferPool.BUFFER_SIZE - ResultBufferPool.MIN_FREE_SPACE + 1);
+        pool.retireIfFull();
+        assertNotSame(buffer, pool.current());
+
+        // still in use by the hand-off
+        assertEquals(0, pool.freeBufferCount());
+        handOff.release();
+        assertEquals(1, pool.freeBufferCount());
+
+        pool.retire();
+        assertEquals(2, pool.freeBufferCount());
+        ResultBufferPool.ResultBuffer reused = pool.current();
+        assertEquals(1, pool.freeBufferCount());
+        assertEquals(ResultBufferPool.BUFFER_SIZE, reused.freeSpace().remaining());
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        VoltDB.instance().readBuildInfo("Test");
+        m_ee = new ExecutionEngineJNI(
+                CLUSTER_ID,
+                NODE_ID,
+                0,
+                0,
+                "",
+                100,
+                new HashinatorConfig(HashinatorType.LEGACY,
+                                     LegacyHashinator.getConfigureBytes(1),
+                                     0,
+                                     0));
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        super.tearDown();
+        m_ee.release();
+        m_ee = null;
+    }
+}
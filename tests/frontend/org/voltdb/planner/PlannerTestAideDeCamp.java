@@ -64,6 +64,7 @@ public class PlannerTestAideDeCamp {
     int compileCounter = 0;
 
     private CompiledPlan m_currentPlan = null;
+    private DatabaseStatistics m_statistics = null;
 
     /**
      * Loads the schema at ddlurl and setups a voltcompiler / hsql instance.
@@ -88,6 +89,13 @@ public class PlannerTestAideDeCamp {
         return db;
     }
 
+    /**
+     * Plan the following statements as if @AnalyzeStatistics had gathered these statistics.
+     */
+    public void setStatistics(DatabaseStatistics statistics) {
+        m_statistics = statistics;
+    }
+
     /**
      * Compile a statement and return the head of the plan.
      * @param sql
@@ -135,7 +143,7 @@ public class PlannerTestAideDeCamp {
         // name will look like "basename-stmt-#"
         String name = catalogStmt.getParent().getTypeName() + "-" + catalogStmt.getTypeName();
 
-        DatabaseEstimates estimates = new DatabaseEstimates();
+        DatabaseEstimates estimates = new DatabaseEstimates(m_statistics);
         TrivialCostModel costModel = new TrivialCostModel();
         PartitioningForStatement partitioning;
         if (inferPartitioning) {
@@ -192,4 +192,8 @@ public class PlannerTestCase extends TestCase {
         return m_aide.getDatabase();
     }
 
+    protected void setStatistics(DatabaseStatistics statistics) {
+        m_aide.setStatistics(statistics);
+    }
+
 }
@@ -26,7 +26,6 @@ package org.voltdb.planner;
 import org.json_voltpatches.JSONException;
 import org.voltdb.plannodes.AbstractPlanNode;
 import org.voltdb.plannodes.IndexScanPlanNode;
-import org.voltdb.plannodes.LimitPlanNode;
 import org.voltdb.plannodes.NestLoopIndexPlanNode;
 import org.voltdb.plannodes.OrderByPlanNode;
 import org.voltdb.plannodes.ProjectionPlanNode;
@@ -94,12 +93,11 @@ public class TestIndexSelection extends PlannerTestCase {
         AbstractPlanNode pn = compile("select id from a where deleted=? and updated_date <= ? order by id limit ?;");
         // System.out.println("DEBUG: " + pn.toExplainPlanString());
         pn = pn.getChild(0);
-        // ENG-5066: now Limit is pushed under Projection
+        // ENG-5066: now Limit is pushed under Projection, and into the ORDER BY
         assertTrue(pn instanceof ProjectionPlanNode);
         pn = pn.getChild(0);
-        assertTrue(pn instanceof LimitPlanNode);
-        pn = pn.getChild(0);
         assertTrue(pn instanceof OrderByPlanNode);
+        assertNotNull(pn.getInlinePlanNode(PlanNodeType.LIMIT));
         pn = pn.getChild(0);
         assertTrue(pn instanceof IndexScanPlanNode);
         assertTrue(pn.toJSONString().contains("\"TARGET_INDEX_NAME\":\"DELETED_SINCE_IDX\""));
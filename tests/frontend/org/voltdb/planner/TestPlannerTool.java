@@ -25,6 +25,13 @@ package org.voltdb.planner;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import junit.framework.TestCase;
 
@@ -161,4 +168,60 @@ public class TestPlannerTool extends TestCase {
         // would return a Stream Closed error
         m_pt.planSqlForTest("select * from A;");
     }
+
+    public void testConcurrentPlanning() throws Exception {
+        TPCCProjectBuilder builder = new TPCCProjectBuilder();
+        builder.addAllDefaults();
+        final File jar = new File("tpcc-oop.jar");
+        jar.deleteOnExit();
+        builder.compile("tpcc-oop.jar");
+        byte[] bytes = MiscUtils.fileToBytes(new File("tpcc-oop.jar"));
+        String serializedCatalog = CatalogUtil.loadCatalogFromJar(bytes, null);
+        Catalog catalog = new Catalog();
+        catalog.execute(serializedCatalog);
+        CatalogContext context = new CatalogContext(0, 0, catalog, bytes, 0, 0, 0);
+
+        final String[] queries = {
+                "select * from warehouse;",
+                "select w_name from warehouse where w_id = 1;",
+                "select count(*) from customer where c_w_id = 2 and c_d_id = 3;",
+                "select c_last, count(*) from customer group by c_last order by c_last limit 10;",
+                "select o_id, ol_amount from orders, order_line where o_id = ol_o_id and o_w_id = ol_w_id;",
+                "select distinct s_quantity from stock where s_w_id = 4 order by s_quantity;",
+                "update district set d_ytd = d_ytd + 1 where d_w_id = 5 and d_id = 6;",
+                "delete from new_order where no_w_id = 7;"
+        };
+
+        // plan each query on a single thread for reference
+        m_pt = new PlannerTool(context.cluster, context.database, 1);
+        final List<AdHocPlannedStatement> expected = new ArrayList<AdHocPlannedStatement>();
+        for (String query : queries) {
+            expected.add(m_pt.planSqlForTest(query));
+        }
+
+        // then plan them all again at once with a fresh cache
+        final PlannerTool pt = new PlannerTool(context.cluster, context.database, 2);
+        ExecutorService es = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<AdHocPlannedStatement>> results = new ArrayList<Future<AdHocPlannedStatement>>();
+            for (int i = 0; i < queries.length * 4; i++) {
+                final String query = queries[i % queries.length];
+                results.add(es.submit(new Callable<AdHocPlannedStatement>() {
+                    @Override
+                    public AdHocPlannedStatement call() {
+                        return pt.planSqlForTest(query);
+                    }
+                }));
+            }
+            for (int i = 0; i < results.size(); i++) {
+                AdHocPlannedStatement result = results.get(i).get();
+                AdHocPlannedStatement reference = expected.get(i % queries.length);
+                assertTrue(Arrays.equals(reference.core.aggregatorFragment, result.core.aggregatorFragment));
+                assertTrue(Arrays.equals(reference.core.collectorFragment, result.core.collectorFragment));
+            }
+        }
+        finally {
+            es.shutdown();
+        }
+    }
 }
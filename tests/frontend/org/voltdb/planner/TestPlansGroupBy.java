@@ -208,11 +208,11 @@ public class TestPlansGroupBy extends PlannerTestCase {
         pns = compileToFragments("SELECT A1, count(*) as tag FROM P1 group by A1 order by tag, A1 limit 1");
         p = pns.get(0).getChild(0);
 
-        // ENG-5066: now Limit is pushed under Projection
+        // ENG-5066: now Limit is pushed under Projection, and into the ORDER BY
         assertTrue(p instanceof ProjectionPlanNode);
-        assertTrue(p.getChild(0) instanceof LimitPlanNode);
-        assertTrue(p.getChild(0).getChild(0) instanceof OrderByPlanNode);
-        assertTrue(p.getChild(0).getChild(0).getChild(0) instanceof AggregatePlanNode);
+        assertTrue(p.getChild(0) instanceof OrderByPlanNode);
+        assertNotNull(p.getChild(0).getInlinePlanNode(PlanNodeType.LIMIT));
+        assertTrue(p.getChild(0).getChild(0) instanceof AggregatePlanNode);
 
         p = pns.get(1).getChild(0);
         assertTrue(p instanceof AggregatePlanNode);
@@ -247,14 +247,14 @@ public class TestPlansGroupBy extends PlannerTestCase {
         // Test limit push down
         AbstractPlanNode p = pns.get(0).getChild(0);
         assertTrue(p instanceof ProjectionPlanNode);
-        assertTrue(p.getChild(0) instanceof LimitPlanNode);
-        assertTrue(p.getChild(0).getChild(0) instanceof OrderByPlanNode);
-        assertTrue(p.getChild(0).getChild(0).getChild(0) instanceof AggregatePlanNode);
-
-        p = pns.get(1).getChild(0);
-        assertTrue(p instanceof LimitPlanNode);
         assertTrue(p.getChild(0) instanceof OrderByPlanNode);
+        assertNotNull(p.getChild(0).getInlinePlanNode(PlanNodeType.LIMIT));
         assertTrue(p.getChild(0).getChild(0) instanceof AggregatePlanNode);
+
+        p = pns.get(1).getChild(0);
+        assertTrue(p instanceof OrderByPlanNode);
+        assertNotNull(p.getInlinePlanNode(PlanNodeType.LIMIT));
+        assertTrue(p.getChild(0) instanceof AggregatePlanNode);
     }
 
     public void testComplexAggwithDistinct() {
@@ -278,9 +278,9 @@ public class TestPlansGroupBy extends PlannerTestCase {
         // Test no limit push down
         AbstractPlanNode p = pns.get(0).getChild(0);
         assertTrue(p instanceof ProjectionPlanNode);
-        assertTrue(p.getChild(0) instanceof LimitPlanNode);
-        assertTrue(p.getChild(0).getChild(0) instanceof OrderByPlanNode);
-        assertTrue(p.getChild(0).getChild(0).getChild(0) instanceof AggregatePlanNode);
+        assertTrue(p.getChild(0) instanceof OrderByPlanNode);
+        assertNotNull(p.getChild(0).getInlinePlanNode(PlanNodeType.LIMIT));
+        assertTrue(p.getChild(0).getChild(0) instanceof AggregatePlanNode);
 
         p = pns.get(1).getChild(0);
         assertTrue(p instanceof AbstractScanPlanNode);
@@ -32,6 +32,7 @@ import org.voltdb.plannodes.AbstractPlanNode;
 import org.voltdb.plannodes.AbstractScanPlanNode;
 import org.voltdb.plannodes.AggregatePlanNode;
 import org.voltdb.plannodes.DistinctPlanNode;
+import org.voltdb.plannodes.HashJoinPlanNode;
 import org.voltdb.plannodes.IndexScanPlanNode;
 import org.voltdb.plannodes.NestLoopIndexPlanNode;
 import org.voltdb.plannodes.NestLoopPlanNode;
@@ -56,7 +57,7 @@ public class TestPlansJoin extends PlannerTestCase {
         // select * with ON clause should return all columns from all tables
         AbstractPlanNode pn = compile("select * FROM R1 JOIN R2 ON R1.C = R2.C");
         AbstractPlanNode n = pn.getChild(0).getChild(0);
-        assertTrue(n instanceof NestLoopPlanNode);
+        assertTrue(n instanceof HashJoinPlanNode);
         //assertEquals(JoinType.INNER, nlj.getJoinType());
         for (int ii = 0; ii < 2; ii++) {
             assertTrue(n.getChild(ii) instanceof SeqScanPlanNode);
@@ -65,22 +66,22 @@ public class TestPlansJoin extends PlannerTestCase {
 
         // select * with USING clause should contain only one column for each column from the USING expression
         pn = compile("select * FROM R1 JOIN R2 USING(C)");
-        assertTrue(pn.getChild(0).getChild(0) instanceof NestLoopPlanNode);
+        assertTrue(pn.getChild(0).getChild(0) instanceof HashJoinPlanNode);
         assertEquals(4, pn.getOutputSchema().getColumns().size());
 
         pn = compile("select A,C,D FROM R1 JOIN R2 ON R1.C = R2.C");
         n = pn.getChild(0).getChild(0);
-        assertTrue(n instanceof NestLoopPlanNode);
+        assertTrue(n instanceof HashJoinPlanNode);
         assertEquals(3, pn.getOutputSchema().getColumns().size());
 
         pn = compile("select A,C,D FROM R1 JOIN R2 USING(C)");
         n = pn.getChild(0).getChild(0);
-        assertTrue(n instanceof NestLoopPlanNode);
+        assertTrue(n instanceof HashJoinPlanNode);
         assertEquals(3, pn.getOutputSchema().getColumns().size());
 
         pn = compile("select R1.A, R2.C, R1.D FROM R1 JOIN R2 ON R1.C = R2.C");
         n = pn.getChild(0).getChild(0);
-        assertTrue(n instanceof NestLoopPlanNode);
+        assertTrue(n instanceof HashJoinPlanNode);
         assertEquals(3, pn.getOutputSchema().getColumns().size());
         assertTrue("R1".equalsIgnoreCase(pn.getOutputSchema().getColumns().get(0).getTableName()));
         assertTrue("R2".equalsIgnoreCase(pn.getOutputSchema().getColumns().get(1).getTableName()));
@@ -89,7 +90,7 @@ public class TestPlansJoin extends PlannerTestCase {
         pn = compile("select R1.A, C, R1.D FROM R1 JOIN R2 USING(C)");
         n = pn.getChild(0).getChild(0);
         String table = pn.getOutputSchema().getColumns().get(1).getTableName();
-        assertTrue(n instanceof NestLoopPlanNode);
+        assertTrue(n instanceof HashJoinPlanNode);
         assertEquals(3, pn.getOutputSchema().getColumns().size());
         assertTrue(pn.getOutputSchema().getColumns().get(0).getTableName().equalsIgnoreCase("R1"));
         assertTrue("R2".equalsIgnoreCase(table) || "R1".equalsIgnoreCase(table));
@@ -108,27 +109,27 @@ public class TestPlansJoin extends PlannerTestCase {
     public void testBasicThreeTableInnerJoin() {
         AbstractPlanNode pn = compile("select * FROM R1 JOIN R2 ON R1.C = R2.C JOIN R3 ON R3.C = R2.C");
         AbstractPlanNode n = pn.getChild(0).getChild(0);
-        assertTrue(n instanceof NestLoopPlanNode);
-        assertTrue(n.getChild(0) instanceof NestLoopPlanNode);
+        assertTrue(n instanceof HashJoinPlanNode);
+        assertTrue(n.getChild(0) instanceof HashJoinPlanNode);
         assertTrue(n.getChild(1) instanceof SeqScanPlanNode);
         assertEquals(7, pn.getOutputSchema().getColumns().size());
 
         pn = compile("select R1.C, R2.C R3.C FROM R1 INNER JOIN R2 ON R1.C = R2.C INNER JOIN R3 ON R3.C = R2.C");
         n = pn.getChild(0).getChild(0);
-        assertTrue(n instanceof NestLoopPlanNode);
-        assertTrue(n.getChild(0) instanceof NestLoopPlanNode);
+        assertTrue(n instanceof HashJoinPlanNode);
+        assertTrue(n.getChild(0) instanceof HashJoinPlanNode);
         assertTrue(n.getChild(1) instanceof SeqScanPlanNode);
 
         pn = compile("select C FROM R1 INNER JOIN R2 USING (C) INNER JOIN R3 USING(C)");
         n = pn.getChild(0).getChild(0);
-        assertTrue(n instanceof NestLoopPlanNode);
-        assertTrue(n.getChild(0) instanceof NestLoopPlanNode);
+        assertTrue(n instanceof HashJoinPlanNode);
+        assertTrue(n.getChild(0) instanceof HashJoinPlanNode);
         assertTrue(n.getChild(1) instanceof SeqScanPlanNode);
         assertEquals(1, pn.getOutputSchema().getColumns().size());
 
         pn = compile("select C FROM R1 INNER JOIN R2 USING (C), R3 WHERE R1.A = R3.A");
         n = pn.getChild(0).getChild(0);
-        assertTrue(n instanceof NestLoopPlanNode);
+        assertTrue(n instanceof HashJoinPlanNode);
         assertTrue(n.getChild(0) instanceof NestLoopIndexPlanNode);
         assertTrue(n.getChild(1) instanceof SeqScanPlanNode);
         assertEquals(1, pn.getOutputSchema().getColumns().size());
@@ -147,9 +148,9 @@ public class TestPlansJoin extends PlannerTestCase {
 
         pn = compile("select * FROM R1, R2 WHERE R1.A = R2.A AND R1.C > 0");
         n = pn.getChild(0).getChild(0);
-        assertTrue(n instanceof AbstractJoinPlanNode);
-        p = ((AbstractJoinPlanNode) n).getJoinPredicate();
-        assertEquals(ExpressionType.COMPARE_EQUAL, p.getExpressionType());
+        assertTrue(n instanceof HashJoinPlanNode);
+        assertEquals(1, ((HashJoinPlanNode) n).getOuterHashExpressions().size());
+        assertNull(((AbstractJoinPlanNode) n).getJoinPredicate());
         n = n.getChild(0);
         assertTrue(n instanceof AbstractScanPlanNode);
         assertTrue(((AbstractScanPlanNode) n).getTargetTableName().equalsIgnoreCase("R1"));
@@ -159,18 +160,18 @@ public class TestPlansJoin extends PlannerTestCase {
         pn = compile("select * FROM R1, R2 WHERE R1.A = R2.A AND R1.C > R2.C");
         n = pn.getChild(0).getChild(0);
         assertTrue(n instanceof AbstractJoinPlanNode);
+        assertTrue(n instanceof HashJoinPlanNode);
+        assertEquals(1, ((HashJoinPlanNode) n).getOuterHashExpressions().size());
         p = ((AbstractJoinPlanNode) n).getJoinPredicate();
-        assertEquals(ExpressionType.CONJUNCTION_AND, p.getExpressionType());
-        assertEquals(ExpressionType.COMPARE_EQUAL, p.getLeft().getExpressionType());
-        assertEquals(ExpressionType.COMPARE_LESSTHAN, p.getRight().getExpressionType());
+        assertEquals(ExpressionType.COMPARE_LESSTHAN, p.getExpressionType());
         assertNull(((AbstractScanPlanNode)n.getChild(0)).getPredicate());
         assertNull(((AbstractScanPlanNode)n.getChild(1)).getPredicate());
 
         pn = compile("select * FROM R1 JOIN R2 ON R1.A = R2.A WHERE R1.C > 0");
         n = pn.getChild(0).getChild(0);
-        assertTrue(n instanceof AbstractJoinPlanNode);
-        p = ((AbstractJoinPlanNode) n).getJoinPredicate();
-        assertEquals(ExpressionType.COMPARE_EQUAL, p.getExpressionType());
+        assertTrue(n instanceof HashJoinPlanNode);
+        assertEquals(1, ((HashJoinPlanNode) n).getOuterHashExpressions().size());
+        assertNull(((AbstractJoinPlanNode) n).getJoinPredicate());
         n = n.getChild(0);
         assertTrue(n instanceof AbstractScanPlanNode);
         assertTrue("R1".equalsIgnoreCase(((AbstractScanPlanNode) n).getTargetTableName()));
@@ -180,22 +181,22 @@ public class TestPlansJoin extends PlannerTestCase {
         pn = compile("select * FROM R1 JOIN R2 ON R1.A = R2.A WHERE R1.C > R2.C");
         n = pn.getChild(0).getChild(0);
         assertTrue(n instanceof AbstractJoinPlanNode);
+        assertTrue(n instanceof HashJoinPlanNode);
+        assertEquals(1, ((HashJoinPlanNode) n).getOuterHashExpressions().size());
         p = ((AbstractJoinPlanNode) n).getJoinPredicate();
-        assertEquals(ExpressionType.CONJUNCTION_AND, p.getExpressionType());
-        assertEquals(ExpressionType.COMPARE_EQUAL, p.getLeft().getExpressionType());
-        assertEquals(ExpressionType.COMPARE_LESSTHAN, p.getRight().getExpressionType());
+        assertEquals(ExpressionType.COMPARE_LESSTHAN, p.getExpressionType());
         assertNull(((AbstractScanPlanNode)n.getChild(0)).getPredicate());
         assertNull(((AbstractScanPlanNode)n.getChild(1)).getPredicate());
 
         pn = compile("select * FROM R1, R2, R3 WHERE R1.A = R2.A AND R1.C = R3.C AND R1.A > 0");
         n = pn.getChild(0).getChild(0);
-        assertTrue(n instanceof AbstractJoinPlanNode);
-        p = ((AbstractJoinPlanNode) n).getJoinPredicate();
-        assertEquals(ExpressionType.COMPARE_EQUAL, p.getExpressionType());
+        assertTrue(n instanceof HashJoinPlanNode);
+        assertEquals(1, ((HashJoinPlanNode) n).getOuterHashExpressions().size());
+        assertNull(((AbstractJoinPlanNode) n).getJoinPredicate());
         AbstractPlanNode c = n.getChild(0);
-        assertTrue(c instanceof AbstractJoinPlanNode);
-        p = ((AbstractJoinPlanNode) c).getJoinPredicate();
-        assertEquals(ExpressionType.COMPARE_EQUAL, p.getExpressionType());
+        assertTrue(c instanceof HashJoinPlanNode);
+        assertEquals(1, ((HashJoinPlanNode) c).getOuterHashExpressions().size());
+        assertNull(((AbstractJoinPlanNode) c).getJoinPredicate());
         c = c.getChild(0);
         assertTrue(c instanceof AbstractScanPlanNode);
         p = ((AbstractScanPlanNode) c).getPredicate();
@@ -207,10 +208,9 @@ public class TestPlansJoin extends PlannerTestCase {
         pn = compile("select * FROM R1 JOIN R2 on R1.A = R2.A AND R1.C = R2.C where R1.A > 0");
         n = pn.getChild(0).getChild(0);
         assertTrue(n instanceof AbstractJoinPlanNode);
-        p = ((AbstractJoinPlanNode) n).getJoinPredicate();
-        assertEquals(ExpressionType.CONJUNCTION_AND, p.getExpressionType());
-        assertEquals(ExpressionType.COMPARE_EQUAL, p.getLeft().getExpressionType());
-        assertEquals(ExpressionType.COMPARE_EQUAL, p.getRight().getExpressionType());
+        assertTrue(n instanceof HashJoinPlanNode);
+        assertEquals(2, ((HashJoinPlanNode) n).getOuterHashExpressions().size());
+        assertNull(((AbstractJoinPlanNode) n).getJoinPredicate());
         n = n.getChild(0);
         assertTrue(n instanceof AbstractScanPlanNode);
         assertTrue("R1".equalsIgnoreCase(((AbstractScanPlanNode) n).getTargetTableName()));
@@ -220,18 +220,16 @@ public class TestPlansJoin extends PlannerTestCase {
         pn = compile("select A,C FROM R1 JOIN R2 USING (A, C)");
         n = pn.getChild(0).getChild(0);
         assertTrue(n instanceof AbstractJoinPlanNode);
-        p = ((AbstractJoinPlanNode) n).getJoinPredicate();
-        assertEquals(ExpressionType.CONJUNCTION_AND, p.getExpressionType());
-        assertEquals(ExpressionType.COMPARE_EQUAL, p.getLeft().getExpressionType());
-        assertEquals(ExpressionType.COMPARE_EQUAL, p.getRight().getExpressionType());
+        assertTrue(n instanceof HashJoinPlanNode);
+        assertEquals(2, ((HashJoinPlanNode) n).getOuterHashExpressions().size());
+        assertNull(((AbstractJoinPlanNode) n).getJoinPredicate());
 
         pn = compile("select A,C FROM R1 JOIN R2 USING (A, C) WHERE A > 0");
         n = pn.getChild(0).getChild(0);
         assertTrue(n instanceof AbstractJoinPlanNode);
-        p = ((AbstractJoinPlanNode) n).getJoinPredicate();
-        assertEquals(ExpressionType.CONJUNCTION_AND, p.getExpressionType());
-        assertEquals(ExpressionType.COMPARE_EQUAL, p.getLeft().getExpressionType());
-        assertEquals(ExpressionType.COMPARE_EQUAL, p.getRight().getExpressionType());
+        assertTrue(n instanceof HashJoinPlanNode);
+        assertEquals(2, ((HashJoinPlanNode) n).getOuterHashExpressions().size());
+        assertNull(((AbstractJoinPlanNode) n).getJoinPredicate());
         n = n.getChild(1);
         assertTrue(n instanceof AbstractScanPlanNode);
         scan = (AbstractScanPlanNode) n;
@@ -240,13 +238,14 @@ public class TestPlansJoin extends PlannerTestCase {
 
         pn = compile("select * FROM R1 JOIN R2 ON R1.A = R2.A JOIN R3 ON R1.C = R3.C WHERE R1.A > 0");
         n = pn.getChild(0).getChild(0);
-        assertTrue(n instanceof NestLoopPlanNode);
-        p = ((NestLoopPlanNode) n).getJoinPredicate();
-        assertEquals(ExpressionType.COMPARE_EQUAL, p.getExpressionType());
+        assertTrue(n instanceof HashJoinPlanNode);
+        assertEquals(1, ((HashJoinPlanNode) n).getOuterHashExpressions().size());
+        assertNull(((HashJoinPlanNode) n).getJoinPredicate());
         n = n.getChild(0);
-        assertTrue(n instanceof NestLoopPlanNode);
-        NestLoopPlanNode nlj = (NestLoopPlanNode) n;
-        assertEquals(ExpressionType.COMPARE_EQUAL, nlj.getJoinPredicate().getExpressionType());
+        assertTrue(n instanceof HashJoinPlanNode);
+        HashJoinPlanNode hj = (HashJoinPlanNode) n;
+        assertEquals(1, hj.getOuterHashExpressions().size());
+        assertNull(hj.getJoinPredicate());
         n = n.getChild(0);
         assertTrue(n instanceof AbstractScanPlanNode);
         assertTrue(((AbstractScanPlanNode) n).getTargetTableName().equalsIgnoreCase("R1"));
@@ -309,14 +308,14 @@ public class TestPlansJoin extends PlannerTestCase {
         List<AbstractPlanNode> apl;
         AbstractPlanNode node;
         SeqScanPlanNode seqScan;
-        NestLoopPlanNode nlj;
+        HashJoinPlanNode hj;
 
         apl = compileToFragments("select * FROM P1 LABEL JOIN R2 USING(A) WHERE A > 0 and R2.C >= 5");
         pn = apl.get(1);
         node = pn.getChild(0);
-        assertTrue(node instanceof NestLoopPlanNode);
-        assertEquals(ExpressionType.COMPARE_EQUAL,
-                     ((NestLoopPlanNode)node).getJoinPredicate().getExpressionType());
+        assertTrue(node instanceof HashJoinPlanNode);
+        assertEquals(1, ((HashJoinPlanNode)node).getOuterHashExpressions().size());
+        assertNull(((HashJoinPlanNode)node).getJoinPredicate());
         assertTrue(node.getChild(0) instanceof SeqScanPlanNode);
         seqScan = (SeqScanPlanNode)node.getChild(0);
         assertTrue(seqScan.getPredicate() == null);
@@ -328,10 +327,11 @@ public class TestPlansJoin extends PlannerTestCase {
         apl = compileToFragments("select * FROM P1 LABEL LEFT JOIN R2 USING(A) WHERE A > 0");
         pn = apl.get(1);
         node = pn.getChild(0);
-        assertTrue(node instanceof NestLoopPlanNode);
-        nlj = (NestLoopPlanNode) node;
-        assertTrue(JoinType.LEFT == nlj.getJoinType());
-        assertEquals(ExpressionType.COMPARE_EQUAL, nlj.getJoinPredicate().getExpressionType());
+        assertTrue(node instanceof HashJoinPlanNode);
+        hj = (HashJoinPlanNode) node;
+        assertTrue(JoinType.LEFT == hj.getJoinType());
+        assertEquals(1, hj.getOuterHashExpressions().size());
+        assertNull(hj.getJoinPredicate());
         seqScan = (SeqScanPlanNode)node.getChild(0);
         assertTrue(seqScan.getPredicate() != null);
         assertEquals(ExpressionType.COMPARE_GREATERTHAN, seqScan.getPredicate().getExpressionType());
@@ -345,10 +345,11 @@ public class TestPlansJoin extends PlannerTestCase {
         assertEquals("P1", sc.getTableName());
         pn = apl.get(1);
         node = pn.getChild(0);
-        assertTrue(node instanceof NestLoopPlanNode);
-        nlj = (NestLoopPlanNode) node;
-        assertTrue(JoinType.LEFT == nlj.getJoinType());
-        assertEquals(ExpressionType.COMPARE_EQUAL, nlj.getJoinPredicate().getExpressionType());
+        assertTrue(node instanceof HashJoinPlanNode);
+        hj = (HashJoinPlanNode) node;
+        assertTrue(JoinType.LEFT == hj.getJoinType());
+        assertEquals(1, hj.getOuterHashExpressions().size());
+        assertNull(hj.getJoinPredicate());
         seqScan = (SeqScanPlanNode)node.getChild(0);
         assertTrue(seqScan.getPredicate() != null);
         assertEquals(ExpressionType.COMPARE_GREATERTHAN, seqScan.getPredicate().getExpressionType());
@@ -402,24 +403,24 @@ public class TestPlansJoin extends PlannerTestCase {
         // R1.A = R2.A AND R2.C = 1 => R1.A = R2.A AND R2.C = 1
         pn = compile("select * FROM R1 LEFT JOIN R2 ON R1.A = R2.A AND R2.C = 1 ");
         n = pn.getChild(0).getChild(0);
-        assertTrue(n instanceof AbstractJoinPlanNode);
-        p = ((AbstractJoinPlanNode) n).getJoinPredicate();
-        assertNotNull(p);
-        assertEquals(ExpressionType.COMPARE_EQUAL, p.getExpressionType());
-        AbstractExpression l = p.getLeft();
-        AbstractExpression r = p.getRight();
+        assertTrue(n instanceof HashJoinPlanNode);
+        HashJoinPlanNode hj = (HashJoinPlanNode) n;
+        assertNull(hj.getJoinPredicate());
+        assertEquals(1, hj.getOuterHashExpressions().size());
+        AbstractExpression l = hj.getOuterHashExpressions().get(0);
+        AbstractExpression r = hj.getInnerHashExpressions().get(0);
         assertEquals(ExpressionType.VALUE_TUPLE, l.getExpressionType());
         assertEquals(ExpressionType.VALUE_TUPLE, r.getExpressionType());
 
         // R1.A = R2.A AND ABS(R2.C) = 1 => R1.A = R2.A AND ABS(R2.C) = 1
         pn = compile("select * FROM R1 LEFT JOIN R2 ON R1.A = R2.A AND ABS(R2.C) = 1 ");
         n = pn.getChild(0).getChild(0);
-        assertTrue(n instanceof AbstractJoinPlanNode);
-        p = ((AbstractJoinPlanNode) n).getJoinPredicate();
-        assertNotNull(p);
-        assertEquals(ExpressionType.COMPARE_EQUAL, p.getExpressionType());
-        l = p.getLeft();
-        r = p.getRight();
+        assertTrue(n instanceof HashJoinPlanNode);
+        hj = (HashJoinPlanNode) n;
+        assertNull(hj.getJoinPredicate());
+        assertEquals(1, hj.getOuterHashExpressions().size());
+        l = hj.getOuterHashExpressions().get(0);
+        r = hj.getInnerHashExpressions().get(0);
         assertEquals(ExpressionType.VALUE_TUPLE, l.getExpressionType());
         assertEquals(ExpressionType.VALUE_TUPLE, r.getExpressionType());
 
@@ -445,19 +446,23 @@ public class TestPlansJoin extends PlannerTestCase {
     public void testFunctionJoinConditions() {
         AbstractPlanNode pn = compile("select * FROM R1 JOIN R2 ON ABS(R1.A) = ABS(R2.A) ");
         AbstractPlanNode n = pn.getChild(0).getChild(0);
-        assertTrue(n instanceof AbstractJoinPlanNode);
+        assertTrue(n instanceof HashJoinPlanNode);
         AbstractExpression p = ((AbstractJoinPlanNode) n).getJoinPredicate();
-        assertEquals(ExpressionType.COMPARE_EQUAL, p.getExpressionType());
-        assertEquals(ExpressionType.FUNCTION, p.getLeft().getExpressionType());
-        assertEquals(ExpressionType.FUNCTION, p.getRight().getExpressionType());
+        assertNull(p);
+        assertEquals(ExpressionType.FUNCTION,
+                     ((HashJoinPlanNode) n).getOuterHashExpressions().get(0).getExpressionType());
+        assertEquals(ExpressionType.FUNCTION,
+                     ((HashJoinPlanNode) n).getInnerHashExpressions().get(0).getExpressionType());
 
         pn = compile("select * FROM R1 ,R2 WHERE ABS(R1.A) = ABS(R2.A) ");
         n = pn.getChild(0).getChild(0);
-        assertTrue(n instanceof AbstractJoinPlanNode);
+        assertTrue(n instanceof HashJoinPlanNode);
         p = ((AbstractJoinPlanNode) n).getJoinPredicate();
-        assertEquals(ExpressionType.COMPARE_EQUAL, p.getExpressionType());
-        assertEquals(ExpressionType.FUNCTION, p.getLeft().getExpressionType());
-        assertEquals(ExpressionType.FUNCTION, p.getRight().getExpressionType());
+        assertNull(p);
+        assertEquals(ExpressionType.FUNCTION,
+                     ((HashJoinPlanNode) n).getOuterHashExpressions().get(0).getExpressionType());
+        assertEquals(ExpressionType.FUNCTION,
+                     ((HashJoinPlanNode) n).getInnerHashExpressions().get(0).getExpressionType());
 
         pn = compile("select * FROM R1 ,R2");
         n = pn.getChild(0).getChild(0);
@@ -522,11 +527,13 @@ public class TestPlansJoin extends PlannerTestCase {
 
         pn = compile("select * FROM R3 JOIN R2 ON R3.A = R2.A JOIN R1 ON R2.A = R1.A WHERE R3.C > 0 and R2.C >= 5");
         n = pn.getChild(0).getChild(0);
-        assertTrue(n instanceof NestLoopPlanNode);
-        p = ((NestLoopPlanNode) n).getJoinPredicate();
-        assertEquals(ExpressionType.COMPARE_EQUAL, p.getExpressionType());
-        assertEquals(ExpressionType.VALUE_TUPLE, p.getLeft().getExpressionType());
-        assertEquals(ExpressionType.VALUE_TUPLE, p.getRight().getExpressionType());
+        assertTrue(n instanceof HashJoinPlanNode);
+        assertNull(((HashJoinPlanNode) n).getJoinPredicate());
+        assertEquals(1, ((HashJoinPlanNode) n).getOuterHashExpressions().size());
+        assertEquals(ExpressionType.VALUE_TUPLE,
+                     ((HashJoinPlanNode) n).getOuterHashExpressions().get(0).getExpressionType());
+        assertEquals(ExpressionType.VALUE_TUPLE,
+                     ((HashJoinPlanNode) n).getInnerHashExpressions().get(0).getExpressionType());
         seqScan = n.getChild(1);
         assertTrue(seqScan instanceof SeqScanPlanNode);
         n = n.getChild(0);
@@ -549,23 +556,65 @@ public class TestPlansJoin extends PlannerTestCase {
         assertNotNull(n.getInlinePlanNode(PlanNodeType.INDEXSCAN));
     }
 
+    public void testHashJoinConditions() {
+        // An equi-join with no usable index on the inner table is a hash join
+        AbstractPlanNode pn = compile("select * FROM R1 JOIN R2 ON R1.C = R2.C AND R1.A > R2.A");
+        AbstractPlanNode n = pn.getChild(0).getChild(0);
+        assertTrue(n instanceof HashJoinPlanNode);
+        HashJoinPlanNode hj = (HashJoinPlanNode) n;
+        assertEquals(1, hj.getOuterHashExpressions().size());
+        assertEquals(1, hj.getInnerHashExpressions().size());
+        // the outer key is evaluated against the outer (R1) tuple, the inner key against the inner (R2) tuple
+        TupleValueExpression outerKey = (TupleValueExpression) hj.getOuterHashExpressions().get(0);
+        TupleValueExpression innerKey = (TupleValueExpression) hj.getInnerHashExpressions().get(0);
+        assertEquals("R1", outerKey.getTableName());
+        assertEquals("R2", innerKey.getTableName());
+        // the non-equality condition remains the join predicate
+        assertEquals(ExpressionType.COMPARE_LESSTHAN, hj.getJoinPredicate().getExpressionType());
+        assertTrue(pn.toExplainPlanString().contains("HASH INNER JOIN"));
+
+        // The key sides are swapped when the inner table's column comes first
+        pn = compile("select * FROM R1 LEFT JOIN R2 ON R2.C = R1.C");
+        n = pn.getChild(0).getChild(0);
+        assertTrue(n instanceof HashJoinPlanNode);
+        hj = (HashJoinPlanNode) n;
+        assertEquals(JoinType.LEFT, hj.getJoinType());
+        assertEquals("R1", ((TupleValueExpression) hj.getOuterHashExpressions().get(0)).getTableName());
+        assertEquals("R2", ((TupleValueExpression) hj.getInnerHashExpressions().get(0)).getTableName());
+
+        // No equality condition between the tables
+        pn = compile("select * FROM R1 JOIN R2 ON R1.C > R2.C");
+        n = pn.getChild(0).getChild(0);
+        assertTrue(n instanceof NestLoopPlanNode);
+
+        // An indexed inner table still gets a NestLoopIndex join
+        pn = compile("select * FROM R1 JOIN R3 ON R1.C = R3.A");
+        n = pn.getChild(0).getChild(0);
+        assertTrue(n instanceof NestLoopIndexPlanNode);
+
+        // Partitioned inner data that must be sent to the coordinator is not hashed
+        pn = compile("select * FROM R2 LEFT JOIN P1 ON P1.C = R2.C");
+        n = pn.getChild(0).getChild(0);
+        assertTrue(n instanceof NestLoopPlanNode);
+    }
+
    public void testMultiColumnJoin() {
        // Test multi column condition on non index columns
        AbstractPlanNode pn = compile("select A, C FROM R2 JOIN R1 USING(A, C)");
        AbstractPlanNode n = pn.getChild(0).getChild(0);
-       assertTrue(n instanceof NestLoopPlanNode);
-       NestLoopPlanNode nlj = (NestLoopPlanNode) n;
-       AbstractExpression pred = nlj.getJoinPredicate();
-       assertNotNull(pred);
-       assertEquals(ExpressionType.CONJUNCTION_AND, pred.getExpressionType());
+       assertTrue(n instanceof HashJoinPlanNode);
+       HashJoinPlanNode hj = (HashJoinPlanNode) n;
+       AbstractExpression pred = hj.getJoinPredicate();
+       assertNull(pred);
+       assertEquals(2, hj.getOuterHashExpressions().size());
 
        pn = compile("select R1.A, R2.A FROM R2 JOIN R1 on R1.A = R2.A and R1.C = R2.C");
        n = pn.getChild(0).getChild(0);
-       assertTrue(n instanceof NestLoopPlanNode);
-       nlj = (NestLoopPlanNode) n;
-       pred = nlj.getJoinPredicate();
-       assertNotNull(pred);
-       assertEquals(ExpressionType.CONJUNCTION_AND, pred.getExpressionType());
+       assertTrue(n instanceof HashJoinPlanNode);
+       hj = (HashJoinPlanNode) n;
+       pred = hj.getJoinPredicate();
+       assertNull(pred);
+       assertEquals(2, hj.getOuterHashExpressions().size());
 
       // Test multi column condition on index columns
        pn = compile("select A FROM R2 JOIN R3 USING(A)");
@@ -618,8 +667,8 @@ public class TestPlansJoin extends PlannerTestCase {
         // select * with ON clause should return all columns from all tables
         AbstractPlanNode pn = compile("select * FROM R1 LEFT JOIN R2 ON R1.C = R2.C");
         AbstractPlanNode n = pn.getChild(0).getChild(0);
-        assertTrue(n instanceof NestLoopPlanNode);
-        NestLoopPlanNode nl = (NestLoopPlanNode) n;
+        assertTrue(n instanceof HashJoinPlanNode);
+        HashJoinPlanNode nl = (HashJoinPlanNode) n;
         assertEquals(JoinType.LEFT, nl.getJoinType());
         assertEquals(2, nl.getChildCount());
         AbstractPlanNode c0 = nl.getChild(0);
@@ -631,8 +680,8 @@ public class TestPlansJoin extends PlannerTestCase {
 
         pn = compile("select * FROM R1 LEFT JOIN R2 ON R1.C = R2.C AND R1.A = 5");
         n = pn.getChild(0).getChild(0);
-        assertTrue(n instanceof NestLoopPlanNode);
-        nl = (NestLoopPlanNode) n;
+        assertTrue(n instanceof HashJoinPlanNode);
+        nl = (HashJoinPlanNode) n;
         assertEquals(JoinType.LEFT, nl.getJoinType());
         assertEquals(2, nl.getChildCount());
         c0 = nl.getChild(0);
@@ -647,8 +696,8 @@ public class TestPlansJoin extends PlannerTestCase {
         // select * FROM R1 RIGHT JOIN R2 ON R1.C = R2.C => select * FROM R2 LEFT JOIN R1 ON R1.C = R2.C
         AbstractPlanNode pn = compile("select * FROM R1 RIGHT JOIN R2 ON R1.C = R2.C");
         AbstractPlanNode n = pn.getChild(0).getChild(0);
-        assertTrue(n instanceof NestLoopPlanNode);
-        NestLoopPlanNode nl = (NestLoopPlanNode) n;
+        assertTrue(n instanceof HashJoinPlanNode);
+        AbstractJoinPlanNode nl = (HashJoinPlanNode) n;
         assertEquals(JoinType.LEFT, nl.getJoinType());
         assertEquals(2, nl.getChildCount());
         AbstractPlanNode c0 = nl.getChild(0);
@@ -674,12 +723,13 @@ public class TestPlansJoin extends PlannerTestCase {
     }
 
     public void testSeqScanOuterJoinCondition() {
-        // R1.C = R2.C Inner-Outer join Expr stays at the NLJ as Join predicate
+        // R1.C = R2.C Inner-Outer equality join Expr becomes the hash join key
         AbstractPlanNode pn = compile("select * FROM R1 LEFT JOIN R2 ON R1.C = R2.C");
         AbstractPlanNode n = pn.getChild(0).getChild(0);
-        assertTrue(n instanceof NestLoopPlanNode);
-        NestLoopPlanNode nl = (NestLoopPlanNode) n;
-        assertEquals(ExpressionType.COMPARE_EQUAL, nl.getJoinPredicate().getExpressionType());
+        assertTrue(n instanceof HashJoinPlanNode);
+        AbstractJoinPlanNode nl = (AbstractJoinPlanNode) n;
+        assertEquals(1, ((HashJoinPlanNode) nl).getOuterHashExpressions().size());
+        assertNull(nl.getJoinPredicate());
         assertNull(nl.getWherePredicate());
         assertEquals(2, nl.getChildCount());
         SeqScanPlanNode c0 = (SeqScanPlanNode) nl.getChild(0);
@@ -692,14 +742,13 @@ public class TestPlansJoin extends PlannerTestCase {
         // R2.A < 0 Inner Join Expr is pushed down to the inner SeqScan node
         pn = compile("select * FROM R1 LEFT JOIN R2 ON R1.C = R2.C AND R1.A > 0 AND R2.A < 0");
         n = pn.getChild(0).getChild(0);
-        assertTrue(n instanceof NestLoopPlanNode);
-        nl = (NestLoopPlanNode) n;
+        assertTrue(n instanceof HashJoinPlanNode);
+        nl = (AbstractJoinPlanNode) n;
         assertNotNull(nl.getPreJoinPredicate());
         AbstractExpression p = nl.getPreJoinPredicate();
         assertEquals(ExpressionType.COMPARE_GREATERTHAN, p.getExpressionType());
-        assertNotNull(nl.getJoinPredicate());
-        p = nl.getJoinPredicate();
-        assertEquals(ExpressionType.COMPARE_EQUAL, p.getExpressionType());
+        assertNull(nl.getJoinPredicate());
+        assertEquals(1, ((HashJoinPlanNode) nl).getOuterHashExpressions().size());
         assertNull(nl.getWherePredicate());
         assertEquals(2, nl.getChildCount());
         c0 = (SeqScanPlanNode) nl.getChild(0);
@@ -713,11 +762,11 @@ public class TestPlansJoin extends PlannerTestCase {
         // (R1.A > 0 OR R2.A < 0) Inner-Outer join Expr stays at the NLJ as Join predicate
         pn = compile("select * FROM R1 LEFT JOIN R2 ON R1.C = R2.C AND (R1.A > 0 OR R2.A < 0)");
         n = pn.getChild(0).getChild(0);
-        assertTrue(n instanceof NestLoopPlanNode);
-        nl = (NestLoopPlanNode) n;
+        assertTrue(n instanceof HashJoinPlanNode);
+        nl = (AbstractJoinPlanNode) n;
+        assertEquals(1, ((HashJoinPlanNode) nl).getOuterHashExpressions().size());
         p = nl.getJoinPredicate();
-        assertEquals(ExpressionType.CONJUNCTION_AND, p.getExpressionType());
-        assertEquals(ExpressionType.CONJUNCTION_OR, p.getLeft().getExpressionType());
+        assertEquals(ExpressionType.CONJUNCTION_OR, p.getExpressionType());
         assertNull(nl.getWherePredicate());
         assertEquals(2, nl.getChildCount());
         c0 = (SeqScanPlanNode) nl.getChild(0);
@@ -731,12 +780,11 @@ public class TestPlansJoin extends PlannerTestCase {
         // (R1.C > R2.C OR R2.C IS NULL) Inner-Outer Where stays at the the NLJ as post join (where) predicate
         pn = compile("select * FROM R1 LEFT JOIN R2 ON R1.C = R2.C WHERE R1.A > 0 AND R2.A IS NULL AND (R1.C > R2.C OR R2.C IS NULL)");
         n = pn.getChild(0).getChild(0);
-        assertTrue(n instanceof NestLoopPlanNode);
-        nl = (NestLoopPlanNode) n;
+        assertTrue(n instanceof HashJoinPlanNode);
+        nl = (AbstractJoinPlanNode) n;
         assertEquals(JoinType.LEFT, nl.getJoinType());
-        assertNotNull(nl.getJoinPredicate());
-        p = nl.getJoinPredicate();
-        assertEquals(ExpressionType.COMPARE_EQUAL, p.getExpressionType());
+        assertNull(nl.getJoinPredicate());
+        assertEquals(1, ((HashJoinPlanNode) nl).getOuterHashExpressions().size());
         AbstractExpression w = nl.getWherePredicate();
         assertNotNull(w);
         assertEquals(ExpressionType.CONJUNCTION_AND, w.getExpressionType());
@@ -753,8 +801,8 @@ public class TestPlansJoin extends PlannerTestCase {
         // R3.C < 0 non-index Outer where expr pushed down to IndexScanPlanNode as a predicate
         pn = compile("select * FROM R3 LEFT JOIN R2 ON R3.A = R2.A WHERE R3.A > 3 AND R3.C < 0");
         n = pn.getChild(0).getChild(0);
-        assertTrue(n instanceof NestLoopPlanNode);
-        nl = (NestLoopPlanNode) n;
+        assertTrue(n instanceof HashJoinPlanNode);
+        nl = (AbstractJoinPlanNode) n;
         assertEquals(JoinType.LEFT, nl.getJoinType());
         AbstractPlanNode outerScan = n.getChild(0);
         assertTrue(outerScan instanceof IndexScanPlanNode);
@@ -769,7 +817,7 @@ public class TestPlansJoin extends PlannerTestCase {
         pn = compile("select * FROM R2 LEFT JOIN R3 ON R3.C = R2.C WHERE R3.A > 3");
         n = pn.getChild(0).getChild(0);
         assertTrue(n instanceof NestLoopPlanNode);
-        nl = (NestLoopPlanNode) n;
+        nl = (AbstractJoinPlanNode) n;
         assertEquals(JoinType.INNER, nl.getJoinType());
         outerScan = n.getChild(1);
         assertTrue(outerScan instanceof IndexScanPlanNode);
@@ -792,7 +840,7 @@ public class TestPlansJoin extends PlannerTestCase {
         lpn = compileToFragments("select * FROM P1 LEFT JOIN R2 ON P1.C = R2.C");
         assertEquals(2, lpn.size());
         n = lpn.get(1).getChild(0);
-        assertTrue(n instanceof NestLoopPlanNode);
+        assertTrue(n instanceof HashJoinPlanNode);
         assertEquals(2, n.getChildCount());
         assertTrue(n.getChild(0) instanceof SeqScanPlanNode);
         assertTrue(n.getChild(1) instanceof SeqScanPlanNode);
@@ -810,7 +858,7 @@ public class TestPlansJoin extends PlannerTestCase {
         lpn = compileToFragments("select * FROM P1 LEFT JOIN P4 ON P1.A = P4.A");
         assertEquals(2, lpn.size());
         n = lpn.get(1).getChild(0);
-        assertTrue(n instanceof NestLoopPlanNode);
+        assertTrue(n instanceof HashJoinPlanNode);
         assertEquals(2, n.getChildCount());
         assertTrue(n.getChild(0) instanceof SeqScanPlanNode);
         assertTrue(n.getChild(1) instanceof SeqScanPlanNode);
@@ -825,8 +873,8 @@ public class TestPlansJoin extends PlannerTestCase {
         // so index can't be used
         AbstractPlanNode pn = compile("select * FROM R3 LEFT JOIN R2 ON R3.A = R2.C");
         AbstractPlanNode n = pn.getChild(0).getChild(0);
-        assertTrue(n instanceof NestLoopPlanNode);
-        NestLoopPlanNode nl = (NestLoopPlanNode) n;
+        assertTrue(n instanceof HashJoinPlanNode);
+        HashJoinPlanNode nl = (HashJoinPlanNode) n;
         assertEquals(JoinType.LEFT, nl.getJoinType());
         assertEquals(2, nl.getChildCount());
         AbstractPlanNode c0 = nl.getChild(0);
@@ -839,8 +887,8 @@ public class TestPlansJoin extends PlannerTestCase {
         // R3 is indexed but it's the outer table so index can't be used
         pn = compile("select * FROM R2 RIGHT JOIN R3 ON R3.A = R2.C");
         n = pn.getChild(0).getChild(0);
-        assertTrue(n instanceof NestLoopPlanNode);
-        nl = (NestLoopPlanNode) n;
+        assertTrue(n instanceof HashJoinPlanNode);
+        nl = (HashJoinPlanNode) n;
         assertEquals(JoinType.LEFT, nl.getJoinType());
         assertEquals(2, nl.getChildCount());
         c0 = nl.getChild(0);
@@ -1052,18 +1100,18 @@ public class TestPlansJoin extends PlannerTestCase {
    public void testOuterJoinSimplification() {
        AbstractPlanNode pn = compile("select * FROM R1 LEFT JOIN R2 ON R1.C = R2.C WHERE R2.C IS NOT NULL");
        AbstractPlanNode n = pn.getChild(0).getChild(0);
-       assertTrue(n instanceof NestLoopPlanNode);
-       assertEquals(((NestLoopPlanNode) n).getJoinType(), JoinType.INNER);
+       assertTrue(n instanceof HashJoinPlanNode);
+       assertEquals(((HashJoinPlanNode) n).getJoinType(), JoinType.INNER);
 
        pn = compile("select * FROM R1 LEFT JOIN R2 ON R1.C = R2.C WHERE R2.C > 0");
        n = pn.getChild(0).getChild(0);
-       assertTrue(n instanceof NestLoopPlanNode);
-       assertEquals(((NestLoopPlanNode) n).getJoinType(), JoinType.INNER);
+       assertTrue(n instanceof HashJoinPlanNode);
+       assertEquals(((HashJoinPlanNode) n).getJoinType(), JoinType.INNER);
 
        pn = compile("select * FROM R1 RIGHT JOIN R2 ON R1.C = R2.C WHERE R1.C > 0");
        n = pn.getChild(0).getChild(0);
-       assertTrue(n instanceof NestLoopPlanNode);
-       assertEquals(((NestLoopPlanNode) n).getJoinType(), JoinType.INNER);
+       assertTrue(n instanceof HashJoinPlanNode);
+       assertEquals(((HashJoinPlanNode) n).getJoinType(), JoinType.INNER);
 
        pn = compile("select * FROM R1 LEFT JOIN R3 ON R1.C = R3.C WHERE R3.A > 0");
        n = pn.getChild(0).getChild(0);
@@ -1077,23 +1125,23 @@ public class TestPlansJoin extends PlannerTestCase {
 
        pn = compile("select * FROM R1 LEFT JOIN R2 ON R1.C = R2.C WHERE ABS(R2.C) <  10");
        n = pn.getChild(0).getChild(0);
-       assertTrue(n instanceof NestLoopPlanNode);
-       assertEquals(((NestLoopPlanNode) n).getJoinType(), JoinType.INNER);
+       assertTrue(n instanceof HashJoinPlanNode);
+       assertEquals(((HashJoinPlanNode) n).getJoinType(), JoinType.INNER);
 
        pn = compile("select * FROM R1 RIGHT JOIN R2 ON R1.C = R2.C WHERE ABS(R1.C) <  10");
        n = pn.getChild(0).getChild(0);
-       assertTrue(n instanceof NestLoopPlanNode);
-       assertEquals(((NestLoopPlanNode) n).getJoinType(), JoinType.INNER);
+       assertTrue(n instanceof HashJoinPlanNode);
+       assertEquals(((HashJoinPlanNode) n).getJoinType(), JoinType.INNER);
 
        pn = compile("select * FROM R1 LEFT JOIN R2 ON R1.C = R2.C WHERE ABS(R1.C) <  10");
        n = pn.getChild(0).getChild(0);
-       assertTrue(n instanceof NestLoopPlanNode);
-       assertEquals(((NestLoopPlanNode) n).getJoinType(), JoinType.LEFT);
+       assertTrue(n instanceof HashJoinPlanNode);
+       assertEquals(((HashJoinPlanNode) n).getJoinType(), JoinType.LEFT);
 
        pn = compile("select * FROM R1 RIGHT JOIN R2 ON R1.C = R2.C WHERE ABS(R2.C) <  10");
        n = pn.getChild(0).getChild(0);
-       assertTrue(n instanceof NestLoopPlanNode);
-       assertEquals(((NestLoopPlanNode) n).getJoinType(), JoinType.LEFT);
+       assertTrue(n instanceof HashJoinPlanNode);
+       assertEquals(((HashJoinPlanNode) n).getJoinType(), JoinType.LEFT);
 
        pn = compile("select * FROM R1 LEFT JOIN R2 ON R1.C = R2.C WHERE ABS(R2.C) <  10 AND R1.C = 3");
        n = pn.getChild(0).getChild(0);
@@ -1102,18 +1150,18 @@ public class TestPlansJoin extends PlannerTestCase {
 
        pn = compile("select * FROM R1 LEFT JOIN R2 ON R1.C = R2.C WHERE ABS(R2.C) <  10 OR R2.C IS NOT NULL");
        n = pn.getChild(0).getChild(0);
-       assertTrue(n instanceof NestLoopPlanNode);
-       assertEquals(((NestLoopPlanNode) n).getJoinType(), JoinType.INNER);
+       assertTrue(n instanceof HashJoinPlanNode);
+       assertEquals(((HashJoinPlanNode) n).getJoinType(), JoinType.INNER);
 
        pn = compile("select * FROM R1 LEFT JOIN R2 ON R1.C = R2.C WHERE ABS(R1.C) <  10 AND R1.C > 3");
        n = pn.getChild(0).getChild(0);
-       assertTrue(n instanceof NestLoopPlanNode);
-       assertEquals(((NestLoopPlanNode) n).getJoinType(), JoinType.LEFT);
+       assertTrue(n instanceof HashJoinPlanNode);
+       assertEquals(((HashJoinPlanNode) n).getJoinType(), JoinType.LEFT);
 
        pn = compile("select * FROM R1 LEFT JOIN R2 ON R1.C = R2.C WHERE ABS(R1.C) <  10 OR R2.C IS NOT NULL");
        n = pn.getChild(0).getChild(0);
-       assertTrue(n instanceof NestLoopPlanNode);
-       assertEquals(((NestLoopPlanNode) n).getJoinType(), JoinType.LEFT);
+       assertTrue(n instanceof HashJoinPlanNode);
+       assertEquals(((HashJoinPlanNode) n).getJoinType(), JoinType.LEFT);
    }
 
     @Override
@@ -0,0 +1,137 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+
+package org.voltdb.planner;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.voltdb.planner.DatabaseStatistics.TableStatistics;
+import org.voltdb.plannodes.AbstractPlanNode;
+import org.voltdb.plannodes.AbstractScanPlanNode;
+import org.voltdb.plannodes.HashJoinPlanNode;
+import org.voltdb.plannodes.IndexScanPlanNode;
+import org.voltdb.plannodes.NestLoopIndexPlanNode;
+import org.voltdb.types.PlanNodeType;
+
+public class TestPlansWithStatistics extends PlannerTestCase {
+
+    @Override
+    protected void setUp() throws Exception {
+        final boolean planForSinglePartitionFalse = false;
+        setupSchema(TestPlansWithStatistics.class.getResource("testplans-statistics-ddl.sql"),
+                    "teststatisticsplans",
+                    planForSinglePartitionFalse);
+    }
+
+    private static TableStatistics tableStatistics(long rowCount, Object... indexKeyCounts) {
+        Map<String, Long> distinctKeyCounts = new HashMap<String, Long>();
+        for (int i = 0; i < indexKeyCounts.length; i += 2) {
+            distinctKeyCounts.put((String) indexKeyCounts[i], (Long) indexKeyCounts[i + 1]);
+        }
+        return new TableStatistics(rowCount, distinctKeyCounts);
+    }
+
+    private void setStatistics(TableStatistics big, TableStatistics small) {
+        Map<String, TableStatistics> tables = new HashMap<String, TableStatistics>();
+        tables.put("BIG", big);
+        tables.put("SMALL", small);
+        setStatistics(new DatabaseStatistics(tables));
+    }
+
+    private String indexUsedBy(String sql) {
+        List<AbstractPlanNode> scans = compile(sql).findAllNodesOfType(PlanNodeType.INDEXSCAN);
+        assertEquals(1, scans.size());
+        return ((IndexScanPlanNode) scans.get(0)).getTargetIndexName();
+    }
+
+    public void testIndexChoiceFollowsKeyCounts() {
+        final String sql = "select * from big where a = ? and b = ?;";
+
+        setStatistics(tableStatistics(1000000, "BIG_A", 10L, "BIG_B", 500000L),
+                      tableStatistics(100));
+        assertEquals("BIG_B", indexUsedBy(sql));
+
+        setStatistics(tableStatistics(1000000, "BIG_A", 500000L, "BIG_B", 10L),
+                      tableStatistics(100));
+        assertEquals("BIG_A", indexUsedBy(sql));
+    }
+
+    private String outerTableOf(String sql) {
+        List<AbstractPlanNode> joins = compile(sql).findAllNodesOfType(PlanNodeType.NESTLOOPINDEX);
+        assertEquals(1, joins.size());
+        NestLoopIndexPlanNode join = (NestLoopIndexPlanNode) joins.get(0);
+        // the outer table is scanned in primary key order for determinism
+        assertTrue(join.getChild(0) instanceof AbstractScanPlanNode);
+        return ((AbstractScanPlanNode) join.getChild(0)).getTargetTableName();
+    }
+
+    public void testJoinOrderFollowsRowCounts() {
+        final String sql = "select * from big, small where big.a = small.a;";
+
+        setStatistics(tableStatistics(1000000, "BIG_A", 100000L),
+                      tableStatistics(100, "SMALL_A", 100L));
+        assertEquals("SMALL", outerTableOf(sql));
+
+        setStatistics(tableStatistics(100, "BIG_A", 100L),
+                      tableStatistics(1000000, "SMALL_A", 100000L));
+        assertEquals("BIG", outerTableOf(sql));
+    }
+
+    private String hashedTableOf(String sql) {
+        List<AbstractPlanNode> joins = compile(sql).findAllNodesOfType(PlanNodeType.HASHJOIN);
+        assertEquals(1, joins.size());
+        HashJoinPlanNode join = (HashJoinPlanNode) joins.get(0);
+        assertTrue(join.getChild(1) instanceof AbstractScanPlanNode);
+        return ((AbstractScanPlanNode) join.getChild(1)).getTargetTableName();
+    }
+
+    public void testHashJoinFollowsRowCounts() {
+        // no index covers c, so only a nestloop or a hash join can do this join,
+        // and the hash join should hash the smaller table
+        final String sql = "select * from big, small where big.c = small.c;";
+
+        setStatistics(tableStatistics(1000000), tableStatistics(1000));
+        assertEquals("SMALL", hashedTableOf(sql));
+
+        setStatistics(tableStatistics(1000), tableStatistics(1000000));
+        assertEquals("BIG", hashedTableOf(sql));
+    }
+
+    public void testJSONRoundTrip() throws Exception {
+        Map<String, TableStatistics> tables = new HashMap<String, TableStatistics>();
+        tables.put("BIG", tableStatistics(1000000, "BIG_A", 10L, "BIG_B", 500000L));
+        tables.put("SMALL", tableStatistics(0));
+        DatabaseStatistics statistics =
+            DatabaseStatistics.fromJSONString(new DatabaseStatistics(tables).toJSONString());
+
+        assertEquals(2, statistics.getTables().size());
+        assertEquals(1000000, statistics.getTable("BIG").rowCount);
+        assertEquals(Long.valueOf(10), statistics.getTable("BIG").distinctKeyCounts.get("BIG_A"));
+        assertEquals(Long.valueOf(500000), statistics.getTable("BIG").distinctKeyCounts.get("BIG_B"));
+        assertEquals(0, statistics.getTable("SMALL").rowCount);
+        assertTrue(statistics.getTable("SMALL").distinctKeyCounts.isEmpty());
+    }
+}
@@ -29,6 +29,8 @@ import org.voltdb.plannodes.AbstractPlanNode;
 import org.voltdb.plannodes.AbstractJoinPlanNode;
 import org.voltdb.plannodes.AbstractScanPlanNode;
 import org.voltdb.plannodes.LimitPlanNode;
+import org.voltdb.plannodes.OrderByPlanNode;
+import org.voltdb.plannodes.ReceivePlanNode;
 import org.voltdb.types.JoinType;
 import org.voltdb.types.PlanNodeType;
 
@@ -91,6 +93,59 @@ public class TestPushDownLimit extends PlannerTestCase {
         checkPushedDownLimit(pn, true, false, true, true);
     }
 
+    public void testPushDownIntoOrderBy() {
+        List<AbstractPlanNode> pn = compileToFragments("SELECT B1 FROM R1 ORDER BY C1 LIMIT 3");
+        assertEquals(1, pn.size());
+        AbstractPlanNode p = pn.get(0).getChild(0);
+        if (p.getPlanNodeType() == PlanNodeType.PROJECTION) {
+            p = p.getChild(0);
+        }
+        checkTopNOrderBy(p);
+        assertTrue(p.getChild(0) instanceof AbstractScanPlanNode);
+
+        // no top-N without a limit
+        pn = compileToFragments("SELECT B1 FROM R1 ORDER BY C1");
+        p = pn.get(0).getChild(0);
+        if (p.getPlanNodeType() == PlanNodeType.PROJECTION) {
+            p = p.getChild(0);
+        }
+        assertTrue(p instanceof OrderByPlanNode);
+        assertNull(p.getInlinePlanNode(PlanNodeType.LIMIT));
+        assertTrue(p.toExplainPlanString().contains("ORDER BY (SORT)"));
+    }
+
+    public void testPushDownIntoOrderByMultiPart() {
+        List<AbstractPlanNode> pn = compileToFragments("SELECT A1 FROM P1 ORDER BY C1 LIMIT 3 OFFSET 2");
+        assertEquals(2, pn.size());
+        for ( AbstractPlanNode nd : pn) {
+            System.out.println("PlanNode Explain string:\n" + nd.toExplainPlanString());
+        }
+
+        // the coordinator merges the partitions' top rows with a top-N sort
+        AbstractPlanNode p = pn.get(0).getChild(0);
+        if (p.getPlanNodeType() == PlanNodeType.PROJECTION) {
+            p = p.getChild(0);
+        }
+        checkTopNOrderBy(p);
+        assertEquals(2, ((LimitPlanNode)p.getInlinePlanNode(PlanNodeType.LIMIT)).getOffset());
+        assertTrue(p.getChild(0) instanceof ReceivePlanNode);
+
+        // each partition keeps its top limit + offset rows
+        p = pn.get(1).getChild(0);
+        if (p.getPlanNodeType() == PlanNodeType.PROJECTION) {
+            p = p.getChild(0);
+        }
+        checkTopNOrderBy(p);
+        assertEquals(5, ((LimitPlanNode)p.getInlinePlanNode(PlanNodeType.LIMIT)).getLimit());
+        assertTrue(p.getChild(0) instanceof AbstractScanPlanNode);
+    }
+
+    private void checkTopNOrderBy(AbstractPlanNode p) {
+        assertTrue(p instanceof OrderByPlanNode);
+        assertNotNull(p.getInlinePlanNode(PlanNodeType.LIMIT));
+        assertTrue(p.toExplainPlanString().contains("ORDER BY (TOP-N SORT)"));
+    }
+
     /**
      * Check if the limit node is pushed-down in the given plan.
      *
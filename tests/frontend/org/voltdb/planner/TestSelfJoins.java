@@ -26,11 +26,11 @@ package org.voltdb.planner;
 import org.voltdb.expressions.AbstractExpression;
 import org.voltdb.expressions.TupleValueExpression;
 import org.voltdb.plannodes.AbstractPlanNode;
+import org.voltdb.plannodes.HashJoinPlanNode;
 import org.voltdb.plannodes.NodeSchema;
 import org.voltdb.plannodes.ProjectionPlanNode;
 import org.voltdb.plannodes.SchemaColumn;
 import org.voltdb.plannodes.SendPlanNode;
-import org.voltdb.plannodes.NestLoopPlanNode;
 import org.voltdb.plannodes.SeqScanPlanNode;
 import org.voltdb.types.ExpressionType;
 
@@ -39,7 +39,7 @@ public class TestSelfJoins  extends PlannerTestCase {
     public void testSelfJoin() {
         AbstractPlanNode pn = compile("select * FROM R1 A JOIN R1 B ON A.C = B.C WHERE B.A > 0 AND A.C < 3");
         pn = pn.getChild(0).getChild(0);
-        assertTrue(pn instanceof NestLoopPlanNode);
+        assertTrue(pn instanceof HashJoinPlanNode);
         assertEquals(4, pn.getOutputSchema().getColumns().size());
         assertEquals(2, pn.getChildCount());
         AbstractPlanNode c = pn.getChild(0);
@@ -57,7 +57,7 @@ public class TestSelfJoins  extends PlannerTestCase {
 
         pn = compile("select * FROM R1 JOIN R1 B ON R1.C = B.C");
         pn = pn.getChild(0).getChild(0);
-        assertTrue(pn instanceof NestLoopPlanNode);
+        assertTrue(pn instanceof HashJoinPlanNode);
         assertEquals(4, pn.getOutputSchema().getColumns().size());
         assertEquals(2, pn.getChildCount());
         c = pn.getChild(0);
@@ -73,7 +73,7 @@ public class TestSelfJoins  extends PlannerTestCase {
 
         pn = compile("select A.A, A.C, B.A, B.C FROM R1 A JOIN R1 B ON A.C = B.C");
         pn = pn.getChild(0).getChild(0);
-        assertTrue(pn instanceof NestLoopPlanNode);
+        assertTrue(pn instanceof HashJoinPlanNode);
         assertEquals(4, pn.getOutputSchema().getColumns().size());
 
         pn = compile("select A,C  FROM R1 A JOIN R2 B USING(A)");
@@ -89,19 +89,18 @@ public class TestSelfJoins  extends PlannerTestCase {
     }
 
     public void testOuterSelfJoin() {
-        // A.C = B.C Inner-Outer join Expr stays at the NLJ as Join predicate
-        // A.A > 1 Outer Join Expr stays at the the NLJ as pre-join predicate
+        // A.C = B.C Inner-Outer equality join Expr becomes the hash join key
+        // A.A > 1 Outer Join Expr stays at the the join as pre-join predicate
         // B.A < 0 Inner Join Expr is pushed down to the inner SeqScan node
         AbstractPlanNode pn = compile("select * FROM R1 A LEFT JOIN R1 B ON A.C = B.C AND A.A > 1 AND B.A < 0");
         pn = pn.getChild(0).getChild(0);
-        assertTrue(pn instanceof NestLoopPlanNode);
-        NestLoopPlanNode nl = (NestLoopPlanNode) pn;
+        assertTrue(pn instanceof HashJoinPlanNode);
+        HashJoinPlanNode nl = (HashJoinPlanNode) pn;
         assertNotNull(nl.getPreJoinPredicate());
         AbstractExpression p = nl.getPreJoinPredicate();
         assertEquals(ExpressionType.COMPARE_GREATERTHAN, p.getExpressionType());
-        assertNotNull(nl.getJoinPredicate());
-        p = nl.getJoinPredicate();
-        assertEquals(ExpressionType.COMPARE_EQUAL, p.getExpressionType());
+        assertNull(nl.getJoinPredicate());
+        assertEquals(1, nl.getOuterHashExpressions().size());
         assertNull(nl.getWherePredicate());
         assertEquals(2, nl.getChildCount());
         SeqScanPlanNode c = (SeqScanPlanNode) nl.getChild(0);
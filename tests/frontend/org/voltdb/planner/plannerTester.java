@@ -397,7 +397,8 @@ public class plannerTester {
 
         for( AbstractPlanNode pn : pnlist ) {
             if( pn.getPlanNodeType().equals(PlanNodeType.NESTLOOP) ||
-                    pn.getPlanNodeType().equals(PlanNodeType.NESTLOOPINDEX) ) {
+                    pn.getPlanNodeType().equals(PlanNodeType.NESTLOOPINDEX) ||
+                    pn.getPlanNodeType().equals(PlanNodeType.HASHJOIN) ) {
                 joinNodeList.add(pn);
             }
         }
@@ -0,0 +1,19 @@
+create table big (
+  id bigint not null,
+  a bigint not null,
+  b bigint not null,
+  c bigint not null,
+  primary key (id)
+);
+
+create index big_a on big (a);
+create index big_b on big (b);
+
+create table small (
+  id bigint not null,
+  a bigint not null,
+  c bigint not null,
+  primary key (id)
+);
+
+create index small_a on small (a);
@@ -64,6 +64,8 @@ public class TestJoinsSuite extends RegressionSuite {
         subtestSeqOuterJoin(client);
         clearSeqTables(client);
         subtestSelfJoin(client);
+        clearSeqTables(client);
+        subtestHashJoin(client);
     }
 
     /**
@@ -822,6 +824,56 @@ public class TestJoinsSuite extends RegressionSuite {
         assertEquals(1, result.getRowCount());
     }
 
+    /**
+     * Equi-joins on unindexed columns are executed as hash joins.
+     * Exercise duplicate and NULL keys on both sides of inner and outer joins.
+     * @throws NoConnectionsException
+     * @throws IOException
+     * @throws ProcCallException
+     */
+    private void subtestHashJoin(Client client)
+            throws NoConnectionsException, IOException, ProcCallException
+    {
+        client.callProcedure("InsertR1", 1, 1, 1);
+        client.callProcedure("InsertR1", 2, 2, null);
+        client.callProcedure("InsertR1", 3, 3, 3);
+        client.callProcedure("InsertR1", 4, 4, 3);
+        client.callProcedure("InsertR2", 1, 3);
+        client.callProcedure("InsertR2", 2, null);
+        client.callProcedure("InsertR2", 3, 3);
+        client.callProcedure("InsertR2", 5, 1);
+
+        VoltTable explain = client.callProcedure("@Explain", "SELECT * FROM R1 JOIN R2 ON R1.D = R2.C;")
+                                  .getResults()[0];
+        assertTrue(explain.fetchRow(0).getString(0).contains("HASH INNER JOIN"));
+        explain = client.callProcedure("@Explain", "SELECT * FROM R1 LEFT JOIN R2 ON R1.D = R2.C;")
+                        .getResults()[0];
+        assertTrue(explain.fetchRow(0).getString(0).contains("HASH LEFT JOIN"));
+
+        // NULL keys never match: R1.D = 1 matches once, R1.D = 3 matches twice for each of 2 rows
+        VoltTable result = client.callProcedure("@AdHoc", "SELECT * FROM R1 JOIN R2 ON R1.D = R2.C;")
+                                 .getResults()[0];
+        assertEquals(5, result.getRowCount());
+        // the NULL outer key is padded like any other unmatched outer row
+        result = client.callProcedure("@AdHoc", "SELECT * FROM R1 LEFT JOIN R2 ON R1.D = R2.C;")
+                .getResults()[0];
+        assertEquals(6, result.getRowCount());
+        result = client.callProcedure("@AdHoc", "SELECT R1.A FROM R1 LEFT JOIN R2 ON R1.D = R2.C WHERE R2.A IS NULL;")
+                .getResults()[0];
+        assertEquals(1, result.getRowCount());
+        assertEquals(2, result.fetchRow(0).getLong(0));
+        // additional join clauses are applied to the hash matches
+        result = client.callProcedure("@AdHoc", "SELECT * FROM R1 LEFT JOIN R2 ON R1.D = R2.C AND R1.A = R2.A;")
+                .getResults()[0];
+        assertEquals(4, result.getRowCount());
+        result = client.callProcedure("@AdHoc", "SELECT * FROM R1 JOIN R2 ON R1.D = R2.C AND R1.A = R2.A;")
+                .getResults()[0];
+        assertEquals(1, result.getRowCount());
+        result = client.callProcedure("@AdHoc", "SELECT * FROM R1 JOIN R2 ON R1.D = R2.C LIMIT 2;")
+                .getResults()[0];
+        assertEquals(2, result.getRowCount());
+    }
+
     static public junit.framework.Test suite()
     {
         VoltServerConfig config = null;
@@ -24,6 +24,7 @@
 package org.voltdb.regressionsuites;
 
 import java.io.IOException;
+import java.util.Arrays;
 
 import junit.framework.Test;
 
@@ -147,6 +148,67 @@ public class TestLoadingSuite extends RegressionSuite {
         }
     }
 
+    public void testDirectLoad() throws Exception {
+
+        Client client = getClient();
+        VoltTable table; ClientResponse r;
+
+        // the column types match the schema exactly, so these are loaded in the EE
+        VoltTable template = new VoltTable(new ColumnInfo[] {
+                new ColumnInfo("ival", VoltType.INTEGER),
+                new ColumnInfo("pval", VoltType.INTEGER),
+                new ColumnInfo("bval", VoltType.TINYINT),
+                new ColumnInfo("sval", VoltType.STRING),
+                new ColumnInfo("dval", VoltType.FLOAT)
+        });
+
+        table = template.clone(1000);
+        for (int i = 0; i < 50; i++) {
+            table.addRow(i, 1, (byte) i, "row" + i, (double) i);
+        }
+        r = client.callProcedure("@LoadSinglepartitionTable", TheHashinator.valueToBytes(1),
+                "PARTITIONED", table);
+        assertEquals(ClientResponse.SUCCESS, r.getStatus());
+        assertEquals(50, r.getResults()[0].asScalarLong());
+        assertEquals(50, countPartitionedRows(client));
+
+        r = client.callProcedure("@LoadMultipartitionTable", "REPLICATED", table);
+        assertEquals(ClientResponse.SUCCESS, r.getStatus());
+        assertEquals(50, r.getResults()[0].asScalarLong());
+        assertEquals(50, countReplicatedRows(client));
+
+        if (!isHSQL()) {
+            // a duplicate key rolls back the rows loaded before it
+            table = template.clone(100);
+            table.addRow(100, 1, (byte) 100, "new", 100.0);
+            table.addRow(0, 1, (byte) 0, "dup", 0.0);
+            try {
+                client.callProcedure("@LoadSinglepartitionTable", TheHashinator.valueToBytes(1),
+                        "PARTITIONED", table);
+                fail();
+            } catch (ProcCallException e) {}
+            assertEquals(50, countPartitionedRows(client));
+            try {
+                client.callProcedure("@LoadMultipartitionTable", "REPLICATED", table);
+                fail();
+            } catch (ProcCallException e) {}
+            assertEquals(50, countReplicatedRows(client));
+
+            // so does a string too long for its column
+            char tooLong[] = new char[61];
+            Arrays.fill(tooLong, 'x');
+            table = template.clone(100);
+            table.addRow(101, 1, (byte) 101, "new", 101.0);
+            table.addRow(102, 1, (byte) 102, new String(tooLong), 102.0);
+            try {
+                client.callProcedure("@LoadSinglepartitionTable", TheHashinator.valueToBytes(1),
+                        "PARTITIONED", table);
+                fail();
+            } catch (ProcCallException e) {}
+            assertEquals(50, countPartitionedRows(client));
+        }
+    }
+
     public TestLoadingSuite(String name) {
         super(name);
     }
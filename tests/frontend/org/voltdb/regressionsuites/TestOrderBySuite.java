@@ -757,6 +757,45 @@ public class TestOrderBySuite extends RegressionSuite {
 
     }
 
+    private void subtestOrderByTopN() throws Exception
+    {
+        Client client = getClient();
+        client.callProcedure("Truncate01");
+        // A_INT is a permutation of 0..99 that does not follow PKEY
+        for (int i = 0; i < 100; i++)
+        {
+            client.callProcedure("InsertO1", i, (i * 37) % 100, "", "");
+        }
+        VoltTable vt;
+
+        vt = client.callProcedure("@AdHoc", "SELECT A_INT FROM O1 ORDER BY A_INT DESC LIMIT 5 OFFSET 3").getResults()[0];
+        System.out.println(vt.toString());
+        assertEquals(5, vt.getRowCount());
+        for (int i = 0; i < 5; i++)
+        {
+            assertEquals(96 - i, vt.fetchRow(i).getLong(0));
+        }
+
+        vt = client.callProcedure("@AdHoc", "SELECT PKEY, A_INT FROM O1 ORDER BY A_INT LIMIT 3").getResults()[0];
+        System.out.println(vt.toString());
+        assertEquals(3, vt.getRowCount());
+        for (int i = 0; i < 3; i++)
+        {
+            assertEquals(i, vt.fetchRow(i).getLong(1));
+        }
+
+        // a limit beyond the table returns all of it, in order
+        vt = client.callProcedure("@AdHoc", "SELECT A_INT FROM O1 ORDER BY A_INT LIMIT 1000 OFFSET 90").getResults()[0];
+        assertEquals(10, vt.getRowCount());
+        for (int i = 0; i < 10; i++)
+        {
+            assertEquals(90 + i, vt.fetchRow(i).getLong(0));
+        }
+
+        vt = client.callProcedure("@AdHoc", "SELECT A_INT FROM O1 ORDER BY A_INT LIMIT 0").getResults()[0];
+        assertEquals(0, vt.getRowCount());
+    }
+
     public void testAll()
     throws Exception
     {
@@ -772,6 +811,7 @@ public class TestOrderBySuite extends RegressionSuite {
         subtestEng1133();
         subtestEng4676();
         subtestEng5021();
+        subtestOrderByTopN();
     }
 
     //
@@ -351,7 +351,7 @@ public class TestStatisticsSuite extends SaveRestoreBase {
         System.out.println("\n\nTESTING INDEX STATS\n\n\n");
         Client client  = getFullyConnectedClient();
 
-        ColumnInfo[] expectedSchema = new ColumnInfo[12];
+        ColumnInfo[] expectedSchema = new ColumnInfo[13];
         expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
         expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
         expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
@@ -364,6 +364,7 @@ public class TestStatisticsSuite extends SaveRestoreBase {
         expectedSchema[9] = new ColumnInfo("IS_COUNTABLE", VoltType.TINYINT);
         expectedSchema[10] = new ColumnInfo("ENTRY_COUNT", VoltType.BIGINT);
         expectedSchema[11] = new ColumnInfo("MEMORY_ESTIMATE", VoltType.INTEGER);
+        expectedSchema[12] = new ColumnInfo("DISTINCT_KEY_COUNT", VoltType.BIGINT);
         VoltTable expectedTable = new VoltTable(expectedSchema);
 
         VoltTable[] results = null;
@@ -391,7 +392,7 @@ public class TestStatisticsSuite extends SaveRestoreBase {
         System.out.println("\n\nTESTING MEMORY STATS\n\n\n");
         Client client  = getFullyConnectedClient();
 
-        ColumnInfo[] expectedSchema = new ColumnInfo[12];
+        ColumnInfo[] expectedSchema = new ColumnInfo[13];
         expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
         expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
         expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
@@ -404,6 +405,7 @@ public class TestStatisticsSuite extends SaveRestoreBase {
         expectedSchema[9] = new ColumnInfo("STRINGMEMORY", VoltType.INTEGER);
         expectedSchema[10] = new ColumnInfo("TUPLECOUNT", VoltType.BIGINT);
         expectedSchema[11] = new ColumnInfo("POOLEDMEMORY", VoltType.BIGINT);
+        expectedSchema[12] = new ColumnInfo("TEMPTABLESPILLED", VoltType.BIGINT);
         VoltTable expectedTable = new VoltTable(expectedSchema);
 
         VoltTable[] results = null;
@@ -563,7 +565,7 @@ public class TestStatisticsSuite extends SaveRestoreBase {
         // Based on doc, not code
         // HOST_ID, SITE_ID, and PARTITION_ID all differ.  Fixed to match
         // reality so tests would pass, but, ugh.
-        ColumnInfo[] expectedSchema = new ColumnInfo[9];
+        ColumnInfo[] expectedSchema = new ColumnInfo[10];
         expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
         expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
         expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
@@ -573,6 +575,7 @@ public class TestStatisticsSuite extends SaveRestoreBase {
         expectedSchema[6] = new ColumnInfo("MESSAGES_READ", VoltType.BIGINT);
         expectedSchema[7] = new ColumnInfo("BYTES_WRITTEN", VoltType.BIGINT);
         expectedSchema[8] = new ColumnInfo("MESSAGES_WRITTEN", VoltType.BIGINT);
+        expectedSchema[9] = new ColumnInfo("WRITE_CALLS", VoltType.BIGINT);
         VoltTable expectedTable = new VoltTable(expectedSchema);
 
         VoltTable[] results = null;
@@ -920,6 +923,50 @@ public class TestStatisticsSuite extends SaveRestoreBase {
         validateRowSeenAtAllHosts(results[0], "HOSTNAME", results[0].getString("HOSTNAME"), false);
     }
 
+    public void testMpReadPoolStatistics() throws Exception {
+        System.out.println("\n\nTESTING MPREADPOOL STATS\n\n\n");
+        Client client  = getFullyConnectedClient();
+
+        ColumnInfo[] expectedSchema = new ColumnInfo[12];
+        expectedSchema[0] = new ColumnInfo("TIMESTAMP", VoltType.BIGINT);
+        expectedSchema[1] = new ColumnInfo("HOST_ID", VoltType.INTEGER);
+        expectedSchema[2] = new ColumnInfo("HOSTNAME", VoltType.STRING);
+        expectedSchema[3] = new ColumnInfo("SITE_ID", VoltType.INTEGER);
+        expectedSchema[4] = new ColumnInfo("POOL_SIZE", VoltType.INTEGER);
+        expectedSchema[5] = new ColumnInfo("BUSY", VoltType.INTEGER);
+        expectedSchema[6] = new ColumnInfo("MAX_POOL_SIZE", VoltType.INTEGER);
+        expectedSchema[7] = new ColumnInfo("QUEUE_DEPTH", VoltType.INTEGER);
+        expectedSchema[8] = new ColumnInfo("STARTED", VoltType.BIGINT);
+        expectedSchema[9] = new ColumnInfo("WAITED", VoltType.BIGINT);
+        expectedSchema[10] = new ColumnInfo("AVG_WAIT", VoltType.BIGINT);
+        expectedSchema[11] = new ColumnInfo("MAX_WAIT", VoltType.BIGINT);
+        VoltTable expectedTable = new VoltTable(expectedSchema);
+
+        // run a few multi-partition reads through the pool
+        for (int i = 0; i < 5; i++) {
+            client.callProcedure("@AdHoc", "select count(*) from warehouse;");
+        }
+
+        VoltTable[] results = null;
+        //
+        // MPREADPOOL
+        //
+        results = client.callProcedure("@Statistics", "MPREADPOOL", 0).getResults();
+        // one aggregate table returned
+        assertEquals(1, results.length);
+        System.out.println("Test MPREADPOOL table: " + results[0].toString());
+        validateSchema(results[0], expectedTable);
+        // every host has an MPI, only the leader's pool does any work
+        assertEquals(HOSTS, results[0].getRowCount());
+        long started = 0;
+        while (results[0].advanceRow()) {
+            started += results[0].getLong("STARTED");
+            assertTrue(results[0].getLong("POOL_SIZE") >= 1);
+            assertEquals(0, results[0].getLong("QUEUE_DEPTH"));
+        }
+        assertTrue(started >= 5);
+    }
+
     public void testSnapshotStatus() throws Exception {
         System.out.println("\n\nTESTING SNAPSHOTSTATUS\n\n\n");
         Client client  = getFullyConnectedClient();
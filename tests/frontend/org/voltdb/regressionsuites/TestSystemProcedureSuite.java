@@ -142,6 +142,44 @@ public class TestSystemProcedureSuite extends RegressionSuite {
         assertEquals(results[0].get(0, VoltType.BIGINT), new Long(0));
     }
 
+    public void testAnalyzeStatistics() throws Exception {
+        Client client = getClient();
+        for (int i = 1; i <= 10; i++) {
+            client.callProcedure("@AdHoc",
+                    "INSERT INTO ITEM VALUES (" + (1000 + i) + ", 1, 'name', 1.0, 'data');");
+        }
+
+        VoltTable results[] = client.callProcedure("@AnalyzeStatistics").getResults();
+        assertEquals(1, results.length);
+        System.out.println(results[0]);
+        boolean sawTable = false;
+        boolean sawPrimaryKey = false;
+        while (results[0].advanceRow()) {
+            if (!results[0].getString("TABLE_NAME").equals("ITEM")) {
+                continue;
+            }
+            // the replicated table is counted once, not once per site
+            long rowCount = results[0].getLong("ROW_COUNT");
+            assertTrue(rowCount >= 10);
+            assertTrue(rowCount < 100);
+            if (results[0].getString("INDEX_NAME") == null) {
+                sawTable = true;
+            }
+            else {
+                // every primary key is distinct
+                assertEquals(rowCount, results[0].getLong("DISTINCT_KEY_COUNT"));
+                sawPrimaryKey = true;
+            }
+        }
+        assertTrue(sawTable);
+        assertTrue(sawPrimaryKey);
+
+        // ad hoc SQL is planned with the statistics from now on
+        VoltTable count = client.callProcedure("@AdHoc",
+                "SELECT COUNT(*) FROM ITEM WHERE I_ID > 1000;").getResults()[0];
+        assertEquals(10, count.asScalarLong());
+    }
+
     public void testLoadMultipartitionTableAndIndexStatsAndValidatePartitioning() throws Exception {
         Client client = getClient();
 
@@ -0,0 +1,149 @@
+/* This file is part of VoltDB.
+ * Copyright (C) 2008-2013 VoltDB Inc.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT.
+ * IN NO EVENT SHALL THE AUTHORS BE LIABLE FOR ANY CLAIM, DAMAGES OR
+ * OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE,
+ * ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR
+ * OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package org.voltdb.regressionsuites;
+
+import java.io.IOException;
+
+import junit.framework.Test;
+
+import org.voltdb.BackendTarget;
+import org.voltdb.VoltTable;
+import org.voltdb.client.Client;
+import org.voltdb.client.ProcCallException;
+import org.voltdb.compiler.VoltProjectBuilder;
+import org.voltdb_testprocs.regressionsuites.failureprocs.FetchTooMuch;
+import org.voltdb_testprocs.regressionsuites.failureprocs.InsertLotsOfData;
+
+public class TestTempTableSpill extends RegressionSuite {
+
+    // procedures used by these tests
+    static final Class<?>[] PROCEDURES =
+    {
+     InsertLotsOfData.class
+    };
+
+    /**
+     * Constructor needed for JUnit. Should just pass on parameters to superclass.
+     * @param name The name of the method to test. This is just passed to the superclass.
+     */
+    public TestTempTableSpill(String name) {
+        super(name);
+    }
+
+    private int insertMegabytes(Client client, int megabytes) throws IOException, ProcCallException {
+        int nextId = 0;
+        for (int mb = 0; mb < megabytes; mb += 5) {
+            VoltTable[] results = client.callProcedure("InsertLotsOfData", 0, nextId).getResults();
+            assertEquals(1, results.length);
+            assertTrue(nextId < results[0].asScalarLong());
+            nextId = (int) results[0].asScalarLong();
+        }
+        return nextId;
+    }
+
+    // Sorting on every column keeps the scan of WIDE wide, and it does not
+    // fit under the 16 MB temp table limit alongside a sorted copy of itself,
+    // so the sort has to write sorted runs to disk and merge them.
+    public void testOrderBySpills() throws IOException, ProcCallException {
+        if (isHSQL() || isValgrind()) return;
+
+        Client client = getClient();
+        int rowCount = insertMegabytes(client, 10);
+
+        StringBuilder columns = new StringBuilder();
+        for (int ii = 1; ii <= 40; ii++) {
+            columns.append("CVALUE").append(ii).append(", ");
+        }
+        VoltTable result = client.callProcedure("@AdHoc",
+                "SELECT ID FROM WIDE WHERE P = 0 ORDER BY " + columns + "ID DESC;").getResults()[0];
+        assertEquals(rowCount, result.getRowCount());
+        long expected = rowCount - 1;
+        while (result.advanceRow()) {
+            assertEquals(expected--, result.getLong(0));
+        }
+    }
+
+    // The scan of all of WIDE does not fit under the 16 MB temp table limit
+    // by itself, so it spills before the sort even starts.
+    public void testOrderByOfSpilledInput() throws IOException, ProcCallException {
+        if (isHSQL() || isValgrind()) return;
+
+        Client client = getClient();
+        int rowCount = insertMegabytes(client, 25);
+
+        VoltTable result = client.callProcedure("@AdHoc",
+                "SELECT * FROM WIDE WHERE P = 0 ORDER BY ID DESC LIMIT 10 OFFSET 5;").getResults()[0];
+        assertEquals(10, result.getRowCount());
+        long expected = rowCount - 6;
+        while (result.advanceRow()) {
+            assertEquals(expected--, result.getLong(0));
+        }
+    }
+
+    // Grouping on every column of WIDE keeps a copy of each row in the
+    // hash table, so the hash aggregation has to partition its input on
+    // disk to get rid of the scan before it runs out of room.
+    public void testGroupBySpills() throws IOException, ProcCallException {
+        if (isHSQL() || isValgrind()) return;
+
+        Client client = getClient();
+        int rowCount = insertMegabytes(client, 10);
+
+        StringBuilder columns = new StringBuilder("ID, P");
+        for (int ii = 1; ii <= 40; ii++) {
+            columns.append(", CVALUE").append(ii);
+        }
+        VoltTable result = client.callProcedure("@AdHoc",
+                "SELECT " + columns + ", COUNT(*) FROM WIDE WHERE P = 0 GROUP BY " + columns + ";").getResults()[0];
+        assertEquals(rowCount, result.getRowCount());
+        while (result.advanceRow()) {
+            assertEquals(1, result.getLong(42));
+        }
+    }
+
+    static public Test suite() {
+        // the suite made here will all be using the tests from this class
+        MultiConfigSuiteBuilder builder = new MultiConfigSuiteBuilder(TestTempTableSpill.class);
+
+        /////////////////////////////////////////////////////////////
+        // CONFIG #1: 1 Local Site/Partition running on JNI backend
+        /////////////////////////////////////////////////////////////
+        VoltServerConfig config = new LocalCluster("tempspill-onesite.jar", 1, 1, 0, BackendTarget.NATIVE_EE_JNI);
+
+        // build up a project builder for the workload
+        VoltProjectBuilder project = new VoltProjectBuilder();
+        project.addSchema(FetchTooMuch.class.getResource("failures-ddl.sql"));
+        project.addProcedures(PROCEDURES);
+        project.setMaxTempTableMemory(16);
+        project.setTempTableSpillSize(100);
+        // build the jarfile
+        if (!config.compile(project))
+            fail();
+
+        // add this config to the set of tests to run
+        builder.addServerConfig(config);
+
+        return builder;
+    }
+}
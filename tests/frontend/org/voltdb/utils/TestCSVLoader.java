@@ -345,6 +345,113 @@ public class TestCSVLoader extends TestCase {
         test_Interface(mySchema, myOptions, myData, invalidLineCnt, validLineCnt);
     }
 
+    //Test --readers, where chunks of the file are parsed in parallel and batched per partition.
+    public void testParallelReaders() throws Exception {
+        String mySchema =
+                "create table BLAH ("
+                + "clm_integer integer default 0 not null, "
+                + // column that is partitioned on
+                "clm_tinyint tinyint default 0, "
+                + "clm_smallint smallint default 0, "
+                + "clm_bigint bigint default 0, "
+                + "clm_string varchar(20) default null, "
+                + "clm_decimal decimal default null, "
+                + "clm_float float default null, "
+                + "clm_timestamp timestamp default null "
+                + "); ";
+        String[] myOptions = {
+            "-f" + path_csv,
+            "--reportdir=" + reportDir,
+            "--maxerrors=50",
+            "--user=",
+            "--password=",
+            "--port=",
+            "--separator=,",
+            "--quotechar=\"",
+            "--escape=\\",
+            "--skip=1",
+            "--batch=2",
+            "--readers=3",
+            "BlAh"
+        };
+        String currentTime = new TimestampType().toString();
+        String[] myData = {
+            "1 ,1,1,11111111,first,1.10,1.11," + currentTime,
+            "2,2,2,222222,second,3.30,NULL," + currentTime,
+            "3,3,3,333333, third ,NULL, 3.33," + currentTime,
+            "4,4,4,444444, NULL ,4.40 ,4.44," + currentTime,
+            "5,5,5,5555555,  \"abcde\"g, 5.50, 5.55," + currentTime,
+            "6,6,NULL,666666, sixth, 6.60, 6.66," + currentTime,
+            "7,NULL,7,7777777, seventh, 7.70, 7.77," + currentTime,
+            "11, 1,1,\"1,000\",first,1.10,1.11," + currentTime,
+            //empty line
+            "",
+            //invalid lines below
+            "8, 8",
+            "9, NLL,9,\"1,000\",nine,1.10,1.11," + currentTime,
+            "10,10,10,10 101 010,second,2.20,2.22" + currentTime,
+            "12,n ull,12,12121212,twelveth,12.12,12.12"
+        };
+        int invalidLineCnt = 4;
+        int validLineCnt = 7;
+        test_Interface(mySchema, myOptions, myData, invalidLineCnt, validLineCnt);
+    }
+
+    //Test --readers with batches that fail and are retried one row at a time.
+    public void testParallelReadersWithViolations() throws Exception {
+        String mySchema =
+                "create table BLAH ("
+                + "clm_integer integer not null, "
+                + // column that is partitioned on
+                "clm_tinyint tinyint default 0, "
+                + "clm_smallint smallint default 0, "
+                + "clm_bigint bigint default 0, "
+                + "clm_string varchar(20) default null, "
+                + "clm_decimal decimal default null, "
+                + "clm_float float default null, "
+                + "clm_timestamp timestamp default null, "
+                + "PRIMARY KEY(clm_integer) "
+                + "); ";
+        String[] myOptions = {
+            "-f" + path_csv,
+            "--reportdir=" + reportDir,
+            "--maxerrors=50",
+            "--user=",
+            "--password=",
+            "--port=",
+            "--separator=,",
+            "--quotechar=\"",
+            "--escape=\\",
+            "--skip=0",
+            "--batch=2",
+            "--readers=2",
+            "BlAh"
+        };
+        String currentTime = new TimestampType().toString();
+        String[] myData = {
+            "1 ,1,1,11111111,first,1.10,1.11," + currentTime,
+            "2 ,1,1,11111111,first,1.10,1.11," + currentTime,
+            "3 ,1,1,11111111,first,1.10,1.11," + currentTime,
+            "4 ,1,1,11111111,first,1.10,1.11," + currentTime,
+            "1 ,1,1,11111111,first,1.10,1.11," + currentTime,
+            "2 ,1,1,11111111,first,1.10,1.11," + currentTime,
+            "5 ,1,1,11111111,first,1.10,1.11," + currentTime,
+            "6 ,1,1,11111111,first,1.10,1.11," + currentTime,
+            "1 ,1,1,11111111,first,1.10,1.11," + currentTime,
+            "2 ,1,1,11111111,first,1.10,1.11," + currentTime,
+            "7 ,1,1,11111111,first,1.10,1.11," + currentTime,
+            "8 ,1,1,11111111,first,1.10,1.11," + currentTime,
+            "11 ,1,1,11111111,first,1.10,1.11," + currentTime,
+            "1 ,1,1,11111111,first,1.10,1.11," + currentTime,
+            "2 ,1,1,11111111,first,1.10,1.11," + currentTime,
+            "1 ,1,1,11111111,first,1.10,1.11," + currentTime,
+            "12 ,1,1,11111111,first,1.10,1.11," + currentTime
+        };
+        int invalidLineCnt = 7;
+        int validLineCnt = 10;
+        test_Interface(mySchema, myOptions, myData, invalidLineCnt, validLineCnt);
+    }
+
     public void testOpenQuote() throws Exception
     {
         String mySchema =
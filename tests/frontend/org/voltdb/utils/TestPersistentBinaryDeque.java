@@ -374,6 +374,75 @@ public class TestPersistentBinaryDeque {
         assertTrue(names.first().equals("pbd_nonce.3.pbd"));
     }
 
+    @Test
+    public void testOfferBatchThenPoll() throws Exception {
+        //One batch that spills over into a third segment
+        BBContainer objects[][] = new BBContainer[64][];
+        for (int ii = 0; ii < 64; ii++) {
+            objects[ii] = new BBContainer[] { DBBPool.wrapBB(getFilledBuffer(ii)) };
+        }
+        m_pbd.offer(objects);
+        assertEquals(((1024 * 1024 * 2) + 4) * 64, m_pbd.sizeInBytes());
+        TreeSet<String> names = getSortedDirectoryListing();
+        assertEquals( 3, names.size());
+
+        //An empty batch is a no-op, a second batch appends to the current write segment
+        m_pbd.offer(new BBContainer[0][]);
+        m_pbd.offer(new BBContainer[][] {
+                new BBContainer[] { DBBPool.wrapBB(getFilledBuffer(64)) },
+                new BBContainer[] { DBBPool.wrapBB(getFilledBuffer(65)) } });
+        names = getSortedDirectoryListing();
+        assertEquals( 3, names.size());
+
+        m_pbd.sync();
+        m_pbd.close();
+        m_pbd = new PersistentBinaryDeque( TEST_NONCE, TEST_DIR );
+
+        for (int ii = 0; ii < 66; ii++) {
+            BBContainer retval = m_pbd.poll();
+            assertNotNull(retval);
+            ByteBuffer expected = getFilledBuffer(ii);
+            assertTrue(expected.equals(retval.b));
+            retval.discard();
+        }
+        assertNull(m_pbd.poll());
+        assertEquals( 0, m_pbd.sizeInBytes());
+    }
+
+    @Test
+    public void testOfferBatchMaxSize() throws Exception {
+        try {
+            m_pbd.offer(new BBContainer[][] {
+                    defaultContainer,
+                    new BBContainer[] { DBBPool.wrapBB(ByteBuffer.allocateDirect(1024 * 1024 * 64)) }});
+        } catch (IOException e) {
+            //Nothing was written
+            assertTrue(m_pbd.isEmpty());
+            return;
+        }
+        fail();
+    }
+
+    @Test
+    public void testGroupCommit() throws Exception {
+        //Sync every two objects
+        m_pbd.setGroupCommit(((1024 * 1024 * 2) + 4) * 2, 0);
+        for (int ii = 0; ii < 5; ii++) {
+            defaultBuffer.clear();
+            m_pbd.offer(defaultContainer);
+        }
+        m_pbd.close();
+
+        m_pbd = new PersistentBinaryDeque( TEST_NONCE, TEST_DIR );
+        for (int ii = 0; ii < 5; ii++) {
+            defaultBuffer.clear();
+            BBContainer retval = m_pbd.poll();
+            assertTrue(defaultBuffer.equals(retval.b));
+            retval.discard();
+        }
+        assertTrue(m_pbd.isEmpty());
+    }
+
     @Test
     public void testOfferCloseThenReopen() throws Exception {
         //Make it create two full segments
@@ -152,9 +152,10 @@ def run_readlines(cmd):
     fd.close()
     return result
 
-def run_csvloader(schema, data_file):
+def run_csvloader(schema, data_file, readers=0):
     rowcount = options.ROW_COUNT
     elapsed_results = []
+    allocation_results = []
     parsing_results = []
     loading_results = []
     for I in range(0, options.TRIES):
@@ -163,6 +164,8 @@ def run_csvloader(schema, data_file):
         cmd = "%s --servers=%s" % (os.path.join(home, CSVLOADER), ','.join(options.servers))
         if options.csvoptions:
             cmd += " -o " + ",".join(options.csvoptions)
+        if readers > 0:
+            cmd += " --readers=%d" % readers
         cmd += " %s -f %s" % (schema, data_file)
         if options.VERBOSE:
             print "starting csvloader with command: " + cmd
@@ -189,6 +192,9 @@ def run_csvloader(schema, data_file):
         if int(before_row_count) + rowcount != int(actual_row_count):
             raise RuntimeError ("Actual table row count was not as expected exp:%d act:%d" % (rowcount,actual_row_count))
         elapsed_results.append(float(run_time))
+        m = re.search(r'Allocated (\d+) bytes per row', stdout)
+        if m is not None:
+            allocation_results.append(int(m.group(1)))
 
     def analyze_results(perf_results):
         #print "raw perf_results: %s" % perf_results
@@ -198,13 +204,38 @@ def run_csvloader(schema, data_file):
         return (average(pr), std(pr))
 
     avg, stddev = analyze_results(elapsed_results)
-    print "statistics for %s execution time avg: %f stddev: %f rows/sec: %f rows: %d file size: %d tries: %d" %\
-                 (schema, avg, stddev, rowcount/avg, rowcount, os.path.getsize(data_file), options.TRIES)
+    allocation = 0
+    if allocation_results:
+        allocation = average(allocation_results)
+    print "statistics for %s readers: %d execution time avg: %f stddev: %f rows/sec: %f bytes/row allocated: %d rows: %d file size: %d tries: %d" %\
+                 (schema, readers, avg, stddev, rowcount/avg, allocation, rowcount, os.path.getsize(data_file), options.TRIES)
     if options.statsfile:
         with open(options.statsfile, "a") as sf:
             # report duration in milliseconds for stats collector
             print >>sf, "%s,%d,%d,0,0,0,0" % (schema, int(round(avg*1000.0)), rowcount)
-    return (rowcount, avg, stddev)
+    return (rowcount, avg, stddev, allocation)
+
+def compare_csvloader(schema, data_file):
+    """run a case with the single reader and with --readers and print both.
+    The single reader's partition processors poll their queues while they
+    wait for rows, so its bytes/row includes that polling and moves with
+    how fast the reader keeps up; compare it over several tries."""
+    delete_table_rows(schema)
+    (rowcount, single_avg, single_stddev, single_allocation) = run_csvloader(schema, data_file)
+    delete_table_rows(schema)
+    (rowcount, parallel_avg, parallel_stddev, parallel_allocation) = run_csvloader(schema, data_file, options.READERS)
+    print "comparison for %s rows/sec: %f -> %f (%.2fx) bytes/row allocated: %d -> %d" %\
+                 (schema, rowcount/single_avg, rowcount/parallel_avg, single_avg/parallel_avg,
+                  single_allocation, parallel_allocation)
+
+def delete_table_rows(table_name):
+    host = random.choice(options.servers)
+    pyclient = FastSerializer(host=host, port=21212)
+    delete = VoltProcedure(pyclient, '@AdHoc', [FastSerializer.VOLTTYPE_STRING])
+    resp = delete.call(['delete from %s' % table_name], timeout=360)
+    if resp.status != 1:
+        print "Unexpected response to delete from host %s: %s" % (host, resp)
+        raise RuntimeError()
 
 def get_table_row_count(table_name):
     host = random.choice(options.servers)
@@ -272,6 +303,12 @@ def parse_cmdline():
                             default=None,
                             help ="comma separated list of options to be passed to the csvloader")
 
+    parser.add_option ("--readers",
+                            type = "int",
+                            dest = "READERS",
+                            default = 0,
+                            help ="also run each case with csvloader --readers=READERS and compare the two")
+
     parser.add_option ("-v", "--verbose",
                             dest = "VERBOSE",
                             action="store_true", default=False,
@@ -425,4 +462,7 @@ for schema in cases:
         sys.exit(1)
 
     data_file = globals()[CASES[schema]](options.REGENERATE)
-    run_csvloader(schema, data_file)
+    if options.READERS > 0:
+        compare_csvloader(schema, data_file)
+    else:
+        run_csvloader(schema, data_file)
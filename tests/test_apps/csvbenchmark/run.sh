@@ -76,8 +76,14 @@ function benchmark() {
     PYTHONPATH=$VOLTDB_LIB/python VOLTDB_HOME=$VOLTDB_BIN/.. $PYTHON $APPNAME.py -v --servers=$SERVERS --rows=1000 --tries=1 /tmp/csvbenchmark
 }
 
+# compare the single csvloader reader with parallel readers
+function compare() {
+    mkdir -p /tmp/csvbenchmark
+    PYTHONPATH=$VOLTDB_LIB/python VOLTDB_HOME=$VOLTDB_BIN/.. $PYTHON $APPNAME.py -v --servers=$SERVERS --rows=100000 --tries=1 --readers=4 /tmp/csvbenchmark
+}
+
 function help() {
-    echo "Usage: ./run.sh {clean|catalog|server|benchmark}"
+    echo "Usage: ./run.sh {clean|catalog|server|benchmark|compare}"
 }
 
 # Run the target passed as the first arg on the command line